@@ -118,6 +118,9 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 
 	private boolean objectReuse = false;
 
+	/** Flag to indicate whether records are passed as objects between tasks in the same JVM. */
+	private boolean localObjectHandover = false;
+
 	private boolean autoTypeRegistrationEnabled = true;
 
 	private boolean forceAvro = false;
@@ -631,6 +634,35 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 	public boolean isObjectReuseEnabled() {
 		return objectReuse;
 	}
+
+	/**
+	 * Enables passing records as objects instead of serialized buffers between pipelined connected tasks that run in
+	 * the same JVM. Records are still copied with their type serializer, which is cheap for immutable types, but
+	 * they are never serialized and deserialized on such local channels.
+	 */
+	@PublicEvolving
+	public ExecutionConfig enableLocalObjectHandover() {
+		localObjectHandover = true;
+		return this;
+	}
+
+	/**
+	 * Disables passing records as objects between tasks in the same JVM. @see #enableLocalObjectHandover()
+	 */
+	@PublicEvolving
+	public ExecutionConfig disableLocalObjectHandover() {
+		localObjectHandover = false;
+		return this;
+	}
+
+	/**
+	 * Returns whether records are passed as objects between tasks in the same JVM.
+	 * @see #enableLocalObjectHandover()
+	 */
+	@PublicEvolving
+	public boolean isLocalObjectHandoverEnabled() {
+		return localObjectHandover;
+	}
 	
 	/**
 	 * Sets the {@link CodeAnalysisMode} of the program. Specifies to which extent user-defined
@@ -907,6 +939,7 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 				forceKryo == other.forceKryo &&
 				disableGenericTypes == other.disableGenericTypes &&
 				objectReuse == other.objectReuse &&
+				localObjectHandover == other.localObjectHandover &&
 				autoTypeRegistrationEnabled == other.autoTypeRegistrationEnabled &&
 				forceAvro == other.forceAvro &&
 				Objects.equals(codeAnalysisMode, other.codeAnalysisMode) &&
@@ -935,6 +968,7 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 			forceKryo,
 			disableGenericTypes,
 			objectReuse,
+			localObjectHandover,
 			autoTypeRegistrationEnabled,
 			forceAvro,
 			codeAnalysisMode,
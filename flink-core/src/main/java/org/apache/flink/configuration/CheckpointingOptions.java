@@ -76,6 +76,19 @@ public class CheckpointingOptions {
 		.key("state.backend.local-recovery")
 		.defaultValue(false);
 
+	/**
+	 * The time for which the keyed state backends of a failed task are retained for the next attempt of the task.
+	 */
+	public static final ConfigOption<Long> LOCAL_RECOVERY_BACKEND_RETENTION = ConfigOptions
+		.key("state.backend.local-recovery.backend-retention")
+		.defaultValue(60000L)
+		.withDescription("The time in milliseconds for which a task manager keeps the heap keyed state backends of a" +
+			" failed task, if local recovery is enabled. If the next attempt of the task is deployed to the same slot" +
+			" within this time, it rolls the backends back to the restored checkpoint instead of restoring them." +
+			" Otherwise they are disposed. A retained backend holds its complete state on the heap until it is taken" +
+			" or disposed, in addition to the state of the next attempt if that runs in another slot of the same" +
+			" task manager. A value of 0 disposes the backends right away.");
+
 	/**
 	 * The config parameter defining the root directories for storing file-based state for local recovery.
 	 */
@@ -115,4 +128,40 @@ public class CheckpointingOptions {
 			.defaultValue(1024)
 			.withDescription("The minimum size of state data files. All state chunks smaller than that are stored" +
 				" inline in the root checkpoint metadata file.");
+
+	/** The maximum size of state data that is written as a segment of a file which is shared with other state,
+	 * rather than to a file of its own. */
+	public static final ConfigOption<Integer> FS_FILE_MERGING_THRESHOLD = ConfigOptions
+			.key("state.backend.fs.file-merging-threshold")
+			.defaultValue(0)
+			.withDescription("The maximum size of state data that is not written to a file of its own, but as a" +
+				" segment of a larger file that the state streams of the same checkpoint on a TaskManager share." +
+				" This cuts the number of files that each checkpoint creates. State chunks up to this size are" +
+				" buffered in memory until they are written. The value 0 disables the merging.");
+
+	/** Option whether the file system state backend keeps keyed state serialized in off-heap memory,
+	 * rather than as objects on the Java heap. */
+	public static final ConfigOption<Boolean> FS_OFF_HEAP_STATE = ConfigOptions
+			.key("state.backend.fs.off-heap")
+			.defaultValue(false)
+			.withDescription("Option whether the file system state backend keeps keyed state serialized in off-heap" +
+				" memory, rather than as objects on the Java heap. Cold key-groups are spilled to the local temporary" +
+				" directories when the off-heap memory is exhausted. Snapshots of off-heap state are always synchronous.");
+
+	/** The amount of off-heap memory per keyed state backend when off-heap state is enabled. */
+	public static final ConfigOption<String> FS_OFF_HEAP_STATE_MEMORY_SIZE = ConfigOptions
+			.key("state.backend.fs.off-heap.memory-size")
+			.defaultValue("64m")
+			.withDescription("The amount of off-heap memory that each keyed state backend (i.e. each parallel" +
+				" instance of a keyed operator) uses to hold its state when '" + FS_OFF_HEAP_STATE.key() +
+				"' is enabled.");
+
+	/** The number of incremental checkpoints of the file system state backend after which all state is written
+	 * again. */
+	public static final ConfigOption<Integer> FS_INCREMENTAL_COMPACTION_INTERVAL = ConfigOptions
+			.key("state.backend.fs.incremental.compaction-interval")
+			.defaultValue(10)
+			.withDescription("The number of incremental checkpoints of the file system state backend after which a" +
+				" checkpoint writes all key-groups again instead of referencing the files of earlier checkpoints." +
+				" Only applies when '" + INCREMENTAL_CHECKPOINTS.key() + "' is enabled.");
 }
@@ -327,6 +327,58 @@ public class TaskManagerOptions {
 			.withDeprecatedKeys("taskmanager.net.request-backoff.max")
 			.withDescription("Maximum backoff in milliseconds for partition requests of input channels.");
 
+	/**
+	 * The codec to compress data buffers with before they are sent to remote task managers.
+	 */
+	public static final ConfigOption<String> NETWORK_COMPRESSION_CODEC =
+			key("taskmanager.network.compression.codec")
+			.defaultValue("none")
+			.withDescription("The codec to compress data buffers with before they are sent to a remote task manager." +
+				" Supported values are \"none\", \"snappy\" and the class name of a custom implementation of" +
+				" org.apache.flink.runtime.io.network.buffer.BufferCompressionCodec. Events are never compressed and" +
+				" all task managers of a cluster must use the same codec.");
+
+	/**
+	 * The minimum number of subpartitions of a blocking result partition to write it with the sort-merge shuffle.
+	 */
+	public static final ConfigOption<Integer> NETWORK_SORT_SHUFFLE_MIN_PARALLELISM =
+			key("taskmanager.network.sort-shuffle.min-parallelism")
+			.defaultValue(Integer.MAX_VALUE)
+			.withDescription("The minimum number of subpartitions of a blocking result partition for which the" +
+				" sort-merge shuffle is used. Such partitions write the data of all subpartitions, grouped by" +
+				" subpartition, to a single data file and an index file instead of one file per subpartition. This" +
+				" avoids many small files and random reads for jobs with a high parallelism. By default, the" +
+				" sort-merge shuffle is disabled.");
+
+	/**
+	 * Boolean flag to enable/disable the adaptation of the network buffer size to the throughput of the consumer.
+	 */
+	public static final ConfigOption<Boolean> NETWORK_BUFFER_DEBLOAT_ENABLED =
+			key("taskmanager.network.memory.buffer-debloat.enabled")
+			.defaultValue(false)
+			.withDescription("Boolean flag to enable/disable buffer debloating. If enabled, every input gate measures" +
+				" the rate at which it consumes data and asks its producers to shrink the network buffers, such that the" +
+				" in-flight data towards the gate can be consumed within the configured target time. This reduces the" +
+				" amount of buffered data under back pressure without changing the number of buffers.");
+
+	/**
+	 * The time in which the buffered in-flight data of an input gate should be consumed if buffer debloating is enabled.
+	 */
+	public static final ConfigOption<Long> NETWORK_BUFFER_DEBLOAT_TARGET =
+			key("taskmanager.network.memory.buffer-debloat.target")
+			.defaultValue(1000L)
+			.withDescription("The time in milliseconds in which an input gate should be able to consume all data that is" +
+				" buffered in flight towards it. Only used if buffer debloating is enabled.");
+
+	/**
+	 * The interval in which the buffer size is recomputed if buffer debloating is enabled.
+	 */
+	public static final ConfigOption<Long> NETWORK_BUFFER_DEBLOAT_PERIOD =
+			key("taskmanager.network.memory.buffer-debloat.period")
+			.defaultValue(200L)
+			.withDescription("The interval in milliseconds in which the throughput of an input gate is measured and the" +
+				" buffer size is recomputed. Only used if buffer debloating is enabled.");
+
 	/**
 	 * Boolean flag to enable/disable more detailed metrics about inbound/outbound network queue
 	 * lengths.
@@ -397,6 +449,36 @@ public class TaskManagerOptions {
 				" alignment buffers more than the configured amount of data, the checkpoint is aborted (skipped)." +
 				" A value of -1 indicates that there is no limit.");
 
+	/**
+	 * The maximum number of records that a one-input task hands through its operator chain as one
+	 * batch. Batches are only formed for operators that support them, the others receive single
+	 * records.
+	 *
+	 * <p>The default value of {@code 0} disables batch processing.
+	 */
+	public static final ConfigOption<Integer> TASK_RECORD_BATCH_SIZE =
+			key("task.record-batch.size")
+			.defaultValue(0)
+			.withDescription("The maximum number of records that a task with one input hands through its operator" +
+				" chain as one batch. Batches are formed from the records of one network buffer and passed to the" +
+				" operators that support batches, like map, filter and flatMap, while all other operators receive" +
+				" single records. A value of 0 or 1 disables batch processing.");
+
+	/**
+	 * The resolution to which the wake-ups for processing-time timers of keyed operators are rounded up.
+	 * All timers that are due at a wake-up fire together, with their exact timestamps.
+	 *
+	 * <p>The default value of {@code 0} disables coalescing.
+	 */
+	public static final ConfigOption<Long> TASK_PROCESSING_TIMER_RESOLUTION =
+			key("task.processing-timer.resolution")
+			.defaultValue(0L)
+			.withDescription("The resolution in milliseconds to which the wake-ups for processing-time timers of keyed" +
+				" operators are rounded up. All timers that are due at a wake-up fire together, which reduces the" +
+				" rescheduling of the task's timer thread, for example for state cleanup timers. Timers keep and" +
+				" report their exact timestamps, but fire up to one interval later than registered." +
+				" A value of 0 disables coalescing.");
+
 	// ------------------------------------------------------------------------
 
 	/** Not intended to be instantiated. */
@@ -323,6 +323,11 @@ public class KvStateServerHandlerTest extends TestLogger {
 						// do nothing
 					}
 
+					@Override
+					public VoidNamespace getCurrentNamespace() {
+						return VoidNamespace.INSTANCE;
+					}
+
 					@Override
 					public byte[] getSerializedValue(
 							final byte[] serializedKeyAndNamespace,
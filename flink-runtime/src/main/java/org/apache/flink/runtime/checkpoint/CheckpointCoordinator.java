@@ -51,17 +51,22 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -85,6 +90,10 @@ public class CheckpointCoordinator {
 	 */
 	private static final int NUM_GHOST_CHECKPOINT_IDS = 16;
 
+	/** The maximum number of queued acknowledge messages that are processed under one
+	 * acquisition of the coordinator-wide lock */
+	private static final int MAX_ACKNOWLEDGE_BATCH_SIZE = 1024;
+
 	// ------------------------------------------------------------------------
 
 	/** 维护检查点更新的协调器宽锁*/
@@ -180,6 +189,12 @@ public class CheckpointCoordinator {
 	@Nullable
 	private CheckpointStatsTracker statsTracker;
 
+	/** Acknowledge messages that were received but not processed yet */
+	private final ConcurrentLinkedQueue<AcknowledgeCheckpoint> queuedAcknowledgeMessages;
+
+	/** Flag whether a task that processes the queued acknowledge messages is scheduled */
+	private final AtomicBoolean acknowledgeMessagesDraining;
+
 	/** A factory for SharedStateRegistry objects */
 	private final SharedStateRegistryFactory sharedStateRegistryFactory;
 
@@ -238,6 +253,8 @@ public class CheckpointCoordinator {
 		this.sharedStateRegistry = sharedStateRegistryFactory.create(executor);
 
 		this.recentPendingCheckpoints = new ArrayDeque<>(NUM_GHOST_CHECKPOINT_IDS);
+		this.queuedAcknowledgeMessages = new ConcurrentLinkedQueue<>();
+		this.acknowledgeMessagesDraining = new AtomicBoolean(false);
 		this.masterHooks = new HashMap<>();
 
 		this.timer = new ScheduledThreadPoolExecutor(1,
@@ -341,6 +358,9 @@ public class CheckpointCoordinator {
 				}
 				pendingCheckpoints.clear();
 
+				// the queued acknowledge messages are not processed any more
+				queuedAcknowledgeMessages.clear();
+
 				completedCheckpointStore.shutdown(jobStatus);
 				checkpointIdCounter.shutdown(jobStatus);
 			}
@@ -739,8 +759,6 @@ public class CheckpointCoordinator {
 			return false;
 		}
 
-		final long checkpointId = message.getCheckpointId();
-
 		synchronized (lock) {
 			// we need to check inside the lock for being shutdown as well, otherwise we
 			// get races and invalid error log messages
@@ -748,68 +766,192 @@ public class CheckpointCoordinator {
 				return false;
 			}
 
-			final PendingCheckpoint checkpoint = pendingCheckpoints.get(checkpointId);
+			return processAcknowledgeMessage(message);
+		}
+	}
 
-			if (checkpoint != null && !checkpoint.isDiscarded()) {
+	/**
+	 * Queues an AcknowledgeCheckpoint message to be processed asynchronously by the
+	 * coordinator's executor. All messages that are queued while a previous batch is
+	 * processed are processed together as the next batch, so that the coordinator-wide
+	 * lock is acquired once per batch rather than once per subtask. Failures to process
+	 * a message are logged.
+	 *
+	 * @param message Checkpoint ack from the task manager
+	 */
+	public void enqueueAcknowledgeMessage(AcknowledgeCheckpoint message) {
+		if (shutdown) {
+			return;
+		}
 
-				switch (checkpoint.acknowledgeTask(message.getTaskExecutionId(), message.getSubtaskState(), message.getCheckpointMetrics())) {
-					case SUCCESS:
-						LOG.debug("Received acknowledge message for checkpoint {} from task {} of job {}.",
-							checkpointId, message.getTaskExecutionId(), message.getJob());
+		queuedAcknowledgeMessages.add(checkNotNull(message));
 
-						if (checkpoint.isFullyAcknowledged()) {
-							completePendingCheckpoint(checkpoint);
-						}
-						break;
-					case DUPLICATE:
-						LOG.debug("Received a duplicate acknowledge message for checkpoint {}, task {}, job {}.",
-							message.getCheckpointId(), message.getTaskExecutionId(), message.getJob());
-						break;
-					case UNKNOWN:
-						LOG.warn("Could not acknowledge the checkpoint {} for task {} of job {}, " +
-								"because the task's execution attempt id was unknown. Discarding " +
-								"the state handle to avoid lingering state.", message.getCheckpointId(),
-							message.getTaskExecutionId(), message.getJob());
-
-						discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
-
-						break;
-					case DISCARDED:
-						LOG.warn("Could not acknowledge the checkpoint {} for task {} of job {}, " +
-							"because the pending checkpoint had been discarded. Discarding the " +
-								"state handle tp avoid lingering state.",
-							message.getCheckpointId(), message.getTaskExecutionId(), message.getJob());
-
-						discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
+		if (acknowledgeMessagesDraining.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::drainAcknowledgeMessages);
+			} catch (RejectedExecutionException e) {
+				acknowledgeMessagesDraining.set(false);
+				LOG.warn("Could not schedule the processing of acknowledge messages for job {}.", job, e);
+			}
+		}
+	}
+
+	/**
+	 * Receives a batch of AcknowledgeCheckpoint messages and processes them under a single
+	 * acquisition of the coordinator-wide lock. Messages that cannot be processed are logged
+	 * and do not affect the processing of the other messages of the batch.
+	 *
+	 * @param messages Checkpoint acks from the task managers
+	 *
+	 * @return The number of messages that were associated with a pending checkpoint.
+	 */
+	public int receiveAcknowledgeMessages(Collection<AcknowledgeCheckpoint> messages) {
+		if (shutdown || messages.isEmpty()) {
+			return 0;
+		}
+
+		int numAssociatedMessages = 0;
+
+		synchronized (lock) {
+			for (AcknowledgeCheckpoint message : messages) {
+				// checked per message, because a completed checkpoint may lead to the shutdown
+				if (shutdown) {
+					break;
 				}
 
-				return true;
-			}
-			else if (checkpoint != null) {
-				// this should not happen
-				throw new IllegalStateException(
-						"Received message for discarded but non-removed checkpoint " + checkpointId);
+				if (message == null) {
+					continue;
+				}
+
+				if (!job.equals(message.getJob())) {
+					LOG.error("Received wrong AcknowledgeCheckpoint message for job {}: {}", job, message);
+					continue;
+				}
+
+				try {
+					if (processAcknowledgeMessage(message)) {
+						numAssociatedMessages++;
+					}
+				} catch (Exception e) {
+					LOG.warn("Error while processing acknowledge message for checkpoint {} from task {} of job {}.",
+						message.getCheckpointId(), message.getTaskExecutionId(), job, e);
+				}
 			}
-			else {
-				boolean wasPendingCheckpoint;
+		}
 
-				// message is for an unknown checkpoint, or comes too late (checkpoint disposed)
-				if (recentPendingCheckpoints.contains(checkpointId)) {
-					wasPendingCheckpoint = true;
-					LOG.warn("Received late message for now expired checkpoint attempt {} from " +
-						"{} of job {}.", checkpointId, message.getTaskExecutionId(), message.getJob());
+		return numAssociatedMessages;
+	}
+
+	/**
+	 * Processes the queued acknowledge messages in batches until the queue is empty.
+	 */
+	private void drainAcknowledgeMessages() {
+		final List<AcknowledgeCheckpoint> batch = new ArrayList<>();
+
+		do {
+			AcknowledgeCheckpoint message;
+			while ((message = queuedAcknowledgeMessages.poll()) != null) {
+				batch.add(message);
+
+				if (batch.size() == MAX_ACKNOWLEDGE_BATCH_SIZE) {
+					processAcknowledgeBatch(batch);
 				}
-				else {
-					LOG.debug("Received message for an unknown checkpoint {} from {} of job {}.",
+			}
+
+			processAcknowledgeBatch(batch);
+
+			acknowledgeMessagesDraining.set(false);
+
+			// a message that was queued after the last poll did not schedule a drain of its own
+		} while (!queuedAcknowledgeMessages.isEmpty() && acknowledgeMessagesDraining.compareAndSet(false, true));
+	}
+
+	private void processAcknowledgeBatch(List<AcknowledgeCheckpoint> batch) {
+		try {
+			receiveAcknowledgeMessages(batch);
+		} catch (Throwable t) {
+			LOG.warn("Error while processing checkpoint acknowledgement messages of job {}.", job, t);
+		} finally {
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Processes an AcknowledgeCheckpoint message of this job.
+	 *
+	 * <p>Important: This method should only be called in the checkpoint lock scope.
+	 *
+	 * @param message Checkpoint ack from the task manager
+	 *
+	 * @return Flag indicating whether the ack'd checkpoint was associated
+	 * with a pending checkpoint.
+	 *
+	 * @throws CheckpointException If the checkpoint cannot be added to the completed checkpoint store.
+	 */
+	private boolean processAcknowledgeMessage(AcknowledgeCheckpoint message) throws CheckpointException {
+		final long checkpointId = message.getCheckpointId();
+
+		final PendingCheckpoint checkpoint = pendingCheckpoints.get(checkpointId);
+
+		if (checkpoint != null && !checkpoint.isDiscarded()) {
+
+			switch (checkpoint.acknowledgeTask(message.getTaskExecutionId(), message.getSubtaskState(), message.getCheckpointMetrics())) {
+				case SUCCESS:
+					LOG.debug("Received acknowledge message for checkpoint {} from task {} of job {}.",
 						checkpointId, message.getTaskExecutionId(), message.getJob());
-					wasPendingCheckpoint = false;
-				}
 
-				// try to discard the state so that we don't have lingering state lying around
-				discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
+					if (checkpoint.isFullyAcknowledged()) {
+						completePendingCheckpoint(checkpoint);
+					}
+					break;
+				case DUPLICATE:
+					LOG.debug("Received a duplicate acknowledge message for checkpoint {}, task {}, job {}.",
+						message.getCheckpointId(), message.getTaskExecutionId(), message.getJob());
+					break;
+				case UNKNOWN:
+					LOG.warn("Could not acknowledge the checkpoint {} for task {} of job {}, " +
+							"because the task's execution attempt id was unknown. Discarding " +
+							"the state handle to avoid lingering state.", message.getCheckpointId(),
+						message.getTaskExecutionId(), message.getJob());
+
+					discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
+
+					break;
+				case DISCARDED:
+					LOG.warn("Could not acknowledge the checkpoint {} for task {} of job {}, " +
+						"because the pending checkpoint had been discarded. Discarding the " +
+							"state handle tp avoid lingering state.",
+						message.getCheckpointId(), message.getTaskExecutionId(), message.getJob());
+
+					discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
+			}
 
-				return wasPendingCheckpoint;
+			return true;
+		}
+		else if (checkpoint != null) {
+			// this should not happen
+			throw new IllegalStateException(
+					"Received message for discarded but non-removed checkpoint " + checkpointId);
+		}
+		else {
+			boolean wasPendingCheckpoint;
+
+			// message is for an unknown checkpoint, or comes too late (checkpoint disposed)
+			if (recentPendingCheckpoints.contains(checkpointId)) {
+				wasPendingCheckpoint = true;
+				LOG.warn("Received late message for now expired checkpoint attempt {} from " +
+					"{} of job {}.", checkpointId, message.getTaskExecutionId(), message.getJob());
+			}
+			else {
+				LOG.debug("Received message for an unknown checkpoint {} from {} of job {}.",
+					checkpointId, message.getTaskExecutionId(), message.getJob());
+				wasPendingCheckpoint = false;
 			}
+
+			// try to discard the state so that we don't have lingering state lying around
+			discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
+
+			return wasPendingCheckpoint;
 		}
 	}
 
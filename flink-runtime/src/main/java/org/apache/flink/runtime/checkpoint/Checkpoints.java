@@ -41,6 +41,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -67,6 +68,9 @@ public class Checkpoints {
 	/** Magic number at the beginning of every checkpoint metadata file, for sanity checks. */
 	public static final int HEADER_MAGIC_NUMBER = 0x4960672d;
 
+	/** The size of the buffer that the metadata is written through to the target stream. */
+	private static final int METADATA_WRITE_BUFFER_SIZE = 64 * 1024;
+
 	// ------------------------------------------------------------------------
 	//  Writing out checkpoint metadata
 	// ------------------------------------------------------------------------
@@ -75,8 +79,14 @@ public class Checkpoints {
 			T checkpointMetadata,
 			OutputStream out) throws IOException {
 
-		DataOutputStream dos = new DataOutputStream(out);
+		// the serializers write the metadata field by field, which would otherwise result in one
+		// call to the target stream for every few bytes of metadata of every subtask
+		BufferedOutputStream bos = new BufferedOutputStream(out, METADATA_WRITE_BUFFER_SIZE);
+		DataOutputStream dos = new DataOutputStream(bos);
 		storeCheckpointMetadata(checkpointMetadata, dos);
+
+		// the target stream is closed and finalized by the caller
+		dos.flush();
 	}
 
 	public static <T extends Savepoint> void storeCheckpointMetadata(
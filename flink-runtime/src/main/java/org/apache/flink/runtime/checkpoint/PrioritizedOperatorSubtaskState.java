@@ -20,8 +20,10 @@ package org.apache.flink.runtime.checkpoint;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.StateObject;
 
 import javax.annotation.Nonnull;
@@ -59,6 +61,12 @@ public class PrioritizedOperatorSubtaskState {
 	/** List of prioritized snapshot alternatives for raw keyed state. */
 	private final List<StateObjectCollection<KeyedStateHandle>> prioritizedRawKeyedState;
 
+	/** In-flight data of the input channels. There are no alternatives, this always comes from the job manager. */
+	private final StateObjectCollection<InputChannelStateHandle> inputChannelState;
+
+	/** In-flight data of the result subpartitions. There are no alternatives, this always comes from the job manager. */
+	private final StateObjectCollection<ResultSubpartitionStateHandle> resultSubpartitionState;
+
 	/** Signal flag if this represents state for a restored operator. */
 	private final boolean restored;
 
@@ -67,12 +75,16 @@ public class PrioritizedOperatorSubtaskState {
 		@Nonnull List<StateObjectCollection<KeyedStateHandle>> prioritizedRawKeyedState,
 		@Nonnull List<StateObjectCollection<OperatorStateHandle>> prioritizedManagedOperatorState,
 		@Nonnull List<StateObjectCollection<OperatorStateHandle>> prioritizedRawOperatorState,
+		@Nonnull StateObjectCollection<InputChannelStateHandle> inputChannelState,
+		@Nonnull StateObjectCollection<ResultSubpartitionStateHandle> resultSubpartitionState,
 		boolean restored) {
 
 		this.prioritizedManagedOperatorState = prioritizedManagedOperatorState;
 		this.prioritizedRawOperatorState = prioritizedRawOperatorState;
 		this.prioritizedManagedKeyedState = prioritizedManagedKeyedState;
 		this.prioritizedRawKeyedState = prioritizedRawKeyedState;
+		this.inputChannelState = inputChannelState;
+		this.resultSubpartitionState = resultSubpartitionState;
 		this.restored = restored;
 	}
 
@@ -152,6 +164,22 @@ public class PrioritizedOperatorSubtaskState {
 		return lastElement(prioritizedRawKeyedState);
 	}
 
+	/**
+	 * Returns the in-flight data of the input channels that was persisted by an unaligned checkpoint.
+	 */
+	@Nonnull
+	public StateObjectCollection<InputChannelStateHandle> getInputChannelState() {
+		return inputChannelState;
+	}
+
+	/**
+	 * Returns the in-flight data of the result subpartitions that was persisted by an unaligned checkpoint.
+	 */
+	@Nonnull
+	public StateObjectCollection<ResultSubpartitionStateHandle> getResultSubpartitionState() {
+		return resultSubpartitionState;
+	}
+
 	// -----------------------------------------------------------------------------------------------------------------
 
 	/**
@@ -246,6 +274,8 @@ public class PrioritizedOperatorSubtaskState {
 					jobManagerState.getRawOperatorState(),
 					rawOperatorAlternatives,
 					operatorStateApprover),
+				jobManagerState.getInputChannelState(),
+				jobManagerState.getResultSubpartitionState(),
 				restored);
 		}
 
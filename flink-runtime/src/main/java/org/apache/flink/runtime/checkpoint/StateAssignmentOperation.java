@@ -180,6 +180,7 @@ public class StateAssignmentOperation {
 		 */
 		assignTaskStateToExecutionJobVertices(
 			executionJobVertex,
+			operatorStates,
 			newManagedOperatorStates,
 			newRawOperatorStates,
 			newManagedKeyedState,
@@ -189,6 +190,7 @@ public class StateAssignmentOperation {
 
 	private void assignTaskStateToExecutionJobVertices(
 			ExecutionJobVertex executionJobVertex,
+			List<OperatorState> operatorStates,
 			Map<OperatorInstanceID, List<OperatorStateHandle>> subManagedOperatorState,
 			Map<OperatorInstanceID, List<OperatorStateHandle>> subRawOperatorState,
 			Map<OperatorInstanceID, List<KeyedStateHandle>> subManagedKeyedState,
@@ -205,7 +207,8 @@ public class StateAssignmentOperation {
 			TaskStateSnapshot taskState = new TaskStateSnapshot(operatorIDs.size());
 			boolean statelessTask = true;
 
-			for (OperatorID operatorID : operatorIDs) {
+			for (int x = 0; x < operatorIDs.size(); x++) {
+				OperatorID operatorID = operatorIDs.get(x);
 				OperatorInstanceID instanceID = OperatorInstanceID.of(subTaskIndex, operatorID);
 
 				OperatorSubtaskState operatorSubtaskState = operatorSubtaskStateFrom(
@@ -215,6 +218,14 @@ public class StateAssignmentOperation {
 					subManagedKeyedState,
 					subRawKeyedState);
 
+				// in-flight data of unaligned checkpoints goes back to the same subtask, the parallelism was checked
+				OperatorSubtaskState previousSubtaskState = operatorStates.get(x).getSubtaskStates().get(subTaskIndex);
+				if (previousSubtaskState != null && hasChannelState(previousSubtaskState)) {
+					operatorSubtaskState = operatorSubtaskState.withChannelState(
+						previousSubtaskState.getInputChannelState(),
+						previousSubtaskState.getResultSubpartitionState());
+				}
+
 				if (operatorSubtaskState.hasState()) {
 					statelessTask = false;
 				}
@@ -503,6 +514,10 @@ public class StateAssignmentOperation {
 		return result;
 	}
 
+	private static boolean hasChannelState(OperatorSubtaskState subtaskState) {
+		return subtaskState.getInputChannelState().hasState() || subtaskState.getResultSubpartitionState().hasState();
+	}
+
 	/**
 	 * Verifies conditions in regards to parallelism and maxParallelism that must be met when restoring state.
 	 *
@@ -520,6 +535,19 @@ public class StateAssignmentOperation {
 			);
 		}
 
+		//----------------------------------------in-flight data preconditions--------------------------------------
+
+		if (operatorState.getParallelism() != executionJobVertex.getParallelism()) {
+			for (OperatorSubtaskState subtaskState : operatorState.getStates()) {
+				if (hasChannelState(subtaskState)) {
+					throw new IllegalStateException("The state for task " + executionJobVertex.getJobVertexId() +
+						" can not be restored. It contains in-flight data of an unaligned checkpoint, which can only " +
+						"be restored with the same parallelism (" + operatorState.getParallelism() + "), but the " +
+						"configured parallelism is " + executionJobVertex.getParallelism() + '.');
+				}
+			}
+		}
+
 		// check that the number of key groups have not changed or if we need to override it to satisfy the restored state
 		if (operatorState.getMaxParallelism() != executionJobVertex.getMaxParallelism()) {
 
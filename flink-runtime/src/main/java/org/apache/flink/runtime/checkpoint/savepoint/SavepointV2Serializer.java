@@ -24,16 +24,20 @@ import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.checkpoint.MasterState;
 import org.apache.flink.runtime.checkpoint.OperatorState;
 import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.checkpoint.StateObjectCollection;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.OperatorStreamStateHandle;
+import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.FileSegmentStateHandle;
 import org.apache.flink.runtime.state.filesystem.FileStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
 import org.apache.flink.util.Preconditions;
@@ -82,14 +86,23 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 	private static final byte KEY_GROUPS_HANDLE = 3;
 	private static final byte PARTITIONABLE_OPERATOR_STATE_HANDLE = 4;
 	private static final byte INCREMENTAL_KEY_GROUPS_HANDLE = 5;
+	private static final byte FILE_SEGMENT_STATE_HANDLE = 6;
 
 	/** The singleton instance of the serializer */
-	public static final SavepointV2Serializer INSTANCE = new SavepointV2Serializer();
+	public static final SavepointV2Serializer INSTANCE = new SavepointV2Serializer(false);
+
+	/**
+	 * Whether the serializer uses format version 3, see {@link SavepointV3Serializer}: each subtask state is followed
+	 * by its in-flight data, and stream state handles may be segments of shared files.
+	 */
+	private final boolean withChannelState;
 
 	// ------------------------------------------------------------------------
 
-	/** Singleton, not meant to be instantiated */
-	private SavepointV2Serializer() {}
+	/** Singleton per format version, not meant to be instantiated */
+	SavepointV2Serializer(boolean withChannelState) {
+		this.withChannelState = withChannelState;
+	}
 
 	// ------------------------------------------------------------------------
 	//  (De)serialization entry points
@@ -97,6 +110,10 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 
 	@Override
 	public void serialize(SavepointV2 checkpointMetadata, DataOutputStream dos) throws IOException {
+		serializeMetadata(checkpointMetadata, dos);
+	}
+
+	void serializeMetadata(Savepoint checkpointMetadata, DataOutputStream dos) throws IOException {
 		// first: checkpoint ID
 		dos.writeLong(checkpointMetadata.getCheckpointId());
 
@@ -258,7 +275,17 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 		}
 	}
 
-	private static void serializeSubtaskState(OperatorSubtaskState subtaskState, DataOutputStream dos) throws IOException {
+	private void serializeSubtaskState(OperatorSubtaskState subtaskState, DataOutputStream dos) throws IOException {
+
+		final Collection<InputChannelStateHandle> inputChannelState =
+			nullToEmpty(subtaskState.getInputChannelState());
+		final Collection<ResultSubpartitionStateHandle> resultSubpartitionState =
+			nullToEmpty(subtaskState.getResultSubpartitionState());
+
+		if (!withChannelState && (!inputChannelState.isEmpty() || !resultSubpartitionState.isEmpty())) {
+			throw new IOException("The in-flight data of unaligned checkpoints requires checkpoint metadata " +
+				"format version " + SavepointV3.VERSION + '.');
+		}
 
 		dos.writeLong(-1);
 
@@ -270,7 +297,7 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 		len = operatorStateBackend != null ? 1 : 0;
 		dos.writeInt(len);
 		if (len == 1) {
-			serializeOperatorStateHandle(operatorStateBackend, dos);
+			serializeOperatorStateHandle(operatorStateBackend, dos, withChannelState);
 		}
 
 		OperatorStateHandle operatorStateFromStream = extractSingleton(subtaskState.getRawOperatorState());
@@ -278,17 +305,44 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 		len = operatorStateFromStream != null ? 1 : 0;
 		dos.writeInt(len);
 		if (len == 1) {
-			serializeOperatorStateHandle(operatorStateFromStream, dos);
+			serializeOperatorStateHandle(operatorStateFromStream, dos, withChannelState);
 		}
 
 		KeyedStateHandle keyedStateBackend = extractSingleton(subtaskState.getManagedKeyedState());
-		serializeKeyedStateHandle(keyedStateBackend, dos);
+		serializeKeyedStateHandle(keyedStateBackend, dos, withChannelState);
 
 		KeyedStateHandle keyedStateStream = extractSingleton(subtaskState.getRawKeyedState());
-		serializeKeyedStateHandle(keyedStateStream, dos);
+		serializeKeyedStateHandle(keyedStateStream, dos, withChannelState);
+
+		if (withChannelState) {
+			serializeChannelState(inputChannelState, resultSubpartitionState, dos);
+		}
+	}
+
+	private static <T> Collection<T> nullToEmpty(Collection<T> collection) {
+		return collection != null ? collection : Collections.emptyList();
+	}
+
+	private static void serializeChannelState(
+			Collection<InputChannelStateHandle> inputChannelState,
+			Collection<ResultSubpartitionStateHandle> resultSubpartitionState,
+			DataOutputStream dos) throws IOException {
+
+		dos.writeInt(inputChannelState.size());
+		for (InputChannelStateHandle handle : inputChannelState) {
+			dos.writeInt(handle.getChannelIndex());
+			serializeStreamStateHandle(handle.getDelegateStateHandle(), dos, true);
+		}
+
+		dos.writeInt(resultSubpartitionState.size());
+		for (ResultSubpartitionStateHandle handle : resultSubpartitionState) {
+			dos.writeInt(handle.getPartitionIndex());
+			dos.writeInt(handle.getSubpartitionIndex());
+			serializeStreamStateHandle(handle.getDelegateStateHandle(), dos, true);
+		}
 	}
 
-	private static OperatorSubtaskState deserializeSubtaskState(DataInputStream dis) throws IOException {
+	private OperatorSubtaskState deserializeSubtaskState(DataInputStream dis) throws IOException {
 		// Duration field has been removed from SubtaskState, do not remove
 		long ignoredDuration = dis.readLong();
 
@@ -303,31 +357,64 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 		} else {
 			for (int i = 0; i < len; ++i) {
 				// absorb bytes from stream and ignore result
-				deserializeStreamStateHandle(dis);
+				deserializeStreamStateHandle(dis, withChannelState);
 			}
 		}
 
 		len = dis.readInt();
-		OperatorStateHandle operatorStateBackend = len == 0 ? null : deserializeOperatorStateHandle(dis);
+		OperatorStateHandle operatorStateBackend = len == 0 ? null : deserializeOperatorStateHandle(dis, withChannelState);
 
 		len = dis.readInt();
-		OperatorStateHandle operatorStateStream = len == 0 ? null : deserializeOperatorStateHandle(dis);
+		OperatorStateHandle operatorStateStream = len == 0 ? null : deserializeOperatorStateHandle(dis, withChannelState);
 
-		KeyedStateHandle keyedStateBackend = deserializeKeyedStateHandle(dis);
+		KeyedStateHandle keyedStateBackend = deserializeKeyedStateHandle(dis, withChannelState);
 
-		KeyedStateHandle keyedStateStream = deserializeKeyedStateHandle(dis);
+		KeyedStateHandle keyedStateStream = deserializeKeyedStateHandle(dis, withChannelState);
 
-		return new OperatorSubtaskState(
+		OperatorSubtaskState subtaskState = new OperatorSubtaskState(
 				operatorStateBackend,
 				operatorStateStream,
 				keyedStateBackend,
 				keyedStateStream);
+
+		return withChannelState ? deserializeChannelState(subtaskState, dis) : subtaskState;
+	}
+
+	private static OperatorSubtaskState deserializeChannelState(
+			OperatorSubtaskState subtaskState,
+			DataInputStream dis) throws IOException {
+
+		int len = dis.readInt();
+		List<InputChannelStateHandle> inputChannelState = new ArrayList<>(len);
+		for (int i = 0; i < len; i++) {
+			int channelIndex = dis.readInt();
+			inputChannelState.add(new InputChannelStateHandle(channelIndex, deserializeStreamStateHandle(dis, true)));
+		}
+
+		len = dis.readInt();
+		List<ResultSubpartitionStateHandle> resultSubpartitionState = new ArrayList<>(len);
+		for (int i = 0; i < len; i++) {
+			int partitionIndex = dis.readInt();
+			int subpartitionIndex = dis.readInt();
+			resultSubpartitionState.add(
+				new ResultSubpartitionStateHandle(partitionIndex, subpartitionIndex, deserializeStreamStateHandle(dis, true)));
+		}
+
+		return subtaskState.withChannelState(
+			new StateObjectCollection<>(inputChannelState),
+			new StateObjectCollection<>(resultSubpartitionState));
 	}
 
 	@VisibleForTesting
 	public static void serializeKeyedStateHandle(
 			KeyedStateHandle stateHandle, DataOutputStream dos) throws IOException {
 
+		serializeKeyedStateHandle(stateHandle, dos, false);
+	}
+
+	private static void serializeKeyedStateHandle(
+			KeyedStateHandle stateHandle, DataOutputStream dos, boolean fileSegments) throws IOException {
+
 		if (stateHandle == null) {
 			dos.writeByte(NULL_HANDLE);
 		} else if (stateHandle instanceof KeyGroupsStateHandle) {
@@ -339,7 +426,7 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 			for (int keyGroup : keyGroupsStateHandle.getKeyGroupRange()) {
 				dos.writeLong(keyGroupsStateHandle.getOffsetForKeyGroup(keyGroup));
 			}
-			serializeStreamStateHandle(keyGroupsStateHandle.getDelegateStateHandle(), dos);
+			serializeStreamStateHandle(keyGroupsStateHandle.getDelegateStateHandle(), dos, fileSegments);
 		} else if (stateHandle instanceof IncrementalKeyedStateHandle) {
 			IncrementalKeyedStateHandle incrementalKeyedStateHandle =
 				(IncrementalKeyedStateHandle) stateHandle;
@@ -351,10 +438,10 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 			dos.writeInt(incrementalKeyedStateHandle.getKeyGroupRange().getStartKeyGroup());
 			dos.writeInt(incrementalKeyedStateHandle.getKeyGroupRange().getNumberOfKeyGroups());
 
-			serializeStreamStateHandle(incrementalKeyedStateHandle.getMetaStateHandle(), dos);
+			serializeStreamStateHandle(incrementalKeyedStateHandle.getMetaStateHandle(), dos, fileSegments);
 
-			serializeStreamStateHandleMap(incrementalKeyedStateHandle.getSharedState(), dos);
-			serializeStreamStateHandleMap(incrementalKeyedStateHandle.getPrivateState(), dos);
+			serializeStreamStateHandleMap(incrementalKeyedStateHandle.getSharedState(), dos, fileSegments);
+			serializeStreamStateHandleMap(incrementalKeyedStateHandle.getPrivateState(), dos, fileSegments);
 		} else {
 			throw new IllegalStateException("Unknown KeyedStateHandle type: " + stateHandle.getClass());
 		}
@@ -362,23 +449,25 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 
 	private static void serializeStreamStateHandleMap(
 		Map<StateHandleID, StreamStateHandle> map,
-		DataOutputStream dos) throws IOException {
+		DataOutputStream dos,
+		boolean fileSegments) throws IOException {
 		dos.writeInt(map.size());
 		for (Map.Entry<StateHandleID, StreamStateHandle> entry : map.entrySet()) {
 			dos.writeUTF(entry.getKey().toString());
-			serializeStreamStateHandle(entry.getValue(), dos);
+			serializeStreamStateHandle(entry.getValue(), dos, fileSegments);
 		}
 	}
 
 	private static Map<StateHandleID, StreamStateHandle> deserializeStreamStateHandleMap(
-		DataInputStream dis) throws IOException {
+		DataInputStream dis,
+		boolean fileSegments) throws IOException {
 
 		final int size = dis.readInt();
 		Map<StateHandleID, StreamStateHandle> result = new HashMap<>(size);
 
 		for (int i = 0; i < size; ++i) {
 			StateHandleID stateHandleID = new StateHandleID(dis.readUTF());
-			StreamStateHandle stateHandle = deserializeStreamStateHandle(dis);
+			StreamStateHandle stateHandle = deserializeStreamStateHandle(dis, fileSegments);
 			result.put(stateHandleID, stateHandle);
 		}
 
@@ -387,6 +476,12 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 
 	@VisibleForTesting
 	public static KeyedStateHandle deserializeKeyedStateHandle(DataInputStream dis) throws IOException {
+		return deserializeKeyedStateHandle(dis, false);
+	}
+
+	private static KeyedStateHandle deserializeKeyedStateHandle(
+			DataInputStream dis, boolean fileSegments) throws IOException {
+
 		final int type = dis.readByte();
 		if (NULL_HANDLE == type) {
 
@@ -403,7 +498,7 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 			}
 			KeyGroupRangeOffsets keyGroupRangeOffsets = new KeyGroupRangeOffsets(
 				keyGroupRange, offsets);
-			StreamStateHandle stateHandle = deserializeStreamStateHandle(dis);
+			StreamStateHandle stateHandle = deserializeStreamStateHandle(dis, fileSegments);
 			return new KeyGroupsStateHandle(keyGroupRangeOffsets, stateHandle);
 		} else if (INCREMENTAL_KEY_GROUPS_HANDLE == type) {
 
@@ -414,9 +509,9 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 			KeyGroupRange keyGroupRange =
 				KeyGroupRange.of(startKeyGroup, startKeyGroup + numKeyGroups - 1);
 
-			StreamStateHandle metaDataStateHandle = deserializeStreamStateHandle(dis);
-			Map<StateHandleID, StreamStateHandle> sharedStates = deserializeStreamStateHandleMap(dis);
-			Map<StateHandleID, StreamStateHandle> privateStates = deserializeStreamStateHandleMap(dis);
+			StreamStateHandle metaDataStateHandle = deserializeStreamStateHandle(dis, fileSegments);
+			Map<StateHandleID, StreamStateHandle> sharedStates = deserializeStreamStateHandleMap(dis, fileSegments);
+			Map<StateHandleID, StreamStateHandle> privateStates = deserializeStreamStateHandleMap(dis, fileSegments);
 
 			UUID uuid;
 
@@ -443,6 +538,12 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 	public static void serializeOperatorStateHandle(
 		OperatorStateHandle stateHandle, DataOutputStream dos) throws IOException {
 
+		serializeOperatorStateHandle(stateHandle, dos, false);
+	}
+
+	private static void serializeOperatorStateHandle(
+		OperatorStateHandle stateHandle, DataOutputStream dos, boolean fileSegments) throws IOException {
+
 		if (stateHandle != null) {
 			dos.writeByte(PARTITIONABLE_OPERATOR_STATE_HANDLE);
 			Map<String, OperatorStateHandle.StateMetaInfo> partitionOffsetsMap =
@@ -462,7 +563,7 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 					dos.writeLong(offset);
 				}
 			}
-			serializeStreamStateHandle(stateHandle.getDelegateStateHandle(), dos);
+			serializeStreamStateHandle(stateHandle.getDelegateStateHandle(), dos, fileSegments);
 		} else {
 			dos.writeByte(NULL_HANDLE);
 		}
@@ -472,6 +573,12 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 	public static OperatorStateHandle deserializeOperatorStateHandle(
 			DataInputStream dis) throws IOException {
 
+		return deserializeOperatorStateHandle(dis, false);
+	}
+
+	private static OperatorStateHandle deserializeOperatorStateHandle(
+			DataInputStream dis, boolean fileSegments) throws IOException {
+
 		final int type = dis.readByte();
 		if (NULL_HANDLE == type) {
 			return null;
@@ -493,7 +600,7 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 						new OperatorStateHandle.StateMetaInfo(offsets, mode);
 				offsetsMap.put(key, metaInfo);
 			}
-			StreamStateHandle stateHandle = deserializeStreamStateHandle(dis);
+			StreamStateHandle stateHandle = deserializeStreamStateHandle(dis, fileSegments);
 			return new OperatorStreamStateHandle(offsetsMap, stateHandle);
 		} else {
 			throw new IllegalStateException("Reading invalid OperatorStateHandle, type: " + type);
@@ -504,6 +611,16 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 	public static void serializeStreamStateHandle(
 			StreamStateHandle stateHandle, DataOutputStream dos) throws IOException {
 
+		serializeStreamStateHandle(stateHandle, dos, false);
+	}
+
+	/**
+	 * Writes the given stream state handle. Segments of shared files can only be written in format version 3,
+	 * older readers do not know them.
+	 */
+	private static void serializeStreamStateHandle(
+			StreamStateHandle stateHandle, DataOutputStream dos, boolean fileSegments) throws IOException {
+
 		if (stateHandle == null) {
 			dos.writeByte(NULL_HANDLE);
 
@@ -513,6 +630,17 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 			dos.writeLong(stateHandle.getStateSize());
 			dos.writeUTF(fileStateHandle.getFilePath().toString());
 
+		} else if (stateHandle instanceof FileSegmentStateHandle) {
+			if (!fileSegments) {
+				throw new IOException("Segments of shared state files require checkpoint metadata format version " +
+					SavepointV3.VERSION + '.');
+			}
+			dos.writeByte(FILE_SEGMENT_STATE_HANDLE);
+			FileSegmentStateHandle fileSegmentStateHandle = (FileSegmentStateHandle) stateHandle;
+			dos.writeLong(fileSegmentStateHandle.getStartPosition());
+			dos.writeLong(stateHandle.getStateSize());
+			dos.writeUTF(fileSegmentStateHandle.getFilePath().toString());
+
 		} else if (stateHandle instanceof ByteStreamStateHandle) {
 			dos.writeByte(BYTE_STREAM_STATE_HANDLE);
 			ByteStreamStateHandle byteStreamStateHandle = (ByteStreamStateHandle) stateHandle;
@@ -528,6 +656,12 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 	}
 
 	public static StreamStateHandle deserializeStreamStateHandle(DataInputStream dis) throws IOException {
+		return deserializeStreamStateHandle(dis, false);
+	}
+
+	private static StreamStateHandle deserializeStreamStateHandle(
+			DataInputStream dis, boolean fileSegments) throws IOException {
+
 		final int type = dis.read();
 		if (NULL_HANDLE == type) {
 			return null;
@@ -535,6 +669,11 @@ public class SavepointV2Serializer implements SavepointSerializer<SavepointV2> {
 			long size = dis.readLong();
 			String pathString = dis.readUTF();
 			return new FileStateHandle(new Path(pathString), size);
+		} else if (fileSegments && FILE_SEGMENT_STATE_HANDLE == type) {
+			long startPosition = dis.readLong();
+			long size = dis.readLong();
+			String pathString = dis.readUTF();
+			return new FileSegmentStateHandle(new Path(pathString), startPosition, size);
 		} else if (BYTE_STREAM_STATE_HANDLE == type) {
 			String handleName = dis.readUTF();
 			int numBytes = dis.readInt();
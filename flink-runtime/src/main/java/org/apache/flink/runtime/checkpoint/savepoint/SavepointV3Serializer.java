@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.savepoint;
+
+import org.apache.flink.annotation.Internal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * (De)serializer for checkpoint metadata format version 3.
+ *
+ * <p>This format version has the layout of {@link SavepointV2Serializer format version 2}, but each subtask state is
+ * followed by the in-flight data of unaligned checkpoints:
+ * <pre>
+ *  +---------------------+------------------------------------------+
+ *  | num input channels  | (channel index, stream state handle)*    |
+ *  +---------------------+------------------------------------------+
+ *  | num subpartitions   | (partition index, subpartition index,    |
+ *  |                     |  stream state handle)*                   |
+ *  +---------------------+------------------------------------------+
+ * </pre>
+ *
+ * <p>In addition, stream state handles may be segments of shared state files, see
+ * {@link org.apache.flink.runtime.state.filesystem.FileSegmentStateHandle}.
+ */
+@Internal
+public class SavepointV3Serializer implements SavepointSerializer<SavepointV3> {
+
+	/** The singleton instance of the serializer */
+	public static final SavepointV3Serializer INSTANCE = new SavepointV3Serializer();
+
+	/** The format of version 2, extended by the in-flight data of the subtask states and file segments. */
+	private final SavepointV2Serializer format;
+
+	/** Singleton, not meant to be instantiated */
+	private SavepointV3Serializer() {
+		this.format = new SavepointV2Serializer(true);
+	}
+
+	@Override
+	public void serialize(SavepointV3 checkpointMetadata, DataOutputStream dos) throws IOException {
+		format.serializeMetadata(checkpointMetadata, dos);
+	}
+
+	@Override
+	public SavepointV3 deserialize(DataInputStream dis, ClassLoader userCodeClassLoader) throws IOException {
+		SavepointV2 checkpointMetadata = format.deserialize(dis, userCodeClassLoader);
+
+		return new SavepointV3(
+			checkpointMetadata.getCheckpointId(),
+			checkpointMetadata.getOperatorStates(),
+			checkpointMetadata.getMasterStates());
+	}
+}
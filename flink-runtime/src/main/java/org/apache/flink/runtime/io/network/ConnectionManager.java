@@ -18,9 +18,12 @@
 
 package org.apache.flink.runtime.io.network;
 
+import org.apache.flink.runtime.io.network.buffer.BufferCompressionFactory;
 import org.apache.flink.runtime.io.network.netty.PartitionRequestClient;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 
 /**
@@ -46,6 +49,15 @@ public interface ConnectionManager {
 
 	int getDataPort();
 
+	/**
+	 * Returns the factory for the compression of the buffers that are exchanged with remote task managers, or null
+	 * if they are not compressed.
+	 */
+	@Nullable
+	default BufferCompressionFactory getBufferCompressionFactory() {
+		return null;
+	}
+
 	void shutdown() throws IOException;
 
 }
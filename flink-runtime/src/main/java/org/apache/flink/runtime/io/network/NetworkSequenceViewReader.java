@@ -45,6 +45,13 @@ public interface NetworkSequenceViewReader {
 	 */
 	void addCredit(int creditDeltas);
 
+	/**
+	 * Forwards the number of bytes per buffer that the consumer wants to receive to the subpartition.
+	 *
+	 * @param newBufferSize The desired buffer size
+	 */
+	void notifyNewBufferSize(int newBufferSize);
+
 	/**
 	 * Checks whether this reader is available or not.
 	 *
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.api;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.event.RuntimeEvent;
+
+/**
+ * This event marks the position of a batch of record objects that a producer handed over to a consumer in the same
+ * JVM instead of serializing the records into buffers. The batch itself does not travel with the event, it is
+ * queued in the consuming {@link org.apache.flink.runtime.io.network.partition.consumer.LocalInputChannel} and must
+ * be polled from there when the event is processed.
+ */
+public class ObjectBatchEvent extends RuntimeEvent {
+
+	/** The singleton instance of this event. */
+	public static final ObjectBatchEvent INSTANCE = new ObjectBatchEvent();
+
+	// ------------------------------------------------------------------------
+
+	// not instantiable
+	private ObjectBatchEvent() {}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void read(DataInputView in) {
+		// Nothing to do here
+	}
+
+	@Override
+	public void write(DataOutputView out) {
+		// Nothing to do here
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public int hashCode() {
+		return 1372459521;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj != null && obj.getClass() == ObjectBatchEvent.class;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
@@ -29,6 +29,7 @@ import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.EndOfSuperstepEvent;
+import org.apache.flink.runtime.io.network.api.ObjectBatchEvent;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
@@ -60,6 +61,8 @@ public class EventSerializer {
 
 	private static final int CANCEL_CHECKPOINT_MARKER_EVENT = 4;
 
+	private static final int OBJECT_BATCH_EVENT = 5;
+
 	private static final int CHECKPOINT_TYPE_CHECKPOINT = 0;
 
 	private static final int CHECKPOINT_TYPE_SAVEPOINT = 1;
@@ -79,6 +82,9 @@ public class EventSerializer {
 		else if (eventClass == EndOfSuperstepEvent.class) {
 			return ByteBuffer.wrap(new byte[] { 0, 0, 0, END_OF_SUPERSTEP_EVENT });
 		}
+		else if (eventClass == ObjectBatchEvent.class) {
+			return ByteBuffer.wrap(new byte[] { 0, 0, 0, OBJECT_BATCH_EVENT });
+		}
 		else if (eventClass == CancelCheckpointMarker.class) {
 			CancelCheckpointMarker marker = (CancelCheckpointMarker) event;
 
@@ -130,6 +136,8 @@ public class EventSerializer {
 				return type == END_OF_SUPERSTEP_EVENT;
 			} else if (eventClass.equals(CancelCheckpointMarker.class)) {
 				return type == CANCEL_CHECKPOINT_MARKER_EVENT;
+			} else if (eventClass.equals(ObjectBatchEvent.class)) {
+				return type == OBJECT_BATCH_EVENT;
 			} else {
 				throw new UnsupportedOperationException("Unsupported eventClass = " + eventClass);
 			}
@@ -161,6 +169,9 @@ public class EventSerializer {
 			else if (type == END_OF_SUPERSTEP_EVENT) {
 				return EndOfSuperstepEvent.INSTANCE;
 			}
+			else if (type == OBJECT_BATCH_EVENT) {
+				return ObjectBatchEvent.INSTANCE;
+			}
 			else if (type == CANCEL_CHECKPOINT_MARKER_EVENT) {
 				long id = buffer.getLong();
 				return new CancelCheckpointMarker(id);
@@ -63,4 +63,12 @@ public interface RecordDeserializer<T extends IOReadableWritable> {
 	void clear();
 
 	boolean hasUnfinishedData();
+
+	/**
+	 * Returns the bytes of the record that was only partially received so far, including its length header, in the
+	 * form in which they were received. The array is empty if there is no such record.
+	 *
+	 * <p>This may only be called once the current buffer was consumed.
+	 */
+	byte[] getPartialRecordBytes() throws IOException;
 }
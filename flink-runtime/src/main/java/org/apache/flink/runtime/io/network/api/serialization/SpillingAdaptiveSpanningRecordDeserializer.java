@@ -164,6 +164,14 @@ public class SpillingAdaptiveSpanningRecordDeserializer<T extends IOReadableWrit
 		return this.nonSpanningWrapper.remaining() > 0 || this.spanningWrapper.getNumGatheredBytes() > 0;
 	}
 
+	@Override
+	public byte[] getPartialRecordBytes() throws IOException {
+		if (this.nonSpanningWrapper.remaining() > 0) {
+			throw new IllegalStateException("The current buffer has not been consumed.");
+		}
+		return this.spanningWrapper.getGatheredBytes();
+	}
+
 
 	// -----------------------------------------------------------------------------------------------------------------
 
@@ -573,6 +581,34 @@ public class SpillingAdaptiveSpanningRecordDeserializer<T extends IOReadableWrit
 			return this.accumulatedRecordBytes + (this.recordLength >= 0 ? 4 : lengthBuffer.position());
 		}
 
+		private byte[] getGatheredBytes() throws IOException {
+			final byte[] gathered = new byte[getNumGatheredBytes()];
+
+			if (this.recordLength < 0) {
+				// only (a part of) the length has been received
+				System.arraycopy(this.lengthBuffer.array(), 0, gathered, 0, this.lengthBuffer.position());
+				return gathered;
+			}
+
+			ByteBuffer.wrap(gathered).putInt(this.recordLength);
+			if (spillingChannel == null) {
+				System.arraycopy(buffer, 0, gathered, 4, this.accumulatedRecordBytes);
+			}
+			else {
+				// positional reads leave the position of the spilling channel untouched
+				ByteBuffer target = ByteBuffer.wrap(gathered, 4, this.accumulatedRecordBytes);
+				long position = 0;
+				while (target.hasRemaining()) {
+					int read = spillingChannel.read(target, position);
+					if (read < 0) {
+						throw new IOException("Spilled record data is incomplete.");
+					}
+					position += read;
+				}
+			}
+			return gathered;
+		}
+
 		public void clear() {
 			this.buffer = initialBuffer;
 			this.serializationReadBuffer.releaseArrays();
@@ -25,16 +25,24 @@ import org.apache.flink.runtime.event.AbstractEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.api.serialization.RecordSerializer;
 import org.apache.flink.runtime.io.network.api.serialization.SpanningRecordSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.metrics.TimerGauge;
 import org.apache.flink.runtime.metrics.groups.TaskIOMetricGroup;
+import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.XORShiftRandom;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.function.Function;
 
 import static org.apache.flink.runtime.io.network.api.serialization.RecordSerializer.SerializationResult;
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
 /**
@@ -48,6 +56,10 @@ import static org.apache.flink.util.Preconditions.checkState;
  * ensures that all produced records are written to the output stream (incl.
  * partially filled ones).
  *
+ * <p>If enabled via {@link #enableObjectBatches(Function, int)}, records for channels whose consumer runs in the same
+ * JVM are not serialized. Instead, copies of the records are collected and handed over to the consumer in batches,
+ * see {@link ResultPartitionWriter#addObjectBatch(List, int)}.
+ *
  * @param <T> the type of the record that can be emitted with this record writer
  */
 public class RecordWriter<T extends IOReadableWritable> {
@@ -72,6 +84,19 @@ public class RecordWriter<T extends IOReadableWritable> {
 
 	private Counter numBuffersOut = new SimpleCounter();
 
+	private TimerGauge backPressuredTimeMsPerSecond = new TimerGauge();
+
+	/** Creates the copies of records that are handed over as objects, or null if object batches are disabled. */
+	private Function<T, ?> objectCopier;
+
+	private int maxObjectBatchSize;
+
+	/** The records per channel that were not handed over yet. Guarded by the list itself. */
+	private List<Object>[] pendingObjectBatches;
+
+	/** Channels whose consumer is known to accept object batches. */
+	private boolean[] objectBatchChannels;
+
 	public RecordWriter(ResultPartitionWriter writer) {
 		this(writer, new RoundRobinChannelSelector<T>());
 	}
@@ -88,6 +113,10 @@ public class RecordWriter<T extends IOReadableWritable> {
 
 		this.numChannels = writer.getNumberOfSubpartitions();
 
+		if (channelSelector instanceof LoadAwareChannelSelector) {
+			((LoadAwareChannelSelector<T>) channelSelector).setResultPartitionWriter(writer);
+		}
+
 		this.serializer = new SpanningRecordSerializer<T>();
 		this.bufferBuilders = new Optional[numChannels];
 		this.broadcastChannels = new int[numChannels];
@@ -97,6 +126,26 @@ public class RecordWriter<T extends IOReadableWritable> {
 		}
 	}
 
+	/**
+	 * Hands records over to consumers in the same JVM as objects instead of serializing them.
+	 *
+	 * @param objectCopier Creates the object that is handed over for a record. Because the record (or its contents)
+	 *                     may be reused after it was emitted, this must create a deep copy if the type is mutable.
+	 * @param maxObjectBatchSize The number of records after which a batch is handed over to the consumer.
+	 */
+	@SuppressWarnings("unchecked")
+	public void enableObjectBatches(Function<T, ?> objectCopier, int maxObjectBatchSize) {
+		checkArgument(maxObjectBatchSize > 0, "The object batch size must be positive.");
+
+		this.objectCopier = checkNotNull(objectCopier);
+		this.maxObjectBatchSize = maxObjectBatchSize;
+		this.pendingObjectBatches = new List[numChannels];
+		this.objectBatchChannels = new boolean[numChannels];
+		for (int i = 0; i < numChannels; i++) {
+			pendingObjectBatches[i] = new ArrayList<>(maxObjectBatchSize);
+		}
+	}
+
 	public void emit(T record) throws IOException, InterruptedException {
 		emit(record, channelSelector.selectChannels(record, numChannels));
 	}
@@ -113,18 +162,33 @@ public class RecordWriter<T extends IOReadableWritable> {
 	 * This is used to send LatencyMarks to a random target channel.
 	 */
 	public void randomEmit(T record) throws IOException, InterruptedException {
+		final int targetChannel = rng.nextInt(numChannels);
+		if (isObjectBatchChannel(targetChannel)) {
+			addToObjectBatch(record, targetChannel);
+			return;
+		}
+
 		serializer.serializeRecord(record);
 
-		if (copyFromSerializerToTargetChannel(rng.nextInt(numChannels))) {
+		if (copyFromSerializerToTargetChannel(targetChannel)) {
 			serializer.prune();
 		}
 	}
 
 	private void emit(T record, int[] targetChannels) throws IOException, InterruptedException {
-		serializer.serializeRecord(record);
-
+		boolean serialized = false;
 		boolean pruneAfterCopying = false;
 		for (int channel : targetChannels) {
+			if (isObjectBatchChannel(channel)) {
+				addToObjectBatch(record, channel);
+				continue;
+			}
+
+			// serialize lazily, the record might only go to object batch channels
+			if (!serialized) {
+				serializer.serializeRecord(record);
+				serialized = true;
+			}
 			if (copyFromSerializerToTargetChannel(channel)) {
 				pruneAfterCopying = true;
 			}
@@ -175,6 +239,7 @@ public class RecordWriter<T extends IOReadableWritable> {
 	public void broadcastEvent(AbstractEvent event) throws IOException {
 		try (BufferConsumer eventBufferConsumer = EventSerializer.toBufferConsumer(event)) {
 			for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
+				handOverObjectBatch(targetChannel);
 				tryFinishCurrentBufferBuilder(targetChannel);
 
 				// Retain the buffer so that it can be recycled by each channel of targetPartition
@@ -187,13 +252,58 @@ public class RecordWriter<T extends IOReadableWritable> {
 		}
 	}
 
+	/**
+	 * Broadcasts the given event ahead of the data that is still queued in the subpartitions, see
+	 * {@link ResultPartitionWriter#addPriorityEvent(BufferConsumer, int)}.
+	 *
+	 * @return The overtaken data buffers, by subpartition. The caller has to recycle them.
+	 */
+	public List<List<Buffer>> broadcastPriorityEvent(AbstractEvent event) throws IOException {
+		final List<List<Buffer>> overtakenBuffers = new ArrayList<>(numChannels);
+		try (BufferConsumer eventBufferConsumer = EventSerializer.toBufferConsumer(event)) {
+			for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
+				handOverObjectBatch(targetChannel);
+				// the data of the current buffer belongs in front of the event as well
+				tryFinishCurrentBufferBuilder(targetChannel);
+
+				overtakenBuffers.add(targetPartition.addPriorityEvent(eventBufferConsumer.copy(), targetChannel));
+			}
+		} catch (Throwable t) {
+			for (List<Buffer> buffers : overtakenBuffers) {
+				buffers.forEach(Buffer::recycleBuffer);
+			}
+			throw t;
+		}
+
+		if (flushAlways) {
+			flushAll();
+		}
+		return overtakenBuffers;
+	}
+
 	public void flushAll() {
+		if (pendingObjectBatches != null) {
+			// this may be called by the output flusher concurrently to emitting records
+			try {
+				for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
+					handOverObjectBatch(targetChannel);
+				}
+			} catch (IOException e) {
+				ExceptionUtils.rethrow(e, "Failed to hand over object batch.");
+			}
+		}
 		targetPartition.flushAll();
 	}
 
 	public void clearBuffers() {
 		for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
 			closeBufferBuilder(targetChannel);
+
+			if (pendingObjectBatches != null) {
+				synchronized (pendingObjectBatches[targetChannel]) {
+					pendingObjectBatches[targetChannel].clear();
+				}
+			}
 		}
 	}
 
@@ -203,6 +313,54 @@ public class RecordWriter<T extends IOReadableWritable> {
 	public void setMetricGroup(TaskIOMetricGroup metrics) {
 		numBytesOut = metrics.getNumBytesOutCounter();
 		numBuffersOut = metrics.getNumBuffersOutCounter();
+		backPressuredTimeMsPerSecond = metrics.getBackPressuredTimeMsPerSecond();
+	}
+
+	private boolean isObjectBatchChannel(int targetChannel) {
+		if (objectCopier == null) {
+			return false;
+		}
+		// once the consumer accepted object batches, it does so until the end
+		if (!objectBatchChannels[targetChannel] && targetPartition.supportsObjectBatches(targetChannel)) {
+			objectBatchChannels[targetChannel] = true;
+		}
+		return objectBatchChannels[targetChannel];
+	}
+
+	private void addToObjectBatch(T record, int targetChannel) throws IOException {
+		// records that were serialized before the consumer accepted object batches must come first
+		tryFinishCurrentBufferBuilder(targetChannel);
+
+		final Object copy = objectCopier.apply(record);
+		final List<Object> pendingObjectBatch = pendingObjectBatches[targetChannel];
+		final boolean isFull;
+		synchronized (pendingObjectBatch) {
+			pendingObjectBatch.add(copy);
+			isFull = pendingObjectBatch.size() >= maxObjectBatchSize;
+		}
+
+		if (isFull || flushAlways) {
+			handOverObjectBatch(targetChannel);
+		}
+		if (flushAlways) {
+			targetPartition.flush(targetChannel);
+		}
+	}
+
+	private void handOverObjectBatch(int targetChannel) throws IOException {
+		if (pendingObjectBatches == null) {
+			return;
+		}
+
+		final List<Object> pendingObjectBatch = pendingObjectBatches[targetChannel];
+		synchronized (pendingObjectBatch) {
+			if (pendingObjectBatch.isEmpty()) {
+				return;
+			}
+			// hand over under the lock, so that concurrent hand overs cannot reorder the batches
+			targetPartition.addObjectBatch(new ArrayList<>(pendingObjectBatch), targetChannel);
+			pendingObjectBatch.clear();
+		}
 	}
 
 	/**
@@ -233,7 +391,18 @@ public class RecordWriter<T extends IOReadableWritable> {
 	private BufferBuilder requestNewBufferBuilder(int targetChannel) throws IOException, InterruptedException {
 		checkState(!bufferBuilders[targetChannel].isPresent() || bufferBuilders[targetChannel].get().isFinished());
 
-		BufferBuilder bufferBuilder = targetPartition.getBufferProvider().requestBufferBuilderBlocking();
+		final BufferBuilder bufferBuilder;
+		backPressuredTimeMsPerSecond.markStart();
+		try {
+			bufferBuilder = targetPartition.getBufferProvider().requestBufferBuilderBlocking();
+		} finally {
+			backPressuredTimeMsPerSecond.markEnd();
+		}
+		// the consumer may ask for smaller buffers to limit the amount of in-flight data
+		final int bufferSize = targetPartition.getBufferSize(targetChannel);
+		if (bufferSize < bufferBuilder.getMaxCapacity()) {
+			bufferBuilder.trim(bufferSize);
+		}
 		bufferBuilders[targetChannel] = Optional.of(bufferBuilder);
 		targetPartition.addBufferConsumer(bufferBuilder.createBufferConsumer(), targetChannel);
 		return bufferBuilder;
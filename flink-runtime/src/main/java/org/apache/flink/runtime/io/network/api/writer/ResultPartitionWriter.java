@@ -18,11 +18,14 @@
 
 package org.apache.flink.runtime.io.network.api.writer;
 
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A buffer-oriented runtime result writer API for producing results.
@@ -60,4 +63,55 @@ public interface ResultPartitionWriter {
 	 * Manually trigger consumption from enqueued {@link BufferConsumer BufferConsumers} in one specified subpartition.
 	 */
 	void flush(int subpartitionIndex);
+
+	/**
+	 * Returns whether the consumer of the subpartition with the given index accepts batches of record objects, see
+	 * {@link #addObjectBatch(List, int)}.
+	 */
+	default boolean supportsObjectBatches(int subpartitionIndex) {
+		return false;
+	}
+
+	/**
+	 * Hands a batch of record objects over to the consumer of the subpartition with the given index, without
+	 * serializing them. The batch is ordered behind all previously added {@link BufferConsumer BufferConsumers}.
+	 *
+	 * <p>This may only be called if {@link #supportsObjectBatches(int)} returned true for the subpartition. The
+	 * batch and its records must not be modified afterwards.
+	 */
+	default void addObjectBatch(List<?> objectBatch, int subpartitionIndex) throws IOException {
+		throw new UnsupportedOperationException("This result partition writer does not support object batches.");
+	}
+
+	/**
+	 * Returns the number of bytes that the consumer of the subpartition with the given index wants to receive per
+	 * buffer, or {@link Integer#MAX_VALUE} if buffers may fill up whole memory segments.
+	 */
+	default int getBufferSize(int subpartitionIndex) {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the number of data buffers and object batches in the subpartition with the given index that its consumer
+	 * did not take yet, or 0 if the writer does not know. This is a best-effort value which is read without
+	 * synchronization.
+	 */
+	default int getBacklog(int subpartitionIndex) {
+		return 0;
+	}
+
+	/**
+	 * Adds the given event to the subpartition with the given index, ahead of all data that was added before but not
+	 * consumed yet. This is used for the barriers of unaligned checkpoints.
+	 *
+	 * <p>Returns read-only copies of the data buffers that the event overtook, in their original order. They are
+	 * retained for the caller, which is responsible for recycling them. Writers that cannot reorder their data add the
+	 * event like any other {@link BufferConsumer} and return an empty list.
+	 *
+	 * <p>This method takes the ownership of the passed {@code eventBufferConsumer}.
+	 */
+	default List<Buffer> addPriorityEvent(BufferConsumer eventBufferConsumer, int subpartitionIndex) throws IOException {
+		addBufferConsumer(eventBufferConsumer, subpartitionIndex);
+		return Collections.emptyList();
+	}
 }
@@ -59,6 +59,16 @@ public interface Buffer {
 	 */
 	void tagAsEvent();
 
+	/**
+	 * Returns whether the data of this buffer is compressed, see {@link BufferCompressor}.
+	 */
+	boolean isCompressed();
+
+	/**
+	 * Tags this buffer to contain compressed or uncompressed data.
+	 */
+	void setCompressed(boolean isCompressed);
+
 	/**
 	 * Returns the underlying memory segment. This method is dangerous since it ignores read only protections and omits
 	 * slices. Use it only along the {@link #getMemorySegmentOffset()}.
@@ -42,9 +42,13 @@ public class BufferBuilder {
 
 	private boolean bufferConsumerCreated = false;
 
+	/** The number of bytes that may be written, at most the size of the memory segment. */
+	private int maxCapacity;
+
 	public BufferBuilder(MemorySegment memorySegment, BufferRecycler recycler) {
 		this.memorySegment = checkNotNull(memorySegment);
 		this.recycler = checkNotNull(recycler);
+		this.maxCapacity = memorySegment.size();
 	}
 
 	/**
@@ -119,7 +123,17 @@ public class BufferBuilder {
 	}
 
 	public int getMaxCapacity() {
-		return memorySegment.size();
+		return maxCapacity;
+	}
+
+	/**
+	 * Limits the number of bytes that may be written to this buffer to the given size. The limit never drops below
+	 * the bytes that were written already and never exceeds the size of the memory segment.
+	 *
+	 * @param newSize The new maximum capacity of the buffer.
+	 */
+	public void trim(int newSize) {
+		maxCapacity = Math.min(Math.max(newSize, positionMarker.getCached()), memorySegment.size());
 	}
 
 	/**
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import java.io.IOException;
+
+/**
+ * A block compression codec for network buffers. Implementations must be stateless, because one instance is shared
+ * by all compressors and decompressors of a task manager, and must have a public no-argument constructor to be
+ * configurable via {@link org.apache.flink.configuration.TaskManagerOptions#NETWORK_COMPRESSION_CODEC}.
+ */
+public interface BufferCompressionCodec {
+
+	/**
+	 * Returns the maximum length of the compressed data for uncompressed data of the given length.
+	 */
+	int getMaxCompressedLength(int length);
+
+	/**
+	 * Compresses the source data into the target array, which has at least
+	 * {@link #getMaxCompressedLength(int)} bytes of space.
+	 *
+	 * @return the length of the compressed data.
+	 */
+	int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset) throws IOException;
+
+	/**
+	 * Decompresses the source data into the target array.
+	 *
+	 * @return the length of the decompressed data.
+	 * @throws IOException if the data is corrupt or the decompressed data exceeds the given maximum length.
+	 */
+	int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int maxLength) throws IOException;
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.TaskManagerOptions;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.util.InstantiationUtil;
+
+import javax.annotation.Nullable;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Creates the {@link BufferCompressor BufferCompressors} and {@link BufferDecompressor BufferDecompressors} of a
+ * task manager for the configured {@link BufferCompressionCodec} and aggregates their metrics.
+ */
+public class BufferCompressionFactory {
+
+	private final BufferCompressionCodec codec;
+
+	/** The bytes of all buffers that were compressed, including the ones that did not shrink. */
+	private final LongAdder uncompressedBytes = new LongAdder();
+
+	/** The bytes that were sent for the compressed buffers. */
+	private final LongAdder compressedBytes = new LongAdder();
+
+	private final LongAdder compressionNanos = new LongAdder();
+
+	private final LongAdder decompressionNanos = new LongAdder();
+
+	public BufferCompressionFactory(BufferCompressionCodec codec) {
+		this.codec = checkNotNull(codec);
+	}
+
+	/**
+	 * Creates a compressor, which must only be used by a single thread.
+	 */
+	public BufferCompressor createCompressor() {
+		return new BufferCompressor(codec, this);
+	}
+
+	/**
+	 * Creates a decompressor, which must only be used by a single thread.
+	 */
+	public BufferDecompressor createDecompressor() {
+		return new BufferDecompressor(codec, this);
+	}
+
+	BufferCompressionCodec getCodec() {
+		return codec;
+	}
+
+	void reportCompression(int uncompressedLength, int compressedLength, long nanos) {
+		uncompressedBytes.add(uncompressedLength);
+		compressedBytes.add(compressedLength);
+		compressionNanos.add(nanos);
+	}
+
+	void reportDecompression(long nanos) {
+		decompressionNanos.add(nanos);
+	}
+
+	/**
+	 * Returns the ratio of the uncompressed to the sent bytes of all buffers that were compressed so far.
+	 */
+	public double getCompressionRatio() {
+		final long compressed = compressedBytes.sum();
+		return compressed > 0 ? (double) uncompressedBytes.sum() / compressed : 1.0;
+	}
+
+	public long getCompressionTimeNanos() {
+		return compressionNanos.sum();
+	}
+
+	public long getDecompressionTimeNanos() {
+		return decompressionNanos.sum();
+	}
+
+	public void registerMetrics(MetricGroup metricGroup) {
+		metricGroup.<Double, Gauge<Double>>gauge("CompressionRatio", this::getCompressionRatio);
+		metricGroup.<Long, Gauge<Long>>gauge("CompressionTimeNanos", this::getCompressionTimeNanos);
+		metricGroup.<Long, Gauge<Long>>gauge("DecompressionTimeNanos", this::getDecompressionTimeNanos);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Creates the factory for the codec configured via {@link TaskManagerOptions#NETWORK_COMPRESSION_CODEC}.
+	 *
+	 * @return the factory, or null if compression is disabled.
+	 */
+	@Nullable
+	public static BufferCompressionFactory fromConfiguration(Configuration config) {
+		final String codecName = config.getString(TaskManagerOptions.NETWORK_COMPRESSION_CODEC).trim();
+
+		switch (codecName.toLowerCase()) {
+			case "none":
+				return null;
+			case "snappy":
+				return new BufferCompressionFactory(new SnappyBufferCompressionCodec());
+			default:
+				try {
+					Class<? extends BufferCompressionCodec> codecClass = Class.forName(
+						codecName, false, BufferCompressionFactory.class.getClassLoader())
+						.asSubclass(BufferCompressionCodec.class);
+					return new BufferCompressionFactory(InstantiationUtil.instantiate(codecClass));
+				} catch (ClassNotFoundException | ClassCastException e) {
+					throw new IllegalConfigurationException("Invalid network compression codec '" + codecName + "'.", e);
+				}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Compresses the data of network buffers in place, i.e. the compressed data replaces the uncompressed data in the
+ * backing {@link MemorySegment}. This avoids requesting additional buffers from the pool.
+ *
+ * <p>Only data buffers are compressed. Events like checkpoint barriers and buffers that would not shrink are left
+ * unchanged, so the consumer has to check {@link Buffer#isCompressed()}.
+ *
+ * <p>A compressor is not thread-safe.
+ */
+public class BufferCompressor {
+
+	private final BufferCompressionCodec codec;
+
+	private final BufferCompressionFactory factory;
+
+	/** The intermediate array for the uncompressed data. */
+	private byte[] uncompressed = new byte[0];
+
+	/** The intermediate array for the compressed data. */
+	private byte[] compressed = new byte[0];
+
+	BufferCompressor(BufferCompressionCodec codec, BufferCompressionFactory factory) {
+		this.codec = checkNotNull(codec);
+		this.factory = checkNotNull(factory);
+	}
+
+	/**
+	 * Compresses the readable bytes of the given buffer, if it is a data buffer.
+	 *
+	 * <p>The given buffer must be the only reader of its readable bytes, because they are overwritten. If the data
+	 * shrinks, a compressed slice of the given buffer is returned, which takes over the reference of the given
+	 * buffer. Otherwise, the given buffer is returned.
+	 */
+	public Buffer compressToOriginalBuffer(Buffer buffer) throws IOException {
+		if (!buffer.isBuffer() || buffer.isCompressed() || buffer.readableBytes() == 0) {
+			return buffer;
+		}
+
+		final long start = System.nanoTime();
+
+		final int length = buffer.readableBytes();
+
+		if (uncompressed.length < length) {
+			uncompressed = new byte[length];
+			compressed = new byte[codec.getMaxCompressedLength(length)];
+		}
+
+		buffer.getNioBufferReadable().get(uncompressed, 0, length);
+		final int compressedLength = codec.compress(uncompressed, 0, length, compressed, 0);
+
+		final Buffer result;
+		if (compressedLength < length) {
+			getWritableNioBuffer(buffer, buffer.getReaderIndex(), compressedLength).put(compressed, 0, compressedLength);
+			result = buffer.readOnlySlice(buffer.getReaderIndex(), compressedLength);
+			result.setCompressed(true);
+		} else {
+			result = buffer;
+		}
+
+		factory.reportCompression(length, result.readableBytes(), System.nanoTime() - start);
+		return result;
+	}
+
+	private static ByteBuffer getWritableNioBuffer(Buffer buffer, int index, int length) {
+		if (buffer instanceof ReadOnlySlicedNetworkBuffer) {
+			return ((ReadOnlySlicedNetworkBuffer) buffer).getWritableNioBuffer(index, length);
+		} else {
+			return buffer.getNioBuffer(index, length);
+		}
+	}
+}
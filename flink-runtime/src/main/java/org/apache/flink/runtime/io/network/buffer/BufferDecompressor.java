@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Decompresses the data of network buffers that were compressed by a {@link BufferCompressor} in place, i.e. the
+ * decompressed data replaces the compressed data in the backing {@link MemorySegment}.
+ *
+ * <p>A decompressor is not thread-safe.
+ */
+public class BufferDecompressor {
+
+	private final BufferCompressionCodec codec;
+
+	private final BufferCompressionFactory factory;
+
+	/** The intermediate array for the compressed data. */
+	private byte[] compressed = new byte[0];
+
+	/** The intermediate array for the decompressed data. */
+	private byte[] decompressed = new byte[0];
+
+	BufferDecompressor(BufferCompressionCodec codec, BufferCompressionFactory factory) {
+		this.codec = checkNotNull(codec);
+		this.factory = checkNotNull(factory);
+	}
+
+	/**
+	 * Decompresses the readable bytes of the given compressed buffer. The decompressed data must fit into the
+	 * capacity of the buffer, which holds as long as the producer and the consumer use the same buffer size. The
+	 * buffer must be writable, i.e. not a read-only slice.
+	 */
+	public void decompressToOriginalBuffer(Buffer buffer) throws IOException {
+		checkArgument(buffer.isCompressed(), "The buffer is not compressed.");
+
+		final long start = System.nanoTime();
+
+		final int length = buffer.readableBytes();
+		final int maxLength = buffer.getMaxCapacity() - buffer.getReaderIndex();
+
+		if (compressed.length < length) {
+			compressed = new byte[length];
+		}
+		if (decompressed.length < maxLength) {
+			decompressed = new byte[maxLength];
+		}
+
+		buffer.getNioBufferReadable().get(compressed, 0, length);
+		final int decompressedLength = codec.decompress(compressed, 0, length, decompressed, 0, maxLength);
+		buffer.getNioBuffer(buffer.getReaderIndex(), decompressedLength).put(decompressed, 0, decompressedLength);
+
+		buffer.setSize(buffer.getReaderIndex() + decompressedLength);
+		buffer.setCompressed(false);
+
+		factory.reportDecompression(System.nanoTime() - start);
+	}
+}
@@ -40,6 +40,9 @@ public final class ReadOnlySlicedNetworkBuffer extends ReadOnlyByteBuf implement
 
 	private final int memorySegmentOffset;
 
+	/** Whether the data of this slice is compressed, which is independent of the sliced buffer. */
+	private boolean isCompressed;
+
 	/**
 	 * Creates a buffer which shares the memory segment of the given buffer and exposed the given
 	 * sub-region only.
@@ -88,6 +91,16 @@ public final class ReadOnlySlicedNetworkBuffer extends ReadOnlyByteBuf implement
 		throw new ReadOnlyBufferException();
 	}
 
+	@Override
+	public boolean isCompressed() {
+		return isCompressed;
+	}
+
+	@Override
+	public void setCompressed(boolean isCompressed) {
+		this.isCompressed = isCompressed;
+	}
+
 	/**
 	 * Returns the underlying memory segment.
 	 *
@@ -211,6 +224,16 @@ public final class ReadOnlySlicedNetworkBuffer extends ReadOnlyByteBuf implement
 		return this;
 	}
 
+	/**
+	 * Gets a writable {@link ByteBuffer} instance wrapping the given bytes of this slice. This is
+	 * only meant for in-place transformations by the sole reader of these bytes, e.g. the
+	 * {@link BufferCompressor}.
+	 */
+	ByteBuffer getWritableNioBuffer(int index, int length) {
+		checkIndex(index, length);
+		return getBuffer().getNioBuffer(memorySegmentOffset + index, length);
+	}
+
 	private Buffer getBuffer() {
 		return ((Buffer) unwrap().unwrap());
 	}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+
+/**
+ * A {@link BufferCompressionCodec} that uses snappy block compression.
+ */
+public class SnappyBufferCompressionCodec implements BufferCompressionCodec {
+
+	@Override
+	public int getMaxCompressedLength(int length) {
+		return Snappy.maxCompressedLength(length);
+	}
+
+	@Override
+	public int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset) throws IOException {
+		return Snappy.compress(src, srcOffset, srcLength, dst, dstOffset);
+	}
+
+	@Override
+	public int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int maxLength) throws IOException {
+		final int length = Snappy.uncompressedLength(src, srcOffset, srcLength);
+		if (length > maxLength) {
+			throw new IOException("Decompressed data of " + length + " bytes exceeds the maximum of " + maxLength + " bytes.");
+		}
+		return Snappy.uncompress(src, srcOffset, srcLength, dst, dstOffset);
+	}
+}
@@ -307,6 +307,7 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 				Buffer buffer = inputChannel.requestBuffer();
 				if (buffer != null) {
 					nettyBuffer.readBytes(buffer.asByteBuf(), receivedSize);
+					buffer.setCompressed(bufferOrEvent.isCompressed());
 
 					inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
 				} else if (inputChannel.isReleased()) {
@@ -98,6 +98,14 @@ class CreditBasedSequenceNumberingViewReader implements BufferAvailabilityListen
 		numCreditsAvailable += creditDeltas;
 	}
 
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		final ResultSubpartitionView view = subpartitionView;
+		if (view != null) {
+			view.notifyNewBufferSize(newBufferSize);
+		}
+	}
+
 	@Override
 	public void setRegisteredAsAvailable(boolean isRegisteredAvailable) {
 		this.isRegisteredAsAvailable = isRegisteredAvailable;
@@ -21,8 +21,11 @@ package org.apache.flink.runtime.io.network.netty;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.TaskEventDispatcher;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressionFactory;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 
 public class NettyConnectionManager implements ConnectionManager {
@@ -35,12 +38,16 @@ public class NettyConnectionManager implements ConnectionManager {
 
 	private final PartitionRequestClientFactory partitionRequestClientFactory;
 
+	@Nullable
+	private final BufferCompressionFactory bufferCompressionFactory;
+
 	public NettyConnectionManager(NettyConfig nettyConfig) {
 		this.server = new NettyServer(nettyConfig);
 		this.client = new NettyClient(nettyConfig);
 		this.bufferPool = new NettyBufferPool(nettyConfig.getNumberOfArenas());
 
 		this.partitionRequestClientFactory = new PartitionRequestClientFactory(client);
+		this.bufferCompressionFactory = BufferCompressionFactory.fromConfiguration(nettyConfig.getConfig());
 	}
 
 	@Override
@@ -48,7 +55,8 @@ public class NettyConnectionManager implements ConnectionManager {
 		NettyProtocol partitionRequestProtocol = new NettyProtocol(
 			partitionProvider,
 			taskEventDispatcher,
-			client.getConfig().isCreditBasedEnabled());
+			client.getConfig().isCreditBasedEnabled(),
+			bufferCompressionFactory);
 
 		client.init(partitionRequestProtocol, bufferPool);
 		server.init(partitionRequestProtocol, bufferPool);
@@ -79,6 +87,12 @@ public class NettyConnectionManager implements ConnectionManager {
 		}
 	}
 
+	@Nullable
+	@Override
+	public BufferCompressionFactory getBufferCompressionFactory() {
+		return bufferCompressionFactory;
+	}
+
 	@Override
 	public void shutdown() {
 		client.shutdown();
@@ -262,6 +262,9 @@ public abstract class NettyMessage {
 					case AddCredit.ID:
 						decodedMsg = AddCredit.readFrom(msg);
 						break;
+					case NewBufferSize.ID:
+						decodedMsg = NewBufferSize.readFrom(msg);
+						break;
 					default:
 						throw new ProtocolException(
 							"Received unknown message from producer: " + msg);
@@ -307,6 +310,12 @@ public abstract class NettyMessage {
 
 		private static final byte ID = 0;
 
+		/** Flag of the header byte that is set for data buffers, as opposed to events. */
+		private static final byte IS_BUFFER_FLAG = 1;
+
+		/** Flag of the header byte that is set for compressed data buffers. */
+		private static final byte IS_COMPRESSED_FLAG = 2;
+
 		final ByteBuf buffer;
 
 		final InputChannelID receiverId;
@@ -317,14 +326,18 @@ public abstract class NettyMessage {
 
 		final boolean isBuffer;
 
+		final boolean isCompressed;
+
 		private BufferResponse(
 				ByteBuf buffer,
 				boolean isBuffer,
+				boolean isCompressed,
 				int sequenceNumber,
 				InputChannelID receiverId,
 				int backlog) {
 			this.buffer = checkNotNull(buffer);
 			this.isBuffer = isBuffer;
+			this.isCompressed = isCompressed;
 			this.sequenceNumber = sequenceNumber;
 			this.receiverId = checkNotNull(receiverId);
 			this.backlog = backlog;
@@ -337,6 +350,7 @@ public abstract class NettyMessage {
 				int backlog) {
 			this.buffer = checkNotNull(buffer).asByteBuf();
 			this.isBuffer = buffer.isBuffer();
+			this.isCompressed = buffer.isCompressed();
 			this.sequenceNumber = sequenceNumber;
 			this.receiverId = checkNotNull(receiverId);
 			this.backlog = backlog;
@@ -346,6 +360,10 @@ public abstract class NettyMessage {
 			return isBuffer;
 		}
 
+		boolean isCompressed() {
+			return isCompressed;
+		}
+
 		ByteBuf getNettyBuffer() {
 			return buffer;
 		}
@@ -360,7 +378,7 @@ public abstract class NettyMessage {
 
 		@Override
 		ByteBuf write(ByteBufAllocator allocator) throws IOException {
-			// receiver ID (16), sequence number (4), backlog (4), isBuffer (1), buffer size (4)
+			// receiver ID (16), sequence number (4), backlog (4), isBuffer/isCompressed flags (1), buffer size (4)
 			final int messageHeaderLength = 16 + 4 + 4 + 1 + 4;
 
 			ByteBuf headerBuf = null;
@@ -376,7 +394,7 @@ public abstract class NettyMessage {
 				receiverId.writeTo(headerBuf);
 				headerBuf.writeInt(sequenceNumber);
 				headerBuf.writeInt(backlog);
-				headerBuf.writeBoolean(isBuffer);
+				headerBuf.writeByte((isBuffer ? IS_BUFFER_FLAG : 0) | (isCompressed ? IS_COMPRESSED_FLAG : 0));
 				headerBuf.writeInt(buffer.readableBytes());
 
 				CompositeByteBuf composityBuf = allocator.compositeDirectBuffer();
@@ -401,11 +419,17 @@ public abstract class NettyMessage {
 			InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
 			int sequenceNumber = buffer.readInt();
 			int backlog = buffer.readInt();
-			boolean isBuffer = buffer.readBoolean();
+			byte flags = buffer.readByte();
 			int size = buffer.readInt();
 
 			ByteBuf retainedSlice = buffer.readSlice(size).retain();
-			return new BufferResponse(retainedSlice, isBuffer, sequenceNumber, receiverId, backlog);
+			return new BufferResponse(
+				retainedSlice,
+				(flags & IS_BUFFER_FLAG) != 0,
+				(flags & IS_COMPRESSED_FLAG) != 0,
+				sequenceNumber,
+				receiverId,
+				backlog);
 		}
 	}
 
@@ -729,4 +753,56 @@ public abstract class NettyMessage {
 			return String.format("AddCredit(%s : %d)", receiverId, credit);
 		}
 	}
+
+	/**
+	 * Announcement of the number of bytes per buffer that the client wants to receive from the server.
+	 */
+	static class NewBufferSize extends NettyMessage {
+
+		private static final byte ID = 7;
+
+		final int bufferSize;
+
+		final InputChannelID receiverId;
+
+		NewBufferSize(int bufferSize, InputChannelID receiverId) {
+			checkArgument(bufferSize > 0, "The announced buffer size should be greater than 0");
+
+			this.bufferSize = bufferSize;
+			this.receiverId = checkNotNull(receiverId);
+		}
+
+		@Override
+		ByteBuf write(ByteBufAllocator allocator) throws IOException {
+			ByteBuf result = null;
+
+			try {
+				result = allocateBuffer(allocator, ID, 4 + 16);
+
+				result.writeInt(bufferSize);
+				receiverId.writeTo(result);
+
+				return result;
+			}
+			catch (Throwable t) {
+				if (result != null) {
+					result.release();
+				}
+
+				throw new IOException(t);
+			}
+		}
+
+		static NewBufferSize readFrom(ByteBuf buffer) {
+			int bufferSize = buffer.readInt();
+			InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
+
+			return new NewBufferSize(bufferSize, receiverId);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("NewBufferSize(%s : %d)", receiverId, bufferSize);
+		}
+	}
 }
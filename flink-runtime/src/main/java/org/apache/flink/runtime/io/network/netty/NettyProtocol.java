@@ -20,10 +20,13 @@ package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.TaskEventDispatcher;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressionFactory;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandler;
 
+import javax.annotation.Nullable;
+
 /**
  * 定义netty所使用的服务器和客户端信道处理程序，即协议。
  * Defines the server and client channel handlers, i.e. the protocol, used by netty.
@@ -38,10 +41,23 @@ public class NettyProtocol {
 
 	private final boolean creditBasedEnabled;
 
+	/** Creates the compressors for the buffers sent by the server, or null if compression is disabled. */
+	@Nullable
+	private final BufferCompressionFactory bufferCompressionFactory;
+
 	NettyProtocol(ResultPartitionProvider partitionProvider, TaskEventDispatcher taskEventDispatcher, boolean creditBasedEnabled) {
+		this(partitionProvider, taskEventDispatcher, creditBasedEnabled, null);
+	}
+
+	NettyProtocol(
+			ResultPartitionProvider partitionProvider,
+			TaskEventDispatcher taskEventDispatcher,
+			boolean creditBasedEnabled,
+			@Nullable BufferCompressionFactory bufferCompressionFactory) {
 		this.partitionProvider = partitionProvider;
 		this.taskEventDispatcher = taskEventDispatcher;
 		this.creditBasedEnabled = creditBasedEnabled;
+		this.bufferCompressionFactory = bufferCompressionFactory;
 	}
 
 	/**
@@ -78,7 +94,8 @@ public class NettyProtocol {
 	 * @return channel handlers
 	 */
 	public ChannelHandler[] getServerChannelHandlers() {
-		PartitionRequestQueue queueOfPartitionQueues = new PartitionRequestQueue();
+		PartitionRequestQueue queueOfPartitionQueues = new PartitionRequestQueue(
+			bufferCompressionFactory != null ? bufferCompressionFactory.createCompressor() : null);
 		PartitionRequestServerHandler serverHandler = new PartitionRequestServerHandler(
 			partitionProvider, taskEventDispatcher, queueOfPartitionQueues, creditBasedEnabled);
 
@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.concurrent.TimeUnit;
 
+import static org.apache.flink.runtime.io.network.netty.NettyMessage.NewBufferSize;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.PartitionRequest;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.TaskEventRequest;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -170,6 +171,28 @@ public class PartitionRequestClient {
 						});
 	}
 
+	/**
+	 * Asks the producer of the given input channel to send buffers of the given size.
+	 */
+	public void notifyNewBufferSize(final RemoteInputChannel inputChannel, int bufferSize) throws IOException {
+		checkNotClosed();
+
+		tcpChannel.writeAndFlush(new NewBufferSize(bufferSize, inputChannel.getInputChannelId()))
+				.addListener(
+						new ChannelFutureListener() {
+							@Override
+							public void operationComplete(ChannelFuture future) throws Exception {
+								if (!future.isSuccess()) {
+									SocketAddress remoteAddr = future.channel().remoteAddress();
+									inputChannel.onError(new LocalTransportException(
+										String.format("Sending the buffer size to '%s' failed.", remoteAddr),
+										future.channel().localAddress(), future.cause()
+									));
+								}
+							}
+						});
+	}
+
 	public void notifyCreditAvailable(RemoteInputChannel inputChannel) {
 		clientHandler.notifyCreditAvailable(inputChannel);
 	}
@@ -313,6 +313,7 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter impleme
 
 					if (buffer != null) {
 						nettyBuffer.readBytes(buffer.asByteBuf(), receivedSize);
+						buffer.setCompressed(bufferOrEvent.isCompressed());
 
 						inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, -1);
 
@@ -463,6 +464,7 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter impleme
 
 				ByteBuf nettyBuffer = stagedBufferResponse.getNettyBuffer();
 				nettyBuffer.readBytes(buffer.asByteBuf(), nettyBuffer.readableBytes());
+				buffer.setCompressed(stagedBufferResponse.isCompressed());
 				stagedBufferResponse.releaseBuffer();
 
 				RemoteInputChannel inputChannel = inputChannels.get(stagedBufferResponse.receiverId);
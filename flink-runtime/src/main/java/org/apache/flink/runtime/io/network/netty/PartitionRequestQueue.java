@@ -23,6 +23,7 @@ import org.apache.flink.runtime.io.network.NetworkSequenceViewReader;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ErrorResponse;
 import org.apache.flink.runtime.io.network.partition.ProducerFailedException;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel.BufferAndAvailability;
@@ -70,6 +71,18 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
 	private ChannelHandlerContext ctx;
 
+	/** Compresses the data buffers before they are sent, or null if compression is disabled. */
+	@Nullable
+	private final BufferCompressor bufferCompressor;
+
+	PartitionRequestQueue() {
+		this(null);
+	}
+
+	PartitionRequestQueue(@Nullable BufferCompressor bufferCompressor) {
+		this.bufferCompressor = bufferCompressor;
+	}
+
 	@Override
 	public void channelRegistered(final ChannelHandlerContext ctx) throws Exception {
 		if (this.ctx == null) {
@@ -162,6 +175,24 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * Forwards the buffer size that the consumer asked for to the subpartition of the consumer's reader. Requests
+	 * of consumers whose reader was released already are ignored.
+	 *
+	 * @param receiverId The input channel id to identify the consumer.
+	 * @param bufferSize The number of bytes per buffer that the consumer wants to receive.
+	 */
+	void notifyNewBufferSize(InputChannelID receiverId, int bufferSize) {
+		if (fatalError) {
+			return;
+		}
+
+		NetworkSequenceViewReader reader = allReaders.get(receiverId);
+		if (reader != null) {
+			reader.notifyNewBufferSize(bufferSize);
+		}
+	}
+
 	@Override
 	public void userEventTriggered(ChannelHandlerContext ctx, Object msg) throws Exception {
 		// The user event triggered event loop callback is used for thread-safe
@@ -241,8 +272,14 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 						registerAvailableReader(reader);
 					}
 
+					Buffer buffer = next.buffer();
+					if (bufferCompressor != null) {
+						// the reader hands over the buffer exclusively, so it can be compressed in place
+						buffer = bufferCompressor.compressToOriginalBuffer(buffer);
+					}
+
 					BufferResponse msg = new BufferResponse(
-						next.buffer(),
+						buffer,
 						reader.getSequenceNumber(),
 						reader.getReceiverId(),
 						next.buffersInBacklog());
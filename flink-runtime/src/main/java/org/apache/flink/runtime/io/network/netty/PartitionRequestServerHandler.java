@@ -33,6 +33,7 @@ import org.apache.flink.shaded.netty4.io.netty.channel.SimpleChannelInboundHandl
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.apache.flink.runtime.io.network.netty.NettyMessage.NewBufferSize;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.PartitionRequest;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.TaskEventRequest;
 
@@ -128,6 +129,10 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
 				AddCredit request = (AddCredit) msg;
 
 				outboundQueue.addCredit(request.receiverId, request.credit);
+			} else if (msgClazz == NewBufferSize.class) {
+				NewBufferSize request = (NewBufferSize) msg;
+
+				outboundQueue.notifyNewBufferSize(request.receiverId, request.bufferSize);
 			} else {
 				LOG.warn("Received unexpected client request: {}", msg);
 			}
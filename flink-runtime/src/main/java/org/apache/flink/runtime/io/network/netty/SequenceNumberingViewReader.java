@@ -81,6 +81,14 @@ class SequenceNumberingViewReader implements BufferAvailabilityListener, Network
 	public void addCredit(int creditDeltas) {
 	}
 
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		final ResultSubpartitionView view = subpartitionView;
+		if (view != null) {
+			view.notifyNewBufferSize(newBufferSize);
+		}
+	}
+
 	@Override
 	public void setRegisteredAsAvailable(boolean isRegisteredAvailable) {
 		this.isRegisteredAvailable = isRegisteredAvailable;
@@ -18,10 +18,15 @@
 
 package org.apache.flink.runtime.io.network.partition;
 
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.ObjectBatchEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +35,11 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
@@ -50,6 +59,15 @@ import static org.apache.flink.util.Preconditions.checkState;
  * <p>Explicit calls to {@link #flush()} will force this
  * {@link PipelinedSubpartitionView#notifyDataAvailable() notification} for any
  * {@link BufferConsumer} present in the queue.
+ *
+ * <p>If the consumer runs in the same JVM and asked for it via {@link #enableObjectBatches()}, the producer may
+ * hand over batches of record objects via {@link #addObjectBatch(List)}. Such a batch is announced by an
+ * {@link ObjectBatchEvent} in the buffer queue, which keeps it ordered with the serialized data, and is attached to
+ * that event when it is polled.
+ *
+ * <p>The barriers of unaligned checkpoints are added via {@link #addPriorityEvent(BufferConsumer)}, which puts them
+ * at the head of the queue. The data they overtake is handed back to the producer, which persists it as part of its
+ * checkpoint.
  */
 class PipelinedSubpartition extends ResultSubpartition {
 
@@ -69,6 +87,16 @@ class PipelinedSubpartition extends ResultSubpartition {
 	/** Flag indicating whether the subpartition has been released. */
 	private volatile boolean isReleased;
 
+	/** Flag indicating whether the consumer accepts batches of record objects. */
+	private volatile boolean objectBatchesEnabled;
+
+	/** The number of bytes per buffer that the consumer asked for, see {@link #getBufferSize()}. */
+	private volatile int bufferSize = Integer.MAX_VALUE;
+
+	/** The object batches that were added, in the order of their events in the buffer queue. */
+	@GuardedBy("buffers")
+	private final ArrayDeque<ObjectBatch> objectBatches = new ArrayDeque<>();
+
 	// ------------------------------------------------------------------------
 
 	PipelinedSubpartition(int index, ResultPartition parent) {
@@ -86,7 +114,81 @@ class PipelinedSubpartition extends ResultSubpartition {
 		LOG.debug("{}: Finished {}.", parent.getOwningTaskName(), this);
 	}
 
+	/**
+	 * Adds a batch of record objects, which is handed over to the consumer without serialization.
+	 *
+	 * @return true if the batch was added, false if the subpartition was already finished or released.
+	 */
+	boolean addObjectBatch(List<?> objectBatch) throws IOException {
+		checkNotNull(objectBatch);
+		checkState(objectBatchesEnabled, "The consumer of %s does not accept object batches.", this);
+
+		final BufferConsumer marker = EventSerializer.toBufferConsumer(ObjectBatchEvent.INSTANCE);
+		return add(marker, false, objectBatch);
+	}
+
+	/**
+	 * Adds the given event ahead of all buffers that were not consumed yet.
+	 *
+	 * @return Copies of the overtaken data buffers in unpooled memory, in queue order. The caller has to recycle
+	 *         them. The list is empty if the subpartition was already finished or released.
+	 */
+	List<Buffer> addPriorityEvent(BufferConsumer eventBufferConsumer) {
+		checkNotNull(eventBufferConsumer);
+		checkState(!eventBufferConsumer.isBuffer(), "Only events can overtake buffers.");
+
+		final List<Buffer> overtakenBuffers = new ArrayList<>();
+		synchronized (buffers) {
+			if (isFinished || isReleased) {
+				eventBufferConsumer.close();
+				return overtakenBuffers;
+			}
+
+			for (BufferConsumer bufferConsumer : buffers) {
+				if (!bufferConsumer.isBuffer()) {
+					continue;
+				}
+				// the copy starts at the current reader position of the original, so that partially
+				// consumed buffers only contribute the data that was not sent yet
+				try (BufferConsumer copy = bufferConsumer.copy()) {
+					final Buffer overtaken = copy.build();
+					try {
+						if (overtaken.readableBytes() > 0) {
+							overtakenBuffers.add(copyOf(overtaken));
+						}
+					} finally {
+						overtaken.recycleBuffer();
+					}
+				}
+			}
+
+			buffers.addFirst(eventBufferConsumer);
+			updateStatistics(eventBufferConsumer);
+		}
+
+		// the event is finished, so it is always available, even in the absence of a flush
+		notifyDataAvailable();
+
+		return overtakenBuffers;
+	}
+
+	/**
+	 * Copies the readable bytes of the given buffer into unpooled memory. The overtaken buffers are still sent
+	 * after the event, and the network stack may compress them in place before the checkpoint persisted them.
+	 */
+	private static Buffer copyOf(Buffer buffer) {
+		final int size = buffer.readableBytes();
+		final MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(size);
+		buffer.getMemorySegment().copyTo(buffer.getMemorySegmentOffset() + buffer.getReaderIndex(), segment, 0, size);
+
+		return new NetworkBuffer(segment, FreeingBufferRecycler.INSTANCE, true, size);
+	}
+
 	private boolean add(BufferConsumer bufferConsumer, boolean finish) {
+		return add(bufferConsumer, finish, null);
+	}
+
+	private boolean add(BufferConsumer bufferConsumer, boolean finish, @Nullable List<?> objectBatch) {
 		checkNotNull(bufferConsumer);
 
 		final boolean notifyDataAvailable;
@@ -96,6 +198,10 @@ class PipelinedSubpartition extends ResultSubpartition {
 				return false;
 			}
 
+			if (objectBatch != null) {
+				objectBatches.add(new ObjectBatch(bufferConsumer, objectBatch));
+			}
+
 			// Add the bufferConsumer and update the stats
 			buffers.add(bufferConsumer);
 			updateStatistics(bufferConsumer);
@@ -127,6 +233,7 @@ class PipelinedSubpartition extends ResultSubpartition {
 				buffer.close();
 			}
 			buffers.clear();
+			objectBatches.clear();
 
 			view = readView;
 			readView = null;
@@ -146,6 +253,7 @@ class PipelinedSubpartition extends ResultSubpartition {
 	BufferAndBacklog pollBuffer() {
 		synchronized (buffers) {
 			Buffer buffer = null;
+			List<?> objectBatch = null;
 
 			if (buffers.isEmpty()) {
 				flushRequested = false;
@@ -167,6 +275,10 @@ class PipelinedSubpartition extends ResultSubpartition {
 				if (bufferConsumer.isFinished()) {
 					buffers.pop().close();
 					decreaseBuffersInBacklogUnsafe(bufferConsumer.isBuffer());
+
+					if (!objectBatches.isEmpty() && objectBatches.peek().marker == bufferConsumer) {
+						objectBatch = objectBatches.poll().records;
+					}
 				}
 
 				if (buffer.readableBytes() > 0) {
@@ -191,10 +303,35 @@ class PipelinedSubpartition extends ResultSubpartition {
 				buffer,
 				isAvailableUnsafe(),
 				getBuffersInBacklog(),
-				nextBufferIsEventUnsafe());
+				nextBufferIsEventUnsafe(),
+				objectBatch);
 		}
 	}
 
+	/**
+	 * Lets the producer hand over batches of record objects to the consumer, see {@link #addObjectBatch(List)}.
+	 */
+	void enableObjectBatches() {
+		objectBatchesEnabled = true;
+	}
+
+	boolean isObjectBatchesEnabled() {
+		return objectBatchesEnabled;
+	}
+
+	void setBufferSize(int bufferSize) {
+		checkArgument(bufferSize > 0, "The buffer size must be positive.");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Returns the number of bytes that the consumer wants to receive per buffer, or {@link Integer#MAX_VALUE} if the
+	 * consumer did not ask for smaller buffers than the memory segments.
+	 */
+	int getBufferSize() {
+		return bufferSize;
+	}
+
 	boolean nextBufferIsEvent() {
 		synchronized (buffers) {
 			return nextBufferIsEventUnsafe();
@@ -278,6 +415,15 @@ class PipelinedSubpartition extends ResultSubpartition {
 			index, numBuffers, numBytes, getBuffersInBacklog(), finished, hasReadView);
 	}
 
+	/**
+	 * Also counts the object batches that the consumer did not take yet, because their records are
+	 * data as well, although they are announced by events.
+	 */
+	@Override
+	public int unsynchronizedGetBacklog() {
+		return super.unsynchronizedGetBacklog() + objectBatches.size();
+	}
+
 	@Override
 	public int unsynchronizedGetNumberOfQueuedBuffers() {
 		// since we do not synchronize, the size may actually be lower than 0!
@@ -325,4 +471,21 @@ class PipelinedSubpartition extends ResultSubpartition {
 		// We assume that only last buffer is not finished.
 		return Math.max(0, buffers.size() - 1);
 	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A batch of record objects and the event that announces it in the buffer queue.
+	 */
+	private static final class ObjectBatch {
+
+		private final BufferConsumer marker;
+
+		private final List<?> records;
+
+		ObjectBatch(BufferConsumer marker, List<?> records) {
+			this.marker = marker;
+			this.records = records;
+		}
+	}
 }
@@ -86,6 +86,17 @@ class PipelinedSubpartitionView implements ResultSubpartitionView {
 		return parent.isAvailable();
 	}
 
+	@Override
+	public boolean enableObjectBatches() {
+		parent.enableObjectBatches();
+		return true;
+	}
+
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		parent.setBufferSize(newBufferSize);
+	}
+
 	@Override
 	public Throwable getFailureCause() {
 		return parent.getFailureCause();
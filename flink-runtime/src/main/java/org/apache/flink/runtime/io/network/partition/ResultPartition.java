@@ -36,7 +36,11 @@ import org.apache.flink.runtime.taskmanager.TaskManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -103,6 +107,10 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 
 	private final boolean sendScheduleOrUpdateConsumersMessage;
 
+	/** The file shared by the subpartitions of a blocking partition with the sort-merge shuffle, otherwise null. */
+	@Nullable
+	private final SortMergePartitionFile sortMergePartitionFile;
+
 	// - Runtime state --------------------------------------------------------
 
 	private final AtomicBoolean isReleased = new AtomicBoolean();
@@ -135,6 +143,41 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 		IOManager ioManager,
 		boolean sendScheduleOrUpdateConsumersMessage) {
 
+		this(
+			owningTaskName,
+			taskActions,
+			jobId,
+			partitionId,
+			partitionType,
+			numberOfSubpartitions,
+			numTargetKeyGroups,
+			partitionManager,
+			partitionConsumableNotifier,
+			ioManager,
+			sendScheduleOrUpdateConsumersMessage,
+			Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a result partition.
+	 *
+	 * @param sortShuffleMinParallelism the minimum number of subpartitions of a blocking partition to use the
+	 * sort-merge shuffle, see {@link SortMergeSubpartition}
+	 */
+	public ResultPartition(
+		String owningTaskName,
+		TaskActions taskActions, // actions on the owning task
+		JobID jobId,
+		ResultPartitionID partitionId,
+		ResultPartitionType partitionType,
+		int numberOfSubpartitions,
+		int numTargetKeyGroups,
+		ResultPartitionManager partitionManager,
+		ResultPartitionConsumableNotifier partitionConsumableNotifier,
+		IOManager ioManager,
+		boolean sendScheduleOrUpdateConsumersMessage,
+		int sortShuffleMinParallelism) {
+
 		this.owningTaskName = checkNotNull(owningTaskName);
 		this.taskActions = checkNotNull(taskActions);
 		this.jobId = checkNotNull(jobId);
@@ -147,10 +190,20 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 		this.sendScheduleOrUpdateConsumersMessage = sendScheduleOrUpdateConsumersMessage;
 
 		// Create the subpartitions.
+		SortMergePartitionFile sortMergePartitionFile = null;
+
 		switch (partitionType) {
 			case BLOCKING:
-				for (int i = 0; i < subpartitions.length; i++) {
-					subpartitions[i] = new SpillableSubpartition(i, this, ioManager);
+				if (numberOfSubpartitions >= sortShuffleMinParallelism) {
+					sortMergePartitionFile = new SortMergePartitionFile(ioManager, numberOfSubpartitions);
+
+					for (int i = 0; i < subpartitions.length; i++) {
+						subpartitions[i] = new SortMergeSubpartition(i, this, sortMergePartitionFile);
+					}
+				} else {
+					for (int i = 0; i < subpartitions.length; i++) {
+						subpartitions[i] = new SpillableSubpartition(i, this, ioManager);
+					}
 				}
 
 				break;
@@ -167,6 +220,8 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 				throw new IllegalArgumentException("Unsupported result partition type.");
 		}
 
+		this.sortMergePartitionFile = sortMergePartitionFile;
+
 		// Initially, partitions should be consumed once before release.
 		pin();
 
@@ -256,6 +311,64 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 		}
 	}
 
+	@Override
+	public boolean supportsObjectBatches(int subpartitionIndex) {
+		final ResultSubpartition subpartition = subpartitions[subpartitionIndex];
+		return subpartition instanceof PipelinedSubpartition &&
+			((PipelinedSubpartition) subpartition).isObjectBatchesEnabled();
+	}
+
+	@Override
+	public int getBufferSize(int subpartitionIndex) {
+		final ResultSubpartition subpartition = subpartitions[subpartitionIndex];
+		return subpartition instanceof PipelinedSubpartition
+			? ((PipelinedSubpartition) subpartition).getBufferSize()
+			: Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int getBacklog(int subpartitionIndex) {
+		return subpartitions[subpartitionIndex].unsynchronizedGetBacklog();
+	}
+
+	@Override
+	public void addObjectBatch(List<?> objectBatch, int subpartitionIndex) throws IOException {
+		checkNotNull(objectBatch);
+		checkInProduceState();
+		checkState(supportsObjectBatches(subpartitionIndex),
+			"Subpartition %s does not accept object batches.", subpartitionIndex);
+
+		if (((PipelinedSubpartition) subpartitions[subpartitionIndex]).addObjectBatch(objectBatch)) {
+			notifyPipelinedConsumers();
+		}
+	}
+
+	@Override
+	public List<Buffer> addPriorityEvent(BufferConsumer eventBufferConsumer, int subpartitionIndex) throws IOException {
+		checkNotNull(eventBufferConsumer);
+
+		ResultSubpartition subpartition;
+		try {
+			checkInProduceState();
+			subpartition = subpartitions[subpartitionIndex];
+		}
+		catch (Exception ex) {
+			eventBufferConsumer.close();
+			throw ex;
+		}
+
+		if (subpartition instanceof PipelinedSubpartition) {
+			final List<Buffer> overtakenBuffers = ((PipelinedSubpartition) subpartition).addPriorityEvent(eventBufferConsumer);
+			notifyPipelinedConsumers();
+			return overtakenBuffers;
+		}
+
+		if (subpartition.add(eventBufferConsumer)) {
+			notifyPipelinedConsumers();
+		}
+		return Collections.emptyList();
+	}
+
 	@Override
 	public void flushAll() {
 		for (ResultSubpartition subpartition : subpartitions) {
@@ -285,6 +398,10 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 				subpartition.finish();
 			}
 
+			if (sortMergePartitionFile != null) {
+				sortMergePartitionFile.finish(subpartitions);
+			}
+
 			success = true;
 		}
 		finally {
@@ -322,6 +439,10 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 					LOG.error("Error during release of result subpartition: " + t.getMessage(), t);
 				}
 			}
+
+			if (sortMergePartitionFile != null) {
+				sortMergePartitionFile.release();
+			}
 		}
 	}
 
@@ -368,6 +489,12 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 	public void releaseMemory(int toRelease) throws IOException {
 		checkArgument(toRelease > 0);
 
+		if (sortMergePartitionFile != null) {
+			// the buffers of all subpartitions are written at once to keep the number of regions low
+			sortMergePartitionFile.spill(subpartitions);
+			return;
+		}
+
 		for (ResultSubpartition subpartition : subpartitions) {
 			toRelease -= subpartition.releaseMemory();
 
@@ -22,10 +22,12 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -127,6 +129,16 @@ public abstract class ResultSubpartition {
 		return buffersInBacklog;
 	}
 
+	/**
+	 * Makes a best effort to get the number of data that the consumer did not take yet, counted in
+	 * non-event buffers. Like {@link #unsynchronizedGetNumberOfQueuedBuffers()}, this method must
+	 * not acquire locks.
+	 */
+	public int unsynchronizedGetBacklog() {
+		// since we do not synchronize, the value may be outdated
+		return Math.max(buffersInBacklog, 0);
+	}
+
 	/**
 	 * Makes a best effort to get the current size of the queue.
 	 * This method must not acquire locks or interfere with the task and network threads in
@@ -179,11 +191,25 @@ public abstract class ResultSubpartition {
 		private final int buffersInBacklog;
 		private final boolean nextBufferIsEvent;
 
+		/** The batch of record objects that the buffer (an object batch event) announces, if any. */
+		@Nullable
+		private final List<?> objectBatch;
+
 		public BufferAndBacklog(Buffer buffer, boolean isMoreAvailable, int buffersInBacklog, boolean nextBufferIsEvent) {
+			this(buffer, isMoreAvailable, buffersInBacklog, nextBufferIsEvent, null);
+		}
+
+		public BufferAndBacklog(
+				Buffer buffer,
+				boolean isMoreAvailable,
+				int buffersInBacklog,
+				boolean nextBufferIsEvent,
+				@Nullable List<?> objectBatch) {
 			this.buffer = checkNotNull(buffer);
 			this.buffersInBacklog = buffersInBacklog;
 			this.isMoreAvailable = isMoreAvailable;
 			this.nextBufferIsEvent = nextBufferIsEvent;
+			this.objectBatch = objectBatch;
 		}
 
 		public Buffer buffer() {
@@ -201,6 +227,11 @@ public abstract class ResultSubpartition {
 		public boolean nextBufferIsEvent() {
 			return nextBufferIsEvent;
 		}
+
+		@Nullable
+		public List<?> objectBatch() {
+			return objectBatch;
+		}
 	}
 
 }
@@ -60,4 +60,23 @@ public interface ResultSubpartitionView {
 	boolean nextBufferIsEvent();
 
 	boolean isAvailable();
+
+	/**
+	 * Asks the subpartition to hand over batches of record objects to this view instead of serialized records, which
+	 * is only possible if the consumer lives in the same JVM as the producer.
+	 *
+	 * @return true if the subpartition supports object batches.
+	 */
+	default boolean enableObjectBatches() {
+		return false;
+	}
+
+	/**
+	 * Tells the subpartition how many bytes the consumer wants to receive per buffer, so that the data buffered in
+	 * the network stays within the consumer's target. Views whose data was written already ignore this.
+	 *
+	 * @param newBufferSize The desired number of bytes per buffer.
+	 */
+	default void notifyNewBufferSize(int newBufferSize) {
+	}
 }
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.disk.iomanager.BufferFileWriter;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.util.FileUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The single data file and index file of a blocking {@link ResultPartition} whose subpartitions are
+ * {@link SortMergeSubpartition SortMergeSubpartitions}.
+ *
+ * <p>Every spill writes a <i>region</i> to the data file, which contains the finished buffers of all subpartitions,
+ * grouped by subpartition index. The buffers are written asynchronously by the {@link IOManager}, with the same
+ * block format as the spill files of the {@link SpillableSubpartition}. For every region, the index file holds one
+ * entry per subpartition with the offset of its buffers in the data file and their number. A consumer of a
+ * subpartition therefore reads one contiguous range of the data file per region.
+ *
+ * <p>Spills may be triggered by the task thread and by the buffer pool redistribution of other tasks, so writes
+ * are synchronized on this object. The file may only be read after {@link #finish(ResultSubpartition[])}.
+ */
+class SortMergePartitionFile {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SortMergePartitionFile.class);
+
+	/** The size of the header of every buffer in the data file: whether it is a buffer (4) and its size (4). */
+	static final int BUFFER_HEADER_LENGTH = 8;
+
+	/** The size of an index entry: the offset of the buffers in the data file (8) and their number (4). */
+	static final int INDEX_ENTRY_LENGTH = 12;
+
+	private final IOManager ioManager;
+
+	private final int numberOfSubpartitions;
+
+	/** The writer for the data file. Null until the first region is written. */
+	@GuardedBy("this")
+	private BufferFileWriter dataFileWriter;
+
+	/** The channel for the index file. Null until the first region is written. */
+	@GuardedBy("this")
+	private FileChannel indexFileWriter;
+
+	@GuardedBy("this")
+	private FileIOChannel.ID indexFileId;
+
+	/** The size of the data file once all pending writes are done. */
+	@GuardedBy("this")
+	private long dataFileSize;
+
+	/** The number of regions that were written. */
+	@GuardedBy("this")
+	private int numberOfRegions;
+
+	/** The channel that all consumers read from. Only opened after the file is finished. */
+	@GuardedBy("this")
+	private FileChannel dataFileReader;
+
+	@GuardedBy("this")
+	private boolean isFinished;
+
+	@GuardedBy("this")
+	private boolean isReleased;
+
+	SortMergePartitionFile(IOManager ioManager, int numberOfSubpartitions) {
+		checkArgument(numberOfSubpartitions > 0);
+		this.ioManager = checkNotNull(ioManager);
+		this.numberOfSubpartitions = numberOfSubpartitions;
+	}
+
+	/**
+	 * Writes the finished buffers of all subpartitions as a new region.
+	 *
+	 * @return the number of buffers that were written and released
+	 */
+	synchronized int spill(ResultSubpartition[] subpartitions) throws IOException {
+		if (isFinished || isReleased) {
+			return 0;
+		}
+		return writeRegion(subpartitions, false);
+	}
+
+	/**
+	 * Writes all remaining buffers of the finished subpartitions as the last region and waits until the data file
+	 * is completely written.
+	 */
+	synchronized void finish(ResultSubpartition[] subpartitions) throws IOException {
+		checkState(!isFinished && !isReleased, "The partition file is already finished or released.");
+
+		writeRegion(subpartitions, true);
+		isFinished = true;
+
+		dataFileWriter.close();
+		indexFileWriter.close();
+
+		LOG.debug("Finished sort-merge partition file {} with {} regions ({} bytes).",
+			dataFileWriter.getChannelID().getPath(), numberOfRegions, dataFileSize);
+	}
+
+	@GuardedBy("this")
+	private int writeRegion(ResultSubpartition[] subpartitions, boolean finishBuffers) throws IOException {
+		checkArgument(subpartitions.length == numberOfSubpartitions);
+
+		if (dataFileWriter == null) {
+			dataFileWriter = ioManager.createBufferFileWriter(ioManager.createChannel());
+			indexFileId = ioManager.createChannel();
+			indexFileWriter = FileChannel.open(
+				indexFileId.getPathFile().toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		}
+
+		final ByteBuffer indexEntries = ByteBuffer.allocate(numberOfSubpartitions * INDEX_ENTRY_LENGTH);
+
+		int numberOfBuffers = 0;
+		for (ResultSubpartition subpartition : subpartitions) {
+			final long offset = dataFileSize;
+			final int numberOfSubpartitionBuffers = ((SortMergeSubpartition) subpartition).spill(this, finishBuffers);
+
+			indexEntries.putLong(offset);
+			indexEntries.putInt(numberOfSubpartitionBuffers);
+			numberOfBuffers += numberOfSubpartitionBuffers;
+		}
+
+		if (numberOfBuffers > 0) {
+			indexEntries.flip();
+			FileUtils.writeCompletely(indexFileWriter, indexEntries);
+			++numberOfRegions;
+		}
+
+		return numberOfBuffers;
+	}
+
+	/**
+	 * Appends the buffer to the data file. The writer takes over the buffer and recycles it once it is written.
+	 */
+	@GuardedBy("this")
+	void writeBuffer(Buffer buffer) throws IOException {
+		assert Thread.holdsLock(this);
+
+		dataFileSize += BUFFER_HEADER_LENGTH + buffer.readableBytes();
+		dataFileWriter.writeBlock(buffer);
+	}
+
+	/**
+	 * Reads the ranges of the data file that hold the buffers of the given subpartition, one per region.
+	 *
+	 * @return pairs of the offset and the number of buffers, only for regions that contain buffers of the
+	 * subpartition
+	 */
+	synchronized long[][] readSubpartitionIndex(int subpartitionIndex) throws IOException {
+		checkState(isFinished && !isReleased, "The partition file is not finished or already released.");
+
+		final long[][] ranges = new long[numberOfRegions][];
+		int numberOfRanges = 0;
+
+		try (FileChannel indexFile = FileChannel.open(indexFileId.getPathFile().toPath(), StandardOpenOption.READ)) {
+			final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_LENGTH);
+			for (int region = 0; region < numberOfRegions; ++region) {
+				entry.clear();
+				readCompletely(indexFile, entry,
+					((long) region * numberOfSubpartitions + subpartitionIndex) * INDEX_ENTRY_LENGTH);
+				entry.flip();
+
+				final long offset = entry.getLong();
+				final int numberOfBuffers = entry.getInt();
+				if (numberOfBuffers > 0) {
+					ranges[numberOfRanges++] = new long[] {offset, numberOfBuffers};
+				}
+			}
+		}
+
+		final long[][] result = new long[numberOfRanges][];
+		System.arraycopy(ranges, 0, result, 0, numberOfRanges);
+		return result;
+	}
+
+	/**
+	 * Reads the buffer at the given offset of the data file into the given empty buffer.
+	 *
+	 * @return the offset of the next buffer in the data file
+	 */
+	long readBuffer(long offset, Buffer buffer) throws IOException {
+		final FileChannel channel = getDataFileReader();
+
+		final ByteBuffer header = ByteBuffer.allocate(BUFFER_HEADER_LENGTH);
+		readCompletely(channel, header, offset);
+		header.flip();
+
+		final boolean isBuffer = header.getInt() == 1;
+		final int size = header.getInt();
+
+		if (size > buffer.getMaxCapacity()) {
+			throw new IllegalStateException("Buffer is too small for data: " + buffer.getMaxCapacity() +
+				" bytes available, but " + size + " needed. This is most likely due to an serialized event, " +
+				"which is larger than the buffer size.");
+		}
+		checkArgument(buffer.getSize() == 0, "Buffer not empty");
+
+		readCompletely(channel, buffer.getNioBuffer(0, size), offset + BUFFER_HEADER_LENGTH);
+		buffer.setSize(size);
+
+		if (!isBuffer) {
+			buffer.tagAsEvent();
+		}
+
+		return offset + BUFFER_HEADER_LENGTH + size;
+	}
+
+	private synchronized FileChannel getDataFileReader() throws IOException {
+		checkState(isFinished && !isReleased, "The partition file is not finished or already released.");
+
+		if (dataFileReader == null) {
+			dataFileReader = FileChannel.open(dataFileWriter.getChannelID().getPathFile().toPath(), StandardOpenOption.READ);
+		}
+		return dataFileReader;
+	}
+
+	/**
+	 * Closes and deletes the data file and the index file.
+	 */
+	void release() {
+		// the data file writer is closed outside of the lock, because this waits for pending writes
+		final BufferFileWriter writer;
+		final FileChannel reader;
+		final FileChannel indexWriter;
+		final FileIOChannel.ID indexId;
+
+		synchronized (this) {
+			if (isReleased) {
+				return;
+			}
+			isReleased = true;
+
+			writer = dataFileWriter;
+			reader = dataFileReader;
+			indexWriter = indexFileWriter;
+			indexId = indexFileId;
+		}
+
+		try {
+			if (reader != null) {
+				reader.close();
+			}
+			if (indexWriter != null) {
+				indexWriter.close();
+			}
+			if (writer != null) {
+				writer.closeAndDelete();
+			}
+			if (indexId != null) {
+				Files.deleteIfExists(indexId.getPathFile().toPath());
+			}
+		} catch (Throwable t) {
+			LOG.error("Error while releasing sort-merge partition file.", t);
+		}
+	}
+
+	private static void readCompletely(FileChannel channel, ByteBuffer target, long position) throws IOException {
+		while (target.hasRemaining()) {
+			final int read = channel.read(target, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of the sort-merge partition file.");
+			}
+			position += read;
+		}
+	}
+}
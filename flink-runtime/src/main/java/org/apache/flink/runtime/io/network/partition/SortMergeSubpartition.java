@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A blocking subpartition whose buffers are written to the {@link SortMergePartitionFile} that is shared by all
+ * subpartitions of the {@link ResultPartition}.
+ *
+ * <p>In contrast to the {@link SpillableSubpartition}, a sort-merge subpartition does not spill on its own. Its
+ * finished buffers stay in memory until the partition writes a region of the shared file, either because the
+ * buffer pool runs out of buffers or because the partition is finished. Therefore, the partition produces two files
+ * in total instead of one file per subpartition.
+ *
+ * <p>The subpartition can only be consumed after it was finished, when all of its data is in the shared file.
+ */
+class SortMergeSubpartition extends ResultSubpartition {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SortMergeSubpartition.class);
+
+	/** The file that is shared by all subpartitions of the partition. */
+	private final SortMergePartitionFile partitionFile;
+
+	/** Flag indicating whether the subpartition has been finished. */
+	private boolean isFinished;
+
+	/** Flag indicating whether the subpartition has been released. */
+	private volatile boolean isReleased;
+
+	/** The read view to consume this subpartition. */
+	private SortMergeSubpartitionView readView;
+
+	SortMergeSubpartition(int index, ResultPartition parent, SortMergePartitionFile partitionFile) {
+		super(index, parent);
+
+		this.partitionFile = checkNotNull(partitionFile);
+	}
+
+	@Override
+	public boolean add(BufferConsumer bufferConsumer) {
+		checkNotNull(bufferConsumer);
+
+		synchronized (buffers) {
+			if (isFinished || isReleased) {
+				bufferConsumer.close();
+				return false;
+			}
+
+			buffers.add(bufferConsumer);
+			updateStatistics(bufferConsumer);
+			increaseBuffersInBacklog(bufferConsumer);
+		}
+		return true;
+	}
+
+	@Override
+	public void flush() {
+		// nothing to do, the subpartition can only be consumed after it was finished
+	}
+
+	/**
+	 * Adds the end of partition event. The remaining buffers are written by
+	 * {@link SortMergePartitionFile#finish(ResultSubpartition[])} afterwards.
+	 */
+	@Override
+	public void finish() throws IOException {
+		synchronized (buffers) {
+			if (add(EventSerializer.toBufferConsumer(EndOfPartitionEvent.INSTANCE))) {
+				isFinished = true;
+			}
+		}
+
+		LOG.debug("{}: Finished {}.", parent.getOwningTaskName(), this);
+	}
+
+	/**
+	 * Writes the buffers of this subpartition to the partition file.
+	 *
+	 * @param finishBuffers whether an unfinished last buffer should be treated as finished, which is only done when
+	 * the partition is finished
+	 * @return the number of written buffers
+	 */
+	int spill(SortMergePartitionFile file, boolean finishBuffers) throws IOException {
+		int numberOfBuffers = 0;
+
+		synchronized (buffers) {
+			while (!buffers.isEmpty()) {
+				BufferConsumer bufferConsumer = buffers.getFirst();
+				Buffer buffer = bufferConsumer.build();
+				updateStatistics(buffer);
+				int bufferSize = buffer.getSize();
+
+				// NOTE we may be in the process of finishing the subpartition where any buffer should
+				// be treated as if it was finished!
+				if (bufferConsumer.isFinished() || finishBuffers) {
+					if (bufferSize > 0) {
+						file.writeBuffer(buffer);
+						++numberOfBuffers;
+					} else {
+						// If we skip a buffer, we need to adapt the backlog accordingly
+						decreaseBuffersInBacklogUnsafe(buffer.isBuffer());
+						buffer.recycleBuffer();
+					}
+					bufferConsumer.close();
+					buffers.poll();
+				} else {
+					// The data that is already there must be written now, since we do not get this slice from
+					// the buffer consumer again. The rest of the buffer follows in a later region.
+					if (bufferSize > 0) {
+						file.writeBuffer(buffer);
+						increaseBuffersInBacklog(bufferConsumer);
+						++numberOfBuffers;
+					} else {
+						buffer.recycleBuffer();
+					}
+					break;
+				}
+			}
+		}
+
+		return numberOfBuffers;
+	}
+
+	@Override
+	public void release() throws IOException {
+		final SortMergeSubpartitionView view;
+
+		synchronized (buffers) {
+			if (isReleased) {
+				return;
+			}
+
+			for (BufferConsumer buffer : buffers) {
+				buffer.close();
+			}
+			buffers.clear();
+
+			view = readView;
+			isReleased = true;
+		}
+
+		LOG.debug("{}: Released {}.", parent.getOwningTaskName(), this);
+
+		if (view != null) {
+			view.releaseAllResources();
+		}
+	}
+
+	@Override
+	public ResultSubpartitionView createReadView(BufferAvailabilityListener availabilityListener) throws IOException {
+		synchronized (buffers) {
+			if (!isFinished) {
+				throw new IllegalStateException("Subpartition has not been finished yet, " +
+					"but blocking subpartitions can only be consumed after they have " +
+					"been finished.");
+			}
+
+			if (readView != null) {
+				throw new IllegalStateException("Subpartition is being or already has been " +
+					"consumed, but we currently allow subpartitions to only be consumed once.");
+			}
+
+			readView = new SortMergeSubpartitionView(
+				this,
+				partitionFile,
+				parent.getBufferProvider().getMemorySegmentSize(),
+				availabilityListener);
+			return readView;
+		}
+	}
+
+	@Override
+	int releaseMemory() {
+		// the partition spills the buffers of all subpartitions at once, see SortMergePartitionFile#spill
+		return 0;
+	}
+
+	@Override
+	public boolean isReleased() {
+		return isReleased;
+	}
+
+	@Override
+	public int unsynchronizedGetNumberOfQueuedBuffers() {
+		// since we do not synchronize, the size may actually be lower than 0!
+		return Math.max(buffers.size(), 0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SortMergeSubpartition#%d [%d number of buffers (%d bytes)," +
+				"%d number of buffers in backlog, finished? %s, read view? %s]",
+			index, getTotalNumberOfBuffers(), getTotalNumberOfBytes(),
+			getBuffersInBacklog(), isFinished, readView != null);
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
+import org.apache.flink.runtime.io.network.partition.SpilledSubpartitionView.SpillReadBufferPool;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Reader for a {@link SortMergeSubpartition}.
+ *
+ * <p>The view reads the ranges of the shared {@link SortMergePartitionFile} that belong to its subpartition, region
+ * by region. Within a region, the buffers of the subpartition are stored one after the other, so the view reads
+ * sequentially. Reads are done synchronously into a small pool of buffers owned by the view, like for the
+ * {@link SpilledSubpartitionView}.
+ */
+class SortMergeSubpartitionView implements ResultSubpartitionView {
+
+	/** The subpartition this view belongs to. */
+	private final SortMergeSubpartition parent;
+
+	/** The file to read from. */
+	private final SortMergePartitionFile partitionFile;
+
+	/** The buffer pool to read data into. */
+	private final SpillReadBufferPool bufferPool;
+
+	/** The ranges of the data file to read: pairs of the offset and the number of buffers. */
+	private final long[][] ranges;
+
+	/** Flag indicating whether all resources have been released. */
+	private final AtomicBoolean isReleased = new AtomicBoolean();
+
+	/** The index of the range to read from. */
+	@GuardedBy("this")
+	private int currentRange;
+
+	/** The offset of the next buffer to read in the data file. */
+	@GuardedBy("this")
+	private long nextOffset;
+
+	/** The number of buffers that remain to be read from the current range. */
+	@GuardedBy("this")
+	private long remainingBuffersInRange;
+
+	/** The next buffer to hand out. */
+	@GuardedBy("this")
+	private Buffer nextBuffer;
+
+	SortMergeSubpartitionView(
+		SortMergeSubpartition parent,
+		SortMergePartitionFile partitionFile,
+		int memorySegmentSize,
+		BufferAvailabilityListener availabilityListener) throws IOException {
+
+		this.parent = checkNotNull(parent);
+		this.partitionFile = checkNotNull(partitionFile);
+		this.ranges = partitionFile.readSubpartitionIndex(parent.index);
+		this.bufferPool = new SpillReadBufferPool(2, memorySegmentSize);
+
+		if (ranges.length > 0) {
+			this.nextOffset = ranges[0][0];
+			this.remainingBuffersInRange = ranges[0][1];
+		}
+
+		// the whole subpartition is in the file
+		availabilityListener.notifyDataAvailable();
+	}
+
+	@Nullable
+	@Override
+	public BufferAndBacklog getNextBuffer() throws IOException, InterruptedException {
+		Buffer current;
+		boolean nextBufferIsEvent;
+		synchronized (this) {
+			if (nextBuffer == null) {
+				current = requestAndFillBuffer();
+			} else {
+				current = nextBuffer;
+			}
+			nextBuffer = requestAndFillBuffer();
+			nextBufferIsEvent = nextBuffer != null && !nextBuffer.isBuffer();
+		}
+
+		if (current == null) {
+			return null;
+		}
+
+		int newBacklog = parent.decreaseBuffersInBacklog(current);
+		return new BufferAndBacklog(current, newBacklog > 0 || nextBufferIsEvent, newBacklog, nextBufferIsEvent);
+	}
+
+	@Nullable
+	private Buffer requestAndFillBuffer() throws IOException, InterruptedException {
+		assert Thread.holdsLock(this);
+
+		if (!hasRemainingBuffers() || isReleased.get()) {
+			return null;
+		}
+
+		Buffer buffer = bufferPool.requestBufferBlocking();
+		if (buffer == null) {
+			return null;
+		}
+
+		try {
+			nextOffset = partitionFile.readBuffer(nextOffset, buffer);
+		} catch (Throwable t) {
+			buffer.recycleBuffer();
+			throw t;
+		}
+
+		if (--remainingBuffersInRange == 0 && ++currentRange < ranges.length) {
+			nextOffset = ranges[currentRange][0];
+			remainingBuffersInRange = ranges[currentRange][1];
+		}
+		return buffer;
+	}
+
+	private boolean hasRemainingBuffers() {
+		assert Thread.holdsLock(this);
+		return remainingBuffersInRange > 0;
+	}
+
+	@Override
+	public void notifyDataAvailable() {
+		// the listener is notified on construction, when all data is available
+	}
+
+	@Override
+	public void notifySubpartitionConsumed() throws IOException {
+		parent.onConsumedSubpartition();
+	}
+
+	@Override
+	public void releaseAllResources() {
+		if (isReleased.compareAndSet(false, true)) {
+			synchronized (this) {
+				if (nextBuffer != null) {
+					nextBuffer.recycleBuffer();
+					nextBuffer = null;
+				}
+			}
+
+			bufferPool.destroy();
+		}
+	}
+
+	@Override
+	public boolean isReleased() {
+		return parent.isReleased() || isReleased.get();
+	}
+
+	@Override
+	public boolean nextBufferIsEvent() {
+		synchronized (this) {
+			if (nextBuffer == null) {
+				try {
+					nextBuffer = requestAndFillBuffer();
+				} catch (Exception e) {
+					// we can ignore this here (we will get it again once getNextBuffer() is called)
+					return false;
+				}
+			}
+			return nextBuffer != null && !nextBuffer.isBuffer();
+		}
+	}
+
+	@Override
+	public synchronized boolean isAvailable() {
+		return nextBuffer != null || hasRemainingBuffers();
+	}
+
+	@Override
+	public Throwable getFailureCause() {
+		return parent.getFailureCause();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SortMergeSubpartitionView(index: %d, regions: %d) of ResultPartition %s",
+			parent.index,
+			ranges.length,
+			parent.parent.getPartitionId());
+	}
+}
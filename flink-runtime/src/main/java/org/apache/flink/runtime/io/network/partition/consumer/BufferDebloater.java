@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Computes the buffer size that the producers of an input gate should use so that the buffers which are in flight
+ * towards the gate hold roughly the configured amount of time worth of data.
+ *
+ * <p>The debloater measures how many bytes the gate consumes per second. The time in which the gate waited for data
+ * does not count, because an idle consumer is not the bottleneck and its in-flight data is small anyway. Every
+ * period, the measured throughput is smoothed and divided over all buffers that the gate may hold, which gives the
+ * desired size of a single buffer. Changes are only reported if they are significant, so that the producers are not
+ * flooded with announcements.
+ *
+ * <p>The debloater is not thread safe and is only accessed by the task thread.
+ */
+class BufferDebloater {
+
+	/** The smallest buffer size that is announced, so that records are not split into too many tiny buffers. */
+	static final int MIN_BUFFER_SIZE = 256;
+
+	/** The weight of the latest measurement in the exponential moving average of the throughput. */
+	private static final double THROUGHPUT_ALPHA = 0.3;
+
+	/** The relative change of the buffer size below which no new size is announced. */
+	private static final double ANNOUNCEMENT_THRESHOLD = 0.25;
+
+	private final int maxBufferSize;
+
+	private final long targetNanos;
+
+	private final long periodNanos;
+
+	private long periodStartNanos;
+
+	/** Start of the current idle phase, or -1 if the gate is not idle. */
+	private long idleStartNanos = -1;
+
+	private long idleNanos;
+
+	private long consumedBytes;
+
+	/** Smoothed throughput in bytes per second, or -1 before the first period completed. */
+	private double throughput = -1;
+
+	private int lastAnnouncedBufferSize;
+
+	BufferDebloater(int maxBufferSize, long targetMillis, long periodMillis, long nowNanos) {
+		checkArgument(maxBufferSize >= MIN_BUFFER_SIZE, "The maximum buffer size is too small.");
+		checkArgument(targetMillis > 0, "The buffer debloat target must be positive.");
+		checkArgument(periodMillis > 0, "The buffer debloat period must be positive.");
+
+		this.maxBufferSize = maxBufferSize;
+		this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+		this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+		this.periodStartNanos = nowNanos;
+		this.lastAnnouncedBufferSize = maxBufferSize;
+	}
+
+	/**
+	 * Marks the begin of a phase in which the gate has no data. The phase ends with the next consumed buffer.
+	 */
+	void onIdleStart(long nowNanos) {
+		if (idleStartNanos < 0) {
+			idleStartNanos = nowNanos;
+		}
+	}
+
+	/**
+	 * Accounts a consumed buffer and recomputes the buffer size if the current period is over.
+	 *
+	 * @param bytes The size of the consumed buffer.
+	 * @param numBuffers The number of buffers that the gate can hold in total.
+	 * @param nowNanos The current time.
+	 *
+	 * @return The buffer size that should be announced to the producers, or -1 if it did not change significantly.
+	 */
+	int onBufferConsumed(int bytes, int numBuffers, long nowNanos) {
+		if (idleStartNanos >= 0) {
+			idleNanos += nowNanos - idleStartNanos;
+			idleStartNanos = -1;
+		}
+		consumedBytes += bytes;
+
+		final long elapsedNanos = nowNanos - periodStartNanos;
+		if (elapsedNanos < periodNanos) {
+			return -1;
+		}
+
+		final long busyNanos = Math.max(elapsedNanos - idleNanos, 1);
+		final double currentThroughput = consumedBytes * 1e9 / busyNanos;
+		throughput = throughput < 0
+			? currentThroughput
+			: THROUGHPUT_ALPHA * currentThroughput + (1 - THROUGHPUT_ALPHA) * throughput;
+
+		periodStartNanos = nowNanos;
+		idleNanos = 0;
+		consumedBytes = 0;
+
+		final double desiredBytesInFlight = throughput * targetNanos / 1e9;
+		final int desiredBufferSize = (int) Math.max(
+			MIN_BUFFER_SIZE,
+			Math.min(maxBufferSize, desiredBytesInFlight / Math.max(numBuffers, 1)));
+
+		if (Math.abs(desiredBufferSize - lastAnnouncedBufferSize) < lastAnnouncedBufferSize * ANNOUNCEMENT_THRESHOLD) {
+			return -1;
+		}
+
+		lastAnnouncedBufferSize = desiredBufferSize;
+		return desiredBufferSize;
+	}
+
+	int getLastAnnouncedBufferSize() {
+		return lastAnnouncedBufferSize;
+	}
+
+	double getThroughput() {
+		return throughput;
+	}
+}
@@ -157,6 +157,13 @@ public abstract class InputChannel {
 	 */
 	abstract void sendTaskEvent(TaskEvent event) throws IOException;
 
+	/**
+	 * Asks the producer of the consumed subpartition to fill buffers only up to the given number of bytes. The
+	 * request is a hint: buffers that are already being filled keep their size.
+	 */
+	void announceBufferSize(int bufferSize) throws IOException {
+	}
+
 	// ------------------------------------------------------------------------
 	// Life cycle
 	// ------------------------------------------------------------------------
@@ -20,7 +20,10 @@ package org.apache.flink.runtime.io.network.partition.consumer;
 
 import org.apache.flink.runtime.event.TaskEvent;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -94,4 +97,17 @@ public interface InputGate {
 	void registerListener(InputGateListener listener);
 
 	int getPageSize();
+
+	/**
+	 * Polls the next batch of record objects that the producer of the given channel handed over without
+	 * serialization. Every {@link org.apache.flink.runtime.io.network.api.ObjectBatchEvent} that was received from a
+	 * channel corresponds to exactly one batch.
+	 *
+	 * @param channelIndex The index of the channel, as reported by {@link BufferOrEvent#getChannelIndex()}.
+	 * @return the next batch of the channel, or null if there is none.
+	 */
+	@Nullable
+	default List<?> pollObjectBatch(int channelIndex) {
+		return null;
+	}
 }
@@ -115,6 +115,10 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
 						throw new IOException("Error requesting subpartition.");
 					}
 
+					if (inputGate.isObjectBatchesEnabled()) {
+						subpartitionView.enableObjectBatches();
+					}
+
 					// make the subpartition view visible
 					this.subpartitionView = subpartitionView;
 
@@ -193,6 +197,10 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
 			}
 		}
 
+		if (next.objectBatch() != null) {
+			inputGate.addObjectBatch(channelIndex, next.objectBatch());
+		}
+
 		numBytesIn.inc(next.buffer().getSizeUnsafe());
 		numBuffersIn.inc();
 		return Optional.of(new BufferAndAvailability(next.buffer(), next.isMoreAvailable(), next.buffersInBacklog()));
@@ -260,6 +268,14 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
 		}
 	}
 
+	@Override
+	void announceBufferSize(int bufferSize) {
+		ResultSubpartitionView view = subpartitionView;
+		if (view != null) {
+			view.notifyNewBufferSize(bufferSize);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "LocalInputChannel [" + partitionId + "]";
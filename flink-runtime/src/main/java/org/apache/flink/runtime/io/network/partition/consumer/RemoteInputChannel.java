@@ -24,6 +24,7 @@ import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressionFactory;
 import org.apache.flink.runtime.io.network.buffer.BufferListener;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
@@ -200,9 +201,30 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 
 		numBytesIn.inc(next.getSizeUnsafe());
 		numBuffersIn.inc();
+
+		if (next.isCompressed()) {
+			decompress(next);
+		}
+
 		return Optional.of(new BufferAndAvailability(next, moreAvailable, getSenderBacklog()));
 	}
 
+	private void decompress(Buffer buffer) throws IOException {
+		final BufferCompressionFactory compressionFactory = connectionManager.getBufferCompressionFactory();
+		if (compressionFactory == null) {
+			buffer.recycleBuffer();
+			throw new IOException("Received a compressed buffer from " + connectionId + ", but network " +
+				"compression is not configured on this task manager. All task managers must use the same codec.");
+		}
+
+		try {
+			inputGate.getBufferDecompressor(compressionFactory).decompressToOriginalBuffer(buffer);
+		} catch (Throwable t) {
+			buffer.recycleBuffer();
+			throw t;
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Task events
 	// ------------------------------------------------------------------------
@@ -217,6 +239,14 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 		partitionRequestClient.sendTaskEvent(partitionId, event, this);
 	}
 
+	@Override
+	void announceBufferSize(int bufferSize) throws IOException {
+		final PartitionRequestClient client = partitionRequestClient;
+		if (client != null && !isReleased.get()) {
+			client.notifyNewBufferSize(this, bufferSize);
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Life cycle
 	// ------------------------------------------------------------------------
@@ -30,6 +30,8 @@ import org.apache.flink.runtime.io.network.NetworkEnvironment;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressionFactory;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -39,12 +41,15 @@ import org.apache.flink.runtime.io.network.partition.consumer.InputChannel.Buffe
 import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
+import org.apache.flink.runtime.metrics.TimerGauge;
 import org.apache.flink.runtime.metrics.groups.TaskIOMetricGroup;
 import org.apache.flink.runtime.taskmanager.TaskActions;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -163,6 +168,9 @@ public class SingleInputGate implements InputGate {
 
 	private final boolean isCreditBased;
 
+	/** Measures the time that the consuming task waits for data of this gate. */
+	private final TimerGauge idleTimeMsPerSecond;
+
 	private boolean hasReceivedAllEndOfPartitionEvents;
 
 	/** Flag indicating whether partitions have been requested. */
@@ -184,6 +192,31 @@ public class SingleInputGate implements InputGate {
 	/** A timer to retrigger local partition requests. Only initialized if actually needed. */
 	private Timer retriggerLocalRequestTimer;
 
+	/** Flag indicating whether local producers may hand over batches of record objects instead of buffers. */
+	private volatile boolean objectBatchesEnabled;
+
+	/**
+	 * The batches of record objects, per channel index, whose object batch events were already returned by this gate.
+	 * Only initialized if object batches are enabled and only accessed by the task thread.
+	 */
+	private ArrayDeque<List<?>>[] objectBatches;
+
+	/**
+	 * Decompresses the buffers of the remote input channels. Only initialized if compressed buffers are received and
+	 * only accessed by the task thread.
+	 */
+	private BufferDecompressor bufferDecompressor;
+
+	/**
+	 * Adapts the buffer size of the producers to the throughput of this gate. Only initialized if buffer debloating
+	 * is enabled and only accessed by the task thread.
+	 */
+	private BufferDebloater bufferDebloater;
+
+	private long bufferDebloatTargetMillis;
+
+	private long bufferDebloatPeriodMillis;
+
 	public SingleInputGate(
 		String owningTaskName,
 		JobID jobId,
@@ -213,6 +246,7 @@ public class SingleInputGate implements InputGate {
 
 		this.taskActions = checkNotNull(taskActions);
 		this.isCreditBased = isCreditBased;
+		this.idleTimeMsPerSecond = metrics.getIdleTimeMsPerSecond();
 	}
 
 	// ------------------------------------------------------------------------
@@ -228,6 +262,10 @@ public class SingleInputGate implements InputGate {
 		return consumedResultId;
 	}
 
+	TimerGauge getIdleTimeMsPerSecond() {
+		return idleTimeMsPerSecond;
+	}
+
 	/**
 	 * Returns the type of this input channel's consumed result partition.
 	 *
@@ -255,6 +293,60 @@ public class SingleInputGate implements InputGate {
 		}
 	}
 
+	/**
+	 * Lets the producers of this gate size their buffers such that the data in flight towards this gate can be
+	 * consumed in about the given target time. This must be set before the first buffer is consumed.
+	 *
+	 * @param targetMillis The time in which the buffered in-flight data should be consumed.
+	 * @param periodMillis The time between two recomputations of the buffer size.
+	 */
+	public void enableBufferDebloating(long targetMillis, long periodMillis) {
+		checkArgument(targetMillis > 0, "The buffer debloat target must be positive.");
+		checkArgument(periodMillis > 0, "The buffer debloat period must be positive.");
+
+		this.bufferDebloatTargetMillis = targetMillis;
+		this.bufferDebloatPeriodMillis = periodMillis;
+	}
+
+	/**
+	 * Lets local producers hand over batches of record objects instead of serialized buffers. This must be set before
+	 * the partitions are requested, see {@link InputGate#pollObjectBatch(int)}.
+	 */
+	public void setObjectBatchesEnabled(boolean objectBatchesEnabled) {
+		this.objectBatchesEnabled = objectBatchesEnabled;
+	}
+
+	boolean isObjectBatchesEnabled() {
+		return objectBatchesEnabled;
+	}
+
+	BufferDecompressor getBufferDecompressor(BufferCompressionFactory compressionFactory) {
+		if (bufferDecompressor == null) {
+			bufferDecompressor = compressionFactory.createDecompressor();
+		}
+		return bufferDecompressor;
+	}
+
+	@SuppressWarnings("unchecked")
+	void addObjectBatch(int channelIndex, List<?> objectBatch) {
+		if (objectBatches == null) {
+			objectBatches = new ArrayDeque[numberOfInputChannels];
+		}
+		if (objectBatches[channelIndex] == null) {
+			objectBatches[channelIndex] = new ArrayDeque<>();
+		}
+		objectBatches[channelIndex].add(objectBatch);
+	}
+
+	@Nullable
+	@Override
+	public List<?> pollObjectBatch(int channelIndex) {
+		if (objectBatches == null || objectBatches[channelIndex] == null) {
+			return null;
+		}
+		return objectBatches[channelIndex].poll();
+	}
+
 	public int getNumberOfQueuedBuffers() {
 		// re-try 3 times, if fails, return 0 for "unknown"
 		for (int retry = 0; retry < 3; retry++) {
@@ -525,6 +617,11 @@ public class SingleInputGate implements InputGate {
 
 		requestPartitions();
 
+		if (bufferDebloatTargetMillis > 0 && bufferDebloater == null && bufferPool != null) {
+			bufferDebloater = new BufferDebloater(
+				bufferPool.getMemorySegmentSize(), bufferDebloatTargetMillis, bufferDebloatPeriodMillis, System.nanoTime());
+		}
+
 		InputChannel currentChannel;
 		boolean moreAvailable;
 		Optional<BufferAndAvailability> result = Optional.empty();
@@ -536,8 +633,17 @@ public class SingleInputGate implements InputGate {
 						throw new IllegalStateException("Released");
 					}
 
+					if (bufferDebloater != null) {
+						bufferDebloater.onIdleStart(System.nanoTime());
+					}
+
 					if (blocking) {
-						inputChannelsWithData.wait();
+						idleTimeMsPerSecond.markStart();
+						try {
+							inputChannelsWithData.wait();
+						} finally {
+							idleTimeMsPerSecond.markEnd();
+						}
 					}
 					else {
 						return Optional.empty();
@@ -561,6 +667,10 @@ public class SingleInputGate implements InputGate {
 		}
 
 		final Buffer buffer = result.get().buffer();
+		if (bufferDebloater != null) {
+			debloat(buffer.getSize());
+		}
+
 		if (buffer.isBuffer()) {
 			return Optional.of(new BufferOrEvent(buffer, currentChannel.getChannelIndex(), moreAvailable));
 		}
@@ -589,6 +699,22 @@ public class SingleInputGate implements InputGate {
 		}
 	}
 
+	private void debloat(int consumedBytes) throws IOException {
+		final int numBuffers = numberOfInputChannels * Math.max(networkBuffersPerChannel, 1)
+			+ (bufferPool != null ? bufferPool.getNumBuffers() : 0);
+
+		final int newBufferSize = bufferDebloater.onBufferConsumed(consumedBytes, numBuffers, System.nanoTime());
+		if (newBufferSize > 0) {
+			LOG.debug("{}: Announcing buffer size {} to the producers.", owningTaskName, newBufferSize);
+
+			synchronized (requestLock) {
+				for (InputChannel inputChannel : inputChannels.values()) {
+					inputChannel.announceBufferSize(newBufferSize);
+				}
+			}
+		}
+	}
+
 	@Override
 	public void sendTaskEvent(TaskEvent event) throws IOException {
 		synchronized (requestLock) {
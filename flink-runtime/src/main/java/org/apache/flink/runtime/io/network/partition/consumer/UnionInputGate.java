@@ -20,13 +20,17 @@ package org.apache.flink.runtime.io.network.partition.consumer;
 
 import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.metrics.TimerGauge;
 
 import org.apache.flink.shaded.guava18.com.google.common.collect.Maps;
 import org.apache.flink.shaded.guava18.com.google.common.collect.Sets;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -94,6 +98,10 @@ public class UnionInputGate implements InputGate, InputGateListener {
 	/** Flag indicating whether partitions have been requested. */
 	private boolean requestedPartitionsFlag;
 
+	/** Measures the time that the consuming task waits for data, shared with the unioned gates. */
+	@Nullable
+	private final TimerGauge idleTimeMsPerSecond;
+
 	public UnionInputGate(InputGate... inputGates) {
 		this.inputGates = checkNotNull(inputGates);
 		checkArgument(inputGates.length > 1, "Union input gate should union at least two input gates.");
@@ -102,10 +110,10 @@ public class UnionInputGate implements InputGate, InputGateListener {
 		this.inputGatesWithRemainingData = Sets.newHashSetWithExpectedSize(inputGates.length);
 
 		int currentNumberOfInputChannels = 0;
+		TimerGauge idleTimeMsPerSecond = null;
 
 		for (InputGate inputGate : inputGates) {
 			if (inputGate instanceof UnionInputGate) {
-				// if we want to add support for this, we need to implement pollNextBufferOrEvent()
 				throw new UnsupportedOperationException("Cannot union a union of input gates.");
 			}
 
@@ -117,9 +125,15 @@ public class UnionInputGate implements InputGate, InputGateListener {
 
 			// Register the union gate as a listener for all input gates
 			inputGate.registerListener(this);
+
+			// all gates of a task report to the same task metrics
+			if (idleTimeMsPerSecond == null && inputGate instanceof SingleInputGate) {
+				idleTimeMsPerSecond = ((SingleInputGate) inputGate).getIdleTimeMsPerSecond();
+			}
 		}
 
 		this.totalNumberOfInputChannels = currentNumberOfInputChannels;
+		this.idleTimeMsPerSecond = idleTimeMsPerSecond;
 	}
 
 	/**
@@ -160,6 +174,15 @@ public class UnionInputGate implements InputGate, InputGateListener {
 
 	@Override
 	public Optional<BufferOrEvent> getNextBufferOrEvent() throws IOException, InterruptedException {
+		return getNextBufferOrEvent(true);
+	}
+
+	@Override
+	public Optional<BufferOrEvent> pollNextBufferOrEvent() throws IOException, InterruptedException {
+		return getNextBufferOrEvent(false);
+	}
+
+	private Optional<BufferOrEvent> getNextBufferOrEvent(boolean blocking) throws IOException, InterruptedException {
 		if (inputGatesWithRemainingData.isEmpty()) {
 			return Optional.empty();
 		}
@@ -167,7 +190,12 @@ public class UnionInputGate implements InputGate, InputGateListener {
 		// Make sure to request the partitions, if they have not been requested before.
 		requestPartitions();
 
-		InputGateWithData inputGateWithData = waitAndGetNextInputGate();
+		Optional<InputGateWithData> next = waitAndGetNextInputGate(blocking);
+		if (!next.isPresent()) {
+			return Optional.empty();
+		}
+
+		InputGateWithData inputGateWithData = next.get();
 		InputGate inputGate = inputGateWithData.inputGate;
 		BufferOrEvent bufferOrEvent = inputGateWithData.bufferOrEvent;
 
@@ -198,18 +226,27 @@ public class UnionInputGate implements InputGate, InputGateListener {
 		return Optional.of(bufferOrEvent);
 	}
 
-	@Override
-	public Optional<BufferOrEvent> pollNextBufferOrEvent() throws UnsupportedOperationException {
-		throw new UnsupportedOperationException();
-	}
-
-	private InputGateWithData waitAndGetNextInputGate() throws IOException, InterruptedException {
+	private Optional<InputGateWithData> waitAndGetNextInputGate(boolean blocking) throws IOException, InterruptedException {
 		while (true) {
 			InputGate inputGate;
 			boolean moreInputGatesAvailable;
 			synchronized (inputGatesWithData) {
 				while (inputGatesWithData.size() == 0) {
-					inputGatesWithData.wait();
+					if (blocking) {
+						if (idleTimeMsPerSecond != null) {
+							idleTimeMsPerSecond.markStart();
+						}
+						try {
+							inputGatesWithData.wait();
+						} finally {
+							if (idleTimeMsPerSecond != null) {
+								idleTimeMsPerSecond.markEnd();
+							}
+						}
+					}
+					else {
+						return Optional.empty();
+					}
 				}
 				inputGate = inputGatesWithData.remove();
 				enqueuedInputGatesWithData.remove(inputGate);
@@ -219,7 +256,7 @@ public class UnionInputGate implements InputGate, InputGateListener {
 			// In case of inputGatesWithData being inaccurate do not block on an empty inputGate, but just poll the data.
 			Optional<BufferOrEvent> bufferOrEvent = inputGate.pollNextBufferOrEvent();
 			if (bufferOrEvent.isPresent()) {
-				return new InputGateWithData(inputGate, bufferOrEvent.get(), moreInputGatesAvailable);
+				return Optional.of(new InputGateWithData(inputGate, bufferOrEvent.get(), moreInputGatesAvailable));
 			}
 		}
 	}
@@ -265,6 +302,20 @@ public class UnionInputGate implements InputGate, InputGateListener {
 		return pageSize;
 	}
 
+	@Nullable
+	@Override
+	public List<?> pollObjectBatch(int channelIndex) {
+		// the offsets of the gates follow their order
+		int channelIndexInGate = channelIndex;
+		for (InputGate gate : inputGates) {
+			if (channelIndexInGate < gate.getNumberOfInputChannels()) {
+				return gate.pollObjectBatch(channelIndexInGate);
+			}
+			channelIndexInGate -= gate.getNumberOfInputChannels();
+		}
+		throw new IndexOutOfBoundsException("Channel index " + channelIndex + " out of range.");
+	}
+
 	@Override
 	public void notifyInputGateNonEmpty(InputGate inputGate) {
 		queueInputGate(checkNotNull(inputGate));
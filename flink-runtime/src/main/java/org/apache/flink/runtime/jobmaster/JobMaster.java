@@ -675,13 +675,8 @@ public class JobMaster extends FencedRpcEndpoint<JobMasterId> implements JobMast
 			checkpointState);
 
 		if (checkpointCoordinator != null) {
-			getRpcService().execute(() -> {
-				try {
-					checkpointCoordinator.receiveAcknowledgeMessage(ackMessage);
-				} catch (Throwable t) {
-					log.warn("Error while processing checkpoint acknowledgement message", t);
-				}
-			});
+			// the coordinator processes the acknowledgements in batches in its I/O executor
+			checkpointCoordinator.enqueueAcknowledgeMessage(ackMessage);
 		} else {
 			log.error("Received AcknowledgeCheckpoint message for job {} with no CheckpointCoordinator",
 					jobGraph.getJobID());
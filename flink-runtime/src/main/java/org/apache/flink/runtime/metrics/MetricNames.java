@@ -48,6 +48,10 @@ public class MetricNames {
 	public static final String IO_NUM_BUFFERS_IN_REMOTE_RATE = IO_NUM_BUFFERS_IN_REMOTE + SUFFIX_RATE;
 	public static final String IO_NUM_BUFFERS_OUT_RATE = IO_NUM_BUFFERS_OUT + SUFFIX_RATE;
 
+	public static final String TASK_IDLE_TIME = "idleTimeMs" + SUFFIX_RATE;
+	public static final String TASK_BUSY_TIME = "busyTimeMs" + SUFFIX_RATE;
+	public static final String TASK_BACK_PRESSURED_TIME = "backPressuredTimeMs" + SUFFIX_RATE;
+
 	public static final String IO_CURRENT_INPUT_WATERMARK = "currentInputWatermark";
 	public static final String IO_CURRENT_INPUT_1_WATERMARK = "currentInput1Watermark";
 	public static final String IO_CURRENT_INPUT_2_WATERMARK = "currentInput2Watermark";
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.metrics;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.View;
+
+/**
+ * A {@link Gauge} that measures how many milliseconds per second a thread spends in some state,
+ * for example blocked on a buffer request.
+ *
+ * <p>The measuring thread calls {@link #markStart()} and {@link #markEnd()} around each period
+ * in the state, which only costs two calls of {@link System#nanoTime()}. The value is derived in
+ * regular intervals by the {@link ViewUpdater}, like for a {@link org.apache.flink.metrics.MeterView},
+ * and includes a period that is still in progress. It is a best-effort value, because the
+ * measuring thread and the updating thread do not synchronize.
+ */
+public class TimerGauge implements Gauge<Long>, View {
+
+	/** The nanoseconds spent in the state by all finished periods. Only written by the measuring thread. */
+	private volatile long accumulatedNanos;
+
+	/** The start of the current period, or 0 if the measuring thread is not in the state. */
+	private volatile long currentStartNanos;
+
+	/** The accumulated nanoseconds at the last update, including the current period at that time. */
+	private long previousAccumulatedNanos;
+
+	private long previousUpdateNanos;
+
+	private volatile long currentValue;
+
+	public TimerGauge() {
+		this.previousUpdateNanos = System.nanoTime();
+	}
+
+	public void markStart() {
+		currentStartNanos = System.nanoTime();
+	}
+
+	public void markEnd() {
+		final long startNanos = currentStartNanos;
+		if (startNanos != 0) {
+			accumulatedNanos += System.nanoTime() - startNanos;
+			currentStartNanos = 0;
+		}
+	}
+
+	@Override
+	public void update() {
+		update(System.nanoTime());
+	}
+
+	@VisibleForTesting
+	void update(long nowNanos) {
+		final long startNanos = currentStartNanos;
+		long totalNanos = accumulatedNanos;
+		if (startNanos != 0) {
+			totalNanos += Math.max(0, nowNanos - startNanos);
+		}
+
+		final long elapsedNanos = nowNanos - previousUpdateNanos;
+		if (elapsedNanos > 0) {
+			final long measuredNanos = Math.max(0, totalNanos - previousAccumulatedNanos);
+			currentValue = Math.min(1000L, measuredNanos * 1000L / elapsedNanos);
+		}
+
+		previousAccumulatedNanos = totalNanos;
+		previousUpdateNanos = nowNanos;
+	}
+
+	/**
+	 * Returns the milliseconds per second that the thread spent in the state during the last
+	 * update interval.
+	 */
+	@Override
+	public Long getValue() {
+		return currentValue;
+	}
+}
@@ -28,6 +28,7 @@ import org.apache.flink.runtime.executiongraph.IOMetrics;
 import org.apache.flink.runtime.io.network.partition.ResultPartition;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
 import org.apache.flink.runtime.metrics.MetricNames;
+import org.apache.flink.runtime.metrics.TimerGauge;
 import org.apache.flink.runtime.taskmanager.Task;
 
 import java.util.ArrayList;
@@ -57,6 +58,9 @@ public class TaskIOMetricGroup extends ProxyMetricGroup<TaskMetricGroup> {
 	private final Meter numBuffersInRateLocal;
 	private final Meter numBuffersInRateRemote;
 
+	private final TimerGauge idleTimePerSecond;
+	private final TimerGauge backPressuredTimePerSecond;
+
 	public TaskIOMetricGroup(TaskMetricGroup parent) {
 		super(parent);
 
@@ -78,6 +82,10 @@ public class TaskIOMetricGroup extends ProxyMetricGroup<TaskMetricGroup> {
 		this.numBuffersOutRate = meter(MetricNames.IO_NUM_BUFFERS_OUT_RATE, new MeterView(numBuffersOut, 60));
 		this.numBuffersInRateLocal = meter(MetricNames.IO_NUM_BUFFERS_IN_LOCAL_RATE, new MeterView(numBuffersInLocal, 60));
 		this.numBuffersInRateRemote = meter(MetricNames.IO_NUM_BUFFERS_IN_REMOTE_RATE, new MeterView(numBuffersInRemote, 60));
+
+		this.idleTimePerSecond = gauge(MetricNames.TASK_IDLE_TIME, new TimerGauge());
+		this.backPressuredTimePerSecond = gauge(MetricNames.TASK_BACK_PRESSURED_TIME, new TimerGauge());
+		gauge(MetricNames.TASK_BUSY_TIME, new BusyTimeGauge(idleTimePerSecond, backPressuredTimePerSecond));
 	}
 
 	public IOMetrics createSnapshot() {
@@ -131,6 +139,21 @@ public class TaskIOMetricGroup extends ProxyMetricGroup<TaskMetricGroup> {
 		return numBytesOutRate;
 	}
 
+	/**
+	 * Returns the timer for the time that the task waits for input.
+	 */
+	public TimerGauge getIdleTimeMsPerSecond() {
+		return idleTimePerSecond;
+	}
+
+	/**
+	 * Returns the timer for the time that the task waits for output buffers, i.e., for the
+	 * time that it is back pressured.
+	 */
+	public TimerGauge getBackPressuredTimeMsPerSecond() {
+		return backPressuredTimePerSecond;
+	}
+
 	// ============================================================================================
 	// Buffer metrics
 	// ============================================================================================
@@ -146,6 +169,27 @@ public class TaskIOMetricGroup extends ProxyMetricGroup<TaskMetricGroup> {
 		buffers.gauge("outPoolUsage", new OutputBufferPoolUsageGauge(task));
 	}
 
+	/**
+	 * Gauge measuring the milliseconds per second in which a task neither waits for input nor
+	 * for output buffers.
+	 */
+	private static final class BusyTimeGauge implements Gauge<Long> {
+
+		private final TimerGauge idleTime;
+
+		private final TimerGauge backPressuredTime;
+
+		BusyTimeGauge(TimerGauge idleTime, TimerGauge backPressuredTime) {
+			this.idleTime = idleTime;
+			this.backPressuredTime = backPressuredTime;
+		}
+
+		@Override
+		public Long getValue() {
+			return Math.max(0L, 1000L - idleTime.getValue() - backPressuredTime.getValue());
+		}
+	}
+
 	/**
 	 * Gauge measuring the number of queued input buffers of a task.
 	 */
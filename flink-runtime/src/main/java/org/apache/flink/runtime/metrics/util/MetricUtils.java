@@ -25,6 +25,7 @@ import org.apache.flink.metrics.Gauge;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.clusterframework.BootstrapTools;
 import org.apache.flink.runtime.io.network.NetworkEnvironment;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressionFactory;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.metrics.MetricRegistry;
 import org.apache.flink.runtime.metrics.groups.JobManagerMetricGroup;
@@ -139,6 +140,11 @@ public class MetricUtils {
 		final NetworkBufferPool networkBufferPool = network.getNetworkBufferPool();
 		metrics.<Integer, Gauge<Integer>>gauge("TotalMemorySegments", networkBufferPool::getTotalNumberOfMemorySegments);
 		metrics.<Integer, Gauge<Integer>>gauge("AvailableMemorySegments", networkBufferPool::getNumberOfAvailableMemorySegments);
+
+		final BufferCompressionFactory compressionFactory = network.getConnectionManager().getBufferCompressionFactory();
+		if (compressionFactory != null) {
+			compressionFactory.registerMetrics(metrics);
+		}
 	}
 
 	private static void instantiateClassLoaderMetrics(MetricGroup metrics) {
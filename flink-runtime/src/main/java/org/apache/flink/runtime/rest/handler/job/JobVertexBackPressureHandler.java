@@ -21,10 +21,13 @@ package org.apache.flink.runtime.rest.handler.job;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.time.Time;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.metrics.MetricNames;
 import org.apache.flink.runtime.rest.handler.AbstractRestHandler;
 import org.apache.flink.runtime.rest.handler.HandlerRequest;
 import org.apache.flink.runtime.rest.handler.RestHandlerException;
 import org.apache.flink.runtime.rest.handler.legacy.backpressure.OperatorBackPressureStats;
+import org.apache.flink.runtime.rest.handler.legacy.metrics.MetricFetcher;
+import org.apache.flink.runtime.rest.handler.legacy.metrics.MetricStore;
 import org.apache.flink.runtime.rest.messages.EmptyRequestBody;
 import org.apache.flink.runtime.rest.messages.JobIDPathParameter;
 import org.apache.flink.runtime.rest.messages.JobVertexBackPressureInfo;
@@ -35,7 +38,10 @@ import org.apache.flink.runtime.webmonitor.RestfulGateway;
 import org.apache.flink.runtime.webmonitor.retriever.GatewayRetriever;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -43,16 +49,25 @@ import java.util.stream.IntStream;
 
 /**
  * Request handler for the job vertex back pressure.
+ *
+ * <p>The back pressure ratio of a subtask is the share of time in which the subtask waited for output
+ * buffers, as reported by the {@link MetricNames#TASK_BACK_PRESSURED_TIME} metric. Only if this metric
+ * is not available for all subtasks, for example because the metric query service is not running,
+ * the handler falls back to the stack trace samples of the job master.
  */
 public class JobVertexBackPressureHandler extends AbstractRestHandler<RestfulGateway, EmptyRequestBody, JobVertexBackPressureInfo, JobVertexMessageParameters> {
 
+	private final MetricFetcher<?> metricFetcher;
+
 	public JobVertexBackPressureHandler(
 			CompletableFuture<String> localRestAddress,
 			GatewayRetriever<? extends RestfulGateway> leaderRetriever,
 			Time timeout,
 			Map<String, String> responseHeaders,
-			MessageHeaders<EmptyRequestBody, JobVertexBackPressureInfo, JobVertexMessageParameters> messageHeaders) {
+			MessageHeaders<EmptyRequestBody, JobVertexBackPressureInfo, JobVertexMessageParameters> messageHeaders,
+			MetricFetcher<?> metricFetcher) {
 		super(localRestAddress, leaderRetriever, timeout, responseHeaders, messageHeaders);
+		this.metricFetcher = metricFetcher;
 	}
 
 	@Override
@@ -61,6 +76,15 @@ public class JobVertexBackPressureHandler extends AbstractRestHandler<RestfulGat
 			@Nonnull RestfulGateway gateway) throws RestHandlerException {
 		final JobID jobId = request.getPathParameter(JobIDPathParameter.class);
 		final JobVertexID jobVertexId = request.getPathParameter(JobVertexIdPathParameter.class);
+
+		metricFetcher.update();
+		final MetricStore.TaskMetricStore taskMetricStore = metricFetcher.getMetricStore()
+			.getTaskMetricStore(jobId.toString(), jobVertexId.toString());
+		final JobVertexBackPressureInfo backPressureInfoFromMetrics = createJobVertexBackPressureInfo(taskMetricStore);
+		if (backPressureInfoFromMetrics != null) {
+			return CompletableFuture.completedFuture(backPressureInfoFromMetrics);
+		}
+
 		return gateway
 			.requestOperatorBackPressureStats(jobId, jobVertexId)
 			.thenApply(
@@ -70,6 +94,57 @@ public class JobVertexBackPressureHandler extends AbstractRestHandler<RestfulGat
 						JobVertexBackPressureInfo.deprecated()));
 	}
 
+	/**
+	 * Creates the back pressure info from the back pressured time of the subtasks, or returns null
+	 * if the metric is missing for a subtask.
+	 */
+	@Nullable
+	private static JobVertexBackPressureInfo createJobVertexBackPressureInfo(
+			@Nullable final MetricStore.TaskMetricStore taskMetricStore) {
+		if (taskMetricStore == null) {
+			return null;
+		}
+
+		final Map<Integer, MetricStore.ComponentMetricStore> subtaskMetricStores =
+			taskMetricStore.getAllSubtaskMetricStoresByIndex();
+		if (subtaskMetricStores.isEmpty()) {
+			return null;
+		}
+
+		final int numberOfSubtasks = subtaskMetricStores.size();
+		final List<JobVertexBackPressureInfo.SubtaskBackPressureInfo> subtasks = new ArrayList<>(numberOfSubtasks);
+		double maxBackPressureRatio = 0.0;
+
+		for (int subtask = 0; subtask < numberOfSubtasks; subtask++) {
+			final MetricStore.ComponentMetricStore subtaskMetricStore = subtaskMetricStores.get(subtask);
+			final String backPressuredTime = subtaskMetricStore == null
+				? null
+				: subtaskMetricStore.getMetric(MetricNames.TASK_BACK_PRESSURED_TIME);
+			if (backPressuredTime == null) {
+				return null;
+			}
+
+			final double backPressureRatio;
+			try {
+				backPressureRatio = Math.min(1.0, Math.max(0.0, Long.parseLong(backPressuredTime) / 1000.0));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+
+			maxBackPressureRatio = Math.max(maxBackPressureRatio, backPressureRatio);
+			subtasks.add(new JobVertexBackPressureInfo.SubtaskBackPressureInfo(
+				subtask,
+				getBackPressureLevel(backPressureRatio),
+				backPressureRatio));
+		}
+
+		return new JobVertexBackPressureInfo(
+			JobVertexBackPressureInfo.VertexBackPressureStatus.OK,
+			getBackPressureLevel(maxBackPressureRatio),
+			System.currentTimeMillis(),
+			subtasks);
+	}
+
 	private static JobVertexBackPressureInfo createJobVertexBackPressureInfo(
 			final OperatorBackPressureStats operatorBackPressureStats) {
 		return new JobVertexBackPressureInfo(
@@ -90,7 +165,7 @@ public class JobVertexBackPressureHandler extends AbstractRestHandler<RestfulGat
 	/**
 	 * Returns the back pressure level as a String.
 	 *
-	 * @param backPressureRatio Ratio of back pressures samples to total number of samples.
+	 * @param backPressureRatio Ratio of back pressured time or samples to the total time or number of samples.
 	 *
 	 * @return Back pressure level ('ok', 'low', or 'high')
 	 */
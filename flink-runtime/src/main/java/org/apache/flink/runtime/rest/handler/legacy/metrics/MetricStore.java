@@ -375,6 +375,10 @@ public class MetricStore {
 			return subtasks.values();
 		}
 
+		public Map<Integer, ComponentMetricStore> getAllSubtaskMetricStoresByIndex() {
+			return unmodifiableMap(subtasks);
+		}
+
 		private static TaskMetricStore unmodifiable(TaskMetricStore source) {
 			if (source == null) {
 				return null;
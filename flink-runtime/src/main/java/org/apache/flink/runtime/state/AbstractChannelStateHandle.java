@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.util.Preconditions;
+
+import java.io.IOException;
+
+/**
+ * Base class for the state handles of the data that was in flight in a network channel when an unaligned
+ * checkpoint was taken. The stream of the handle contains the serialized records of the channel as they were
+ * transmitted, i.e. it may start and end within a record.
+ */
+public abstract class AbstractChannelStateHandle implements StreamStateHandle {
+
+	private static final long serialVersionUID = 1L;
+
+	private final StreamStateHandle delegateStateHandle;
+
+	protected AbstractChannelStateHandle(StreamStateHandle delegateStateHandle) {
+		this.delegateStateHandle = Preconditions.checkNotNull(delegateStateHandle);
+	}
+
+	public StreamStateHandle getDelegateStateHandle() {
+		return delegateStateHandle;
+	}
+
+	@Override
+	public FSDataInputStream openInputStream() throws IOException {
+		return delegateStateHandle.openInputStream();
+	}
+
+	@Override
+	public void discardState() throws Exception {
+		delegateStateHandle.discardState();
+	}
+
+	@Override
+	public long getStateSize() {
+		return delegateStateHandle.getStateSize();
+	}
+}
@@ -302,6 +302,49 @@ public abstract class AbstractKeyedStateBackend<K> implements
 		cancelStreamRegistry.close();
 	}
 
+	/**
+	 * Returns whether this backend can be kept alive after its task failed or was canceled, so that a new attempt of
+	 * the task in the same slot can {@link #rollback(Collection) roll it back} instead of restoring a new backend.
+	 */
+	public boolean supportsRollback() {
+		return false;
+	}
+
+	/**
+	 * Rolls the state of this backend back to the given snapshot, which must have been taken by this backend, so that
+	 * a new attempt of the task can continue to use the backend. Backends that do not support this, or that cannot
+	 * roll back to the given snapshot, return false; they must then be disposed and the state must be restored into
+	 * a new backend.
+	 *
+	 * @param restoreState the snapshot that a new backend would be restored from.
+	 * @return true if the state of this backend now equals the given snapshot, false otherwise.
+	 * @throws Exception if the state could not be rolled back. The backend must be disposed in this case.
+	 */
+	public boolean rollback(Collection<KeyedStateHandle> restoreState) throws Exception {
+		return false;
+	}
+
+	/**
+	 * Prepares this backend for the use by a new attempt of the task after a {@link #rollback(Collection)}: the
+	 * streams of the previous attempt were closed with {@link #close()}, and the states that were handed out to the
+	 * previous attempt must be created and registered again.
+	 */
+	protected void resetForRollback() {
+		cancelStreamRegistry = new CloseableRegistry();
+
+		if (kvStateRegistry != null) {
+			kvStateRegistry.unregisterAll();
+		}
+
+		lastName = null;
+		lastState = null;
+		keyValueStatesByName.clear();
+	}
+
+	public ClassLoader getUserCodeClassLoader() {
+		return userCodeClassLoader;
+	}
+
 	@VisibleForTesting
 	public boolean supportsAsynchronousSnapshots() {
 		return false;
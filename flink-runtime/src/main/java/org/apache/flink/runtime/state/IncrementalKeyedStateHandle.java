@@ -248,6 +248,12 @@ public class IncrementalKeyedStateHandle implements KeyedStateHandle {
 			// deduplication and returns the previous reference.
 			sharedStateHandle.setValue(result.getReference());
 		}
+
+		// the meta data and private state are not shared, but their files can be
+		stateRegistry.registerIfFileSegment(metaStateHandle);
+		for (StreamStateHandle privateStateHandle : privateState.values()) {
+			stateRegistry.registerIfFileSegment(privateStateHandle);
+		}
 	}
 
 	/**
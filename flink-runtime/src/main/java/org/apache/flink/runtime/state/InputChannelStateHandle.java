@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import java.util.Objects;
+
+/**
+ * Handle to the data that an input channel of a task received before the checkpoint barrier, but that the task
+ * had not consumed when it took an unaligned checkpoint. The channel is identified by its index in all input
+ * channels of the task, in the order of the input gates.
+ */
+public class InputChannelStateHandle extends AbstractChannelStateHandle {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int channelIndex;
+
+	public InputChannelStateHandle(int channelIndex, StreamStateHandle delegateStateHandle) {
+		super(delegateStateHandle);
+		this.channelIndex = channelIndex;
+	}
+
+	public int getChannelIndex() {
+		return channelIndex;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		InputChannelStateHandle that = (InputChannelStateHandle) o;
+		return channelIndex == that.channelIndex &&
+			getDelegateStateHandle().equals(that.getDelegateStateHandle());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(channelIndex, getDelegateStateHandle());
+	}
+
+	@Override
+	public String toString() {
+		return "InputChannelStateHandle{" +
+			"channelIndex=" + channelIndex +
+			", delegateStateHandle=" + getDelegateStateHandle() +
+			'}';
+	}
+}
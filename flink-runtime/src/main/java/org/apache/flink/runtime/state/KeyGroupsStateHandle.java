@@ -94,7 +94,8 @@ public class KeyGroupsStateHandle implements StreamStateHandle, KeyedStateHandle
 
 	@Override
 	public void registerSharedStates(SharedStateRegistry stateRegistry) {
-		// No shared states
+		// No shared states, but the file of the state can be shared
+		stateRegistry.registerIfFileSegment(stateHandle);
 	}
 
 	@Override
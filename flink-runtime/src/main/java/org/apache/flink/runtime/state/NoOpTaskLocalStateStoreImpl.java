@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.state;
 
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.jobgraph.OperatorID;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -68,4 +69,18 @@ public final class NoOpTaskLocalStateStoreImpl implements OwnedTaskLocalStateSto
 	@Override
 	public void pruneMatchingCheckpoints(LongPredicate matcher) {
 	}
+
+	@Override
+	public void retainKeyedStateBackend(
+		@Nonnull OperatorID operatorID,
+		@Nonnull AbstractKeyedStateBackend<?> keyedStateBackend) {
+
+		keyedStateBackend.dispose();
+	}
+
+	@Nullable
+	@Override
+	public AbstractKeyedStateBackend<?> takeRetainedKeyedStateBackend(@Nonnull OperatorID operatorID) {
+		return null;
+	}
 }
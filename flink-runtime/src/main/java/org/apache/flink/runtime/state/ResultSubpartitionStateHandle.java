@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import java.util.Objects;
+
+/**
+ * Handle to the data that was queued in a result subpartition of a task and that the checkpoint barrier of an
+ * unaligned checkpoint overtook. The subpartition is identified by the index of the result partition in the
+ * outputs of the task and its index within that partition.
+ */
+public class ResultSubpartitionStateHandle extends AbstractChannelStateHandle {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int partitionIndex;
+
+	private final int subpartitionIndex;
+
+	public ResultSubpartitionStateHandle(
+			int partitionIndex,
+			int subpartitionIndex,
+			StreamStateHandle delegateStateHandle) {
+
+		super(delegateStateHandle);
+		this.partitionIndex = partitionIndex;
+		this.subpartitionIndex = subpartitionIndex;
+	}
+
+	public int getPartitionIndex() {
+		return partitionIndex;
+	}
+
+	public int getSubpartitionIndex() {
+		return subpartitionIndex;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		ResultSubpartitionStateHandle that = (ResultSubpartitionStateHandle) o;
+		return partitionIndex == that.partitionIndex &&
+			subpartitionIndex == that.subpartitionIndex &&
+			getDelegateStateHandle().equals(that.getDelegateStateHandle());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(partitionIndex, subpartitionIndex, getDelegateStateHandle());
+	}
+
+	@Override
+	public String toString() {
+		return "ResultSubpartitionStateHandle{" +
+			"partitionIndex=" + partitionIndex +
+			", subpartitionIndex=" + subpartitionIndex +
+			", delegateStateHandle=" + getDelegateStateHandle() +
+			'}';
+	}
+}
@@ -18,13 +18,19 @@
 
 package org.apache.flink.runtime.state;
 
+import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.concurrent.Executors;
+import org.apache.flink.runtime.state.filesystem.FileSegmentStateHandle;
 import org.apache.flink.util.Preconditions;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Executor;
@@ -49,6 +55,15 @@ public class SharedStateRegistry implements AutoCloseable {
 	/** All registered state objects by an artificial key */
 	private final Map<SharedStateRegistryKey, SharedStateRegistry.SharedStateEntry> registeredStates;
 
+	/** The number of registered segments per file that holds the segments of several state handles */
+	private final Map<Path, Integer> fileSegmentReferences;
+
+	/** Duplicate segments registered by the current {@link #registerAll(Iterable)}, to release once it is done */
+	private final List<StreamStateHandle> duplicateFileSegments;
+
+	/** This flag indicates whether {@link #registerAll(Iterable)} is in progress */
+	private boolean registeringAll;
+
 	/** This flag indicates whether or not the registry is open or if close() was called */
 	private boolean open;
 
@@ -62,6 +77,8 @@ public class SharedStateRegistry implements AutoCloseable {
 
 	public SharedStateRegistry(Executor asyncDisposalExecutor) {
 		this.registeredStates = new HashMap<>();
+		this.fileSegmentReferences = new HashMap<>();
+		this.duplicateFileSegments = new ArrayList<>();
 		this.asyncDisposalExecutor = Preconditions.checkNotNull(asyncDisposalExecutor);
 		this.open = true;
 	}
@@ -103,9 +120,21 @@ public class SharedStateRegistry implements AutoCloseable {
 
 				entry = new SharedStateRegistry.SharedStateEntry(state);
 				registeredStates.put(registrationKey, entry);
+
+				registerIfFileSegment(state);
 			} else {
-				// delete if this is a real duplicate
-				if (!Objects.equals(state, entry.stateHandle)) {
+				// delete if this is a real duplicate. A duplicate segment only releases its file, which can
+				// hold other segments that are still registered. It takes a reference to its file first, so
+				// that a file of only duplicate segments is deleted once it releases them
+				if (state instanceof FileSegmentStateHandle && !Objects.equals(state, entry.stateHandle)) {
+					registerIfFileSegment(state);
+					if (registeringAll) {
+						// the other segments of the file belong to the same checkpoint and may not be registered yet
+						duplicateFileSegments.add(state);
+					} else {
+						scheduledStateDeletion = state;
+					}
+				} else if (!Objects.equals(state, entry.stateHandle)) {
 					scheduledStateDeletion = state;
 					LOG.trace("Identified duplicate state registration under key {}. New state {} was determined to " +
 							"be an unnecessary copy of existing state {} and will be dropped.",
@@ -175,18 +204,97 @@ public class SharedStateRegistry implements AutoCloseable {
 			return;
 		}
 
+		final List<StreamStateHandle> scheduledStateDeletions;
+
 		synchronized (registeredStates) {
-			for (CompositeStateHandle stateHandle : stateHandles) {
-				stateHandle.registerSharedStates(this);
+			registeringAll = true;
+			try {
+				for (CompositeStateHandle stateHandle : stateHandles) {
+					stateHandle.registerSharedStates(this);
+				}
+			} finally {
+				registeringAll = false;
 			}
+
+			scheduledStateDeletions = new ArrayList<>(duplicateFileSegments);
+			duplicateFileSegments.clear();
+		}
+
+		for (StreamStateHandle scheduledStateDeletion : scheduledStateDeletions) {
+			scheduleAsyncDelete(scheduledStateDeletion);
+		}
+	}
+
+	/**
+	 * Registers the given state handle if it is a segment of a file that holds the segments of several
+	 * state handles. Other state handles that are not shared state need no registration.
+	 *
+	 * @param stateHandle the state handle to register, can be null.
+	 */
+	public void registerIfFileSegment(@Nullable StreamStateHandle stateHandle) {
+		if (stateHandle instanceof FileSegmentStateHandle) {
+			((FileSegmentStateHandle) stateHandle).registerSharedStates(this);
 		}
 	}
 
+	/**
+	 * Registers a reference to a file that holds the segments of several state handles, see
+	 * {@link FileSegmentStateHandle}. Every registered segment holds one reference to its file.
+	 *
+	 * @param filePath the file of the registered segment.
+	 */
+	public void registerFileSegment(Path filePath) {
+
+		Preconditions.checkNotNull(filePath);
+
+		synchronized (registeredStates) {
+
+			Preconditions.checkState(open, "Attempt to register state to closed SharedStateRegistry.");
+
+			fileSegmentReferences.merge(filePath, 1, Integer::sum);
+		}
+
+		LOG.trace("Registered segment of file {}.", filePath);
+	}
+
+	/**
+	 * Releases the reference of a discarded segment to its file.
+	 *
+	 * @param filePath the file of the discarded segment.
+	 * @return true if no registered segment refers to the file any more, so that the file can be deleted.
+	 */
+	public boolean unregisterFileSegment(Path filePath) {
+
+		Preconditions.checkNotNull(filePath);
+
+		final int referenceCount;
+
+		synchronized (registeredStates) {
+
+			Integer registeredCount = fileSegmentReferences.get(filePath);
+
+			Preconditions.checkState(registeredCount != null,
+				"Cannot unregister a segment of a file that is not registered.");
+
+			referenceCount = registeredCount - 1;
+
+			if (referenceCount <= 0) {
+				fileSegmentReferences.remove(filePath);
+			} else {
+				fileSegmentReferences.put(filePath, referenceCount);
+			}
+		}
+
+		LOG.trace("Unregistered segment of file {}, {} segments remain.", filePath, referenceCount);
+		return referenceCount <= 0;
+	}
+
 	@Override
 	public String toString() {
 		synchronized (registeredStates) {
 			return "SharedStateRegistry{" +
 				"registeredStates=" + registeredStates +
+				", fileSegmentReferences=" + fileSegmentReferences +
 				'}';
 		}
 	}
@@ -20,8 +20,11 @@ package org.apache.flink.runtime.state;
 
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
+import org.apache.flink.runtime.concurrent.ScheduledExecutorServiceAdapter;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
 import org.apache.flink.util.FileUtils;
 import org.apache.flink.util.ShutdownHookUtil;
 
@@ -30,6 +33,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 import java.io.File;
@@ -37,6 +41,8 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * This class holds the all {@link TaskLocalStateStoreImpl} objects for a task executor (manager).
@@ -62,6 +68,13 @@ public class TaskExecutorLocalStateStoresManager {
 	/** Executor that runs the discarding of released state objects. */
 	private final Executor discardExecutor;
 
+	/** Time in milliseconds for which the stores retain the keyed state backends of failed tasks. */
+	private final long keyedStateBackendRetention;
+
+	/** Timer that disposes retained keyed state backends, or null if local recovery is disabled. */
+	@Nullable
+	private final ScheduledExecutorService retentionTimer;
+
 	/** Guarding lock for taskStateStoresByAllocationID and closed-flag. */
 	private final Object lock;
 
@@ -75,10 +88,27 @@ public class TaskExecutorLocalStateStoresManager {
 		@Nonnull File[] localStateRootDirectories,
 		@Nonnull Executor discardExecutor) throws IOException {
 
+		this(
+			localRecoveryEnabled,
+			localStateRootDirectories,
+			discardExecutor,
+			CheckpointingOptions.LOCAL_RECOVERY_BACKEND_RETENTION.defaultValue());
+	}
+
+	public TaskExecutorLocalStateStoresManager(
+		boolean localRecoveryEnabled,
+		@Nonnull File[] localStateRootDirectories,
+		@Nonnull Executor discardExecutor,
+		long keyedStateBackendRetention) throws IOException {
+
 		this.taskStateStoresByAllocationID = new HashMap<>();
 		this.localRecoveryEnabled = localRecoveryEnabled;
 		this.localStateRootDirectories = localStateRootDirectories;
 		this.discardExecutor = discardExecutor;
+		this.keyedStateBackendRetention = keyedStateBackendRetention;
+		this.retentionTimer = localRecoveryEnabled ?
+			Executors.newSingleThreadScheduledExecutor(new ExecutorThreadFactory("flink-local-state-retention")) :
+			null;
 		this.lock = new Object();
 		this.closed = false;
 
@@ -151,7 +181,9 @@ public class TaskExecutorLocalStateStoresManager {
 							jobVertexID,
 							subtaskIndex,
 							localRecoveryConfig,
-							discardExecutor) :
+							discardExecutor,
+							keyedStateBackendRetention,
+							new ScheduledExecutorServiceAdapter(retentionTimer)) :
 
 						// NOP implementation if local recovery is disabled
 						new NoOpTaskLocalStateStoreImpl(localRecoveryConfig);
@@ -218,6 +250,11 @@ public class TaskExecutorLocalStateStoresManager {
 			doRelease(entry.getValue().values());
 			cleanupAllocationBaseDirs(entry.getKey());
 		}
+
+		// the released stores disposed all retained backends
+		if (retentionTimer != null) {
+			retentionTimer.shutdownNow();
+		}
 	}
 
 	@VisibleForTesting
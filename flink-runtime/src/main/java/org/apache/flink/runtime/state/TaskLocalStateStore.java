@@ -20,6 +20,7 @@ package org.apache.flink.runtime.state;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.jobgraph.OperatorID;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -72,4 +73,27 @@ public interface TaskLocalStateStore {
 	 * @param matcher the predicate that selects the checkpoints for pruning.
 	 */
 	void pruneMatchingCheckpoints(LongPredicate matcher);
+
+	/**
+	 * Keeps the keyed state backend of an operator of a failed or canceled task alive, so that the next attempt of
+	 * the task in the same slot can roll it back to the restored checkpoint instead of restoring a new backend. The
+	 * store takes over the ownership of the backend and disposes it if it is not taken by the next attempt within the
+	 * retention time of the store, or if the store does not retain backends. Until then, the backend keeps all of its
+	 * memory.
+	 *
+	 * @param operatorID the id of the operator that owned the backend.
+	 * @param keyedStateBackend the closed, but not disposed backend.
+	 */
+	void retainKeyedStateBackend(
+		@Nonnull OperatorID operatorID,
+		@Nonnull AbstractKeyedStateBackend<?> keyedStateBackend);
+
+	/**
+	 * Returns the keyed state backend that was retained for the given operator and hands over its ownership to the
+	 * caller, or returns null if no backend was retained.
+	 *
+	 * @param operatorID the id of the operator that owned the backend.
+	 */
+	@Nullable
+	AbstractKeyedStateBackend<?> takeRetainedKeyedStateBackend(@Nonnull OperatorID operatorID);
 }
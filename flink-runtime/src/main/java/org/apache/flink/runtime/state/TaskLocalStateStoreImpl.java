@@ -24,7 +24,9 @@ import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
+import org.apache.flink.runtime.concurrent.ScheduledExecutor;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobgraph.OperatorID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,7 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +51,7 @@ import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.LongPredicate;
 
 /**
@@ -86,6 +90,13 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 	@Nonnull
 	private final Executor discardExecutor;
 
+	/** Time in milliseconds after which a retained keyed state backend is disposed if it was not taken. */
+	private final long keyedStateBackendRetention;
+
+	/** Timer for the disposal of retained keyed state backends, or null to keep them until the store is disposed. */
+	@Nullable
+	private final ScheduledExecutor retentionTimer;
+
 	/** Lock for synchronisation on the storage map and the discarded status. */
 	@Nonnull
 	private final Object lock;
@@ -99,6 +110,11 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 	@GuardedBy("lock")
 	private final SortedMap<Long, TaskStateSnapshot> storedTaskStateByCheckpointID;
 
+	/** Keyed state backends of a failed attempt of the owning subtask, by the ids of their operators. */
+	@Nonnull
+	@GuardedBy("lock")
+	private final Map<OperatorID, AbstractKeyedStateBackend<?>> retainedKeyedStateBackends;
+
 	public TaskLocalStateStoreImpl(
 		@Nonnull JobID jobID,
 		@Nonnull AllocationID allocationID,
@@ -114,6 +130,31 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 			subtaskIndex,
 			localRecoveryConfig,
 			discardExecutor,
+			0L,
+			null,
+			new TreeMap<>(),
+			new Object());
+	}
+
+	public TaskLocalStateStoreImpl(
+		@Nonnull JobID jobID,
+		@Nonnull AllocationID allocationID,
+		@Nonnull JobVertexID jobVertexID,
+		@Nonnegative int subtaskIndex,
+		@Nonnull LocalRecoveryConfig localRecoveryConfig,
+		@Nonnull Executor discardExecutor,
+		long keyedStateBackendRetention,
+		@Nonnull ScheduledExecutor retentionTimer) {
+
+		this(
+			jobID,
+			allocationID,
+			jobVertexID,
+			subtaskIndex,
+			localRecoveryConfig,
+			discardExecutor,
+			keyedStateBackendRetention,
+			retentionTimer,
 			new TreeMap<>(),
 			new Object());
 	}
@@ -126,6 +167,8 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 		@Nonnegative int subtaskIndex,
 		@Nonnull LocalRecoveryConfig localRecoveryConfig,
 		@Nonnull Executor discardExecutor,
+		long keyedStateBackendRetention,
+		@Nullable ScheduledExecutor retentionTimer,
 		@Nonnull SortedMap<Long, TaskStateSnapshot> storedTaskStateByCheckpointID,
 		@Nonnull Object lock) {
 
@@ -134,8 +177,11 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 		this.jobVertexID = jobVertexID;
 		this.subtaskIndex = subtaskIndex;
 		this.discardExecutor = discardExecutor;
+		this.keyedStateBackendRetention = keyedStateBackendRetention;
+		this.retentionTimer = retentionTimer;
 		this.localRecoveryConfig = localRecoveryConfig;
 		this.storedTaskStateByCheckpointID = storedTaskStateByCheckpointID;
+		this.retainedKeyedStateBackends = new HashMap<>();
 		this.lock = lock;
 		this.disposed = false;
 	}
@@ -222,6 +268,8 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 			(snapshotCheckpointId) -> snapshotCheckpointId < confirmedCheckpointId,
 			true);
 
+		// the running attempt of the subtask took all backends that it could roll back during its restore
+		disposeRetainedKeyedStateBackends();
 	}
 
 	@Override
@@ -232,6 +280,46 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 			false);
 	}
 
+	@Override
+	public void retainKeyedStateBackend(
+		@Nonnull OperatorID operatorID,
+		@Nonnull AbstractKeyedStateBackend<?> keyedStateBackend) {
+
+		AbstractKeyedStateBackend<?> toDispose;
+		boolean retained = false;
+
+		synchronized (lock) {
+			if (disposed || (retentionTimer != null && keyedStateBackendRetention <= 0L)) {
+				toDispose = keyedStateBackend;
+			} else {
+				LOG.debug("Retaining keyed state backend of operator {} in subtask ({} - {} - {}).",
+					operatorID, jobID, jobVertexID, subtaskIndex);
+				toDispose = retainedKeyedStateBackends.put(operatorID, keyedStateBackend);
+				retained = true;
+			}
+		}
+
+		if (toDispose != null) {
+			disposeKeyedStateBackend(toDispose);
+		}
+
+		// the next attempt of the subtask may be deployed to another slot, which never takes the backend
+		if (retained && retentionTimer != null) {
+			retentionTimer.schedule(
+				() -> disposeRetainedKeyedStateBackend(operatorID, keyedStateBackend),
+				keyedStateBackendRetention,
+				TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Nullable
+	@Override
+	public AbstractKeyedStateBackend<?> takeRetainedKeyedStateBackend(@Nonnull OperatorID operatorID) {
+		synchronized (lock) {
+			return retainedKeyedStateBackends.remove(operatorID);
+		}
+	}
+
 	/**
 	 * Disposes the state of all local snapshots managed by this object.
 	 */
@@ -239,11 +327,18 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 	public CompletableFuture<Void> dispose() {
 
 		Collection<Map.Entry<Long, TaskStateSnapshot>> statesCopy;
+		Collection<AbstractKeyedStateBackend<?>> keyedStateBackendsCopy;
 
 		synchronized (lock) {
 			disposed = true;
 			statesCopy = new ArrayList<>(storedTaskStateByCheckpointID.entrySet());
 			storedTaskStateByCheckpointID.clear();
+			keyedStateBackendsCopy = new ArrayList<>(retainedKeyedStateBackends.values());
+			retainedKeyedStateBackends.clear();
+		}
+
+		for (AbstractKeyedStateBackend<?> keyedStateBackend : keyedStateBackendsCopy) {
+			disposeKeyedStateBackend(keyedStateBackend);
 		}
 
 		return CompletableFuture.runAsync(
@@ -266,6 +361,49 @@ public class TaskLocalStateStoreImpl implements OwnedTaskLocalStateStore {
 			discardExecutor);
 	}
 
+	private void disposeRetainedKeyedStateBackend(
+		OperatorID operatorID,
+		AbstractKeyedStateBackend<?> keyedStateBackend) {
+
+		final boolean expired;
+
+		synchronized (lock) {
+			expired = retainedKeyedStateBackends.remove(operatorID, keyedStateBackend);
+		}
+
+		if (expired) {
+			LOG.debug("Disposing keyed state backend of operator {} in subtask ({} - {} - {}), which was not taken " +
+				"by the next attempt of the subtask.", operatorID, jobID, jobVertexID, subtaskIndex);
+			disposeKeyedStateBackend(keyedStateBackend);
+		}
+	}
+
+	private void disposeRetainedKeyedStateBackends() {
+		final Collection<AbstractKeyedStateBackend<?>> toDispose;
+
+		synchronized (lock) {
+			if (retainedKeyedStateBackends.isEmpty()) {
+				return;
+			}
+
+			toDispose = new ArrayList<>(retainedKeyedStateBackends.values());
+			retainedKeyedStateBackends.clear();
+		}
+
+		for (AbstractKeyedStateBackend<?> keyedStateBackend : toDispose) {
+			disposeKeyedStateBackend(keyedStateBackend);
+		}
+	}
+
+	private void disposeKeyedStateBackend(AbstractKeyedStateBackend<?> keyedStateBackend) {
+		try {
+			keyedStateBackend.dispose();
+		} catch (Exception e) {
+			LOG.warn("Exception while disposing retained keyed state backend in subtask ({} - {} - {}).",
+				jobID, jobVertexID, subtaskIndex, e);
+		}
+	}
+
 	private void asyncDiscardLocalStateForCollection(Collection<Map.Entry<Long, TaskStateSnapshot>> toDiscard) {
 		if (!toDiscard.isEmpty()) {
 			discardExecutor.execute(() -> syncDiscardLocalStateForCollection(toDiscard));
@@ -69,4 +69,25 @@ public interface TaskStateManager extends CheckpointListener {
 	 */
 	@Nonnull
 	LocalRecoveryConfig createLocalRecoveryConfig();
+
+	/**
+	 * Hands over the keyed state backend of an operator in the owning task, after the task failed or was canceled,
+	 * so that the next attempt of the task can roll it back instead of restoring a new backend.
+	 *
+	 * @param operatorID the id of the operator that owned the backend.
+	 * @param keyedStateBackend the closed, but not disposed backend. The manager takes over its ownership.
+	 * @see TaskLocalStateStore#retainKeyedStateBackend(OperatorID, AbstractKeyedStateBackend)
+	 */
+	void retainKeyedStateBackend(
+		@Nonnull OperatorID operatorID,
+		@Nonnull AbstractKeyedStateBackend<?> keyedStateBackend);
+
+	/**
+	 * Returns the keyed state backend that a previous attempt of the owning task retained for the operator, or null
+	 * if there is none. The caller takes over the ownership of the backend.
+	 *
+	 * @param operatorID the id of the operator that owned the backend.
+	 */
+	@Nullable
+	AbstractKeyedStateBackend<?> takeRetainedKeyedStateBackend(@Nonnull OperatorID operatorID);
 }
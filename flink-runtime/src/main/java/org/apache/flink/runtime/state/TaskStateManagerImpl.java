@@ -153,6 +153,20 @@ public class TaskStateManagerImpl implements TaskStateManager {
 		return localStateStore.getLocalRecoveryConfig();
 	}
 
+	@Override
+	public void retainKeyedStateBackend(
+		@Nonnull OperatorID operatorID,
+		@Nonnull AbstractKeyedStateBackend<?> keyedStateBackend) {
+
+		localStateStore.retainKeyedStateBackend(operatorID, keyedStateBackend);
+	}
+
+	@Nullable
+	@Override
+	public AbstractKeyedStateBackend<?> takeRetainedKeyedStateBackend(@Nonnull OperatorID operatorID) {
+		return localStateStore.takeRetainedKeyedStateBackend(operatorID);
+	}
+
 	/**
 	 * Tracking when local state can be disposed.
 	 */
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FSDataInputStreamWrapper;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.CompositeStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * {@link StreamStateHandle} for state that was written as a segment of a file which holds the
+ * state of several checkpoint streams, see {@link FileSegmentWriter}. The state is identified
+ * by the path of the file, the position of the segment in the file, and its length.
+ *
+ * <p>The file can only be deleted once none of its segments is in use any more. Segments are
+ * therefore reference counted per file in the {@link SharedStateRegistry} once the checkpoint
+ * that contains them is registered, and {@link #discardState()} only deletes the file when the
+ * last registered segment of the file is discarded. A segment that was never registered belongs
+ * to a checkpoint that did not complete. All segments of a file belong to the same checkpoint,
+ * so discarding an unregistered segment deletes the file right away.
+ */
+public class FileSegmentStateHandle implements StreamStateHandle, CompositeStateHandle {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The path to the file that holds the segment, fully describing the file system. */
+	private final Path filePath;
+
+	/** The position of the segment in the file. */
+	private final long startPosition;
+
+	/** The size of the state in the segment. */
+	private final long stateSize;
+
+	/** The registry that counts the references to the file, or null if not registered. */
+	private transient SharedStateRegistry sharedStateRegistry;
+
+	/**
+	 * Creates a new handle for the segment of the given file.
+	 *
+	 * @param filePath The path to the file that holds the segment.
+	 * @param startPosition The position of the segment in the file.
+	 * @param stateSize The size of the segment.
+	 */
+	public FileSegmentStateHandle(Path filePath, long startPosition, long stateSize) {
+		checkArgument(startPosition >= 0);
+		checkArgument(stateSize >= 0);
+		this.filePath = checkNotNull(filePath);
+		this.startPosition = startPosition;
+		this.stateSize = stateSize;
+	}
+
+	/**
+	 * Gets the path of the file that holds the segment.
+	 */
+	public Path getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * Gets the position of the segment in the file.
+	 */
+	public long getStartPosition() {
+		return startPosition;
+	}
+
+	@Override
+	public FSDataInputStream openInputStream() throws IOException {
+		return new FileSegmentInputStream(getFileSystem().open(filePath), startPosition, stateSize);
+	}
+
+	@Override
+	public void registerSharedStates(SharedStateRegistry stateRegistry) {
+		if (sharedStateRegistry != stateRegistry) {
+			sharedStateRegistry = checkNotNull(stateRegistry);
+			stateRegistry.registerFileSegment(filePath);
+		}
+	}
+
+	/**
+	 * Releases this segment. The file is deleted if no other registered segment refers to it.
+	 *
+	 * @throws Exception Thrown, if the file deletion fails.
+	 */
+	@Override
+	public void discardState() throws Exception {
+		final SharedStateRegistry registry = sharedStateRegistry;
+
+		if (registry == null || registry.unregisterFileSegment(filePath)) {
+			getFileSystem().delete(filePath, false);
+		}
+	}
+
+	@Override
+	public long getStateSize() {
+		return stateSize;
+	}
+
+	private FileSystem getFileSystem() throws IOException {
+		return FileSystem.get(filePath.toUri());
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof FileSegmentStateHandle)) {
+			return false;
+		}
+
+		FileSegmentStateHandle that = (FileSegmentStateHandle) o;
+		return startPosition == that.startPosition &&
+			stateSize == that.stateSize &&
+			filePath.equals(that.filePath);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = filePath.hashCode();
+		result = 31 * result + (int) (startPosition ^ (startPosition >>> 32));
+		result = 31 * result + (int) (stateSize ^ (stateSize >>> 32));
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("File Segment State: %s [%d, %d bytes]", filePath, startPosition, stateSize);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * An input stream that reads the segment of a file as if it was a file of its own.
+	 */
+	private static final class FileSegmentInputStream extends FSDataInputStreamWrapper {
+
+		private final long startPosition;
+
+		private final long length;
+
+		/** The position relative to the start of the segment. */
+		private long pos;
+
+		FileSegmentInputStream(FSDataInputStream inputStream, long startPosition, long length) throws IOException {
+			super(inputStream);
+			this.startPosition = startPosition;
+			this.length = length;
+
+			try {
+				inputStream.seek(startPosition);
+			} catch (IOException e) {
+				inputStream.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public void seek(long desired) throws IOException {
+			checkArgument(desired >= 0 && desired <= length, "Position %s is outside of the segment.", desired);
+			inputStream.seek(startPosition + desired);
+			pos = desired;
+		}
+
+		@Override
+		public long getPos() {
+			return pos;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (pos >= length) {
+				return -1;
+			}
+
+			final int b = inputStream.read();
+			if (b >= 0) {
+				pos++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b) throws IOException {
+			return read(b, 0, b.length);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (pos >= length) {
+				return -1;
+			}
+
+			final int numBytes = inputStream.read(b, off, (int) Math.min(len, length - pos));
+			if (numBytes > 0) {
+				pos += numBytes;
+			}
+			return numBytes;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			final long skipped = inputStream.skip(Math.min(n, length - pos));
+			pos += skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(inputStream.available(), length - pos);
+		}
+
+		@Override
+		public void mark(int readlimit) {}
+
+		@Override
+		public void reset() throws IOException {
+			throw new IOException("mark/reset not supported");
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
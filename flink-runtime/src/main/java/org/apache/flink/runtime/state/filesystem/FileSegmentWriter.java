@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.fs.EntropyInjector;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.FileSystem.WriteMode;
+import org.apache.flink.core.fs.OutputStreamAndPath;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.util.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Writes the state of many checkpoint streams of a TaskManager as segments into a few shared files,
+ * rather than one file per stream. This cuts the number of files that each checkpoint creates.
+ *
+ * <p>The streams of one checkpoint that write to the same directory share one writer, and hand
+ * their complete state to it when they are closed. The writer commits the segments in groups: the
+ * segments that arrive while the previous file is written are collected and then written together
+ * into the next file. A stream gets the handle of its segment only after the file is closed, so
+ * the segment is as durable and visible as a file of its own, on every file system.
+ *
+ * <p>All segments of a file belong to the same checkpoint. The files are deleted through the
+ * {@link FileSegmentStateHandle handles} of their segments.
+ */
+public class FileSegmentWriter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FileSegmentWriter.class);
+
+	/** Once a file reaches this size, the segments of later streams go to the next file. */
+	public static final int MAX_FILE_SIZE = 64 * 1024 * 1024;
+
+	/** The writers with pending segments, by target directory and checkpoint directory. */
+	private static final Map<Tuple2<Path, Path>, FileSegmentWriter> WRITERS = new HashMap<>();
+
+	// ------------------------------------------------------------------------
+
+	private final FileSystem fileSystem;
+
+	private final Path directory;
+
+	private final Object lock = new Object();
+
+	/** The group of segments that new segments join, or null if a new group has to be started. */
+	private SegmentGroup openGroup;
+
+	/** Completes once the file of the most recently started group is written. */
+	private CompletableFuture<Path> lastFile = CompletableFuture.completedFuture(null);
+
+	/** The number of segments that are not yet written, guarded by {@link #WRITERS}. */
+	private int numPendingSegments;
+
+	@VisibleForTesting
+	FileSegmentWriter(FileSystem fileSystem, Path directory) {
+		this.fileSystem = checkNotNull(fileSystem);
+		this.directory = checkNotNull(directory);
+	}
+
+	/**
+	 * Writes the given state as a segment of a file in the given directory, which holds the segments
+	 * of other streams of the same checkpoint as well. The call blocks until the file is closed.
+	 *
+	 * @param fileSystem The file system to write to.
+	 * @param directory The directory to write the file to.
+	 * @param checkpointDirectory The exclusive directory of the checkpoint that the state belongs to.
+	 * @param data The state. The array is owned by the writer after the call and must not be modified.
+	 * @param length The number of bytes of the state at the beginning of the array.
+	 * @return The handle of the segment.
+	 * @throws IOException Thrown, if the file could not be written.
+	 */
+	public static FileSegmentStateHandle writeSegment(
+			FileSystem fileSystem,
+			Path directory,
+			Path checkpointDirectory,
+			byte[] data,
+			int length) throws IOException {
+
+		final Tuple2<Path, Path> key = Tuple2.of(directory, checkpointDirectory);
+		final FileSegmentWriter writer;
+
+		synchronized (WRITERS) {
+			writer = WRITERS.computeIfAbsent(key, ignored -> new FileSegmentWriter(fileSystem, directory));
+			writer.numPendingSegments++;
+		}
+
+		try {
+			return writer.write(data, length);
+		} finally {
+			synchronized (WRITERS) {
+				if (--writer.numPendingSegments == 0) {
+					WRITERS.remove(key);
+				}
+			}
+		}
+	}
+
+	@VisibleForTesting
+	FileSegmentStateHandle write(byte[] data, int length) throws IOException {
+		checkArgument(length >= 0 && length <= data.length);
+
+		final SegmentGroup group;
+		final long startPosition;
+		final CompletableFuture<Path> previousFile;
+
+		synchronized (lock) {
+			if (openGroup == null) {
+				// this stream starts the group and writes its file
+				openGroup = new SegmentGroup();
+				previousFile = lastFile;
+				lastFile = openGroup.file;
+			} else {
+				previousFile = null;
+			}
+
+			group = openGroup;
+			startPosition = group.add(data, length);
+
+			if (group.size >= MAX_FILE_SIZE) {
+				openGroup = null;
+			}
+		}
+
+		if (previousFile != null) {
+			// the segments that arrive until the previous file is written join the group
+			previousFile.handle((path, failure) -> null).join();
+
+			synchronized (lock) {
+				if (openGroup == group) {
+					openGroup = null;
+				}
+			}
+
+			group.writeFile();
+		}
+
+		return new FileSegmentStateHandle(group.awaitFile(), startPosition, length);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The segments that are written together into one file.
+	 */
+	private final class SegmentGroup {
+
+		private final List<Tuple2<byte[], Integer>> segments = new ArrayList<>();
+
+		private final CompletableFuture<Path> file = new CompletableFuture<>();
+
+		private long size;
+
+		/** Adds the segment and returns its position in the file. */
+		long add(byte[] data, int length) {
+			segments.add(Tuple2.of(data, length));
+			final long startPosition = size;
+			size += length;
+			return startPosition;
+		}
+
+		void writeFile() {
+			Path filePath = null;
+
+			try {
+				final OutputStreamAndPath streamAndPath = createStream();
+				filePath = streamAndPath.path();
+
+				try (FSDataOutputStream outStream = streamAndPath.stream()) {
+					for (Tuple2<byte[], Integer> segment : segments) {
+						outStream.write(segment.f0, 0, segment.f1);
+					}
+				}
+
+				segments.clear();
+				file.complete(filePath);
+			} catch (Throwable t) {
+				if (filePath != null) {
+					try {
+						fileSystem.delete(filePath, false);
+					} catch (Exception deleteException) {
+						LOG.warn("Could not delete the checkpoint file {}.", filePath, deleteException);
+					}
+				}
+
+				segments.clear();
+				file.completeExceptionally(t);
+			}
+		}
+
+		Path awaitFile() throws IOException {
+			try {
+				return file.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the segments to be written to " + directory, e);
+			} catch (ExecutionException e) {
+				throw new IOException("Could not write the segments of the state to " + directory,
+					ExceptionUtils.stripExecutionException(e));
+			}
+		}
+
+		private OutputStreamAndPath createStream() throws IOException {
+			Exception latestException = null;
+			for (int attempt = 0; attempt < 10; attempt++) {
+				try {
+					return EntropyInjector.createEntropyAware(
+						fileSystem, new Path(directory, UUID.randomUUID().toString()), WriteMode.NO_OVERWRITE);
+				}
+				catch (Exception e) {
+					latestException = e;
+				}
+			}
+
+			throw new IOException("Could not open output stream for state backend", latestException);
+		}
+	}
+}
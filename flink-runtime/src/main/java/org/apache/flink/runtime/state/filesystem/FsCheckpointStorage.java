@@ -50,17 +50,31 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 
 	private final int fileSizeThreshold;
 
+	/** State up to this size is merged into shared files, zero disables the merging. */
+	private final int fileMergingThreshold;
+
 	public FsCheckpointStorage(
 			Path checkpointBaseDirectory,
 			@Nullable Path defaultSavepointDirectory,
 			JobID jobId,
 			int fileSizeThreshold) throws IOException {
 
+		this(checkpointBaseDirectory, defaultSavepointDirectory, jobId, fileSizeThreshold, 0);
+	}
+
+	public FsCheckpointStorage(
+			Path checkpointBaseDirectory,
+			@Nullable Path defaultSavepointDirectory,
+			JobID jobId,
+			int fileSizeThreshold,
+			int fileMergingThreshold) throws IOException {
+
 		this(checkpointBaseDirectory.getFileSystem(),
 				checkpointBaseDirectory,
 				defaultSavepointDirectory,
 				jobId,
-				fileSizeThreshold);
+				fileSizeThreshold,
+				fileMergingThreshold);
 	}
 
 	public FsCheckpointStorage(
@@ -70,15 +84,28 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 			JobID jobId,
 			int fileSizeThreshold) throws IOException {
 
+		this(fs, checkpointBaseDirectory, defaultSavepointDirectory, jobId, fileSizeThreshold, 0);
+	}
+
+	public FsCheckpointStorage(
+			FileSystem fs,
+			Path checkpointBaseDirectory,
+			@Nullable Path defaultSavepointDirectory,
+			JobID jobId,
+			int fileSizeThreshold,
+			int fileMergingThreshold) throws IOException {
+
 		super(jobId, defaultSavepointDirectory);
 
 		checkArgument(fileSizeThreshold >= 0);
+		checkArgument(fileMergingThreshold >= 0);
 
 		this.fileSystem = checkNotNull(fs);
 		this.checkpointsDirectory = getCheckpointDirectoryForJob(checkpointBaseDirectory, jobId);
 		this.sharedStateDirectory = new Path(checkpointsDirectory, CHECKPOINT_SHARED_STATE_DIR);
 		this.taskOwnedStateDirectory = new Path(checkpointsDirectory, CHECKPOINT_TASK_OWNED_STATE_DIR);
 		this.fileSizeThreshold = fileSizeThreshold;
+		this.fileMergingThreshold = fileMergingThreshold;
 
 		// initialize the dedicated directories
 		fileSystem.mkdirs(checkpointsDirectory);
@@ -117,7 +144,8 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 				sharedStateDirectory,
 				taskOwnedStateDirectory,
 				CheckpointStorageLocationReference.getDefault(),
-				fileSizeThreshold);
+				fileSizeThreshold,
+				fileMergingThreshold);
 	}
 
 	@Override
@@ -135,7 +163,8 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 					sharedStateDirectory,
 					taskOwnedStateDirectory,
 					reference,
-					fileSizeThreshold);
+					fileSizeThreshold,
+					fileMergingThreshold);
 		}
 		else {
 			// location encoded in the reference
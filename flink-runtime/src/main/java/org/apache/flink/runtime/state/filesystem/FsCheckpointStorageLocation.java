@@ -51,6 +51,8 @@ public class FsCheckpointStorageLocation extends FsCheckpointStreamFactory imple
 
 	private final int fileStateSizeThreshold;
 
+	private final int fileMergingThreshold;
+
 	public FsCheckpointStorageLocation(
 			FileSystem fileSystem,
 			Path checkpointDir,
@@ -59,7 +61,19 @@ public class FsCheckpointStorageLocation extends FsCheckpointStreamFactory imple
 			CheckpointStorageLocationReference reference,
 			int fileStateSizeThreshold) {
 
-		super(fileSystem, checkpointDir, sharedStateDir, fileStateSizeThreshold);
+		this(fileSystem, checkpointDir, sharedStateDir, taskOwnedStateDir, reference, fileStateSizeThreshold, 0);
+	}
+
+	public FsCheckpointStorageLocation(
+			FileSystem fileSystem,
+			Path checkpointDir,
+			Path sharedStateDir,
+			Path taskOwnedStateDir,
+			CheckpointStorageLocationReference reference,
+			int fileStateSizeThreshold,
+			int fileMergingThreshold) {
+
+		super(fileSystem, checkpointDir, sharedStateDir, fileStateSizeThreshold, fileMergingThreshold);
 
 		checkArgument(fileStateSizeThreshold >= 0);
 
@@ -74,6 +88,7 @@ public class FsCheckpointStorageLocation extends FsCheckpointStreamFactory imple
 
 		this.metadataFilePath = new Path(metadataDir, AbstractFsCheckpointStorage.METADATA_FILE_NAME);
 		this.fileStateSizeThreshold = fileStateSizeThreshold;
+		this.fileMergingThreshold = fileMergingThreshold;
 	}
 
 	// ------------------------------------------------------------------------
@@ -131,6 +146,7 @@ public class FsCheckpointStorageLocation extends FsCheckpointStreamFactory imple
 				", metadataFilePath=" + metadataFilePath +
 				", reference=" + reference +
 				", fileStateSizeThreshold=" + fileStateSizeThreshold +
+				", fileMergingThreshold=" + fileMergingThreshold +
 				'}';
 	}
 
@@ -49,6 +49,11 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * files are written, but the state is returned inline in the state handle instead. This reduces
  * the problem of many small files that have only few bytes.
  *
+ * <p>If a file merging threshold is configured, state that is larger than the inline threshold but
+ * not larger than the file merging threshold is not written into a file of its own either, but as a
+ * segment of a file that the streams of the same checkpoint on this TaskManager share (see
+ * {@link FileSegmentWriter}). That cuts the number of files that each checkpoint creates.
+ *
  * <h2>Note on directory creation</h2>
  *
  * <p>The given target directory must already exist, this factory does not ensure that the
@@ -72,9 +77,15 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 	/** Default size for the write buffer. */
 	public static final int DEFAULT_WRITE_BUFFER_SIZE = 4096;
 
+	/** Maximum size of state that is written as a segment of a shared file, rather than a file of its own. */
+	public static final int MAX_FILE_MERGING_THRESHOLD = 16 * 1024 * 1024;
+
 	/** State below this size will be stored as part of the metadata, rather than in files. */
 	private final int fileStateThreshold;
 
+	/** State up to this size is written as a segment of a shared file, rather than a file of its own. */
+	private final int fileMergingThreshold;
+
 	/** The directory for checkpoint exclusive state data. */
 	private final Path checkpointDirectory;
 
@@ -103,6 +114,31 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 			Path sharedStateDirectory,
 			int fileStateSizeThreshold) {
 
+		this(fileSystem, checkpointDirectory, sharedStateDirectory, fileStateSizeThreshold, 0);
+	}
+
+	/**
+	 * Creates a new stream factory that stores its checkpoint data in the file system and location
+	 * defined by the given Path, and merges the state of its streams into shared files.
+	 *
+	 * <p><b>Important:</b> The given checkpoint directory must already exist. Refer to the class-level
+	 * JavaDocs for an explanation why this factory must not try and create the checkpoints.
+	 *
+	 * @param fileSystem The filesystem to write to.
+	 * @param checkpointDirectory The directory for checkpoint exclusive state data.
+	 * @param sharedStateDirectory The directory for shared checkpoint data.
+	 * @param fileStateSizeThreshold State up to this size will be stored as part of the metadata,
+	 *                             rather than in files
+	 * @param fileMergingThreshold State up to this size will be written as a segment of a shared file,
+	 *                             rather than a file of its own. Zero disables the merging.
+	 */
+	public FsCheckpointStreamFactory(
+			FileSystem fileSystem,
+			Path checkpointDirectory,
+			Path sharedStateDirectory,
+			int fileStateSizeThreshold,
+			int fileMergingThreshold) {
+
 		if (fileStateSizeThreshold < 0) {
 			throw new IllegalArgumentException("The threshold for file state size must be zero or larger.");
 		}
@@ -110,20 +146,32 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 			throw new IllegalArgumentException("The threshold for file state size cannot be larger than " +
 				MAX_FILE_STATE_THRESHOLD);
 		}
+		if (fileMergingThreshold < 0 || fileMergingThreshold > MAX_FILE_MERGING_THRESHOLD) {
+			throw new IllegalArgumentException("The threshold for file merging must be in [0, " +
+				MAX_FILE_MERGING_THRESHOLD + ']');
+		}
 
 		this.filesystem = checkNotNull(fileSystem);
 		this.checkpointDirectory = checkNotNull(checkpointDirectory);
 		this.sharedStateDirectory = checkNotNull(sharedStateDirectory);
 		this.fileStateThreshold = fileStateSizeThreshold;
+		this.fileMergingThreshold = fileMergingThreshold;
 	}
 
 	// ------------------------------------------------------------------------
 
 	@Override
-	public FsCheckpointStateOutputStream createCheckpointStateOutputStream(CheckpointedStateScope scope) throws IOException {
+	public CheckpointStreamFactory.CheckpointStateOutputStream createCheckpointStateOutputStream(
+			CheckpointedStateScope scope) throws IOException {
+
 		Path target = scope == CheckpointedStateScope.EXCLUSIVE ? checkpointDirectory : sharedStateDirectory;
 		int bufferSize = Math.max(DEFAULT_WRITE_BUFFER_SIZE, fileStateThreshold);
 
+		if (fileMergingThreshold > fileStateThreshold) {
+			return new FileMergingCheckpointStateOutputStream(
+				target, checkpointDirectory, filesystem, bufferSize, fileStateThreshold, fileMergingThreshold);
+		}
+
 		return new FsCheckpointStateOutputStream(target, filesystem, bufferSize, fileStateThreshold);
 	}
 
@@ -359,4 +407,185 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 			throw new IOException("Could not open output stream for state backend", latestException);
 		}
 	}
+
+	/**
+	 * A {@link CheckpointStreamFactory.CheckpointStateOutputStream} that keeps the state in memory and
+	 * writes it as a segment of a shared file upon closing, see {@link FileSegmentWriter}. If the state
+	 * grows beyond the file merging threshold, the stream writes it to a file of its own instead, like
+	 * the {@link FsCheckpointStateOutputStream}.
+	 */
+	public static final class FileMergingCheckpointStateOutputStream
+			extends CheckpointStreamFactory.CheckpointStateOutputStream {
+
+		private static final byte[] EMPTY_BUFFER = new byte[0];
+
+		private final Path basePath;
+
+		private final Path checkpointDirectory;
+
+		private final FileSystem fs;
+
+		private final int writeBufferSize;
+
+		private final int localStateThreshold;
+
+		private final int fileMergingThreshold;
+
+		private byte[] buffer;
+
+		private int pos;
+
+		/** The stream that writes the state to a file of its own, once it exceeds the merging threshold. */
+		@Nullable
+		private FsCheckpointStateOutputStream fileStream;
+
+		private volatile boolean closed;
+
+		public FileMergingCheckpointStateOutputStream(
+				Path basePath,
+				Path checkpointDirectory,
+				FileSystem fs,
+				int writeBufferSize,
+				int localStateThreshold,
+				int fileMergingThreshold) {
+
+			if (writeBufferSize < localStateThreshold || fileMergingThreshold < localStateThreshold) {
+				throw new IllegalArgumentException();
+			}
+
+			this.basePath = basePath;
+			this.checkpointDirectory = checkpointDirectory;
+			this.fs = fs;
+			this.writeBufferSize = writeBufferSize;
+			this.localStateThreshold = localStateThreshold;
+			this.fileMergingThreshold = fileMergingThreshold;
+			this.buffer = new byte[Math.min(writeBufferSize, fileMergingThreshold)];
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (fileStream == null) {
+				if (pos >= buffer.length) {
+					ensureCapacity(pos + 1);
+				}
+				if (fileStream == null) {
+					buffer[pos++] = (byte) b;
+					return;
+				}
+			}
+			fileStream.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (fileStream == null) {
+				if (len > buffer.length - pos) {
+					ensureCapacity(pos + len);
+				}
+				if (fileStream == null) {
+					System.arraycopy(b, off, buffer, pos, len);
+					pos += len;
+					return;
+				}
+			}
+			fileStream.write(b, off, len);
+		}
+
+		@Override
+		public long getPos() throws IOException {
+			return fileStream == null ? pos : fileStream.getPos();
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (closed) {
+				throw new IOException("closed");
+			}
+			// the state is written upon closing, unless it is written to a file of its own
+			if (fileStream != null) {
+				fileStream.flush();
+			}
+		}
+
+		@Override
+		public void sync() throws IOException {
+			if (fileStream != null) {
+				fileStream.sync();
+			}
+		}
+
+		/**
+		 * Checks whether the stream is closed.
+		 * @return True if the stream was closed, false if it is still open.
+		 */
+		public boolean isClosed() {
+			return closed;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+
+				// make sure write requests need to go to 'ensureCapacity()' where they recognize
+				// that the stream is closed
+				buffer = EMPTY_BUFFER;
+				pos = 0;
+
+				if (fileStream != null) {
+					fileStream.close();
+				}
+			}
+		}
+
+		@Nullable
+		@Override
+		public StreamStateHandle closeAndGetHandle() throws IOException {
+			synchronized (this) {
+				// check if there was nothing ever written
+				if (!closed && fileStream == null && pos == 0) {
+					return null;
+				}
+
+				if (closed) {
+					throw new IOException("Stream has already been closed and discarded.");
+				}
+
+				closed = true;
+
+				if (fileStream != null) {
+					return fileStream.closeAndGetHandle();
+				}
+
+				final byte[] bytes = buffer;
+				final int length = pos;
+				buffer = EMPTY_BUFFER;
+				pos = 0;
+
+				if (length <= localStateThreshold) {
+					return new ByteStreamStateHandle(
+						new Path(basePath, UUID.randomUUID().toString()).toString(),
+						Arrays.copyOf(bytes, length));
+				}
+
+				return FileSegmentWriter.writeSegment(fs, basePath, checkpointDirectory, bytes, length);
+			}
+		}
+
+		private void ensureCapacity(int capacity) throws IOException {
+			if (closed) {
+				throw new IOException("closed");
+			}
+
+			if (capacity > fileMergingThreshold) {
+				// too large to merge, continue in a file of its own
+				fileStream = new FsCheckpointStateOutputStream(basePath, fs, writeBufferSize, localStateThreshold);
+				fileStream.write(buffer, 0, pos);
+				buffer = EMPTY_BUFFER;
+				pos = 0;
+			} else {
+				buffer = Arrays.copyOf(buffer, Math.min(Math.max(capacity, 2 * buffer.length), fileMergingThreshold));
+			}
+		}
+	}
 }
@@ -23,6 +23,7 @@ import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.MemorySize;
 import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.metrics.MetricGroup;
@@ -38,6 +39,7 @@ import org.apache.flink.runtime.state.OperatorStateBackend;
 import org.apache.flink.runtime.state.TaskStateManager;
 import org.apache.flink.runtime.state.heap.HeapKeyedStateBackend;
 import org.apache.flink.runtime.state.heap.HeapPriorityQueueSetFactory;
+import org.apache.flink.runtime.state.heap.OffHeapStateMemoryPool;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.util.TernaryBoolean;
 
@@ -108,6 +110,26 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 	 * A value of 'undefined' means not yet configured, in which case the default will be used. */
 	private final TernaryBoolean asynchronousSnapshots;
 
+	/** Switch to keep keyed state serialized in off-heap memory rather than as objects on the heap.
+	 * A value of 'undefined' means not yet configured, in which case the default will be used. */
+	private final TernaryBoolean offHeapState;
+
+	/** The off-heap memory per keyed state backend, if off-heap state is used.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long offHeapStateMemorySize;
+
+	/** Switch to create incremental checkpoints of keyed state.
+	 * A value of 'undefined' means not yet configured, in which case the default will be used. */
+	private final TernaryBoolean incrementalCheckpoints;
+
+	/** The number of incremental checkpoints after which all keyed state is written again.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final int incrementalCompactionInterval;
+
+	/** State up to this size is written as a segment of a shared file, rather than a file of its own.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final int fileMergingThreshold;
+
 	// -----------------------------------------------------------------------
 
 	/**
@@ -327,6 +349,11 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 
 		this.fileStateThreshold = fileStateSizeThreshold;
 		this.asynchronousSnapshots = asynchronousSnapshots;
+		this.offHeapState = TernaryBoolean.UNDEFINED;
+		this.offHeapStateMemorySize = -1L;
+		this.incrementalCheckpoints = TernaryBoolean.UNDEFINED;
+		this.incrementalCompactionInterval = -1;
+		this.fileMergingThreshold = -1;
 	}
 
 	/**
@@ -343,6 +370,36 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 		this.asynchronousSnapshots = original.asynchronousSnapshots.resolveUndefined(
 				configuration.getBoolean(CheckpointingOptions.ASYNC_SNAPSHOTS));
 
+		this.offHeapState = original.offHeapState.resolveUndefined(
+				configuration.getBoolean(CheckpointingOptions.FS_OFF_HEAP_STATE));
+
+		this.offHeapStateMemorySize = original.offHeapStateMemorySize >= 0 ?
+				original.offHeapStateMemorySize :
+				MemorySize.parse(configuration.getString(CheckpointingOptions.FS_OFF_HEAP_STATE_MEMORY_SIZE)).getBytes();
+
+		this.incrementalCheckpoints = original.incrementalCheckpoints.resolveUndefined(
+				configuration.getBoolean(CheckpointingOptions.INCREMENTAL_CHECKPOINTS));
+
+		this.incrementalCompactionInterval = original.incrementalCompactionInterval > 0 ?
+				original.incrementalCompactionInterval :
+				configuration.getInteger(CheckpointingOptions.FS_INCREMENTAL_COMPACTION_INTERVAL);
+
+		final int mergingThreshold = original.fileMergingThreshold >= 0 ?
+				original.fileMergingThreshold :
+				configuration.getInteger(CheckpointingOptions.FS_FILE_MERGING_THRESHOLD);
+
+		if (mergingThreshold >= 0 && mergingThreshold <= FsCheckpointStreamFactory.MAX_FILE_MERGING_THRESHOLD) {
+			this.fileMergingThreshold = mergingThreshold;
+		}
+		else {
+			this.fileMergingThreshold = CheckpointingOptions.FS_FILE_MERGING_THRESHOLD.defaultValue();
+
+			LoggerFactory.getLogger(AbstractFileStateBackend.class).warn(
+					"Ignoring invalid file merging threshold value ({}): {} - using default value {} instead.",
+					CheckpointingOptions.FS_FILE_MERGING_THRESHOLD.key(), mergingThreshold,
+					CheckpointingOptions.FS_FILE_MERGING_THRESHOLD.defaultValue());
+		}
+
 		final int sizeThreshold = original.fileStateThreshold >= 0 ?
 				original.fileStateThreshold :
 				configuration.getInteger(CheckpointingOptions.FS_SMALL_FILE_THRESHOLD);
@@ -419,6 +476,69 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 		return asynchronousSnapshots.getOrDefault(CheckpointingOptions.ASYNC_SNAPSHOTS.defaultValue());
 	}
 
+	/**
+	 * Gets whether keyed state is kept serialized in off-heap memory, rather than as objects on the heap.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#FS_OFF_HEAP_STATE}.
+	 */
+	public boolean isUsingOffHeapState() {
+		return offHeapState.getOrDefault(CheckpointingOptions.FS_OFF_HEAP_STATE.defaultValue());
+	}
+
+	/**
+	 * Gets the amount of off-heap memory per keyed state backend, in bytes, that is used when
+	 * {@link #isUsingOffHeapState()} is true.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#FS_OFF_HEAP_STATE_MEMORY_SIZE}.
+	 */
+	public long getOffHeapStateMemorySize() {
+		return offHeapStateMemorySize >= 0 ?
+				offHeapStateMemorySize :
+				MemorySize.parse(CheckpointingOptions.FS_OFF_HEAP_STATE_MEMORY_SIZE.defaultValue()).getBytes();
+	}
+
+	/**
+	 * Gets whether checkpoints of keyed state only write the key-groups that changed since the last
+	 * completed checkpoint. Savepoints are always full snapshots.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#INCREMENTAL_CHECKPOINTS}.
+	 */
+	public boolean isIncrementalCheckpointsEnabled() {
+		return incrementalCheckpoints.getOrDefault(CheckpointingOptions.INCREMENTAL_CHECKPOINTS.defaultValue());
+	}
+
+	/**
+	 * Gets the number of incremental checkpoints after which all key-groups are written again, so
+	 * that the files of older checkpoints can be discarded.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#FS_INCREMENTAL_COMPACTION_INTERVAL}.
+	 */
+	public int getIncrementalCompactionInterval() {
+		return incrementalCompactionInterval > 0 ?
+				incrementalCompactionInterval :
+				CheckpointingOptions.FS_INCREMENTAL_COMPACTION_INTERVAL.defaultValue();
+	}
+
+	/**
+	 * Gets the threshold up to which state is written as a segment of a file that the state streams
+	 * of the same checkpoint on a TaskManager share, rather than to a file of its own. Zero means that
+	 * the files are not merged.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#FS_FILE_MERGING_THRESHOLD}.
+	 *
+	 * @return The file merging threshold, in bytes.
+	 */
+	public int getFileMergingThreshold() {
+		return fileMergingThreshold >= 0 ?
+				fileMergingThreshold :
+				CheckpointingOptions.FS_FILE_MERGING_THRESHOLD.defaultValue();
+	}
+
 	// ------------------------------------------------------------------------
 	//  Reconfiguration
 	// ------------------------------------------------------------------------
@@ -442,7 +562,12 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 	@Override
 	public CheckpointStorage createCheckpointStorage(JobID jobId) throws IOException {
 		checkNotNull(jobId, "jobId");
-		return new FsCheckpointStorage(getCheckpointPath(), getSavepointPath(), jobId, getMinFileSizeThreshold());
+		return new FsCheckpointStorage(
+				getCheckpointPath(),
+				getSavepointPath(),
+				jobId,
+				getMinFileSizeThreshold(),
+				getFileMergingThreshold());
 	}
 
 	// ------------------------------------------------------------------------
@@ -465,6 +590,12 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 		LocalRecoveryConfig localRecoveryConfig = taskStateManager.createLocalRecoveryConfig();
 		HeapPriorityQueueSetFactory priorityQueueSetFactory =
 			new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
+		OffHeapStateMemoryPool offHeapStateMemoryPool = isUsingOffHeapState() ?
+			new OffHeapStateMemoryPool(
+				getOffHeapStateMemorySize(),
+				OffHeapStateMemoryPool.DEFAULT_SEGMENT_SIZE,
+				env.getIOManager()) :
+			null;
 
 		return new HeapKeyedStateBackend<>(
 				kvStateRegistry,
@@ -476,7 +607,10 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 				env.getExecutionConfig(),
 				localRecoveryConfig,
 				priorityQueueSetFactory,
-				ttlTimeProvider);
+				ttlTimeProvider,
+				offHeapStateMemoryPool,
+				isIncrementalCheckpointsEnabled(),
+				getIncrementalCompactionInterval());
 	}
 
 	@Override
@@ -500,6 +634,9 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 				"checkpoints: '" + getCheckpointPath() +
 				"', savepoints: '" + getSavepointPath() +
 				"', asynchronous: " + asynchronousSnapshots +
-				", fileStateThreshold: " + fileStateThreshold + ")";
+				", offHeap: " + offHeapState +
+				", incremental: " + incrementalCheckpoints +
+				", fileStateThreshold: " + fileStateThreshold +
+				", fileMergingThreshold: " + fileMergingThreshold + ")";
 	}
 }
@@ -86,6 +86,11 @@ public abstract class AbstractHeapState<K, N, SV> implements InternalKvState<K,
 		this.currentNamespace = Preconditions.checkNotNull(namespace, "Namespace must not be null.");
 	}
 
+	@Override
+	public final N getCurrentNamespace() {
+		return currentNamespace;
+	}
+
 	@Override
 	public byte[] getSerializedValue(
 			final byte[] serializedKeyAndNamespace,
@@ -20,6 +20,7 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.StateTransformationFunction;
 import org.apache.flink.util.MathUtils;
@@ -31,11 +32,14 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.TreeSet;
+import java.util.function.IntPredicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -341,6 +345,22 @@ public class CopyOnWriteStateTable<K, N, S> extends StateTable<K, N, S> implemen
 		transform(keyContext.getCurrentKey(), namespace, value, transformation);
 	}
 
+	@Override
+	public void removeKeyGroups(IntPredicate keyGroupFilter) {
+		final int numberOfKeyGroups = keyContext.getNumberOfKeyGroups();
+		final List<StateEntry<K, N, S>> entriesToRemove = new ArrayList<>();
+
+		for (StateEntry<K, N, S> entry : this) {
+			if (keyGroupFilter.test(KeyGroupRangeAssignment.assignToKeyGroup(entry.getKey(), numberOfKeyGroups))) {
+				entriesToRemove.add(entry);
+			}
+		}
+
+		for (StateEntry<K, N, S> entry : entriesToRemove) {
+			removeEntry(entry.getKey(), entry.getNamespace());
+		}
+	}
+
 	// Private implementation details of the API methods ---------------------------------------------------------------
 
 	/**
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Book-keeping for incremental checkpoints of the {@link HeapKeyedStateBackend}.
+ *
+ * <p>The state of every key-group is written to its own file in the shared checkpoint scope. The tracker remembers
+ * which key-groups were touched since the last snapshot and which key-group files every snapshot produced. A
+ * snapshot only needs to write the key-groups that were modified since the last <i>completed</i> checkpoint; all
+ * other key-groups can reference the files of that checkpoint.
+ *
+ * <p>Modifications are tracked conservatively per key-group: every key-group for which a current key was set is
+ * considered dirty. Every {@code compactionInterval} checkpoints, and whenever the registered states changed, a
+ * snapshot writes all key-groups again, so that the chain of referenced files does not grow without bounds and old
+ * files can be discarded by the {@link org.apache.flink.runtime.state.SharedStateRegistry}.
+ *
+ * <p>{@link #markDirty(int)}, {@link #markMetaInfoChanged()}, {@link #startSnapshot(long)},
+ * {@link #getKeyGroupsModifiedSince(long)} and {@link #resetToCheckpoint(long)} must be called from the task thread.
+ * {@link #snapshotMaterialized(long, Map)} may be called from the asynchronous snapshot thread.
+ */
+class HeapIncrementalCheckpointTracker {
+
+	/** The key-groups of the backend. */
+	@Nonnull
+	private final KeyGroupRange keyGroupRange;
+
+	/** The number of incremental checkpoints after which all key-groups are written again. */
+	private final int compactionInterval;
+
+	/** Key-groups (by position in the key-group range) that were touched since the last snapshot. */
+	@Nonnull
+	private BitSet dirtyKeyGroups;
+
+	/** Key-groups that were dirty when the snapshot for the checkpoint id was taken. */
+	@Nonnull
+	private final SortedMap<Long, BitSet> pendingDirtyKeyGroups;
+
+	/** The key-group files that were written or referenced by the snapshot for the checkpoint id. */
+	@Nonnull
+	private final SortedMap<Long, Map<Integer, StateHandleID>> materializedKeyGroupFiles;
+
+	/** The id of the last checkpoint that completed and for which the key-group files are known. */
+	private long lastCompletedCheckpointId;
+
+	/** The id of the latest checkpoint that completed, which subsumes all earlier checkpoints. */
+	private long latestCompletedCheckpointId;
+
+	/** The number of snapshots that referenced files of earlier snapshots since the last full snapshot. */
+	private int numIncrementalSnapshots;
+
+	/** Flag to indicate that the registered states changed, which requires a full snapshot. */
+	private boolean metaInfoChanged;
+
+	HeapIncrementalCheckpointTracker(@Nonnull KeyGroupRange keyGroupRange, int compactionInterval) {
+		Preconditions.checkArgument(compactionInterval > 0, "The compaction interval must be positive.");
+		this.keyGroupRange = keyGroupRange;
+		this.compactionInterval = compactionInterval;
+		this.dirtyKeyGroups = new BitSet(keyGroupRange.getNumberOfKeyGroups());
+		this.pendingDirtyKeyGroups = new TreeMap<>();
+		this.materializedKeyGroupFiles = new TreeMap<>();
+		this.lastCompletedCheckpointId = -1L;
+		this.latestCompletedCheckpointId = -1L;
+		this.numIncrementalSnapshots = 0;
+		this.metaInfoChanged = true;
+	}
+
+	/**
+	 * Marks the given key-group as modified.
+	 */
+	void markDirty(int keyGroup) {
+		if (keyGroupRange.contains(keyGroup)) {
+			dirtyKeyGroups.set(keyGroup - keyGroupRange.getStartKeyGroup());
+		}
+	}
+
+	/**
+	 * Marks that a state was registered or its meta info was updated, so the next snapshot must be a full one.
+	 */
+	void markMetaInfoChanged() {
+		metaInfoChanged = true;
+	}
+
+	/**
+	 * Determines which key-groups the snapshot for the given checkpoint has to write and which it can take from the
+	 * last completed checkpoint. This resets the set of dirty key-groups.
+	 */
+	@Nonnull
+	SnapshotPlan startSnapshot(long checkpointId) {
+
+		final BitSet dirtySinceLastSnapshot = dirtyKeyGroups;
+		dirtyKeyGroups = new BitSet(keyGroupRange.getNumberOfKeyGroups());
+
+		final Map<Integer, StateHandleID> baseFiles;
+
+		synchronized (materializedKeyGroupFiles) {
+			pendingDirtyKeyGroups.put(checkpointId, dirtySinceLastSnapshot);
+
+			final Map<Integer, StateHandleID> lastCompletedFiles =
+				materializedKeyGroupFiles.get(lastCompletedCheckpointId);
+
+			if (metaInfoChanged || lastCompletedFiles == null || numIncrementalSnapshots >= compactionInterval) {
+				baseFiles = Collections.emptyMap();
+				numIncrementalSnapshots = 0;
+				metaInfoChanged = false;
+			} else {
+				// everything that was touched after the last completed checkpoint, including snapshots that have not
+				// (yet) completed, has to be written again
+				final BitSet modified = new BitSet(keyGroupRange.getNumberOfKeyGroups());
+				for (BitSet pending : pendingDirtyKeyGroups.tailMap(lastCompletedCheckpointId + 1).values()) {
+					modified.or(pending);
+				}
+
+				baseFiles = new HashMap<>(lastCompletedFiles);
+				for (int pos = modified.nextSetBit(0); pos >= 0; pos = modified.nextSetBit(pos + 1)) {
+					baseFiles.remove(keyGroupRange.getKeyGroupId(pos));
+				}
+				++numIncrementalSnapshots;
+			}
+		}
+
+		return new SnapshotPlan(baseFiles);
+	}
+
+	/**
+	 * Records the key-group files of the snapshot for the given checkpoint, once they are all written.
+	 */
+	void snapshotMaterialized(long checkpointId, @Nonnull Map<Integer, StateHandleID> keyGroupFiles) {
+		synchronized (materializedKeyGroupFiles) {
+			if (checkpointId > latestCompletedCheckpointId) {
+				materializedKeyGroupFiles.put(checkpointId, keyGroupFiles);
+			}
+		}
+	}
+
+	/**
+	 * Makes the key-group files of the completed checkpoint the base for subsequent snapshots. The snapshots of all
+	 * earlier checkpoints are subsumed and never complete, so their book-keeping is dropped, even if the completed
+	 * checkpoint was not taken by this tracker, e.g. because it is a savepoint.
+	 */
+	void notifyCheckpointComplete(long completedCheckpointId) {
+		synchronized (materializedKeyGroupFiles) {
+			if (completedCheckpointId <= latestCompletedCheckpointId) {
+				return;
+			}
+			latestCompletedCheckpointId = completedCheckpointId;
+
+			if (materializedKeyGroupFiles.containsKey(completedCheckpointId)) {
+				materializedKeyGroupFiles.keySet().removeIf(checkpointId -> checkpointId < completedCheckpointId);
+				pendingDirtyKeyGroups.keySet().removeIf(checkpointId -> checkpointId <= completedCheckpointId);
+				lastCompletedCheckpointId = completedCheckpointId;
+			} else {
+				materializedKeyGroupFiles.keySet().removeIf(
+					checkpointId -> checkpointId < completedCheckpointId && checkpointId != lastCompletedCheckpointId);
+
+				// the modifications of the subsumed snapshots are not contained in the base files yet, so they are
+				// merged instead of dropped
+				final SortedMap<Long, BitSet> subsumedDirtyKeyGroups = pendingDirtyKeyGroups.headMap(completedCheckpointId);
+				if (subsumedDirtyKeyGroups.size() > 1) {
+					final BitSet modified = new BitSet(keyGroupRange.getNumberOfKeyGroups());
+					for (BitSet subsumed : subsumedDirtyKeyGroups.values()) {
+						modified.or(subsumed);
+					}
+					final long lastSubsumedCheckpointId = subsumedDirtyKeyGroups.lastKey();
+					subsumedDirtyKeyGroups.clear();
+					pendingDirtyKeyGroups.put(lastSubsumedCheckpointId, modified);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the key-groups (by position in the key-group range) that were touched since the snapshot for the given
+	 * checkpoint was taken, or null if they are unknown because the snapshot was not taken and materialized by this
+	 * tracker, or was already pruned.
+	 */
+	@Nullable
+	BitSet getKeyGroupsModifiedSince(long checkpointId) {
+		synchronized (materializedKeyGroupFiles) {
+			if (!materializedKeyGroupFiles.containsKey(checkpointId) ||
+				(checkpointId != lastCompletedCheckpointId && !pendingDirtyKeyGroups.containsKey(checkpointId))) {
+				return null;
+			}
+
+			final BitSet modified = (BitSet) dirtyKeyGroups.clone();
+			for (BitSet pending : pendingDirtyKeyGroups.tailMap(checkpointId + 1).values()) {
+				modified.or(pending);
+			}
+			return modified;
+		}
+	}
+
+	/**
+	 * Makes the snapshot for the given checkpoint the base for subsequent snapshots after the state was rolled back
+	 * to it, and forgets about all later snapshots and modifications.
+	 */
+	void resetToCheckpoint(long checkpointId) {
+		synchronized (materializedKeyGroupFiles) {
+			Preconditions.checkState(materializedKeyGroupFiles.containsKey(checkpointId),
+				"The key-group files of checkpoint %s are unknown.", checkpointId);
+
+			materializedKeyGroupFiles.keySet().removeIf(id -> id != checkpointId);
+			pendingDirtyKeyGroups.clear();
+			dirtyKeyGroups = new BitSet(keyGroupRange.getNumberOfKeyGroups());
+			lastCompletedCheckpointId = checkpointId;
+			latestCompletedCheckpointId = checkpointId;
+		}
+	}
+
+	/**
+	 * Creates the id under which the file for the key-group is registered with the shared state registry. The id is
+	 * unique per checkpoint, so that files of different checkpoints never collide.
+	 */
+	static StateHandleID createKeyGroupFileId(int keyGroup, long checkpointId) {
+		return new StateHandleID(keyGroup + "-" + checkpointId + ".kg");
+	}
+
+	/**
+	 * Extracts the key-group from an id that was created by {@link #createKeyGroupFileId(int, long)}.
+	 */
+	static int getKeyGroupFromFileId(StateHandleID fileId) {
+		final String id = fileId.getKeyString();
+		final int separator = id.indexOf('-');
+		Preconditions.checkArgument(separator > 0, "Not a key-group file: " + id);
+		return Integer.parseInt(id.substring(0, separator));
+	}
+
+	/**
+	 * The outcome of {@link #startSnapshot(long)}: the key-groups whose files can be taken from the last completed
+	 * checkpoint. All other key-groups must be written.
+	 */
+	static final class SnapshotPlan {
+
+		@Nonnull
+		private final Map<Integer, StateHandleID> baseFiles;
+
+		SnapshotPlan(@Nonnull Map<Integer, StateHandleID> baseFiles) {
+			this.baseFiles = baseFiles;
+		}
+
+		/**
+		 * Returns the file of the last completed checkpoint for the key-group, or null if it must be written.
+		 */
+		@Nullable
+		StateHandleID getBaseFile(int keyGroup) {
+			return baseFiles.get(keyGroup);
+		}
+
+		boolean isFullSnapshot() {
+			return baseFiles.isEmpty();
+		}
+	}
+}
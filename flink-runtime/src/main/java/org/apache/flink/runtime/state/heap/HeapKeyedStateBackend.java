@@ -36,6 +36,7 @@ import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
 import org.apache.flink.runtime.state.AbstractSnapshotStrategy;
@@ -44,6 +45,7 @@ import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.CheckpointStreamWithResultProvider;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
 import org.apache.flink.runtime.state.DoneFuture;
+import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyExtractorFunction;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
@@ -54,16 +56,20 @@ import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
 import org.apache.flink.runtime.state.KeyedStateFunction;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
 import org.apache.flink.runtime.state.PriorityComparable;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.SnappyStreamCompressionDecorator;
 import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateObject;
 import org.apache.flink.runtime.state.StateSnapshot;
 import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
 import org.apache.flink.runtime.state.StateSnapshotRestore;
 import org.apache.flink.runtime.state.StateSnapshotTransformer;
 import org.apache.flink.runtime.state.StateSnapshotTransformer.StateSnapshotTransformFactory;
+import org.apache.flink.runtime.state.StateUtil;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
@@ -73,25 +79,33 @@ import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.StateMigrationException;
 import org.apache.flink.util.function.SupplierWithException;
+import org.apache.flink.util.function.ThrowingConsumer;
 
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RunnableFuture;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -148,6 +162,23 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	 */
 	private final HeapPriorityQueueSetFactory priorityQueueSetFactory;
 
+	/**
+	 * Pool of off-heap memory for the state tables, or null if state is kept as objects on the heap.
+	 */
+	@Nullable
+	private final OffHeapStateMemoryPool offHeapStateMemoryPool;
+
+	/**
+	 * Unique ID of this backend, used to register the files of incremental checkpoints with the shared state registry.
+	 */
+	private final UUID backendUID;
+
+	/**
+	 * Tracks the modified key-groups for incremental checkpoints, or null if every checkpoint is a full snapshot.
+	 */
+	@Nullable
+	private final HeapIncrementalCheckpointTracker incrementalCheckpointTracker;
+
 	public HeapKeyedStateBackend(
 			TaskKvStateRegistry kvStateRegistry,
 			TypeSerializer<K> keySerializer,
@@ -160,16 +191,71 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			HeapPriorityQueueSetFactory priorityQueueSetFactory,
 			TtlTimeProvider ttlTimeProvider) {
 
+		this(
+			kvStateRegistry,
+			keySerializer,
+			userCodeClassLoader,
+			numberOfKeyGroups,
+			keyGroupRange,
+			asynchronousSnapshots,
+			executionConfig,
+			localRecoveryConfig,
+			priorityQueueSetFactory,
+			ttlTimeProvider,
+			null,
+			false,
+			1);
+	}
+
+	/**
+	 * Creates a new heap backend. If an {@link OffHeapStateMemoryPool} is given, key/value state is kept serialized
+	 * in off-heap memory through {@link OffHeapStateTable}s. Snapshots are always synchronous and state cannot be
+	 * queryable in this case.
+	 *
+	 * <p>If incremental checkpoints are enabled, checkpoints only write the key-groups that were modified since the
+	 * last completed checkpoint. All key-groups are written again every {@code incrementalCompactionInterval}
+	 * checkpoints. Savepoints are always full snapshots. Incremental checkpoints do not support local recovery.
+	 */
+	public HeapKeyedStateBackend(
+			TaskKvStateRegistry kvStateRegistry,
+			TypeSerializer<K> keySerializer,
+			ClassLoader userCodeClassLoader,
+			int numberOfKeyGroups,
+			KeyGroupRange keyGroupRange,
+			boolean asynchronousSnapshots,
+			ExecutionConfig executionConfig,
+			LocalRecoveryConfig localRecoveryConfig,
+			HeapPriorityQueueSetFactory priorityQueueSetFactory,
+			TtlTimeProvider ttlTimeProvider,
+			@Nullable OffHeapStateMemoryPool offHeapStateMemoryPool,
+			boolean incrementalCheckpoints,
+			int incrementalCompactionInterval) {
+
 		super(kvStateRegistry, keySerializer, userCodeClassLoader,
 			numberOfKeyGroups, keyGroupRange, executionConfig, ttlTimeProvider);
 
 		this.registeredKVStates = new HashMap<>();
 		this.registeredPQStates = new HashMap<>();
 		this.localRecoveryConfig = Preconditions.checkNotNull(localRecoveryConfig);
-
-		SnapshotStrategySynchronicityBehavior<K> synchronicityTrait = asynchronousSnapshots ?
-			new AsyncSnapshotStrategySynchronicityBehavior() :
-			new SyncSnapshotStrategySynchronicityBehavior();
+		Preconditions.checkArgument(!incrementalCheckpoints || !localRecoveryConfig.isLocalRecoveryEnabled(),
+			"Incremental checkpoints of the heap keyed state backend do not support local recovery.");
+		this.offHeapStateMemoryPool = offHeapStateMemoryPool;
+		this.backendUID = UUID.randomUUID();
+		this.incrementalCheckpointTracker = incrementalCheckpoints ?
+			new HeapIncrementalCheckpointTracker(keyGroupRange, incrementalCompactionInterval) :
+			null;
+
+		final SnapshotStrategySynchronicityBehavior<K> synchronicityTrait;
+		if (offHeapStateMemoryPool != null) {
+			if (asynchronousSnapshots) {
+				LOG.info("Off-heap state tables only support synchronous snapshots.");
+			}
+			synchronicityTrait = new OffHeapSnapshotStrategySynchronicityBehavior(offHeapStateMemoryPool);
+		} else if (asynchronousSnapshots) {
+			synchronicityTrait = new AsyncSnapshotStrategySynchronicityBehavior();
+		} else {
+			synchronicityTrait = new SyncSnapshotStrategySynchronicityBehavior();
+		}
 
 		this.snapshotStrategy = new HeapSnapshotStrategy(synchronicityTrait);
 		LOG.info("Initializing heap keyed state backend with stream factory.");
@@ -246,6 +332,10 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				numberOfKeyGroups);
 
 		registeredPQStates.put(stateName, wrapper);
+
+		if (incrementalCheckpointTracker != null) {
+			incrementalCheckpointTracker.markMetaInfoChanged();
+		}
 		return priorityQueue;
 	}
 
@@ -307,6 +397,10 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			registeredKVStates.put(stateDesc.getName(), stateTable);
 		}
 
+		if (incrementalCheckpointTracker != null) {
+			incrementalCheckpointTracker.markMetaInfoChanged();
+		}
+
 		return stateTable;
 	}
 
@@ -338,6 +432,12 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				stateDesc.getClass(), this.getClass());
 			throw new FlinkRuntimeException(message);
 		}
+		if (offHeapStateMemoryPool != null && stateDesc.isQueryable()) {
+			// off-heap state tables may only be accessed by the task thread, but queries come from network threads
+			String message = String.format("Queryable state %s is not supported by %s with off-heap state.",
+				stateDesc.getName(), this.getClass());
+			throw new FlinkRuntimeException(message);
+		}
 		StateTable<K, N, SV> stateTable = tryRegisterStateTable(
 			namespaceSerializer, stateDesc, getStateSnapshotTransformer(stateDesc, snapshotTransformFactory));
 		return stateFactory.createState(stateDesc, stateTable, keySerializer);
@@ -411,6 +511,12 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				continue;
 			}
 
+			if (keyedStateHandle instanceof IncrementalKeyedStateHandle) {
+				restoreIncrementalStateHandle((IncrementalKeyedStateHandle) keyedStateHandle, !keySerializerRestored);
+				keySerializerRestored = true;
+				continue;
+			}
+
 			if (!(keyedStateHandle instanceof KeyGroupsStateHandle)) {
 				throw new IllegalStateException("Unexpected state handle type, " +
 						"expected: " + KeyGroupsStateHandle.class +
@@ -460,6 +566,114 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 	}
 
+	/**
+	 * Restores the key-groups of an incremental snapshot that belong to this backend. Every key-group is stored in a
+	 * file of its own, so that files of other key-groups do not need to be read when rescaling.
+	 */
+	private void restoreIncrementalStateHandle(
+		IncrementalKeyedStateHandle stateHandle,
+		boolean checkKeySerializer) throws Exception {
+
+		final KeyedBackendSerializationProxy<K> serializationProxy = readIncrementalMetaData(stateHandle);
+
+		if (checkKeySerializer && !serializationProxy.getKeySerializerConfigSnapshot()
+				.resolveSchemaCompatibility(keySerializer).isCompatibleAsIs()) {
+			throw new StateMigrationException("The new key serializer must be compatible.");
+		}
+
+		createOrCheckStateForMetaInfo(serializationProxy.getStateMetaInfoSnapshots(), new HashMap<>());
+
+		readIncrementalKeyGroups(stateHandle, serializationProxy, keyGroupRange::contains);
+	}
+
+	private KeyedBackendSerializationProxy<K> readIncrementalMetaData(
+		IncrementalKeyedStateHandle stateHandle) throws Exception {
+
+		final KeyedBackendSerializationProxy<K> serializationProxy =
+			new KeyedBackendSerializationProxy<>(userCodeClassLoader);
+
+		FSDataInputStream metaInputStream = stateHandle.getMetaStateHandle().openInputStream();
+		cancelStreamRegistry.registerCloseable(metaInputStream);
+		try {
+			serializationProxy.read(new DataInputViewStreamWrapper(metaInputStream));
+		} finally {
+			if (cancelStreamRegistry.unregisterCloseable(metaInputStream)) {
+				IOUtils.closeQuietly(metaInputStream);
+			}
+		}
+
+		return serializationProxy;
+	}
+
+	/**
+	 * Reads the files of the key-groups of an incremental snapshot that are accepted by the filter into the
+	 * registered states.
+	 */
+	private void readIncrementalKeyGroups(
+		IncrementalKeyedStateHandle stateHandle,
+		KeyedBackendSerializationProxy<K> serializationProxy,
+		IntPredicate keyGroupFilter) throws Exception {
+
+		final StreamCompressionDecorator streamCompressionDecorator = serializationProxy.isUsingKeyGroupCompression() ?
+			SnappyStreamCompressionDecorator.INSTANCE : UncompressedStreamCompressionDecorator.INSTANCE;
+
+		for (Map.Entry<StateHandleID, StreamStateHandle> keyGroupFile : stateHandle.getSharedState().entrySet()) {
+
+			final int keyGroupIndex = HeapIncrementalCheckpointTracker.getKeyGroupFromFileId(keyGroupFile.getKey());
+			if (!keyGroupFilter.test(keyGroupIndex)) {
+				continue;
+			}
+
+			FSDataInputStream fsDataInputStream = keyGroupFile.getValue().openInputStream();
+			cancelStreamRegistry.registerCloseable(fsDataInputStream);
+
+			try {
+				DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(fsDataInputStream);
+
+				int writtenKeyGroupIndex = inView.readInt();
+				Preconditions.checkState(writtenKeyGroupIndex == keyGroupIndex,
+					"Unexpected key-group in restore.");
+
+				int numStates = inView.readInt();
+
+				try (InputStream kgCompressionInStream =
+						 streamCompressionDecorator.decorateWithCompression(fsDataInputStream)) {
+
+					DataInputViewStreamWrapper kgCompressionInView =
+						new DataInputViewStreamWrapper(kgCompressionInStream);
+
+					for (int i = 0; i < numStates; i++) {
+						final String stateName = kgCompressionInView.readUTF();
+						final StateMetaInfoSnapshot.BackendStateType stateType =
+							StateMetaInfoSnapshot.BackendStateType.values()[kgCompressionInView.readByte()];
+
+						final StateSnapshotRestore registeredState;
+						switch (stateType) {
+							case KEY_VALUE:
+								registeredState = registeredKVStates.get(stateName);
+								break;
+							case PRIORITY_QUEUE:
+								registeredState = registeredPQStates.get(stateName);
+								break;
+							default:
+								throw new IllegalStateException("Unexpected state type: " + stateType + ".");
+						}
+
+						Preconditions.checkState(registeredState != null,
+							"Found data for state " + stateName + " that is not contained in the meta data.");
+
+						registeredState.keyGroupReader(serializationProxy.getReadVersion())
+							.readMappingsInKeyGroup(kgCompressionInView, keyGroupIndex);
+					}
+				}
+			} finally {
+				if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
+					IOUtils.closeQuietly(fsDataInputStream);
+				}
+			}
+		}
+	}
+
 	private void readStateHandleStateData(
 		FSDataInputStream fsDataInputStream,
 		DataInputViewStreamWrapper inView,
@@ -570,9 +784,111 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 	}
 
+	@Override
+	public boolean supportsRollback() {
+		return incrementalCheckpointTracker != null;
+	}
+
+	/**
+	 * Rolls the state back to an incremental checkpoint of this backend by restoring only the key-groups that were
+	 * modified since the checkpoint. This requires that the modifications since the checkpoint are still tracked, and
+	 * that the same states are registered as in the checkpoint.
+	 */
+	@Override
+	public boolean rollback(Collection<KeyedStateHandle> restoreState) throws Exception {
+		if (incrementalCheckpointTracker == null || restoreState == null || restoreState.size() != 1) {
+			return false;
+		}
+
+		final KeyedStateHandle keyedStateHandle = restoreState.iterator().next();
+		if (!(keyedStateHandle instanceof IncrementalKeyedStateHandle)) {
+			return false;
+		}
+
+		final IncrementalKeyedStateHandle stateHandle = (IncrementalKeyedStateHandle) keyedStateHandle;
+		if (!backendUID.equals(stateHandle.getBackendIdentifier()) ||
+			!keyGroupRange.equals(stateHandle.getKeyGroupRange())) {
+			return false;
+		}
+
+		final BitSet modifiedKeyGroups =
+			incrementalCheckpointTracker.getKeyGroupsModifiedSince(stateHandle.getCheckpointId());
+		if (modifiedKeyGroups == null) {
+			return false;
+		}
+
+		resetForRollback();
+
+		final KeyedBackendSerializationProxy<K> serializationProxy = readIncrementalMetaData(stateHandle);
+		final List<StateMetaInfoSnapshot> restoredMetaInfos = serializationProxy.getStateMetaInfoSnapshots();
+
+		final Set<StateUID> restoredStates = new HashSet<>();
+		for (StateMetaInfoSnapshot metaInfoSnapshot : restoredMetaInfos) {
+			restoredStates.add(StateUID.of(metaInfoSnapshot.getName(), metaInfoSnapshot.getBackendStateType()));
+		}
+
+		final Set<StateUID> registeredStates = new HashSet<>();
+		for (String stateName : registeredKVStates.keySet()) {
+			registeredStates.add(StateUID.of(stateName, StateMetaInfoSnapshot.BackendStateType.KEY_VALUE));
+		}
+		for (String stateName : registeredPQStates.keySet()) {
+			registeredStates.add(StateUID.of(stateName, StateMetaInfoSnapshot.BackendStateType.PRIORITY_QUEUE));
+		}
+
+		if (!restoredStates.equals(registeredStates)) {
+			// states were registered after the checkpoint, so their mappings cannot be rolled back
+			return false;
+		}
+
+		LOG.info("Rolling back heap keyed state backend to checkpoint {}, restoring {} of {} key-groups.",
+			stateHandle.getCheckpointId(), modifiedKeyGroups.cardinality(), keyGroupRange.getNumberOfKeyGroups());
+
+		final IntPredicate isModified = keyGroup ->
+			keyGroupRange.contains(keyGroup) && modifiedKeyGroups.get(keyGroup - keyGroupRange.getStartKeyGroup());
+
+		for (StateTable<K, ?, ?> stateTable : registeredKVStates.values()) {
+			stateTable.removeKeyGroups(isModified);
+		}
+		for (HeapPriorityQueueSnapshotRestoreWrapper<?> priorityQueueState : registeredPQStates.values()) {
+			removeKeyGroups(priorityQueueState.getPriorityQueue(), isModified);
+		}
+
+		// the restored meta info is required to check the compatibility when the new task registers its states
+		restoredStateMetaInfo.clear();
+		createOrCheckStateForMetaInfo(restoredMetaInfos, new HashMap<>());
+
+		readIncrementalKeyGroups(stateHandle, serializationProxy, isModified);
+
+		incrementalCheckpointTracker.resetToCheckpoint(stateHandle.getCheckpointId());
+		return true;
+	}
+
+	private <T extends HeapPriorityQueueElement> void removeKeyGroups(
+		HeapPriorityQueueSet<T> priorityQueue,
+		IntPredicate keyGroupFilter) {
+
+		for (int keyGroup : keyGroupRange) {
+			if (keyGroupFilter.test(keyGroup)) {
+				for (T element : new ArrayList<>(priorityQueue.getSubsetForKeyGroup(keyGroup))) {
+					priorityQueue.remove(element);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void setCurrentKey(K newKey) {
+		super.setCurrentKey(newKey);
+		if (incrementalCheckpointTracker != null) {
+			incrementalCheckpointTracker.markDirty(getCurrentKeyGroupIndex());
+		}
+	}
+
 	@Override
 	public void notifyCheckpointComplete(long checkpointId) {
-		//Nothing to do
+		if (incrementalCheckpointTracker != null) {
+			incrementalCheckpointTracker.notifyCheckpointComplete(checkpointId);
+		}
 	}
 
 	@Override
@@ -600,6 +916,20 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 	}
 
+	@Override
+	public void dispose() {
+		super.dispose();
+
+		if (offHeapStateMemoryPool != null) {
+			for (StateTable<K, ?, ?> stateTable : registeredKVStates.values()) {
+				if (stateTable instanceof OffHeapStateTable) {
+					((OffHeapStateTable<K, ?, ?>) stateTable).dispose();
+				}
+			}
+			offHeapStateMemoryPool.close();
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "HeapKeyedStateBackend";
@@ -685,6 +1015,20 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 	}
 
+	private class OffHeapSnapshotStrategySynchronicityBehavior extends SyncSnapshotStrategySynchronicityBehavior {
+
+		private final OffHeapStateMemoryPool memoryPool;
+
+		OffHeapSnapshotStrategySynchronicityBehavior(OffHeapStateMemoryPool memoryPool) {
+			this.memoryPool = memoryPool;
+		}
+
+		@Override
+		public <N, V> StateTable<K, N, V> newStateTable(RegisteredKeyValueStateBackendMetaInfo<N, V> newMetaInfo) {
+			return new OffHeapStateTable<>(HeapKeyedStateBackend.this, newMetaInfo, memoryPool);
+		}
+	}
+
 	/**
 	 * Base class for the snapshots of the heap backend that outlines the algorithm and offers some hooks to realize
 	 * the concrete strategies. Subclasses must be threadsafe.
@@ -746,6 +1090,15 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					metaInfoSnapshots,
 					!Objects.equals(UncompressedStreamCompressionDecorator.INSTANCE, keyGroupCompressionDecorator));
 
+			if (incrementalCheckpointTracker != null && checkpointOptions.getCheckpointType() != CheckpointType.SAVEPOINT) {
+				return snapshotIncrementally(
+					checkpointId,
+					primaryStreamFactory,
+					incrementalCheckpointTracker,
+					serializationProxy,
+					cowStateStableSnapshots);
+			}
+
 			final SupplierWithException<CheckpointStreamWithResultProvider, Exception> checkpointStreamSupplier =
 
 				localRecoveryConfig.isLocalRecoveryEnabled() ?
@@ -833,6 +1186,159 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			return task;
 		}
 
+		/**
+		 * Writes every key-group that was modified since the last completed checkpoint to its own file in the shared
+		 * checkpoint scope and references the files of that checkpoint for all other key-groups.
+		 */
+		private RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshotIncrementally(
+			long checkpointId,
+			@Nonnull CheckpointStreamFactory primaryStreamFactory,
+			@Nonnull HeapIncrementalCheckpointTracker tracker,
+			@Nonnull KeyedBackendSerializationProxy<K> serializationProxy,
+			@Nonnull Map<StateUID, StateSnapshot> cowStateStableSnapshots) throws IOException {
+
+			final HeapIncrementalCheckpointTracker.SnapshotPlan snapshotPlan = tracker.startSnapshot(checkpointId);
+
+			//--------------------------------------------------- this becomes the end of sync part
+
+			final AsyncSnapshotCallable<SnapshotResult<KeyedStateHandle>> asyncSnapshotCallable =
+				new AsyncSnapshotCallable<SnapshotResult<KeyedStateHandle>>() {
+					@Override
+					protected SnapshotResult<KeyedStateHandle> callInternal() throws Exception {
+
+						boolean completed = false;
+
+						StreamStateHandle metaStateHandle = null;
+						// Handles to the key-group files, new files or placeholders for files of previous checkpoints
+						final Map<StateHandleID, StreamStateHandle> keyGroupFiles =
+							new HashMap<>(keyGroupRange.getNumberOfKeyGroups());
+						final Map<Integer, StateHandleID> keyGroupFileIds =
+							new HashMap<>(keyGroupRange.getNumberOfKeyGroups());
+
+						try {
+							metaStateHandle = writeToStream(
+								primaryStreamFactory,
+								CheckpointedStateScope.EXCLUSIVE,
+								serializationProxy::write);
+
+							for (int keyGroupId : keyGroupRange) {
+								StateHandleID fileId = snapshotPlan.getBaseFile(keyGroupId);
+								if (fileId != null) {
+									keyGroupFiles.put(fileId, new PlaceholderStreamStateHandle());
+								} else {
+									fileId = HeapIncrementalCheckpointTracker.createKeyGroupFileId(keyGroupId, checkpointId);
+									keyGroupFiles.put(fileId, writeToStream(
+										primaryStreamFactory,
+										CheckpointedStateScope.SHARED,
+										outView -> writeKeyGroupFile(outView, keyGroupId, cowStateStableSnapshots)));
+								}
+								keyGroupFileIds.put(keyGroupId, fileId);
+							}
+
+							tracker.snapshotMaterialized(checkpointId, keyGroupFileIds);
+
+							completed = true;
+
+							return SnapshotResult.of(
+								new IncrementalKeyedStateHandle(
+									backendUID,
+									keyGroupRange,
+									checkpointId,
+									keyGroupFiles,
+									Collections.emptyMap(),
+									metaStateHandle));
+						} finally {
+							if (!completed) {
+								final List<StateObject> statesToDiscard = new ArrayList<>(1 + keyGroupFiles.size());
+								statesToDiscard.add(metaStateHandle);
+								for (StreamStateHandle keyGroupFile : keyGroupFiles.values()) {
+									if (!(keyGroupFile instanceof PlaceholderStreamStateHandle)) {
+										statesToDiscard.add(keyGroupFile);
+									}
+								}
+								try {
+									StateUtil.bestEffortDiscardAllStateObjects(statesToDiscard);
+								} catch (Exception e) {
+									LOG.warn("Could not properly discard states of incomplete snapshot.", e);
+								}
+							}
+						}
+					}
+
+					@Override
+					protected void cleanupProvidedResources() {
+						for (StateSnapshot tableSnapshot : cowStateStableSnapshots.values()) {
+							tableSnapshot.release();
+						}
+					}
+
+					@Override
+					protected void logAsyncSnapshotComplete(long startTime) {
+						if (snapshotStrategySynchronicityTrait.isAsynchronous()) {
+							LOG.info("Heap backend incremental snapshot ({}, checkpoint {}, {}) finished in {} ms.",
+								primaryStreamFactory, checkpointId, snapshotPlan.isFullSnapshot() ? "full" : "delta",
+								(System.currentTimeMillis() - startTime));
+						}
+					}
+
+					private StreamStateHandle writeToStream(
+						CheckpointStreamFactory streamFactory,
+						CheckpointedStateScope scope,
+						ThrowingConsumer<DataOutputViewStreamWrapper, IOException> writer) throws Exception {
+
+						CheckpointStreamFactory.CheckpointStateOutputStream outputStream =
+							streamFactory.createCheckpointStateOutputStream(scope);
+						registerCloseableForCancellation(outputStream);
+
+						try {
+							writer.accept(new DataOutputViewStreamWrapper(outputStream));
+
+							if (unregisterCloseableFromCancellation(outputStream)) {
+								StreamStateHandle result = outputStream.closeAndGetHandle();
+								outputStream = null;
+								return result;
+							} else {
+								throw new IOException("Stream already closed and cannot return a handle.");
+							}
+						} finally {
+							if (outputStream != null && unregisterCloseableFromCancellation(outputStream)) {
+								IOUtils.closeQuietly(outputStream);
+							}
+						}
+					}
+				};
+
+			final FutureTask<SnapshotResult<KeyedStateHandle>> task =
+				asyncSnapshotCallable.toAsyncSnapshotFutureTask(cancelStreamRegistry);
+			finalizeSnapshotBeforeReturnHook(task);
+
+			return task;
+		}
+
+		/**
+		 * Writes the state of all registered states in the key-group. In contrast to the full snapshot, the states are
+		 * identified by name, because the file may be referenced by later checkpoints that register other states.
+		 */
+		private void writeKeyGroupFile(
+			DataOutputViewStreamWrapper outView,
+			int keyGroupId,
+			Map<StateUID, StateSnapshot> cowStateStableSnapshots) throws IOException {
+
+			outView.writeInt(keyGroupId);
+			outView.writeInt(cowStateStableSnapshots.size());
+
+			for (Map.Entry<StateUID, StateSnapshot> stateSnapshot : cowStateStableSnapshots.entrySet()) {
+				try (
+					OutputStream kgCompressionOut =
+						keyGroupCompressionDecorator.decorateWithCompression(outView)) {
+					DataOutputViewStreamWrapper kgCompressionView = new DataOutputViewStreamWrapper(kgCompressionOut);
+					kgCompressionView.writeUTF(stateSnapshot.getKey().getStateName());
+					kgCompressionView.writeByte(stateSnapshot.getKey().getStateType().ordinal());
+					stateSnapshot.getValue().getKeyGroupWriter().writeStateInKeyGroup(kgCompressionView, keyGroupId);
+				} // this will just close the outer compression stream
+			}
+		}
+
 		@Override
 		public void finalizeSnapshotBeforeReturnHook(Runnable runnable) {
 			snapshotStrategySynchronicityTrait.finalizeSnapshotBeforeReturnHook(runnable);
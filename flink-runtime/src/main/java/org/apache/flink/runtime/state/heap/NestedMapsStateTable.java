@@ -38,6 +38,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.IntPredicate;
 import java.util.stream.Stream;
 
 /**
@@ -305,6 +306,15 @@ public class NestedMapsStateTable<K, N, S> extends StateTable<K, N, S> {
 		keyedMap.put(key, transformation.apply(keyedMap.get(key), value));
 	}
 
+	@Override
+	public void removeKeyGroups(IntPredicate keyGroupFilter) {
+		for (int pos = 0; pos < state.length; ++pos) {
+			if (keyGroupFilter.test(keyGroupOffset + pos)) {
+				state[pos] = null;
+			}
+		}
+	}
+
 	// snapshots ---------------------------------------------------------------------------------------------------
 
 	private static <K, N, S> int countMappingsInKeyGroup(final Map<N, Map<K, S>> keyGroupMap) {
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A bounded pool of off-heap {@link MemorySegment}s that holds the serialized state of all
+ * {@link SerializedKeyGroupStore}s of one keyed state backend.
+ *
+ * <p>Segments are allocated lazily up to the configured memory budget and are recycled between stores. When the
+ * budget is exhausted, the pool spills the least recently used store (i.e. the coldest key-group of some state) to
+ * local disk through the {@link IOManager} and hands out the freed segments. Spilled stores are transparently read
+ * back on their next access.
+ *
+ * <p>This class is not thread-safe, all accesses must happen from the task thread that owns the backend.
+ */
+@Internal
+public class OffHeapStateMemoryPool implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OffHeapStateMemoryPool.class);
+
+	/** The default size of the segments that are handed out by the pool. */
+	public static final int DEFAULT_SEGMENT_SIZE = 32 * 1024;
+
+	/** The size of each segment in bytes, always a power of two. */
+	private final int segmentSize;
+
+	/** The maximum number of segments that this pool allocates. */
+	private final int maxNumberOfSegments;
+
+	/** The I/O manager to spill cold stores, or null if spilling is not supported. */
+	@Nullable
+	private final IOManager ioManager;
+
+	/** All segments that have ever been allocated by this pool, so that they can be freed on close. */
+	private final List<MemorySegment> allocatedSegments;
+
+	/** Segments that are currently not used by any store. */
+	private final ArrayDeque<MemorySegment> availableSegments;
+
+	/** All stores that currently hold segments, in least-recently-accessed order. */
+	private final LinkedHashMap<SerializedKeyGroupStore, Boolean> residentStores;
+
+	/** The number of stores that were spilled to disk over the lifetime of this pool. */
+	private long numberOfSpills;
+
+	private boolean closed;
+
+	public OffHeapStateMemoryPool(long memorySize, int segmentSize, @Nullable IOManager ioManager) {
+		Preconditions.checkArgument(MathUtils.isPowerOf2(segmentSize), "Segment size must be a power of two.");
+		Preconditions.checkArgument(memorySize >= 2L * segmentSize,
+			"The off-heap state memory must be at least two segments (" + (2L * segmentSize) + " bytes).");
+
+		this.segmentSize = segmentSize;
+		this.maxNumberOfSegments = (int) Math.min(Integer.MAX_VALUE, memorySize / segmentSize);
+		this.ioManager = ioManager;
+		this.allocatedSegments = new ArrayList<>();
+		this.availableSegments = new ArrayDeque<>();
+		this.residentStores = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns a segment for the given store. If the memory budget is exhausted, other stores are spilled to disk
+	 * until a segment becomes available.
+	 *
+	 * @param requester the store that requests the segment. It is never chosen for spilling.
+	 * @return a segment of {@link #getSegmentSize()} bytes.
+	 * @throws IOException if no segment could be made available.
+	 */
+	@Nonnull
+	MemorySegment requestSegment(@Nonnull SerializedKeyGroupStore requester) throws IOException {
+		Preconditions.checkState(!closed, "The off-heap state memory pool is closed.");
+
+		while (true) {
+			MemorySegment segment = availableSegments.poll();
+			if (segment != null) {
+				return segment;
+			}
+
+			if (allocatedSegments.size() < maxNumberOfSegments) {
+				segment = MemorySegmentFactory.allocateUnpooledOffHeapMemory(segmentSize, this);
+				allocatedSegments.add(segment);
+				return segment;
+			}
+
+			spillColdestStore(requester);
+		}
+	}
+
+	/**
+	 * Returns a segment that is no longer used by a store to the pool.
+	 */
+	void recycle(@Nonnull MemorySegment segment) {
+		if (!closed) {
+			availableSegments.add(segment);
+		}
+	}
+
+	/**
+	 * Marks the given store as most recently used.
+	 */
+	void touch(@Nonnull SerializedKeyGroupStore store) {
+		residentStores.put(store, Boolean.TRUE);
+	}
+
+	/**
+	 * Removes the given store from the set of resident stores, because it no longer holds any segments.
+	 */
+	void evicted(@Nonnull SerializedKeyGroupStore store) {
+		residentStores.remove(store);
+	}
+
+	private void spillColdestStore(SerializedKeyGroupStore requester) throws IOException {
+		if (ioManager == null) {
+			throw new IOException("The off-heap state memory of " + ((long) maxNumberOfSegments * segmentSize) +
+				" bytes is exhausted and spilling to disk is not available.");
+		}
+
+		SerializedKeyGroupStore victim = null;
+		for (SerializedKeyGroupStore store : residentStores.keySet()) {
+			if (store != requester && store.getNumberOfResidentSegments() > 0) {
+				victim = store;
+				break;
+			}
+		}
+
+		if (victim == null) {
+			throw new IOException("The off-heap state memory of " + ((long) maxNumberOfSegments * segmentSize) +
+				" bytes is too small to hold a single key-group.");
+		}
+
+		LOG.debug("Spilling {} segments of a cold key-group to disk.", victim.getNumberOfResidentSegments());
+		victim.spill(ioManager);
+		++numberOfSpills;
+	}
+
+	// ------------------------------------------------------------------------
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	@Nullable
+	IOManager getIOManager() {
+		return ioManager;
+	}
+
+	@VisibleForTesting
+	int getNumberOfAllocatedSegments() {
+		return allocatedSegments.size();
+	}
+
+	@VisibleForTesting
+	int getNumberOfAvailableSegments() {
+		return availableSegments.size();
+	}
+
+	@VisibleForTesting
+	long getNumberOfSpills() {
+		return numberOfSpills;
+	}
+
+	/**
+	 * Frees all memory of this pool. Stores that use this pool must not be accessed afterwards.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		residentStores.clear();
+		availableSegments.clear();
+		for (MemorySegment segment : allocatedSegments) {
+			segment.free();
+		}
+		allocatedSegments.clear();
+	}
+}
@@ -0,0 +1,564 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+import org.apache.flink.runtime.state.StateTransformationFunction;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+/**
+ * This implementation of {@link StateTable} keeps all mappings in serialized form in off-heap memory, so that the
+ * size of the state does not affect the Java heap and garbage collection. The mappings of each key-group are held by
+ * a {@link SerializedKeyGroupStore}, whose memory comes from an {@link OffHeapStateMemoryPool} that is shared by all
+ * tables of a backend and that spills cold key-groups to local disk when its memory budget is exhausted.
+ *
+ * <p>The heap state implementations modify state objects in place (e.g. adding to the list of a list state). To
+ * support this, deserialized state objects are kept in a small write-back cache of recently accessed mappings, and
+ * are only serialized back into the store when they are evicted from the cache or before the table is snapshotted.
+ * Objects returned by this table must therefore not be modified once other mappings have been accessed.
+ *
+ * <p>Reads modify the write-back cache and share serialization buffers, so this table must only be accessed by the
+ * task thread. The {@link HeapKeyedStateBackend} therefore rejects queryable state for off-heap state tables.
+ *
+ * <p>Like {@link NestedMapsStateTable}, this implementation does not support asynchronous snapshots. Snapshots are
+ * written in the same format as the other state tables, so state can be restored into any heap state table.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of state.
+ */
+@Internal
+public class OffHeapStateTable<K, N, S> extends StateTable<K, N, S> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OffHeapStateTable.class);
+
+	/** The number of deserialized mappings that are kept in the write-back cache. */
+	@VisibleForTesting
+	static final int WRITE_BACK_CACHE_CAPACITY = 64;
+
+	/** The stores for the key-groups of this table, created lazily. */
+	private final SerializedKeyGroupStore[] keyGroupStores;
+
+	/** The offset to the contiguous key groups. */
+	private final int keyGroupOffset;
+
+	private final OffHeapStateMemoryPool memoryPool;
+
+	/** Recently accessed mappings in deserialized form, in least-recently-accessed order. */
+	private final WriteBackCache writeBackCache;
+
+	/** Buffer for the serialized key, directly followed by the serialized namespace. */
+	private final DataOutputSerializer keyAndNamespaceBuffer;
+
+	/** Buffer for serialized values. */
+	private final DataOutputSerializer valueBuffer;
+
+	/** View to deserialize values from the stores. */
+	private final DataInputDeserializer valueView;
+
+	/** The length of the key in {@link #keyAndNamespaceBuffer}. */
+	private int serializedKeyLength;
+
+	/**
+	 * Creates a new {@link OffHeapStateTable} for the given key context and meta info.
+	 *
+	 * @param keyContext the key context.
+	 * @param metaInfo the meta information for this state table.
+	 * @param memoryPool the pool that provides the off-heap memory for the serialized mappings.
+	 */
+	public OffHeapStateTable(
+		InternalKeyContext<K> keyContext,
+		RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+		OffHeapStateMemoryPool memoryPool) {
+
+		super(keyContext, metaInfo);
+		this.memoryPool = Preconditions.checkNotNull(memoryPool);
+		this.keyGroupOffset = keyContext.getKeyGroupRange().getStartKeyGroup();
+		this.keyGroupStores = new SerializedKeyGroupStore[keyContext.getKeyGroupRange().getNumberOfKeyGroups()];
+		this.writeBackCache = new WriteBackCache();
+		this.keyAndNamespaceBuffer = new DataOutputSerializer(64);
+		this.valueBuffer = new DataOutputSerializer(128);
+		this.valueView = new DataInputDeserializer();
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		flushWriteBackCache();
+		int count = 0;
+		for (SerializedKeyGroupStore store : keyGroupStores) {
+			if (store != null) {
+				count += store.size();
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public S get(N namespace) {
+		return get(keyContext.getCurrentKey(), keyContext.getCurrentKeyGroupIndex(), namespace);
+	}
+
+	@Override
+	public boolean containsKey(N namespace) {
+		final K key = keyContext.getCurrentKey();
+		checkKeyNamespacePreconditions(key, namespace);
+
+		if (writeBackCache.containsKey(Tuple2.of(key, namespace))) {
+			return true;
+		}
+
+		final SerializedKeyGroupStore store = getStore(keyContext.getCurrentKeyGroupIndex());
+		if (store == null) {
+			return false;
+		}
+
+		try {
+			serializeKeyAndNamespace(key, namespace);
+			return store.contains(keyAndNamespaceBuffer.getSharedBuffer(), keyAndNamespaceBuffer.length());
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Error while accessing off-heap state.", e);
+		}
+	}
+
+	@Override
+	public void put(N namespace, S state) {
+		put(keyContext.getCurrentKey(), keyContext.getCurrentKeyGroupIndex(), namespace, state, true);
+	}
+
+	@Override
+	public S putAndGetOld(N namespace, S state) {
+		final K key = keyContext.getCurrentKey();
+		final int keyGroup = keyContext.getCurrentKeyGroupIndex();
+		final S oldState = get(key, keyGroup, namespace);
+		put(key, keyGroup, namespace, state, true);
+		return oldState;
+	}
+
+	@Override
+	public void remove(N namespace) {
+		remove(keyContext.getCurrentKey(), keyContext.getCurrentKeyGroupIndex(), namespace);
+	}
+
+	@Override
+	public S removeAndGetOld(N namespace) {
+		final K key = keyContext.getCurrentKey();
+		final int keyGroup = keyContext.getCurrentKeyGroupIndex();
+		final S oldState = get(key, keyGroup, namespace);
+		remove(key, keyGroup, namespace);
+		return oldState;
+	}
+
+	@Override
+	public <T> void transform(
+		N namespace,
+		T value,
+		StateTransformationFunction<S, T> transformation) throws Exception {
+
+		final K key = keyContext.getCurrentKey();
+		final int keyGroup = keyContext.getCurrentKeyGroupIndex();
+		put(key, keyGroup, namespace, transformation.apply(get(key, keyGroup, namespace), value), true);
+	}
+
+	@Override
+	public S get(K key, N namespace) {
+		final int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, keyContext.getNumberOfKeyGroups());
+		return get(key, keyGroup, namespace);
+	}
+
+	@Override
+	public Stream<K> getKeys(N namespace) {
+		flushWriteBackCache();
+
+		final TypeSerializer<K> keySerializer = keyContext.getKeySerializer();
+		final DataInputDeserializer keyView = new DataInputDeserializer();
+		final List<K> keys = new ArrayList<>();
+		try {
+			final byte[] serializedNamespace = serializeNamespace(namespace);
+			for (SerializedKeyGroupStore store : keyGroupStores) {
+				if (store != null) {
+					store.forEachRecord((record, keyLength, namespaceLength, valueLength) -> {
+						if (namespaceEquals(record, keyLength, namespaceLength, serializedNamespace)) {
+							keyView.setBuffer(record, 0, keyLength);
+							keys.add(keySerializer.deserialize(keyView));
+						}
+					});
+				}
+			}
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Error while accessing off-heap state.", e);
+		}
+		return keys.stream();
+	}
+
+	@Override
+	public void put(K key, int keyGroup, N namespace, S state) {
+		put(key, keyGroup, namespace, state, false);
+	}
+
+	@Override
+	public int sizeOfNamespace(Object namespace) {
+		flushWriteBackCache();
+
+		@SuppressWarnings("unchecked")
+		final N typedNamespace = (N) namespace;
+		final int[] count = new int[1];
+		try {
+			final byte[] serializedNamespace = serializeNamespace(typedNamespace);
+			for (SerializedKeyGroupStore store : keyGroupStores) {
+				if (store != null) {
+					store.forEachRecord((record, keyLength, namespaceLength, valueLength) -> {
+						if (namespaceEquals(record, keyLength, namespaceLength, serializedNamespace)) {
+							++count[0];
+						}
+					});
+				}
+			}
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Error while accessing off-heap state.", e);
+		}
+		return count[0];
+	}
+
+	@Override
+	public void removeKeyGroups(IntPredicate keyGroupFilter) {
+		writeBackCache.values().removeIf(mapping -> keyGroupFilter.test(mapping.keyGroup));
+
+		for (int pos = 0; pos < keyGroupStores.length; ++pos) {
+			final SerializedKeyGroupStore store = keyGroupStores[pos];
+			if (store != null && keyGroupFilter.test(keyGroupOffset + pos)) {
+				keyGroupStores[pos] = null;
+				try {
+					store.dispose();
+				} catch (IOException e) {
+					throw new FlinkRuntimeException("Error while releasing off-heap state.", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases all off-heap memory and spill files of this table.
+	 */
+	public void dispose() {
+		writeBackCache.clear();
+		for (int i = 0; i < keyGroupStores.length; ++i) {
+			final SerializedKeyGroupStore store = keyGroupStores[i];
+			if (store != null) {
+				keyGroupStores[i] = null;
+				try {
+					store.dispose();
+				} catch (IOException e) {
+					LOG.warn("Could not release the off-heap state of key-group {} of state {}.",
+						keyGroupOffset + i, metaInfo.getName(), e);
+				}
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private S get(K key, int keyGroup, N namespace) {
+		checkKeyNamespacePreconditions(key, namespace);
+
+		final Tuple2<K, N> cacheKey = Tuple2.of(key, namespace);
+		final CachedMapping<S> cached = writeBackCache.get(cacheKey);
+		if (cached != null) {
+			return cached.state;
+		}
+
+		final SerializedKeyGroupStore store = getStore(keyGroup);
+		if (store == null) {
+			return null;
+		}
+
+		final S state;
+		try {
+			serializeKeyAndNamespace(key, namespace);
+			if (!store.get(keyAndNamespaceBuffer.getSharedBuffer(), keyAndNamespaceBuffer.length(), valueView)) {
+				return null;
+			}
+			state = metaInfo.getStateSerializer().deserialize(valueView);
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Error while accessing off-heap state.", e);
+		}
+
+		// the returned object might be modified in place, so it is written back on eviction
+		writeBackCache.put(cacheKey, new CachedMapping<>(keyGroup, state));
+		return state;
+	}
+
+	private void put(K key, int keyGroup, N namespace, S state, boolean cache) {
+		checkKeyNamespacePreconditions(key, namespace);
+
+		if (state == null) {
+			// null states are not serializable, so we treat them as absent
+			remove(key, keyGroup, namespace);
+		} else if (cache) {
+			writeBackCache.put(Tuple2.of(key, namespace), new CachedMapping<>(keyGroup, state));
+		} else {
+			writeToStore(key, keyGroup, namespace, state);
+		}
+	}
+
+	private void remove(K key, int keyGroup, N namespace) {
+		checkKeyNamespacePreconditions(key, namespace);
+
+		writeBackCache.remove(Tuple2.of(key, namespace));
+
+		final SerializedKeyGroupStore store = getStore(keyGroup);
+		if (store != null) {
+			try {
+				serializeKeyAndNamespace(key, namespace);
+				store.remove(keyAndNamespaceBuffer.getSharedBuffer(), keyAndNamespaceBuffer.length());
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Error while accessing off-heap state.", e);
+			}
+		}
+	}
+
+	private void writeToStore(K key, int keyGroup, N namespace, S state) {
+		try {
+			serializeKeyAndNamespace(key, namespace);
+			valueBuffer.clear();
+			metaInfo.getStateSerializer().serialize(state, valueBuffer);
+			getOrCreateStore(keyGroup).put(
+				keyAndNamespaceBuffer.getSharedBuffer(),
+				serializedKeyLength,
+				keyAndNamespaceBuffer.length() - serializedKeyLength,
+				valueBuffer.getSharedBuffer(),
+				valueBuffer.length());
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Error while accessing off-heap state.", e);
+		}
+	}
+
+	/**
+	 * Serializes all cached mappings into their stores and empties the cache.
+	 */
+	@VisibleForTesting
+	void flushWriteBackCache() {
+		for (Map.Entry<Tuple2<K, N>, CachedMapping<S>> entry : writeBackCache.entrySet()) {
+			final Tuple2<K, N> keyAndNamespace = entry.getKey();
+			final CachedMapping<S> mapping = entry.getValue();
+			writeToStore(keyAndNamespace.f0, mapping.keyGroup, keyAndNamespace.f1, mapping.state);
+		}
+		writeBackCache.clear();
+	}
+
+	private void serializeKeyAndNamespace(K key, N namespace) throws IOException {
+		keyAndNamespaceBuffer.clear();
+		keyContext.getKeySerializer().serialize(key, keyAndNamespaceBuffer);
+		serializedKeyLength = keyAndNamespaceBuffer.length();
+		metaInfo.getNamespaceSerializer().serialize(namespace, keyAndNamespaceBuffer);
+	}
+
+	private byte[] serializeNamespace(N namespace) throws IOException {
+		final DataOutputSerializer namespaceBuffer = new DataOutputSerializer(32);
+		metaInfo.getNamespaceSerializer().serialize(namespace, namespaceBuffer);
+		return namespaceBuffer.getCopyOfBuffer();
+	}
+
+	private static boolean namespaceEquals(byte[] record, int keyLength, int namespaceLength, byte[] namespace) {
+		if (namespaceLength != namespace.length) {
+			return false;
+		}
+		for (int i = 0; i < namespaceLength; ++i) {
+			if (record[keyLength + i] != namespace[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private SerializedKeyGroupStore getStore(int keyGroup) {
+		final int pos = keyGroup - keyGroupOffset;
+		Preconditions.checkArgument(pos >= 0 && pos < keyGroupStores.length,
+			"Key group index %s is out of range of key group range [%s, %s).",
+			keyGroup, keyGroupOffset, keyGroupOffset + keyGroupStores.length);
+		return keyGroupStores[pos];
+	}
+
+	private SerializedKeyGroupStore getOrCreateStore(int keyGroup) {
+		SerializedKeyGroupStore store = getStore(keyGroup);
+		if (store == null) {
+			store = new SerializedKeyGroupStore(memoryPool);
+			keyGroupStores[keyGroup - keyGroupOffset] = store;
+		}
+		return store;
+	}
+
+	@VisibleForTesting
+	SerializedKeyGroupStore getStoreForKeyGroup(int keyGroup) {
+		return getStore(keyGroup);
+	}
+
+	private void checkKeyNamespacePreconditions(K key, N namespace) {
+		Preconditions.checkNotNull(key, "No key set. This method should not be called outside of a keyed context.");
+		Preconditions.checkNotNull(namespace, "Provided namespace is null.");
+	}
+
+	// snapshots ---------------------------------------------------------------------------------------------------
+
+	@Nonnull
+	@Override
+	public OffHeapStateTableSnapshot<K, N, S> stateSnapshot() {
+		flushWriteBackCache();
+		return new OffHeapStateTableSnapshot<>(this, metaInfo.getSnapshotTransformer());
+	}
+
+	/**
+	 * A deserialized mapping in the write-back cache.
+	 */
+	private static final class CachedMapping<S> {
+
+		final int keyGroup;
+
+		final S state;
+
+		CachedMapping(int keyGroup, S state) {
+			this.keyGroup = keyGroup;
+			this.state = state;
+		}
+	}
+
+	/**
+	 * LRU cache of deserialized mappings that serializes evicted mappings back into their stores.
+	 */
+	private final class WriteBackCache extends LinkedHashMap<Tuple2<K, N>, CachedMapping<S>> {
+
+		private static final long serialVersionUID = 1L;
+
+		WriteBackCache() {
+			super(WRITE_BACK_CACHE_CAPACITY, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Tuple2<K, N>, CachedMapping<S>> eldest) {
+			if (size() > WRITE_BACK_CACHE_CAPACITY) {
+				final CachedMapping<S> mapping = eldest.getValue();
+				writeToStore(eldest.getKey().f0, mapping.keyGroup, eldest.getKey().f1, mapping.state);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * This class encapsulates the snapshot logic. The serialized mappings are copied from the stores as they are,
+	 * unless a snapshot transformer is configured.
+	 *
+	 * @param <K> type of key.
+	 * @param <N> type of namespace.
+	 * @param <S> type of state.
+	 */
+	static class OffHeapStateTableSnapshot<K, N, S>
+		extends AbstractStateTableSnapshot<K, N, S, OffHeapStateTable<K, N, S>>
+		implements StateSnapshot.StateKeyGroupWriter {
+
+		private final TypeSerializer<S> stateSerializer;
+
+		private final StateSnapshotTransformer<S> snapshotFilter;
+
+		OffHeapStateTableSnapshot(OffHeapStateTable<K, N, S> owningTable, StateSnapshotTransformer<S> snapshotFilter) {
+			super(owningTable);
+			this.snapshotFilter = snapshotFilter;
+			this.stateSerializer = owningStateTable.metaInfo.getStateSerializer();
+		}
+
+		@Nonnull
+		@Override
+		public StateKeyGroupWriter getKeyGroupWriter() {
+			return this;
+		}
+
+		@Nonnull
+		@Override
+		public StateMetaInfoSnapshot getMetaInfoSnapshot() {
+			return owningStateTable.metaInfo.snapshot();
+		}
+
+		/**
+		 * Writes the mappings in the format of {@link CopyOnWriteStateTable}: the number of mappings, followed by
+		 * namespace, key and state of each mapping.
+		 */
+		@Override
+		public void writeStateInKeyGroup(@Nonnull DataOutputView dov, int keyGroupId) throws IOException {
+			final SerializedKeyGroupStore store = owningStateTable.getStore(keyGroupId);
+			if (store == null) {
+				dov.writeInt(0);
+			} else if (snapshotFilter == null) {
+				dov.writeInt(store.size());
+				store.forEachRecord((record, keyLength, namespaceLength, valueLength) -> {
+					dov.write(record, keyLength, namespaceLength);
+					dov.write(record, 0, keyLength);
+					dov.write(record, keyLength + namespaceLength, valueLength);
+				});
+			} else {
+				writeFilteredStateInKeyGroup(dov, store);
+			}
+		}
+
+		private void writeFilteredStateInKeyGroup(DataOutputView dov, SerializedKeyGroupStore store) throws IOException {
+			final DataInputDeserializer valueView = new DataInputDeserializer();
+			final DataOutputSerializer filteredMappings = new DataOutputSerializer(1024);
+			final int[] count = new int[1];
+
+			store.forEachRecord((record, keyLength, namespaceLength, valueLength) -> {
+				valueView.setBuffer(record, keyLength + namespaceLength, valueLength);
+				final S transformedValue = snapshotFilter.filterOrTransform(stateSerializer.deserialize(valueView));
+				if (transformedValue != null) {
+					filteredMappings.write(record, keyLength, namespaceLength);
+					filteredMappings.write(record, 0, keyLength);
+					stateSerializer.serialize(transformedValue, filteredMappings);
+					++count[0];
+				}
+			});
+
+			dov.writeInt(count[0]);
+			dov.write(filteredMappings.getSharedBuffer(), 0, filteredMappings.length());
+		}
+	}
+}
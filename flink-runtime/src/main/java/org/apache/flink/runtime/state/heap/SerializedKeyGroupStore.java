@@ -0,0 +1,592 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.iomanager.BlockChannelReader;
+import org.apache.flink.runtime.io.disk.iomanager.BlockChannelWriter;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the serialized mappings of one key-group of an {@link OffHeapStateTable} in memory segments that are
+ * borrowed from an {@link OffHeapStateMemoryPool}.
+ *
+ * <p>Mappings are appended as records to a log that spans the segments of the store. Each record has the layout
+ * {@code [key length | namespace length | value length | key bytes | namespace bytes | value bytes]}, where only the
+ * fixed-size header is guaranteed to not cross a segment boundary. An open-addressing hash index with linear probing
+ * maps the serialized composite of key and namespace to the log position of its latest record. The index consists
+ * only of primitive arrays, so the number of objects on the Java heap is independent of the number of mappings.
+ *
+ * <p>Overwritten and removed records remain in the log as garbage until the store is compacted, which happens once
+ * more than half of the log is garbage. The whole log can be spilled to disk when the pool runs out of memory, and is
+ * read back on the next access to the store.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class SerializedKeyGroupStore {
+
+	/** Marker for unused slots in the index. */
+	private static final long EMPTY_SLOT = -1L;
+
+	/** Size of the record header: key length, namespace length and value length. */
+	private static final int RECORD_HEADER_SIZE = 3 * Integer.BYTES;
+
+	private static final int INITIAL_INDEX_CAPACITY = 16;
+
+	/** Compaction is only considered for logs that span at least this many segments. */
+	private static final int MIN_SEGMENTS_FOR_COMPACTION = 4;
+
+	private final OffHeapStateMemoryPool memoryPool;
+
+	private final int segmentSize;
+
+	private final int segmentSizeBits;
+
+	private final int segmentSizeMask;
+
+	/** The segments that hold the record log while the store is resident in memory. */
+	private final ArrayList<MemorySegment> segments;
+
+	/** The log position at which the next record is appended. */
+	private long appendPosition;
+
+	/** The number of bytes in the log that belong to the latest record of a mapping. */
+	private long liveBytes;
+
+	/** Log positions of the records, indexed by hash slot. */
+	private long[] slotPositions;
+
+	/** Hashes of the serialized key and namespace of the records, indexed by hash slot. */
+	private int[] slotHashes;
+
+	/** The number of mappings in this store. */
+	private int size;
+
+	/** The file to which the log was spilled, or null if the store is resident. */
+	@Nullable
+	private FileIOChannel.ID spillChannel;
+
+	/** The number of segments that were written to the spill file. */
+	private int numberOfSpilledSegments;
+
+	/** Reusable buffer to compare keys and to hand out records. */
+	private byte[] scratch;
+
+	SerializedKeyGroupStore(@Nonnull OffHeapStateMemoryPool memoryPool) {
+		this.memoryPool = memoryPool;
+		this.segmentSize = memoryPool.getSegmentSize();
+		this.segmentSizeBits = MathUtils.log2strict(segmentSize);
+		this.segmentSizeMask = segmentSize - 1;
+		this.segments = new ArrayList<>();
+		this.slotPositions = new long[INITIAL_INDEX_CAPACITY];
+		this.slotHashes = new int[INITIAL_INDEX_CAPACITY];
+		this.scratch = new byte[128];
+		Arrays.fill(slotPositions, EMPTY_SLOT);
+	}
+
+	// ------------------------------------------------------------------------
+	//  map operations
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the number of mappings in this store.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Looks up the value for the given serialized key and namespace and points the given view to its bytes. The
+	 * view is only valid until the next operation on this store.
+	 *
+	 * @return true if a mapping was found.
+	 */
+	boolean get(byte[] keyAndNamespace, int length, DataInputDeserializer valueView) throws IOException {
+		if (size == 0) {
+			return false;
+		}
+
+		ensureResident();
+		final int slot = findSlot(keyAndNamespace, length, hash(keyAndNamespace, length));
+		if (slot < 0) {
+			return false;
+		}
+
+		final long position = slotPositions[slot];
+		final int valueLength = readInt(position + 2 * Integer.BYTES);
+		ensureScratchCapacity(valueLength);
+		readBytes(segments, position + RECORD_HEADER_SIZE + length, scratch, 0, valueLength);
+		valueView.setBuffer(scratch, 0, valueLength);
+		return true;
+	}
+
+	boolean contains(byte[] keyAndNamespace, int length) throws IOException {
+		if (size == 0) {
+			return false;
+		}
+
+		ensureResident();
+		return findSlot(keyAndNamespace, length, hash(keyAndNamespace, length)) >= 0;
+	}
+
+	/**
+	 * Maps the serialized key and namespace to the serialized value. If the store already contains the same value for
+	 * the key and namespace, the log is not modified.
+	 *
+	 * @param keyAndNamespace the serialized key, directly followed by the serialized namespace.
+	 * @param keyLength the length of the serialized key.
+	 * @param namespaceLength the length of the serialized namespace.
+	 * @param value the serialized value.
+	 * @param valueLength the length of the serialized value.
+	 */
+	void put(
+		byte[] keyAndNamespace,
+		int keyLength,
+		int namespaceLength,
+		byte[] value,
+		int valueLength) throws IOException {
+
+		ensureResident();
+
+		final int length = keyLength + namespaceLength;
+		final int hash = hash(keyAndNamespace, length);
+		final int slot = findSlot(keyAndNamespace, length, hash);
+
+		if (slot >= 0) {
+			final long oldPosition = slotPositions[slot];
+			if (valueEquals(oldPosition + RECORD_HEADER_SIZE + length, readInt(oldPosition + 2 * Integer.BYTES), value, valueLength)) {
+				return;
+			}
+
+			final int oldRecordSize = recordSize(oldPosition);
+			slotPositions[slot] = append(keyLength, namespaceLength, valueLength, keyAndNamespace, 0, value, 0);
+			liveBytes -= oldRecordSize;
+		} else {
+			final int insertSlot = -(slot + 1);
+			slotPositions[insertSlot] = append(keyLength, namespaceLength, valueLength, keyAndNamespace, 0, value, 0);
+			slotHashes[insertSlot] = hash;
+			if (++size > (slotPositions.length >> 1) + (slotPositions.length >> 2)) {
+				growIndex();
+			}
+		}
+
+		compactIfNeeded();
+	}
+
+	/**
+	 * Removes the mapping for the given serialized key and namespace.
+	 *
+	 * @return true if a mapping was removed.
+	 */
+	boolean remove(byte[] keyAndNamespace, int length) throws IOException {
+		if (size == 0) {
+			return false;
+		}
+
+		ensureResident();
+		final int slot = findSlot(keyAndNamespace, length, hash(keyAndNamespace, length));
+		if (slot < 0) {
+			return false;
+		}
+
+		liveBytes -= recordSize(slotPositions[slot]);
+		deleteSlot(slot);
+
+		if (--size == 0) {
+			releaseSegments();
+			appendPosition = 0L;
+			liveBytes = 0L;
+		} else {
+			compactIfNeeded();
+		}
+		return true;
+	}
+
+	/**
+	 * Hands all records of this store to the given visitor. The visitor must not modify this store.
+	 */
+	void forEachRecord(RecordVisitor visitor) throws IOException {
+		if (size == 0) {
+			return;
+		}
+
+		ensureResident();
+		for (long position : slotPositions) {
+			if (position != EMPTY_SLOT) {
+				final int keyLength = readInt(position);
+				final int namespaceLength = readInt(position + Integer.BYTES);
+				final int valueLength = readInt(position + 2 * Integer.BYTES);
+				final int bodyLength = keyLength + namespaceLength + valueLength;
+				ensureScratchCapacity(bodyLength);
+				readBytes(segments, position + RECORD_HEADER_SIZE, scratch, 0, bodyLength);
+				visitor.visit(scratch, keyLength, namespaceLength, valueLength);
+			}
+		}
+	}
+
+	/**
+	 * Releases all memory and deletes the spill file of this store. The store is empty afterwards.
+	 */
+	void dispose() throws IOException {
+		releaseSegments();
+		appendPosition = 0L;
+		liveBytes = 0L;
+		size = 0;
+		slotPositions = new long[INITIAL_INDEX_CAPACITY];
+		slotHashes = new int[INITIAL_INDEX_CAPACITY];
+		Arrays.fill(slotPositions, EMPTY_SLOT);
+
+		if (spillChannel != null) {
+			final FileIOChannel.ID channel = spillChannel;
+			spillChannel = null;
+			numberOfSpilledSegments = 0;
+			Preconditions.checkNotNull(memoryPool.getIOManager()).deleteChannel(channel);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  spilling
+	// ------------------------------------------------------------------------
+
+	int getNumberOfResidentSegments() {
+		return segments.size();
+	}
+
+	@VisibleForTesting
+	boolean isSpilled() {
+		return spillChannel != null;
+	}
+
+	/**
+	 * Writes the log of this store to a new file and returns all segments to the pool.
+	 */
+	void spill(IOManager ioManager) throws IOException {
+		Preconditions.checkState(spillChannel == null, "Store is already spilled.");
+
+		final FileIOChannel.ID channel = ioManager.createChannel();
+		final BlockChannelWriter<MemorySegment> writer = ioManager.createBlockChannelWriter(channel);
+		try {
+			for (MemorySegment segment : segments) {
+				writer.writeBlock(segment);
+			}
+			writer.close();
+		} catch (IOException e) {
+			writer.closeAndDelete();
+			throw e;
+		}
+
+		spillChannel = channel;
+		numberOfSpilledSegments = segments.size();
+		releaseSegments();
+	}
+
+	private void ensureResident() throws IOException {
+		memoryPool.touch(this);
+
+		if (spillChannel == null) {
+			return;
+		}
+
+		try {
+			for (int i = 0; i < numberOfSpilledSegments; ++i) {
+				segments.add(memoryPool.requestSegment(this));
+			}
+
+			final BlockChannelReader<MemorySegment> reader =
+				Preconditions.checkNotNull(memoryPool.getIOManager()).createBlockChannelReader(spillChannel);
+			try {
+				for (MemorySegment segment : segments) {
+					reader.readBlock(segment);
+				}
+			} finally {
+				// waits for all outstanding reads
+				reader.closeAndDelete();
+			}
+		} catch (IOException e) {
+			releaseSegments();
+			throw e;
+		}
+
+		spillChannel = null;
+		numberOfSpilledSegments = 0;
+	}
+
+	private void releaseSegments() {
+		for (MemorySegment segment : segments) {
+			memoryPool.recycle(segment);
+		}
+		segments.clear();
+		memoryPool.evicted(this);
+	}
+
+	// ------------------------------------------------------------------------
+	//  log and index internals
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Appends a record to the log and returns its position.
+	 */
+	private long append(
+		int keyLength,
+		int namespaceLength,
+		int valueLength,
+		byte[] keyAndNamespace,
+		int keyAndNamespaceOffset,
+		byte[] value,
+		int valueOffset) throws IOException {
+
+		final int remainingInSegment = segmentSize - (int) (appendPosition & segmentSizeMask);
+		if (remainingInSegment < RECORD_HEADER_SIZE) {
+			// the header must not cross a segment boundary, the skipped bytes are garbage
+			appendPosition += remainingInSegment;
+		}
+
+		final long recordPosition = appendPosition;
+		final int recordSize = RECORD_HEADER_SIZE + keyLength + namespaceLength + valueLength;
+
+		while (((long) segments.size() << segmentSizeBits) < recordPosition + recordSize) {
+			segments.add(memoryPool.requestSegment(this));
+		}
+
+		final MemorySegment headerSegment = segments.get((int) (recordPosition >>> segmentSizeBits));
+		final int headerOffset = (int) (recordPosition & segmentSizeMask);
+		headerSegment.putInt(headerOffset, keyLength);
+		headerSegment.putInt(headerOffset + Integer.BYTES, namespaceLength);
+		headerSegment.putInt(headerOffset + 2 * Integer.BYTES, valueLength);
+
+		final long keyPosition = recordPosition + RECORD_HEADER_SIZE;
+		writeBytes(keyPosition, keyAndNamespace, keyAndNamespaceOffset, keyLength + namespaceLength);
+		writeBytes(keyPosition + keyLength + namespaceLength, value, valueOffset, valueLength);
+
+		appendPosition = recordPosition + recordSize;
+		liveBytes += recordSize;
+		return recordPosition;
+	}
+
+	private void compactIfNeeded() throws IOException {
+		if (segments.size() >= MIN_SEGMENTS_FOR_COMPACTION && appendPosition - liveBytes > liveBytes) {
+			compact();
+		}
+	}
+
+	/**
+	 * Copies all live records into a fresh log and returns the segments of the old log to the pool.
+	 */
+	private void compact() throws IOException {
+		final List<MemorySegment> oldSegments = new ArrayList<>(segments);
+		segments.clear();
+		appendPosition = 0L;
+		liveBytes = 0L;
+
+		for (int slot = 0; slot < slotPositions.length; ++slot) {
+			final long oldPosition = slotPositions[slot];
+			if (oldPosition != EMPTY_SLOT) {
+				final MemorySegment headerSegment = oldSegments.get((int) (oldPosition >>> segmentSizeBits));
+				final int headerOffset = (int) (oldPosition & segmentSizeMask);
+				final int keyLength = headerSegment.getInt(headerOffset);
+				final int namespaceLength = headerSegment.getInt(headerOffset + Integer.BYTES);
+				final int valueLength = headerSegment.getInt(headerOffset + 2 * Integer.BYTES);
+				final int keyAndNamespaceLength = keyLength + namespaceLength;
+
+				ensureScratchCapacity(keyAndNamespaceLength + valueLength);
+				readBytes(oldSegments, oldPosition + RECORD_HEADER_SIZE, scratch, 0, keyAndNamespaceLength + valueLength);
+				slotPositions[slot] =
+					append(keyLength, namespaceLength, valueLength, scratch, 0, scratch, keyAndNamespaceLength);
+			}
+		}
+
+		for (MemorySegment segment : oldSegments) {
+			memoryPool.recycle(segment);
+		}
+	}
+
+	/**
+	 * Returns the slot that holds the given key and namespace, or {@code -(insertion slot + 1)} if there is no such
+	 * slot.
+	 */
+	private int findSlot(byte[] keyAndNamespace, int length, int hash) {
+		final int mask = slotPositions.length - 1;
+		int slot = hash & mask;
+		while (true) {
+			final long position = slotPositions[slot];
+			if (position == EMPTY_SLOT) {
+				return -(slot + 1);
+			}
+			if (slotHashes[slot] == hash && keyEquals(position, keyAndNamespace, length)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Clears the given slot and shifts back following entries of the probe sequence, so that no tombstones are needed.
+	 */
+	private void deleteSlot(int slot) {
+		final int mask = slotPositions.length - 1;
+		int free = slot;
+		int current = slot;
+		slotPositions[free] = EMPTY_SLOT;
+
+		while (true) {
+			current = (current + 1) & mask;
+			if (slotPositions[current] == EMPTY_SLOT) {
+				return;
+			}
+
+			final int home = slotHashes[current] & mask;
+			final boolean reachable = free <= current ?
+				(free < home && home <= current) :
+				(free < home || home <= current);
+
+			if (!reachable) {
+				slotPositions[free] = slotPositions[current];
+				slotHashes[free] = slotHashes[current];
+				slotPositions[current] = EMPTY_SLOT;
+				free = current;
+			}
+		}
+	}
+
+	private void growIndex() {
+		final long[] oldPositions = slotPositions;
+		final int[] oldHashes = slotHashes;
+		final int newCapacity = oldPositions.length << 1;
+		final int mask = newCapacity - 1;
+
+		slotPositions = new long[newCapacity];
+		slotHashes = new int[newCapacity];
+		Arrays.fill(slotPositions, EMPTY_SLOT);
+
+		for (int i = 0; i < oldPositions.length; ++i) {
+			if (oldPositions[i] != EMPTY_SLOT) {
+				int slot = oldHashes[i] & mask;
+				while (slotPositions[slot] != EMPTY_SLOT) {
+					slot = (slot + 1) & mask;
+				}
+				slotPositions[slot] = oldPositions[i];
+				slotHashes[slot] = oldHashes[i];
+			}
+		}
+	}
+
+	private boolean keyEquals(long position, byte[] keyAndNamespace, int length) {
+		final int storedLength = readInt(position) + readInt(position + Integer.BYTES);
+		if (storedLength != length) {
+			return false;
+		}
+		ensureScratchCapacity(length);
+		readBytes(segments, position + RECORD_HEADER_SIZE, scratch, 0, length);
+		return rangeEquals(scratch, keyAndNamespace, length);
+	}
+
+	private boolean valueEquals(long valuePosition, int storedLength, byte[] value, int length) {
+		if (storedLength != length) {
+			return false;
+		}
+		ensureScratchCapacity(length);
+		readBytes(segments, valuePosition, scratch, 0, length);
+		return rangeEquals(scratch, value, length);
+	}
+
+	private int recordSize(long position) {
+		return RECORD_HEADER_SIZE + readInt(position) + readInt(position + Integer.BYTES) +
+			readInt(position + 2 * Integer.BYTES);
+	}
+
+	/**
+	 * Reads an int of a record header. Headers never cross segment boundaries.
+	 */
+	private int readInt(long position) {
+		return segments.get((int) (position >>> segmentSizeBits)).getInt((int) (position & segmentSizeMask));
+	}
+
+	private void writeBytes(long position, byte[] source, int offset, int length) {
+		while (length > 0) {
+			final int segmentOffset = (int) (position & segmentSizeMask);
+			final int chunk = Math.min(length, segmentSize - segmentOffset);
+			segments.get((int) (position >>> segmentSizeBits)).put(segmentOffset, source, offset, chunk);
+			position += chunk;
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+
+	private void readBytes(List<MemorySegment> source, long position, byte[] target, int offset, int length) {
+		while (length > 0) {
+			final int segmentOffset = (int) (position & segmentSizeMask);
+			final int chunk = Math.min(length, segmentSize - segmentOffset);
+			source.get((int) (position >>> segmentSizeBits)).get(segmentOffset, target, offset, chunk);
+			position += chunk;
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+
+	private void ensureScratchCapacity(int capacity) {
+		if (scratch.length < capacity) {
+			scratch = new byte[Math.max(capacity, scratch.length << 1)];
+		}
+	}
+
+	private static boolean rangeEquals(byte[] a, byte[] b, int length) {
+		for (int i = 0; i < length; ++i) {
+			if (a[i] != b[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(byte[] bytes, int length) {
+		int hash = 1;
+		for (int i = 0; i < length; ++i) {
+			hash = 31 * hash + bytes[i];
+		}
+		return MathUtils.jenkinsHash(hash);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Callback for iterating the records of a store.
+	 */
+	@FunctionalInterface
+	interface RecordVisitor {
+
+		/**
+		 * Visits one record. The record buffer holds the serialized key, namespace and value back to back, starting
+		 * at index 0, and is only valid during this call.
+		 */
+		void visit(byte[] record, int keyLength, int namespaceLength, int valueLength) throws IOException;
+	}
+}
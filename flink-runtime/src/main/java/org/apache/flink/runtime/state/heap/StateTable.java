@@ -28,6 +28,7 @@ import org.apache.flink.util.Preconditions;
 
 import javax.annotation.Nonnull;
 
+import java.util.function.IntPredicate;
 import java.util.stream.Stream;
 
 /**
@@ -188,6 +189,13 @@ public abstract class StateTable<K, N, S> implements StateSnapshotRestore {
 
 	public abstract void put(K key, int keyGroup, N namespace, S state);
 
+	/**
+	 * Removes all mappings in the key-groups that are accepted by the given filter, regardless of the active key.
+	 *
+	 * @param keyGroupFilter accepts the ids of the key-groups whose mappings are removed.
+	 */
+	public abstract void removeKeyGroups(IntPredicate keyGroupFilter);
+
 	// For testing --------------------------------------------------------------------------------
 
 	@VisibleForTesting
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.internal;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link InternalValueState} whose value can be read without blocking the calling thread, for
+ * state backends that read from disk.
+ *
+ * <p>The read addresses the current key and namespace at the time of the call, but is executed
+ * later in another thread. Writes to the same key and namespace that happen after the call may or
+ * may not be visible to the read, so callers have to order the accesses to a key themselves.
+ *
+ * @param <K> The type of key the state is associated to
+ * @param <N> The type of the namespace
+ * @param <T> The type of the value
+ */
+public interface InternalAsyncValueState<K, N, T> extends InternalValueState<K, N, T> {
+
+	/**
+	 * Reads the value of the current key and namespace asynchronously. The future completes in a
+	 * thread of the state backend, the value is the same that {@link #value()} returns.
+	 *
+	 * @return A future with the value, which completes exceptionally if the read failed.
+	 */
+	CompletableFuture<T> asyncValue();
+}
@@ -84,6 +84,13 @@ public interface InternalKvState<K, N, V> extends State {
 	 */
 	void setCurrentNamespace(N namespace);
 
+	/**
+	 * Returns the current namespace, which is used when using the state access methods.
+	 *
+	 * @return The namespace, or null if none was set yet.
+	 */
+	N getCurrentNamespace();
+
 	/**
 	 * Returns the serialized value for the given key and namespace.
 	 *
@@ -70,6 +70,11 @@ abstract class AbstractTtlState<K, N, SV, TTLSV, S extends InternalKvState<K, N,
 		original.setCurrentNamespace(namespace);
 	}
 
+	@Override
+	public N getCurrentNamespace() {
+		return original.getCurrentNamespace();
+	}
+
 	@Override
 	public byte[] getSerializedValue(
 		byte[] serializedKeyAndNamespace,
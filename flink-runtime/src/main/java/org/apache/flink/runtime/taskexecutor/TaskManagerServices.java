@@ -270,7 +270,8 @@ public class TaskManagerServices {
 		final TaskExecutorLocalStateStoresManager taskStateManager = new TaskExecutorLocalStateStoresManager(
 			taskManagerServicesConfiguration.isLocalRecoveryEnabled(),
 			stateRootDirectoryFiles,
-			taskIOExecutor);
+			taskIOExecutor,
+			taskManagerServicesConfiguration.getLocalRecoveryBackendRetention());
 
 		return new TaskManagerServices(
 			taskManagerLocation,
@@ -85,6 +85,8 @@ public class TaskManagerServicesConfiguration {
 
 	private final boolean localRecoveryEnabled;
 
+	private final long localRecoveryBackendRetention;
+
 	private Optional<Time> systemResourceMetricsProbingInterval;
 
 	public TaskManagerServicesConfiguration(
@@ -92,6 +94,7 @@ public class TaskManagerServicesConfiguration {
 			String[] tmpDirPaths,
 			String[] localRecoveryStateRootDirectories,
 			boolean localRecoveryEnabled,
+			long localRecoveryBackendRetention,
 			NetworkEnvironmentConfiguration networkConfig,
 			QueryableStateConfiguration queryableStateConfig,
 			int numberOfSlots,
@@ -106,6 +109,7 @@ public class TaskManagerServicesConfiguration {
 		this.tmpDirPaths = checkNotNull(tmpDirPaths);
 		this.localRecoveryStateRootDirectories = checkNotNull(localRecoveryStateRootDirectories);
 		this.localRecoveryEnabled = checkNotNull(localRecoveryEnabled);
+		this.localRecoveryBackendRetention = localRecoveryBackendRetention;
 		this.networkConfig = checkNotNull(networkConfig);
 		this.queryableStateConfig = checkNotNull(queryableStateConfig);
 		this.numberOfSlots = checkNotNull(numberOfSlots);
@@ -142,6 +146,10 @@ public class TaskManagerServicesConfiguration {
 		return localRecoveryEnabled;
 	}
 
+	public long getLocalRecoveryBackendRetention() {
+		return localRecoveryBackendRetention;
+	}
+
 	public NetworkEnvironmentConfiguration getNetworkConfig() {
 		return networkConfig;
 	}
@@ -227,6 +235,9 @@ public class TaskManagerServicesConfiguration {
 			CheckpointingOptions.LOCAL_RECOVERY.key(),
 			CheckpointingOptions.LOCAL_RECOVERY.defaultValue());
 
+		long localRecoveryBackendRetention = configuration.getLong(
+			CheckpointingOptions.LOCAL_RECOVERY_BACKEND_RETENTION);
+
 		final NetworkEnvironmentConfiguration networkConfig = parseNetworkEnvironmentConfiguration(
 			configuration,
 			localCommunication,
@@ -280,6 +291,7 @@ public class TaskManagerServicesConfiguration {
 			tmpDirs,
 			localStateRootDir,
 			localRecoveryMode,
+			localRecoveryBackendRetention,
 			networkConfig,
 			queryableStateConfig,
 			slots,
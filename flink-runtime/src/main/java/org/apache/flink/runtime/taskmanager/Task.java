@@ -373,7 +373,8 @@ public class Task implements Runnable, TaskActions, CheckpointListener {
 				networkEnvironment.getResultPartitionManager(),
 				resultPartitionConsumableNotifier,
 				ioManager,
-				desc.sendScheduleOrUpdateConsumersMessage());
+				desc.sendScheduleOrUpdateConsumersMessage(),
+				tmConfig.getInteger(TaskManagerOptions.NETWORK_SORT_SHUFFLE_MIN_PARALLELISM));
 
 			++counter;
 		}
@@ -394,6 +395,12 @@ public class Task implements Runnable, TaskActions, CheckpointListener {
 				this,
 				metricGroup.getIOMetricGroup());
 
+			if (tmConfig.getBoolean(TaskManagerOptions.NETWORK_BUFFER_DEBLOAT_ENABLED)) {
+				gate.enableBufferDebloating(
+					tmConfig.getLong(TaskManagerOptions.NETWORK_BUFFER_DEBLOAT_TARGET),
+					tmConfig.getLong(TaskManagerOptions.NETWORK_BUFFER_DEBLOAT_PERIOD));
+			}
+
 			inputGates[counter] = gate;
 			inputGatesById.put(gate.getConsumedResultId(), gate);
 
@@ -516,7 +516,8 @@ public class WebMonitorEndpoint<T extends RestfulGateway> extends RestServerEndp
 			leaderRetriever,
 			timeout,
 			responseHeaders,
-			JobVertexBackPressureHeaders.getInstance());
+			JobVertexBackPressureHeaders.getInstance(),
+			metricFetcher);
 
 		final JobTerminationHandler jobCancelTerminationHandler = new JobTerminationHandler(
 			restAddressFuture,
@@ -23,6 +23,7 @@ import org.apache.flink.api.common.time.Time;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.testutils.ManuallyTriggeredDirectExecutor;
 import org.apache.flink.runtime.concurrent.Executors;
 import org.apache.flink.runtime.execution.ExecutionState;
 import org.apache.flink.runtime.executiongraph.Execution;
@@ -658,6 +659,117 @@ public class CheckpointCoordinatorTest extends TestLogger {
 		}
 	}
 
+	/**
+	 * Tests that a batch of acknowledge messages is processed like the individual messages,
+	 * and that messages of other jobs and unknown checkpoints do not affect the others.
+	 */
+	@Test
+	public void testReceiveAcknowledgeMessagesInBatch() throws Exception {
+		final JobID jid = new JobID();
+
+		final ExecutionAttemptID attemptID1 = new ExecutionAttemptID();
+		final ExecutionAttemptID attemptID2 = new ExecutionAttemptID();
+		final ExecutionAttemptID attemptID3 = new ExecutionAttemptID();
+		ExecutionVertex vertex1 = mockExecutionVertex(attemptID1);
+		ExecutionVertex vertex2 = mockExecutionVertex(attemptID2);
+		ExecutionVertex vertex3 = mockExecutionVertex(attemptID3);
+		ExecutionVertex[] vertices = new ExecutionVertex[] { vertex1, vertex2, vertex3 };
+
+		CheckpointCoordinator coord = new CheckpointCoordinator(
+			jid,
+			600000,
+			600000,
+			0,
+			Integer.MAX_VALUE,
+			CheckpointRetentionPolicy.NEVER_RETAIN_AFTER_TERMINATION,
+			vertices,
+			vertices,
+			vertices,
+			new StandaloneCheckpointIDCounter(),
+			new StandaloneCompletedCheckpointStore(1),
+			new MemoryStateBackend(),
+			Executors.directExecutor(),
+			SharedStateRegistry.DEFAULT_FACTORY);
+
+		assertTrue(coord.triggerCheckpoint(System.currentTimeMillis(), false));
+		final long checkpointId = coord.getPendingCheckpoints().keySet().iterator().next();
+
+		final int numAssociatedMessages = coord.receiveAcknowledgeMessages(Arrays.asList(
+			new AcknowledgeCheckpoint(jid, attemptID1, checkpointId),
+			new AcknowledgeCheckpoint(jid, attemptID1, checkpointId),
+			new AcknowledgeCheckpoint(new JobID(), attemptID2, checkpointId),
+			new AcknowledgeCheckpoint(jid, attemptID2, checkpointId + 1),
+			new AcknowledgeCheckpoint(jid, attemptID2, checkpointId),
+			new AcknowledgeCheckpoint(jid, attemptID3, checkpointId)));
+
+		// the duplicate is associated with the checkpoint, the wrong job and unknown checkpoint are not
+		assertEquals(4, numAssociatedMessages);
+		assertEquals(0, coord.getNumberOfPendingCheckpoints());
+		assertEquals(1, coord.getNumberOfRetainedSuccessfulCheckpoints());
+		assertEquals(checkpointId, coord.getSuccessfulCheckpoints().get(0).getCheckpointID());
+
+		verify(vertex1.getCurrentExecutionAttempt(), times(1)).notifyCheckpointComplete(eq(checkpointId), anyLong());
+		verify(vertex3.getCurrentExecutionAttempt(), times(1)).notifyCheckpointComplete(eq(checkpointId), anyLong());
+
+		coord.shutdown(JobStatus.FINISHED);
+	}
+
+	/**
+	 * Tests that enqueued acknowledge messages are processed by a single task of the
+	 * coordinator's executor.
+	 */
+	@Test
+	public void testEnqueuedAcknowledgeMessagesAreProcessedInExecutor() throws Exception {
+		final JobID jid = new JobID();
+		final ManuallyTriggeredDirectExecutor executor = new ManuallyTriggeredDirectExecutor();
+
+		final ExecutionAttemptID attemptID1 = new ExecutionAttemptID();
+		final ExecutionAttemptID attemptID2 = new ExecutionAttemptID();
+		ExecutionVertex vertex1 = mockExecutionVertex(attemptID1);
+		ExecutionVertex vertex2 = mockExecutionVertex(attemptID2);
+		ExecutionVertex[] vertices = new ExecutionVertex[] { vertex1, vertex2 };
+
+		CheckpointCoordinator coord = new CheckpointCoordinator(
+			jid,
+			600000,
+			600000,
+			0,
+			Integer.MAX_VALUE,
+			CheckpointRetentionPolicy.NEVER_RETAIN_AFTER_TERMINATION,
+			vertices,
+			vertices,
+			vertices,
+			new StandaloneCheckpointIDCounter(),
+			new StandaloneCompletedCheckpointStore(1),
+			new MemoryStateBackend(),
+			executor,
+			SharedStateRegistry.DEFAULT_FACTORY);
+
+		assertTrue(coord.triggerCheckpoint(System.currentTimeMillis(), false));
+		final long checkpointId = coord.getPendingCheckpoints().keySet().iterator().next();
+		final PendingCheckpoint checkpoint = coord.getPendingCheckpoints().get(checkpointId);
+
+		coord.enqueueAcknowledgeMessage(new AcknowledgeCheckpoint(jid, attemptID1, checkpointId));
+		coord.enqueueAcknowledgeMessage(new AcknowledgeCheckpoint(jid, attemptID2, checkpointId));
+
+		// nothing is processed in the calling thread, and both messages are processed by one task
+		assertEquals(0, checkpoint.getNumberOfAcknowledgedTasks());
+		assertEquals(1, executor.numQueuedRunnables());
+
+		executor.trigger();
+
+		assertTrue(checkpoint.isDiscarded());
+		assertEquals(0, coord.getNumberOfPendingCheckpoints());
+		assertEquals(1, coord.getNumberOfRetainedSuccessfulCheckpoints());
+
+		// a message that is enqueued after the processing schedules a new task
+		coord.enqueueAcknowledgeMessage(new AcknowledgeCheckpoint(jid, attemptID1, checkpointId));
+		assertEquals(1, executor.numQueuedRunnables());
+		executor.trigger();
+
+		coord.shutdown(JobStatus.FINISHED);
+	}
+
 	@Test
 	public void testMultipleConcurrentCheckpoints() {
 		try {
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.benchmark;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.runtime.checkpoint.CheckpointCoordinator;
+import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
+import org.apache.flink.runtime.checkpoint.CheckpointRetentionPolicy;
+import org.apache.flink.runtime.checkpoint.CheckpointStatsTracker;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.checkpoint.PendingCheckpoint;
+import org.apache.flink.runtime.checkpoint.StandaloneCheckpointIDCounter;
+import org.apache.flink.runtime.checkpoint.StandaloneCompletedCheckpointStore;
+import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.Execution;
+import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
+import org.apache.flink.runtime.executiongraph.ExecutionJobVertex;
+import org.apache.flink.runtime.executiongraph.ExecutionVertex;
+import org.apache.flink.runtime.jobgraph.JobStatus;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.jobgraph.tasks.CheckpointCoordinatorConfiguration;
+import org.apache.flink.runtime.messages.checkpoint.AcknowledgeCheckpoint;
+import org.apache.flink.runtime.state.OperatorStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Benchmark of the {@link CheckpointCoordinator} that simulates a job vertex with a large number
+ * of subtasks acknowledging a checkpoint concurrently, from the trigger of the checkpoint to the
+ * written metadata of the completed checkpoint. Meant to be executed by the external
+ * <a href="https://github.com/dataArtisans/flink-benchmarks">flink-benchmarks</a> project, to
+ * track how the coordinator scales with the number of subtasks.
+ */
+public class CheckpointCoordinatorAcknowledgeBenchmark {
+
+	private static final long COMPLETION_TIMEOUT = 60_000L;
+
+	private final JobID jobId = new JobID();
+
+	private CheckpointCoordinator coordinator;
+
+	private ExecutorService ioExecutor;
+
+	private ExecutorService senderExecutor;
+
+	private ExecutionAttemptID[] attemptIds;
+
+	private TaskStateSnapshot[] subtaskStates;
+
+	private int numberOfSenders;
+
+	/**
+	 * Triggers a checkpoint, acknowledges it from all subtasks, and waits until the
+	 * checkpoint is completed.
+	 */
+	public void executeBenchmark() throws Exception {
+		if (!coordinator.triggerCheckpoint(System.currentTimeMillis(), false)) {
+			throw new IllegalStateException("Could not trigger a checkpoint.");
+		}
+
+		final PendingCheckpoint pendingCheckpoint = coordinator.getPendingCheckpoints().values().iterator().next();
+		final long checkpointId = pendingCheckpoint.getCheckpointId();
+		final CompletableFuture<CompletedCheckpoint> completion = pendingCheckpoint.getCompletionFuture();
+
+		// every sender acknowledges an interleaved share of the subtasks, like the task managers do
+		final List<CompletableFuture<Void>> senders = new ArrayList<>(numberOfSenders);
+		for (int sender = 0; sender < numberOfSenders; sender++) {
+			final int firstSubtask = sender;
+			senders.add(CompletableFuture.runAsync(() -> {
+				for (int subtask = firstSubtask; subtask < attemptIds.length; subtask += numberOfSenders) {
+					coordinator.enqueueAcknowledgeMessage(new AcknowledgeCheckpoint(
+						jobId,
+						attemptIds[subtask],
+						checkpointId,
+						new CheckpointMetrics(),
+						subtaskStates[subtask]));
+				}
+			}, senderExecutor));
+		}
+
+		CompletableFuture.allOf(senders.toArray(new CompletableFuture<?>[0]))
+			.get(COMPLETION_TIMEOUT, TimeUnit.MILLISECONDS);
+		completion.get(COMPLETION_TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Initializes the benchmark with the given parameters.
+	 *
+	 * @param numberOfSubtasks
+	 * 		number of subtasks that acknowledge each checkpoint
+	 * @param numberOfSenders
+	 * 		number of threads that send the acknowledgements concurrently
+	 * @param checkpointDirectory
+	 * 		directory that the metadata of the completed checkpoints is written to
+	 */
+	public void setUp(int numberOfSubtasks, int numberOfSenders, File checkpointDirectory) throws Exception {
+		this.numberOfSenders = numberOfSenders;
+		this.ioExecutor = Executors.newFixedThreadPool(2);
+		this.senderExecutor = Executors.newFixedThreadPool(numberOfSenders);
+
+		final JobVertexID jobVertexId = new JobVertexID();
+		final OperatorID operatorId = OperatorID.fromJobVertexID(jobVertexId);
+
+		final ExecutionJobVertex jobVertex = mock(ExecutionJobVertex.class, withSettings().stubOnly());
+		when(jobVertex.getJobVertexId()).thenReturn(jobVertexId);
+		when(jobVertex.getParallelism()).thenReturn(numberOfSubtasks);
+		when(jobVertex.getMaxParallelism()).thenReturn(numberOfSubtasks);
+		when(jobVertex.getOperatorIDs()).thenReturn(Collections.singletonList(operatorId));
+
+		final ExecutionVertex[] vertices = new ExecutionVertex[numberOfSubtasks];
+		attemptIds = new ExecutionAttemptID[numberOfSubtasks];
+		subtaskStates = new TaskStateSnapshot[numberOfSubtasks];
+
+		for (int subtask = 0; subtask < numberOfSubtasks; subtask++) {
+			attemptIds[subtask] = new ExecutionAttemptID();
+			vertices[subtask] = mockExecutionVertex(jobVertex, jobVertexId, attemptIds[subtask], subtask, numberOfSubtasks);
+
+			// a small in-memory operator state per subtask, which becomes part of the metadata
+			final OperatorStreamStateHandle operatorState = new OperatorStreamStateHandle(
+				Collections.emptyMap(),
+				new ByteStreamStateHandle("subtask-" + subtask, new byte[32]));
+
+			subtaskStates[subtask] = new TaskStateSnapshot();
+			subtaskStates[subtask].putSubtaskStateByOperatorID(
+				operatorId,
+				new OperatorSubtaskState(operatorState, null, null, null));
+		}
+
+		coordinator = new CheckpointCoordinator(
+			jobId,
+			600000L,
+			600000L,
+			0L,
+			1,
+			CheckpointRetentionPolicy.NEVER_RETAIN_AFTER_TERMINATION,
+			vertices,
+			vertices,
+			vertices,
+			new StandaloneCheckpointIDCounter(),
+			new StandaloneCompletedCheckpointStore(1),
+			new MemoryStateBackend(checkpointDirectory.toURI().toString(), null),
+			ioExecutor,
+			SharedStateRegistry.DEFAULT_FACTORY);
+
+		coordinator.setCheckpointStatsTracker(new CheckpointStatsTracker(
+			10,
+			Collections.singletonList(jobVertex),
+			new CheckpointCoordinatorConfiguration(
+				600000L,
+				600000L,
+				0L,
+				1,
+				CheckpointRetentionPolicy.NEVER_RETAIN_AFTER_TERMINATION,
+				true),
+			new UnregisteredMetricsGroup()));
+	}
+
+	/**
+	 * Shuts down a benchmark previously set up via {@link #setUp}.
+	 */
+	public void tearDown() throws Exception {
+		if (coordinator != null) {
+			coordinator.shutdown(JobStatus.FINISHED);
+		}
+		if (senderExecutor != null) {
+			senderExecutor.shutdownNow();
+		}
+		if (ioExecutor != null) {
+			ioExecutor.shutdownNow();
+		}
+	}
+
+	private static ExecutionVertex mockExecutionVertex(
+			ExecutionJobVertex jobVertex,
+			JobVertexID jobVertexId,
+			ExecutionAttemptID attemptId,
+			int subtaskIndex,
+			int parallelism) {
+
+		// stub-only mocks, so that the invocations of many checkpoints are not recorded
+		final Execution execution = mock(Execution.class, withSettings().stubOnly());
+		when(execution.getAttemptId()).thenReturn(attemptId);
+		when(execution.getState()).thenReturn(ExecutionState.RUNNING);
+
+		final ExecutionVertex vertex = mock(ExecutionVertex.class, withSettings().stubOnly());
+		when(vertex.getJobvertexId()).thenReturn(jobVertexId);
+		when(vertex.getJobVertex()).thenReturn(jobVertex);
+		when(vertex.getCurrentExecutionAttempt()).thenReturn(execution);
+		when(vertex.getParallelSubtaskIndex()).thenReturn(subtaskIndex);
+		when(vertex.getTotalNumberOfParallelSubtasks()).thenReturn(parallelism);
+		when(vertex.getMaxParallelism()).thenReturn(parallelism);
+
+		return vertex;
+	}
+}
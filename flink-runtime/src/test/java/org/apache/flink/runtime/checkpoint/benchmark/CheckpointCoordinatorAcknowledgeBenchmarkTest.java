@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.benchmark;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link CheckpointCoordinatorAcknowledgeBenchmark}.
+ */
+public class CheckpointCoordinatorAcknowledgeBenchmarkTest {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void test() throws Exception {
+		CheckpointCoordinatorAcknowledgeBenchmark benchmark = new CheckpointCoordinatorAcknowledgeBenchmark();
+		benchmark.setUp(2000, 4, temporaryFolder.newFolder());
+		try {
+			for (int i = 0; i < 3; i++) {
+				benchmark.executeBenchmark();
+			}
+		}
+		finally {
+			benchmark.tearDown();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.savepoint;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.checkpoint.MasterState;
+import org.apache.flink.runtime.checkpoint.OperatorState;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.checkpoint.StateObjectCollection;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
+import org.apache.flink.runtime.state.filesystem.FileSegmentStateHandle;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the version 3 format serializer of a checkpoint, which adds the in-flight data of unaligned
+ * checkpoints to the subtask states and segments of shared state files.
+ */
+public class SavepointV3SerializerTest {
+
+	@Test
+	public void testCheckpointWithChannelState() throws Exception {
+		final Random rnd = new Random();
+
+		for (int i = 0; i < 100; ++i) {
+			final long checkpointId = rnd.nextLong() & 0x7fffffffffffffffL;
+
+			final Collection<OperatorState> operatorStates = addChannelState(
+				rnd,
+				CheckpointTestUtils.createOperatorStates(rnd, rnd.nextInt(10) + 1, rnd.nextInt(10) + 1));
+
+			final Collection<MasterState> masterStates =
+				CheckpointTestUtils.createRandomMasterStates(rnd, rnd.nextInt(5));
+
+			SavepointV3 deserialized = serializeAndDeserialize(
+				new SavepointV3(checkpointId, operatorStates, masterStates));
+
+			assertEquals(SavepointV3.VERSION, deserialized.getVersion());
+			assertEquals(checkpointId, deserialized.getCheckpointId());
+			assertEquals(operatorStates, deserialized.getOperatorStates());
+			assertEquals(masterStates.size(), deserialized.getMasterStates().size());
+		}
+	}
+
+	@Test
+	public void testCheckpointWithoutChannelState() throws Exception {
+		final Random rnd = new Random();
+
+		final Collection<OperatorState> operatorStates = CheckpointTestUtils.createOperatorStates(rnd, 5, 5);
+
+		SavepointV3 deserialized = serializeAndDeserialize(
+			new SavepointV3(42L, operatorStates, Collections.emptyList()));
+
+		assertEquals(operatorStates, deserialized.getOperatorStates());
+	}
+
+	/**
+	 * Tests that format version 2 does not silently drop in-flight data.
+	 */
+	@Test
+	public void testVersion2RejectsChannelState() throws Exception {
+		final Random rnd = new Random();
+
+		final Collection<OperatorState> operatorStates =
+			addChannelState(rnd, CheckpointTestUtils.createOperatorStates(rnd, 1, 1));
+
+		try {
+			SavepointV2Serializer.INSTANCE.serialize(
+				new SavepointV2(42L, operatorStates, Collections.emptyList()),
+				new DataOutputViewStreamWrapper(new ByteArrayOutputStreamWithPos()));
+			fail("Expected an IOException.");
+		} catch (IOException expected) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCheckpointWithFileSegments() throws Exception {
+		final Collection<OperatorState> operatorStates = createOperatorStatesWithFileSegment();
+
+		SavepointV3 deserialized = serializeAndDeserialize(
+			new SavepointV3(42L, operatorStates, Collections.emptyList()));
+
+		assertEquals(operatorStates, deserialized.getOperatorStates());
+	}
+
+	/**
+	 * Tests that format version 2 stays readable by older versions and does not write segments of shared files.
+	 */
+	@Test
+	public void testVersion2RejectsFileSegments() throws Exception {
+		try {
+			SavepointV2Serializer.INSTANCE.serialize(
+				new SavepointV2(42L, createOperatorStatesWithFileSegment(), Collections.emptyList()),
+				new DataOutputViewStreamWrapper(new ByteArrayOutputStreamWithPos()));
+			fail("Expected an IOException.");
+		} catch (IOException expected) {
+			// expected
+		}
+	}
+
+	private static Collection<OperatorState> createOperatorStatesWithFileSegment() {
+		KeyedStateHandle keyedState = new KeyGroupsStateHandle(
+			new KeyGroupRangeOffsets(0, 1, new long[]{0L, 16L}),
+			new FileSegmentStateHandle(new Path("file:///checkpoints/shared/segment"), 128L, 32L));
+
+		OperatorState operatorState = new OperatorState(new OperatorID(), 1, 2);
+		operatorState.putState(0, new OperatorSubtaskState(null, null, keyedState, null));
+		return Collections.singletonList(operatorState);
+	}
+
+	private static SavepointV3 serializeAndDeserialize(SavepointV3 checkpointMetadata) throws IOException {
+		SavepointV3Serializer serializer = SavepointV3Serializer.INSTANCE;
+
+		ByteArrayOutputStreamWithPos baos = new ByteArrayOutputStreamWithPos();
+		DataOutputStream out = new DataOutputViewStreamWrapper(baos);
+
+		serializer.serialize(checkpointMetadata, out);
+		out.close();
+
+		DataInputStream in = new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(baos.toByteArray()));
+		return serializer.deserialize(in, SavepointV3SerializerTest.class.getClassLoader());
+	}
+
+	private static Collection<OperatorState> addChannelState(Random rnd, Collection<OperatorState> operatorStates) {
+		List<OperatorState> result = new ArrayList<>(operatorStates.size());
+
+		for (OperatorState operatorState : operatorStates) {
+			OperatorID operatorID = operatorState.getOperatorID();
+			OperatorState withChannelState = new OperatorState(
+				operatorID,
+				operatorState.getParallelism(),
+				operatorState.getMaxParallelism());
+
+			for (Map.Entry<Integer, OperatorSubtaskState> entry : operatorState.getSubtaskStates().entrySet()) {
+				List<InputChannelStateHandle> inputChannelState = new ArrayList<>();
+				for (int channel = rnd.nextInt(3); channel < 3; channel++) {
+					inputChannelState.add(new InputChannelStateHandle(
+						channel,
+						CheckpointTestUtils.createDummyStreamStateHandle(rnd)));
+				}
+
+				List<ResultSubpartitionStateHandle> resultSubpartitionState = new ArrayList<>();
+				for (int subpartition = rnd.nextInt(3); subpartition < 3; subpartition++) {
+					resultSubpartitionState.add(new ResultSubpartitionStateHandle(
+						rnd.nextInt(2),
+						subpartition,
+						CheckpointTestUtils.createDummyStreamStateHandle(rnd)));
+				}
+
+				withChannelState.putState(entry.getKey(), entry.getValue().withChannelState(
+					new StateObjectCollection<>(inputChannelState),
+					new StateObjectCollection<>(resultSubpartitionState)));
+			}
+
+			result.add(withChannelState);
+		}
+
+		return result;
+	}
+}
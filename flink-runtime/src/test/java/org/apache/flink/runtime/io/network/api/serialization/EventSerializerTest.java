@@ -25,6 +25,7 @@ import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.EndOfSuperstepEvent;
+import org.apache.flink.runtime.io.network.api.ObjectBatchEvent;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.util.TestTaskEvent;
 import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
@@ -82,7 +83,8 @@ public class EventSerializerTest {
 				EndOfSuperstepEvent.INSTANCE,
 				new CheckpointBarrier(1678L, 4623784L, CheckpointOptions.forCheckpointWithDefaultLocation()),
 				new TestTaskEvent(Math.random(), 12361231273L),
-				new CancelCheckpointMarker(287087987329842L)
+				new CancelCheckpointMarker(287087987329842L),
+				ObjectBatchEvent.INSTANCE
 		};
 
 		for (AbstractEvent evt : events) {
@@ -128,7 +130,8 @@ public class EventSerializerTest {
 			EndOfSuperstepEvent.INSTANCE,
 			new CheckpointBarrier(1678L, 4623784L, CheckpointOptions.forCheckpointWithDefaultLocation()),
 			new TestTaskEvent(Math.random(), 12361231273L),
-			new CancelCheckpointMarker(287087987329842L)
+			new CancelCheckpointMarker(287087987329842L),
+			ObjectBatchEvent.INSTANCE
 		};
 
 		Class[] expectedClasses = Arrays.stream(events)
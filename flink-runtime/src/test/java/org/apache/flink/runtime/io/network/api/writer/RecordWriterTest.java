@@ -27,6 +27,7 @@ import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.event.AbstractEvent;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.ObjectBatchEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer;
 import org.apache.flink.runtime.io.network.api.serialization.RecordSerializer.SerializationResult;
@@ -56,6 +57,8 @@ import org.mockito.stubbing.Answer;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 import java.util.Random;
@@ -67,6 +70,7 @@ import java.util.concurrent.Future;
 
 import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.buildSingleBuffer;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -297,6 +301,52 @@ public class RecordWriterTest {
 		}
 	}
 
+	/**
+	 * Tests that records for channels which accept object batches are handed over as copies, in order with the
+	 * serialized data and events.
+	 */
+	@Test
+	public void testObjectBatches() throws Exception {
+		int numChannels = 2;
+
+		@SuppressWarnings("unchecked")
+		Queue<BufferConsumer>[] queues = new Queue[numChannels];
+		for (int i = 0; i < numChannels; i++) {
+			queues[i] = new ArrayDeque<>();
+		}
+
+		TestPooledBufferProvider bufferProvider = new TestPooledBufferProvider(Integer.MAX_VALUE, 32);
+		ObjectBatchPartitionWriter partitionWriter = new ObjectBatchPartitionWriter(queues, bufferProvider, 0);
+
+		RecordWriter<IntValue> writer = new RecordWriter<>(partitionWriter, new Broadcast<>());
+		writer.enableObjectBatches(record -> new IntValue(record.getValue()), 2);
+
+		IntValue record = new IntValue();
+		for (int i = 1; i <= 3; ++i) {
+			record.setValue(i);
+			writer.emit(record);
+		}
+
+		CheckpointBarrier barrier = new CheckpointBarrier(1L, 1L, CheckpointOptions.forCheckpointWithDefaultLocation());
+		writer.broadcastEvent(barrier);
+
+		// the full batch is handed over immediately, the rest before the event
+		assertEquals(3, queues[0].size());
+		assertEquals(ObjectBatchEvent.INSTANCE, parseBuffer(queues[0].remove(), 0).getEvent());
+		assertEquals(ObjectBatchEvent.INSTANCE, parseBuffer(queues[0].remove(), 0).getEvent());
+		assertEquals(barrier, parseBuffer(queues[0].remove(), 0).getEvent());
+
+		assertEquals(2, partitionWriter.objectBatches.size());
+		assertEquals(Arrays.asList(new IntValue(1), new IntValue(2)), partitionWriter.objectBatches.get(0));
+		assertEquals(Collections.singletonList(new IntValue(3)), partitionWriter.objectBatches.get(1));
+		assertNotSame(record, partitionWriter.objectBatches.get(1).get(0));
+
+		// the other channel gets serialized records
+		assertEquals(2, queues[1].size());
+		assertTrue(parseBuffer(queues[1].remove(), 1).isBuffer());
+		assertEquals(barrier, parseBuffer(queues[1].remove(), 1).getEvent());
+	}
+
 	/**
 	 * Tests that event buffers are properly recycled when broadcasting events
 	 * to multiple channels.
@@ -517,6 +567,31 @@ public class RecordWriterTest {
 		}
 	}
 
+	/**
+	 * Partition writer that collects the added buffers/events and accepts object batches for one channel.
+	 */
+	private static class ObjectBatchPartitionWriter extends CollectingPartitionWriter {
+		private final int objectBatchChannel;
+		private final List<List<?>> objectBatches = new ArrayList<>();
+
+		private ObjectBatchPartitionWriter(Queue<BufferConsumer>[] queues, BufferProvider bufferProvider, int objectBatchChannel) {
+			super(queues, bufferProvider);
+			this.objectBatchChannel = objectBatchChannel;
+		}
+
+		@Override
+		public boolean supportsObjectBatches(int subpartitionIndex) {
+			return subpartitionIndex == objectBatchChannel;
+		}
+
+		@Override
+		public void addObjectBatch(List<?> objectBatch, int subpartitionIndex) throws IOException {
+			assertEquals(objectBatchChannel, subpartitionIndex);
+			objectBatches.add(objectBatch);
+			addBufferConsumer(EventSerializer.toBufferConsumer(ObjectBatchEvent.INSTANCE), subpartitionIndex);
+		}
+	}
+
 	private static BufferOrEvent parseBuffer(BufferConsumer bufferConsumer, int targetChannel) throws IOException {
 		Buffer buffer = buildSingleBuffer(bufferConsumer);
 		if (buffer.isBuffer()) {
@@ -97,6 +97,32 @@ public class BufferBuilderAndConsumerTest {
 		assertContent(bufferConsumer, 0, 1, 2, 3, 42);
 	}
 
+	@Test
+	public void appendToTrimmedBuffer() {
+		BufferBuilder bufferBuilder = createBufferBuilder();
+		BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+
+		bufferBuilder.trim(3 * Integer.BYTES);
+		assertEquals(3 * Integer.BYTES, bufferBuilder.getMaxCapacity());
+
+		assertEquals(3 * Integer.BYTES, bufferBuilder.appendAndCommit(toByteBuffer(0, 1, 2, 3, 42)));
+		assertTrue(bufferBuilder.isFull());
+		assertContent(bufferConsumer, 0, 1, 2);
+	}
+
+	@Test
+	public void trimNeverCutsWrittenDataOrExceedsSegment() {
+		BufferBuilder bufferBuilder = createBufferBuilder();
+		bufferBuilder.appendAndCommit(toByteBuffer(0, 1, 2, 3));
+
+		bufferBuilder.trim(Integer.BYTES);
+		assertEquals(4 * Integer.BYTES, bufferBuilder.getMaxCapacity());
+		assertTrue(bufferBuilder.isFull());
+
+		bufferBuilder.trim(Integer.MAX_VALUE);
+		assertEquals(BUFFER_SIZE, bufferBuilder.getMaxCapacity());
+	}
+
 	@Test
 	public void appendOverSize() {
 		BufferBuilder bufferBuilder = createBufferBuilder();
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.TaskManagerOptions;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link BufferCompressor} and the {@link BufferDecompressor}.
+ */
+public class BufferCompressionTest extends TestLogger {
+
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private final BufferCompressionFactory factory = new BufferCompressionFactory(new SnappyBufferCompressionCodec());
+
+	@Test
+	public void testCompressionRoundTrip() throws Exception {
+		NetworkBuffer buffer = createBuffer();
+		for (int i = 0; i < BUFFER_SIZE / 4; ++i) {
+			buffer.writeInt(i % 16);
+		}
+
+		Buffer compressed = factory.createCompressor().compressToOriginalBuffer(buffer);
+		assertTrue(compressed.isCompressed());
+		assertFalse(buffer.isCompressed());
+		assertTrue(compressed.readableBytes() < BUFFER_SIZE);
+		assertTrue(factory.getCompressionRatio() > 1.0);
+
+		// the receiver copies the compressed bytes into a buffer of its own
+		NetworkBuffer received = createBuffer();
+		received.writeBytes(compressed.asByteBuf(), compressed.readableBytes());
+		received.setCompressed(true);
+		compressed.recycleBuffer();
+		assertTrue(buffer.isRecycled());
+
+		factory.createDecompressor().decompressToOriginalBuffer(received);
+		assertFalse(received.isCompressed());
+		assertEquals(BUFFER_SIZE, received.readableBytes());
+		for (int i = 0; i < BUFFER_SIZE / 4; ++i) {
+			assertEquals(i % 16, received.readInt());
+		}
+	}
+
+	@Test
+	public void testCompressionOfSlice() throws Exception {
+		NetworkBuffer buffer = createBuffer();
+		buffer.writeBytes(new byte[1024]);
+		for (int i = 0; i < 2048; ++i) {
+			buffer.writeByte(i % 4);
+		}
+
+		// like the slices of the pipelined subpartitions, which start at the reader index of the buffer consumer
+		Buffer slice = buffer.readOnlySlice(1024, 2048);
+		Buffer compressed = factory.createCompressor().compressToOriginalBuffer(slice);
+		assertTrue(compressed.isCompressed());
+
+		NetworkBuffer received = createBuffer();
+		received.writeBytes(compressed.asByteBuf(), compressed.readableBytes());
+		received.setCompressed(true);
+
+		factory.createDecompressor().decompressToOriginalBuffer(received);
+		assertEquals(2048, received.readableBytes());
+		for (int i = 0; i < 2048; ++i) {
+			assertEquals(i % 4, received.readByte());
+		}
+	}
+
+	@Test
+	public void testIncompressibleBufferIsNotCompressed() throws Exception {
+		byte[] data = new byte[BUFFER_SIZE];
+		new Random(42L).nextBytes(data);
+
+		NetworkBuffer buffer = createBuffer();
+		buffer.writeBytes(data);
+
+		Buffer result = factory.createCompressor().compressToOriginalBuffer(buffer);
+		assertSame(buffer, result);
+		assertFalse(result.isCompressed());
+		assertEquals(BUFFER_SIZE, result.readableBytes());
+	}
+
+	@Test
+	public void testEventsAreNotCompressed() throws Exception {
+		Buffer event = EventSerializer.toBuffer(EndOfPartitionEvent.INSTANCE);
+		assertSame(event, factory.createCompressor().compressToOriginalBuffer(event));
+		assertFalse(event.isCompressed());
+	}
+
+	@Test
+	public void testFromConfiguration() {
+		Configuration config = new Configuration();
+		assertNull(BufferCompressionFactory.fromConfiguration(config));
+
+		config.setString(TaskManagerOptions.NETWORK_COMPRESSION_CODEC, "snappy");
+		assertNotNull(BufferCompressionFactory.fromConfiguration(config));
+
+		config.setString(TaskManagerOptions.NETWORK_COMPRESSION_CODEC, SnappyBufferCompressionCodec.class.getName());
+		assertNotNull(BufferCompressionFactory.fromConfiguration(config));
+	}
+
+	private static NetworkBuffer createBuffer() {
+		MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE);
+		return new NetworkBuffer(segment, FreeingBufferRecycler.INSTANCE);
+	}
+}
@@ -137,6 +137,14 @@ public class NettyMessageSerializationTest {
 			assertEquals(expected.credit, actual.credit);
 			assertEquals(expected.receiverId, actual.receiverId);
 		}
+
+		{
+			NettyMessage.NewBufferSize expected = new NettyMessage.NewBufferSize(random.nextInt(Integer.MAX_VALUE) + 1, new InputChannelID());
+			NettyMessage.NewBufferSize actual = encodeAndDecode(expected);
+
+			assertEquals(expected.bufferSize, actual.bufferSize);
+			assertEquals(expected.receiverId, actual.receiverId);
+		}
 	}
 
 	private void testEncodeDecodeBuffer(boolean testReadOnlyBuffer) {
@@ -147,6 +155,8 @@ public class NettyMessageSerializationTest {
 		}
 
 		Buffer testBuffer = testReadOnlyBuffer ? buffer.readOnlySlice() : buffer;
+		// the compressed flag is only transferred, the data is not decompressed by the decoder
+		testBuffer.setCompressed(testReadOnlyBuffer);
 
 		NettyMessage.BufferResponse expected = new NettyMessage.BufferResponse(
 			testBuffer, random.nextInt(), new InputChannelID(), random.nextInt());
@@ -176,6 +186,8 @@ public class NettyMessageSerializationTest {
 		assertEquals(expected.sequenceNumber, actual.sequenceNumber);
 		assertEquals(expected.receiverId, actual.receiverId);
 		assertEquals(expected.backlog, actual.backlog);
+		assertTrue(actual.isBuffer());
+		assertEquals(testReadOnlyBuffer, actual.isCompressed());
 	}
 
 	@SuppressWarnings("unchecked")
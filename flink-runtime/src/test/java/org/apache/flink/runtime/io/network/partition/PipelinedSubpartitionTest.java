@@ -21,6 +21,8 @@ package org.apache.flink.runtime.io.network.partition;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.event.AbstractEvent;
+import org.apache.flink.runtime.io.network.api.ObjectBatchEvent;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
@@ -36,16 +38,22 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createEventBufferConsumer;
 import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createFilledBufferConsumer;
 import static org.apache.flink.util.FutureUtil.waitForAll;
 import static org.apache.flink.util.Preconditions.checkState;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -210,6 +218,76 @@ public class PipelinedSubpartitionTest extends SubpartitionTestBase {
 		waitForAll(60_000L, producerResult, consumerResult);
 	}
 
+	/**
+	 * Tests that object batches are handed out in order with the buffers and attached to their events.
+	 */
+	@Test
+	public void testObjectBatchesAreOrderedWithBuffers() throws Exception {
+		final PipelinedSubpartition subpartition = createSubpartition();
+		final List<String> objectBatch = Arrays.asList("a", "b");
+
+		try {
+			ResultSubpartitionView view = subpartition.createReadView(new NoOpBufferAvailablityListener());
+			assertFalse(subpartition.isObjectBatchesEnabled());
+			assertTrue(view.enableObjectBatches());
+			assertTrue(subpartition.isObjectBatchesEnabled());
+
+			subpartition.add(createFilledBufferConsumer(1024, 1024));
+			subpartition.addObjectBatch(objectBatch);
+			subpartition.add(createFilledBufferConsumer(1024, 1024));
+
+			ResultSubpartition.BufferAndBacklog next = view.getNextBuffer();
+			assertNotNull(next);
+			assertTrue(next.buffer().isBuffer());
+			assertNull(next.objectBatch());
+			assertTrue(next.nextBufferIsEvent());
+			next.buffer().recycleBuffer();
+
+			next = view.getNextBuffer();
+			assertNotNull(next);
+			assertFalse(next.buffer().isBuffer());
+			assertEquals(ObjectBatchEvent.INSTANCE, EventSerializer.fromBuffer(next.buffer(), getClass().getClassLoader()));
+			assertSame(objectBatch, next.objectBatch());
+			next.buffer().recycleBuffer();
+
+			next = view.getNextBuffer();
+			assertNotNull(next);
+			assertTrue(next.buffer().isBuffer());
+			assertNull(next.objectBatch());
+			next.buffer().recycleBuffer();
+		} finally {
+			subpartition.release();
+		}
+	}
+
+	/**
+	 * Tests that the backlog counts the object batches like data buffers, but not other events.
+	 */
+	@Test
+	public void testBacklogCountsObjectBatches() throws Exception {
+		final PipelinedSubpartition subpartition = createSubpartition();
+
+		try {
+			ResultSubpartitionView view = subpartition.createReadView(new NoOpBufferAvailablityListener());
+			assertTrue(view.enableObjectBatches());
+
+			subpartition.add(createFilledBufferConsumer(1024, 1024));
+			subpartition.addObjectBatch(Arrays.asList("a", "b"));
+			subpartition.add(createEventBufferConsumer(4));
+			subpartition.addObjectBatch(Collections.singletonList("c"));
+			assertEquals(3, subpartition.unsynchronizedGetBacklog());
+
+			for (int expectedBacklog : new int[] {2, 1, 1, 0}) {
+				ResultSubpartition.BufferAndBacklog next = view.getNextBuffer();
+				assertNotNull(next);
+				next.buffer().recycleBuffer();
+				assertEquals(expectedBacklog, subpartition.unsynchronizedGetBacklog());
+			}
+		} finally {
+			subpartition.release();
+		}
+	}
+
 	/**
 	 * Tests cleanup of {@link PipelinedSubpartition#release()} with no read view attached.
 	 */
@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.io.network.partition;
 
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 
 import org.junit.After;
@@ -26,6 +27,7 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createBufferBuilder;
 import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createEventBufferConsumer;
@@ -37,6 +39,7 @@ import static org.apache.flink.runtime.io.network.partition.SubpartitionTestBase
 import static org.apache.flink.runtime.io.network.util.TestBufferFactory.BUFFER_SIZE;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -273,4 +276,81 @@ public class PipelinedSubpartitionWithReadViewTest {
 		assertEquals(5 * BUFFER_SIZE, subpartition.getTotalNumberOfBytes());
 		assertEquals(4, availablityListener.getNumNotifications());
 	}
+
+	@Test
+	public void testPriorityEventOvertakesBuffers() throws Exception {
+		subpartition.add(createFilledBufferConsumer(1025));
+		subpartition.add(createFilledBufferConsumer(1024));
+
+		List<Buffer> overtakenBuffers = subpartition.addPriorityEvent(createEventBufferConsumer(BUFFER_SIZE));
+		try {
+			assertEquals(2, overtakenBuffers.size());
+			assertEquals(1025, overtakenBuffers.get(0).readableBytes());
+			assertEquals(1024, overtakenBuffers.get(1).readableBytes());
+		} finally {
+			overtakenBuffers.forEach(Buffer::recycleBuffer);
+		}
+
+		// the event is sent first, followed by the buffers it overtook
+		assertNextEvent(readView, BUFFER_SIZE, null, true, 2, false, true);
+		assertNextBuffer(readView, 1025, true, 1, false, true);
+		assertNextBuffer(readView, 1024, false, 0, false, true);
+		assertNoNextBuffer(readView);
+	}
+
+	@Test
+	public void testPriorityEventOnlyOvertakesUnsentData() throws Exception {
+		BufferBuilder bufferBuilder = createFilledBufferBuilder(1024);
+		subpartition.add(bufferBuilder.createBufferConsumer());
+		subpartition.flush();
+
+		// the buffer builder is not finished, so the subpartition still holds on to it
+		assertNextBuffer(readView, 1024, false, 1, false, false);
+
+		bufferBuilder.appendAndCommit(ByteBuffer.allocate(512));
+		List<Buffer> overtakenBuffers = subpartition.addPriorityEvent(createEventBufferConsumer(BUFFER_SIZE));
+		try {
+			assertEquals(1, overtakenBuffers.size());
+			assertEquals(512, overtakenBuffers.get(0).readableBytes());
+		} finally {
+			overtakenBuffers.forEach(Buffer::recycleBuffer);
+		}
+		bufferBuilder.finish();
+	}
+
+	/**
+	 * The overtaken buffers are still sent, and the network stack may compress them in place. This must not
+	 * change the data of the checkpoint.
+	 */
+	@Test
+	public void testOvertakenBuffersDoNotShareMemoryWithSentBuffers() throws Exception {
+		subpartition.add(createFilledBufferConsumer(1024));
+
+		List<Buffer> overtakenBuffers = subpartition.addPriorityEvent(createEventBufferConsumer(BUFFER_SIZE));
+		try {
+			assertEquals(1, overtakenBuffers.size());
+			final Buffer overtaken = overtakenBuffers.get(0);
+			final byte[] expected = new byte[overtaken.readableBytes()];
+			overtaken.getNioBufferReadable().get(expected);
+
+			readView.getNextBuffer().buffer().recycleBuffer();
+			final Buffer sent = readView.getNextBuffer().buffer();
+			try {
+				final ByteBuffer sentData = sent.getNioBufferReadable();
+				for (int i = 0; i < expected.length; i++) {
+					sent.getMemorySegment().put(
+						sent.getMemorySegmentOffset() + sent.getReaderIndex() + i,
+						(byte) (sentData.get(i) + 1));
+				}
+			} finally {
+				sent.recycleBuffer();
+			}
+
+			final byte[] actual = new byte[overtaken.readableBytes()];
+			overtaken.getNioBufferReadable().get(actual);
+			assertArrayEquals(expected, actual);
+		} finally {
+			overtakenBuffers.forEach(Buffer::recycleBuffer);
+		}
+	}
 }
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.EndOfSuperstepEvent;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
+import org.apache.flink.runtime.taskmanager.TaskActions;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.BUFFER_SIZE;
+import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createBufferBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the {@link SortMergeSubpartition} and the {@link SortMergePartitionFile}.
+ */
+public class SortMergeSubpartitionTest extends TestLogger {
+
+	private static final int NUMBER_OF_SUBPARTITIONS = 4;
+
+	private IOManager ioManager;
+
+	private NetworkBufferPool networkBufferPool;
+
+	@Before
+	public void setup() {
+		ioManager = new IOManagerAsync();
+		networkBufferPool = new NetworkBufferPool(NUMBER_OF_SUBPARTITIONS, BUFFER_SIZE);
+	}
+
+	@After
+	public void shutdown() {
+		ioManager.shutdown();
+		networkBufferPool.destroy();
+	}
+
+	@Test
+	public void testWriteAndReadRegions() throws Exception {
+		ResultPartition partition = createPartition();
+
+		// first region
+		for (int subpartition = 0; subpartition < NUMBER_OF_SUBPARTITIONS; ++subpartition) {
+			partition.addBufferConsumer(createFilledBufferConsumer(subpartition, 0), subpartition);
+			partition.addBufferConsumer(createFilledBufferConsumer(subpartition, 1), subpartition);
+		}
+
+		// the written part of an unfinished buffer is spilled, the rest follows in a later region
+		BufferBuilder unfinished = createBufferBuilder();
+		partition.addBufferConsumer(unfinished.createBufferConsumer(), 1);
+		unfinished.appendAndCommit(createData(1, 2));
+
+		partition.releaseMemory(1);
+		assertEquals(1, partition.getNumberOfQueuedBuffers());
+
+		// second region, without buffers of subpartition 3
+		unfinished.appendAndCommit(createData(1, 3));
+		unfinished.finish();
+		partition.addBufferConsumer(createFilledBufferConsumer(0, 2), 0);
+		partition.addBufferConsumer(EventSerializer.toBufferConsumer(EndOfSuperstepEvent.INSTANCE), 2);
+		partition.releaseMemory(1);
+		assertEquals(0, partition.getNumberOfQueuedBuffers());
+
+		// the last region contains the end of partition events
+		partition.addBufferConsumer(createFilledBufferConsumer(2, 2), 2);
+		partition.finish();
+
+		// a single data file and a single index file for all subpartitions
+		assertEquals(2, countSpilledFiles());
+
+		for (int subpartition = 0; subpartition < NUMBER_OF_SUBPARTITIONS; ++subpartition) {
+			ResultSubpartitionView view = partition.createSubpartitionView(
+				subpartition, new NoOpBufferAvailablityListener());
+			assertTrue(view.isAvailable());
+
+			int expectedBuffers = subpartition == 3 ? 2 : subpartition == 1 ? 4 : 3;
+			for (int i = 0; i < expectedBuffers; ++i) {
+				if (subpartition == 2 && i == 2) {
+					assertEquals(EndOfSuperstepEvent.INSTANCE, readEvent(view));
+				}
+				BufferAndBacklog bufferAndBacklog = view.getNextBuffer();
+				assertNotNull(bufferAndBacklog);
+				assertEquals(expectedBuffers - i - 1, bufferAndBacklog.buffersInBacklog());
+				verifyData(bufferAndBacklog.buffer(), subpartition, i);
+			}
+
+			assertTrue(view.nextBufferIsEvent());
+			assertEquals(EndOfPartitionEvent.INSTANCE, readEvent(view));
+			assertFalse(view.isAvailable());
+			assertNull(view.getNextBuffer());
+
+			view.releaseAllResources();
+		}
+
+		partition.release();
+		assertEquals(0, countSpilledFiles());
+	}
+
+	@Test
+	public void testReleaseBeforeFinish() throws Exception {
+		ResultPartition partition = createPartition();
+
+		partition.addBufferConsumer(createFilledBufferConsumer(0, 0), 0);
+		partition.releaseMemory(1);
+		assertEquals(2, countSpilledFiles());
+
+		partition.release();
+		assertEquals(0, countSpilledFiles());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private ResultPartition createPartition() throws Exception {
+		ResultPartition partition = new ResultPartition(
+			"TestTask",
+			mock(TaskActions.class),
+			new JobID(),
+			new ResultPartitionID(),
+			ResultPartitionType.BLOCKING,
+			NUMBER_OF_SUBPARTITIONS,
+			NUMBER_OF_SUBPARTITIONS,
+			mock(ResultPartitionManager.class),
+			new NoOpResultPartitionConsumableNotifier(),
+			ioManager,
+			false,
+			NUMBER_OF_SUBPARTITIONS);
+
+		partition.registerBufferPool(networkBufferPool.createBufferPool(NUMBER_OF_SUBPARTITIONS, NUMBER_OF_SUBPARTITIONS));
+		return partition;
+	}
+
+	private int countSpilledFiles() {
+		int numberOfFiles = 0;
+		for (File directory : ioManager.getSpillingDirectories()) {
+			File[] files = directory.listFiles();
+			numberOfFiles += files != null ? files.length : 0;
+		}
+		return numberOfFiles;
+	}
+
+	private static ByteBuffer createData(int subpartition, int sequenceNumber) {
+		ByteBuffer data = ByteBuffer.allocate(1024);
+		while (data.hasRemaining()) {
+			data.putInt(subpartition);
+			data.putInt(sequenceNumber);
+		}
+		data.flip();
+		return data;
+	}
+
+	private static BufferConsumer createFilledBufferConsumer(int subpartition, int sequenceNumber) {
+		BufferBuilder bufferBuilder = createBufferBuilder();
+		bufferBuilder.appendAndCommit(createData(subpartition, sequenceNumber));
+		bufferBuilder.finish();
+		return bufferBuilder.createBufferConsumer();
+	}
+
+	private static void verifyData(Buffer buffer, int subpartition, int sequenceNumber) {
+		try {
+			assertTrue(buffer.isBuffer());
+			assertEquals(createData(subpartition, sequenceNumber), buffer.getNioBufferReadable());
+		} finally {
+			buffer.recycleBuffer();
+		}
+	}
+
+	private static Object readEvent(ResultSubpartitionView view) throws Exception {
+		BufferAndBacklog bufferAndBacklog = view.getNextBuffer();
+		assertNotNull(bufferAndBacklog);
+		Buffer buffer = bufferAndBacklog.buffer();
+		try {
+			assertFalse(buffer.isBuffer());
+			return EventSerializer.fromBuffer(buffer, SortMergeSubpartitionTest.class.getClassLoader());
+		} finally {
+			buffer.recycleBuffer();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link BufferDebloater}.
+ */
+public class BufferDebloaterTest {
+
+	private static final int MAX_BUFFER_SIZE = 32 * 1024;
+
+	private static final int NUM_BUFFERS = 10;
+
+	private static final long MILLIS = 1_000_000L;
+
+	@Test
+	public void testNoAnnouncementBeforePeriodEnds() {
+		BufferDebloater debloater = new BufferDebloater(MAX_BUFFER_SIZE, 1000, 200, 0);
+
+		assertEquals(-1, debloater.onBufferConsumed(10, NUM_BUFFERS, 199 * MILLIS));
+		assertEquals(MAX_BUFFER_SIZE, debloater.getLastAnnouncedBufferSize());
+	}
+
+	@Test
+	public void testFastConsumerKeepsMaximumBufferSize() {
+		BufferDebloater debloater = new BufferDebloater(MAX_BUFFER_SIZE, 1000, 200, 0);
+
+		// 1 MB/s, the desired buffer size exceeds the segment size
+		assertEquals(-1, debloater.onBufferConsumed(200_000, NUM_BUFFERS, 200 * MILLIS));
+		assertEquals(MAX_BUFFER_SIZE, debloater.getLastAnnouncedBufferSize());
+	}
+
+	@Test
+	public void testSlowConsumerShrinksBuffers() {
+		BufferDebloater debloater = new BufferDebloater(MAX_BUFFER_SIZE, 1000, 200, 0);
+
+		// 10 KB/s over 10 buffers with a target of one second
+		assertEquals(1000, debloater.onBufferConsumed(2000, NUM_BUFFERS, 200 * MILLIS));
+		assertEquals(10_000.0, debloater.getThroughput(), 0.0);
+	}
+
+	@Test
+	public void testIdleTimeIsNotCounted() {
+		BufferDebloater debloater = new BufferDebloater(MAX_BUFFER_SIZE, 1000, 200, 0);
+
+		debloater.onIdleStart(0);
+		assertEquals(-1, debloater.onBufferConsumed(1000, NUM_BUFFERS, 100 * MILLIS));
+		assertEquals(2000, debloater.onBufferConsumed(1000, NUM_BUFFERS, 200 * MILLIS));
+	}
+
+	@Test
+	public void testBufferSizeIsBoundedByMinimum() {
+		BufferDebloater debloater = new BufferDebloater(MAX_BUFFER_SIZE, 1000, 200, 0);
+
+		assertEquals(BufferDebloater.MIN_BUFFER_SIZE, debloater.onBufferConsumed(1, NUM_BUFFERS, 200 * MILLIS));
+	}
+
+	@Test
+	public void testSmallChangesAreNotAnnounced() {
+		BufferDebloater debloater = new BufferDebloater(MAX_BUFFER_SIZE, 1000, 200, 0);
+
+		assertEquals(1000, debloater.onBufferConsumed(2000, NUM_BUFFERS, 200 * MILLIS));
+
+		// the smoothed throughput changes by 3 percent only
+		assertEquals(-1, debloater.onBufferConsumed(2200, NUM_BUFFERS, 400 * MILLIS));
+		assertEquals(1000, debloater.getLastAnnouncedBufferSize());
+
+		// a consumer that became much faster grows the buffers again
+		assertEquals(MAX_BUFFER_SIZE, debloater.onBufferConsumed(2_000_000, NUM_BUFFERS, 600 * MILLIS));
+	}
+}
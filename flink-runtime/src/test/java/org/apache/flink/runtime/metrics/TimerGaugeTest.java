@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.metrics;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for the {@link TimerGauge}.
+ */
+public class TimerGaugeTest extends TestLogger {
+
+	private static final long SECOND_NANOS = 1_000_000_000L;
+
+	@Test
+	public void testNoPeriods() {
+		TimerGauge gauge = new TimerGauge();
+
+		gauge.update(System.nanoTime() + SECOND_NANOS);
+
+		assertEquals(0L, (long) gauge.getValue());
+	}
+
+	@Test
+	public void testFinishedPeriod() throws Exception {
+		TimerGauge gauge = new TimerGauge();
+
+		gauge.markStart();
+		Thread.sleep(10);
+		gauge.markEnd();
+
+		gauge.update();
+
+		assertThat(gauge.getValue(), greaterThan(0L));
+		assertThat(gauge.getValue(), lessThanOrEqualTo(1000L));
+	}
+
+	@Test
+	public void testPeriodInProgress() {
+		TimerGauge gauge = new TimerGauge();
+
+		gauge.markStart();
+		long now = System.nanoTime();
+
+		// the thread was in the state for nearly the whole interval
+		gauge.update(now + SECOND_NANOS);
+		assertThat(gauge.getValue(), greaterThanOrEqualTo(990L));
+
+		// the part of the period that was already reported is not reported again
+		gauge.update(now + 2 * SECOND_NANOS);
+		assertEquals(1000L, (long) gauge.getValue());
+	}
+}
@@ -67,5 +67,9 @@ public class TaskIOMetricGroupTest {
 		assertEquals(1L, taskIO.getNumBuffersInLocalCounter().getCount());
 		assertEquals(2L, taskIO.getNumBuffersInRemoteCounter().getCount());
 		assertEquals(3L, taskIO.getNumBuffersOutCounter().getCount());
+
+		// test time metrics
+		assertEquals(0L, (long) taskIO.getIdleTimeMsPerSecond().getValue());
+		assertEquals(0L, (long) taskIO.getBackPressuredTimeMsPerSecond().getValue());
 	}
 }
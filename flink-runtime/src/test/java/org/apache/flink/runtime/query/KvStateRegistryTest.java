@@ -313,6 +313,11 @@ public class KvStateRegistryTest extends TestLogger {
 			// noop
 		}
 
+		@Override
+		public VoidNamespace getCurrentNamespace() {
+			return VoidNamespace.INSTANCE;
+		}
+
 		@Override
 		public byte[] getSerializedValue(
 				final byte[] serializedKeyAndNamespace,
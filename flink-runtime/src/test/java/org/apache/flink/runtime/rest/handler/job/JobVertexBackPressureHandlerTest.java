@@ -21,9 +21,14 @@ package org.apache.flink.runtime.rest.handler.job;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.time.Time;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.metrics.MetricNames;
+import org.apache.flink.runtime.metrics.dump.MetricDump;
+import org.apache.flink.runtime.metrics.dump.QueryScopeInfo;
 import org.apache.flink.runtime.rest.handler.HandlerRequest;
 import org.apache.flink.runtime.rest.handler.legacy.backpressure.OperatorBackPressureStats;
 import org.apache.flink.runtime.rest.handler.legacy.backpressure.OperatorBackPressureStatsResponse;
+import org.apache.flink.runtime.rest.handler.legacy.metrics.MetricFetcher;
+import org.apache.flink.runtime.rest.handler.legacy.metrics.MetricStore;
 import org.apache.flink.runtime.rest.messages.EmptyRequestBody;
 import org.apache.flink.runtime.rest.messages.JobIDPathParameter;
 import org.apache.flink.runtime.rest.messages.JobVertexBackPressureHeaders;
@@ -48,6 +53,8 @@ import static org.apache.flink.runtime.rest.messages.JobVertexBackPressureInfo.V
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests for {@link JobVertexBackPressureHandler}.
@@ -64,6 +71,13 @@ public class JobVertexBackPressureHandlerTest {
 	 */
 	private static final JobID TEST_JOB_ID_BACK_PRESSURE_STATS_ABSENT = new JobID();
 
+	/**
+	 * Job ID for which the back pressured time metric of all subtasks is available.
+	 */
+	private static final JobID TEST_JOB_ID_BACK_PRESSURE_METRICS_AVAILABLE = new JobID();
+
+	private static final JobVertexID TEST_JOB_VERTEX_ID = new JobVertexID();
+
 	private TestingRestfulGateway restfulGateway;
 
 	private JobVertexBackPressureHandler jobVertexBackPressureHandler;
@@ -85,12 +99,29 @@ public class JobVertexBackPressureHandlerTest {
 				}
 			}
 		).build();
+
+		final MetricStore metricStore = new MetricStore();
+		final String[] backPressuredTimes = {"1000", "500", "100"};
+		for (int subtask = 0; subtask < backPressuredTimes.length; subtask++) {
+			metricStore.add(new MetricDump.GaugeDump(
+				new QueryScopeInfo.TaskQueryScopeInfo(
+					TEST_JOB_ID_BACK_PRESSURE_METRICS_AVAILABLE.toString(),
+					TEST_JOB_VERTEX_ID.toString(),
+					subtask),
+				MetricNames.TASK_BACK_PRESSURED_TIME,
+				backPressuredTimes[subtask]));
+		}
+
+		final MetricFetcher<?> metricFetcher = mock(MetricFetcher.class);
+		when(metricFetcher.getMetricStore()).thenReturn(metricStore);
+
 		jobVertexBackPressureHandler = new JobVertexBackPressureHandler(
 			CompletableFuture.completedFuture("localhost:12345"),
 			() -> CompletableFuture.completedFuture(restfulGateway),
 			Time.seconds(10),
 			Collections.emptyMap(),
-			JobVertexBackPressureHeaders.getInstance()
+			JobVertexBackPressureHeaders.getInstance(),
+			metricFetcher
 		);
 	}
 
@@ -128,6 +159,41 @@ public class JobVertexBackPressureHandlerTest {
 			.collect(Collectors.toList()), contains(0, 1, 2));
 	}
 
+	@Test
+	public void testGetBackPressureFromMetrics() throws Exception {
+		final Map<String, String> pathParameters = new HashMap<>();
+		pathParameters.put(JobIDPathParameter.KEY, TEST_JOB_ID_BACK_PRESSURE_METRICS_AVAILABLE.toString());
+		pathParameters.put(JobVertexIdPathParameter.KEY, TEST_JOB_VERTEX_ID.toString());
+
+		final HandlerRequest<EmptyRequestBody, JobVertexMessageParameters> request =
+			new HandlerRequest<>(
+				EmptyRequestBody.getInstance(),
+				new JobVertexMessageParameters(), pathParameters, Collections.emptyMap());
+
+		// the gateway fails the test if it is asked for stack trace samples
+		final CompletableFuture<JobVertexBackPressureInfo> jobVertexBackPressureInfoCompletableFuture =
+			jobVertexBackPressureHandler.handleRequest(request, restfulGateway);
+		final JobVertexBackPressureInfo jobVertexBackPressureInfo = jobVertexBackPressureInfoCompletableFuture.get();
+
+		assertThat(jobVertexBackPressureInfo.getStatus(), equalTo(VertexBackPressureStatus.OK));
+		assertThat(jobVertexBackPressureInfo.getBackpressureLevel(), equalTo(HIGH));
+
+		assertThat(jobVertexBackPressureInfo.getSubtasks()
+			.stream()
+			.map(JobVertexBackPressureInfo.SubtaskBackPressureInfo::getRatio)
+			.collect(Collectors.toList()), contains(1.0, 0.5, 0.1));
+
+		assertThat(jobVertexBackPressureInfo.getSubtasks()
+			.stream()
+			.map(JobVertexBackPressureInfo.SubtaskBackPressureInfo::getBackpressureLevel)
+			.collect(Collectors.toList()), contains(HIGH, LOW, OK));
+
+		assertThat(jobVertexBackPressureInfo.getSubtasks()
+			.stream()
+			.map(JobVertexBackPressureInfo.SubtaskBackPressureInfo::getSubtask)
+			.collect(Collectors.toList()), contains(0, 1, 2));
+	}
+
 	@Test
 	public void testAbsentBackPressure() throws Exception {
 		final Map<String, String> pathParameters = new HashMap<>();
@@ -23,6 +23,7 @@ import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
 import org.apache.flink.runtime.concurrent.Executors;
+import org.apache.flink.runtime.concurrent.ManuallyTriggeredScheduledExecutor;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 
@@ -47,6 +48,7 @@ public class TaskLocalStateStoreImplTest {
 	private Object internalLock;
 	private TemporaryFolder temporaryFolder;
 	private File[] allocationBaseDirs;
+	private ManuallyTriggeredScheduledExecutor retentionTimer;
 	private TaskLocalStateStoreImpl taskLocalStateStore;
 
 	@Before
@@ -60,6 +62,7 @@ public class TaskLocalStateStoreImplTest {
 		this.allocationBaseDirs = new File[]{temporaryFolder.newFolder(), temporaryFolder.newFolder()};
 		this.internalSnapshotMap = new TreeMap<>();
 		this.internalLock = new Object();
+		this.retentionTimer = new ManuallyTriggeredScheduledExecutor();
 
 		LocalRecoveryDirectoryProviderImpl directoryProvider =
 			new LocalRecoveryDirectoryProviderImpl(allocationBaseDirs, jobID, jobVertexID, subtaskIdx);
@@ -73,6 +76,8 @@ public class TaskLocalStateStoreImplTest {
 			subtaskIdx,
 			localRecoveryConfig,
 			Executors.directExecutor(),
+			60000L,
+			retentionTimer,
 			internalSnapshotMap,
 			internalLock);
 	}
@@ -167,6 +172,63 @@ public class TaskLocalStateStoreImplTest {
 		checkPrunedAndDiscarded(taskStateSnapshots, 0, chkCount);
 	}
 
+	/**
+	 * Tests that retained keyed state backends are handed over once, replaced, and disposed with the store.
+	 */
+	@Test
+	public void retainKeyedStateBackends() throws Exception {
+		final OperatorID operatorID = new OperatorID();
+		final AbstractKeyedStateBackend<?> first = Mockito.mock(AbstractKeyedStateBackend.class);
+		final AbstractKeyedStateBackend<?> second = Mockito.mock(AbstractKeyedStateBackend.class);
+		final AbstractKeyedStateBackend<?> third = Mockito.mock(AbstractKeyedStateBackend.class);
+
+		taskLocalStateStore.retainKeyedStateBackend(operatorID, first);
+		Assert.assertSame(first, taskLocalStateStore.takeRetainedKeyedStateBackend(operatorID));
+		Assert.assertNull(taskLocalStateStore.takeRetainedKeyedStateBackend(operatorID));
+		Mockito.verify(first, Mockito.never()).dispose();
+
+		taskLocalStateStore.retainKeyedStateBackend(operatorID, first);
+		taskLocalStateStore.retainKeyedStateBackend(operatorID, second);
+		Mockito.verify(first).dispose();
+
+		taskLocalStateStore.dispose();
+		Mockito.verify(second).dispose();
+
+		// backends that are retained after the disposal are disposed right away
+		taskLocalStateStore.retainKeyedStateBackend(operatorID, third);
+		Mockito.verify(third).dispose();
+		Assert.assertNull(taskLocalStateStore.takeRetainedKeyedStateBackend(operatorID));
+	}
+
+	/**
+	 * Tests that retained keyed state backends are disposed if the next attempt of the subtask does not take them,
+	 * because it was deployed to another slot or runs without them.
+	 */
+	@Test
+	public void disposeRetainedKeyedStateBackendsThatAreNotTaken() throws Exception {
+		final OperatorID operatorID = new OperatorID();
+		final AbstractKeyedStateBackend<?> expiring = Mockito.mock(AbstractKeyedStateBackend.class);
+		final AbstractKeyedStateBackend<?> taken = Mockito.mock(AbstractKeyedStateBackend.class);
+		final AbstractKeyedStateBackend<?> unused = Mockito.mock(AbstractKeyedStateBackend.class);
+
+		taskLocalStateStore.retainKeyedStateBackend(operatorID, expiring);
+		retentionTimer.triggerScheduledTasks();
+		Mockito.verify(expiring).dispose();
+		Assert.assertNull(taskLocalStateStore.takeRetainedKeyedStateBackend(operatorID));
+
+		// the expiry of a backend that was taken has no effect
+		taskLocalStateStore.retainKeyedStateBackend(operatorID, taken);
+		Assert.assertSame(taken, taskLocalStateStore.takeRetainedKeyedStateBackend(operatorID));
+		retentionTimer.triggerScheduledTasks();
+		Mockito.verify(taken, Mockito.never()).dispose();
+
+		// a confirmed checkpoint shows that the running attempt did not need the backend
+		taskLocalStateStore.retainKeyedStateBackend(operatorID, unused);
+		taskLocalStateStore.confirmCheckpoint(42L);
+		Mockito.verify(unused).dispose();
+		Assert.assertNull(taskLocalStateStore.takeRetainedKeyedStateBackend(operatorID));
+	}
+
 	private void checkStoredAsExpected(List<TaskStateSnapshot> history, int off, int len) throws Exception {
 		for (int i = off; i < len; ++i) {
 			TaskStateSnapshot expected = history.get(i);
@@ -19,11 +19,13 @@
 package org.apache.flink.runtime.state;
 
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.util.Preconditions;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.SortedMap;
@@ -39,6 +41,8 @@ public class TestTaskLocalStateStore implements TaskLocalStateStore {
 
 	private final LocalRecoveryConfig localRecoveryConfig;
 
+	private final Map<OperatorID, AbstractKeyedStateBackend<?>> retainedKeyedStateBackends;
+
 	private boolean disposed;
 
 	public TestTaskLocalStateStore() {
@@ -48,6 +52,7 @@ public class TestTaskLocalStateStore implements TaskLocalStateStore {
 	public TestTaskLocalStateStore(@Nonnull LocalRecoveryConfig localRecoveryConfig) {
 		this.localRecoveryConfig = localRecoveryConfig;
 		this.taskStateSnapshotsByCheckpointID = new TreeMap<>();
+		this.retainedKeyedStateBackends = new HashMap<>();
 		this.disposed = false;
 	}
 
@@ -75,6 +80,10 @@ public class TestTaskLocalStateStore implements TaskLocalStateStore {
 				}
 			}
 			taskStateSnapshotsByCheckpointID.clear();
+			for (AbstractKeyedStateBackend<?> keyedStateBackend : retainedKeyedStateBackends.values()) {
+				keyedStateBackend.dispose();
+			}
+			retainedKeyedStateBackends.clear();
 		}
 	}
 
@@ -109,6 +118,25 @@ public class TestTaskLocalStateStore implements TaskLocalStateStore {
 		taskStateSnapshotsByCheckpointID.keySet().removeIf(matcher::test);
 	}
 
+	@Override
+	public void retainKeyedStateBackend(
+		@Nonnull OperatorID operatorID,
+		@Nonnull AbstractKeyedStateBackend<?> keyedStateBackend) {
+
+		Preconditions.checkState(!disposed);
+		AbstractKeyedStateBackend<?> previous = retainedKeyedStateBackends.put(operatorID, keyedStateBackend);
+		if (previous != null) {
+			previous.dispose();
+		}
+	}
+
+	@Nullable
+	@Override
+	public AbstractKeyedStateBackend<?> takeRetainedKeyedStateBackend(@Nonnull OperatorID operatorID) {
+		Preconditions.checkState(!disposed);
+		return retainedKeyedStateBackends.remove(operatorID);
+	}
+
 	public boolean isDisposed() {
 		return disposed;
 	}
@@ -159,6 +159,20 @@ public class TestTaskStateManager implements TaskStateManager {
 			"Local state directory was never set for this test object!");
 	}
 
+	@Override
+	public void retainKeyedStateBackend(
+		@Nonnull OperatorID operatorID,
+		@Nonnull AbstractKeyedStateBackend<?> keyedStateBackend) {
+
+		keyedStateBackend.dispose();
+	}
+
+	@Nullable
+	@Override
+	public AbstractKeyedStateBackend<?> takeRetainedKeyedStateBackend(@Nonnull OperatorID operatorID) {
+		return null;
+	}
+
 	public void setLocalRecoveryConfig(LocalRecoveryConfig recoveryDirectoryProvider) {
 		this.localRecoveryDirectoryProvider = recoveryDirectoryProvider;
 	}
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.CheckpointStreamFactory.CheckpointStateOutputStream;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.CompositeStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SharedStateRegistryKey;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link FileSegmentStateHandle} and the {@link FileSegmentWriter}.
+ */
+public class FileSegmentStateHandleTest {
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testReadSegmentsOfFile() throws Exception {
+		final Path directory = Path.fromLocalFile(tempFolder.newFolder());
+		final FileSegmentWriter writer = new FileSegmentWriter(FileSystem.getLocalFileSystem(), directory);
+
+		final byte[] data = randomData(100);
+		final FileSegmentStateHandle handle = writer.write(data, 60);
+
+		assertEquals(0L, handle.getStartPosition());
+		assertEquals(60L, handle.getStateSize());
+
+		try (FSDataInputStream in = handle.openInputStream()) {
+			byte[] read = new byte[100];
+			assertEquals(60, in.read(read, 0, 100));
+			assertEquals(-1, in.read());
+			assertEquals(60L, in.getPos());
+
+			// positions are relative to the segment
+			in.seek(10);
+			assertEquals(data[10] & 0xff, in.read());
+			assertEquals(11L, in.getPos());
+		}
+	}
+
+	@Test
+	public void testConcurrentStreamsShareFiles() throws Exception {
+		final File directory = tempFolder.newFolder();
+		final FsCheckpointStreamFactory factory = new FsCheckpointStreamFactory(
+			FileSystem.getLocalFileSystem(),
+			Path.fromLocalFile(directory),
+			Path.fromLocalFile(directory),
+			16,
+			1024);
+
+		final int numStreams = 50;
+		final List<byte[]> data = new ArrayList<>();
+		final List<CompletableFuture<StreamStateHandle>> handles = new ArrayList<>();
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+			for (int i = 0; i < numStreams; i++) {
+				final byte[] bytes = randomData(100 + i);
+				data.add(bytes);
+				handles.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						CheckpointStateOutputStream out =
+							factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+						out.write(bytes);
+						return out.closeAndGetHandle();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, executor));
+			}
+
+			for (int i = 0; i < numStreams; i++) {
+				StreamStateHandle handle = handles.get(i).get();
+				assertTrue(handle instanceof FileSegmentStateHandle);
+				assertArrayEquals(data.get(i), readFully(handle));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		File[] files = directory.listFiles();
+		assertTrue(files != null && files.length >= 1 && files.length <= numStreams);
+	}
+
+	@Test
+	public void testStreamWritesInlineSegmentAndFileState() throws Exception {
+		final File directory = tempFolder.newFolder();
+		final FsCheckpointStreamFactory factory = new FsCheckpointStreamFactory(
+			FileSystem.getLocalFileSystem(),
+			Path.fromLocalFile(directory),
+			Path.fromLocalFile(directory),
+			16,
+			1024);
+
+		assertTrue(writeAndGetHandle(factory, 10) instanceof ByteStreamStateHandle);
+		assertTrue(writeAndGetHandle(factory, 1000) instanceof FileSegmentStateHandle);
+		assertTrue(writeAndGetHandle(factory, 10000) instanceof FileStateHandle);
+
+		CheckpointStateOutputStream empty = factory.createCheckpointStateOutputStream(CheckpointedStateScope.SHARED);
+		assertNull(empty.closeAndGetHandle());
+	}
+
+	@Test
+	public void testDiscardDeletesFileWithLastRegisteredSegment() throws Exception {
+		final File directory = tempFolder.newFolder();
+		final FileSegmentWriter writer = new FileSegmentWriter(
+			FileSystem.getLocalFileSystem(), Path.fromLocalFile(directory));
+
+		final FileSegmentStateHandle handle = writer.write(randomData(20), 20);
+		final FileSegmentStateHandle first = new FileSegmentStateHandle(handle.getFilePath(), 0, 10);
+		final FileSegmentStateHandle second = new FileSegmentStateHandle(handle.getFilePath(), 10, 10);
+		final File file = new File(handle.getFilePath().toUri());
+
+		final SharedStateRegistry registry = new SharedStateRegistry();
+		first.registerSharedStates(registry);
+		second.registerSharedStates(registry);
+
+		// a repeated registration does not add a reference
+		first.registerSharedStates(registry);
+
+		first.discardState();
+		assertTrue(file.exists());
+
+		second.discardState();
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void testDiscardOfUnregisteredSegmentDeletesFile() throws Exception {
+		final File directory = tempFolder.newFolder();
+		final FileSegmentWriter writer = new FileSegmentWriter(
+			FileSystem.getLocalFileSystem(), Path.fromLocalFile(directory));
+
+		final FileSegmentStateHandle handle = writer.write(randomData(20), 20);
+		final File file = new File(handle.getFilePath().toUri());
+		assertTrue(file.exists());
+
+		handle.discardState();
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void testFileOfDuplicateSegmentsIsDeleted() throws Exception {
+		final File directory = tempFolder.newFolder();
+		final FileSegmentWriter writer = new FileSegmentWriter(
+			FileSystem.getLocalFileSystem(), Path.fromLocalFile(directory));
+
+		final SharedStateRegistryKey firstKey = new SharedStateRegistryKey("first");
+		final SharedStateRegistryKey secondKey = new SharedStateRegistryKey("second");
+		final SharedStateRegistryKey thirdKey = new SharedStateRegistryKey("third");
+
+		final Path registeredFile = writer.write(randomData(20), 20).getFilePath();
+		final Path duplicateFile = writer.write(randomData(20), 20).getFilePath();
+		final Path mixedFile = writer.write(randomData(20), 20).getFilePath();
+
+		final SharedStateRegistry registry = new SharedStateRegistry();
+
+		final SharedSegments registered = new SharedSegments();
+		registered.add(firstKey, new FileSegmentStateHandle(registeredFile, 0, 10));
+		registered.add(secondKey, new FileSegmentStateHandle(registeredFile, 10, 10));
+		registry.registerAll(Collections.singletonList(registered));
+
+		// a later checkpoint uploaded the same shared state again, into files of its own
+		final SharedSegments reuploaded = new SharedSegments();
+		reuploaded.add(firstKey, new FileSegmentStateHandle(duplicateFile, 0, 10));
+		reuploaded.add(secondKey, new FileSegmentStateHandle(duplicateFile, 10, 10));
+		reuploaded.add(firstKey, new FileSegmentStateHandle(mixedFile, 0, 10));
+		reuploaded.add(thirdKey, new FileSegmentStateHandle(mixedFile, 10, 10));
+		registry.registerAll(Collections.singletonList(reuploaded));
+
+		assertTrue(new File(registeredFile.toUri()).exists());
+		assertFalse(new File(duplicateFile.toUri()).exists());
+		assertTrue(new File(mixedFile.toUri()).exists());
+
+		registry.unregisterReference(thirdKey);
+		assertFalse(new File(mixedFile.toUri()).exists());
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Shared state that consists of file segments, like the shared state of incremental checkpoints.
+	 */
+	private static final class SharedSegments implements CompositeStateHandle {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Map.Entry<SharedStateRegistryKey, StreamStateHandle>> segments = new ArrayList<>();
+
+		void add(SharedStateRegistryKey key, StreamStateHandle segment) {
+			segments.add(new AbstractMap.SimpleImmutableEntry<>(key, segment));
+		}
+
+		@Override
+		public void registerSharedStates(SharedStateRegistry stateRegistry) {
+			for (Map.Entry<SharedStateRegistryKey, StreamStateHandle> segment : segments) {
+				stateRegistry.registerReference(segment.getKey(), segment.getValue());
+			}
+		}
+
+		@Override
+		public void discardState() {
+		}
+
+		@Override
+		public long getStateSize() {
+			return 0L;
+		}
+	}
+
+	private static StreamStateHandle writeAndGetHandle(FsCheckpointStreamFactory factory, int size) throws IOException {
+		final byte[] data = randomData(size);
+		final CheckpointStateOutputStream out = factory.createCheckpointStateOutputStream(CheckpointedStateScope.SHARED);
+
+		for (int i = 0; i < size; i += 7) {
+			out.write(data, i, Math.min(7, size - i));
+		}
+		assertEquals(size, out.getPos());
+
+		final StreamStateHandle handle = out.closeAndGetHandle();
+		assertArrayEquals(data, readFully(handle));
+		return handle;
+	}
+
+	private static byte[] readFully(StreamStateHandle handle) throws IOException {
+		final byte[] data = new byte[(int) handle.getStateSize()];
+
+		try (FSDataInputStream in = handle.openInputStream()) {
+			int pos = 0;
+			while (pos < data.length) {
+				int read = in.read(data, pos, data.length - pos);
+				assertTrue(read > 0);
+				pos += read;
+			}
+			assertEquals(-1, in.read());
+		}
+		return data;
+	}
+
+	private static byte[] randomData(int size) {
+		final byte[] data = new byte[size];
+		new Random().nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.StateObjectCollection;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.LocalRecoveryDirectoryProvider;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.TestLocalRecoveryConfig;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.runtime.state.memory.MemCheckpointStreamFactory;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RunnableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the incremental checkpoints of the {@link HeapKeyedStateBackend}.
+ */
+public class HeapIncrementalCheckpointTest extends TestLogger {
+
+	private static final KeyGroupRange KEY_GROUP_RANGE = new KeyGroupRange(0, 15);
+
+	private final ValueStateDescriptor<Integer> stateDescriptor = new ValueStateDescriptor<>("test", IntSerializer.INSTANCE);
+
+	@Test
+	public void testTrackerOnlyWritesModifiedKeyGroups() {
+		HeapIncrementalCheckpointTracker tracker = new HeapIncrementalCheckpointTracker(KEY_GROUP_RANGE, 10);
+
+		// without a completed checkpoint, everything is written
+		tracker.markDirty(3);
+		HeapIncrementalCheckpointTracker.SnapshotPlan plan = tracker.startSnapshot(1L);
+		assertTrue(plan.isFullSnapshot());
+		tracker.snapshotMaterialized(1L, allKeyGroupFiles(1L));
+		tracker.notifyCheckpointComplete(1L);
+
+		// checkpoint 2 does not complete, so its modifications must be contained in checkpoint 3
+		tracker.markDirty(5);
+		plan = tracker.startSnapshot(2L);
+		assertNull(plan.getBaseFile(5));
+		assertEquals(HeapIncrementalCheckpointTracker.createKeyGroupFileId(3, 1L), plan.getBaseFile(3));
+
+		tracker.markDirty(7);
+		plan = tracker.startSnapshot(3L);
+		assertNull(plan.getBaseFile(5));
+		assertNull(plan.getBaseFile(7));
+		assertEquals(HeapIncrementalCheckpointTracker.createKeyGroupFileId(3, 1L), plan.getBaseFile(3));
+
+		// a change of the registered states forces a full snapshot
+		tracker.markMetaInfoChanged();
+		assertTrue(tracker.startSnapshot(4L).isFullSnapshot());
+	}
+
+	@Test
+	public void testTrackerCompactsAfterInterval() {
+		HeapIncrementalCheckpointTracker tracker = new HeapIncrementalCheckpointTracker(KEY_GROUP_RANGE, 2);
+
+		for (long checkpointId = 1L; checkpointId <= 7L; ++checkpointId) {
+			HeapIncrementalCheckpointTracker.SnapshotPlan plan = tracker.startSnapshot(checkpointId);
+			// checkpoint 1 has no base, checkpoints 4 and 7 compact after two incremental checkpoints
+			assertEquals(checkpointId % 3 == 1L, plan.isFullSnapshot());
+			tracker.snapshotMaterialized(checkpointId, allKeyGroupFiles(checkpointId));
+			tracker.notifyCheckpointComplete(checkpointId);
+		}
+	}
+
+	@Test
+	public void testTrackerPrunesSubsumedSnapshots() {
+		HeapIncrementalCheckpointTracker tracker = new HeapIncrementalCheckpointTracker(KEY_GROUP_RANGE, 10);
+
+		tracker.startSnapshot(1L);
+		tracker.snapshotMaterialized(1L, allKeyGroupFiles(1L));
+		tracker.notifyCheckpointComplete(1L);
+
+		tracker.markDirty(3);
+		tracker.startSnapshot(2L);
+		tracker.snapshotMaterialized(2L, allKeyGroupFiles(2L));
+		tracker.markDirty(5);
+		tracker.startSnapshot(3L);
+		tracker.snapshotMaterialized(3L, allKeyGroupFiles(3L));
+
+		// checkpoint 4 is a savepoint, which subsumes checkpoints 2 and 3 without being tracked
+		tracker.notifyCheckpointComplete(4L);
+		assertNull(tracker.getKeyGroupsModifiedSince(2L));
+		assertNull(tracker.getKeyGroupsModifiedSince(3L));
+		assertEquals(bitSetOf(3, 5), tracker.getKeyGroupsModifiedSince(1L));
+
+		// a late materialization of a subsumed snapshot is ignored
+		tracker.snapshotMaterialized(2L, allKeyGroupFiles(2L));
+		assertNull(tracker.getKeyGroupsModifiedSince(2L));
+
+		// the modifications of the subsumed snapshots are still written again
+		HeapIncrementalCheckpointTracker.SnapshotPlan plan = tracker.startSnapshot(5L);
+		assertNull(plan.getBaseFile(3));
+		assertNull(plan.getBaseFile(5));
+		assertEquals(HeapIncrementalCheckpointTracker.createKeyGroupFileId(7, 1L), plan.getBaseFile(7));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIncrementalCheckpointsRejectLocalRecovery() {
+		createBackend(new LocalRecoveryConfig(true, mock(LocalRecoveryDirectoryProvider.class)));
+	}
+
+	@Test
+	public void testKeyGroupFileIds() {
+		StateHandleID fileId = HeapIncrementalCheckpointTracker.createKeyGroupFileId(42, 4711L);
+		assertEquals(42, HeapIncrementalCheckpointTracker.getKeyGroupFromFileId(fileId));
+	}
+
+	@Test
+	public void testIncrementalSnapshotAndRestore() throws Exception {
+		final CheckpointStreamFactory streamFactory = new MemCheckpointStreamFactory(4 * 1024 * 1024);
+		final SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+		final IncrementalKeyedStateHandle secondHandle;
+
+		HeapKeyedStateBackend<Integer> backend = createBackend();
+		try {
+			InternalValueState<Integer, VoidNamespace, Integer> state =
+				backend.createInternalState(VoidNamespaceSerializer.INSTANCE, stateDescriptor);
+
+			for (int key = 0; key < 100; ++key) {
+				backend.setCurrentKey(key);
+				state.setCurrentNamespace(VoidNamespace.INSTANCE);
+				state.update(key);
+			}
+
+			IncrementalKeyedStateHandle firstHandle = snapshot(backend, 1L, streamFactory);
+			assertEquals(0, countPlaceholders(firstHandle));
+			firstHandle.registerSharedStates(sharedStateRegistry);
+			backend.notifyCheckpointComplete(1L);
+
+			backend.setCurrentKey(42);
+			state.setCurrentNamespace(VoidNamespace.INSTANCE);
+			state.update(4711);
+
+			secondHandle = snapshot(backend, 2L, streamFactory);
+			assertEquals(KEY_GROUP_RANGE.getNumberOfKeyGroups() - 1, countPlaceholders(secondHandle));
+			secondHandle.registerSharedStates(sharedStateRegistry);
+			assertEquals(0, countPlaceholders(secondHandle));
+		} finally {
+			backend.dispose();
+		}
+
+		backend = createBackend();
+		try {
+			backend.restore(StateObjectCollection.singleton(secondHandle));
+
+			InternalValueState<Integer, VoidNamespace, Integer> state =
+				backend.createInternalState(VoidNamespaceSerializer.INSTANCE, stateDescriptor);
+
+			for (int key = 0; key < 100; ++key) {
+				backend.setCurrentKey(key);
+				state.setCurrentNamespace(VoidNamespace.INSTANCE);
+				assertEquals(Integer.valueOf(key == 42 ? 4711 : key), state.value());
+			}
+
+			// the first checkpoint after a restore has no base to reference
+			assertEquals(0, countPlaceholders(snapshot(backend, 3L, streamFactory)));
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testTrackerKnowsModificationsSinceMaterializedSnapshots() {
+		HeapIncrementalCheckpointTracker tracker = new HeapIncrementalCheckpointTracker(KEY_GROUP_RANGE, 10);
+
+		tracker.startSnapshot(1L);
+		tracker.snapshotMaterialized(1L, allKeyGroupFiles(1L));
+		tracker.notifyCheckpointComplete(1L);
+
+		tracker.markDirty(3);
+		tracker.startSnapshot(2L);
+		tracker.snapshotMaterialized(2L, allKeyGroupFiles(2L));
+		tracker.markDirty(5);
+
+		assertEquals(bitSetOf(3, 5), tracker.getKeyGroupsModifiedSince(1L));
+		assertEquals(bitSetOf(5), tracker.getKeyGroupsModifiedSince(2L));
+		// the snapshot for checkpoint 3 was never taken
+		assertNull(tracker.getKeyGroupsModifiedSince(3L));
+
+		tracker.resetToCheckpoint(2L);
+		assertEquals(new BitSet(), tracker.getKeyGroupsModifiedSince(2L));
+		assertNull(tracker.getKeyGroupsModifiedSince(1L));
+
+		// the snapshots after the rollback reference the files of the checkpoint that was rolled back to
+		tracker.markDirty(7);
+		HeapIncrementalCheckpointTracker.SnapshotPlan plan = tracker.startSnapshot(4L);
+		assertNull(plan.getBaseFile(7));
+		assertEquals(HeapIncrementalCheckpointTracker.createKeyGroupFileId(5, 2L), plan.getBaseFile(5));
+	}
+
+	@Test
+	public void testRollbackToCheckpoint() throws Exception {
+		final CheckpointStreamFactory streamFactory = new MemCheckpointStreamFactory(4 * 1024 * 1024);
+		final SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+		final HeapKeyedStateBackend<Integer> backend = createBackend();
+		final HeapKeyedStateBackend<Integer> otherBackend = createBackend();
+		try {
+			InternalValueState<Integer, VoidNamespace, Integer> state =
+				backend.createInternalState(VoidNamespaceSerializer.INSTANCE, stateDescriptor);
+			state.setCurrentNamespace(VoidNamespace.INSTANCE);
+
+			for (int key = 0; key < 100; ++key) {
+				backend.setCurrentKey(key);
+				state.update(key);
+			}
+
+			IncrementalKeyedStateHandle stateHandle = snapshot(backend, 1L, streamFactory);
+			stateHandle.registerSharedStates(sharedStateRegistry);
+			backend.notifyCheckpointComplete(1L);
+
+			// modifications of the failed attempt after the checkpoint
+			for (int key = 0; key < 10; ++key) {
+				backend.setCurrentKey(key);
+				state.update(-1);
+			}
+			backend.setCurrentKey(100);
+			state.update(100);
+			backend.close();
+
+			// a backend cannot roll back to the checkpoint of another backend
+			assertFalse(otherBackend.rollback(StateObjectCollection.singleton(stateHandle)));
+
+			assertTrue(backend.rollback(StateObjectCollection.singleton(stateHandle)));
+
+			// the new attempt registers its states again
+			state = backend.createInternalState(VoidNamespaceSerializer.INSTANCE, stateDescriptor);
+			state.setCurrentNamespace(VoidNamespace.INSTANCE);
+
+			for (int key = 0; key < 100; ++key) {
+				backend.setCurrentKey(key);
+				assertEquals(Integer.valueOf(key), state.value());
+			}
+			backend.setCurrentKey(100);
+			assertNull(state.value());
+
+			// a state that is not contained in the checkpoint prevents the rollback
+			backend.createInternalState(
+				VoidNamespaceSerializer.INSTANCE,
+				new ValueStateDescriptor<>("other", IntSerializer.INSTANCE));
+			backend.close();
+			assertFalse(backend.rollback(StateObjectCollection.singleton(stateHandle)));
+		} finally {
+			backend.dispose();
+			otherBackend.dispose();
+		}
+	}
+
+	private static BitSet bitSetOf(int... keyGroups) {
+		BitSet bitSet = new BitSet();
+		for (int keyGroup : keyGroups) {
+			bitSet.set(keyGroup - KEY_GROUP_RANGE.getStartKeyGroup());
+		}
+		return bitSet;
+	}
+
+	private static Map<Integer, StateHandleID> allKeyGroupFiles(long checkpointId) {
+		Map<Integer, StateHandleID> files = new HashMap<>();
+		for (int keyGroup : KEY_GROUP_RANGE) {
+			files.put(keyGroup, HeapIncrementalCheckpointTracker.createKeyGroupFileId(keyGroup, checkpointId));
+		}
+		return Collections.unmodifiableMap(files);
+	}
+
+	private static IncrementalKeyedStateHandle snapshot(
+		HeapKeyedStateBackend<Integer> backend,
+		long checkpointId,
+		CheckpointStreamFactory streamFactory) throws Exception {
+
+		RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot =
+			backend.snapshot(checkpointId, 0L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation());
+		snapshot.run();
+		KeyedStateHandle stateHandle = snapshot.get().getJobManagerOwnedSnapshot();
+		assertTrue(stateHandle instanceof IncrementalKeyedStateHandle);
+		assertFalse(((IncrementalKeyedStateHandle) stateHandle).getSharedState().isEmpty());
+		return (IncrementalKeyedStateHandle) stateHandle;
+	}
+
+	private static int countPlaceholders(IncrementalKeyedStateHandle stateHandle) {
+		int placeholders = 0;
+		for (StreamStateHandle keyGroupFile : stateHandle.getSharedState().values()) {
+			if (keyGroupFile instanceof PlaceholderStreamStateHandle) {
+				++placeholders;
+			}
+		}
+		return placeholders;
+	}
+
+	private static HeapKeyedStateBackend<Integer> createBackend() {
+		return createBackend(TestLocalRecoveryConfig.disabled());
+	}
+
+	private static HeapKeyedStateBackend<Integer> createBackend(LocalRecoveryConfig localRecoveryConfig) {
+		return new HeapKeyedStateBackend<>(
+			mock(TaskKvStateRegistry.class),
+			IntSerializer.INSTANCE,
+			HeapIncrementalCheckpointTest.class.getClassLoader(),
+			KEY_GROUP_RANGE.getNumberOfKeyGroups(),
+			KEY_GROUP_RANGE,
+			true,
+			new ExecutionConfig(),
+			localRecoveryConfig,
+			new HeapPriorityQueueSetFactory(KEY_GROUP_RANGE, KEY_GROUP_RANGE.getNumberOfKeyGroups(), 128),
+			TtlTimeProvider.DEFAULT,
+			null,
+			true,
+			10);
+	}
+}
@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.ArrayListSerializer;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.TestLocalRecoveryConfig;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link OffHeapStateTable}.
+ */
+public class OffHeapStateTableTest extends TestLogger {
+
+	private static final int NUM_KEY_GROUPS = 4;
+
+	private static final int SEGMENT_SIZE = 4096;
+
+	private IOManager ioManager;
+
+	@Before
+	public void setup() {
+		ioManager = new IOManagerAsync();
+	}
+
+	@After
+	public void shutdown() {
+		ioManager.shutdown();
+	}
+
+	@Test
+	public void testPutGetRemoveContainsTransform() throws Exception {
+		final TestKeyContext keyContext = new TestKeyContext();
+		final OffHeapStateMemoryPool pool = new OffHeapStateMemoryPool(16 * SEGMENT_SIZE, SEGMENT_SIZE, null);
+		final OffHeapStateTable<Integer, Integer, ArrayList<Integer>> table = createTable(keyContext, pool);
+
+		keyContext.setKey(1);
+		assertNull(table.putAndGetOld(1, listOf(41)));
+		assertEquals(listOf(41), table.get(1));
+		assertTrue(table.containsKey(1));
+		assertFalse(table.containsKey(2));
+
+		keyContext.setKey(2);
+		table.put(1, listOf(42));
+		table.put(2, listOf(43));
+		assertEquals(3, table.size());
+		assertEquals(2, table.sizeOfNamespace(1));
+
+		assertEquals(listOf(43), table.removeAndGetOld(2));
+		assertFalse(table.containsKey(2));
+		assertEquals(2, table.size());
+
+		table.transform(1, 44, (previousState, value) -> {
+			previousState.add(value);
+			return previousState;
+		});
+		assertEquals(listOf(42, 44), table.get(1));
+		assertEquals(listOf(42, 44), table.get(2, 1));
+
+		final List<Integer> keys = table.getKeys(1).sorted().collect(Collectors.toList());
+		assertEquals(listOf(1, 2), keys);
+
+		table.dispose();
+		pool.close();
+	}
+
+	/**
+	 * Heap states modify state objects in place, which must survive the eviction from the write-back cache.
+	 */
+	@Test
+	public void testInPlaceModificationsAreWrittenBack() throws Exception {
+		final TestKeyContext keyContext = new TestKeyContext();
+		final OffHeapStateMemoryPool pool = new OffHeapStateMemoryPool(16 * SEGMENT_SIZE, SEGMENT_SIZE, null);
+		final OffHeapStateTable<Integer, Integer, ArrayList<Integer>> table = createTable(keyContext, pool);
+
+		keyContext.setKey(0);
+		table.put(0, listOf(1));
+		table.flushWriteBackCache();
+
+		table.get(0).add(2);
+
+		// evict the modified object from the cache
+		for (int key = 1; key <= 2 * OffHeapStateTable.WRITE_BACK_CACHE_CAPACITY; ++key) {
+			keyContext.setKey(key);
+			table.put(0, listOf(key));
+		}
+
+		keyContext.setKey(0);
+		assertEquals(listOf(1, 2), table.get(0));
+		assertEquals(2 * OffHeapStateTable.WRITE_BACK_CACHE_CAPACITY + 1, table.size());
+
+		table.dispose();
+		pool.close();
+	}
+
+	@Test
+	public void testSpillingToDiskAndReadingBack() throws Exception {
+		final TestKeyContext keyContext = new TestKeyContext();
+		final OffHeapStateMemoryPool pool = new OffHeapStateMemoryPool(16 * SEGMENT_SIZE, SEGMENT_SIZE, ioManager);
+		final OffHeapStateTable<Integer, Integer, ArrayList<Integer>> table = createTable(keyContext, pool);
+
+		final int numKeys = 2000;
+		for (int key = 0; key < numKeys; ++key) {
+			keyContext.setKey(key);
+			table.put(0, listOf(key, key + 1, key + 2));
+		}
+		table.flushWriteBackCache();
+
+		assertTrue(pool.getNumberOfSpills() > 0);
+		assertEquals(16, pool.getNumberOfAllocatedSegments());
+
+		for (int key = 0; key < numKeys; ++key) {
+			keyContext.setKey(key);
+			assertEquals(listOf(key, key + 1, key + 2), table.get(0));
+		}
+		assertEquals(numKeys, table.size());
+
+		// overwriting creates garbage that must be compacted away
+		for (int round = 0; round < 3; ++round) {
+			for (int key = 0; key < numKeys; ++key) {
+				keyContext.setKey(key);
+				table.put(0, listOf(key * round));
+			}
+		}
+
+		for (int key = 0; key < numKeys; ++key) {
+			keyContext.setKey(key);
+			assertEquals(listOf(key * 2), table.get(0));
+			table.remove(0);
+		}
+		assertEquals(0, table.size());
+
+		table.dispose();
+		pool.close();
+	}
+
+	@Test
+	public void testSnapshotIsCompatibleWithHeapStateTables() throws Exception {
+		final TestKeyContext keyContext = new TestKeyContext();
+		final OffHeapStateMemoryPool pool = new OffHeapStateMemoryPool(8 * SEGMENT_SIZE, SEGMENT_SIZE, ioManager);
+		final OffHeapStateTable<Integer, Integer, ArrayList<Integer>> table = createTable(keyContext, pool);
+
+		final int numKeys = 500;
+		for (int key = 0; key < numKeys; ++key) {
+			keyContext.setKey(key);
+			table.put(key % 3, listOf(key));
+		}
+
+		final StateSnapshot snapshot = table.stateSnapshot();
+		final StateSnapshot.StateKeyGroupWriter writer = snapshot.getKeyGroupWriter();
+
+		final NestedMapsStateTable<Integer, Integer, ArrayList<Integer>> restoredTable =
+			new NestedMapsStateTable<>(keyContext, table.getMetaInfo());
+
+		for (int keyGroup = 0; keyGroup < NUM_KEY_GROUPS; ++keyGroup) {
+			final ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos(1024);
+			writer.writeStateInKeyGroup(new DataOutputViewStreamWrapper(out), keyGroup);
+
+			final ByteArrayInputStreamWithPos in = new ByteArrayInputStreamWithPos(out.getBuf(), 0, out.getPosition());
+			restoredTable.keyGroupReader(KeyedBackendSerializationProxy.VERSION)
+				.readMappingsInKeyGroup(new DataInputViewStreamWrapper(in), keyGroup);
+		}
+		snapshot.release();
+
+		assertEquals(numKeys, restoredTable.size());
+		for (int key = 0; key < numKeys; ++key) {
+			assertEquals(listOf(key), restoredTable.get(key, key % 3));
+		}
+
+		table.dispose();
+		pool.close();
+	}
+
+	@Test
+	public void testQueryableStateIsRejected() throws Exception {
+		final KeyGroupRange keyGroupRange = new KeyGroupRange(0, NUM_KEY_GROUPS - 1);
+		final HeapKeyedStateBackend<Integer> backend = new HeapKeyedStateBackend<>(
+			mock(TaskKvStateRegistry.class),
+			IntSerializer.INSTANCE,
+			OffHeapStateTableTest.class.getClassLoader(),
+			NUM_KEY_GROUPS,
+			keyGroupRange,
+			false,
+			new ExecutionConfig(),
+			TestLocalRecoveryConfig.disabled(),
+			new HeapPriorityQueueSetFactory(keyGroupRange, NUM_KEY_GROUPS, 128),
+			TtlTimeProvider.DEFAULT,
+			new OffHeapStateMemoryPool(4 * SEGMENT_SIZE, SEGMENT_SIZE, ioManager),
+			false,
+			1);
+
+		final ValueStateDescriptor<Integer> stateDescriptor = new ValueStateDescriptor<>("test", IntSerializer.INSTANCE);
+		stateDescriptor.setQueryable("test");
+
+		try {
+			backend.getOrCreateKeyedState(VoidNamespaceSerializer.INSTANCE, stateDescriptor);
+			fail("Expected an exception for queryable off-heap state.");
+		} catch (FlinkRuntimeException expected) {
+			// expected
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static OffHeapStateTable<Integer, Integer, ArrayList<Integer>> createTable(
+		InternalKeyContext<Integer> keyContext,
+		OffHeapStateMemoryPool pool) {
+
+		final RegisteredKeyValueStateBackendMetaInfo<Integer, ArrayList<Integer>> metaInfo =
+			new RegisteredKeyValueStateBackendMetaInfo<>(
+				StateDescriptor.Type.UNKNOWN,
+				"test",
+				IntSerializer.INSTANCE,
+				new ArrayListSerializer<>(IntSerializer.INSTANCE));
+
+		return new OffHeapStateTable<>(keyContext, metaInfo, pool);
+	}
+
+	private static ArrayList<Integer> listOf(Integer... values) {
+		final ArrayList<Integer> list = new ArrayList<>(values.length);
+		Collections.addAll(list, values);
+		return list;
+	}
+
+	private static final class TestKeyContext implements InternalKeyContext<Integer> {
+
+		private final KeyGroupRange keyGroupRange = new KeyGroupRange(0, NUM_KEY_GROUPS - 1);
+
+		private Integer key;
+
+		private int keyGroup;
+
+		void setKey(Integer key) {
+			this.key = key;
+			this.keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, NUM_KEY_GROUPS);
+		}
+
+		@Override
+		public Integer getCurrentKey() {
+			return key;
+		}
+
+		@Override
+		public int getCurrentKeyGroupIndex() {
+			return keyGroup;
+		}
+
+		@Override
+		public int getNumberOfKeyGroups() {
+			return NUM_KEY_GROUPS;
+		}
+
+		@Override
+		public KeyGroupRange getKeyGroupRange() {
+			return keyGroupRange;
+		}
+
+		@Override
+		public TypeSerializer<Integer> getKeySerializer() {
+			return IntSerializer.INSTANCE;
+		}
+	}
+}
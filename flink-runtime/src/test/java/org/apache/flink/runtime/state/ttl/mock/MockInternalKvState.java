@@ -58,6 +58,11 @@ abstract class MockInternalKvState<K, N, T> implements InternalKvState<K, N, T>
 		currentNamespace = namespace;
 	}
 
+	@Override
+	public N getCurrentNamespace() {
+		return currentNamespace;
+	}
+
 	@Override
 	public byte[] getSerializedValue(
 		byte[] serializedKeyAndNamespace,
@@ -102,6 +102,7 @@ public class NetworkBufferCalculationTest extends TestLogger {
 			new String[] {},
 			new String[] {},
 			false,
+			0L,
 			networkConfig,
 			QueryableStateConfiguration.disabled(),
 			1,
@@ -57,7 +57,7 @@ abstract class AbstractRocksDBAppendingState <K, N, IN, SV, OUT, S extends State
 
 	SV getInternal(byte[] key) {
 		try {
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			byte[] valueBytes = getFromDb(key);
 			if (valueBytes == null) {
 				return null;
 			}
@@ -76,7 +76,7 @@ abstract class AbstractRocksDBAppendingState <K, N, IN, SV, OUT, S extends State
 	void updateInternal(byte[] key, SV valueToStore) {
 		try {
 			// write the new value to RocksDB
-			backend.db.put(columnFamily, writeOptions, key, getValueBytes(valueToStore));
+			putToDb(key, getValueBytes(valueToStore));
 		}
 		catch (RocksDBException e) {
 			throw new FlinkRuntimeException("Error while adding value to RocksDB", e);
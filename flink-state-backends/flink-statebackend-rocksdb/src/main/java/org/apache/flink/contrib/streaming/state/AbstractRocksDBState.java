@@ -34,6 +34,11 @@ import org.rocksdb.RocksDBException;
 import org.rocksdb.WriteOptions;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Base class for {@link State} implementations that store state in a RocksDB database.
@@ -111,17 +116,89 @@ public abstract class AbstractRocksDBState<K, N, V, S extends State> implements
 		try {
 			writeCurrentKeyWithGroupAndNamespace();
 			byte[] key = dataOutputView.getCopyOfBuffer();
-			backend.db.delete(columnFamily, writeOptions, key);
+			deleteFromDb(key);
 		} catch (IOException | RocksDBException e) {
 			throw new FlinkRuntimeException("Error while removing entry from RocksDB", e);
 		}
 	}
 
+	// ------------------------------------------------------------------------
+	//  Access to RocksDB
+	// ------------------------------------------------------------------------
+
+	/*
+	 * All accesses of the state to RocksDB go through the following methods, which buffer the writes in the write
+	 * batch of the backend if write batching is enabled. Reads only flush the buffered writes if one of them affects
+	 * the keys that are read, so that the state always observes its own writes without giving up the batching.
+	 */
+
+	byte[] getFromDb(byte[] key) throws RocksDBException {
+		backend.flushStateWrites(columnFamily, key);
+		return backend.db.get(columnFamily, key);
+	}
+
+	/**
+	 * Reads the values for all given keys in one call to RocksDB.
+	 *
+	 * @return the values in the order of the keys, with null for keys that have no value.
+	 */
+	List<byte[]> multiGetFromDb(List<byte[]> keys) throws RocksDBException {
+		for (byte[] key : keys) {
+			backend.flushStateWrites(columnFamily, key);
+		}
+
+		// the returned map is keyed by the identity of the given key arrays
+		final Map<byte[], byte[]> values = backend.db.multiGet(Collections.nCopies(keys.size(), columnFamily), keys);
+
+		final List<byte[]> result = new ArrayList<>(keys.size());
+		for (byte[] key : keys) {
+			result.add(values.get(key));
+		}
+		return result;
+	}
+
+	RocksIteratorWrapper newDbIterator() throws RocksDBException {
+		backend.flushStateWrites(columnFamily);
+		return RocksDBKeyedStateBackend.getRocksIterator(backend.db, columnFamily);
+	}
+
+	void putToDb(byte[] key, byte[] value) throws RocksDBException {
+		final RocksDBWriteBatchWrapper writeBatch = backend.getStateWriteBatch();
+		if (writeBatch != null) {
+			writeBatch.put(columnFamily, key, value);
+		} else {
+			backend.db.put(columnFamily, writeOptions, key, value);
+		}
+	}
+
+	void mergeToDb(byte[] key, byte[] value) throws RocksDBException {
+		final RocksDBWriteBatchWrapper writeBatch = backend.getStateWriteBatch();
+		if (writeBatch != null) {
+			writeBatch.merge(columnFamily, key, value);
+		} else {
+			backend.db.merge(columnFamily, writeOptions, key, value);
+		}
+	}
+
+	void deleteFromDb(byte[] key) throws RocksDBException {
+		final RocksDBWriteBatchWrapper writeBatch = backend.getStateWriteBatch();
+		if (writeBatch != null) {
+			writeBatch.remove(columnFamily, key);
+		} else {
+			backend.db.delete(columnFamily, writeOptions, key);
+		}
+	}
+
 	@Override
 	public void setCurrentNamespace(N namespace) {
 		this.currentNamespace = Preconditions.checkNotNull(namespace, "Namespace");
 	}
 
+	@Override
+	public N getCurrentNamespace() {
+		return currentNamespace;
+	}
+
 	@Override
 	public byte[] getSerializedValue(
 			final byte[] serializedKeyAndNamespace,
@@ -209,6 +286,20 @@ public abstract class AbstractRocksDBState<K, N, V, S extends State> implements
 				keySerializationDataOutputView);
 	}
 
+	/**
+	 * Serializes the keys of the given namespaces under the given key, skipping null namespaces.
+	 */
+	List<byte[]> serializeNamespaceKeys(int keyGroup, K key, Collection<N> namespaces) throws IOException {
+		final List<byte[]> keys = new ArrayList<>(namespaces.size());
+		for (N namespace : namespaces) {
+			if (namespace != null) {
+				writeKeyWithGroupAndNamespace(keyGroup, key, namespace, dataOutputView);
+				keys.add(dataOutputView.getCopyOfBuffer());
+			}
+		}
+		return keys;
+	}
+
 	protected void writeKeyWithGroupAndNamespace(
 			final int keyGroup,
 			final K key,
@@ -32,6 +32,7 @@ import org.apache.flink.util.FlinkRuntimeException;
 import org.rocksdb.ColumnFamilyHandle;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * An {@link AggregatingState} implementation that stores state in RocksDB.
@@ -116,25 +117,24 @@ class RocksDBAggregatingState<K, N, T, ACC, R>
 		try {
 			ACC current = null;
 
+			// read all sources with a single call to RocksDB
+			final List<byte[]> sourceKeys = serializeNamespaceKeys(keyGroup, key, sources);
+			final List<byte[]> sourceValues = multiGetFromDb(sourceKeys);
+
 			// merge the sources to the target
-			for (N source : sources) {
-				if (source != null) {
-					writeKeyWithGroupAndNamespace(keyGroup, key, source, dataOutputView);
-
-					final byte[] sourceKey = dataOutputView.getCopyOfBuffer();
-					final byte[] valueBytes = backend.db.get(columnFamily, sourceKey);
-					backend.db.delete(columnFamily, writeOptions, sourceKey);
-
-					if (valueBytes != null) {
-						dataInputView.setBuffer(valueBytes);
-						ACC value = valueSerializer.deserialize(dataInputView);
-
-						if (current != null) {
-							current = aggFunction.merge(current, value);
-						}
-						else {
-							current = value;
-						}
+			for (int i = 0; i < sourceKeys.size(); ++i) {
+				deleteFromDb(sourceKeys.get(i));
+
+				final byte[] valueBytes = sourceValues.get(i);
+				if (valueBytes != null) {
+					dataInputView.setBuffer(valueBytes);
+					ACC value = valueSerializer.deserialize(dataInputView);
+
+					if (current != null) {
+						current = aggFunction.merge(current, value);
+					}
+					else {
+						current = value;
 					}
 				}
 			}
@@ -145,7 +145,7 @@ class RocksDBAggregatingState<K, N, T, ACC, R>
 				writeKeyWithGroupAndNamespace(keyGroup, key, target, dataOutputView);
 
 				final byte[] targetKey = dataOutputView.getCopyOfBuffer();
-				final byte[] targetValueBytes = backend.db.get(columnFamily, targetKey);
+				final byte[] targetValueBytes = getFromDb(targetKey);
 
 				if (targetValueBytes != null) {
 					// target also had a value, merge
@@ -160,7 +160,7 @@ class RocksDBAggregatingState<K, N, T, ACC, R>
 				valueSerializer.serialize(current, dataOutputView);
 
 				// write the resulting value
-				backend.db.put(columnFamily, writeOptions, targetKey, dataOutputView.getCopyOfBuffer());
+				putToDb(targetKey, dataOutputView.getCopyOfBuffer());
 			}
 		}
 		catch (Exception e) {
@@ -21,6 +21,8 @@ package org.apache.flink.contrib.streaming.state;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.DataInputDeserializer;
 import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.SimpleCounter;
 import org.apache.flink.runtime.state.InternalPriorityQueue;
 import org.apache.flink.runtime.state.heap.HeapPriorityQueueElement;
 import org.apache.flink.util.CloseableIterator;
@@ -51,6 +53,11 @@ import static org.apache.flink.contrib.streaming.state.RocksDBCachingPriorityQue
  * of up to the first n elements from RocksDB in memory to reduce interaction with RocksDB, in particular seek
  * operations. Cache uses a simple write-through policy.
  *
+ * <p>Polling always removes the smallest element of the store. Instead of one delete per polled element, the queue
+ * therefore remembers the range of polled elements and removes it from RocksDB with a single range deletion once the
+ * store is read again, an element is added into that range, or {@link #flushPendingDeletes()} is called before a
+ * snapshot. Firing many timers in a row thereby writes one range tombstone instead of one tombstone per timer.
+ *
  * @param <E> the type of the contained elements in the queue.
  */
 public class RocksDBCachingPriorityQueueSet<E extends HeapPriorityQueueElement>
@@ -108,6 +115,22 @@ public class RocksDBCachingPriorityQueueSet<E extends HeapPriorityQueueElement>
 	/** Index for management as a {@link HeapPriorityQueueElement}. */
 	private int internalIndex;
 
+	/** The first polled element that is not yet deleted from RocksDB, or null if there is none. */
+	@Nullable
+	private byte[] pendingDeleteStart;
+
+	/** The last polled element that is not yet deleted from RocksDB, valid if {@link #pendingDeleteStart} is set. */
+	@Nullable
+	private byte[] pendingDeleteEnd;
+
+	/** Counts how often the cache was refilled from RocksDB. */
+	@Nonnull
+	private final Counter cacheRefillCounter;
+
+	/** Counts the elements that were loaded into the cache from RocksDB. */
+	@Nonnull
+	private final Counter cacheRefillElementsCounter;
+
 	RocksDBCachingPriorityQueueSet(
 		@Nonnegative int keyGroupId,
 		@Nonnegative int keyGroupPrefixBytes,
@@ -118,6 +141,32 @@ public class RocksDBCachingPriorityQueueSet<E extends HeapPriorityQueueElement>
 		@Nonnull DataInputDeserializer inputStream,
 		@Nonnull RocksDBWriteBatchWrapper batchWrapper,
 		@Nonnull OrderedByteArraySetCache orderedByteArraySetCache) {
+		this(
+			keyGroupId,
+			keyGroupPrefixBytes,
+			db,
+			columnFamilyHandle,
+			byteOrderProducingSerializer,
+			outputStream,
+			inputStream,
+			batchWrapper,
+			orderedByteArraySetCache,
+			new SimpleCounter(),
+			new SimpleCounter());
+	}
+
+	RocksDBCachingPriorityQueueSet(
+		@Nonnegative int keyGroupId,
+		@Nonnegative int keyGroupPrefixBytes,
+		@Nonnull RocksDB db,
+		@Nonnull ColumnFamilyHandle columnFamilyHandle,
+		@Nonnull TypeSerializer<E> byteOrderProducingSerializer,
+		@Nonnull DataOutputSerializer outputStream,
+		@Nonnull DataInputDeserializer inputStream,
+		@Nonnull RocksDBWriteBatchWrapper batchWrapper,
+		@Nonnull OrderedByteArraySetCache orderedByteArraySetCache,
+		@Nonnull Counter cacheRefillCounter,
+		@Nonnull Counter cacheRefillElementsCounter) {
 		this.db = db;
 		this.columnFamilyHandle = columnFamilyHandle;
 		this.byteOrderProducingSerializer = byteOrderProducingSerializer;
@@ -129,6 +178,8 @@ public class RocksDBCachingPriorityQueueSet<E extends HeapPriorityQueueElement>
 		this.groupPrefixBytes = createKeyGroupBytes(keyGroupId, keyGroupPrefixBytes);
 		this.seekHint = groupPrefixBytes;
 		this.internalIndex = HeapPriorityQueueElement.NOT_CONTAINED;
+		this.cacheRefillCounter = cacheRefillCounter;
+		this.cacheRefillElementsCounter = cacheRefillElementsCounter;
 	}
 
 	@Nullable
@@ -162,8 +213,11 @@ public class RocksDBCachingPriorityQueueSet<E extends HeapPriorityQueueElement>
 			return null;
 		}
 
-		// write-through sync
-		removeFromRocksDB(firstBytes);
+		// the element is the smallest in RocksDB, so it extends the range of polled elements
+		if (pendingDeleteStart == null) {
+			pendingDeleteStart = firstBytes;
+		}
+		pendingDeleteEnd = firstBytes;
 
 		if (orderedCache.isEmpty()) {
 			seekHint = firstBytes;
@@ -185,6 +239,11 @@ public class RocksDBCachingPriorityQueueSet<E extends HeapPriorityQueueElement>
 
 		final byte[] toAddBytes = serializeElement(toAdd);
 
+		// the put must be ordered after the deletion of the polled range it falls into
+		if (pendingDeleteStart != null && LEXICOGRAPHIC_BYTE_COMPARATOR.compare(toAddBytes, pendingDeleteEnd) <= 0) {
+			flushPendingDeletes();
+		}
+
 		final boolean cacheFull = orderedCache.isFull();
 
 		if ((!cacheFull && allElementsInCache) ||
@@ -299,8 +358,36 @@ public class RocksDBCachingPriorityQueueSet<E extends HeapPriorityQueueElement>
 		this.internalIndex = newIndex;
 	}
 
+	/**
+	 * Deletes the elements that were polled since the last call from RocksDB. The deletion is written to the write
+	 * batch, so it must be called before the write batch is flushed for a snapshot.
+	 */
+	void flushPendingDeletes() {
+		if (pendingDeleteStart == null) {
+			return;
+		}
+
+		try {
+			if (pendingDeleteStart == pendingDeleteEnd) {
+				batchWrapper.remove(columnFamilyHandle, pendingDeleteStart);
+			} else {
+				// the end of a range deletion is exclusive, so we append a zero-byte to the last polled element
+				batchWrapper.deleteRange(
+					columnFamilyHandle,
+					pendingDeleteStart,
+					Arrays.copyOf(pendingDeleteEnd, pendingDeleteEnd.length + 1));
+			}
+		} catch (RocksDBException e) {
+			throw new FlinkRuntimeException(e);
+		}
+
+		pendingDeleteStart = null;
+		pendingDeleteEnd = null;
+	}
+
 	@Nonnull
 	private RocksBytesIterator orderedBytesIterator() {
+		flushPendingDeletes();
 		flushWriteBatch();
 		return new RocksBytesIterator(
 			new RocksIteratorWrapper(
@@ -339,6 +426,8 @@ public class RocksDBCachingPriorityQueueSet<E extends HeapPriorityQueueElement>
 			try (final RocksBytesIterator iterator = orderedBytesIterator()) {
 				orderedCache.bulkLoadFromOrderedIterator(iterator);
 				allElementsInCache = !iterator.hasNext();
+				cacheRefillCounter.inc();
+				cacheRefillElementsCounter.inc(orderedCache.size());
 			} catch (Exception e) {
 				throw new FlinkRuntimeException("Exception while refilling store from iterator.", e);
 			}
@@ -21,14 +21,21 @@ import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.Slice;
+import org.rocksdb.SstFileWriter;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import java.io.File;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.BiFunction;
 
@@ -64,7 +71,7 @@ public class RocksDBIncrementalCheckpointUtils {
 
 	/**
 	 * The method to clip the db instance according to the target key group range using
-	 * the {@link RocksDB#delete(ColumnFamilyHandle, byte[])}.
+	 * the {@link RocksDB#deleteRange(ColumnFamilyHandle, byte[], byte[])}.
 	 *
 	 * @param db the RocksDB instance to be clipped.
 	 * @param columnFamilyHandles the column families in the db instance.
@@ -100,7 +107,8 @@ public class RocksDBIncrementalCheckpointUtils {
 	}
 
 	/**
-	 * Delete the record falls into [beginKeyBytes, endKeyBytes) of the db.
+	 * Delete the record falls into [beginKeyBytes, endKeyBytes) of the db. This writes a single range tombstone per
+	 * column family instead of deleting the records one by one, so the cost does not depend on the number of records.
 	 *
 	 * @param db the target need to be clipped.
 	 * @param columnFamilyHandles the column family need to be clipped.
@@ -114,22 +122,80 @@ public class RocksDBIncrementalCheckpointUtils {
 		byte[] endKeyBytes) throws RocksDBException {
 
 		for (ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles) {
-			try (RocksIteratorWrapper iteratorWrapper = RocksDBKeyedStateBackend.getRocksIterator(db, columnFamilyHandle);
-				RocksDBWriteBatchWrapper writeBatchWrapper = new RocksDBWriteBatchWrapper(db)) {
-
-				iteratorWrapper.seek(beginKeyBytes);
-
-				while (iteratorWrapper.isValid()) {
-					final byte[] currentKey = iteratorWrapper.key();
-					if (beforeThePrefixBytes(currentKey, endKeyBytes)) {
-						writeBatchWrapper.remove(columnFamilyHandle, currentKey);
-					} else {
-						break;
-					}
-					iteratorWrapper.next();
+			db.deleteRange(columnFamilyHandle, beginKeyBytes, endKeyBytes);
+		}
+	}
+
+	/**
+	 * Copies all records of a column family of the source db that fall into [beginKeyBytes, endKeyBytes) to a column
+	 * family of the target db. The records are written sequentially to an SST file which is then ingested into the
+	 * target db with {@link RocksDB#ingestExternalFile(ColumnFamilyHandle, List, IngestExternalFileOptions)}, which
+	 * bypasses the memtable, the write-ahead log and the compactions that writing the records one by one would cause.
+	 *
+	 * @param sourceDb the db to read the records from.
+	 * @param sourceColumnFamilyHandle the column family to read the records from.
+	 * @param targetDb the db to ingest the records into.
+	 * @param targetColumnFamilyHandle the column family to ingest the records into.
+	 * @param beginKeyBytes the begin key bytes (inclusive).
+	 * @param endKeyBytes the end key bytes (exclusive).
+	 * @param sstFile the temporary SST file to write. The file is moved into the target db if possible.
+	 * @param sstFileOptions the options to write the SST file with, matching the options of the target column family.
+	 * @return the number of copied records.
+	 */
+	static long ingestRange(
+		@Nonnull RocksDB sourceDb,
+		@Nonnull ColumnFamilyHandle sourceColumnFamilyHandle,
+		@Nonnull RocksDB targetDb,
+		@Nonnull ColumnFamilyHandle targetColumnFamilyHandle,
+		@Nonnull byte[] beginKeyBytes,
+		@Nonnull byte[] endKeyBytes,
+		@Nonnull File sstFile,
+		@Nonnull Options sstFileOptions) throws RocksDBException {
+
+		long numRecords = 0L;
+
+		try (EnvOptions envOptions = new EnvOptions();
+			SstFileWriter sstFileWriter = new SstFileWriter(envOptions, sstFileOptions);
+			RocksIteratorWrapper iterator = RocksDBKeyedStateBackend.getRocksIterator(sourceDb, sourceColumnFamilyHandle)) {
+
+			iterator.seek(beginKeyBytes);
+
+			while (iterator.isValid()) {
+				final byte[] keyBytes = iterator.key();
+				if (!beforeThePrefixBytes(keyBytes, endKeyBytes)) {
+					// the iterator visits the records in sorted order, so all following records are out of range
+					break;
+				}
+
+				if (numRecords == 0L) {
+					sstFileWriter.open(sstFile.getAbsolutePath());
 				}
+
+				try (Slice key = new Slice(keyBytes); Slice value = new Slice(iterator.value())) {
+					sstFileWriter.put(key, value);
+				}
+
+				++numRecords;
+				iterator.next();
+			}
+
+			// RocksDB cannot create SST files without records
+			if (numRecords > 0L) {
+				sstFileWriter.finish();
 			}
 		}
+
+		if (numRecords > 0L) {
+			try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+				ingestOptions.setMoveFiles(true);
+				targetDb.ingestExternalFile(
+					targetColumnFamilyHandle,
+					Collections.singletonList(sstFile.getAbsolutePath()),
+					ingestOptions);
+			}
+		}
+
+		return numRecords;
 	}
 
 	/**
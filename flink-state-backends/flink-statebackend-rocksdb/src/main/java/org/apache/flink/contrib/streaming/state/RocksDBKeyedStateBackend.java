@@ -38,7 +38,6 @@ import org.apache.flink.contrib.streaming.state.snapshot.RocksDBSnapshotStrategy
 import org.apache.flink.contrib.streaming.state.snapshot.RocksFullSnapshotStrategy;
 import org.apache.flink.contrib.streaming.state.snapshot.RocksIncrementalSnapshotStrategy;
 import org.apache.flink.core.fs.FSDataInputStream;
-import org.apache.flink.core.fs.FSDataOutputStream;
 import org.apache.flink.core.fs.FileStatus;
 import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.core.fs.Path;
@@ -46,7 +45,9 @@ import org.apache.flink.core.memory.DataInputDeserializer;
 import org.apache.flink.core.memory.DataInputView;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
 import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.metrics.Counter;
 import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.metrics.SimpleCounter;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.checkpoint.CheckpointType;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
@@ -82,6 +83,7 @@ import org.apache.flink.runtime.state.heap.HeapPriorityQueueSetFactory;
 import org.apache.flink.runtime.state.heap.KeyGroupPartitionedPriorityQueue;
 import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
 import org.apache.flink.util.FileUtils;
 import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.IOUtils;
@@ -93,6 +95,7 @@ import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.DBOptions;
+import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.Snapshot;
@@ -124,6 +127,10 @@ import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RunnableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -239,8 +246,12 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	/** Factory for priority queue state. */
 	private final PriorityQueueSetFactory priorityQueueFactory;
 
+	/** The factory for priority queue state, if the queues are stored in RocksDB. */
+	@Nullable
+	private final RocksDBPriorityQueueSetFactory rocksDBPriorityQueueFactory;
+
 	/** Shared wrapper for batch writes to the RocksDB instance. */
-	private RocksDBWriteBatchWrapper writeBatchWrapper;
+	private RocksDBStateWriteBatch writeBatchWrapper;
 
 	private final RocksDBNativeMetricOptions metricOptions;
 
@@ -249,6 +260,31 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	/** The native metrics monitor. */
 	private RocksDBNativeMetricMonitor nativeMetricMonitor;
 
+	/** The maximum number of deserialized values that are cached per value state, or 0 if no values are cached. */
+	private final int valueStateCacheSize;
+
+	/** Map of state names to the caches of deserialized values of value states. */
+	private final Map<String, RocksDBValueStateCache<?>> valueStateCaches;
+
+	/** True if the states buffer their writes in the shared {@link #writeBatchWrapper}. */
+	private final boolean enableWriteBatching;
+
+	/** The number of timers per key-group that the RocksDB timer queues load into memory in one pass. */
+	private final int timerCacheSize;
+
+	/** The number of threads that serve asynchronous state reads. */
+	private final int asyncReadThreads;
+
+	/** The threads that serve asynchronous state reads, created on the first asynchronous read. */
+	@Nullable
+	private ExecutorService asyncReadExecutor;
+
+	/** The number of threads that transfer the files of incremental checkpoints. */
+	private final int numberOfTransferThreads;
+
+	/** Uploads the files of incremental checkpoints. */
+	private final RocksDBStateUploader stateUploader;
+
 	public RocksDBKeyedStateBackend(
 		String operatorIdentifier,
 		ClassLoader userCodeClassLoader,
@@ -267,6 +303,94 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		RocksDBNativeMetricOptions metricOptions,
 		MetricGroup metricGroup
 	) throws IOException {
+		this(
+			operatorIdentifier,
+			userCodeClassLoader,
+			instanceBasePath,
+			dbOptions,
+			columnFamilyOptions,
+			kvStateRegistry,
+			keySerializer,
+			numberOfKeyGroups,
+			keyGroupRange,
+			executionConfig,
+			enableIncrementalCheckpointing,
+			localRecoveryConfig,
+			priorityQueueStateType,
+			ttlTimeProvider,
+			metricOptions,
+			metricGroup,
+			0,
+			false);
+	}
+
+	public RocksDBKeyedStateBackend(
+		String operatorIdentifier,
+		ClassLoader userCodeClassLoader,
+		File instanceBasePath,
+		DBOptions dbOptions,
+		ColumnFamilyOptions columnFamilyOptions,
+		TaskKvStateRegistry kvStateRegistry,
+		TypeSerializer<K> keySerializer,
+		int numberOfKeyGroups,
+		KeyGroupRange keyGroupRange,
+		ExecutionConfig executionConfig,
+		boolean enableIncrementalCheckpointing,
+		LocalRecoveryConfig localRecoveryConfig,
+		RocksDBStateBackend.PriorityQueueStateType priorityQueueStateType,
+		TtlTimeProvider ttlTimeProvider,
+		RocksDBNativeMetricOptions metricOptions,
+		MetricGroup metricGroup,
+		int valueStateCacheSize,
+		boolean enableWriteBatching
+	) throws IOException {
+		this(
+			operatorIdentifier,
+			userCodeClassLoader,
+			instanceBasePath,
+			dbOptions,
+			columnFamilyOptions,
+			kvStateRegistry,
+			keySerializer,
+			numberOfKeyGroups,
+			keyGroupRange,
+			executionConfig,
+			enableIncrementalCheckpointing,
+			localRecoveryConfig,
+			priorityQueueStateType,
+			ttlTimeProvider,
+			metricOptions,
+			metricGroup,
+			valueStateCacheSize,
+			enableWriteBatching,
+			RocksDBOptions.TIMER_SERVICE_CACHE_SIZE.defaultValue(),
+			RocksDBOptions.ASYNC_READ_THREADS.defaultValue(),
+			RocksDBOptions.CHECKPOINT_TRANSFER_THREAD_NUM.defaultValue());
+	}
+
+	public RocksDBKeyedStateBackend(
+		String operatorIdentifier,
+		ClassLoader userCodeClassLoader,
+		File instanceBasePath,
+		DBOptions dbOptions,
+		ColumnFamilyOptions columnFamilyOptions,
+		TaskKvStateRegistry kvStateRegistry,
+		TypeSerializer<K> keySerializer,
+		int numberOfKeyGroups,
+		KeyGroupRange keyGroupRange,
+		ExecutionConfig executionConfig,
+		boolean enableIncrementalCheckpointing,
+		LocalRecoveryConfig localRecoveryConfig,
+		RocksDBStateBackend.PriorityQueueStateType priorityQueueStateType,
+		TtlTimeProvider ttlTimeProvider,
+		RocksDBNativeMetricOptions metricOptions,
+		MetricGroup metricGroup,
+		int valueStateCacheSize,
+		boolean enableWriteBatching,
+		int timerCacheSize,
+		int asyncReadThreads,
+		int numberOfTransferThreads
+	) throws IOException {
 
 		super(kvStateRegistry, keySerializer, userCodeClassLoader,
 			numberOfKeyGroups, keyGroupRange, executionConfig, ttlTimeProvider);
@@ -304,12 +428,32 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		this.metricOptions = metricOptions;
 		this.metricGroup = metricGroup;
 
+		Preconditions.checkArgument(valueStateCacheSize >= 0, "The value state cache size must not be negative.");
+		this.valueStateCacheSize = valueStateCacheSize;
+		this.valueStateCaches = new HashMap<>();
+		this.enableWriteBatching = enableWriteBatching;
+
+		Preconditions.checkArgument(timerCacheSize > 0, "The timer cache size must be positive.");
+		this.timerCacheSize = timerCacheSize;
+
+		Preconditions.checkArgument(asyncReadThreads > 0, "The number of asynchronous read threads must be positive.");
+		this.asyncReadThreads = asyncReadThreads;
+
+		Preconditions.checkArgument(numberOfTransferThreads > 0, "The number of transfer threads must be positive.");
+		this.numberOfTransferThreads = numberOfTransferThreads;
+		this.stateUploader = new RocksDBStateUploader(
+			numberOfTransferThreads,
+			"rocksdb-upload-" + operatorIdentifier,
+			metricGroup.addGroup("checkpointUpload"));
+
 		switch (priorityQueueStateType) {
 			case HEAP:
 				this.priorityQueueFactory = new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
+				this.rocksDBPriorityQueueFactory = null;
 				break;
 			case ROCKSDB:
-				this.priorityQueueFactory = new RocksDBPriorityQueueSetFactory();
+				this.rocksDBPriorityQueueFactory = new RocksDBPriorityQueueSetFactory();
+				this.priorityQueueFactory = rocksDBPriorityQueueFactory;
 				break;
 			default:
 				throw new IllegalArgumentException("Unknown priority queue state type: " + priorityQueueStateType);
@@ -355,6 +499,12 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			throw new FlinkRuntimeException("Failed to get keys from RocksDB state backend.", ex);
 		}
 
+		try {
+			flushStateWrites(columnInfo.f0);
+		} catch (RocksDBException ex) {
+			throw new FlinkRuntimeException("Failed to get keys from RocksDB state backend.", ex);
+		}
+
 		RocksIteratorWrapper iterator = getRocksIterator(db, columnInfo.f0);
 		iterator.seekToFirst();
 
@@ -386,6 +536,14 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	public void dispose() {
 		super.dispose();
 
+		// pending asynchronous reads fail to acquire the resource guard after it was closed
+		if (asyncReadExecutor != null) {
+			asyncReadExecutor.shutdownNow();
+		}
+
+		// uploads of running snapshots that did not start yet are cancelled
+		stateUploader.close();
+
 		// This call will block until all clients that still acquire access to the RocksDB instance have released it,
 		// so that we cannot release the native resources while clients are still working with it in parallel.
 		rocksDBResourceGuard.close();
@@ -426,6 +584,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			IOUtils.closeQuietly(writeOptions);
 			kvStateInformation.clear();
 			restoredKvStateMetaInfos.clear();
+			valueStateCaches.clear();
 
 			cleanInstanceBasePath();
 		}
@@ -463,6 +622,89 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		return writeOptions;
 	}
 
+	/**
+	 * Returns the cache of deserialized values for the value state with the given name, or null if value states are
+	 * not cached. All state objects for the same state name share one cache.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	<V> RocksDBValueStateCache<V> getValueStateCache(String stateName) {
+		if (valueStateCacheSize <= 0) {
+			return null;
+		}
+
+		return (RocksDBValueStateCache<V>) valueStateCaches.computeIfAbsent(
+			stateName,
+			name -> new RocksDBValueStateCache<>(valueStateCacheSize, metricGroup.addGroup(name)));
+	}
+
+	/**
+	 * Returns the write batch in which the states buffer their writes, or null if the states write to RocksDB
+	 * directly. Buffered writes are only visible to reads after they are flushed, see
+	 * {@link #flushStateWrites(ColumnFamilyHandle, byte[])}.
+	 */
+	@Nullable
+	RocksDBWriteBatchWrapper getStateWriteBatch() {
+		return enableWriteBatching ? writeBatchWrapper : null;
+	}
+
+	/**
+	 * Applies all buffered writes of the states to RocksDB, so that subsequent reads observe them.
+	 */
+	void flushStateWrites() throws RocksDBException {
+		if (enableWriteBatching && !writeBatchWrapper.isEmpty()) {
+			writeBatchWrapper.flush();
+		}
+	}
+
+	/**
+	 * Applies the buffered writes of the states to RocksDB if one of them affects the given key, so that a
+	 * subsequent read of the key observes it. Reads of keys without buffered writes leave the batch untouched.
+	 */
+	void flushStateWrites(ColumnFamilyHandle columnFamily, byte[] key) throws RocksDBException {
+		if (enableWriteBatching && writeBatchWrapper.containsWrite(columnFamily, key)) {
+			writeBatchWrapper.flush();
+		}
+	}
+
+	/**
+	 * Applies the buffered writes of the states to RocksDB if one of them goes to the given column family, so that
+	 * a subsequent iteration over the column family observes it.
+	 */
+	void flushStateWrites(ColumnFamilyHandle columnFamily) throws RocksDBException {
+		if (enableWriteBatching && writeBatchWrapper.containsWrites(columnFamily)) {
+			writeBatchWrapper.flush();
+		}
+	}
+
+	/**
+	 * Reads the value of the given serialized key from the given column family in one of the asynchronous read
+	 * threads of the backend. The buffered writes of the states are only applied before if one of them goes to the
+	 * given key, so that the read observes it.
+	 *
+	 * @return A future with the serialized value, or with null if the key has no value.
+	 */
+	CompletableFuture<byte[]> asyncGet(ColumnFamilyHandle columnFamily, byte[] key) throws RocksDBException {
+		flushStateWrites(columnFamily, key);
+
+		if (asyncReadExecutor == null) {
+			asyncReadExecutor = Executors.newFixedThreadPool(
+				asyncReadThreads,
+				new ExecutorThreadFactory("rocksdb-async-read-" + operatorIdentifier));
+		}
+
+		return CompletableFuture.supplyAsync(
+			() -> {
+				// the lease keeps the database open until the read finished
+				try (ResourceGuard.Lease ignored = rocksDBResourceGuard.acquireResource()) {
+					return db.get(columnFamily, key);
+				} catch (IOException | RocksDBException e) {
+					throw new CompletionException(e);
+				}
+			},
+			asyncReadExecutor);
+	}
+
 	/**
 	 * Triggers an asynchronous snapshot of the keyed state backend from RocksDB. This snapshot can be canceled and
 	 * is also stopped when the backend is closed through {@link #dispose()}. For each backend, this method must always
@@ -486,6 +728,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		long startTime = System.currentTimeMillis();
 
 		// flush everything into db before taking a snapshot
+		if (rocksDBPriorityQueueFactory != null) {
+			rocksDBPriorityQueueFactory.flushPendingDeletes();
+		}
 		writeBatchWrapper.flush();
 
 		RocksDBSnapshotStrategyBase<K> chosenSnapshotStrategy =
@@ -580,7 +825,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				instanceBasePath,
 				backendUID,
 				materializedSstFiles,
-				lastCompletedCheckpointId);
+				lastCompletedCheckpointId,
+				stateUploader);
 		} else {
 			this.checkpointSnapshotStrategy = savepointSnapshotStrategy;
 		}
@@ -601,7 +847,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	private void createDB() throws IOException {
 		List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>(1);
 		this.db = openDB(instanceRocksDBPath.getAbsolutePath(), Collections.emptyList(), columnFamilyHandles);
-		this.writeBatchWrapper = new RocksDBWriteBatchWrapper(db, writeOptions);
+		this.writeBatchWrapper = new RocksDBStateWriteBatch(db, writeOptions);
 		this.defaultColumnFamily = columnFamilyHandles.get(0);
 	}
 
@@ -825,6 +1071,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 		private final RocksDBKeyedStateBackend<T> stateBackend;
 		private final SortedMap<Long, Set<StateHandleID>> restoredSstFiles;
+		private final RocksDBStateDownloader stateDownloader;
 		private UUID restoredBackendUID;
 		private long lastCompletedCheckpointId;
 
@@ -832,6 +1079,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 			this.stateBackend = stateBackend;
 			this.restoredSstFiles = new TreeMap<>();
+			this.stateDownloader = new RocksDBStateDownloader(
+				stateBackend.numberOfTransferThreads,
+				"rocksdb-download-" + stateBackend.operatorIdentifier,
+				stateBackend.metricGroup.addGroup("checkpointDownload"));
 		}
 
 		SortedMap<Long, Set<StateHandleID>> getRestoredSstFiles() {
@@ -851,19 +1102,23 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		 */
 		void restore(Collection<KeyedStateHandle> restoreStateHandles) throws Exception {
 
-			if (restoreStateHandles.isEmpty()) {
-				return;
-			}
+			try {
+				if (restoreStateHandles.isEmpty()) {
+					return;
+				}
 
-			final KeyedStateHandle theFirstStateHandle = restoreStateHandles.iterator().next();
+				final KeyedStateHandle theFirstStateHandle = restoreStateHandles.iterator().next();
 
-			boolean isRescaling = (restoreStateHandles.size() > 1 ||
-				!Objects.equals(theFirstStateHandle.getKeyGroupRange(), stateBackend.keyGroupRange));
+				boolean isRescaling = (restoreStateHandles.size() > 1 ||
+					!Objects.equals(theFirstStateHandle.getKeyGroupRange(), stateBackend.keyGroupRange));
 
-			if (!isRescaling) {
-				restoreWithoutRescaling(theFirstStateHandle);
-			} else {
-				restoreWithRescaling(restoreStateHandles);
+				if (!isRescaling) {
+					restoreWithoutRescaling(theFirstStateHandle);
+				} else {
+					restoreWithRescaling(restoreStateHandles);
+				}
+			} finally {
+				stateDownloader.close();
 			}
 		}
 
@@ -887,7 +1142,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					IncrementalKeyedStateHandle restoreStateHandle = (IncrementalKeyedStateHandle) rawStateHandle;
 
 					// read state data.
-					transferAllStateDataToDirectory(restoreStateHandle, temporaryRestoreInstancePath);
+					stateDownloader.transferAllStateDataToDirectory(
+						restoreStateHandle, temporaryRestoreInstancePath, stateBackend.cancelStreamRegistry);
 
 					stateMetaInfoSnapshots = readMetaData(restoreStateHandle.getMetaStateHandle());
 					columnFamilyDescriptors = createAndRegisterColumnFamilyDescriptors(stateMetaInfoSnapshots);
@@ -927,8 +1183,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 		/**
 		 * Recovery from multi incremental states with rescaling. For rescaling, this method creates a temporary
-		 * RocksDB instance for a key-groups shard. All contents from the temporary instance are copied into the
-		 * real restore instance and then the temporary instance is discarded.
+		 * RocksDB instance for a key-groups shard. The contents of the temporary instance that belong to the new
+		 * key-group range are written to SST files which are ingested into the real restore instance, and then the
+		 * temporary instance is discarded.
 		 */
 		void restoreWithRescaling(Collection<KeyedStateHandle> restoreStateHandles) throws Exception {
 
@@ -942,53 +1199,50 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			byte[] stopKeyGroupPrefixBytes = new byte[stateBackend.keyGroupPrefixBytes];
 			RocksDBKeySerializationUtils.serializeKeyGroup(stateBackend.getKeyGroupRange().getEndKeyGroup() + 1, stopKeyGroupPrefixBytes);
 
-			for (KeyedStateHandle rawStateHandle : restoreStateHandles) {
-
-				if (!(rawStateHandle instanceof IncrementalKeyedStateHandle)) {
-					throw new IllegalStateException("Unexpected state handle type, " +
-						"expected " + IncrementalKeyedStateHandle.class +
-						", but found " + rawStateHandle.getClass());
-				}
-
-				Path temporaryRestoreInstancePath = new Path(stateBackend.instanceBasePath.getAbsolutePath() + UUID.randomUUID().toString());
-				try (RestoredDBInstance tmpRestoreDBInfo = restoreDBInstanceFromStateHandle(
-						(IncrementalKeyedStateHandle) rawStateHandle,
-						temporaryRestoreInstancePath);
-					RocksDBWriteBatchWrapper writeBatchWrapper = new RocksDBWriteBatchWrapper(stateBackend.db)) {
-
-					List<ColumnFamilyDescriptor> tmpColumnFamilyDescriptors = tmpRestoreDBInfo.columnFamilyDescriptors;
-					List<ColumnFamilyHandle> tmpColumnFamilyHandles = tmpRestoreDBInfo.columnFamilyHandles;
-
-					// iterating only the requested descriptors automatically skips the default column family handle
-					for (int i = 0; i < tmpColumnFamilyDescriptors.size(); ++i) {
-						ColumnFamilyHandle tmpColumnFamilyHandle = tmpColumnFamilyHandles.get(i);
-						ColumnFamilyDescriptor tmpColumnFamilyDescriptor = tmpColumnFamilyDescriptors.get(i);
-
-						ColumnFamilyHandle targetColumnFamilyHandle = getOrRegisterColumnFamilyHandle(
-							tmpColumnFamilyDescriptor, null, tmpRestoreDBInfo.stateMetaInfoSnapshots.get(i));
-
-						try (RocksIteratorWrapper iterator = getRocksIterator(tmpRestoreDBInfo.db, tmpColumnFamilyHandle)) {
-
-							iterator.seek(startKeyGroupPrefixBytes);
+			// the SST files must be written with the options of the column families they are ingested into
+			try (Options sstFileOptions = new Options(stateBackend.dbOptions, stateBackend.columnOptions)) {
 
-							while (iterator.isValid()) {
+				for (KeyedStateHandle rawStateHandle : restoreStateHandles) {
 
-								if (RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(iterator.key(), stopKeyGroupPrefixBytes)) {
-									writeBatchWrapper.put(targetColumnFamilyHandle, iterator.key(), iterator.value());
-								} else {
-									// Since the iterator will visit the record according to the sorted order,
-									// we can just break here.
-									break;
-								}
-
-								iterator.next();
-							}
-						} // releases native iterator resources
+					if (!(rawStateHandle instanceof IncrementalKeyedStateHandle)) {
+						throw new IllegalStateException("Unexpected state handle type, " +
+							"expected " + IncrementalKeyedStateHandle.class +
+							", but found " + rawStateHandle.getClass());
 					}
-				} finally {
-					FileSystem restoreFileSystem = temporaryRestoreInstancePath.getFileSystem();
-					if (restoreFileSystem.exists(temporaryRestoreInstancePath)) {
-						restoreFileSystem.delete(temporaryRestoreInstancePath, true);
+
+					Path temporaryRestoreInstancePath = new Path(stateBackend.instanceBasePath.getAbsolutePath() + UUID.randomUUID().toString());
+					try (RestoredDBInstance tmpRestoreDBInfo = restoreDBInstanceFromStateHandle(
+							(IncrementalKeyedStateHandle) rawStateHandle,
+							temporaryRestoreInstancePath)) {
+
+						List<ColumnFamilyDescriptor> tmpColumnFamilyDescriptors = tmpRestoreDBInfo.columnFamilyDescriptors;
+						List<ColumnFamilyHandle> tmpColumnFamilyHandles = tmpRestoreDBInfo.columnFamilyHandles;
+
+						// iterating only the requested descriptors automatically skips the default column family handle
+						for (int i = 0; i < tmpColumnFamilyDescriptors.size(); ++i) {
+							ColumnFamilyHandle tmpColumnFamilyHandle = tmpColumnFamilyHandles.get(i);
+							ColumnFamilyDescriptor tmpColumnFamilyDescriptor = tmpColumnFamilyDescriptors.get(i);
+
+							ColumnFamilyHandle targetColumnFamilyHandle = getOrRegisterColumnFamilyHandle(
+								tmpColumnFamilyDescriptor, null, tmpRestoreDBInfo.stateMetaInfoSnapshots.get(i));
+
+							File sstFile = new File(temporaryRestoreInstancePath.getPath(), "restore-" + i + ".sst");
+
+							RocksDBIncrementalCheckpointUtils.ingestRange(
+								tmpRestoreDBInfo.db,
+								tmpColumnFamilyHandle,
+								stateBackend.db,
+								targetColumnFamilyHandle,
+								startKeyGroupPrefixBytes,
+								stopKeyGroupPrefixBytes,
+								sstFile,
+								sstFileOptions);
+						}
+					} finally {
+						FileSystem restoreFileSystem = temporaryRestoreInstancePath.getFileSystem();
+						if (restoreFileSystem.exists(temporaryRestoreInstancePath)) {
+							restoreFileSystem.delete(temporaryRestoreInstancePath, true);
+						}
 					}
 				}
 			}
@@ -1040,7 +1294,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			IncrementalKeyedStateHandle restoreStateHandle,
 			Path temporaryRestoreInstancePath) throws Exception {
 
-			transferAllStateDataToDirectory(restoreStateHandle, temporaryRestoreInstancePath);
+			stateDownloader.transferAllStateDataToDirectory(
+				restoreStateHandle, temporaryRestoreInstancePath, stateBackend.cancelStreamRegistry);
 
 			// read meta data
 			List<StateMetaInfoSnapshot> stateMetaInfoSnapshots =
@@ -1113,7 +1368,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					stateBackend.db = restoreDBInfo.db;
 					stateBackend.defaultColumnFamily = restoreDBInfo.defaultColumnFamilyHandle;
 					stateBackend.writeBatchWrapper =
-						new RocksDBWriteBatchWrapper(stateBackend.db, stateBackend.writeOptions);
+						new RocksDBStateWriteBatch(stateBackend.db, stateBackend.writeOptions);
 
 					for (int i = 0; i < restoreDBInfo.stateMetaInfoSnapshots.size(); ++i) {
 						getOrRegisterColumnFamilyHandle(
@@ -1139,7 +1394,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					columnFamilyHandles);
 				stateBackend.defaultColumnFamily = columnFamilyHandles.get(0);
 				stateBackend.writeBatchWrapper =
-					new RocksDBWriteBatchWrapper(stateBackend.db, stateBackend.writeOptions);
+					new RocksDBStateWriteBatch(stateBackend.db, stateBackend.writeOptions);
 			}
 		}
 
@@ -1194,7 +1449,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 			// extract and store the default column family which is located at the first index
 			stateBackend.defaultColumnFamily = columnFamilyHandles.remove(0);
-			stateBackend.writeBatchWrapper = new RocksDBWriteBatchWrapper(stateBackend.db, stateBackend.writeOptions);
+			stateBackend.writeBatchWrapper = new RocksDBStateWriteBatch(stateBackend.db, stateBackend.writeOptions);
 
 			for (int i = 0; i < columnFamilyDescriptors.size(); ++i) {
 				StateMetaInfoSnapshot stateMetaInfoSnapshot = stateMetaInfoSnapshots.get(i);
@@ -1278,74 +1533,6 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				}
 			}
 		}
-
-		private void transferAllStateDataToDirectory(
-			IncrementalKeyedStateHandle restoreStateHandle,
-			Path dest) throws IOException {
-
-			final Map<StateHandleID, StreamStateHandle> sstFiles =
-				restoreStateHandle.getSharedState();
-			final Map<StateHandleID, StreamStateHandle> miscFiles =
-				restoreStateHandle.getPrivateState();
-
-			transferAllDataFromStateHandles(sstFiles, dest);
-			transferAllDataFromStateHandles(miscFiles, dest);
-		}
-
-		/**
-		 * Copies all the files from the given stream state handles to the given path, renaming the files w.r.t. their
-		 * {@link StateHandleID}.
-		 */
-		private void transferAllDataFromStateHandles(
-			Map<StateHandleID, StreamStateHandle> stateHandleMap,
-			Path restoreInstancePath) throws IOException {
-
-			for (Map.Entry<StateHandleID, StreamStateHandle> entry : stateHandleMap.entrySet()) {
-				StateHandleID stateHandleID = entry.getKey();
-				StreamStateHandle remoteFileHandle = entry.getValue();
-				copyStateDataHandleData(new Path(restoreInstancePath, stateHandleID.toString()), remoteFileHandle);
-			}
-
-		}
-
-		/**
-		 * Copies the file from a single state handle to the given path.
-		 */
-		private void copyStateDataHandleData(
-			Path restoreFilePath,
-			StreamStateHandle remoteFileHandle) throws IOException {
-
-			FileSystem restoreFileSystem = restoreFilePath.getFileSystem();
-
-			FSDataInputStream inputStream = null;
-			FSDataOutputStream outputStream = null;
-
-			try {
-				inputStream = remoteFileHandle.openInputStream();
-				stateBackend.cancelStreamRegistry.registerCloseable(inputStream);
-
-				outputStream = restoreFileSystem.create(restoreFilePath, FileSystem.WriteMode.OVERWRITE);
-				stateBackend.cancelStreamRegistry.registerCloseable(outputStream);
-
-				byte[] buffer = new byte[8 * 1024];
-				while (true) {
-					int numBytes = inputStream.read(buffer);
-					if (numBytes == -1) {
-						break;
-					}
-
-					outputStream.write(buffer, 0, numBytes);
-				}
-			} finally {
-				if (stateBackend.cancelStreamRegistry.unregisterCloseable(inputStream)) {
-					inputStream.close();
-				}
-
-				if (stateBackend.cancelStreamRegistry.unregisterCloseable(outputStream)) {
-					outputStream.close();
-				}
-			}
-		}
 	}
 
 	// ------------------------------------------------------------------------
@@ -1377,6 +1564,12 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			snapshotTransformer);
 
 		if (stateInfo != null) {
+			// the values might be migrated to the new serializer, cached objects of the old serializer are dropped
+			RocksDBValueStateCache<?> valueStateCache = valueStateCaches.get(stateDesc.getName());
+			if (valueStateCache != null) {
+				valueStateCache.clear();
+			}
+
 			newMetaInfo = migrateStateIfNecessary(
 				newMetaInfo,
 				stateDesc,
@@ -1481,6 +1674,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		@SuppressWarnings("unchecked")
 		AbstractRocksDBState<?, ?, SV, S> rocksDBState = (AbstractRocksDBState<?, ?, SV, S>) state;
 
+		flushStateWrites();
+
 		Snapshot rocksDBSnapshot = db.getSnapshot();
 		try (
 			RocksIteratorWrapper iterator = getRocksIterator(db, stateInfo.f0);
@@ -1590,6 +1785,12 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public int numKeyValueStateEntries() {
+		try {
+			flushStateWrites();
+		} catch (RocksDBException e) {
+			throw new FlinkRuntimeException("Error while flushing the state writes.", e);
+		}
+
 		int count = 0;
 
 		for (Tuple2<ColumnFamilyHandle, RegisteredStateMetaInfoBase> column : kvStateInformation.values()) {
@@ -1622,9 +1823,6 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	 */
 	class RocksDBPriorityQueueSetFactory implements PriorityQueueSetFactory {
 
-		/** Default cache size per key-group. */
-		private static final int DEFAULT_CACHES_SIZE = 128; //TODO make this configurable
-
 		/** A shared buffer to serialize elements for the priority queue. */
 		@Nonnull
 		private final DataOutputSerializer sharedElementOutView;
@@ -1633,9 +1831,23 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		@Nonnull
 		private final DataInputDeserializer sharedElementInView;
 
+		/** All created queue sets, whose polled elements must be deleted from RocksDB before a snapshot. */
+		@Nonnull
+		private final List<RocksDBCachingPriorityQueueSet<?>> queueSets;
+
 		RocksDBPriorityQueueSetFactory() {
 			this.sharedElementOutView = new DataOutputSerializer(128);
 			this.sharedElementInView = new DataInputDeserializer();
+			this.queueSets = new ArrayList<>();
+		}
+
+		/**
+		 * Writes the pending deletions of polled elements of all queue sets to the write batch.
+		 */
+		void flushPendingDeletes() {
+			for (RocksDBCachingPriorityQueueSet<?> queueSet : queueSets) {
+				queueSet.flushPendingDeletes();
+			}
 		}
 
 		@Nonnull
@@ -1648,6 +1860,11 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 			final ColumnFamilyHandle columnFamilyHandle = metaInfoTuple.f0;
 
+			final MetricGroup queueMetricGroup = metricGroup.addGroup(stateName);
+			final Counter cacheRefillCounter = queueMetricGroup.counter("timerCacheRefills", new SimpleCounter());
+			final Counter cacheRefillElementsCounter =
+				queueMetricGroup.counter("timerCacheRefilledElements", new SimpleCounter());
+
 			return new KeyGroupPartitionedPriorityQueue<>(
 				KeyExtractorFunction.forKeyedObjects(),
 				PriorityComparator.forPriorityComparableObjects(),
@@ -1659,8 +1876,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 						int numKeyGroups,
 						@Nonnull KeyExtractorFunction<T> keyExtractor,
 						@Nonnull PriorityComparator<T> elementPriorityComparator) {
-						TreeOrderedSetCache orderedSetCache = new TreeOrderedSetCache(DEFAULT_CACHES_SIZE);
-						return new RocksDBCachingPriorityQueueSet<>(
+						TreeOrderedSetCache orderedSetCache = new TreeOrderedSetCache(timerCacheSize);
+						RocksDBCachingPriorityQueueSet<T> queueSet = new RocksDBCachingPriorityQueueSet<>(
 							keyGroupId,
 							keyGroupPrefixBytes,
 							db,
@@ -1669,8 +1886,11 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 							sharedElementOutView,
 							sharedElementInView,
 							writeBatchWrapper,
-							orderedSetCache
-						);
+							orderedSetCache,
+							cacheRefillCounter,
+							cacheRefillElementsCounter);
+						queueSets.add(queueSet);
+						return queueSet;
 					}
 				},
 				keyGroupRange,
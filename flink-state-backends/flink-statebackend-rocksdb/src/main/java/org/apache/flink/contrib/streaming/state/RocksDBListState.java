@@ -117,7 +117,7 @@ class RocksDBListState<K, N, V>
 		try {
 			writeCurrentKeyWithGroupAndNamespace();
 			byte[] key = dataOutputView.getCopyOfBuffer();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			byte[] valueBytes = getFromDb(key);
 			return deserializeList(valueBytes);
 		} catch (IOException | RocksDBException e) {
 			throw new FlinkRuntimeException("Error while retrieving data from RocksDB", e);
@@ -164,7 +164,7 @@ class RocksDBListState<K, N, V>
 			byte[] key = dataOutputView.getCopyOfBuffer();
 			dataOutputView.clear();
 			elementSerializer.serialize(value, dataOutputView);
-			backend.db.merge(columnFamily, writeOptions, key, dataOutputView.getCopyOfBuffer());
+			mergeToDb(key, dataOutputView.getCopyOfBuffer());
 		} catch (Exception e) {
 			throw new FlinkRuntimeException("Error while adding data to RocksDB", e);
 		}
@@ -185,18 +185,17 @@ class RocksDBListState<K, N, V>
 			writeKeyWithGroupAndNamespace(keyGroup, key, target, dataOutputView);
 			final byte[] targetKey = dataOutputView.getCopyOfBuffer();
 
-			// merge the sources to the target
-			for (N source : sources) {
-				if (source != null) {
-					writeKeyWithGroupAndNamespace(keyGroup, key, source, dataOutputView);
+			// read all sources with a single call to RocksDB
+			final List<byte[]> sourceKeys = serializeNamespaceKeys(keyGroup, key, sources);
+			final List<byte[]> sourceValues = multiGetFromDb(sourceKeys);
 
-					byte[] sourceKey = dataOutputView.getCopyOfBuffer();
-					byte[] valueBytes = backend.db.get(columnFamily, sourceKey);
-					backend.db.delete(columnFamily, writeOptions, sourceKey);
+			// merge the sources to the target
+			for (int i = 0; i < sourceKeys.size(); ++i) {
+				deleteFromDb(sourceKeys.get(i));
 
-					if (valueBytes != null) {
-						backend.db.merge(columnFamily, writeOptions, targetKey, valueBytes);
-					}
+				byte[] valueBytes = sourceValues.get(i);
+				if (valueBytes != null) {
+					mergeToDb(targetKey, valueBytes);
 				}
 			}
 		}
@@ -221,7 +220,7 @@ class RocksDBListState<K, N, V>
 				writeCurrentKeyWithGroupAndNamespace();
 				byte[] key = dataOutputView.getCopyOfBuffer();
 				byte[] premerge = getPreMergedValue(values, elementSerializer, dataOutputView);
-				backend.db.put(columnFamily, writeOptions, key, premerge);
+				putToDb(key, premerge);
 			} catch (IOException | RocksDBException e) {
 				throw new FlinkRuntimeException("Error while updating data to RocksDB", e);
 			}
@@ -237,7 +236,7 @@ class RocksDBListState<K, N, V>
 				writeCurrentKeyWithGroupAndNamespace();
 				byte[] key = dataOutputView.getCopyOfBuffer();
 				byte[] premerge = getPreMergedValue(values, elementSerializer, dataOutputView);
-				backend.db.merge(columnFamily, writeOptions, key, premerge);
+				mergeToDb(key, premerge);
 			} catch (IOException | RocksDBException e) {
 				throw new FlinkRuntimeException("Error while updating data to RocksDB", e);
 			}
@@ -35,7 +35,6 @@ import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.Preconditions;
 
 import org.rocksdb.ColumnFamilyHandle;
-import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.WriteBatch;
 import org.slf4j.Logger;
@@ -120,7 +119,7 @@ class RocksDBMapState<K, N, UK, UV>
 	@Override
 	public UV get(UK userKey) throws IOException, RocksDBException {
 		byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(userKey);
-		byte[] rawValueBytes = backend.db.get(columnFamily, rawKeyBytes);
+		byte[] rawValueBytes = getFromDb(rawKeyBytes);
 
 		return (rawValueBytes == null ? null : deserializeUserValue(dataInputView, rawValueBytes, userValueSerializer));
 	}
@@ -131,7 +130,7 @@ class RocksDBMapState<K, N, UK, UV>
 		byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(userKey);
 		byte[] rawValueBytes = serializeUserValue(userValue, userValueSerializer, dataOutputView);
 
-		backend.db.put(columnFamily, writeOptions, rawKeyBytes, rawValueBytes);
+		putToDb(rawKeyBytes, rawValueBytes);
 	}
 
 	@Override
@@ -140,6 +139,17 @@ class RocksDBMapState<K, N, UK, UV>
 			return;
 		}
 
+		final RocksDBWriteBatchWrapper stateWriteBatch = backend.getStateWriteBatch();
+		if (stateWriteBatch != null) {
+			// the writes are already buffered in the write batch of the backend
+			for (Map.Entry<UK, UV> entry : map.entrySet()) {
+				byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(entry.getKey());
+				byte[] rawValueBytes = serializeUserValue(entry.getValue(), userValueSerializer, dataOutputView);
+				stateWriteBatch.put(columnFamily, rawKeyBytes, rawValueBytes);
+			}
+			return;
+		}
+
 		try (RocksDBWriteBatchWrapper writeBatchWrapper = new RocksDBWriteBatchWrapper(backend.db, writeOptions)) {
 			for (Map.Entry<UK, UV> entry : map.entrySet()) {
 				byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(entry.getKey());
@@ -153,13 +163,13 @@ class RocksDBMapState<K, N, UK, UV>
 	public void remove(UK userKey) throws IOException, RocksDBException {
 		byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(userKey);
 
-		backend.db.delete(columnFamily, writeOptions, rawKeyBytes);
+		deleteFromDb(rawKeyBytes);
 	}
 
 	@Override
 	public boolean contains(UK userKey) throws IOException, RocksDBException {
 		byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(userKey);
-		byte[] rawValueBytes = backend.db.get(columnFamily, rawKeyBytes);
+		byte[] rawValueBytes = getFromDb(rawKeyBytes);
 
 		return (rawValueBytes != null);
 	}
@@ -180,7 +190,7 @@ class RocksDBMapState<K, N, UK, UV>
 	public Iterable<UK> keys() throws IOException {
 		final byte[] prefixBytes = serializeCurrentKeyAndNamespace();
 
-		return () -> new RocksDBMapIterator<UK>(backend.db, prefixBytes, userKeySerializer, userValueSerializer, dataInputView) {
+		return () -> new RocksDBMapIterator<UK>(prefixBytes, userKeySerializer, userValueSerializer, dataInputView) {
 			@Override
 			public UK next() {
 				RocksDBMapEntry entry = nextEntry();
@@ -193,7 +203,7 @@ class RocksDBMapState<K, N, UK, UV>
 	public Iterable<UV> values() throws IOException {
 		final byte[] prefixBytes = serializeCurrentKeyAndNamespace();
 
-		return () -> new RocksDBMapIterator<UV>(backend.db, prefixBytes, userKeySerializer, userValueSerializer, dataInputView) {
+		return () -> new RocksDBMapIterator<UV>(prefixBytes, userKeySerializer, userValueSerializer, dataInputView) {
 			@Override
 			public UV next() {
 				RocksDBMapEntry entry = nextEntry();
@@ -206,7 +216,7 @@ class RocksDBMapState<K, N, UK, UV>
 	public Iterator<Map.Entry<UK, UV>> iterator() throws IOException {
 		final byte[] prefixBytes = serializeCurrentKeyAndNamespace();
 
-		return new RocksDBMapIterator<Map.Entry<UK, UV>>(backend.db, prefixBytes, userKeySerializer, userValueSerializer, dataInputView) {
+		return new RocksDBMapIterator<Map.Entry<UK, UV>>(prefixBytes, userKeySerializer, userValueSerializer, dataInputView) {
 			@Override
 			public Map.Entry<UK, UV> next() {
 				return nextEntry();
@@ -217,7 +227,7 @@ class RocksDBMapState<K, N, UK, UV>
 	@Override
 	public void clear() {
 		try {
-			try (RocksIteratorWrapper iterator = RocksDBKeyedStateBackend.getRocksIterator(backend.db, columnFamily);
+			try (RocksIteratorWrapper iterator = newDbIterator();
 				WriteBatch writeBatch = new WriteBatch(128)) {
 
 				final byte[] keyPrefixBytes = serializeCurrentKeyAndNamespace();
@@ -278,7 +288,6 @@ class RocksDBMapState<K, N, UK, UV>
 		final TypeSerializer<UV> dupUserValueSerializer = serializer.getValueSerializer();
 
 		final Iterator<Map.Entry<UK, UV>> iterator = new RocksDBMapIterator<Map.Entry<UK, UV>>(
-				backend.db,
 				keyPrefixBytes,
 				dupUserKeySerializer,
 				dupUserValueSerializer,
@@ -288,6 +297,12 @@ class RocksDBMapState<K, N, UK, UV>
 			public Map.Entry<UK, UV> next() {
 				return nextEntry();
 			}
+
+			@Override
+			RocksIteratorWrapper openIterator() {
+				// this method is called concurrently to the task thread and must not flush the buffered writes
+				return RocksDBKeyedStateBackend.getRocksIterator(backend.db, columnFamily);
+			}
 		};
 
 		// Return null to make the behavior consistent with other backends
@@ -373,7 +388,6 @@ class RocksDBMapState<K, N, UK, UV>
 
 	/** A map entry in RocksDBMapState. */
 	private class RocksDBMapEntry implements Map.Entry<UK, UV> {
-		private final RocksDB db;
 
 		/** The raw bytes of the key stored in RocksDB. Each user key is stored in RocksDB
 		 * with the format #KeyGroup#Key#Namespace#UserKey. */
@@ -402,7 +416,6 @@ class RocksDBMapState<K, N, UK, UV>
 		private final DataOutputSerializer dataOutputView;
 
 		RocksDBMapEntry(
-				@Nonnull final RocksDB db,
 				@Nonnegative final int userKeyOffset,
 				@Nonnull final byte[] rawKeyBytes,
 				@Nonnull final byte[] rawValueBytes,
@@ -410,8 +423,6 @@ class RocksDBMapState<K, N, UK, UV>
 				@Nonnull final TypeSerializer<UV> valueSerializer,
 				@Nonnull DataInputDeserializer dataInputView,
 				@Nonnull DataOutputSerializer dataOutputView) {
-			this.db = db;
-
 			this.userKeyOffset = userKeyOffset;
 			this.keySerializer = keySerializer;
 			this.valueSerializer = valueSerializer;
@@ -428,7 +439,7 @@ class RocksDBMapState<K, N, UK, UV>
 			rawValueBytes = null;
 
 			try {
-				db.delete(columnFamily, writeOptions, rawKeyBytes);
+				deleteFromDb(rawKeyBytes);
 			} catch (RocksDBException e) {
 				throw new FlinkRuntimeException("Error while removing data from RocksDB.", e);
 			}
@@ -476,7 +487,7 @@ class RocksDBMapState<K, N, UK, UV>
 				userValue = value;
 				rawValueBytes = serializeUserValue(value, valueSerializer, dataOutputView);
 
-				db.put(columnFamily, writeOptions, rawKeyBytes, rawValueBytes);
+				putToDb(rawKeyBytes, rawValueBytes);
 			} catch (IOException | RocksDBException e) {
 				throw new FlinkRuntimeException("Error while putting data into RocksDB.", e);
 			}
@@ -490,9 +501,6 @@ class RocksDBMapState<K, N, UK, UV>
 
 		private static final int CACHE_SIZE_LIMIT = 128;
 
-		/** The db where data resides. */
-		private final RocksDB db;
-
 		/**
 		 * The prefix bytes of the key being accessed. All entries under the same key
 		 * have the same prefix, hence we can stop iterating once coming across an
@@ -519,13 +527,11 @@ class RocksDBMapState<K, N, UK, UV>
 		private final DataInputDeserializer dataInputView;
 
 		RocksDBMapIterator(
-			final RocksDB db,
 			final byte[] keyPrefixBytes,
 			final TypeSerializer<UK> keySerializer,
 			final TypeSerializer<UV> valueSerializer,
 			DataInputDeserializer dataInputView) {
 
-			this.db = db;
 			this.keyPrefixBytes = keyPrefixBytes;
 			this.keySerializer = keySerializer;
 			this.valueSerializer = valueSerializer;
@@ -565,6 +571,17 @@ class RocksDBMapState<K, N, UK, UV>
 			return currentEntry;
 		}
 
+		/**
+		 * Opens a RocksDB iterator over the column family of the state that observes all buffered state writes.
+		 */
+		RocksIteratorWrapper openIterator() {
+			try {
+				return newDbIterator();
+			} catch (RocksDBException e) {
+				throw new FlinkRuntimeException("Error while flushing the writes to RocksDB.", e);
+			}
+		}
+
 		private void loadCache() {
 			if (cacheIndex > cacheEntries.size()) {
 				throw new IllegalStateException();
@@ -577,7 +594,7 @@ class RocksDBMapState<K, N, UK, UV>
 
 			// use try-with-resources to ensure RocksIterator can be release even some runtime exception
 			// occurred in the below code block.
-			try (RocksIteratorWrapper iterator = RocksDBKeyedStateBackend.getRocksIterator(db, columnFamily)) {
+			try (RocksIteratorWrapper iterator = openIterator()) {
 
 				/*
 				 * The iteration starts from the prefix bytes at the first loading. After #nextEntry() is called,
@@ -610,7 +627,6 @@ class RocksDBMapState<K, N, UK, UV>
 					}
 
 					RocksDBMapEntry entry = new RocksDBMapEntry(
-						db,
 						keyPrefixBytes.length,
 						iterator.key(),
 						iterator.value(),
@@ -45,4 +45,55 @@ public class RocksDBOptions {
 		.withDescription(String.format("This determines the factory for timer service state implementation. Options " +
 			"are either %s (heap-based, default) or %s for an implementation based on RocksDB .",
 			HEAP.name(), ROCKSDB.name()));
+
+	/**
+	 * The number of timers per key-group that the RocksDB-based timer service keeps in memory.
+	 */
+	public static final ConfigOption<Integer> TIMER_SERVICE_CACHE_SIZE = ConfigOptions
+		.key("state.backend.rocksdb.timer-service.cache-size")
+		.defaultValue(128)
+		.withDescription("The number of timers per key-group that the RocksDB-based timer service loads into memory" +
+			" in one iterator pass. Larger values reduce the number of RocksDB seeks when many timers fire at once," +
+			" for example after a large watermark advance, at the cost of memory.");
+
+	/**
+	 * The number of deserialized values that are cached per value state.
+	 */
+	public static final ConfigOption<Integer> VALUE_STATE_CACHE_SIZE = ConfigOptions
+		.key("state.backend.rocksdb.value-state.cache-size")
+		.defaultValue(0)
+		.withDescription("The maximum number of deserialized values that are cached per value state and parallel" +
+			" instance, so that repeated reads of hot keys do not access RocksDB. The cache is write-through." +
+			" Only value states are cached, the other kinds of state always read from RocksDB." +
+			" A value of 0 disables the cache.");
+
+	/**
+	 * The number of threads per keyed state backend that serve asynchronous state reads.
+	 */
+	public static final ConfigOption<Integer> ASYNC_READ_THREADS = ConfigOptions
+		.key("state.backend.rocksdb.async-read.threads")
+		.defaultValue(4)
+		.withDescription("The number of threads per operator instance that read state from RocksDB for operators" +
+			" which access their state asynchronously, so that the task thread keeps processing while a read waits" +
+			" for the disk. The threads are only started on the first asynchronous read.");
+
+	/**
+	 * The number of threads per keyed state backend that transfer the files of incremental checkpoints.
+	 */
+	public static final ConfigOption<Integer> CHECKPOINT_TRANSFER_THREAD_NUM = ConfigOptions
+		.key("state.backend.rocksdb.checkpoint.transfer.thread.num")
+		.defaultValue(1)
+		.withDescription("The number of threads per operator instance that upload the files of incremental" +
+			" checkpoints to the checkpoint storage and download them on restore. Files larger than 64 MB are" +
+			" downloaded in ranges in parallel if more than one thread is configured.");
+
+	/**
+	 * Whether the writes of the keyed states are buffered in a write batch.
+	 */
+	public static final ConfigOption<Boolean> WRITE_BATCHING = ConfigOptions
+		.key("state.backend.rocksdb.write-batching")
+		.defaultValue(false)
+		.withDescription("If enabled, the writes of the keyed states are buffered in a write batch that is applied" +
+			" to RocksDB when it is full, before reading from RocksDB and before taking a snapshot, instead of" +
+			" issuing one write per state access.");
 }
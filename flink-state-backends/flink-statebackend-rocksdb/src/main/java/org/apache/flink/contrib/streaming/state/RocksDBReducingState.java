@@ -32,6 +32,7 @@ import org.apache.flink.util.FlinkRuntimeException;
 import org.rocksdb.ColumnFamilyHandle;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * {@link ReducingState} implementation that stores state in RocksDB.
@@ -109,26 +110,24 @@ class RocksDBReducingState<K, N, V>
 		try {
 			V current = null;
 
-			// merge the sources to the target
-			for (N source : sources) {
-				if (source != null) {
-
-					writeKeyWithGroupAndNamespace(keyGroup, key, source, dataOutputView);
+			// read all sources with a single call to RocksDB
+			final List<byte[]> sourceKeys = serializeNamespaceKeys(keyGroup, key, sources);
+			final List<byte[]> sourceValues = multiGetFromDb(sourceKeys);
 
-					final byte[] sourceKey = dataOutputView.getCopyOfBuffer();
-					final byte[] valueBytes = backend.db.get(columnFamily, sourceKey);
-					backend.db.delete(columnFamily, writeOptions, sourceKey);
+			// merge the sources to the target
+			for (int i = 0; i < sourceKeys.size(); ++i) {
+				deleteFromDb(sourceKeys.get(i));
 
-					if (valueBytes != null) {
-						dataInputView.setBuffer(valueBytes);
-						V value = valueSerializer.deserialize(dataInputView);
+				final byte[] valueBytes = sourceValues.get(i);
+				if (valueBytes != null) {
+					dataInputView.setBuffer(valueBytes);
+					V value = valueSerializer.deserialize(dataInputView);
 
-						if (current != null) {
-							current = reduceFunction.reduce(current, value);
-						}
-						else {
-							current = value;
-						}
+					if (current != null) {
+						current = reduceFunction.reduce(current, value);
+					}
+					else {
+						current = value;
 					}
 				}
 			}
@@ -139,7 +138,7 @@ class RocksDBReducingState<K, N, V>
 				writeKeyWithGroupAndNamespace(keyGroup, key, target, dataOutputView);
 
 				final byte[] targetKey = dataOutputView.getCopyOfBuffer();
-				final byte[] targetValueBytes = backend.db.get(columnFamily, targetKey);
+				final byte[] targetValueBytes = getFromDb(targetKey);
 
 				if (targetValueBytes != null) {
 					dataInputView.setBuffer(targetValueBytes);
@@ -154,7 +153,7 @@ class RocksDBReducingState<K, N, V>
 				valueSerializer.serialize(current, dataOutputView);
 
 				// write the resulting value
-				backend.db.put(columnFamily, writeOptions, targetKey, dataOutputView.getCopyOfBuffer());
+				putToDb(targetKey, dataOutputView.getCopyOfBuffer());
 			}
 		}
 		catch (Exception e) {
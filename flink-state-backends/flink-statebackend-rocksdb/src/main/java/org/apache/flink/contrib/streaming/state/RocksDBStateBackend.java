@@ -126,6 +126,25 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 	/** The default rocksdb metrics options. */
 	private final RocksDBNativeMetricOptions defaultMetricOptions;
 
+	/** The number of deserialized values that are cached per value state.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final int valueStateCacheSize;
+
+	/** This determines if the writes of the keyed states are buffered in a write batch. */
+	private final TernaryBoolean enableWriteBatching;
+
+	/** The number of timers per key-group that the RocksDB timer service keeps in memory.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final int timerServiceCacheSize;
+
+	/** The number of threads that serve asynchronous state reads.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final int asyncReadThreads;
+
+	/** The number of threads that transfer the files of incremental checkpoints.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final int numberOfTransferThreads;
+
 	// -- runtime values, set on TaskManager when initializing / using the backend
 
 	/** Base paths for RocksDB directory, as initialized. */
@@ -241,6 +260,11 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		// for now, we use still the heap-based implementation as default
 		this.priorityQueueStateType = PriorityQueueStateType.HEAP;
 		this.defaultMetricOptions = new RocksDBNativeMetricOptions();
+		this.valueStateCacheSize = -1;
+		this.enableWriteBatching = TernaryBoolean.UNDEFINED;
+		this.timerServiceCacheSize = -1;
+		this.asyncReadThreads = -1;
+		this.numberOfTransferThreads = -1;
 	}
 
 	/**
@@ -303,6 +327,25 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		// configure metric options
 		this.defaultMetricOptions = RocksDBNativeMetricOptions.fromConfig(config);
 
+		this.valueStateCacheSize = original.valueStateCacheSize >= 0 ?
+			original.valueStateCacheSize :
+			config.getInteger(RocksDBOptions.VALUE_STATE_CACHE_SIZE);
+
+		this.enableWriteBatching = original.enableWriteBatching.resolveUndefined(
+			config.getBoolean(RocksDBOptions.WRITE_BATCHING));
+
+		this.timerServiceCacheSize = original.timerServiceCacheSize > 0 ?
+			original.timerServiceCacheSize :
+			config.getInteger(RocksDBOptions.TIMER_SERVICE_CACHE_SIZE);
+
+		this.asyncReadThreads = original.asyncReadThreads > 0 ?
+			original.asyncReadThreads :
+			config.getInteger(RocksDBOptions.ASYNC_READ_THREADS);
+
+		this.numberOfTransferThreads = original.numberOfTransferThreads > 0 ?
+			original.numberOfTransferThreads :
+			config.getInteger(RocksDBOptions.CHECKPOINT_TRANSFER_THREAD_NUM);
+
 		// copy remaining settings
 		this.predefinedOptions = original.predefinedOptions;
 		this.optionsFactory = original.optionsFactory;
@@ -456,7 +499,12 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 				priorityQueueStateType,
 				ttlTimeProvider,
 				getMemoryWatcherOptions(),
-				metricGroup);
+				metricGroup,
+				getValueStateCacheSize(),
+				isWriteBatchingEnabled(),
+				getTimerServiceCacheSize(),
+				getAsyncReadThreads(),
+				getNumberOfTransferThreads());
 	}
 
 	@Override
@@ -587,6 +635,64 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		return enableIncrementalCheckpointing.getOrDefault(CheckpointingOptions.INCREMENTAL_CHECKPOINTS.defaultValue());
 	}
 
+	/**
+	 * Gets the number of deserialized values that are cached per value state, or 0 if values are not cached.
+	 * Map, list, reducing, aggregating and folding states are not cached.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link RocksDBOptions#VALUE_STATE_CACHE_SIZE}.
+	 */
+	public int getValueStateCacheSize() {
+		return valueStateCacheSize >= 0 ?
+			valueStateCacheSize :
+			RocksDBOptions.VALUE_STATE_CACHE_SIZE.defaultValue();
+	}
+
+	/**
+	 * Gets whether the writes of the keyed states are buffered in a write batch, see
+	 * {@link RocksDBOptions#WRITE_BATCHING}.
+	 */
+	public boolean isWriteBatchingEnabled() {
+		return enableWriteBatching.getOrDefault(RocksDBOptions.WRITE_BATCHING.defaultValue());
+	}
+
+	/**
+	 * Gets the number of timers per key-group that the RocksDB-based timer service keeps in memory.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link RocksDBOptions#TIMER_SERVICE_CACHE_SIZE}.
+	 */
+	public int getTimerServiceCacheSize() {
+		return timerServiceCacheSize > 0 ?
+			timerServiceCacheSize :
+			RocksDBOptions.TIMER_SERVICE_CACHE_SIZE.defaultValue();
+	}
+
+	/**
+	 * Gets the number of threads per keyed state backend that serve asynchronous state reads.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link RocksDBOptions#ASYNC_READ_THREADS}.
+	 */
+	public int getAsyncReadThreads() {
+		return asyncReadThreads > 0 ?
+			asyncReadThreads :
+			RocksDBOptions.ASYNC_READ_THREADS.defaultValue();
+	}
+
+	/**
+	 * Gets the number of threads per keyed state backend that upload and download the files of
+	 * incremental checkpoints.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link RocksDBOptions#CHECKPOINT_TRANSFER_THREAD_NUM}.
+	 */
+	public int getNumberOfTransferThreads() {
+		return numberOfTransferThreads > 0 ?
+			numberOfTransferThreads :
+			RocksDBOptions.CHECKPOINT_TRANSFER_THREAD_NUM.defaultValue();
+	}
+
 	// ------------------------------------------------------------------------
 	//  Parametrize with RocksDB Options
 	// ------------------------------------------------------------------------
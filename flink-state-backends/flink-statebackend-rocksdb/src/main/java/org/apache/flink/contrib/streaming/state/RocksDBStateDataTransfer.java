@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.metrics.SimpleCounter;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+import org.apache.flink.util.ExceptionUtils;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Base class for the transfer of the files of incremental RocksDB snapshots between the local
+ * instance directory and the checkpoint storage. The files are transferred concurrently by a
+ * pool of threads, so that the transfer is bound by the bandwidth rather than the latency of
+ * the storage. With a single thread, the files are transferred one by one in the calling thread.
+ *
+ * <p>The transfers report the number of transferred files and bytes, and the number of pending
+ * transfers, to the given metric group.
+ */
+abstract class RocksDBStateDataTransfer implements Closeable {
+
+	protected static final Logger LOG = LoggerFactory.getLogger(RocksDBStateDataTransfer.class);
+
+	/** The size of the buffer that the files are copied with. */
+	protected static final int BUFFER_SIZE = 16 * 1024;
+
+	private final int numberOfThreads;
+
+	private final Executor executor;
+
+	/** The pool of the transfer threads, or null if the files are transferred in the calling thread. */
+	@Nullable
+	private final ExecutorService executorService;
+
+	private final Counter transferredFiles;
+
+	private final Counter transferredBytes;
+
+	private final AtomicInteger pendingTransfers;
+
+	RocksDBStateDataTransfer(int numberOfThreads, String threadName, MetricGroup metricGroup) {
+		Preconditions.checkArgument(numberOfThreads > 0, "The number of transfer threads must be positive.");
+		this.numberOfThreads = numberOfThreads;
+
+		if (numberOfThreads > 1) {
+			this.executorService = Executors.newFixedThreadPool(numberOfThreads, new ExecutorThreadFactory(threadName));
+			this.executor = executorService;
+		} else {
+			this.executorService = null;
+			this.executor = org.apache.flink.runtime.concurrent.Executors.directExecutor();
+		}
+
+		this.transferredFiles = metricGroup.counter("numberOfTransferredFiles", new SimpleCounter());
+		this.transferredBytes = metricGroup.counter("numberOfTransferredBytes", new SimpleCounter());
+		this.pendingTransfers = new AtomicInteger();
+		metricGroup.gauge("numberOfPendingTransfers", (Gauge<Integer>) pendingTransfers::get);
+	}
+
+	int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	/**
+	 * Runs the given transfers in the transfer threads and waits until all of them are done. The
+	 * transfers register their streams with a registry that is closed when the given registry is
+	 * closed, or as soon as one of the transfers fails, so that the other transfers fail fast.
+	 *
+	 * @param transfers The transfers to run.
+	 * @param closeableRegistry The registry that is closed to cancel the transfers.
+	 * @throws Exception The first failure of a transfer.
+	 */
+	protected void transferAll(List<Transfer> transfers, CloseableRegistry closeableRegistry) throws Exception {
+		final CloseableRegistry transferRegistry = new CloseableRegistry();
+		closeableRegistry.registerCloseable(transferRegistry);
+
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final List<FutureTask<Void>> tasks = new ArrayList<>(transfers.size());
+
+		try {
+			for (Transfer transfer : transfers) {
+				final TransferTask task = new TransferTask(() -> {
+					try {
+						transfer.run(transferRegistry);
+						return null;
+					} catch (Throwable t) {
+						if (failure.compareAndSet(null, t)) {
+							IOUtils.closeQuietly(transferRegistry);
+						}
+						throw t;
+					}
+				});
+
+				try {
+					executor.execute(task);
+				} catch (RejectedExecutionException e) {
+					// the transfer threads were shut down because the backend is disposed
+					task.cancel(false);
+					failure.compareAndSet(null, e);
+					break;
+				}
+				tasks.add(task);
+			}
+
+			for (FutureTask<Void> task : tasks) {
+				try {
+					task.get();
+				} catch (CancellationException e) {
+					failure.compareAndSet(null, e);
+				} catch (ExecutionException ignored) {
+					// the failure was recorded by the transfer
+				}
+			}
+		} finally {
+			if (closeableRegistry.unregisterCloseable(transferRegistry)) {
+				IOUtils.closeQuietly(transferRegistry);
+			}
+		}
+
+		final Throwable firstFailure = failure.get();
+		if (firstFailure != null) {
+			ExceptionUtils.rethrowException(firstFailure);
+		}
+	}
+
+	/**
+	 * Reports a completed transfer of a file, or of a range of a file, to the metrics.
+	 */
+	protected void reportTransfer(Object file, long numBytes, long startNanos) {
+		transferredFiles.inc();
+		transferredBytes.inc(numBytes);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Transferred {} ({} bytes) in {} ms.",
+				file, numBytes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+		}
+	}
+
+	@Override
+	public void close() {
+		if (executorService != null) {
+			// tasks that did not start are cancelled, so that nobody waits for them
+			for (Runnable runnable : executorService.shutdownNow()) {
+				if (runnable instanceof FutureTask) {
+					((FutureTask<?>) runnable).cancel(false);
+				}
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The transfer of one file, or of a range of a file.
+	 */
+	@FunctionalInterface
+	protected interface Transfer {
+
+		/**
+		 * Runs the transfer.
+		 *
+		 * @param closeableRegistry The registry to register the streams of the transfer with.
+		 */
+		void run(CloseableRegistry closeableRegistry) throws Exception;
+	}
+
+	/**
+	 * A transfer task that keeps the number of pending transfers up to date.
+	 */
+	private final class TransferTask extends FutureTask<Void> {
+
+		TransferTask(Callable<Void> callable) {
+			super(callable);
+			pendingTransfers.incrementAndGet();
+		}
+
+		@Override
+		protected void done() {
+			pendingTransfers.decrementAndGet();
+		}
+	}
+}
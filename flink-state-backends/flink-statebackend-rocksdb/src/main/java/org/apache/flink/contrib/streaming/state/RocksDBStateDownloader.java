@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.util.Preconditions;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Downloads the files of incremental RocksDB snapshots from the checkpoint storage into a local
+ * directory, one file per transfer thread at a time. Files that are larger than the range size
+ * are split into ranges that are read and written in parallel, so that a few very large files
+ * do not serialize the download.
+ */
+public class RocksDBStateDownloader extends RocksDBStateDataTransfer {
+
+	/** Files larger than this are downloaded in ranges of this size, if there is more than one thread. */
+	public static final long DEFAULT_RANGE_SIZE = 64L * 1024 * 1024;
+
+	private final long rangeSize;
+
+	public RocksDBStateDownloader(int numberOfThreads, String threadName, MetricGroup metricGroup) {
+		this(numberOfThreads, threadName, metricGroup, DEFAULT_RANGE_SIZE);
+	}
+
+	@VisibleForTesting
+	RocksDBStateDownloader(int numberOfThreads, String threadName, MetricGroup metricGroup, long rangeSize) {
+		super(numberOfThreads, threadName, metricGroup);
+		Preconditions.checkArgument(rangeSize > 0, "The range size must be positive.");
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Downloads all shared and private files of the given state handle into the given local
+	 * directory, and names them after their {@link StateHandleID}.
+	 *
+	 * @param restoreStateHandle The state handle whose files are downloaded.
+	 * @param dest The local directory to download the files to.
+	 * @param closeableRegistry The registry that is closed to cancel the download.
+	 * @throws Exception Thrown, if one of the files could not be downloaded.
+	 */
+	public void transferAllStateDataToDirectory(
+		IncrementalKeyedStateHandle restoreStateHandle,
+		Path dest,
+		CloseableRegistry closeableRegistry) throws Exception {
+
+		final List<Transfer> transfers = new ArrayList<>();
+		createTransfers(restoreStateHandle.getSharedState(), dest, transfers);
+		createTransfers(restoreStateHandle.getPrivateState(), dest, transfers);
+
+		transferAll(transfers, closeableRegistry);
+	}
+
+	private void createTransfers(
+		Map<StateHandleID, StreamStateHandle> stateHandleMap,
+		Path restoreInstancePath,
+		List<Transfer> transfers) throws IOException {
+
+		for (Map.Entry<StateHandleID, StreamStateHandle> entry : stateHandleMap.entrySet()) {
+			final Path restoreFilePath = new Path(restoreInstancePath, entry.getKey().toString());
+			final StreamStateHandle remoteFileHandle = entry.getValue();
+			final long fileSize = remoteFileHandle.getStateSize();
+
+			if (getNumberOfThreads() > 1 && fileSize > rangeSize) {
+				// the ranges write to their own positions of the file, which is created up front
+				final File restoreFile = new File(restoreFilePath.getPath());
+				Files.createDirectories(restoreFile.getParentFile().toPath());
+
+				try (RandomAccessFile file = new RandomAccessFile(restoreFile, "rw")) {
+					file.setLength(fileSize);
+				}
+
+				for (long start = 0L; start < fileSize; start += rangeSize) {
+					final long rangeStart = start;
+					final long rangeLength = Math.min(rangeSize, fileSize - start);
+					transfers.add(registry -> copyRange(remoteFileHandle, restoreFile, rangeStart, rangeLength, registry));
+				}
+			} else {
+				transfers.add(registry -> copyStateDataHandleData(restoreFilePath, remoteFileHandle, registry));
+			}
+		}
+	}
+
+	/**
+	 * Copies the file from a single state handle to the given path.
+	 */
+	private void copyStateDataHandleData(
+		Path restoreFilePath,
+		StreamStateHandle remoteFileHandle,
+		CloseableRegistry closeableRegistry) throws IOException {
+
+		final long startNanos = System.nanoTime();
+
+		FileSystem restoreFileSystem = restoreFilePath.getFileSystem();
+
+		FSDataInputStream inputStream = null;
+		FSDataOutputStream outputStream = null;
+
+		try {
+			inputStream = remoteFileHandle.openInputStream();
+			closeableRegistry.registerCloseable(inputStream);
+
+			outputStream = restoreFileSystem.create(restoreFilePath, FileSystem.WriteMode.OVERWRITE);
+			closeableRegistry.registerCloseable(outputStream);
+
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long numTotalBytes = 0L;
+			while (true) {
+				int numBytes = inputStream.read(buffer);
+				if (numBytes == -1) {
+					break;
+				}
+
+				outputStream.write(buffer, 0, numBytes);
+				numTotalBytes += numBytes;
+			}
+
+			reportTransfer(restoreFilePath, numTotalBytes, startNanos);
+		} finally {
+			if (closeableRegistry.unregisterCloseable(inputStream)) {
+				inputStream.close();
+			}
+
+			if (closeableRegistry.unregisterCloseable(outputStream)) {
+				outputStream.close();
+			}
+		}
+	}
+
+	/**
+	 * Copies the given range of the file from a single state handle to the same range of the given file.
+	 */
+	private void copyRange(
+		StreamStateHandle remoteFileHandle,
+		File restoreFile,
+		long start,
+		long length,
+		CloseableRegistry closeableRegistry) throws IOException {
+
+		final long startNanos = System.nanoTime();
+
+		FSDataInputStream inputStream = null;
+		RandomAccessFile outputFile = null;
+
+		try {
+			inputStream = remoteFileHandle.openInputStream();
+			closeableRegistry.registerCloseable(inputStream);
+			inputStream.seek(start);
+
+			outputFile = new RandomAccessFile(restoreFile, "rw");
+			closeableRegistry.registerCloseable(outputFile);
+			outputFile.seek(start);
+
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long remaining = length;
+			while (remaining > 0L) {
+				int numBytes = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+				if (numBytes == -1) {
+					throw new EOFException("Unexpected end of " + remoteFileHandle + " at position " +
+						(start + length - remaining) + '.');
+				}
+
+				outputFile.write(buffer, 0, numBytes);
+				remaining -= numBytes;
+			}
+
+			reportTransfer(restoreFile + " [" + start + ", " + (start + length) + ')', length, startNanos);
+		} finally {
+			if (closeableRegistry.unregisterCloseable(inputStream)) {
+				inputStream.close();
+			}
+
+			if (closeableRegistry.unregisterCloseable(outputFile)) {
+				outputFile.close();
+			}
+		}
+	}
+}
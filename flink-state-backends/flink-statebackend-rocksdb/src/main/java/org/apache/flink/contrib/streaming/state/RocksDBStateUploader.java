@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateUtil;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.util.IOUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uploads the files of local RocksDB checkpoints to the checkpoint storage, one file per transfer
+ * thread at a time.
+ */
+public class RocksDBStateUploader extends RocksDBStateDataTransfer {
+
+	public RocksDBStateUploader(int numberOfThreads, String threadName, MetricGroup metricGroup) {
+		super(numberOfThreads, threadName, metricGroup);
+	}
+
+	/**
+	 * Uploads the given local files as shared state of the checkpoint. If one of the uploads fails,
+	 * the files that were already uploaded are discarded.
+	 *
+	 * @param files The local files to upload, by the ids of their state handles.
+	 * @param checkpointStreamFactory The factory of the streams to the checkpoint storage.
+	 * @param closeableRegistry The registry that is closed to cancel the uploads.
+	 * @return The handles of the uploaded files, by the given ids.
+	 * @throws Exception Thrown, if one of the files could not be uploaded.
+	 */
+	public Map<StateHandleID, StreamStateHandle> uploadFilesToCheckpointFs(
+		Map<StateHandleID, Path> files,
+		CheckpointStreamFactory checkpointStreamFactory,
+		CloseableRegistry closeableRegistry) throws Exception {
+
+		final Map<StateHandleID, StreamStateHandle> handles = Collections.synchronizedMap(new HashMap<>(files.size()));
+		final List<Transfer> transfers = new ArrayList<>(files.size());
+
+		for (Map.Entry<StateHandleID, Path> file : files.entrySet()) {
+			transfers.add(registry -> handles.put(
+				file.getKey(),
+				uploadLocalFileToCheckpointFs(file.getValue(), checkpointStreamFactory, registry)));
+		}
+
+		try {
+			transferAll(transfers, closeableRegistry);
+		} catch (Exception e) {
+			synchronized (handles) {
+				try {
+					StateUtil.bestEffortDiscardAllStateObjects(handles.values());
+				} catch (Exception discardException) {
+					e.addSuppressed(discardException);
+				}
+			}
+			throw e;
+		}
+
+		return new HashMap<>(handles);
+	}
+
+	private StreamStateHandle uploadLocalFileToCheckpointFs(
+		Path filePath,
+		CheckpointStreamFactory checkpointStreamFactory,
+		CloseableRegistry closeableRegistry) throws Exception {
+
+		final long startNanos = System.nanoTime();
+
+		FSDataInputStream inputStream = null;
+		CheckpointStreamFactory.CheckpointStateOutputStream outputStream = null;
+
+		try {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+
+			inputStream = filePath.getFileSystem().open(filePath);
+			closeableRegistry.registerCloseable(inputStream);
+
+			outputStream = checkpointStreamFactory
+				.createCheckpointStateOutputStream(CheckpointedStateScope.SHARED);
+			closeableRegistry.registerCloseable(outputStream);
+
+			while (true) {
+				int numBytes = inputStream.read(buffer);
+
+				if (numBytes == -1) {
+					break;
+				}
+
+				outputStream.write(buffer, 0, numBytes);
+			}
+
+			StreamStateHandle result = null;
+			if (closeableRegistry.unregisterCloseable(outputStream)) {
+				final long numBytes = outputStream.getPos();
+				result = outputStream.closeAndGetHandle();
+				outputStream = null;
+				reportTransfer(filePath, numBytes, startNanos);
+			}
+			return result;
+
+		} finally {
+
+			if (closeableRegistry.unregisterCloseable(inputStream)) {
+				IOUtils.closeQuietly(inputStream);
+			}
+
+			if (closeableRegistry.unregisterCloseable(outputStream)) {
+				IOUtils.closeQuietly(outputStream);
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteOptions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link RocksDBWriteBatchWrapper} in which the states of a {@link RocksDBKeyedStateBackend} buffer their writes.
+ * It remembers which keys of which column families have buffered writes, so that a read only needs to flush the
+ * batch if it would otherwise miss one of those writes.
+ *
+ * <p>The key arrays that are handed to the batch must not be modified afterwards.
+ *
+ * <p>IMPORTANT: This class is not thread safe.
+ */
+class RocksDBStateWriteBatch extends RocksDBWriteBatchWrapper {
+
+	/** The keys with buffered writes, per column family. A range deletion is recorded as a null key set. */
+	private final Map<ColumnFamilyHandle, Set<ByteBuffer>> bufferedKeys;
+
+	RocksDBStateWriteBatch(@Nonnull RocksDB rocksDB, @Nullable WriteOptions options) {
+		super(rocksDB, options);
+		this.bufferedKeys = new HashMap<>();
+	}
+
+	@Override
+	public void put(
+		@Nonnull ColumnFamilyHandle handle,
+		@Nonnull byte[] key,
+		@Nonnull byte[] value) throws RocksDBException {
+
+		// recorded first, because the write may flush the batch
+		recordKey(handle, key);
+		super.put(handle, key, value);
+	}
+
+	@Override
+	public void remove(
+		@Nonnull ColumnFamilyHandle handle,
+		@Nonnull byte[] key) throws RocksDBException {
+
+		recordKey(handle, key);
+		super.remove(handle, key);
+	}
+
+	@Override
+	public void deleteRange(
+		@Nonnull ColumnFamilyHandle handle,
+		@Nonnull byte[] beginKey,
+		@Nonnull byte[] endKey) throws RocksDBException {
+
+		bufferedKeys.put(handle, null);
+		super.deleteRange(handle, beginKey, endKey);
+	}
+
+	@Override
+	public void merge(
+		@Nonnull ColumnFamilyHandle handle,
+		@Nonnull byte[] key,
+		@Nonnull byte[] value) throws RocksDBException {
+
+		recordKey(handle, key);
+		super.merge(handle, key, value);
+	}
+
+	@Override
+	public void flush() throws RocksDBException {
+		super.flush();
+		bufferedKeys.clear();
+	}
+
+	/**
+	 * Returns whether the batch holds a write that affects the given key of the given column family.
+	 */
+	boolean containsWrite(@Nonnull ColumnFamilyHandle handle, @Nonnull byte[] key) {
+		if (!bufferedKeys.containsKey(handle)) {
+			return false;
+		}
+		final Set<ByteBuffer> keys = bufferedKeys.get(handle);
+		return keys == null || keys.contains(ByteBuffer.wrap(key));
+	}
+
+	/**
+	 * Returns whether the batch holds any write to the given column family.
+	 */
+	boolean containsWrites(@Nonnull ColumnFamilyHandle handle) {
+		return bufferedKeys.containsKey(handle);
+	}
+
+	private void recordKey(ColumnFamilyHandle handle, byte[] key) {
+		if (bufferedKeys.containsKey(handle)) {
+			final Set<ByteBuffer> keys = bufferedKeys.get(handle);
+			if (keys != null) {
+				keys.add(ByteBuffer.wrap(key));
+			}
+		} else {
+			final Set<ByteBuffer> keys = new HashSet<>();
+			keys.add(ByteBuffer.wrap(key));
+			bufferedKeys.put(handle, keys);
+		}
+	}
+}
@@ -23,14 +23,18 @@ import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataInputDeserializer;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
-import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.runtime.state.internal.InternalAsyncValueState;
 import org.apache.flink.util.FlinkRuntimeException;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * {@link ValueState} implementation that stores state in RocksDB.
@@ -41,7 +45,14 @@ import java.io.IOException;
  */
 class RocksDBValueState<K, N, V>
 	extends AbstractRocksDBState<K, N, V, ValueState<V>>
-	implements InternalValueState<K, N, V> {
+	implements InternalAsyncValueState<K, N, V> {
+
+	/** Write-through cache of deserialized values, or null if values are not cached. */
+	@Nullable
+	private final RocksDBValueStateCache<V> cache;
+
+	/** The serializers with which the asynchronous read threads deserialize the values. */
+	private final ThreadLocal<TypeSerializer<V>> asyncValueSerializer;
 
 	/**
 	 * Creates a new {@code RocksDBValueState}.
@@ -51,15 +62,19 @@ class RocksDBValueState<K, N, V>
 	 * @param valueSerializer The serializer for the state.
 	 * @param defaultValue The default value for the state.
 	 * @param backend The backend for which this state is bind to.
+	 * @param cache The cache of deserialized values, or null if values are not cached.
 	 */
 	private RocksDBValueState(
 			ColumnFamilyHandle columnFamily,
 			TypeSerializer<N> namespaceSerializer,
 			TypeSerializer<V> valueSerializer,
 			V defaultValue,
-			RocksDBKeyedStateBackend<K> backend) {
+			RocksDBKeyedStateBackend<K> backend,
+			@Nullable RocksDBValueStateCache<V> cache) {
 
 		super(columnFamily, namespaceSerializer, valueSerializer, defaultValue, backend);
+		this.cache = cache;
+		this.asyncValueSerializer = ThreadLocal.withInitial(valueSerializer::duplicate);
 	}
 
 	@Override
@@ -82,17 +97,74 @@ class RocksDBValueState<K, N, V>
 		try {
 			writeCurrentKeyWithGroupAndNamespace();
 			byte[] key = dataOutputView.getCopyOfBuffer();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+
+			if (cache != null) {
+				RocksDBValueStateCache.Entry<V> cached = cache.get(key);
+				if (cached != null) {
+					// the cached object must not leak, the user may modify the returned value without updating it
+					V cachedValue = cached.getValue();
+					return cachedValue != null ? valueSerializer.copy(cachedValue) : getDefaultValue();
+				}
+			}
+
+			byte[] valueBytes = getFromDb(key);
 			if (valueBytes == null) {
+				if (cache != null) {
+					cache.put(key, null);
+				}
 				return getDefaultValue();
 			}
 			dataInputView.setBuffer(valueBytes);
-			return valueSerializer.deserialize(dataInputView);
+			V value = valueSerializer.deserialize(dataInputView);
+			if (cache != null) {
+				cache.put(key, valueSerializer.copy(value));
+			}
+			return value;
 		} catch (IOException | RocksDBException e) {
 			throw new FlinkRuntimeException("Error while retrieving data from RocksDB.", e);
 		}
 	}
 
+	/**
+	 * Reads the value in a read thread of the backend. Cached values are returned immediately, but values that were
+	 * read asynchronously are not added to the cache, because the cache is only accessed by the task thread.
+	 */
+	@Override
+	public CompletableFuture<V> asyncValue() {
+		try {
+			writeCurrentKeyWithGroupAndNamespace();
+			byte[] key = dataOutputView.getCopyOfBuffer();
+
+			if (cache != null) {
+				RocksDBValueStateCache.Entry<V> cached = cache.get(key);
+				if (cached != null) {
+					V cachedValue = cached.getValue();
+					return CompletableFuture.completedFuture(
+						cachedValue != null ? valueSerializer.copy(cachedValue) : getDefaultValue());
+				}
+			}
+
+			return backend.asyncGet(columnFamily, key).thenApply(this::deserializeAsyncValue);
+		} catch (IOException | RocksDBException e) {
+			CompletableFuture<V> failed = new CompletableFuture<>();
+			failed.completeExceptionally(new FlinkRuntimeException("Error while retrieving data from RocksDB.", e));
+			return failed;
+		}
+	}
+
+	private V deserializeAsyncValue(@Nullable byte[] valueBytes) {
+		final TypeSerializer<V> serializer = asyncValueSerializer.get();
+		if (valueBytes == null) {
+			return defaultValue != null ? serializer.copy(defaultValue) : null;
+		}
+
+		try {
+			return serializer.deserialize(new DataInputDeserializer(valueBytes));
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Error while deserializing data from RocksDB.", e);
+		}
+	}
+
 	@Override
 	public void update(V value) {
 		if (value == null) {
@@ -105,12 +177,29 @@ class RocksDBValueState<K, N, V>
 			byte[] key = dataOutputView.getCopyOfBuffer();
 			dataOutputView.clear();
 			valueSerializer.serialize(value, dataOutputView);
-			backend.db.put(columnFamily, writeOptions, key, dataOutputView.getCopyOfBuffer());
+			putToDb(key, dataOutputView.getCopyOfBuffer());
+			if (cache != null) {
+				cache.put(key, valueSerializer.copy(value));
+			}
 		} catch (Exception e) {
 			throw new FlinkRuntimeException("Error while adding data to RocksDB", e);
 		}
 	}
 
+	@Override
+	public void clear() {
+		try {
+			writeCurrentKeyWithGroupAndNamespace();
+			byte[] key = dataOutputView.getCopyOfBuffer();
+			deleteFromDb(key);
+			if (cache != null) {
+				cache.put(key, null);
+			}
+		} catch (IOException | RocksDBException e) {
+			throw new FlinkRuntimeException("Error while removing entry from RocksDB", e);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	static <K, N, SV, S extends State, IS extends S> IS create(
 		StateDescriptor<S, SV> stateDesc,
@@ -121,6 +210,7 @@ class RocksDBValueState<K, N, V>
 			registerResult.f1.getNamespaceSerializer(),
 			registerResult.f1.getStateSerializer(),
 			stateDesc.getDefaultValue(),
-			backend);
+			backend,
+			backend.getValueStateCache(stateDesc.getName()));
 	}
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.metrics.SimpleCounter;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded, least-recently-used cache of deserialized values for a {@link RocksDBValueState}. The cache is
+ * keyed by the serialized key-group, key and namespace, i.e. the same bytes that address the value in RocksDB.
+ *
+ * <p>The cache is write-through: every update and clear is applied to RocksDB and to the cache, so RocksDB always
+ * holds the complete state and snapshots do not need to flush the cache. A cached absence of a value is remembered
+ * as well, so that reads of keys without state also skip the JNI call.
+ *
+ * <p>Like the RocksDB backend itself, the cache is not thread-safe and must only be accessed from the task thread.
+ *
+ * @param <V> The type of the cached values.
+ */
+class RocksDBValueStateCache<V> {
+
+	/** Marker for a key that has no value in RocksDB. */
+	private static final Object ABSENT = new Object();
+
+	/** The cached values (or {@link #ABSENT}) in access order. */
+	@Nonnull
+	private final LinkedHashMap<KeyBytes, Object> cache;
+
+	@Nonnull
+	private final Counter hitCounter;
+
+	@Nonnull
+	private final Counter missCounter;
+
+	RocksDBValueStateCache(int maxSize, @Nonnull MetricGroup metricGroup) {
+		Preconditions.checkArgument(maxSize > 0, "The size of the value state cache must be positive.");
+
+		this.cache = new LinkedHashMap<KeyBytes, Object>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<KeyBytes, Object> eldest) {
+				return size() > maxSize;
+			}
+		};
+
+		this.hitCounter = metricGroup.counter("valueCacheHits", new SimpleCounter());
+		this.missCounter = metricGroup.counter("valueCacheMisses", new SimpleCounter());
+		metricGroup.gauge("valueCacheSize", cache::size);
+	}
+
+	/**
+	 * Looks up the value for the serialized key and namespace.
+	 *
+	 * @return the cached entry, or null if the key is not cached. A cached entry for a key without value returns
+	 * null from {@link Entry#getValue()}.
+	 */
+	@Nullable
+	Entry<V> get(@Nonnull byte[] keyBytes) {
+		Object value = cache.get(new KeyBytes(keyBytes));
+		if (value == null) {
+			missCounter.inc();
+			return null;
+		}
+
+		hitCounter.inc();
+		return value == ABSENT ? Entry.absent() : new Entry<>(castValue(value));
+	}
+
+	/**
+	 * Caches the value for the serialized key and namespace, or the absence of a value if it is null. The value must
+	 * not be modified afterwards.
+	 */
+	void put(@Nonnull byte[] keyBytes, @Nullable V value) {
+		cache.put(new KeyBytes(keyBytes), value != null ? value : ABSENT);
+	}
+
+	void clear() {
+		cache.clear();
+	}
+
+	int size() {
+		return cache.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	private V castValue(Object value) {
+		return (V) value;
+	}
+
+	/**
+	 * A cache lookup result that distinguishes cached absence from a cache miss.
+	 */
+	static final class Entry<V> {
+
+		private static final Entry<?> ABSENT_ENTRY = new Entry<>(null);
+
+		@Nullable
+		private final V value;
+
+		private Entry(@Nullable V value) {
+			this.value = value;
+		}
+
+		@Nullable
+		V getValue() {
+			return value;
+		}
+
+		@SuppressWarnings("unchecked")
+		static <V> Entry<V> absent() {
+			return (Entry<V>) ABSENT_ENTRY;
+		}
+	}
+
+	/**
+	 * Wrapper for serialized keys that implements equality based on the content.
+	 */
+	private static final class KeyBytes {
+
+		@Nonnull
+		private final byte[] bytes;
+
+		private final int hashCode;
+
+		KeyBytes(@Nonnull byte[] bytes) {
+			this.bytes = bytes;
+			this.hashCode = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			KeyBytes that = (KeyBytes) o;
+			return hashCode == that.hashCode && Arrays.equals(bytes, that.bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
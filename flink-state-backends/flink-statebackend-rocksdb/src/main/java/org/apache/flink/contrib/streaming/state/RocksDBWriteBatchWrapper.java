@@ -90,6 +90,34 @@ public class RocksDBWriteBatchWrapper implements AutoCloseable {
 		}
 	}
 
+	public void deleteRange(
+		@Nonnull ColumnFamilyHandle handle,
+		@Nonnull byte[] beginKey,
+		@Nonnull byte[] endKey) throws RocksDBException {
+
+		batch.deleteRange(handle, beginKey, endKey);
+
+		if (batch.count() == capacity) {
+			flush();
+		}
+	}
+
+	public void merge(
+		@Nonnull ColumnFamilyHandle handle,
+		@Nonnull byte[] key,
+		@Nonnull byte[] value) throws RocksDBException {
+
+		batch.merge(handle, key, value);
+
+		if (batch.count() == capacity) {
+			flush();
+		}
+	}
+
+	public boolean isEmpty() {
+		return batch.count() == 0;
+	}
+
 	public void flush() throws RocksDBException {
 		if (options != null) {
 			db.write(options, batch);
@@ -20,10 +20,9 @@ package org.apache.flink.contrib.streaming.state.snapshot;
 
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.contrib.streaming.state.RocksDBStateUploader;
 import org.apache.flink.core.fs.CloseableRegistry;
-import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.fs.FileStatus;
-import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
@@ -106,6 +105,10 @@ public class RocksIncrementalSnapshotStrategy<K> extends RocksDBSnapshotStrategy
 	/** The identifier of the last completed checkpoint. */
 	private long lastCompletedCheckpointId;
 
+	/** Uploads the files of the snapshots to the checkpoint storage. */
+	@Nonnull
+	private final RocksDBStateUploader stateUploader;
+
 	public RocksIncrementalSnapshotStrategy(
 		@Nonnull RocksDB db,
 		@Nonnull ResourceGuard rocksDBResourceGuard,
@@ -118,7 +121,8 @@ public class RocksIncrementalSnapshotStrategy<K> extends RocksDBSnapshotStrategy
 		@Nonnull File instanceBasePath,
 		@Nonnull UUID backendUID,
 		@Nonnull SortedMap<Long, Set<StateHandleID>> materializedSstFiles,
-		long lastCompletedCheckpointId) {
+		long lastCompletedCheckpointId,
+		@Nonnull RocksDBStateUploader stateUploader) {
 
 		super(
 			DESCRIPTION,
@@ -135,6 +139,7 @@ public class RocksIncrementalSnapshotStrategy<K> extends RocksDBSnapshotStrategy
 		this.backendUID = backendUID;
 		this.materializedSstFiles = materializedSstFiles;
 		this.lastCompletedCheckpointId = lastCompletedCheckpointId;
+		this.stateUploader = stateUploader;
 	}
 
 	@Nonnull
@@ -257,8 +262,6 @@ public class RocksIncrementalSnapshotStrategy<K> extends RocksDBSnapshotStrategy
 	private final class RocksDBIncrementalSnapshotOperation
 		extends AsyncSnapshotCallable<SnapshotResult<KeyedStateHandle>> {
 
-		private static final int READ_BUFFER_SIZE = 16 * 1024;
-
 		/** Id for the current checkpoint. */
 		private final long checkpointId;
 
@@ -410,6 +413,9 @@ public class RocksIncrementalSnapshotStrategy<K> extends RocksDBSnapshotStrategy
 			// write state data
 			Preconditions.checkState(localBackupDirectory.exists());
 
+			// the new sst files and the misc files are uploaded together, in parallel
+			final Map<StateHandleID, Path> filesToUpload = new HashMap<>();
+
 			FileStatus[] fileStatuses = localBackupDirectory.listStatus();
 			if (fileStatuses != null) {
 				for (FileStatus fileStatus : fileStatuses) {
@@ -417,67 +423,38 @@ public class RocksIncrementalSnapshotStrategy<K> extends RocksDBSnapshotStrategy
 					final String fileName = filePath.getName();
 					final StateHandleID stateHandleID = new StateHandleID(fileName);
 
-					if (fileName.endsWith(SST_FILE_SUFFIX)) {
-						final boolean existsAlready =
-							baseSstFiles != null && baseSstFiles.contains(stateHandleID);
-
-						if (existsAlready) {
-							// we introduce a placeholder state handle, that is replaced with the
-							// original from the shared state registry (created from a previous checkpoint)
-							sstFiles.put(
-								stateHandleID,
-								new PlaceholderStreamStateHandle());
-						} else {
-							sstFiles.put(stateHandleID, uploadLocalFileToCheckpointFs(filePath));
-						}
+					final boolean existsAlready = fileName.endsWith(SST_FILE_SUFFIX) &&
+						baseSstFiles != null && baseSstFiles.contains(stateHandleID);
+
+					if (existsAlready) {
+						// we introduce a placeholder state handle, that is replaced with the
+						// original from the shared state registry (created from a previous checkpoint)
+						sstFiles.put(
+							stateHandleID,
+							new PlaceholderStreamStateHandle());
 					} else {
-						StreamStateHandle fileHandle = uploadLocalFileToCheckpointFs(filePath);
-						miscFiles.put(stateHandleID, fileHandle);
+						filesToUpload.put(stateHandleID, filePath);
 					}
 				}
 			}
-		}
 
-		private StreamStateHandle uploadLocalFileToCheckpointFs(Path filePath) throws Exception {
-			FSDataInputStream inputStream = null;
-			CheckpointStreamFactory.CheckpointStateOutputStream outputStream = null;
+			final CloseableRegistry uploadRegistry = new CloseableRegistry();
+			registerCloseableForCancellation(uploadRegistry);
 
 			try {
-				final byte[] buffer = new byte[READ_BUFFER_SIZE];
-
-				FileSystem backupFileSystem = localBackupDirectory.getFileSystem();
-				inputStream = backupFileSystem.open(filePath);
-				registerCloseableForCancellation(inputStream);
-
-				outputStream = checkpointStreamFactory
-					.createCheckpointStateOutputStream(CheckpointedStateScope.SHARED);
-				registerCloseableForCancellation(outputStream);
-
-				while (true) {
-					int numBytes = inputStream.read(buffer);
+				final Map<StateHandleID, StreamStateHandle> uploadedFiles =
+					stateUploader.uploadFilesToCheckpointFs(filesToUpload, checkpointStreamFactory, uploadRegistry);
 
-					if (numBytes == -1) {
-						break;
+				for (Map.Entry<StateHandleID, StreamStateHandle> uploadedFile : uploadedFiles.entrySet()) {
+					if (uploadedFile.getKey().getKeyString().endsWith(SST_FILE_SUFFIX)) {
+						sstFiles.put(uploadedFile.getKey(), uploadedFile.getValue());
+					} else {
+						miscFiles.put(uploadedFile.getKey(), uploadedFile.getValue());
 					}
-
-					outputStream.write(buffer, 0, numBytes);
-				}
-
-				StreamStateHandle result = null;
-				if (unregisterCloseableFromCancellation(outputStream)) {
-					result = outputStream.closeAndGetHandle();
-					outputStream = null;
 				}
-				return result;
-
 			} finally {
-
-				if (unregisterCloseableFromCancellation(inputStream)) {
-					IOUtils.closeQuietly(inputStream);
-				}
-
-				if (unregisterCloseableFromCancellation(outputStream)) {
-					IOUtils.closeQuietly(outputStream);
+				if (unregisterCloseableFromCancellation(uploadRegistry)) {
+					IOUtils.closeQuietly(uploadRegistry);
 				}
 			}
 		}
@@ -20,11 +20,18 @@ package org.apache.flink.contrib.streaming.state;
 
 import org.apache.flink.core.memory.DataInputDeserializer;
 import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.SimpleCounter;
 import org.apache.flink.runtime.state.InternalPriorityQueue;
 import org.apache.flink.runtime.state.InternalPriorityQueueTestBase;
 import org.apache.flink.runtime.state.heap.KeyGroupPartitionedPriorityQueue;
 
 import org.junit.Rule;
+import org.junit.Test;
+import org.rocksdb.RocksIterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * Test of {@link KeyGroupPartitionedPriorityQueue} powered by a {@link RocksDBCachingPriorityQueueSet}.
@@ -48,6 +55,77 @@ public class KeyGroupPartitionedPriorityQueueWithRocksDBStoreTest extends Intern
 		return true;
 	}
 
+	/**
+	 * Tests that polled elements are deleted from RocksDB as a range once the store is read again or before a
+	 * snapshot, and that elements which are added into a polled range survive the deletion.
+	 */
+	@Test
+	public void testPolledElementsAreDeletedAsRange() throws Exception {
+		Counter refillCounter = new SimpleCounter();
+		Counter refillElementsCounter = new SimpleCounter();
+
+		RocksDBCachingPriorityQueueSet<TestElement> queueSet = new RocksDBCachingPriorityQueueSet<>(
+			0,
+			RocksDBKeySerializationUtils.computeRequiredBytesInKeyGroupPrefix(KEY_GROUP_RANGE.getNumberOfKeyGroups()),
+			rocksDBResource.getRocksDB(),
+			rocksDBResource.getDefaultColumnFamily(),
+			TestElementSerializer.INSTANCE,
+			new DataOutputSerializer(128),
+			new DataInputDeserializer(),
+			rocksDBResource.getBatchWrapper(),
+			new TreeOrderedSetCache(4),
+			refillCounter,
+			refillElementsCounter);
+
+		for (int i = 0; i < 10; ++i) {
+			queueSet.add(new TestElement(0L, i));
+		}
+
+		for (int i = 0; i < 3; ++i) {
+			assertEquals(i, queueSet.poll().getPriority());
+		}
+
+		// the polled elements are still in RocksDB until the deletion is flushed
+		assertEquals(10, countElementsInRocksDB());
+
+		queueSet.flushPendingDeletes();
+		assertEquals(7, countElementsInRocksDB());
+
+		// an element in a polled range must not be removed by the range deletion
+		assertEquals(3, queueSet.poll().getPriority());
+		assertEquals(4, queueSet.poll().getPriority());
+		queueSet.add(new TestElement(0L, 3));
+		queueSet.flushPendingDeletes();
+		assertEquals(6, countElementsInRocksDB());
+
+		long expectedPriority = 3;
+		TestElement element;
+		while ((element = queueSet.poll()) != null) {
+			assertEquals(expectedPriority, element.getPriority());
+			expectedPriority = expectedPriority == 3 ? 5 : expectedPriority + 1;
+		}
+		assertEquals(10, expectedPriority);
+		assertNull(queueSet.peek());
+
+		// the initial empty load, then 4, 5, 6, 7 and finally 8, 9
+		assertEquals(3, refillCounter.getCount());
+		assertEquals(6, refillElementsCounter.getCount());
+
+		queueSet.flushPendingDeletes();
+		assertEquals(0, countElementsInRocksDB());
+	}
+
+	private int countElementsInRocksDB() throws Exception {
+		rocksDBResource.getBatchWrapper().flush();
+		int count = 0;
+		try (RocksIterator iterator = rocksDBResource.getRocksDB().newIterator(rocksDBResource.getDefaultColumnFamily())) {
+			for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+				++count;
+			}
+		}
+		return count;
+	}
+
 	private KeyGroupPartitionedPriorityQueue.PartitionQueueSetFactory<
 		TestElement, RocksDBCachingPriorityQueueSet<TestElement>> newFactory() {
 
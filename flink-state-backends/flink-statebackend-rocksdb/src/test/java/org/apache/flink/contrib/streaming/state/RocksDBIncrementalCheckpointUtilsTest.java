@@ -29,9 +29,11 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -99,6 +101,78 @@ public class RocksDBIncrementalCheckpointUtilsTest extends TestLogger {
 		Assert.assertEquals(keyedStateHandle3, RocksDBIncrementalCheckpointUtils.chooseTheBestStateHandleForInitial(keyedStateHandles, new KeyGroupRange(3, 12)));
 	}
 
+	@Test
+	public void testIngestRange() throws Exception {
+		final int keyGroupPrefixBytes = 1;
+		final DataOutputSerializer outputView = new DataOutputSerializer(32);
+
+		try (
+			Options options = new Options().setCreateIfMissing(true);
+			RocksDB sourceDB = RocksDB.open(options, tmp.newFolder().getAbsolutePath());
+			RocksDB targetDB = RocksDB.open(options, tmp.newFolder().getAbsolutePath());
+			ColumnFamilyHandle sourceColumnFamilyHandle = sourceDB.createColumnFamily(
+				new ColumnFamilyDescriptor("test".getBytes()));
+			ColumnFamilyHandle targetColumnFamilyHandle = targetDB.createColumnFamily(
+				new ColumnFamilyDescriptor("test".getBytes()))) {
+
+			for (int i = 0; i <= 4; ++i) {
+				for (int j = 0; j < 100; ++j) {
+					sourceDB.put(sourceColumnFamilyHandle, serializeKey(i, j, keyGroupPrefixBytes, outputView), String.valueOf(j).getBytes());
+				}
+			}
+
+			final byte[] beginKeyBytes = new byte[keyGroupPrefixBytes];
+			final byte[] endKeyBytes = new byte[keyGroupPrefixBytes];
+			RocksDBKeySerializationUtils.serializeKeyGroup(1, beginKeyBytes);
+			RocksDBKeySerializationUtils.serializeKeyGroup(3, endKeyBytes);
+
+			long numRecords = RocksDBIncrementalCheckpointUtils.ingestRange(
+				sourceDB,
+				sourceColumnFamilyHandle,
+				targetDB,
+				targetColumnFamilyHandle,
+				beginKeyBytes,
+				endKeyBytes,
+				new File(tmp.newFolder(), "test.sst"),
+				options);
+
+			Assert.assertEquals(200L, numRecords);
+
+			for (int i = 0; i <= 4; ++i) {
+				for (int j = 0; j < 100; ++j) {
+					byte[] value = targetDB.get(targetColumnFamilyHandle, serializeKey(i, j, keyGroupPrefixBytes, outputView));
+					if (i >= 1 && i < 3) {
+						Assert.assertEquals(String.valueOf(j), new String(value));
+					} else {
+						Assert.assertNull(value);
+					}
+				}
+			}
+
+			// an empty range does not create a file
+			RocksDBKeySerializationUtils.serializeKeyGroup(5, beginKeyBytes);
+			RocksDBKeySerializationUtils.serializeKeyGroup(6, endKeyBytes);
+			File emptySstFile = new File(tmp.newFolder(), "empty.sst");
+			Assert.assertEquals(0L, RocksDBIncrementalCheckpointUtils.ingestRange(
+				sourceDB,
+				sourceColumnFamilyHandle,
+				targetDB,
+				targetColumnFamilyHandle,
+				beginKeyBytes,
+				endKeyBytes,
+				emptySstFile,
+				options));
+			Assert.assertFalse(emptySstFile.exists());
+		}
+	}
+
+	private static byte[] serializeKey(int keyGroup, int key, int keyGroupPrefixBytes, DataOutputSerializer outputView) throws IOException {
+		outputView.clear();
+		RocksDBKeySerializationUtils.writeKeyGroup(keyGroup, keyGroupPrefixBytes, outputView);
+		RocksDBKeySerializationUtils.writeKey(key, IntSerializer.INSTANCE, outputView, false);
+		return outputView.getCopyOfBuffer();
+	}
+
 	private void testClipDBWithKeyGroupRangeHelper(
 		KeyGroupRange targetGroupRange,
 		KeyGroupRange currentGroupRange,
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsCheckpointStreamFactory;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link RocksDBStateUploader} and the {@link RocksDBStateDownloader}.
+ */
+public class RocksDBStateDataTransferTest {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testMultiThreadUpload() throws Exception {
+		final File checkpointDirectory = temporaryFolder.newFolder();
+		final FsCheckpointStreamFactory checkpointStreamFactory = new FsCheckpointStreamFactory(
+			FileSystem.getLocalFileSystem(),
+			Path.fromLocalFile(checkpointDirectory),
+			Path.fromLocalFile(checkpointDirectory),
+			0);
+
+		final File localDirectory = temporaryFolder.newFolder();
+		final Map<StateHandleID, Path> files = new HashMap<>();
+		final Map<StateHandleID, byte[]> contents = new HashMap<>();
+
+		for (int i = 0; i < 10; i++) {
+			final StateHandleID stateHandleID = new StateHandleID(i + ".sst");
+			final byte[] content = randomBytes(1000 + i);
+			final File file = new File(localDirectory, stateHandleID.getKeyString());
+			Files.write(file.toPath(), content);
+
+			files.put(stateHandleID, Path.fromLocalFile(file));
+			contents.put(stateHandleID, content);
+		}
+
+		try (RocksDBStateUploader uploader = new RocksDBStateUploader(4, "upload-test", new UnregisteredMetricsGroup())) {
+			final Map<StateHandleID, StreamStateHandle> handles =
+				uploader.uploadFilesToCheckpointFs(files, checkpointStreamFactory, new CloseableRegistry());
+
+			assertEquals(files.keySet(), handles.keySet());
+			for (Map.Entry<StateHandleID, StreamStateHandle> handle : handles.entrySet()) {
+				assertArrayEquals(contents.get(handle.getKey()), readFully(handle.getValue()));
+			}
+		}
+	}
+
+	@Test
+	public void testFailedUploadDiscardsUploadedFiles() throws Exception {
+		final File checkpointDirectory = temporaryFolder.newFolder();
+		final FsCheckpointStreamFactory checkpointStreamFactory = new FsCheckpointStreamFactory(
+			FileSystem.getLocalFileSystem(),
+			Path.fromLocalFile(checkpointDirectory),
+			Path.fromLocalFile(checkpointDirectory),
+			0);
+
+		final File localDirectory = temporaryFolder.newFolder();
+		final Map<StateHandleID, Path> files = new HashMap<>();
+
+		for (int i = 0; i < 10; i++) {
+			final File file = new File(localDirectory, i + ".sst");
+			Files.write(file.toPath(), randomBytes(1000));
+			files.put(new StateHandleID(file.getName()), Path.fromLocalFile(file));
+		}
+		files.put(new StateHandleID("missing.sst"), Path.fromLocalFile(new File(localDirectory, "missing.sst")));
+
+		try (RocksDBStateUploader uploader = new RocksDBStateUploader(4, "upload-test", new UnregisteredMetricsGroup())) {
+			uploader.uploadFilesToCheckpointFs(files, checkpointStreamFactory, new CloseableRegistry());
+			fail("The upload of a missing file should fail.");
+		} catch (IOException expected) {
+			// expected
+		}
+
+		final File[] remainingFiles = checkpointDirectory.listFiles();
+		assertTrue(remainingFiles == null || remainingFiles.length == 0);
+	}
+
+	@Test
+	public void testMultiThreadDownloadInRanges() throws Exception {
+		final Map<StateHandleID, StreamStateHandle> sharedState = new HashMap<>();
+		final Map<StateHandleID, StreamStateHandle> privateState = new HashMap<>();
+
+		for (int i = 0; i < 5; i++) {
+			final String name = i + ".sst";
+			sharedState.put(new StateHandleID(name), new ByteStreamStateHandle(name, randomBytes(100 * i + 7)));
+		}
+		privateState.put(new StateHandleID("MANIFEST"), new ByteStreamStateHandle("MANIFEST", randomBytes(50)));
+
+		final IncrementalKeyedStateHandle stateHandle = new IncrementalKeyedStateHandle(
+			UUID.randomUUID(),
+			KeyGroupRange.of(0, 1),
+			1L,
+			sharedState,
+			privateState,
+			new ByteStreamStateHandle("meta", new byte[0]));
+
+		final File restoreDirectory = temporaryFolder.newFolder();
+
+		// a small range size splits all but the smallest files into ranges
+		try (RocksDBStateDownloader downloader =
+				new RocksDBStateDownloader(4, "download-test", new UnregisteredMetricsGroup(), 64L)) {
+			downloader.transferAllStateDataToDirectory(
+				stateHandle, Path.fromLocalFile(restoreDirectory), new CloseableRegistry());
+		}
+
+		final Map<StateHandleID, StreamStateHandle> allState = new HashMap<>(sharedState);
+		allState.putAll(privateState);
+
+		for (Map.Entry<StateHandleID, StreamStateHandle> entry : allState.entrySet()) {
+			final File file = new File(restoreDirectory, entry.getKey().getKeyString());
+			assertArrayEquals(readFully(entry.getValue()), Files.readAllBytes(file.toPath()));
+		}
+	}
+
+	@Test
+	public void testFailedDownloadReportsFailure() throws Exception {
+		final IOException failure = new IOException("test failure");
+
+		final StreamStateHandle failingHandle = new ByteStreamStateHandle("failing", new byte[10]) {
+			@Override
+			public FSDataInputStream openInputStream() throws IOException {
+				throw failure;
+			}
+		};
+
+		final Map<StateHandleID, StreamStateHandle> sharedState = new HashMap<>();
+		for (int i = 0; i < 5; i++) {
+			final String name = i + ".sst";
+			sharedState.put(new StateHandleID(name), new ByteStreamStateHandle(name, randomBytes(100)));
+		}
+		sharedState.put(new StateHandleID("failing.sst"), failingHandle);
+
+		final IncrementalKeyedStateHandle stateHandle = new IncrementalKeyedStateHandle(
+			UUID.randomUUID(),
+			KeyGroupRange.of(0, 1),
+			1L,
+			sharedState,
+			Collections.emptyMap(),
+			new ByteStreamStateHandle("meta", new byte[0]));
+
+		try (RocksDBStateDownloader downloader =
+				new RocksDBStateDownloader(4, "download-test", new UnregisteredMetricsGroup())) {
+			downloader.transferAllStateDataToDirectory(
+				stateHandle, Path.fromLocalFile(temporaryFolder.newFolder()), new CloseableRegistry());
+			fail("The download should fail.");
+		} catch (IOException e) {
+			assertEquals(failure, e);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static byte[] readFully(StreamStateHandle handle) throws IOException {
+		final byte[] data = new byte[(int) handle.getStateSize()];
+
+		try (FSDataInputStream in = handle.openInputStream()) {
+			int pos = 0;
+			while (pos < data.length) {
+				int read = in.read(data, pos, data.length - pos);
+				assertTrue(read > 0);
+				pos += read;
+			}
+		}
+		return data;
+	}
+
+	private static byte[] randomBytes(int size) {
+		final byte[] bytes = new byte[size];
+		new Random().nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.array.IntPrimitiveArraySerializer;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.TestLocalRecoveryConfig;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link RocksDBValueStateCache} and its use in {@link RocksDBValueState}.
+ */
+public class RocksDBValueStateCacheTest extends TestLogger {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		RocksDBValueStateCache<Integer> cache = new RocksDBValueStateCache<>(2, new UnregisteredMetricsGroup());
+
+		cache.put(new byte[] {1}, 1);
+		cache.put(new byte[] {2}, null);
+		assertEquals(Integer.valueOf(1), cache.get(new byte[] {1}).getValue());
+
+		// key 2 is the least recently used one
+		cache.put(new byte[] {3}, 3);
+		assertEquals(2, cache.size());
+		assertNull(cache.get(new byte[] {2}));
+		assertNotNull(cache.get(new byte[] {1}));
+		assertNotNull(cache.get(new byte[] {3}));
+	}
+
+	@Test
+	public void testCachedAbsence() {
+		RocksDBValueStateCache<Integer> cache = new RocksDBValueStateCache<>(2, new UnregisteredMetricsGroup());
+
+		assertNull(cache.get(new byte[] {1}));
+		cache.put(new byte[] {1}, null);
+		RocksDBValueStateCache.Entry<Integer> entry = cache.get(new byte[] {1});
+		assertNotNull(entry);
+		assertNull(entry.getValue());
+	}
+
+	@Test
+	public void testValueStateReadsThroughCache() throws Exception {
+		DBOptions dbOptions = PredefinedOptions.DEFAULT.createDBOptions();
+		dbOptions.setCreateIfMissing(true);
+		ColumnFamilyOptions columnFamilyOptions = PredefinedOptions.DEFAULT.createColumnOptions();
+
+		RocksDBKeyedStateBackend<Integer> backend = new RocksDBKeyedStateBackend<>(
+			"test",
+			ClassLoader.getSystemClassLoader(),
+			temporaryFolder.newFolder(),
+			dbOptions,
+			columnFamilyOptions,
+			mock(TaskKvStateRegistry.class),
+			IntSerializer.INSTANCE,
+			1,
+			new KeyGroupRange(0, 0),
+			new ExecutionConfig(),
+			false,
+			TestLocalRecoveryConfig.disabled(),
+			RocksDBStateBackend.PriorityQueueStateType.HEAP,
+			TtlTimeProvider.DEFAULT,
+			new RocksDBNativeMetricOptions(),
+			new UnregisteredMetricsGroup(),
+			16,
+			false);
+
+		try {
+			backend.restore(null);
+
+			InternalValueState<Integer, VoidNamespace, int[]> state = backend.createInternalState(
+				VoidNamespaceSerializer.INSTANCE,
+				new ValueStateDescriptor<>("test", IntPrimitiveArraySerializer.INSTANCE));
+			state.setCurrentNamespace(VoidNamespace.INSTANCE);
+
+			RocksDBValueStateCache<int[]> cache = backend.getValueStateCache("test");
+			assertNotNull(cache);
+
+			backend.setCurrentKey(1);
+			assertNull(state.value());
+
+			int[] value = {1, 2, 3};
+			state.update(value);
+			// modifications after the update must not be visible
+			value[0] = 42;
+			assertArrayEquals(new int[] {1, 2, 3}, state.value());
+
+			// modifications of a read value without an update must not be visible
+			state.value()[0] = 42;
+			assertArrayEquals(new int[] {1, 2, 3}, state.value());
+
+			backend.setCurrentKey(2);
+			state.update(new int[] {4});
+			assertEquals(2, cache.size());
+
+			// the cache is write-through, so the values are in RocksDB even after the cache is dropped
+			cache.clear();
+			assertArrayEquals(new int[] {4}, state.value());
+			backend.setCurrentKey(1);
+			assertArrayEquals(new int[] {1, 2, 3}, state.value());
+
+			state.clear();
+			assertNull(state.value());
+			cache.clear();
+			assertNull(state.value());
+		} finally {
+			IOUtils.closeQuietly(backend);
+			backend.dispose();
+			IOUtils.closeQuietly(dbOptions);
+			IOUtils.closeQuietly(columnFamilyOptions);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.state.StateBackendTestBase;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.internal.InternalAsyncValueState;
+import org.apache.flink.runtime.state.internal.InternalListState;
+import org.apache.flink.runtime.state.internal.InternalMapState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the state backend tests for the {@link RocksDBStateBackend} with buffered state writes, see
+ * {@link RocksDBOptions#WRITE_BATCHING}.
+ */
+public class RocksDBWriteBatchingTest extends StateBackendTestBase<RocksDBStateBackend> {
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Override
+	protected RocksDBStateBackend getStateBackend() throws IOException {
+		String checkpointPath = tempFolder.newFolder().toURI().toString();
+		RocksDBStateBackend backend = new RocksDBStateBackend(new FsStateBackend(checkpointPath), true);
+		Configuration configuration = new Configuration();
+		configuration.setBoolean(RocksDBOptions.WRITE_BATCHING, true);
+		configuration.setString(
+			RocksDBOptions.TIMER_SERVICE_FACTORY,
+			RocksDBStateBackend.PriorityQueueStateType.ROCKSDB.toString());
+		backend = backend.configure(configuration);
+		backend.setDbStoragePath(tempFolder.newFolder().getAbsolutePath());
+		return backend;
+	}
+
+	@Override
+	protected boolean isSerializerPresenceRequiredOnRestore() {
+		return false;
+	}
+
+	@Test
+	public void testWritesAreBufferedUntilRead() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend =
+			(RocksDBKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			assertTrue(getStateBackend().isWriteBatchingEnabled());
+
+			InternalListState<Integer, VoidNamespace, String> state = backend.createInternalState(
+				VoidNamespaceSerializer.INSTANCE,
+				new ListStateDescriptor<>("list", StringSerializer.INSTANCE));
+			state.setCurrentNamespace(VoidNamespace.INSTANCE);
+
+			backend.setCurrentKey(1);
+			state.add("a");
+			state.add("b");
+
+			RocksDBWriteBatchWrapper writeBatch = backend.getStateWriteBatch();
+			assertNotNull(writeBatch);
+			assertFalse(writeBatch.isEmpty());
+
+			// the read flushes the buffered writes
+			assertEquals(Arrays.asList("a", "b"), state.getInternal());
+			assertTrue(writeBatch.isEmpty());
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testReadsOfOtherKeysDoNotFlush() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend =
+			(RocksDBKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			InternalValueState<Integer, VoidNamespace, String> state = backend.createInternalState(
+				VoidNamespaceSerializer.INSTANCE,
+				new ValueStateDescriptor<>("value", StringSerializer.INSTANCE));
+			state.setCurrentNamespace(VoidNamespace.INSTANCE);
+
+			backend.setCurrentKey(1);
+			state.update("a");
+
+			RocksDBWriteBatchWrapper writeBatch = backend.getStateWriteBatch();
+			assertNotNull(writeBatch);
+
+			// no buffered write affects the other key, so its read leaves the batch untouched
+			backend.setCurrentKey(2);
+			assertNull(state.value());
+			assertFalse(writeBatch.isEmpty());
+
+			backend.setCurrentKey(1);
+			assertEquals("a", state.value());
+			assertTrue(writeBatch.isEmpty());
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testAsyncReadsOfOtherKeysDoNotFlush() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend =
+			(RocksDBKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			InternalValueState<Integer, VoidNamespace, String> state = backend.createInternalState(
+				VoidNamespaceSerializer.INSTANCE,
+				new ValueStateDescriptor<>("value", StringSerializer.INSTANCE));
+			state.setCurrentNamespace(VoidNamespace.INSTANCE);
+
+			@SuppressWarnings("unchecked")
+			InternalAsyncValueState<Integer, VoidNamespace, String> asyncState =
+				(InternalAsyncValueState<Integer, VoidNamespace, String>) state;
+
+			backend.setCurrentKey(1);
+			state.update("a");
+
+			RocksDBWriteBatchWrapper writeBatch = backend.getStateWriteBatch();
+			assertNotNull(writeBatch);
+
+			// asynchronous reads only flush the batch for keys with buffered writes as well
+			backend.setCurrentKey(2);
+			assertNull(asyncState.asyncValue().get());
+			assertFalse(writeBatch.isEmpty());
+
+			backend.setCurrentKey(1);
+			assertEquals("a", asyncState.asyncValue().get());
+			assertTrue(writeBatch.isEmpty());
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testMapIteratorObservesBufferedWrites() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend =
+			(RocksDBKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			InternalMapState<Integer, VoidNamespace, Integer, String> state = backend.createInternalState(
+				VoidNamespaceSerializer.INSTANCE,
+				new MapStateDescriptor<>("map", IntSerializer.INSTANCE, StringSerializer.INSTANCE));
+			state.setCurrentNamespace(VoidNamespace.INSTANCE);
+
+			backend.setCurrentKey(1);
+			for (int i = 0; i < 300; ++i) {
+				state.put(i, String.valueOf(i));
+			}
+
+			// removals through the iterator are buffered as well and must not reappear when the iterator reloads
+			int count = 0;
+			Iterator<Map.Entry<Integer, String>> iterator = state.iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<Integer, String> entry = iterator.next();
+				if (entry.getKey() % 2 == 0) {
+					iterator.remove();
+				}
+				++count;
+			}
+			assertEquals(300, count);
+
+			for (int i = 0; i < 300; ++i) {
+				if (i % 2 == 0) {
+					assertNull(state.get(i));
+				} else {
+					assertEquals(String.valueOf(i), state.get(i));
+				}
+			}
+		} finally {
+			backend.dispose();
+		}
+	}
+}
@@ -20,7 +20,9 @@ package org.apache.flink.streaming.api.datastream;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.Utils;
+import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.streaming.api.functions.async.AsyncBatchFunction;
 import org.apache.flink.streaming.api.functions.async.AsyncFunction;
 import org.apache.flink.streaming.api.operators.async.AsyncWaitOperator;
 
@@ -42,9 +44,10 @@ import java.util.concurrent.TimeUnit;
 public class AsyncDataStream {
 
 	/**
-	 * Output mode for asynchronous operations.
+	 * Output mode for asynchronous operations. {@link #KEYED} keeps the order of the records per
+	 * key of a {@link KeyedStream}.
 	 */
-	public enum OutputMode { ORDERED, UNORDERED }
+	public enum OutputMode { ORDERED, UNORDERED, KEYED }
 
 	private static final int DEFAULT_QUEUE_CAPACITY = 100;
 
@@ -66,23 +69,62 @@ public class AsyncDataStream {
 			long timeout,
 			int bufSize,
 			OutputMode mode) {
+		return addOperator(in, func, timeout, bufSize, mode, 1, 0L);
+	}
+
+	/**
+	 * Add an AsyncWaitOperator which hands batches of inputs to an {@link AsyncBatchFunction}.
+	 *
+	 * @param in The {@link DataStream} where the {@link AsyncWaitOperator} will be added.
+	 * @param func {@link AsyncFunction} wrapped inside {@link AsyncWaitOperator}.
+	 * @param timeout for the asynchronous operation to complete
+	 * @param bufSize The max number of inputs the {@link AsyncWaitOperator} can hold inside.
+	 * @param mode Processing mode for {@link AsyncWaitOperator}.
+	 * @param maxBatchSize The max number of inputs per batch, 1 to disable batching.
+	 * @param maxBatchDelay The max time in milliseconds an input waits for its batch to fill up.
+	 * @param <IN> Input type.
+	 * @param <OUT> Output type.
+	 * @return A new {@link SingleOutputStreamOperator}
+	 */
+	private static <IN, OUT> SingleOutputStreamOperator<OUT> addOperator(
+			DataStream<IN> in,
+			AsyncFunction<IN, OUT> func,
+			long timeout,
+			int bufSize,
+			OutputMode mode,
+			int maxBatchSize,
+			long maxBatchDelay) {
 
+		final boolean batched = func instanceof AsyncBatchFunction;
+
+		// the result future of a batch function lambda is nested in the list of its second parameter
 		TypeInformation<OUT> outTypeInfo = TypeExtractor.getUnaryOperatorReturnType(
 			func,
-			AsyncFunction.class,
+			batched ? AsyncBatchFunction.class : AsyncFunction.class,
 			0,
 			1,
-			new int[]{1, 0},
+			batched ? new int[]{1, 0, 0} : new int[]{1, 0},
 			in.getType(),
 			Utils.getCallLocationName(),
 			true);
 
+		KeySelector<IN, ?> keySelector = null;
+		if (mode == OutputMode.KEYED) {
+			if (!(in instanceof KeyedStream)) {
+				throw new IllegalArgumentException("The keyed output mode requires a KeyedStream.");
+			}
+			keySelector = ((KeyedStream<IN, ?>) in).getKeySelector();
+		}
+
 		// create transform
 		AsyncWaitOperator<IN, OUT> operator = new AsyncWaitOperator<>(
 			in.getExecutionEnvironment().clean(func),
 			timeout,
 			bufSize,
-			mode);
+			mode,
+			keySelector,
+			maxBatchSize,
+			maxBatchDelay);
 
 		return in.transform("async wait operator", outTypeInfo, operator);
 	}
@@ -177,4 +219,89 @@ public class AsyncDataStream {
 			DEFAULT_QUEUE_CAPACITY,
 			OutputMode.ORDERED);
 	}
+
+	/**
+	 * Add an AsyncWaitOperator. The order of output stream records is guaranteed to be the same as
+	 * the input order per key, while records with different keys may be reordered. A slow async
+	 * operation therefore only delays the records of its own key.
+	 *
+	 * @param in Input {@link KeyedStream}
+	 * @param func {@link AsyncFunction}
+	 * @param timeout for the asynchronous operation to complete
+	 * @param timeUnit of the given timeout
+	 * @param capacity The max number of async i/o operation that can be triggered
+	 * @param <IN> Type of input record
+	 * @param <OUT> Type of output record
+	 * @return A new {@link SingleOutputStreamOperator}.
+	 */
+	public static <IN, OUT> SingleOutputStreamOperator<OUT> keyedWait(
+			KeyedStream<IN, ?> in,
+			AsyncFunction<IN, OUT> func,
+			long timeout,
+			TimeUnit timeUnit,
+			int capacity) {
+		return addOperator(in, func, timeUnit.toMillis(timeout), capacity, OutputMode.KEYED);
+	}
+
+	/**
+	 * Add an AsyncWaitOperator. The order of output stream records is guaranteed to be the same as
+	 * the input order per key, while records with different keys may be reordered.
+	 *
+	 * @param in Input {@link KeyedStream}
+	 * @param func {@link AsyncFunction}
+	 * @param timeout for the asynchronous operation to complete
+	 * @param timeUnit of the given timeout
+	 * @param <IN> Type of input record
+	 * @param <OUT> Type of output record
+	 * @return A new {@link SingleOutputStreamOperator}.
+	 */
+	public static <IN, OUT> SingleOutputStreamOperator<OUT> keyedWait(
+			KeyedStream<IN, ?> in,
+			AsyncFunction<IN, OUT> func,
+			long timeout,
+			TimeUnit timeUnit) {
+		return addOperator(
+			in,
+			func,
+			timeUnit.toMillis(timeout),
+			DEFAULT_QUEUE_CAPACITY,
+			OutputMode.KEYED);
+	}
+
+	/**
+	 * Add an AsyncWaitOperator which collects the inputs into batches and triggers one async i/o
+	 * operation per batch. A batch is handed to the {@link AsyncBatchFunction} once it holds
+	 * {@code maxBatchSize} inputs or its oldest input waited for {@code maxBatchDelay}. The timeout
+	 * of an input includes the time it waits for its batch.
+	 *
+	 * @param in Input {@link DataStream}, a {@link KeyedStream} for {@link OutputMode#KEYED}
+	 * @param func {@link AsyncBatchFunction}
+	 * @param timeout for the asynchronous operation to complete
+	 * @param maxBatchDelay The max time an input waits for its batch to fill up
+	 * @param timeUnit of the given timeout and batch delay
+	 * @param capacity The max number of inputs the operator can hold inside
+	 * @param maxBatchSize The max number of inputs per batch
+	 * @param mode The order in which the results are emitted
+	 * @param <IN> Type of input record
+	 * @param <OUT> Type of output record
+	 * @return A new {@link SingleOutputStreamOperator}.
+	 */
+	public static <IN, OUT> SingleOutputStreamOperator<OUT> batchedWait(
+			DataStream<IN> in,
+			AsyncBatchFunction<IN, OUT> func,
+			long timeout,
+			long maxBatchDelay,
+			TimeUnit timeUnit,
+			int capacity,
+			int maxBatchSize,
+			OutputMode mode) {
+		return addOperator(
+			in,
+			func,
+			timeUnit.toMillis(timeout),
+			capacity,
+			mode,
+			maxBatchSize,
+			timeUnit.toMillis(maxBatchDelay));
+	}
 }
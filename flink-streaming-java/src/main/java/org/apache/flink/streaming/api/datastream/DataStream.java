@@ -84,6 +84,7 @@ import org.apache.flink.streaming.api.windowing.windows.Window;
 import org.apache.flink.streaming.runtime.operators.ExtractTimestampsOperator;
 import org.apache.flink.streaming.runtime.operators.TimestampsAndPeriodicWatermarksOperator;
 import org.apache.flink.streaming.runtime.operators.TimestampsAndPunctuatedWatermarksOperator;
+import org.apache.flink.streaming.runtime.partitioner.AdaptiveRebalancePartitioner;
 import org.apache.flink.streaming.runtime.partitioner.BroadcastPartitioner;
 import org.apache.flink.streaming.runtime.partitioner.CustomPartitionerWrapper;
 import org.apache.flink.streaming.runtime.partitioner.ForwardPartitioner;
@@ -460,6 +461,20 @@ public class DataStream<T> {
 		return setConnectionType(new RebalancePartitioner<T>());
 	}
 
+	/**
+	 * Sets the partitioning of the {@link DataStream} so that the output elements
+	 * are distributed to instances of the next operation in a round-robin fashion,
+	 * skipping instances that fall behind. An instance is skipped while more
+	 * buffers wait for it than for the least loaded instance, so that a slow
+	 * instance receives less data instead of slowing down the whole exchange.
+	 *
+	 * @return The DataStream with adaptive rebalance partitioning set.
+	 */
+	@PublicEvolving
+	public DataStream<T> adaptiveRebalance() {
+		return setConnectionType(new AdaptiveRebalancePartitioner<T>());
+	}
+
 	/**
 	 * Sets the partitioning of the {@link DataStream} so that the output elements
 	 * are distributed evenly to a subset of instances of the next operation in a round-robin
@@ -21,8 +21,10 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.annotation.Public;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.api.common.InvalidProgramException;
+import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.functions.FlatMapFunction;
 import org.apache.flink.api.common.functions.FoldFunction;
+import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
@@ -32,8 +34,10 @@ import org.apache.flink.api.common.typeinfo.PrimitiveArrayTypeInfo;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.Utils;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.typeutils.ObjectArrayTypeInfo;
 import org.apache.flink.api.java.typeutils.PojoTypeInfo;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.api.java.typeutils.TupleTypeInfoBase;
 import org.apache.flink.api.java.typeutils.TypeExtractor;
 import org.apache.flink.streaming.api.TimeCharacteristic;
@@ -49,9 +53,12 @@ import org.apache.flink.streaming.api.functions.sink.SinkFunction;
 import org.apache.flink.streaming.api.graph.StreamGraphGenerator;
 import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
 import org.apache.flink.streaming.api.operators.LegacyKeyedProcessOperator;
+import org.apache.flink.streaming.api.operators.LocalAggregateOperator;
+import org.apache.flink.streaming.api.operators.LocalReduceOperator;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.StreamGroupedFold;
 import org.apache.flink.streaming.api.operators.StreamGroupedReduce;
+import org.apache.flink.streaming.api.operators.StreamMap;
 import org.apache.flink.streaming.api.operators.co.IntervalJoinOperator;
 import org.apache.flink.streaming.api.transformations.OneInputTransformation;
 import org.apache.flink.streaming.api.transformations.PartitionTransformation;
@@ -692,6 +699,162 @@ public class KeyedStream<T, KEY> extends DataStream<T> {
 				clean(reducer), getType().createSerializer(getExecutionConfig())));
 	}
 
+	/**
+	 * Applies a reduce transformation like {@link #reduce(ReduceFunction)}, but reduces the
+	 * elements of each key locally in every parallel instance of the input before they are
+	 * shuffled. A hot key therefore sends at most one element per mini-batch and input instance to
+	 * the reducer of the key, instead of all its elements.
+	 *
+	 * <p>A mini-batch ends once it holds {@code maxBufferedKeys} keys, once its oldest element
+	 * waited for {@code maxFlushDelay}, and before watermarks and checkpoint barriers. In contrast
+	 * to {@link #reduce(ReduceFunction)}, not every input element produces an output element, and
+	 * the output elements carry no timestamps.
+	 *
+	 * @param reducer
+	 *            The {@link ReduceFunction} that will be called for every
+	 *            element of the input values with the same key.
+	 * @param maxBufferedKeys
+	 *            The maximum number of keys of a mini-batch.
+	 * @param maxFlushDelay
+	 *            The maximum time an element waits in its mini-batch.
+	 * @return The transformed DataStream.
+	 */
+	@PublicEvolving
+	public SingleOutputStreamOperator<T> reduceWithLocalPreAggregation(
+			ReduceFunction<T> reducer,
+			int maxBufferedKeys,
+			Time maxFlushDelay) {
+
+		final ReduceFunction<T> cleanedReducer = clean(reducer);
+
+		final DataStream<T> input = getInputStream();
+		final SingleOutputStreamOperator<T> preAggregated = input.transform(
+			"Local Reduce",
+			getType(),
+			new LocalReduceOperator<>(
+				cleanedReducer,
+				keySelector,
+				getType().createSerializer(getExecutionConfig()),
+				maxBufferedKeys,
+				maxFlushDelay.toMilliseconds()))
+			.setParallelism(input.getParallelism());
+
+		return new KeyedStream<>(preAggregated, keySelector, keyType).reduce(cleanedReducer);
+	}
+
+	/**
+	 * Applies an aggregation on the grouped data stream, which emits the current result of the
+	 * key of every update. The elements of each key are added to accumulators locally in every
+	 * parallel instance of the input before they are shuffled, and the accumulators of a key
+	 * are merged after the shuffle. A hot key therefore sends at most one accumulator per
+	 * mini-batch and input instance to the aggregation of the key, instead of all its elements.
+	 *
+	 * <p>A mini-batch ends once it holds {@code maxBufferedKeys} keys, once its oldest element
+	 * waited for {@code maxFlushDelay}, and before watermarks and checkpoint barriers. The output
+	 * elements carry no timestamps.
+	 *
+	 * @param aggFunction
+	 *            The {@link AggregateFunction} that aggregates the elements of each key.
+	 * @param maxBufferedKeys
+	 *            The maximum number of keys of a mini-batch.
+	 * @param maxFlushDelay
+	 *            The maximum time an element waits in its mini-batch.
+	 * @param <ACC> The type of the accumulator of the aggregate function.
+	 * @param <R> The type of the aggregation result.
+	 * @return The transformed DataStream.
+	 */
+	@PublicEvolving
+	public <ACC, R> SingleOutputStreamOperator<R> aggregateWithLocalPreAggregation(
+			AggregateFunction<T, ACC, R> aggFunction,
+			int maxBufferedKeys,
+			Time maxFlushDelay) {
+
+		final AggregateFunction<T, ACC, R> cleanedFunction = clean(aggFunction);
+
+		final TypeInformation<ACC> accumulatorType = TypeExtractor.getAggregateFunctionAccumulatorType(
+				cleanedFunction, getType(), null, false);
+
+		final TypeInformation<R> resultType = TypeExtractor.getAggregateFunctionReturnType(
+				cleanedFunction, getType(), null, false);
+
+		final TupleTypeInfo<Tuple2<KEY, ACC>> preAggregatedType = new TupleTypeInfo<>(keyType, accumulatorType);
+
+		final DataStream<T> input = getInputStream();
+		final SingleOutputStreamOperator<Tuple2<KEY, ACC>> preAggregated = input.transform(
+			"Local Aggregate",
+			preAggregatedType,
+			new LocalAggregateOperator<>(
+				cleanedFunction,
+				keySelector,
+				maxBufferedKeys,
+				maxFlushDelay.toMilliseconds()))
+			.setParallelism(input.getParallelism());
+
+		return new KeyedStream<>(preAggregated, new AccumulatorKeySelector<KEY, ACC>(), keyType)
+			.reduce(new AccumulatorMerger<>(cleanedFunction))
+			.transform("Aggregate Result", resultType, new StreamMap<>(new AccumulatorResult<>(cleanedFunction)));
+	}
+
+	/**
+	 * Returns the stream that this stream partitions by key.
+	 */
+	private DataStream<T> getInputStream() {
+		return new DataStream<>(
+			getExecutionEnvironment(),
+			((PartitionTransformation<T>) getTransformation()).getInput());
+	}
+
+	/**
+	 * Selects the key of a pre-aggregated accumulator.
+	 */
+	private static final class AccumulatorKeySelector<KEY, ACC> implements KeySelector<Tuple2<KEY, ACC>, KEY> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public KEY getKey(Tuple2<KEY, ACC> value) {
+			return value.f0;
+		}
+	}
+
+	/**
+	 * Merges the pre-aggregated accumulators of a key.
+	 */
+	private static final class AccumulatorMerger<KEY, ACC> implements ReduceFunction<Tuple2<KEY, ACC>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AggregateFunction<?, ACC, ?> aggFunction;
+
+		AccumulatorMerger(AggregateFunction<?, ACC, ?> aggFunction) {
+			this.aggFunction = aggFunction;
+		}
+
+		@Override
+		public Tuple2<KEY, ACC> reduce(Tuple2<KEY, ACC> value1, Tuple2<KEY, ACC> value2) {
+			return Tuple2.of(value1.f0, aggFunction.merge(value1.f1, value2.f1));
+		}
+	}
+
+	/**
+	 * Extracts the result of a merged accumulator.
+	 */
+	private static final class AccumulatorResult<KEY, ACC, R> implements MapFunction<Tuple2<KEY, ACC>, R> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AggregateFunction<?, ACC, R> aggFunction;
+
+		AccumulatorResult(AggregateFunction<?, ACC, R> aggFunction) {
+			this.aggFunction = aggFunction;
+		}
+
+		@Override
+		public R map(Tuple2<KEY, ACC> value) {
+			return aggFunction.getResult(value.f1);
+		}
+	}
+
 	/**
 	 * Applies a fold transformation on the grouped data stream grouped on by
 	 * the given key position. The {@link FoldFunction} will receive input
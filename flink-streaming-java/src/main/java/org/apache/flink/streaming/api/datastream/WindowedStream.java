@@ -28,9 +28,11 @@ import org.apache.flink.api.common.functions.Function;
 import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.functions.RichFunction;
 import org.apache.flink.api.common.state.AggregatingStateDescriptor;
+import org.apache.flink.api.common.state.AppendingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.java.Utils;
@@ -51,12 +53,16 @@ import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.windowing.assigners.BaseAlignedWindowAssigner;
 import org.apache.flink.streaming.api.windowing.assigners.MergingWindowAssigner;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
 import org.apache.flink.streaming.api.windowing.evictors.Evictor;
 import org.apache.flink.streaming.api.windowing.time.Time;
 import org.apache.flink.streaming.api.windowing.triggers.Trigger;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
 import org.apache.flink.streaming.api.windowing.windows.Window;
 import org.apache.flink.streaming.runtime.operators.windowing.EvictingWindowOperator;
+import org.apache.flink.streaming.runtime.operators.windowing.SlidingPaneWindowOperator;
 import org.apache.flink.streaming.runtime.operators.windowing.WindowOperator;
 import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalAggregateProcessWindowFunction;
 import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalIterableProcessWindowFunction;
@@ -122,6 +128,9 @@ public class WindowedStream<T, K, W extends Window> {
  	 */
 	private OutputTag<T> lateDataOutputTag;
 
+	/** Whether sliding windows share the aggregates of their panes. */
+	private boolean sharePanes;
+
 	@PublicEvolving
 	public WindowedStream(KeyedStream<T, K> input,
 			WindowAssigner<? super T, W> windowAssigner) {
@@ -196,6 +205,50 @@ public class WindowedStream<T, K, W extends Window> {
 	}
 
 
+	/**
+	 * Lets overlapping sliding time windows share their pre-aggregated state. Each element is then
+	 * aggregated once into the pane of its timestamp, instead of once into every window that
+	 * contains it, and the panes of a window are merged when the window fires. A pane is as long as
+	 * the greatest common divisor of window size and slide, so a window of one hour that slides by
+	 * one minute keeps 60 panes per key instead of 60 window aggregates that are all updated with
+	 * every element.
+	 *
+	 * <p>Pane sharing applies to {@code reduce} and {@code aggregate} with the default trigger of
+	 * the window assigner, without an evictor and without allowed lateness, and to windows that
+	 * are at least as long as their slide. The reduce function or
+	 * the merge function of the aggregate function combines the panes in the order of time, not
+	 * in the order in which the elements arrived.
+	 *
+	 * <p>The state of windows with shared panes is not compatible with the state of regular
+	 * windows, so this cannot be switched on or off when restoring from a savepoint.
+	 */
+	@PublicEvolving
+	public WindowedStream<T, K, W> sharePanes() {
+		if (!(windowAssigner instanceof SlidingEventTimeWindows || windowAssigner instanceof SlidingProcessingTimeWindows)) {
+			throw new UnsupportedOperationException("Only sliding time windows can share panes, but the window assigner is a " +
+				windowAssigner.getClass().getSimpleName() + '.');
+		}
+
+		final long size;
+		final long slide;
+		if (windowAssigner instanceof SlidingEventTimeWindows) {
+			size = ((SlidingEventTimeWindows) windowAssigner).getSize();
+			slide = ((SlidingEventTimeWindows) windowAssigner).getSlide();
+		} else {
+			size = ((SlidingProcessingTimeWindows) windowAssigner).getSize();
+			slide = ((SlidingProcessingTimeWindows) windowAssigner).getSlide();
+		}
+
+		// with gaps between the windows, the panes in the gaps would belong to no window
+		if (size < slide) {
+			throw new UnsupportedOperationException("Only overlapping or adjacent sliding windows can share panes, " +
+				"but the window size " + size + " is smaller than the slide " + slide + '.');
+		}
+
+		this.sharePanes = true;
+		return this;
+	}
+
 	// ------------------------------------------------------------------------
 	//  Operations on the keyed windows
 	// ------------------------------------------------------------------------
@@ -277,7 +330,15 @@ public class WindowedStream<T, K, W extends Window> {
 
 		OneInputStreamOperator<T, R> operator;
 
-		if (evictor != null) {
+		if (sharePanes) {
+			TypeSerializer<T> serializer = input.getType().createSerializer(getExecutionEnvironment().getConfig());
+
+			operator = createSlidingPaneWindowOperator(
+				new ReducingStateDescriptor<>("window-panes", reduceFunction, serializer),
+				new SlidingPaneWindowOperator.ReducePaneCombiner<>(reduceFunction, serializer),
+				new InternalSingleValueWindowFunction<>(function));
+
+		} else if (evictor != null) {
 			@SuppressWarnings({"unchecked", "rawtypes"})
 			TypeSerializer<StreamRecord<T>> streamRecordSerializer =
 				(TypeSerializer<StreamRecord<T>>) new StreamElementSerializer(input.getType().createSerializer(getExecutionEnvironment().getConfig()));
@@ -363,7 +424,15 @@ public class WindowedStream<T, K, W extends Window> {
 
 		OneInputStreamOperator<T, R> operator;
 
-		if (evictor != null) {
+		if (sharePanes) {
+			TypeSerializer<T> serializer = input.getType().createSerializer(getExecutionEnvironment().getConfig());
+
+			operator = createSlidingPaneWindowOperator(
+				new ReducingStateDescriptor<>("window-panes", reduceFunction, serializer),
+				new SlidingPaneWindowOperator.ReducePaneCombiner<>(reduceFunction, serializer),
+				new InternalSingleValueProcessWindowFunction<>(function));
+
+		} else if (evictor != null) {
 			@SuppressWarnings({"unchecked", "rawtypes"})
 			TypeSerializer<StreamRecord<T>> streamRecordSerializer =
 					(TypeSerializer<StreamRecord<T>>) new StreamElementSerializer(input.getType().createSerializer(getExecutionEnvironment().getConfig()));
@@ -815,7 +884,15 @@ public class WindowedStream<T, K, W extends Window> {
 
 		OneInputStreamOperator<T, R> operator;
 
-		if (evictor != null) {
+		if (sharePanes) {
+			TypeSerializer<ACC> accumulatorSerializer = accumulatorType.createSerializer(getExecutionEnvironment().getConfig());
+
+			operator = createSlidingPaneWindowOperator(
+				new AggregatingStateDescriptor<>("window-panes", aggregateFunction, accumulatorSerializer),
+				new SlidingPaneWindowOperator.AggregatePaneCombiner<>(aggregateFunction, accumulatorSerializer),
+				new InternalSingleValueWindowFunction<>(windowFunction));
+
+		} else if (evictor != null) {
 			@SuppressWarnings({"unchecked", "rawtypes"})
 			TypeSerializer<StreamRecord<T>> streamRecordSerializer =
 					(TypeSerializer<StreamRecord<T>>) new StreamElementSerializer(input.getType().createSerializer(getExecutionEnvironment().getConfig()));
@@ -889,6 +966,55 @@ public class WindowedStream<T, K, W extends Window> {
 		return aggregate(aggFunction, windowFunction, accumulatorType, aggResultType, resultType);
 	}
 
+	/**
+	 * Creates the operator for sliding windows that share their panes, see {@link #sharePanes()}.
+	 */
+	@SuppressWarnings("unchecked")
+	private <ACC, V, R> OneInputStreamOperator<T, R> createSlidingPaneWindowOperator(
+			StateDescriptor<? extends AppendingState<T, V>, ?> paneStateDesc,
+			SlidingPaneWindowOperator.PaneCombiner<ACC, V> paneCombiner,
+			InternalWindowFunction<V, R, K, W> windowFunction) {
+
+		if (evictor != null) {
+			throw new UnsupportedOperationException("Windows that share panes cannot use an evictor.");
+		}
+		if (allowedLateness > 0) {
+			throw new UnsupportedOperationException("Windows that share panes cannot have an allowed lateness.");
+		}
+		if (trigger.getClass() != windowAssigner.getDefaultTrigger(getExecutionEnvironment()).getClass()) {
+			throw new UnsupportedOperationException("Windows that share panes cannot use a custom trigger.");
+		}
+
+		final long size;
+		final long slide;
+		final long offset;
+		if (windowAssigner instanceof SlidingEventTimeWindows) {
+			SlidingEventTimeWindows assigner = (SlidingEventTimeWindows) windowAssigner;
+			size = assigner.getSize();
+			slide = assigner.getSlide();
+			offset = assigner.getOffset();
+		} else {
+			SlidingProcessingTimeWindows assigner = (SlidingProcessingTimeWindows) windowAssigner;
+			size = assigner.getSize();
+			slide = assigner.getSlide();
+			offset = assigner.getOffset();
+		}
+
+		return new SlidingPaneWindowOperator<>(
+			(WindowAssigner<? super T, TimeWindow>) windowAssigner,
+			size,
+			slide,
+			offset,
+			new TimeWindow.Serializer(),
+			input.getKeySelector(),
+			input.getKeyType().createSerializer(getExecutionEnvironment().getConfig()),
+			paneStateDesc,
+			paneCombiner,
+			(InternalWindowFunction<V, R, K, TimeWindow>) windowFunction,
+			(Trigger<? super T, ? super TimeWindow>) trigger,
+			lateDataOutputTag);
+	}
+
 	private static <IN, OUT, KEY> TypeInformation<OUT> getWindowFunctionReturnType(
 		WindowFunction<IN, OUT, KEY, ?> function,
 		TypeInformation<IN> inType) {
@@ -965,7 +1091,15 @@ public class WindowedStream<T, K, W extends Window> {
 
 		OneInputStreamOperator<T, R> operator;
 
-		if (evictor != null) {
+		if (sharePanes) {
+			TypeSerializer<ACC> accumulatorSerializer = accumulatorType.createSerializer(getExecutionEnvironment().getConfig());
+
+			operator = createSlidingPaneWindowOperator(
+				new AggregatingStateDescriptor<>("window-panes", aggregateFunction, accumulatorSerializer),
+				new SlidingPaneWindowOperator.AggregatePaneCombiner<>(aggregateFunction, accumulatorSerializer),
+				new InternalSingleValueProcessWindowFunction<>(windowFunction));
+
+		} else if (evictor != null) {
 			@SuppressWarnings({"unchecked", "rawtypes"})
 			TypeSerializer<StreamRecord<T>> streamRecordSerializer =
 					(TypeSerializer<StreamRecord<T>>) new StreamElementSerializer(input.getType().createSerializer(getExecutionEnvironment().getConfig()));
@@ -1172,7 +1306,15 @@ public class WindowedStream<T, K, W extends Window> {
 
 		OneInputStreamOperator<T, R> operator;
 
-		if (evictor != null) {
+		if (sharePanes) {
+			TypeSerializer<T> serializer = input.getType().createSerializer(getExecutionEnvironment().getConfig());
+
+			operator = createSlidingPaneWindowOperator(
+				new ReducingStateDescriptor<>("window-panes", reduceFunction, serializer),
+				new SlidingPaneWindowOperator.ReducePaneCombiner<>(reduceFunction, serializer),
+				new InternalSingleValueWindowFunction<>(function));
+
+		} else if (evictor != null) {
 			@SuppressWarnings({"unchecked", "rawtypes"})
 			TypeSerializer<StreamRecord<T>> streamRecordSerializer =
 					(TypeSerializer<StreamRecord<T>>) new StreamElementSerializer(input.getType().createSerializer(getExecutionEnvironment().getConfig()));
@@ -72,6 +72,9 @@ public class CheckpointConfig implements java.io.Serializable {
 	/** Determines if a tasks are failed or not if there is an error in their checkpointing. Default: true */
 	private boolean failOnCheckpointingErrors = true;
 
+	/** Flag to let checkpoint barriers overtake the in-flight data instead of aligning the inputs. */
+	private boolean unalignedCheckpointsEnabled;
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -249,6 +252,33 @@ public class CheckpointConfig implements java.io.Serializable {
 		this.failOnCheckpointingErrors = failOnCheckpointingErrors;
 	}
 
+	/**
+	 * Enables unaligned checkpoints for the {@link CheckpointingMode#EXACTLY_ONCE exactly-once} mode.
+	 *
+	 * <p>With unaligned checkpoints, a checkpoint barrier overtakes the buffers that are queued in front of it in the
+	 * result partitions, and a task takes its snapshot as soon as it receives the first barrier instead of waiting for
+	 * the barriers of all its inputs. The data that the barriers overtook, and the data that arrives on the other
+	 * inputs before their barriers, are persisted as part of the checkpoint and replayed on recovery. This makes the
+	 * duration of checkpoints independent of backpressure, at the cost of a larger checkpoint.
+	 *
+	 * <p>Checkpoints and savepoints that contain in-flight data can only be restored with an unchanged parallelism.
+	 * Unaligned checkpoints have no effect in the {@link CheckpointingMode#AT_LEAST_ONCE at-least-once} mode.
+	 *
+	 * @param unalignedCheckpointsEnabled Flag to enable unaligned checkpoints.
+	 */
+	@PublicEvolving
+	public void enableUnalignedCheckpoints(boolean unalignedCheckpointsEnabled) {
+		this.unalignedCheckpointsEnabled = unalignedCheckpointsEnabled;
+	}
+
+	/**
+	 * Returns whether unaligned checkpoints are enabled, see {@link #enableUnalignedCheckpoints(boolean)}.
+	 */
+	@PublicEvolving
+	public boolean isUnalignedCheckpointsEnabled() {
+		return unalignedCheckpointsEnabled;
+	}
+
 	/**
 	 * Enables checkpoints to be persisted externally.
 	 *
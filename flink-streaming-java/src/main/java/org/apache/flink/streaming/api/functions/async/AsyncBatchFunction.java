@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.functions.async;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link AsyncFunction} that triggers one async I/O operation for a batch of stream inputs, for
+ * example a multi-get against a key-value store.
+ *
+ * <p>The operator collects inputs until the batch reaches its maximum size or the oldest input
+ * waited for the maximum batch delay, and then calls {@link #asyncInvokeBatch}. Batches are also
+ * handed over early if a watermark arrives, the queue of the operator is full, or the operator is
+ * closed. Each input has its own {@link ResultFuture}, which has to be completed individually.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * public class MultiGetAsyncFunc implements AsyncBatchFunction<String, String> {
+ *
+ *   public void asyncInvokeBatch(List<String> rows, List<ResultFuture<String>> results) throws Exception {
+ *     client.multiGet(rows).thenAccept(values -> {
+ *       for (int i = 0; i < rows.size(); i++) {
+ *         results.get(i).complete(Collections.singleton(values.get(i)));
+ *       }
+ *     });
+ *   }
+ * }
+ * }</pre>
+ *
+ * @param <IN> The type of the input elements.
+ * @param <OUT> The type of the returned elements.
+ */
+@PublicEvolving
+public interface AsyncBatchFunction<IN, OUT> extends AsyncFunction<IN, OUT> {
+
+	/**
+	 * Trigger async operation for a batch of stream inputs.
+	 *
+	 * @param inputs elements coming from an upstream task
+	 * @param resultFutures to be completed with the result data, one per input and in the same order
+	 * @exception Exception in case of a user code error. An exception will make the task fail and
+	 * trigger fail-over process.
+	 */
+	void asyncInvokeBatch(List<IN> inputs, List<ResultFuture<OUT>> resultFutures) throws Exception;
+
+	/**
+	 * Triggers the async operation for a batch of a single input.
+	 */
+	@Override
+	default void asyncInvoke(IN input, ResultFuture<OUT> resultFuture) throws Exception {
+		asyncInvokeBatch(Collections.singletonList(input), Collections.singletonList(resultFuture));
+	}
+}
@@ -82,6 +82,7 @@ public class StreamConfig implements Serializable {
 
 	private static final String CHECKPOINTING_ENABLED = "checkpointing";
 	private static final String CHECKPOINT_MODE = "checkpointMode";
+	private static final String UNALIGNED_CHECKPOINTS_ENABLED = "unalignedCheckpoints";
 
 	private static final String STATE_BACKEND = "statebackend";
 	private static final String STATE_PARTITIONER = "statePartitioner";
@@ -382,6 +383,17 @@ public class StreamConfig implements Serializable {
 		}
 	}
 
+	public void setUnalignedCheckpointsEnabled(boolean enabled) {
+		config.setBoolean(UNALIGNED_CHECKPOINTS_ENABLED, enabled);
+	}
+
+	/**
+	 * Returns whether the task takes unaligned checkpoints. This is only the case in the exactly-once mode.
+	 */
+	public boolean isUnalignedCheckpointsEnabled() {
+		return config.getBoolean(UNALIGNED_CHECKPOINTS_ENABLED, false);
+	}
+
 	public void setOutEdgesInOrder(List<StreamEdge> outEdgeList) {
 		try {
 			InstantiationUtil.writeObjectToConfig(outEdgeList, this.config, EDGES_IN_ORDER);
@@ -457,6 +457,8 @@ public class StreamingJobGraphGenerator {
 		config.setCheckpointingEnabled(checkpointCfg.isCheckpointingEnabled());
 		if (checkpointCfg.isCheckpointingEnabled()) {
 			config.setCheckpointMode(checkpointCfg.getCheckpointingMode());
+			config.setUnalignedCheckpointsEnabled(checkpointCfg.isUnalignedCheckpointsEnabled() &&
+				checkpointCfg.getCheckpointingMode() == CheckpointingMode.EXACTLY_ONCE);
 		}
 		else {
 			// the "at-least-once" input handler is slightly cheaper (in the absence of checkpoints),
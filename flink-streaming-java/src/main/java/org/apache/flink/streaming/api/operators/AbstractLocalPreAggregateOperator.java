@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.Function;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Base class for operators that pre-aggregate the records of each key locally, before the records
+ * are shuffled by key. Each parallel instance combines the records of a key that it sees within a
+ * mini-batch into one record, so that a hot key sends one record per mini-batch and upstream
+ * instance to the keyed operator instead of all its records.
+ *
+ * <p>The memory of the operator is bounded by the maximum number of buffered keys. The buffered
+ * aggregates are emitted once this number is reached, once the oldest aggregate waited for the
+ * maximum flush delay, and before watermarks, checkpoint barriers, and the end of the input are
+ * forwarded. Since nothing is buffered when the barrier is forwarded, the operator has no state.
+ *
+ * <p>The emitted records carry no timestamp, as each of them combines records with different
+ * timestamps.
+ *
+ * @param <K> The type of the key.
+ * @param <IN> The type of the input records.
+ * @param <ACC> The type of the buffered aggregates.
+ * @param <OUT> The type of the emitted records.
+ * @param <F> The type of the user function.
+ */
+@Internal
+public abstract class AbstractLocalPreAggregateOperator<K, IN, ACC, OUT, F extends Function>
+		extends AbstractUdfStreamOperator<OUT, F>
+		implements OneInputStreamOperator<IN, OUT>, ProcessingTimeCallback {
+
+	private static final long serialVersionUID = 1L;
+
+	private final KeySelector<IN, K> keySelector;
+
+	/** The number of keys at which the buffered aggregates are emitted. */
+	private final int maxBufferedKeys;
+
+	/** The maximum time in milliseconds an aggregate is buffered, 0 for no limit. */
+	private final long maxFlushDelay;
+
+	private transient Map<K, ACC> buffer;
+
+	private transient StreamRecord<OUT> reuse;
+
+	/** The timer that emits the buffered aggregates after the maximum flush delay. */
+	@Nullable
+	private transient ScheduledFuture<?> flushTimer;
+
+	protected AbstractLocalPreAggregateOperator(
+			F function,
+			KeySelector<IN, K> keySelector,
+			int maxBufferedKeys,
+			long maxFlushDelay) {
+		super(function);
+
+		Preconditions.checkArgument(maxBufferedKeys > 0, "The maximum number of buffered keys must be larger than 0.");
+		Preconditions.checkArgument(maxFlushDelay >= 0L, "The maximum flush delay must not be negative.");
+
+		this.keySelector = Preconditions.checkNotNull(keySelector);
+		this.maxBufferedKeys = maxBufferedKeys;
+		this.maxFlushDelay = maxFlushDelay;
+
+		chainingStrategy = ChainingStrategy.ALWAYS;
+	}
+
+	/**
+	 * Adds the given input to the aggregate of its key.
+	 *
+	 * @param aggregate The aggregate of the key, or null if the input is the first of the key.
+	 * @param input The input record.
+	 * @return The new aggregate of the key.
+	 */
+	protected abstract ACC addInput(@Nullable ACC aggregate, IN input) throws Exception;
+
+	/**
+	 * Converts the aggregate of the given key to the record that is emitted.
+	 */
+	protected abstract OUT getOutput(K key, ACC aggregate) throws Exception;
+
+	@Override
+	public void open() throws Exception {
+		super.open();
+
+		buffer = new HashMap<>();
+		reuse = new StreamRecord<>(null);
+	}
+
+	@Override
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		final IN input = element.getValue();
+		final K key = keySelector.getKey(input);
+
+		buffer.put(key, addInput(buffer.get(key), input));
+
+		if (buffer.size() >= maxBufferedKeys) {
+			flush();
+		} else if (flushTimer == null && maxFlushDelay > 0L) {
+			flushTimer = getProcessingTimeService().registerTimer(
+				getProcessingTimeService().getCurrentProcessingTime() + maxFlushDelay, this);
+		}
+	}
+
+	@Override
+	public void processWatermark(Watermark mark) throws Exception {
+		flush();
+		super.processWatermark(mark);
+	}
+
+	@Override
+	public void onProcessingTime(long timestamp) throws Exception {
+		flushTimer = null;
+		flush();
+	}
+
+	@Override
+	public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+		super.prepareSnapshotPreBarrier(checkpointId);
+		flush();
+	}
+
+	@Override
+	public void close() throws Exception {
+		flush();
+		super.close();
+	}
+
+	/**
+	 * Emits and clears the buffered aggregates.
+	 */
+	private void flush() throws Exception {
+		if (flushTimer != null) {
+			flushTimer.cancel(false);
+			flushTimer = null;
+		}
+
+		if (buffer.isEmpty()) {
+			return;
+		}
+
+		for (Map.Entry<K, ACC> entry : buffer.entrySet()) {
+			output.collect(reuse.replace(getOutput(entry.getKey(), entry.getValue())));
+		}
+		buffer.clear();
+	}
+
+	public int getNumberOfBufferedKeys() {
+		return buffer.size();
+	}
+}
@@ -58,6 +58,7 @@ import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.LatencyMarker;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
 import org.apache.flink.streaming.runtime.tasks.StreamTask;
 import org.apache.flink.streaming.util.LatencyStats;
@@ -138,6 +139,9 @@ public abstract class AbstractStreamOperator<OUT>
 	/** Keyed state store view on the keyed backend. */
 	private transient DefaultKeyedStateStore keyedStateStore;
 
+	/** Asynchronous reads of keyed state, created on first use. */
+	private transient AsyncKeyedStateAccess asyncKeyedStateAccess;
+
 	// ---------------- operator state ------------------
 
 	/** Operator state backend / store. */
@@ -359,7 +363,13 @@ public abstract class AbstractStreamOperator<OUT>
 
 		try {
 			if (keyedStateBackend != null) {
-				keyedStateBackend.dispose();
+				if (containingTask != null && containingTask.isFailing() && keyedStateBackend.supportsRollback()) {
+					// the next attempt of the task in this slot can roll the backend back instead of restoring it
+					containingTask.getEnvironment().getTaskStateManager()
+						.retainKeyedStateBackend(getOperatorID(), keyedStateBackend);
+				} else {
+					keyedStateBackend.dispose();
+				}
 			}
 		} catch (Exception e) {
 			exception = ExceptionUtils.firstOrSuppressed(e, exception);
@@ -645,6 +655,28 @@ public abstract class AbstractStreamOperator<OUT>
 		return keyedStateStore;
 	}
 
+	/**
+	 * Returns the access for asynchronous reads of keyed state. The continuations of the reads run
+	 * in the task thread with the key of the read set as current key.
+	 */
+	protected AsyncKeyedStateAccess getAsyncKeyedStateAccess() {
+		if (asyncKeyedStateAccess == null) {
+			Preconditions.checkState(keyedStateBackend != null, "Keyed state can only be read on a KeyedStream.");
+			asyncKeyedStateAccess = new AsyncKeyedStateAccess(this, getContainingTask().getMailbox());
+		}
+		return asyncKeyedStateAccess;
+	}
+
+	/**
+	 * Waits until the continuations of all pending asynchronous state reads ran. The task calls this
+	 * before it forwards a checkpoint barrier and before it closes the operator.
+	 */
+	public void drainAsyncKeyedStateAccess() throws Exception {
+		if (asyncKeyedStateAccess != null) {
+			asyncKeyedStateAccess.drain();
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	//  Context and chaining properties
 	// ------------------------------------------------------------------------
@@ -691,7 +723,7 @@ public abstract class AbstractStreamOperator<OUT>
 	/**
 	 * Wrapping {@link Output} that updates metrics on the number of emitted elements.
 	 */
-	public static class CountingOutput<OUT> implements Output<StreamRecord<OUT>> {
+	public static class CountingOutput<OUT> implements BatchingOutput<OUT> {
 		private final Output<StreamRecord<OUT>> output;
 		private final Counter numRecordsOut;
 
@@ -722,6 +754,12 @@ public abstract class AbstractStreamOperator<OUT>
 			output.collect(outputTag, record);
 		}
 
+		@Override
+		public void collectBatch(StreamRecordBatch<OUT> batch) {
+			numRecordsOut.inc(batch.size());
+			StreamRecordBatch.emit(batch, output);
+		}
+
 		@Override
 		public void close() {
 			output.close();
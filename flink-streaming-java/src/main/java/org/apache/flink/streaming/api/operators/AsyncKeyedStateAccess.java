@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.runtime.state.internal.InternalAsyncValueState;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.streaming.runtime.tasks.mailbox.Mailbox;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.function.ThrowingConsumer;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Reads keyed state of an operator asynchronously, so that the task thread continues with the next
+ * records while a state backend reads from disk.
+ *
+ * <p>A read is issued for the current key and namespace of the state and hands the value to a
+ * continuation. The continuation runs in the task thread through the {@link Mailbox}, with the key
+ * and namespace of the read set as current key and namespace.
+ * The reads and continuations of one key are strictly ordered: a read is only issued after the
+ * continuation of the previous read of the same key ran, so a continuation observes the updates of
+ * all previous continuations of its key. Reads of different keys overlap.
+ *
+ * <p>Before a checkpoint barrier is forwarded and before the operator is closed, the task drains
+ * the pending reads with {@link #drain()}, so that their outputs and state updates belong to the
+ * checkpoint. The completed reads are queued separately from the other mails of the task, so that
+ * draining runs only the continuations of this access and no timers or mails of other operators.
+ *
+ * <p>States that do not support asynchronous reads (see {@link InternalAsyncValueState}) and tasks
+ * without mailbox are read synchronously, in the same order.
+ */
+@Internal
+public class AsyncKeyedStateAccess {
+
+	private final KeyContext keyContext;
+
+	@Nullable
+	private final Mailbox mailbox;
+
+	/** The pending requests per key. The first request of each key is in flight, the others wait for it. */
+	private final Map<Object, ArrayDeque<Request<?>>> pendingRequests = new HashMap<>();
+
+	/** The completions of asynchronous reads, which the mails of this access or {@link #drain()} run. */
+	private final BlockingQueue<Runnable> completedRequests = new LinkedBlockingQueue<>();
+
+	private int numPendingRequests;
+
+	AsyncKeyedStateAccess(KeyContext keyContext, @Nullable Mailbox mailbox) {
+		this.keyContext = checkNotNull(keyContext);
+		this.mailbox = mailbox;
+	}
+
+	/**
+	 * Reads the value of the given state for the current key and namespace and passes it to the
+	 * continuation. The continuation runs once all previous continuations of the key ran, possibly
+	 * during this call.
+	 */
+	public <T> void readValue(ValueState<T> state, ThrowingConsumer<T, Exception> continuation) throws Exception {
+		final Object key = keyContext.getCurrentKey();
+		final Object namespace = state instanceof InternalKvState
+			? ((InternalKvState<?, ?, ?>) state).getCurrentNamespace()
+			: null;
+		final Request<T> request = new Request<>(checkNotNull(state), namespace, checkNotNull(continuation));
+
+		ArrayDeque<Request<?>> requestsOfKey = pendingRequests.get(key);
+		if (requestsOfKey != null) {
+			requestsOfKey.add(request);
+			numPendingRequests++;
+		} else if (!isAsync(state)) {
+			continuation.accept(state.value());
+		} else {
+			requestsOfKey = new ArrayDeque<>();
+			requestsOfKey.add(request);
+			pendingRequests.put(key, requestsOfKey);
+			numPendingRequests++;
+			issue(key, request);
+		}
+	}
+
+	/**
+	 * Waits for the pending reads and runs their continuations, until no read is pending. Other mails
+	 * of the task are not run.
+	 */
+	public void drain() throws Exception {
+		while (numPendingRequests > 0) {
+			completedRequests.take().run();
+		}
+	}
+
+	public int numPendingRequests() {
+		return numPendingRequests;
+	}
+
+	private boolean isAsync(ValueState<?> state) {
+		return mailbox != null && state instanceof InternalAsyncValueState;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> void issue(Object key, Request<T> request) throws Exception {
+		if (isAsync(request.state)) {
+			// the state may have moved on to another namespace while the request was queued, the
+			// asynchronous read captures the namespace right away
+			final Object previousNamespace = request.getNamespaceOfState();
+			request.setNamespaceOfState(request.namespace);
+			final CompletableFuture<T> future;
+			try {
+				future = ((InternalAsyncValueState<?, ?, T>) request.state).asyncValue();
+			} finally {
+				request.setNamespaceOfState(previousNamespace);
+			}
+
+			final Mailbox mailbox = this.mailbox;
+			future.whenComplete((value, failure) -> {
+				completedRequests.add(() -> complete(key, request, value, failure));
+				mailbox.offer(this::runCompletedRequests);
+			});
+		} else {
+			complete(key, request, null, null);
+		}
+	}
+
+	/**
+	 * Runs the continuations of the completed reads. A mail finds no completion if {@link #drain()}
+	 * ran it already.
+	 */
+	private void runCompletedRequests() {
+		Runnable completion;
+		while ((completion = completedRequests.poll()) != null) {
+			completion.run();
+		}
+	}
+
+	/**
+	 * Runs the continuation of the request with the given value, or with the value read right now
+	 * if the state does not support asynchronous reads.
+	 */
+	private <T> void complete(Object key, Request<T> request, @Nullable T value, @Nullable Throwable failure) {
+		if (failure != null) {
+			throw new FlinkRuntimeException("Could not read the state asynchronously.", failure);
+		}
+
+		final Object previousKey = keyContext.getCurrentKey();
+		final Object previousNamespace = request.getNamespaceOfState();
+		keyContext.setCurrentKey(key);
+		request.setNamespaceOfState(request.namespace);
+		try {
+			final ArrayDeque<Request<?>> requestsOfKey = pendingRequests.get(key);
+			requestsOfKey.poll();
+			numPendingRequests--;
+
+			// reads that the continuation issues for this key queue up behind the remaining ones
+			request.continuation.accept(isAsync(request.state) ? value : request.state.value());
+
+			final Request<?> next = requestsOfKey.peek();
+			if (next == null) {
+				pendingRequests.remove(key);
+			} else {
+				issue(key, next);
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new FlinkRuntimeException("Could not process the result of an asynchronous state read.", e);
+		} finally {
+			if (previousKey != null) {
+				keyContext.setCurrentKey(previousKey);
+			}
+			request.setNamespaceOfState(previousNamespace);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static final class Request<T> {
+
+		final ValueState<T> state;
+
+		/** The namespace of the state when the read was requested, null if the state has none. */
+		@Nullable
+		final Object namespace;
+
+		final ThrowingConsumer<T, Exception> continuation;
+
+		Request(ValueState<T> state, @Nullable Object namespace, ThrowingConsumer<T, Exception> continuation) {
+			this.state = state;
+			this.namespace = namespace;
+			this.continuation = continuation;
+		}
+
+		@Nullable
+		Object getNamespaceOfState() {
+			return state instanceof InternalKvState ? ((InternalKvState<?, ?, ?>) state).getCurrentNamespace() : null;
+		}
+
+		@SuppressWarnings("unchecked")
+		void setNamespaceOfState(@Nullable Object namespace) {
+			if (namespace != null) {
+				((InternalKvState<?, Object, ?>) state).setCurrentNamespace(namespace);
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
+
+/**
+ * A {@link OneInputStreamOperator} that can process a whole batch of records in one call. The input
+ * processor and chained outputs hand batches to such operators if batch processing is enabled
+ * (see {@link org.apache.flink.configuration.TaskManagerOptions#TASK_RECORD_BATCH_SIZE}), which
+ * saves the virtual calls per record and operator and lets the JIT compile a tight loop per
+ * operator. All other operators keep receiving single records.
+ *
+ * <p>Processing a batch must have the same effect as calling
+ * {@link #processElement(org.apache.flink.streaming.runtime.streamrecord.StreamRecord)} for each
+ * of its records in order, including setting the key context of keyed operators.
+ *
+ * @param <IN> The input type of the operator
+ * @param <OUT> The output type of the operator
+ */
+@Internal
+public interface BatchingOneInputStreamOperator<IN, OUT> extends OneInputStreamOperator<IN, OUT> {
+
+	/**
+	 * Processes a batch of records that arrived at this operator. The operator owns the batch for
+	 * the duration of the call and may reuse it for its output, see {@link StreamRecordBatch}.
+	 */
+	void processBatch(StreamRecordBatch<IN> batch) throws Exception;
+}
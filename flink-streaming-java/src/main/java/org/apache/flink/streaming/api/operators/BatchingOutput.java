@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
+
+/**
+ * An {@link Output} that also accepts whole batches of records. Operators that process batches use
+ * {@link StreamRecordBatch#emit(StreamRecordBatch, Output)} to hand their results on, which falls
+ * back to single records for outputs that do not implement this interface.
+ *
+ * @param <T> The type of the values of the emitted records.
+ */
+@Internal
+public interface BatchingOutput<T> extends Output<StreamRecord<T>> {
+
+	/**
+	 * Emits all records of the given batch to the main output. The batch is owned by the output
+	 * for the duration of the call, see {@link StreamRecordBatch}.
+	 */
+	void collectBatch(StreamRecordBatch<T> batch);
+}
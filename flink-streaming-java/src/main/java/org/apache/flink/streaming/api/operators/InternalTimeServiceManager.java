@@ -63,17 +63,32 @@ public class InternalTimeServiceManager<K> {
 
 	private final boolean useLegacySynchronousSnapshots;
 
+	/** The interval to which the processing time timers are rounded up, or 0 if they are not rounded. */
+	private final long processingTimeTimerResolution;
+
 	InternalTimeServiceManager(
 		KeyGroupRange localKeyGroupRange,
 		KeyContext keyContext,
 		PriorityQueueSetFactory priorityQueueSetFactory,
 		ProcessingTimeService processingTimeService, boolean useLegacySynchronousSnapshots) {
 
+		this(localKeyGroupRange, keyContext, priorityQueueSetFactory, processingTimeService, useLegacySynchronousSnapshots, 0L);
+	}
+
+	InternalTimeServiceManager(
+		KeyGroupRange localKeyGroupRange,
+		KeyContext keyContext,
+		PriorityQueueSetFactory priorityQueueSetFactory,
+		ProcessingTimeService processingTimeService,
+		boolean useLegacySynchronousSnapshots,
+		long processingTimeTimerResolution) {
+
 		this.localKeyGroupRange = Preconditions.checkNotNull(localKeyGroupRange);
 		this.priorityQueueSetFactory = Preconditions.checkNotNull(priorityQueueSetFactory);
 		this.keyContext = Preconditions.checkNotNull(keyContext);
 		this.processingTimeService = Preconditions.checkNotNull(processingTimeService);
 		this.useLegacySynchronousSnapshots = useLegacySynchronousSnapshots;
+		this.processingTimeTimerResolution = processingTimeTimerResolution;
 
 		this.timerServices = new HashMap<>();
 	}
@@ -104,7 +119,8 @@ public class InternalTimeServiceManager<K> {
 				keyContext,
 				processingTimeService,
 				createTimerPriorityQueue(PROCESSING_TIMER_PREFIX + name, timerSerializer),
-				createTimerPriorityQueue(EVENT_TIMER_PREFIX + name, timerSerializer));
+				createTimerPriorityQueue(EVENT_TIMER_PREFIX + name, timerSerializer),
+				processingTimeTimerResolution);
 
 			timerServices.put(name, timerService);
 		}
@@ -66,6 +66,11 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N>,
 
 	private final int localKeyGroupRangeStartIdx;
 
+	/**
+	 * The interval to which the wake-ups for processing time timers are rounded up, or 0 if they are not rounded.
+	 */
+	private final long processingTimeTimerResolution;
+
 	/**
 	 * The local event time, as denoted by the last received
 	 * {@link org.apache.flink.streaming.api.watermark.Watermark Watermark}.
@@ -102,6 +107,28 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N>,
 		KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> processingTimeTimersQueue,
 		KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> eventTimeTimersQueue) {
 
+		this(localKeyGroupRange, keyContext, processingTimeService, processingTimeTimersQueue, eventTimeTimersQueue, 0L);
+	}
+
+	/**
+	 * Creates a timer service that schedules the physical timer of the {@link ProcessingTimeService} only at
+	 * multiples of the given resolution, so that it is moved at most once per interval. All processing time timers
+	 * that are due at a wake-up fire together.
+	 *
+	 * <p>The timers keep their exact timestamps: they are stored, deleted, and reported to the
+	 * {@link Triggerable} with the timestamp they were registered for, but fire up to one interval later.
+	 */
+	InternalTimerServiceImpl(
+		KeyGroupRange localKeyGroupRange,
+		KeyContext keyContext,
+		ProcessingTimeService processingTimeService,
+		KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> processingTimeTimersQueue,
+		KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> eventTimeTimersQueue,
+		long processingTimeTimerResolution) {
+
+		checkArgument(processingTimeTimerResolution >= 0, "The processing time timer resolution must not be negative.");
+
+		this.processingTimeTimerResolution = processingTimeTimerResolution;
 		this.keyContext = checkNotNull(keyContext);
 		this.processingTimeService = checkNotNull(processingTimeService);
 		this.localKeyGroupRange = checkNotNull(localKeyGroupRange);
@@ -170,7 +197,7 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N>,
 			// re-register the restored timers (if any)
 			final InternalTimer<K, N> headTimer = processingTimeTimersQueue.peek();
 			if (headTimer != null) {
-				nextTimer = processingTimeService.registerTimer(headTimer.getTimestamp(), this);
+				nextTimer = processingTimeService.registerTimer(getWakeUpTime(headTimer.getTimestamp()), this);
 			}
 			this.isInitialized = true;
 		} else {
@@ -195,13 +222,14 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N>,
 	public void registerProcessingTimeTimer(N namespace, long time) {
 		InternalTimer<K, N> oldHead = processingTimeTimersQueue.peek();
 		if (processingTimeTimersQueue.add(new TimerHeapInternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace))) {
-			long nextTriggerTime = oldHead != null ? oldHead.getTimestamp() : Long.MAX_VALUE;
+			long nextTriggerTime = oldHead != null ? getWakeUpTime(oldHead.getTimestamp()) : Long.MAX_VALUE;
+			long wakeUpTime = getWakeUpTime(time);
 			// check if we need to re-schedule our timer to earlier
-			if (time < nextTriggerTime) {
+			if (wakeUpTime < nextTriggerTime) {
 				if (nextTimer != null) {
 					nextTimer.cancel(false);
 				}
-				nextTimer = processingTimeService.registerTimer(time, this);
+				nextTimer = processingTimeService.registerTimer(wakeUpTime, this);
 			}
 		}
 	}
@@ -236,7 +264,7 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N>,
 		}
 
 		if (timer != null && nextTimer == null) {
-			nextTimer = processingTimeService.registerTimer(timer.getTimestamp(), this);
+			nextTimer = processingTimeService.registerTimer(getWakeUpTime(timer.getTimestamp()), this);
 		}
 	}
 
@@ -252,6 +280,22 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N>,
 		}
 	}
 
+	/**
+	 * Rounds the timestamp of a processing time timer up to the next multiple of the timer resolution, which is
+	 * the time at which the physical timer wakes up for it. A timer never fires earlier than it was registered for.
+	 */
+	private long getWakeUpTime(long time) {
+		if (processingTimeTimerResolution <= 1) {
+			return time;
+		}
+
+		final long remainder = Math.floorMod(time, processingTimeTimerResolution);
+		if (remainder == 0 || time > Long.MAX_VALUE - processingTimeTimerResolution) {
+			return time;
+		}
+		return time - remainder + processingTimeTimerResolution;
+	}
+
 	/**
 	 * Snapshots the timers (both processing and event time ones) for a given {@code keyGroupIdx}.
 	 *
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+
+import javax.annotation.Nullable;
+
+/**
+ * An operator that adds the records of each key locally to an accumulator of an
+ * {@link AggregateFunction}. It emits the accumulators together with their keys, so that the
+ * accumulators of a key can be merged after the shuffle.
+ *
+ * @param <K> The type of the key.
+ * @param <IN> The type of the input records.
+ * @param <ACC> The type of the accumulators.
+ */
+@Internal
+public class LocalAggregateOperator<K, IN, ACC>
+		extends AbstractLocalPreAggregateOperator<K, IN, ACC, Tuple2<K, ACC>, AggregateFunction<IN, ACC, ?>> {
+
+	private static final long serialVersionUID = 1L;
+
+	public LocalAggregateOperator(
+			AggregateFunction<IN, ACC, ?> aggFunction,
+			KeySelector<IN, K> keySelector,
+			int maxBufferedKeys,
+			long maxFlushDelay) {
+		super(aggFunction, keySelector, maxBufferedKeys, maxFlushDelay);
+	}
+
+	@Override
+	protected ACC addInput(@Nullable ACC aggregate, IN input) {
+		return userFunction.add(input, aggregate == null ? userFunction.createAccumulator() : aggregate);
+	}
+
+	@Override
+	protected Tuple2<K, ACC> getOutput(K key, ACC aggregate) {
+		return Tuple2.of(key, aggregate);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+
+import javax.annotation.Nullable;
+
+/**
+ * An operator that reduces the records of each key locally with a {@link ReduceFunction}, before
+ * the records are shuffled to a {@link StreamGroupedReduce} with the same function.
+ *
+ * @param <K> The type of the key.
+ * @param <T> The type of the records.
+ */
+@Internal
+public class LocalReduceOperator<K, T> extends AbstractLocalPreAggregateOperator<K, T, T, T, ReduceFunction<T>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final TypeSerializer<T> serializer;
+
+	/** Whether the inputs have to be copied before they are buffered, because they may be reused. */
+	private transient boolean copyInputs;
+
+	public LocalReduceOperator(
+			ReduceFunction<T> reducer,
+			KeySelector<T, K> keySelector,
+			TypeSerializer<T> serializer,
+			int maxBufferedKeys,
+			long maxFlushDelay) {
+		super(reducer, keySelector, maxBufferedKeys, maxFlushDelay);
+		this.serializer = serializer;
+	}
+
+	@Override
+	public void open() throws Exception {
+		super.open();
+		copyInputs = getExecutionConfig().isObjectReuseEnabled();
+	}
+
+	@Override
+	protected T addInput(@Nullable T aggregate, T input) throws Exception {
+		final T reduced = aggregate == null ? input : userFunction.reduce(aggregate, input);
+		return copyInputs ? serializer.copy(reduced) : reduced;
+	}
+
+	@Override
+	protected T getOutput(K key, T aggregate) {
+		return aggregate;
+	}
+}
@@ -20,12 +20,13 @@ package org.apache.flink.streaming.api.operators;
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.functions.FilterFunction;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
 
 /**
  * A {@link StreamOperator} for executing {@link FilterFunction FilterFunctions}.
  */
 @Internal
-public class StreamFilter<IN> extends AbstractUdfStreamOperator<IN, FilterFunction<IN>> implements OneInputStreamOperator<IN, IN> {
+public class StreamFilter<IN> extends AbstractUdfStreamOperator<IN, FilterFunction<IN>> implements BatchingOneInputStreamOperator<IN, IN> {
 
 	private static final long serialVersionUID = 1L;
 
@@ -40,4 +41,22 @@ public class StreamFilter<IN> extends AbstractUdfStreamOperator<IN, FilterFuncti
 			output.collect(element);
 		}
 	}
+
+	@Override
+	public void processBatch(StreamRecordBatch<IN> batch) throws Exception {
+		// compact the batch in place, keeping the order of the records
+		int numKept = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			StreamRecord<IN> element = batch.get(i);
+			setKeyContextElement1(element);
+			if (userFunction.filter(element.getValue())) {
+				batch.set(numKept++, element);
+			}
+		}
+		batch.truncate(numKept);
+
+		if (!batch.isEmpty()) {
+			StreamRecordBatch.emit(batch, output);
+		}
+	}
 }
@@ -20,6 +20,8 @@ package org.apache.flink.streaming.api.operators;
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.functions.FlatMapFunction;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
+import org.apache.flink.util.Collector;
 
 /**
  * A {@link StreamOperator} for executing {@link FlatMapFunction FlatMapFunctions}.
@@ -27,12 +29,15 @@ import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 @Internal
 public class StreamFlatMap<IN, OUT>
 		extends AbstractUdfStreamOperator<OUT, FlatMapFunction<IN, OUT>>
-		implements OneInputStreamOperator<IN, OUT> {
+		implements BatchingOneInputStreamOperator<IN, OUT> {
 
 	private static final long serialVersionUID = 1L;
 
 	private transient TimestampedCollector<OUT> collector;
 
+	/** Collects the results of a whole input batch, created with the first batch. */
+	private transient BatchCollector batchCollector;
+
 	public StreamFlatMap(FlatMapFunction<IN, OUT> flatMapper) {
 		super(flatMapper);
 		chainingStrategy = ChainingStrategy.ALWAYS;
@@ -49,4 +54,58 @@ public class StreamFlatMap<IN, OUT>
 		collector.setTimestamp(element);
 		userFunction.flatMap(element.getValue(), collector);
 	}
+
+	@Override
+	public void processBatch(StreamRecordBatch<IN> batch) throws Exception {
+		if (batchCollector == null) {
+			batchCollector = new BatchCollector(batch.capacity());
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			StreamRecord<IN> element = batch.get(i);
+			setKeyContextElement1(element);
+			batchCollector.input = element;
+			userFunction.flatMap(element.getValue(), batchCollector);
+		}
+		batchCollector.input = null;
+		batchCollector.flush();
+	}
+
+	/**
+	 * Collects the results of the flat map function into a batch of new records with the timestamp
+	 * of the current input record, and emits the batch whenever it is full.
+	 */
+	private final class BatchCollector implements Collector<OUT> {
+
+		private final StreamRecordBatch<OUT> batch;
+
+		private StreamRecord<IN> input;
+
+		BatchCollector(int capacity) {
+			this.batch = new StreamRecordBatch<>(capacity);
+		}
+
+		@Override
+		public void collect(OUT record) {
+			batch.add(input.hasTimestamp()
+				? new StreamRecord<>(record, input.getTimestamp())
+				: new StreamRecord<>(record));
+
+			if (batch.isFull()) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (!batch.isEmpty()) {
+				StreamRecordBatch.emit(batch, output);
+				batch.clear();
+			}
+		}
+
+		@Override
+		public void close() {
+			output.close();
+		}
+	}
 }
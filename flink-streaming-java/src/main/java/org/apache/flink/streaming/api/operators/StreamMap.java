@@ -20,6 +20,7 @@ package org.apache.flink.streaming.api.operators;
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
 
 /**
  * A {@link StreamOperator} for executing {@link MapFunction MapFunctions}.
@@ -27,7 +28,7 @@ import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 @Internal
 public class StreamMap<IN, OUT>
 		extends AbstractUdfStreamOperator<OUT, MapFunction<IN, OUT>>
-		implements OneInputStreamOperator<IN, OUT> {
+		implements BatchingOneInputStreamOperator<IN, OUT> {
 
 	private static final long serialVersionUID = 1L;
 
@@ -40,4 +41,14 @@ public class StreamMap<IN, OUT>
 	public void processElement(StreamRecord<IN> element) throws Exception {
 		output.collect(element.replace(userFunction.map(element.getValue())));
 	}
+
+	@Override
+	public void processBatch(StreamRecordBatch<IN> batch) throws Exception {
+		for (int i = 0; i < batch.size(); i++) {
+			StreamRecord<IN> element = batch.get(i);
+			setKeyContextElement1(element);
+			element.replace(userFunction.map(element.getValue()));
+		}
+		StreamRecordBatch.emit(batch.<OUT>cast(), output);
+	}
 }
@@ -21,6 +21,7 @@ package org.apache.flink.streaming.api.operators;
 import org.apache.flink.api.common.TaskInfo;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.metrics.MetricGroup;
@@ -132,12 +133,21 @@ public class StreamTaskStateInitializerImpl implements StreamTaskStateInitialize
 		try {
 
 			// -------------- Keyed State Backend --------------
-			keyedStatedBackend = keyedStatedBackend(
+			keyedStatedBackend = rolledBackKeyedStateBackend(
+				operatorID,
 				keySerializer,
 				operatorIdentifierText,
 				prioritizedOperatorSubtaskStates,
-				streamTaskCloseableRegistry,
-				metricGroup);
+				streamTaskCloseableRegistry);
+
+			if (keyedStatedBackend == null) {
+				keyedStatedBackend = keyedStatedBackend(
+					keySerializer,
+					operatorIdentifierText,
+					prioritizedOperatorSubtaskStates,
+					streamTaskCloseableRegistry,
+					metricGroup);
+			}
 
 			// -------------- Operator State Backend --------------
 			operatorStateBackend = operatorStateBackend(
@@ -212,7 +222,8 @@ public class StreamTaskStateInitializerImpl implements StreamTaskStateInitialize
 			keyContext,
 			keyedStatedBackend,
 			processingTimeService,
-			keyedStatedBackend.requiresLegacySynchronousTimerSnapshots());
+			keyedStatedBackend.requiresLegacySynchronousTimerSnapshots(),
+			environment.getTaskManagerInfo().getConfiguration().getLong(TaskManagerOptions.TASK_PROCESSING_TIMER_RESOLUTION));
 
 		// and then initialize the timer services
 		for (KeyGroupStatePartitionStreamProvider streamProvider : rawKeyedStates) {
@@ -246,6 +257,51 @@ public class StreamTaskStateInitializerImpl implements StreamTaskStateInitialize
 			prioritizedOperatorSubtaskStates.getPrioritizedManagedOperatorState());
 	}
 
+	/**
+	 * Takes the keyed state backend that a failed or canceled previous attempt of this task retained for the
+	 * operator in the same slot, and rolls it back to the restored checkpoint. This avoids restoring the complete
+	 * state into a new backend. Returns null if there is no retained backend, or if it cannot be rolled back, in
+	 * which case the retained backend is disposed.
+	 */
+	@Nullable
+	protected AbstractKeyedStateBackend<?> rolledBackKeyedStateBackend(
+		OperatorID operatorID,
+		@Nullable TypeSerializer<?> keySerializer,
+		String operatorIdentifierText,
+		PrioritizedOperatorSubtaskState prioritizedOperatorSubtaskStates,
+		CloseableRegistry backendCloseableRegistry) {
+
+		final AbstractKeyedStateBackend<?> retainedBackend = taskStateManager.takeRetainedKeyedStateBackend(operatorID);
+		if (retainedBackend == null) {
+			return null;
+		}
+
+		// the backend must not hold on to the classes of a previous deployment of the job
+		if (keySerializer != null &&
+			retainedBackend.getUserCodeClassLoader() == environment.getUserClassLoader() &&
+			keySerializer.equals(retainedBackend.getKeySerializer())) {
+
+			try {
+				backendCloseableRegistry.registerCloseable(retainedBackend);
+
+				if (retainedBackend.rollback(prioritizedOperatorSubtaskStates.getJobManagerManagedKeyedState())) {
+					LOG.info("Rolled back the retained keyed state backend for {}.", operatorIdentifierText);
+					return retainedBackend;
+				}
+			} catch (Exception e) {
+				LOG.warn("Could not roll back the retained keyed state backend for {}, restoring a new backend.",
+					operatorIdentifierText, e);
+			}
+
+			if (backendCloseableRegistry.unregisterCloseable(retainedBackend)) {
+				IOUtils.closeQuietly(retainedBackend);
+			}
+		}
+
+		retainedBackend.dispose();
+		return null;
+	}
+
 	protected <K> AbstractKeyedStateBackend<K> keyedStatedBackend(
 		TypeSerializer<K> keySerializer,
 		String operatorIdentifierText,
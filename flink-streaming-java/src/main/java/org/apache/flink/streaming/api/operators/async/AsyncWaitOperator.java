@@ -22,10 +22,12 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.runtime.state.StateInitializationContext;
 import org.apache.flink.runtime.state.StateSnapshotContext;
 import org.apache.flink.streaming.api.datastream.AsyncDataStream;
 import org.apache.flink.streaming.api.datastream.AsyncDataStream.OutputMode;
+import org.apache.flink.streaming.api.functions.async.AsyncBatchFunction;
 import org.apache.flink.streaming.api.functions.async.AsyncFunction;
 import org.apache.flink.streaming.api.functions.async.ResultFuture;
 import org.apache.flink.streaming.api.graph.StreamConfig;
@@ -33,6 +35,7 @@ import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
 import org.apache.flink.streaming.api.operators.ChainingStrategy;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.Output;
+import org.apache.flink.streaming.api.operators.async.queue.KeyedStreamElementQueue;
 import org.apache.flink.streaming.api.operators.async.queue.OrderedStreamElementQueue;
 import org.apache.flink.streaming.api.operators.async.queue.StreamElementQueue;
 import org.apache.flink.streaming.api.operators.async.queue.StreamElementQueueEntry;
@@ -45,10 +48,15 @@ import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
 import org.apache.flink.streaming.runtime.tasks.StreamTask;
+import org.apache.flink.streaming.runtime.tasks.mailbox.Mailbox;
 import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
@@ -66,6 +74,11 @@ import java.util.concurrent.TimeUnit;
  * operator stores all currently in-flight {@link StreamElement} in it's operator state. Upon
  * recovery the recorded set of stream elements is replayed.
  *
+ * <p>If the function is an {@link AsyncBatchFunction} and the maximum batch size is larger than
+ * one, the operator collects the inputs into batches and triggers one async operation per batch. A
+ * batch is handed to the function once it is full, once its oldest input waited for the maximum
+ * batch delay, or earlier if a watermark arrives, the queue is full, or the operator is closed.
+ *
  * <p>In case of chaining of this operator, it has to be made sure that the operators in the chain are
  * opened tail to head. The reason for this is that an opened {@link AsyncWaitOperator} starts
  * already emitting recovered {@link StreamElement} to downstream operators.
@@ -81,6 +94,9 @@ public class AsyncWaitOperator<IN, OUT>
 
 	private static final String STATE_NAME = "_async_wait_operator_state_";
 
+	/** Maximum time in milliseconds to wait for a mail while the queue is full. */
+	private static final long MAILBOX_POLL_INTERVAL = 10L;
+
 	/** Capacity of the stream element queue. */
 	private final int capacity;
 
@@ -90,8 +106,22 @@ public class AsyncWaitOperator<IN, OUT>
 	/** Timeout for the async collectors. */
 	private final long timeout;
 
+	/** Selector for the keys of the inputs, only set for {@link OutputMode#KEYED}. */
+	@Nullable
+	private final KeySelector<IN, ?> keySelector;
+
+	/** Maximum number of inputs per call of an {@link AsyncBatchFunction}. */
+	private final int maxBatchSize;
+
+	/** Maximum time in milliseconds an input waits for its batch to fill up, 0 for no limit. */
+	private final long maxBatchDelay;
+
 	protected transient Object checkpointingLock;
 
+	/** Mailbox of the task thread, or null if the emitter outputs under the checkpointing lock. */
+	@Nullable
+	private transient Mailbox mailbox;
+
 	/** {@link TypeSerializer} for inputs while making snapshots. */
 	private transient StreamElementSerializer<IN> inStreamElementSerializer;
 
@@ -112,11 +142,36 @@ public class AsyncWaitOperator<IN, OUT>
 	/** Thread running the emitter. */
 	private transient Thread emitterThread;
 
+	/** The batching function, or null if the inputs are not batched. */
+	@Nullable
+	private transient AsyncBatchFunction<IN, OUT> batchFunction;
+
+	/** Inputs of the current batch. */
+	private transient List<IN> batchInputs;
+
+	/** Result futures of the inputs of the current batch. */
+	private transient List<ResultFuture<OUT>> batchResultFutures;
+
+	/** Timer that hands over the current batch after the maximum batch delay. */
+	@Nullable
+	private transient ScheduledFuture<?> batchTimer;
+
 	public AsyncWaitOperator(
 			AsyncFunction<IN, OUT> asyncFunction,
 			long timeout,
 			int capacity,
 			AsyncDataStream.OutputMode outputMode) {
+		this(asyncFunction, timeout, capacity, outputMode, null, 1, 0L);
+	}
+
+	public AsyncWaitOperator(
+			AsyncFunction<IN, OUT> asyncFunction,
+			long timeout,
+			int capacity,
+			AsyncDataStream.OutputMode outputMode,
+			@Nullable KeySelector<IN, ?> keySelector,
+			int maxBatchSize,
+			long maxBatchDelay) {
 		super(asyncFunction);
 		chainingStrategy = ChainingStrategy.ALWAYS;
 
@@ -126,6 +181,16 @@ public class AsyncWaitOperator<IN, OUT>
 		this.outputMode = Preconditions.checkNotNull(outputMode, "outputMode");
 
 		this.timeout = timeout;
+
+		Preconditions.checkArgument(outputMode != OutputMode.KEYED || keySelector != null,
+			"The keyed output mode requires a key selector.");
+		this.keySelector = keySelector;
+
+		Preconditions.checkArgument(maxBatchSize > 0, "The maximum batch size must be larger than 0.");
+		this.maxBatchSize = maxBatchSize;
+
+		Preconditions.checkArgument(maxBatchDelay >= 0L, "The maximum batch delay must not be negative.");
+		this.maxBatchDelay = maxBatchDelay;
 	}
 
 	@Override
@@ -133,6 +198,7 @@ public class AsyncWaitOperator<IN, OUT>
 		super.setup(containingTask, config, output);
 
 		this.checkpointingLock = getContainingTask().getCheckpointLock();
+		this.mailbox = getContainingTask().getMailbox();
 
 		this.inStreamElementSerializer = new StreamElementSerializer<>(
 			getOperatorConfig().<IN>getTypeSerializerIn1(getUserCodeClassloader()));
@@ -153,6 +219,13 @@ public class AsyncWaitOperator<IN, OUT>
 					executor,
 					this);
 				break;
+			case KEYED:
+				queue = new KeyedStreamElementQueue(
+					capacity,
+					executor,
+					this,
+					keySelector);
+				break;
 			default:
 				throw new IllegalStateException("Unknown async mode: " + outputMode + '.');
 		}
@@ -162,8 +235,14 @@ public class AsyncWaitOperator<IN, OUT>
 	public void open() throws Exception {
 		super.open();
 
+		if (maxBatchSize > 1 && userFunction instanceof AsyncBatchFunction) {
+			this.batchFunction = (AsyncBatchFunction<IN, OUT>) userFunction;
+			this.batchInputs = new ArrayList<>(maxBatchSize);
+			this.batchResultFutures = new ArrayList<>(maxBatchSize);
+		}
+
 		// create the emitter
-		this.emitter = new Emitter<>(checkpointingLock, output, queue, this);
+		this.emitter = new Emitter<>(checkpointingLock, mailbox, output, queue, this);
 
 		// start the emitter thread
 		this.emitterThread = new Thread(emitter, "AsyncIO-Emitter-Thread (" + getOperatorName() + ')');
@@ -223,11 +302,18 @@ public class AsyncWaitOperator<IN, OUT>
 
 		addAsyncBufferEntry(streamRecordBufferEntry);
 
-		userFunction.asyncInvoke(element.getValue(), streamRecordBufferEntry);
+		if (batchFunction == null) {
+			userFunction.asyncInvoke(element.getValue(), streamRecordBufferEntry);
+		} else {
+			addToBatch(element.getValue(), streamRecordBufferEntry);
+		}
 	}
 
 	@Override
 	public void processWatermark(Watermark mark) throws Exception {
+		// the watermark waits for all records before it, so they should not wait for their batch
+		flushBatch();
+
 		WatermarkQueueEntry watermarkBufferEntry = new WatermarkQueueEntry(mark);
 
 		addAsyncBufferEntry(watermarkBufferEntry);
@@ -274,10 +360,12 @@ public class AsyncWaitOperator<IN, OUT>
 		try {
 			assert(Thread.holdsLock(checkpointingLock));
 
+			flushBatch();
+
 			while (!queue.isEmpty()) {
 				// wait for the emitter thread to output the remaining elements
-				// for that he needs the checkpointing lock and thus we have to free it
-				checkpointingLock.wait();
+				// for that he needs the checkpointing lock or the task thread to run his mails
+				awaitEmitter();
 			}
 		}
 		finally {
@@ -387,25 +475,96 @@ public class AsyncWaitOperator<IN, OUT>
 	 * <p>For that it tries to put the element into the queue and if not successful then it waits on
 	 * the checkpointing lock. The checkpointing lock is also used by the {@link Emitter} to output
 	 * elements. The emitter is also responsible for notifying this method if the queue has capacity
-	 * left again, by calling notifyAll on the checkpointing lock.
+	 * left again, by calling notifyAll on the checkpointing lock. If the task runs a mailbox, the
+	 * emitter puts the output into the mailbox instead and this method runs the mails while waiting.
 	 *
 	 * @param streamElementQueueEntry to add to the operator's queue
 	 * @param <T> Type of the stream element queue entry's result
 	 * @throws InterruptedException if the current thread has been interrupted
 	 */
-	private <T> void addAsyncBufferEntry(StreamElementQueueEntry<T> streamElementQueueEntry) throws InterruptedException {
+	private <T> void addAsyncBufferEntry(StreamElementQueueEntry<T> streamElementQueueEntry) throws Exception {
 		assert(Thread.holdsLock(checkpointingLock));
 
 		pendingStreamElementQueueEntry = streamElementQueueEntry;
 
 		while (!queue.tryPut(streamElementQueueEntry)) {
+			// the queue might be full of inputs which wait for their batch
+			flushBatch();
+
 			// we wait for the emitter to notify us if the queue has space left again
-			checkpointingLock.wait();
+			awaitEmitter();
 		}
 
 		pendingStreamElementQueueEntry = null;
 	}
 
+	/**
+	 * Adds the given input to the current batch and hands the batch to the function once it is
+	 * full. The first input of a batch starts the timer for the maximum batch delay.
+	 */
+	private void addToBatch(IN input, ResultFuture<OUT> resultFuture) throws Exception {
+		batchInputs.add(input);
+		batchResultFutures.add(resultFuture);
+
+		if (batchInputs.size() >= maxBatchSize) {
+			flushBatch();
+		} else if (batchInputs.size() == 1 && maxBatchDelay > 0L) {
+			batchTimer = getProcessingTimeService().registerTimer(
+				getProcessingTimeService().getCurrentProcessingTime() + maxBatchDelay,
+				timestamp -> flushBatch());
+		}
+	}
+
+	/**
+	 * Hands the current batch to the {@link AsyncBatchFunction}, if there is one.
+	 */
+	private void flushBatch() throws Exception {
+		if (batchFunction == null) {
+			return;
+		}
+
+		if (batchTimer != null) {
+			batchTimer.cancel(false);
+			batchTimer = null;
+		}
+
+		if (!batchInputs.isEmpty()) {
+			final List<IN> inputs = batchInputs;
+			final List<ResultFuture<OUT>> resultFutures = batchResultFutures;
+
+			batchInputs = new ArrayList<>(maxBatchSize);
+			batchResultFutures = new ArrayList<>(maxBatchSize);
+
+			batchFunction.asyncInvokeBatch(inputs, resultFutures);
+		}
+	}
+
+	/**
+	 * Waits until the emitter output an element. Without a mailbox, this frees the checkpointing
+	 * lock until the emitter notifies us. With a mailbox, this runs the next mail in the task
+	 * thread, which is either an output of the emitter or another action, like a timer.
+	 *
+	 * <p>While the mailbox is empty, the checkpointing lock is freed as well, because checkpoints
+	 * which are triggered outside of the task thread still acquire it. The emitter notifies us
+	 * after it put its output into the mailbox, other mails are picked up after at most
+	 * {@link #MAILBOX_POLL_INTERVAL} milliseconds.
+	 */
+	private void awaitEmitter() throws InterruptedException {
+		if (mailbox == null) {
+			checkpointingLock.wait();
+		} else {
+			Runnable mail = mailbox.tryTake();
+			if (mail == null) {
+				checkpointingLock.wait(MAILBOX_POLL_INTERVAL);
+				mail = mailbox.tryTake();
+			}
+
+			if (mail != null) {
+				mail.run();
+			}
+		}
+	}
+
 	@Override
 	public void failOperator(Throwable throwable) {
 		getContainingTask().getEnvironment().failExternally(throwable);
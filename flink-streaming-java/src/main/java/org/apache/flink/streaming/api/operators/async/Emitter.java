@@ -31,12 +31,22 @@ import org.apache.flink.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Runnable responsible for consuming elements from the given queue and outputting them to the
  * given output/timestampedCollector.
  *
+ * <p>If the emitter is given the mailbox of the task, it hands the output of each completed element
+ * to the task thread and waits until the task thread emitted it. Otherwise it emits the elements
+ * itself while holding the checkpoint lock.
+ *
  * @param <OUT> Type of the output elements
  */
 @Internal
@@ -47,6 +57,10 @@ public class Emitter<OUT> implements Runnable {
 	/** Lock to hold before outputting. */
 	private final Object checkpointLock;
 
+	/** Mailbox of the task thread that outputs the elements, or null to output them under the lock. */
+	@Nullable
+	private final Executor mailbox;
+
 	/** Output for the watermark elements. */
 	private final Output<StreamRecord<OUT>> output;
 
@@ -65,8 +79,18 @@ public class Emitter<OUT> implements Runnable {
 			final Output<StreamRecord<OUT>> output,
 			final StreamElementQueue streamElementQueue,
 			final OperatorActions operatorActions) {
+		this(checkpointLock, null, output, streamElementQueue, operatorActions);
+	}
+
+	public Emitter(
+			final Object checkpointLock,
+			@Nullable final Executor mailbox,
+			final Output<StreamRecord<OUT>> output,
+			final StreamElementQueue streamElementQueue,
+			final OperatorActions operatorActions) {
 
 		this.checkpointLock = Preconditions.checkNotNull(checkpointLock, "checkpointLock");
+		this.mailbox = mailbox;
 		this.output = Preconditions.checkNotNull(output, "output");
 		this.streamElementQueue = Preconditions.checkNotNull(streamElementQueue, "streamElementQueue");
 		this.operatorActions = Preconditions.checkNotNull(operatorActions, "operatorActions");
@@ -91,6 +115,9 @@ public class Emitter<OUT> implements Runnable {
 				// Thread got interrupted which means that it should shut down
 				LOG.debug("Emitter thread got interrupted, shutting down.");
 			}
+		} catch (RejectedExecutionException e) {
+			// the task closed its mailbox, which means that it is shutting down
+			LOG.debug("Mailbox of the task was closed, shutting down the emitter.");
 		} catch (Throwable t) {
 			operatorActions.failOperator(new Exception("AsyncWaitOperator's emitter caught an " +
 				"unexpected throwable.", t));
@@ -98,21 +125,49 @@ public class Emitter<OUT> implements Runnable {
 	}
 
 	private void output(AsyncResult asyncResult) throws InterruptedException {
-		if (asyncResult.isWatermark()) {
+		if (mailbox == null) {
 			synchronized (checkpointLock) {
-				AsyncWatermarkResult asyncWatermarkResult = asyncResult.asWatermark();
-
-				LOG.debug("Output async watermark.");
-				output.emitWatermark(asyncWatermarkResult.getWatermark());
-
-				// remove the peeked element from the async collector buffer so that it is no longer
-				// checkpointed
-				streamElementQueue.poll();
+				emit(asyncResult);
 
 				// notify the main thread that there is again space left in the async collector
 				// buffer
 				checkpointLock.notifyAll();
 			}
+		} else {
+			// the task thread emits the element between two batches of input, or while it waits
+			// for space in the async collector buffer
+			final CompletableFuture<Void> emitted = new CompletableFuture<>();
+			mailbox.execute(() -> {
+				try {
+					emit(asyncResult);
+				} catch (InterruptedException e) {
+					// the peeked element is always available, so the task thread is being cancelled
+					Thread.currentThread().interrupt();
+				} finally {
+					emitted.complete(null);
+				}
+			});
+
+			// wake up the task thread if it waits for space in the async collector buffer
+			synchronized (checkpointLock) {
+				checkpointLock.notifyAll();
+			}
+
+			try {
+				emitted.get();
+			} catch (ExecutionException e) {
+				// the future is never completed exceptionally
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private void emit(AsyncResult asyncResult) throws InterruptedException {
+		if (asyncResult.isWatermark()) {
+			AsyncWatermarkResult asyncWatermarkResult = asyncResult.asWatermark();
+
+			LOG.debug("Output async watermark.");
+			output.emitWatermark(asyncWatermarkResult.getWatermark());
 		} else {
 			AsyncCollectionResult<OUT> streamRecordResult = asyncResult.asResultCollection();
 
@@ -122,32 +177,26 @@ public class Emitter<OUT> implements Runnable {
 				timestampedCollector.eraseTimestamp();
 			}
 
-			synchronized (checkpointLock) {
-				LOG.debug("Output async stream element collection result.");
+			LOG.debug("Output async stream element collection result.");
 
-				try {
-					Collection<OUT> resultCollection = streamRecordResult.get();
+			try {
+				Collection<OUT> resultCollection = streamRecordResult.get();
 
-					if (resultCollection != null) {
-						for (OUT result : resultCollection) {
-							timestampedCollector.collect(result);
-						}
+				if (resultCollection != null) {
+					for (OUT result : resultCollection) {
+						timestampedCollector.collect(result);
 					}
-				} catch (Exception e) {
-					operatorActions.failOperator(
-						new Exception("An async function call terminated with an exception. " +
-							"Failing the AsyncWaitOperator.", e));
 				}
-
-				// remove the peeked element from the async collector buffer so that it is no longer
-				// checkpointed
-				streamElementQueue.poll();
-
-				// notify the main thread that there is again space left in the async collector
-				// buffer
-				checkpointLock.notifyAll();
+			} catch (Exception e) {
+				operatorActions.failOperator(
+					new Exception("An async function call terminated with an exception. " +
+						"Failing the AsyncWaitOperator.", e));
 			}
 		}
+
+		// remove the peeked element from the async collector buffer so that it is no longer
+		// checkpointed
+		streamElementQueue.poll();
 	}
 
 	public void stop() {
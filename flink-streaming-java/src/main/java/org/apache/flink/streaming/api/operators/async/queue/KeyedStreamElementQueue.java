@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.async.queue;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.operators.async.OperatorActions;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keyed implementation of the {@link StreamElementQueue}. The keyed stream element queue emits the
+ * asynchronous results of stream records with the same key in the order in which the records were
+ * inserted, while records with different keys can overtake each other. A slow record therefore only
+ * holds back the records of its own key. Like the {@link UnorderedStreamElementQueue}, the queue
+ * maintains the watermark-stream record order.
+ */
+@Internal
+public class KeyedStreamElementQueue implements StreamElementQueue {
+
+	private static final Logger LOG = LoggerFactory.getLogger(KeyedStreamElementQueue.class);
+
+	/** Key under which watermarks are kept in their segment. */
+	private static final Object WATERMARK_KEY = new Object();
+
+	/** Capacity of this queue. */
+	private final int capacity;
+
+	/** Executor to run the onComplete callbacks. */
+	private final Executor executor;
+
+	/** OperatorActions to signal the owning operator a failure. */
+	private final OperatorActions operatorActions;
+
+	/** Selector for the keys of the stream records. */
+	private final KeySelector<Object, ?> keySelector;
+
+	/** Queue of uncompleted segments of stream element queue entries, separated by watermarks. */
+	private final ArrayDeque<Segment> uncompletedQueue;
+
+	/** Queue of completed stream element queue entries. */
+	private final ArrayDeque<StreamElementQueueEntry<?>> completedQueue;
+
+	/** First (chronologically oldest) uncompleted segment of stream element queue entries. */
+	private Segment firstSegment;
+
+	// Last (chronologically youngest) uncompleted segment of stream element queue entries. New
+	// stream element queue entries are inserted into this segment.
+	private Segment lastSegment;
+	private volatile int numberEntries;
+
+	/** Locks and conditions for the blocking queue. */
+	private final ReentrantLock lock;
+	private final Condition notFull;
+	private final Condition hasCompletedEntries;
+
+	@SuppressWarnings("unchecked")
+	public KeyedStreamElementQueue(
+			int capacity,
+			Executor executor,
+			OperatorActions operatorActions,
+			KeySelector<?, ?> keySelector) {
+
+		Preconditions.checkArgument(capacity > 0, "The capacity must be larger than 0.");
+		this.capacity = capacity;
+
+		this.executor = Preconditions.checkNotNull(executor, "executor");
+
+		this.operatorActions = Preconditions.checkNotNull(operatorActions, "operatorActions");
+
+		this.keySelector = (KeySelector<Object, ?>) Preconditions.checkNotNull(keySelector, "keySelector");
+
+		this.uncompletedQueue = new ArrayDeque<>(capacity);
+		this.completedQueue = new ArrayDeque<>(capacity);
+
+		this.firstSegment = new Segment();
+		this.lastSegment = firstSegment;
+
+		this.numberEntries = 0;
+
+		this.lock = new ReentrantLock();
+		this.notFull = lock.newCondition();
+		this.hasCompletedEntries = lock.newCondition();
+	}
+
+	@Override
+	public <T> void put(StreamElementQueueEntry<T> streamElementQueueEntry) throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			while (numberEntries >= capacity) {
+				notFull.await();
+			}
+
+			addEntry(streamElementQueueEntry);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public <T> boolean tryPut(StreamElementQueueEntry<T> streamElementQueueEntry) throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			if (numberEntries < capacity) {
+				addEntry(streamElementQueueEntry);
+
+				LOG.debug("Put element into keyed stream element queue. New filling degree " +
+					"({}/{}).", numberEntries, capacity);
+
+				return true;
+			} else {
+				LOG.debug("Failed to put element into keyed stream element queue because it " +
+					"was full ({}/{}).", numberEntries, capacity);
+
+				return false;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public AsyncResult peekBlockingly() throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			while (completedQueue.isEmpty()) {
+				hasCompletedEntries.await();
+			}
+
+			LOG.debug("Peeked head element from keyed stream element queue with filling degree " +
+				"({}/{}).", numberEntries, capacity);
+
+			return completedQueue.peek();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public AsyncResult poll() throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			while (completedQueue.isEmpty()) {
+				hasCompletedEntries.await();
+			}
+
+			numberEntries--;
+			notFull.signalAll();
+
+			LOG.debug("Polled element from keyed stream element queue. New filling degree " +
+				"({}/{}).", numberEntries, capacity);
+
+			return completedQueue.poll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Collection<StreamElementQueueEntry<?>> values() throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			StreamElementQueueEntry<?>[] array = new StreamElementQueueEntry[numberEntries];
+
+			array = completedQueue.toArray(array);
+
+			int counter = completedQueue.size();
+
+			counter = firstSegment.copyTo(array, counter);
+
+			for (Segment segment : uncompletedQueue) {
+				counter = segment.copyTo(array, counter);
+			}
+
+			return Arrays.asList(array);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return numberEntries == 0;
+	}
+
+	@Override
+	public int size() {
+		return numberEntries;
+	}
+
+	/**
+	 * Callback for onComplete events for the given stream element queue entry. Whenever a queue
+	 * entry of the first segment is completed, the completed entries at the head of its key are
+	 * added to the completed entries queue from where they can be consumed. If the first segment
+	 * becomes empty, then the next segment is polled from the uncompleted entries queue and its
+	 * completed head entries are added to the completed entries queue.
+	 *
+	 * @param key of the stream element queue entry which has been completed
+	 * @throws InterruptedException if the current thread has been interrupted while performing the
+	 * 	on complete callback.
+	 */
+	private void onCompleteHandler(Object key) throws InterruptedException {
+		lock.lockInterruptibly();
+
+		try {
+			final int numberCompleted = completedQueue.size();
+
+			// an entry of a later segment leaves its key untouched in the first segment
+			firstSegment.pollCompleted(key, completedQueue);
+
+			while (firstSegment.isEmpty() && firstSegment != lastSegment) {
+				firstSegment = uncompletedQueue.poll();
+				firstSegment.pollAllCompleted(completedQueue);
+			}
+
+			if (completedQueue.size() > numberCompleted) {
+				LOG.debug("Signal keyed stream element queue has completed entries.");
+				hasCompletedEntries.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Add the given stream element queue entry to the current last segment if it is not a
+	 * watermark. If it is a watermark, then stop adding to the current last segment, insert the
+	 * watermark into its own segment and add a new last segment.
+	 *
+	 * @param streamElementQueueEntry to be inserted
+	 * @param <T> Type of the stream element queue entry's result
+	 */
+	private <T> void addEntry(StreamElementQueueEntry<T> streamElementQueueEntry) {
+		assert(lock.isHeldByCurrentThread());
+
+		final Object key;
+
+		if (streamElementQueueEntry.isWatermark()) {
+			key = WATERMARK_KEY;
+			lastSegment = new Segment();
+
+			if (firstSegment.isEmpty()) {
+				firstSegment.add(key, streamElementQueueEntry);
+			} else {
+				Segment watermarkSegment = new Segment();
+				watermarkSegment.add(key, streamElementQueueEntry);
+				uncompletedQueue.offer(watermarkSegment);
+			}
+			uncompletedQueue.offer(lastSegment);
+		} else {
+			key = getKey(streamElementQueueEntry);
+			lastSegment.add(key, streamElementQueueEntry);
+		}
+
+		streamElementQueueEntry.onComplete(
+			(StreamElementQueueEntry<T> value) -> {
+				try {
+					onCompleteHandler(key);
+				} catch (InterruptedException e) {
+					// The accept executor thread got interrupted. This is probably cause by
+					// the shutdown of the executor.
+					LOG.debug("AsyncBufferEntry could not be properly completed because the " +
+						"executor thread has been interrupted.", e);
+				} catch (Throwable t) {
+					operatorActions.failOperator(new Exception("Could not complete the " +
+						"stream element queue entry: " + value + '.', t));
+				}
+			},
+			executor);
+
+		numberEntries++;
+	}
+
+	private Object getKey(StreamElementQueueEntry<?> streamElementQueueEntry) {
+		try {
+			return keySelector.getKey(streamElementQueueEntry.getStreamElement().asRecord().getValue());
+		} catch (Exception e) {
+			throw new FlinkRuntimeException("Could not extract the key of the stream element queue entry: " +
+				streamElementQueueEntry + '.', e);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The uncompleted stream element queue entries between two watermarks, in insertion order per key.
+	 */
+	private static final class Segment {
+
+		private final Map<Object, ArrayDeque<StreamElementQueueEntry<?>>> entriesByKey = new LinkedHashMap<>();
+
+		private int size;
+
+		void add(Object key, StreamElementQueueEntry<?> entry) {
+			entriesByKey.computeIfAbsent(key, k -> new ArrayDeque<>()).add(entry);
+			size++;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		/** Moves the completed entries at the head of the given key to the completed entries. */
+		void pollCompleted(Object key, ArrayDeque<StreamElementQueueEntry<?>> completed) {
+			final ArrayDeque<StreamElementQueueEntry<?>> entries = entriesByKey.get(key);
+
+			if (entries != null && pollCompleted(entries, completed)) {
+				entriesByKey.remove(key);
+			}
+		}
+
+		/** Moves the completed entries at the head of every key to the completed entries. */
+		void pollAllCompleted(ArrayDeque<StreamElementQueueEntry<?>> completed) {
+			final Iterator<ArrayDeque<StreamElementQueueEntry<?>>> it = entriesByKey.values().iterator();
+
+			while (it.hasNext()) {
+				if (pollCompleted(it.next(), completed)) {
+					it.remove();
+				}
+			}
+		}
+
+		/** Returns true if all entries of the key were moved. */
+		private boolean pollCompleted(
+				ArrayDeque<StreamElementQueueEntry<?>> entries,
+				ArrayDeque<StreamElementQueueEntry<?>> completed) {
+
+			while (!entries.isEmpty() && entries.peek().isDone()) {
+				completed.offer(entries.poll());
+				size--;
+			}
+			return entries.isEmpty();
+		}
+
+		int copyTo(StreamElementQueueEntry<?>[] array, int offset) {
+			int counter = offset;
+			for (ArrayDeque<StreamElementQueueEntry<?>> entries : entriesByKey.values()) {
+				for (StreamElementQueueEntry<?> entry : entries) {
+					array[counter] = entry;
+					counter++;
+				}
+			}
+			return counter;
+		}
+	}
+}
@@ -158,17 +158,35 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 
 	@Override
 	public BufferOrEvent getNextNonBlocked() throws Exception {
+		return getNext(true);
+	}
+
+	@Override
+	public BufferOrEvent pollNext() throws Exception {
+		return getNext(false);
+	}
+
+	private BufferOrEvent getNext(boolean blocking) throws Exception {
 		while (true) {
 			// process buffered BufferOrEvents before grabbing new ones
 			Optional<BufferOrEvent> next;
 			if (currentBuffered == null) {
-				next = inputGate.getNextBufferOrEvent();
+				if (blocking) {
+					next = inputGate.getNextBufferOrEvent();
+				}
+				else {
+					next = inputGate.pollNextBufferOrEvent();
+					if (!next.isPresent() && !inputGate.isFinished()) {
+						// no data available right now
+						return null;
+					}
+				}
 			}
 			else {
 				next = Optional.ofNullable(currentBuffered.getNext());
 				if (!next.isPresent()) {
 					completeBufferedSequence();
-					return getNextNonBlocked();
+					return getNext(blocking);
 				}
 			}
 
@@ -177,7 +195,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 					// end of input stream. stream continues with the buffered data
 					endOfStream = true;
 					releaseBlocksAndResetBarriers();
-					return getNextNonBlocked();
+					return getNext(blocking);
 				}
 				else {
 					// final end of both input and buffered data
@@ -90,10 +90,19 @@ public class BarrierTracker implements CheckpointBarrierHandler {
 
 	@Override
 	public BufferOrEvent getNextNonBlocked() throws Exception {
+		return getNext(true);
+	}
+
+	@Override
+	public BufferOrEvent pollNext() throws Exception {
+		return getNext(false);
+	}
+
+	private BufferOrEvent getNext(boolean blocking) throws Exception {
 		while (true) {
-			Optional<BufferOrEvent> next = inputGate.getNextBufferOrEvent();
+			Optional<BufferOrEvent> next = blocking ? inputGate.getNextBufferOrEvent() : inputGate.pollNextBufferOrEvent();
 			if (!next.isPresent()) {
-				// buffer or input exhausted
+				// buffer or input exhausted, or no data available right now
 				return null;
 			}
 
@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
+import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineException;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineOnCancellationBarrierException;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineSubsumedException;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.util.IOUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Optional;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * The barrier unaligner is a {@link CheckpointBarrierHandler} for unaligned checkpoints. It triggers the checkpoint
+ * as soon as the first barrier of a checkpoint arrives and never blocks an input channel.
+ *
+ * <p>Since the barriers of unaligned checkpoints overtake the buffers that were queued in the upstream
+ * subpartitions, the data that a channel delivers between the trigger of the checkpoint and the channel's own
+ * barrier is part of the checkpoint. The unaligner keeps processing that data normally and additionally records it,
+ * together with the partial records in the deserializers, in an {@link InputChannelRecording}. On restore, the
+ * recorded data of each channel is handed out before any data of the input gate.
+ */
+@Internal
+public class BarrierUnaligner implements CheckpointBarrierHandler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BarrierUnaligner.class);
+
+	/** The gate that the unaligner draws its input from. */
+	private final InputGate inputGate;
+
+	/** The deserializers of the input channels, holding the partial records at the time of a trigger. */
+	private final RecordDeserializer<?>[] recordDeserializers;
+
+	/** The total number of channels that this unaligner handles data from. */
+	private final int totalNumberOfInputChannels;
+
+	/** Flags that indicate whether a channel was closed. */
+	private final boolean[] closedChannels;
+
+	/** The restored in-flight data that must be consumed before requesting data from the input gate. */
+	private final ArrayDeque<InputChannelStateHandle> restoredChannelState;
+
+	/** The stream of the restored channel state that is currently replayed. */
+	private FSDataInputStream currentRestoredStream;
+
+	/** The channel of the restored channel state that is currently replayed. */
+	private int currentRestoredChannel = -1;
+
+	/** The listener to be notified on complete checkpoints. */
+	private AbstractInvokable toNotifyOnCheckpoint;
+
+	/** The ID of the checkpoint for which we expect barriers. */
+	private long currentCheckpointId = -1L;
+
+	/** The recording of the current checkpoint, null if no recording is in progress. */
+	private InputChannelRecording currentRecording;
+
+	/** The recording that was handed to the task, kept until the task picks it up. */
+	private InputChannelRecording triggeredRecording;
+
+	public BarrierUnaligner(
+			InputGate inputGate,
+			RecordDeserializer<?>[] recordDeserializers,
+			Collection<InputChannelStateHandle> restoredChannelState) {
+
+		checkArgument(recordDeserializers.length == inputGate.getNumberOfInputChannels());
+
+		this.inputGate = inputGate;
+		this.recordDeserializers = recordDeserializers;
+		this.totalNumberOfInputChannels = inputGate.getNumberOfInputChannels();
+		this.closedChannels = new boolean[totalNumberOfInputChannels];
+		this.restoredChannelState = new ArrayDeque<>(checkNotNull(restoredChannelState));
+
+		for (InputChannelStateHandle handle : this.restoredChannelState) {
+			checkArgument(handle.getChannelIndex() < totalNumberOfInputChannels,
+				"Restored state for input channel %s, but the task only has %s channels.",
+				handle.getChannelIndex(), totalNumberOfInputChannels);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Buffer and barrier handling
+	// ------------------------------------------------------------------------
+
+	@Override
+	public BufferOrEvent getNextNonBlocked() throws Exception {
+		return getNext(true);
+	}
+
+	@Override
+	public BufferOrEvent pollNext() throws Exception {
+		return getNext(false);
+	}
+
+	private BufferOrEvent getNext(boolean blocking) throws Exception {
+		if (currentRestoredStream != null || !restoredChannelState.isEmpty()) {
+			BufferOrEvent restored = getNextRestored();
+			if (restored != null) {
+				return restored;
+			}
+		}
+
+		while (true) {
+			Optional<BufferOrEvent> next = blocking ? inputGate.getNextBufferOrEvent() : inputGate.pollNextBufferOrEvent();
+			if (!next.isPresent()) {
+				if (blocking || inputGate.isFinished()) {
+					abortRecording();
+				}
+				return null;
+			}
+
+			BufferOrEvent bufferOrEvent = next.get();
+			int channelIndex = bufferOrEvent.getChannelIndex();
+
+			if (bufferOrEvent.isBuffer()) {
+				if (currentRecording != null && currentRecording.isRecording(channelIndex)) {
+					currentRecording.record(channelIndex, bufferOrEvent.getBuffer());
+				}
+				return bufferOrEvent;
+			}
+			else if (bufferOrEvent.getEvent().getClass() == CheckpointBarrier.class) {
+				processBarrier((CheckpointBarrier) bufferOrEvent.getEvent(), channelIndex);
+			}
+			else if (bufferOrEvent.getEvent().getClass() == CancelCheckpointMarker.class) {
+				processCancellationBarrier((CancelCheckpointMarker) bufferOrEvent.getEvent());
+			}
+			else {
+				if (bufferOrEvent.getEvent().getClass() == EndOfPartitionEvent.class) {
+					processEndOfPartition(channelIndex);
+				}
+				return bufferOrEvent;
+			}
+		}
+	}
+
+	private BufferOrEvent getNextRestored() throws IOException {
+		while (true) {
+			if (currentRestoredStream == null) {
+				InputChannelStateHandle handle = restoredChannelState.poll();
+				if (handle == null) {
+					return null;
+				}
+				currentRestoredStream = handle.openInputStream();
+				currentRestoredChannel = handle.getChannelIndex();
+			}
+
+			byte[] bytes = new byte[inputGate.getPageSize()];
+			int read = readFully(currentRestoredStream, bytes);
+			if (read > 0) {
+				Buffer buffer = new NetworkBuffer(
+					MemorySegmentFactory.wrap(bytes), FreeingBufferRecycler.INSTANCE, true, read);
+				return new BufferOrEvent(buffer, currentRestoredChannel);
+			}
+
+			IOUtils.closeQuietly(currentRestoredStream);
+			currentRestoredStream = null;
+			currentRestoredChannel = -1;
+		}
+	}
+
+	private static int readFully(FSDataInputStream in, byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			int read = in.read(bytes, offset, bytes.length - offset);
+			if (read < 0) {
+				break;
+			}
+			offset += read;
+		}
+		return offset;
+	}
+
+	private void processBarrier(CheckpointBarrier receivedBarrier, int channelIndex) throws Exception {
+		final long barrierId = receivedBarrier.getId();
+
+		if (barrierId > currentCheckpointId) {
+			if (currentRecording != null) {
+				// we did not complete the current checkpoint, another started before
+				LOG.warn("{}: Received checkpoint barrier for checkpoint {} before all barriers of checkpoint {}. " +
+						"Skipping current checkpoint.",
+					inputGate.getOwningTaskName(),
+					barrierId,
+					currentCheckpointId);
+
+				abortRecording();
+				notifyAbort(currentCheckpointId, new CheckpointDeclineSubsumedException(barrierId));
+			}
+
+			// first barrier of a new checkpoint
+			currentCheckpointId = barrierId;
+			currentRecording = startRecording(barrierId);
+			currentRecording.finishChannel(channelIndex);
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("{}: Received first barrier, triggering unaligned checkpoint {} at {}.",
+					inputGate.getOwningTaskName(),
+					barrierId,
+					receivedBarrier.getTimestamp());
+			}
+
+			triggeredRecording = currentRecording;
+			if (currentRecording.isFinished()) {
+				currentRecording = null;
+			}
+
+			notifyCheckpoint(receivedBarrier);
+
+			if (triggeredRecording != null) {
+				// the task did not perform the checkpoint, nobody will read the recording
+				abortRecording();
+			}
+		}
+		else if (barrierId == currentCheckpointId && currentRecording != null) {
+			currentRecording.finishChannel(channelIndex);
+			if (currentRecording.isFinished()) {
+				LOG.debug("{}: Received all barriers of unaligned checkpoint {}.",
+					inputGate.getOwningTaskName(),
+					barrierId);
+
+				currentRecording = null;
+			}
+		}
+
+		// else: trailing barrier from either
+		//   - a previous (subsumed) checkpoint
+		//   - the current checkpoint if it was already canceled
+	}
+
+	private InputChannelRecording startRecording(long checkpointId) throws IOException {
+		InputChannelRecording recording = new InputChannelRecording(checkpointId, totalNumberOfInputChannels);
+		for (int i = 0; i < totalNumberOfInputChannels; i++) {
+			if (closedChannels[i]) {
+				recording.finishChannel(i);
+			}
+			else {
+				byte[] partialRecord = recordDeserializers[i].getPartialRecordBytes();
+				if (partialRecord.length > 0) {
+					recording.record(i, partialRecord);
+				}
+			}
+		}
+		return recording;
+	}
+
+	private void processCancellationBarrier(CancelCheckpointMarker cancelBarrier) throws Exception {
+		final long barrierId = cancelBarrier.getCheckpointId();
+
+		if (barrierId == currentCheckpointId && currentRecording != null) {
+			// the checkpoint was triggered already, but can never complete
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("{}: Checkpoint {} canceled, aborting recording of in-flight data.",
+					inputGate.getOwningTaskName(),
+					barrierId);
+			}
+
+			abortRecording();
+			notifyAbortOnCancellationBarrier(barrierId);
+		}
+		else if (barrierId > currentCheckpointId) {
+			if (currentRecording != null) {
+				// we canceled the next which also cancels the current
+				LOG.warn("{}: Received cancellation barrier for checkpoint {} before all barriers of checkpoint {}. " +
+						"Skipping current checkpoint.",
+					inputGate.getOwningTaskName(),
+					barrierId,
+					currentCheckpointId);
+
+				abortRecording();
+				notifyAbort(currentCheckpointId, new CheckpointDeclineSubsumedException(barrierId));
+			}
+
+			// by setting the currentCheckpointId to this checkpoint without a recording,
+			// no checkpoint barrier can trigger this checkpoint any more
+			currentCheckpointId = barrierId;
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("{}: Checkpoint {} canceled before it was triggered.",
+					inputGate.getOwningTaskName(),
+					barrierId);
+			}
+
+			notifyAbortOnCancellationBarrier(barrierId);
+		}
+
+		// else: trailing barrier from either
+		//   - a previous (subsumed) checkpoint
+		//   - the current checkpoint if it was already canceled
+	}
+
+	private void processEndOfPartition(int channelIndex) {
+		closedChannels[channelIndex] = true;
+
+		// a closed channel delivers no further data, so its in-flight data is complete
+		if (currentRecording != null) {
+			currentRecording.finishChannel(channelIndex);
+			if (currentRecording.isFinished()) {
+				currentRecording = null;
+			}
+		}
+	}
+
+	private void abortRecording() {
+		if (currentRecording != null) {
+			currentRecording.abort();
+			currentRecording = null;
+		}
+		if (triggeredRecording != null) {
+			triggeredRecording.abort();
+			triggeredRecording = null;
+		}
+	}
+
+	private void notifyCheckpoint(CheckpointBarrier checkpointBarrier) throws Exception {
+		if (toNotifyOnCheckpoint != null) {
+			CheckpointMetaData checkpointMetaData =
+				new CheckpointMetaData(checkpointBarrier.getId(), checkpointBarrier.getTimestamp());
+
+			CheckpointMetrics checkpointMetrics = new CheckpointMetrics()
+				.setBytesBufferedInAlignment(0L)
+				.setAlignmentDurationNanos(0L);
+
+			toNotifyOnCheckpoint.triggerCheckpointOnBarrier(
+				checkpointMetaData,
+				checkpointBarrier.getCheckpointOptions(),
+				checkpointMetrics);
+		}
+	}
+
+	private void notifyAbortOnCancellationBarrier(long checkpointId) throws Exception {
+		notifyAbort(checkpointId, new CheckpointDeclineOnCancellationBarrierException());
+	}
+
+	private void notifyAbort(long checkpointId, CheckpointDeclineException cause) throws Exception {
+		if (toNotifyOnCheckpoint != null) {
+			toNotifyOnCheckpoint.abortCheckpointOnBarrier(checkpointId, cause);
+		}
+	}
+
+	/**
+	 * Hands the recording of the in-flight data of the given checkpoint over to the caller. This is called by the
+	 * task while it performs the checkpoint that this unaligner triggered.
+	 *
+	 * @return The recording, or null if there is no recording for the checkpoint.
+	 */
+	@Override
+	public InputChannelRecording takeInputChannelRecording(long checkpointId) {
+		InputChannelRecording recording = triggeredRecording;
+		if (recording == null || recording.getCheckpointId() != checkpointId) {
+			return null;
+		}
+		triggeredRecording = null;
+		return recording;
+	}
+
+	@Override
+	public void registerCheckpointEventHandler(AbstractInvokable toNotifyOnCheckpoint) {
+		if (this.toNotifyOnCheckpoint == null) {
+			this.toNotifyOnCheckpoint = toNotifyOnCheckpoint;
+		}
+		else {
+			throw new IllegalStateException("BarrierUnaligner already has a registered checkpoint notifyee");
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return currentRestoredStream == null && restoredChannelState.isEmpty();
+	}
+
+	@Override
+	public void cleanup() throws IOException {
+		abortRecording();
+		IOUtils.closeQuietly(currentRestoredStream);
+		currentRestoredStream = null;
+		restoredChannelState.clear();
+	}
+
+	@Override
+	public long getAlignmentDurationNanos() {
+		// unaligned checkpoints never block a channel
+		return 0L;
+	}
+
+	// ------------------------------------------------------------------------
+	// Utilities
+	// ------------------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		return String.format("%s: last checkpoint: %d, recording: %b",
+			inputGate.getOwningTaskName(),
+			currentCheckpointId,
+			currentRecording != null);
+	}
+}
@@ -48,6 +48,18 @@ public interface CheckpointBarrierHandler {
 	 */
 	BufferOrEvent getNextNonBlocked() throws Exception;
 
+	/**
+	 * Returns the next {@link BufferOrEvent} that the operator may consume, if one can be obtained
+	 * without blocking. Unlike {@link #getNextNonBlocked()}, this call returns immediately if the
+	 * input gate has no data available right now.
+	 *
+	 * @return The next BufferOrEvent, or {@code null}, if no data is available right now or the stream
+	 *         is finished. The stream is finished if the input gate is finished.
+	 *
+	 * @throws Exception Thrown in the same cases as by {@link #getNextNonBlocked()}.
+	 */
+	BufferOrEvent pollNext() throws Exception;
+
 	/**
 	 * Registers the task be notified once all checkpoint barriers have been received for a checkpoint.
 	 *
@@ -76,4 +88,15 @@ public interface CheckpointBarrierHandler {
 	 * @return The duration in nanoseconds
 	 */
 	long getAlignmentDurationNanos();
+
+	/**
+	 * Hands the in-flight input data of the given unaligned checkpoint over to the task that performs the
+	 * checkpoint.
+	 *
+	 * @param checkpointId The ID of the checkpoint that the task performs.
+	 * @return The recording of the in-flight data, or {@code null} if the handler does not record any.
+	 */
+	default InputChannelRecording takeInputChannelRecording(long checkpointId) {
+		return null;
+	}
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * The in-flight input data of an unaligned checkpoint. For every input channel, the recording holds the bytes of
+ * the partially received record at the time the checkpoint was triggered, followed by all data that the channel
+ * delivered afterwards until its barrier arrived. Replaying these bytes in front of the channel's regular input
+ * restores the exact stream position of the checkpoint.
+ *
+ * <p>The recording is written by the task thread and becomes readable for the asynchronous part of the checkpoint
+ * once every channel delivered its barrier or was closed.
+ */
+@Internal
+public class InputChannelRecording {
+
+	private final long checkpointId;
+
+	/** The recorded bytes per channel, null for channels that are not recorded any more. */
+	private final ByteArrayOutputStream[] channelData;
+
+	/** The recorded data of the channels that delivered their barrier, by channel index. */
+	private final Map<Integer, byte[]> finishedChannelData;
+
+	private final CompletableFuture<Map<Integer, byte[]>> completion;
+
+	private int numPendingChannels;
+
+	InputChannelRecording(long checkpointId, int numberOfChannels) {
+		checkArgument(numberOfChannels > 0);
+
+		this.checkpointId = checkpointId;
+		this.channelData = new ByteArrayOutputStream[numberOfChannels];
+		this.finishedChannelData = new HashMap<>();
+		this.completion = new CompletableFuture<>();
+
+		for (int i = 0; i < numberOfChannels; i++) {
+			channelData[i] = new ByteArrayOutputStream();
+		}
+		this.numPendingChannels = numberOfChannels;
+	}
+
+	public long getCheckpointId() {
+		return checkpointId;
+	}
+
+	/**
+	 * Checks whether data of the given channel still belongs to this recording.
+	 */
+	boolean isRecording(int channelIndex) {
+		return channelData[channelIndex] != null;
+	}
+
+	void record(int channelIndex, byte[] bytes) {
+		channelData[channelIndex].write(bytes, 0, bytes.length);
+	}
+
+	void record(int channelIndex, Buffer buffer) {
+		final int size = buffer.getSize();
+		if (size > 0) {
+			final byte[] bytes = new byte[size];
+			buffer.getNioBufferReadable().get(bytes);
+			record(channelIndex, bytes);
+		}
+	}
+
+	/**
+	 * Stops recording the given channel, because its barrier arrived or the channel was closed.
+	 */
+	void finishChannel(int channelIndex) {
+		final ByteArrayOutputStream data = channelData[channelIndex];
+		if (data == null) {
+			return;
+		}
+
+		channelData[channelIndex] = null;
+		if (data.size() > 0) {
+			finishedChannelData.put(channelIndex, data.toByteArray());
+		}
+
+		if (--numPendingChannels == 0) {
+			completion.complete(finishedChannelData);
+		}
+	}
+
+	boolean isFinished() {
+		return numPendingChannels == 0;
+	}
+
+	/**
+	 * Discards the recording. Callers waiting in {@link #get()} receive a {@link CancellationException}.
+	 */
+	void abort() {
+		for (int i = 0; i < channelData.length; i++) {
+			channelData[i] = null;
+		}
+		completion.cancel(false);
+	}
+
+	/**
+	 * Waits until all channels delivered their barrier and returns the recorded bytes of all channels that have
+	 * in-flight data, by channel index.
+	 *
+	 * @throws CancellationException Thrown if the recording was aborted.
+	 */
+	public Map<Integer, byte[]> get() throws InterruptedException, ExecutionException {
+		return completion.get();
+	}
+}
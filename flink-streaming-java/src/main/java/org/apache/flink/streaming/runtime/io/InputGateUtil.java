@@ -19,9 +19,11 @@ package org.apache.flink.streaming.runtime.io;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
 import org.apache.flink.runtime.io.network.partition.consumer.UnionInputGate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -52,6 +54,22 @@ public class InputGateUtil {
 		}
 	}
 
+	/**
+	 * Lets local producers hand over batches of record objects to the given input gates instead of serialized
+	 * buffers. This must be called before the partitions are requested.
+	 */
+	public static void enableObjectBatches(InputGate[] inputGates) {
+		enableObjectBatches(Arrays.asList(inputGates));
+	}
+
+	public static void enableObjectBatches(Collection<InputGate> inputGates) {
+		for (InputGate inputGate : inputGates) {
+			if (inputGate instanceof SingleInputGate) {
+				((SingleInputGate) inputGate).setObjectBatchesEnabled(true);
+			}
+		}
+	}
+
 	/**
 	 * Private constructor to prevent instantiation.
 	 */
@@ -22,6 +22,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
 import org.apache.flink.streaming.api.CheckpointingMode;
 import org.apache.flink.streaming.runtime.tasks.StreamTask;
@@ -40,10 +41,14 @@ public class InputProcessorUtil {
 			CheckpointingMode checkpointMode,
 			IOManager ioManager,
 			InputGate inputGate,
+			RecordDeserializer<?>[] recordDeserializers,
 			Configuration taskManagerConfig) throws IOException {
 
 		CheckpointBarrierHandler barrierHandler;
-		if (checkpointMode == CheckpointingMode.EXACTLY_ONCE) {
+		if (checkpointMode == CheckpointingMode.EXACTLY_ONCE && isUnalignedCheckpointsEnabled(checkpointedTask)) {
+			barrierHandler = new BarrierUnaligner(
+				inputGate, recordDeserializers, checkpointedTask.getRestoredInputChannelState());
+		} else if (checkpointMode == CheckpointingMode.EXACTLY_ONCE) {
 			long maxAlign = taskManagerConfig.getLong(TaskManagerOptions.TASK_CHECKPOINT_ALIGNMENT_BYTES_LIMIT);
 			if (!(maxAlign == -1 || maxAlign > 0)) {
 				throw new IllegalConfigurationException(
@@ -68,4 +73,12 @@ public class InputProcessorUtil {
 
 		return barrierHandler;
 	}
+
+	/**
+	 * Checks whether the given task takes unaligned checkpoints. Unaligned checkpoints persist serialized in-flight
+	 * data, so record objects must not be handed over to such tasks.
+	 */
+	public static boolean isUnalignedCheckpointsEnabled(StreamTask<?, ?> checkpointedTask) {
+		return checkpointedTask != null && checkpointedTask.getConfiguration().isUnalignedCheckpointsEnabled();
+	}
 }
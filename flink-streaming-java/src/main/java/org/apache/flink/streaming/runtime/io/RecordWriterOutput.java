@@ -22,6 +22,7 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.metrics.Gauge;
 import org.apache.flink.runtime.event.AbstractEvent;
 import org.apache.flink.runtime.io.network.api.writer.RecordWriter;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.plugable.SerializationDelegate;
 import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.watermark.Watermark;
@@ -36,6 +37,7 @@ import org.apache.flink.streaming.runtime.tasks.OperatorChain;
 import org.apache.flink.util.OutputTag;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -45,10 +47,15 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
 @Internal
 public class RecordWriterOutput<OUT> implements OperatorChain.WatermarkGaugeExposingOutput<StreamRecord<OUT>> {
 
+	/** The number of records after which an object batch is handed over to a local consumer. */
+	private static final int MAX_OBJECT_BATCH_SIZE = 1024;
+
 	private StreamRecordWriter<SerializationDelegate<StreamElement>> recordWriter;
 
 	private SerializationDelegate<StreamElement> serializationDelegate;
 
+	private final TypeSerializer<StreamElement> outRecordSerializer;
+
 	private final StreamStatusProvider streamStatusProvider;
 
 	private final OutputTag outputTag;
@@ -69,8 +76,7 @@ public class RecordWriterOutput<OUT> implements OperatorChain.WatermarkGaugeExpo
 		this.recordWriter = (StreamRecordWriter<SerializationDelegate<StreamElement>>)
 				(StreamRecordWriter<?>) recordWriter;
 
-		TypeSerializer<StreamElement> outRecordSerializer =
-				new StreamElementSerializer<>(outSerializer);
+		this.outRecordSerializer = new StreamElementSerializer<>(outSerializer);
 
 		if (outSerializer != null) {
 			serializationDelegate = new SerializationDelegate<StreamElement>(outRecordSerializer);
@@ -148,10 +154,30 @@ public class RecordWriterOutput<OUT> implements OperatorChain.WatermarkGaugeExpo
 		}
 	}
 
+	/**
+	 * Hands the elements over as objects to consumers in the same JVM instead of serializing them. Every consumer
+	 * gets its own copy of the elements, because the emitting operator may reuse them.
+	 */
+	public void enableLocalObjectHandover() {
+		if (serializationDelegate != null) {
+			recordWriter.enableObjectBatches(
+				delegate -> outRecordSerializer.copy(delegate.getInstance()), MAX_OBJECT_BATCH_SIZE);
+		}
+	}
+
 	public void broadcastEvent(AbstractEvent event) throws IOException {
 		recordWriter.broadcastEvent(event);
 	}
 
+	/**
+	 * Broadcasts the given event ahead of the queued data, see {@link RecordWriter#broadcastPriorityEvent(AbstractEvent)}.
+	 *
+	 * @return The overtaken buffers per subpartition, which the caller must recycle.
+	 */
+	public List<List<Buffer>> broadcastPriorityEvent(AbstractEvent event) throws IOException {
+		return recordWriter.broadcastPriorityEvent(event);
+	}
+
 	public void flush() throws IOException {
 		recordWriter.flushAll();
 	}
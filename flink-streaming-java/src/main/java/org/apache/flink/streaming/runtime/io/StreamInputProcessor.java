@@ -21,11 +21,13 @@ package org.apache.flink.streaming.runtime.io;
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.metrics.Counter;
 import org.apache.flink.metrics.SimpleCounter;
 import org.apache.flink.runtime.event.AbstractEvent;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.ObjectBatchEvent;
 import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer;
 import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer.DeserializationResult;
 import org.apache.flink.runtime.io.network.api.serialization.SpillingAdaptiveSpanningRecordDeserializer;
@@ -37,12 +39,14 @@ import org.apache.flink.runtime.metrics.groups.TaskIOMetricGroup;
 import org.apache.flink.runtime.plugable.DeserializationDelegate;
 import org.apache.flink.runtime.plugable.NonReusingDeserializationDelegate;
 import org.apache.flink.streaming.api.CheckpointingMode;
+import org.apache.flink.streaming.api.operators.BatchingOneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.metrics.WatermarkGauge;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
 import org.apache.flink.streaming.runtime.streamstatus.StatusWatermarkValve;
 import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
 import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
@@ -51,9 +55,14 @@ import org.apache.flink.streaming.runtime.tasks.StreamTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
 
 /**
  * Input reader for {@link org.apache.flink.streaming.runtime.tasks.OneInputStreamTask}.
@@ -63,9 +72,13 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * {@link StatusWatermarkValve} determines the {@link Watermark} from all inputs has advanced, or
  * that a {@link StreamStatus} needs to be propagated downstream to denote a status change.
  *
- * <p>Forwarding elements, watermarks, or status status elements must be protected by synchronizing
- * on the given lock object. This ensures that we don't call methods on a
- * {@link OneInputStreamOperator} concurrently with the timer callback or other things.
+ * <p>The input is processed in batches of records by the task thread, which holds the checkpoint lock
+ * for the whole batch. This ensures that we don't call methods on a {@link OneInputStreamOperator}
+ * concurrently with the timer callback or other things, without entering the lock for every record.
+ *
+ * <p>If the head operator is a {@link BatchingOneInputStreamOperator} and batch processing is enabled
+ * (see {@link TaskManagerOptions#TASK_RECORD_BATCH_SIZE}), the records of a buffer are handed to the
+ * operator as one {@link StreamRecordBatch} instead of one by one.
  *
  * @param <IN> The type of the record that can be read with this record reader.
  */
@@ -80,9 +93,12 @@ public class StreamInputProcessor<IN> {
 
 	private final DeserializationDelegate<StreamElement> deserializationDelegate;
 
-	private final CheckpointBarrierHandler barrierHandler;
+	/** The remaining elements of the object batch that is currently processed, if any. */
+	private Iterator<?> currentObjectBatch;
 
-	private final Object lock;
+	private final InputGate inputGate;
+
+	private final CheckpointBarrierHandler barrierHandler;
 
 	// ---------------- Status and Watermark Valve ------------------
 
@@ -102,6 +118,14 @@ public class StreamInputProcessor<IN> {
 
 	private final OneInputStreamOperator<IN, ?> streamOperator;
 
+	/** The head operator if it processes batches and batch processing is enabled, otherwise null. */
+	@Nullable
+	private final BatchingOneInputStreamOperator<IN, ?> batchingOperator;
+
+	/** The records that are collected for the batching head operator, or null. */
+	@Nullable
+	private final StreamRecordBatch<IN> recordBatch;
+
 	// ---------------- Metrics ------------------
 
 	private final WatermarkGauge watermarkGauge;
@@ -115,7 +139,6 @@ public class StreamInputProcessor<IN> {
 			TypeSerializer<IN> inputSerializer,
 			StreamTask<?, ?> checkpointedTask,
 			CheckpointingMode checkpointMode,
-			Object lock,
 			IOManager ioManager,
 			Configuration taskManagerConfig,
 			StreamStatusMaintainer streamStatusMaintainer,
@@ -123,12 +146,12 @@ public class StreamInputProcessor<IN> {
 			TaskIOMetricGroup metrics,
 			WatermarkGauge watermarkGauge) throws IOException {
 
-		InputGate inputGate = InputGateUtil.createInputGate(inputGates);
-
-		this.barrierHandler = InputProcessorUtil.createCheckpointBarrierHandler(
-			checkpointedTask, checkpointMode, ioManager, inputGate, taskManagerConfig);
+		if (checkpointedTask.getExecutionConfig().isLocalObjectHandoverEnabled()
+				&& !InputProcessorUtil.isUnalignedCheckpointsEnabled(checkpointedTask)) {
+			InputGateUtil.enableObjectBatches(inputGates);
+		}
 
-		this.lock = checkNotNull(lock);
+		this.inputGate = InputGateUtil.createInputGate(inputGates);
 
 		StreamElementSerializer<IN> ser = new StreamElementSerializer<>(inputSerializer);
 		this.deserializationDelegate = new NonReusingDeserializationDelegate<>(ser);
@@ -141,22 +164,51 @@ public class StreamInputProcessor<IN> {
 				ioManager.getSpillingDirectoriesPaths());
 		}
 
+		this.barrierHandler = InputProcessorUtil.createCheckpointBarrierHandler(
+			checkpointedTask, checkpointMode, ioManager, inputGate, recordDeserializers, taskManagerConfig);
+
 		this.numInputChannels = inputGate.getNumberOfInputChannels();
 
 		this.streamStatusMaintainer = checkNotNull(streamStatusMaintainer);
 		this.streamOperator = checkNotNull(streamOperator);
 
+		final int recordBatchSize = taskManagerConfig.getInteger(TaskManagerOptions.TASK_RECORD_BATCH_SIZE);
+		if (recordBatchSize > 1 && streamOperator instanceof BatchingOneInputStreamOperator) {
+			this.batchingOperator = (BatchingOneInputStreamOperator<IN, ?>) streamOperator;
+			this.recordBatch = new StreamRecordBatch<>(recordBatchSize);
+		} else {
+			this.batchingOperator = null;
+			this.recordBatch = null;
+		}
+
 		this.statusWatermarkValve = new StatusWatermarkValve(
 				numInputChannels,
-				new ForwardingValveOutputHandler(streamOperator, lock));
+				new ForwardingValveOutputHandler(streamOperator));
 
 		this.watermarkGauge = watermarkGauge;
 		metrics.gauge("checkpointAlignmentTime", barrierHandler::getAlignmentDurationNanos);
 	}
 
-	public boolean processInput() throws Exception {
+	/**
+	 * Registers a listener that is called once new input becomes available after {@link #processInput(int)}
+	 * returned {@link InputStatus#NOTHING_AVAILABLE}. The listener is called by the network threads.
+	 */
+	public void registerAvailabilityListener(Runnable listener) {
+		checkNotNull(listener);
+		inputGate.registerListener(gate -> listener.run());
+	}
+
+	/**
+	 * Processes the input that is available without blocking, until the given number of records was
+	 * processed. The caller has to hold the checkpoint lock.
+	 *
+	 * @param maxRecords The number of records after which the call returns, so that the task thread can
+	 *                   run other actions in between.
+	 * @return The status of the input after this batch.
+	 */
+	public InputStatus processInput(int maxRecords) throws Exception {
 		if (isFinished) {
-			return false;
+			return InputStatus.END_OF_INPUT;
 		}
 		if (numRecordsIn == null) {
 			try {
@@ -167,7 +219,18 @@ public class StreamInputProcessor<IN> {
 			}
 		}
 
-		while (true) {
+		int numRecords = 0;
+		while (numRecords < maxRecords) {
+			if (currentObjectBatch != null) {
+				if (currentObjectBatch.hasNext()) {
+					if (processElement((StreamElement) currentObjectBatch.next())) {
+						numRecords++;
+					}
+					continue;
+				}
+				currentObjectBatch = null;
+			}
+
 			if (currentRecordDeserializer != null) {
 				DeserializationResult result = currentRecordDeserializer.getNextRecord(deserializationDelegate);
 
@@ -177,36 +240,17 @@ public class StreamInputProcessor<IN> {
 				}
 
 				if (result.isFullRecord()) {
-					StreamElement recordOrMark = deserializationDelegate.getInstance();
-
-					if (recordOrMark.isWatermark()) {
-						// handle watermark
-						statusWatermarkValve.inputWatermark(recordOrMark.asWatermark(), currentChannel);
-						continue;
-					} else if (recordOrMark.isStreamStatus()) {
-						// handle stream status
-						statusWatermarkValve.inputStreamStatus(recordOrMark.asStreamStatus(), currentChannel);
-						continue;
-					} else if (recordOrMark.isLatencyMarker()) {
-						// handle latency marker
-						synchronized (lock) {
-							streamOperator.processLatencyMarker(recordOrMark.asLatencyMarker());
-						}
-						continue;
-					} else {
-						// now we can do the actual processing
-						StreamRecord<IN> record = recordOrMark.asRecord();
-						synchronized (lock) {
-							numRecordsIn.inc();
-							streamOperator.setKeyContextElement1(record);
-							streamOperator.processElement(record);
-						}
-						return true;
+					if (processElement(deserializationDelegate.getInstance())) {
+						numRecords++;
 					}
+					continue;
 				}
 			}
 
-			final BufferOrEvent bufferOrEvent = barrierHandler.getNextNonBlocked();
+			// hand the records of the previous buffer on before the barrier handler may trigger a checkpoint
+			processRecordBatch();
+
+			final BufferOrEvent bufferOrEvent = barrierHandler.pollNext();
 			if (bufferOrEvent != null) {
 				if (bufferOrEvent.isBuffer()) {
 					currentChannel = bufferOrEvent.getChannelIndex();
@@ -216,19 +260,89 @@ public class StreamInputProcessor<IN> {
 				else {
 					// Event received
 					final AbstractEvent event = bufferOrEvent.getEvent();
-					if (event.getClass() != EndOfPartitionEvent.class) {
+					if (event.getClass() == ObjectBatchEvent.class) {
+						currentChannel = bufferOrEvent.getChannelIndex();
+						final List<?> objectBatch = inputGate.pollObjectBatch(currentChannel);
+						checkState(objectBatch != null, "No object batch for channel %s.", currentChannel);
+						currentObjectBatch = objectBatch.iterator();
+					}
+					else if (event.getClass() != EndOfPartitionEvent.class) {
 						throw new IOException("Unexpected event: " + event);
 					}
 				}
 			}
-			else {
+			else if (inputGate.isFinished()) {
 				isFinished = true;
 				if (!barrierHandler.isEmpty()) {
 					throw new IllegalStateException("Trailing data in checkpoint barrier handler.");
 				}
-				return false;
+				return InputStatus.END_OF_INPUT;
+			}
+			else {
+				return InputStatus.NOTHING_AVAILABLE;
 			}
 		}
+
+		processRecordBatch();
+		return InputStatus.MORE_AVAILABLE;
+	}
+
+	/**
+	 * Processes a deserialized or handed over element from the current channel.
+	 *
+	 * @return true if the element was a record.
+	 */
+	private boolean processElement(StreamElement recordOrMark) throws Exception {
+		if (!recordOrMark.isRecord()) {
+			// keep the order of records and other elements
+			processRecordBatch();
+		}
+
+		if (recordOrMark.isWatermark()) {
+			// handle watermark
+			statusWatermarkValve.inputWatermark(recordOrMark.asWatermark(), currentChannel);
+			return false;
+		} else if (recordOrMark.isStreamStatus()) {
+			// handle stream status
+			statusWatermarkValve.inputStreamStatus(recordOrMark.asStreamStatus(), currentChannel);
+			return false;
+		} else if (recordOrMark.isLatencyMarker()) {
+			// handle latency marker
+			streamOperator.processLatencyMarker(recordOrMark.asLatencyMarker());
+			return false;
+		} else {
+			// now we can do the actual processing
+			StreamRecord<IN> record = recordOrMark.asRecord();
+			numRecordsIn.inc();
+			if (recordBatch != null) {
+				recordBatch.add(record);
+				if (recordBatch.isFull()) {
+					processRecordBatch();
+				}
+			} else {
+				streamOperator.setKeyContextElement1(record);
+				streamOperator.processElement(record);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Hands the collected records to the batching head operator, if there are any.
+	 */
+	private void processRecordBatch() throws Exception {
+		if (recordBatch != null && !recordBatch.isEmpty()) {
+			batchingOperator.processBatch(recordBatch);
+			recordBatch.clear();
+		}
+	}
+
+	/**
+	 * Hands the in-flight input data of the given unaligned checkpoint over to the task, see
+	 * {@link CheckpointBarrierHandler#takeInputChannelRecording(long)}.
+	 */
+	public InputChannelRecording takeInputChannelRecording(long checkpointId) {
+		return barrierHandler.takeInputChannelRecording(checkpointId);
 	}
 
 	public void cleanup() throws IOException {
@@ -247,20 +361,16 @@ public class StreamInputProcessor<IN> {
 
 	private class ForwardingValveOutputHandler implements StatusWatermarkValve.ValveOutputHandler {
 		private final OneInputStreamOperator<IN, ?> operator;
-		private final Object lock;
 
-		private ForwardingValveOutputHandler(final OneInputStreamOperator<IN, ?> operator, final Object lock) {
+		private ForwardingValveOutputHandler(final OneInputStreamOperator<IN, ?> operator) {
 			this.operator = checkNotNull(operator);
-			this.lock = checkNotNull(lock);
 		}
 
 		@Override
 		public void handleWatermark(Watermark watermark) {
 			try {
-				synchronized (lock) {
-					watermarkGauge.setCurrentWatermark(watermark.getTimestamp());
-					operator.processWatermark(watermark);
-				}
+				watermarkGauge.setCurrentWatermark(watermark.getTimestamp());
+				operator.processWatermark(watermark);
 			} catch (Exception e) {
 				throw new RuntimeException("Exception occurred while processing valve output watermark: ", e);
 			}
@@ -270,9 +380,7 @@ public class StreamInputProcessor<IN> {
 		@Override
 		public void handleStreamStatus(StreamStatus streamStatus) {
 			try {
-				synchronized (lock) {
-					streamStatusMaintainer.toggleStreamStatus(streamStatus);
-				}
+				streamStatusMaintainer.toggleStreamStatus(streamStatus);
 			} catch (Exception e) {
 				throw new RuntimeException("Exception occurred while processing valve output stream status: ", e);
 			}
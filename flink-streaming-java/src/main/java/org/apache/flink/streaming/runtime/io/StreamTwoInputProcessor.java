@@ -26,6 +26,7 @@ import org.apache.flink.metrics.SimpleCounter;
 import org.apache.flink.runtime.event.AbstractEvent;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.ObjectBatchEvent;
 import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer;
 import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer.DeserializationResult;
 import org.apache.flink.runtime.io.network.api.serialization.SpillingAdaptiveSpanningRecordDeserializer;
@@ -53,8 +54,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
 
 /**
  * Input reader for {@link org.apache.flink.streaming.runtime.tasks.TwoInputStreamTask}.
@@ -64,9 +68,9 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * {@link StatusWatermarkValve} determines the watermarks from all inputs has advanced, or changes
  * the task's {@link StreamStatus} once status change is toggled.
  *
- * <p>Forwarding elements, watermarks, or status status elements must be protected by synchronizing
- * on the given lock object. This ensures that we don't call methods on a
- * {@link TwoInputStreamOperator} concurrently with the timer callback or other things.
+ * <p>The input is processed in batches of records by the task thread, which holds the checkpoint lock
+ * for the whole batch. This ensures that we don't call methods on a {@link TwoInputStreamOperator}
+ * concurrently with the timer callback or other things, without entering the lock for every record.
  *
  * @param <IN1> The type of the records that arrive on the first input
  * @param <IN2> The type of the records that arrive on the second input
@@ -83,9 +87,12 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 	private final DeserializationDelegate<StreamElement> deserializationDelegate1;
 	private final DeserializationDelegate<StreamElement> deserializationDelegate2;
 
-	private final CheckpointBarrierHandler barrierHandler;
+	/** The remaining elements of the object batch that is currently processed, if any. */
+	private Iterator<?> currentObjectBatch;
+
+	private final InputGate inputGate;
 
-	private final Object lock;
+	private final CheckpointBarrierHandler barrierHandler;
 
 	// ---------------- Status and Watermark Valves ------------------
 
@@ -133,7 +140,6 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 			TypeSerializer<IN2> inputSerializer2,
 			TwoInputStreamTask<IN1, IN2, ?> checkpointedTask,
 			CheckpointingMode checkpointMode,
-			Object lock,
 			IOManager ioManager,
 			Configuration taskManagerConfig,
 			StreamStatusMaintainer streamStatusMaintainer,
@@ -142,12 +148,13 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 			WatermarkGauge input1WatermarkGauge,
 			WatermarkGauge input2WatermarkGauge) throws IOException {
 
-		final InputGate inputGate = InputGateUtil.createInputGate(inputGates1, inputGates2);
-
-		this.barrierHandler = InputProcessorUtil.createCheckpointBarrierHandler(
-			checkpointedTask, checkpointMode, ioManager, inputGate, taskManagerConfig);
+		if (checkpointedTask.getExecutionConfig().isLocalObjectHandoverEnabled()
+				&& !InputProcessorUtil.isUnalignedCheckpointsEnabled(checkpointedTask)) {
+			InputGateUtil.enableObjectBatches(inputGates1);
+			InputGateUtil.enableObjectBatches(inputGates2);
+		}
 
-		this.lock = checkNotNull(lock);
+		this.inputGate = InputGateUtil.createInputGate(inputGates1, inputGates2);
 
 		StreamElementSerializer<IN1> ser1 = new StreamElementSerializer<>(inputSerializer1);
 		this.deserializationDelegate1 = new NonReusingDeserializationDelegate<>(ser1);
@@ -163,6 +170,9 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 				ioManager.getSpillingDirectoriesPaths());
 		}
 
+		this.barrierHandler = InputProcessorUtil.createCheckpointBarrierHandler(
+			checkpointedTask, checkpointMode, ioManager, inputGate, recordDeserializers, taskManagerConfig);
+
 		// determine which unioned channels belong to input 1 and which belong to input 2
 		int numInputChannels1 = 0;
 		for (InputGate gate: inputGates1) {
@@ -178,17 +188,34 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		this.streamStatusMaintainer = checkNotNull(streamStatusMaintainer);
 		this.streamOperator = checkNotNull(streamOperator);
 
-		this.statusWatermarkValve1 = new StatusWatermarkValve(numInputChannels1, new ForwardingValveOutputHandler1(streamOperator, lock));
-		this.statusWatermarkValve2 = new StatusWatermarkValve(numInputChannels2, new ForwardingValveOutputHandler2(streamOperator, lock));
+		this.statusWatermarkValve1 = new StatusWatermarkValve(numInputChannels1, new ForwardingValveOutputHandler1(streamOperator));
+		this.statusWatermarkValve2 = new StatusWatermarkValve(numInputChannels2, new ForwardingValveOutputHandler2(streamOperator));
 
 		this.input1WatermarkGauge = input1WatermarkGauge;
 		this.input2WatermarkGauge = input2WatermarkGauge;
 		metrics.gauge("checkpointAlignmentTime", barrierHandler::getAlignmentDurationNanos);
 	}
 
-	public boolean processInput() throws Exception {
+	/**
+	 * Registers a listener that is called once new input becomes available after {@link #processInput(int)}
+	 * returned {@link InputStatus#NOTHING_AVAILABLE}. The listener is called by the network threads.
+	 */
+	public void registerAvailabilityListener(Runnable listener) {
+		checkNotNull(listener);
+		inputGate.registerListener(gate -> listener.run());
+	}
+
+	/**
+	 * Processes the input that is available without blocking, until the given number of records was
+	 * processed. The caller has to hold the checkpoint lock.
+	 *
+	 * @param maxRecords The number of records after which the call returns, so that the task thread can
+	 *                   run other actions in between.
+	 * @return The status of the input after this batch.
+	 */
+	public InputStatus processInput(int maxRecords) throws Exception {
 		if (isFinished) {
-			return false;
+			return InputStatus.END_OF_INPUT;
 		}
 		if (numRecordsIn == null) {
 			try {
@@ -199,7 +226,18 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 			}
 		}
 
-		while (true) {
+		int numRecords = 0;
+		while (numRecords < maxRecords) {
+			if (currentObjectBatch != null) {
+				if (currentObjectBatch.hasNext()) {
+					if (processElement((StreamElement) currentObjectBatch.next())) {
+						numRecords++;
+					}
+					continue;
+				}
+				currentObjectBatch = null;
+			}
+
 			if (currentRecordDeserializer != null) {
 				DeserializationResult result;
 				if (currentChannel < numInputChannels1) {
@@ -214,63 +252,16 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 				}
 
 				if (result.isFullRecord()) {
-					if (currentChannel < numInputChannels1) {
-						StreamElement recordOrWatermark = deserializationDelegate1.getInstance();
-						if (recordOrWatermark.isWatermark()) {
-							statusWatermarkValve1.inputWatermark(recordOrWatermark.asWatermark(), currentChannel);
-							continue;
-						}
-						else if (recordOrWatermark.isStreamStatus()) {
-							statusWatermarkValve1.inputStreamStatus(recordOrWatermark.asStreamStatus(), currentChannel);
-							continue;
-						}
-						else if (recordOrWatermark.isLatencyMarker()) {
-							synchronized (lock) {
-								streamOperator.processLatencyMarker1(recordOrWatermark.asLatencyMarker());
-							}
-							continue;
-						}
-						else {
-							StreamRecord<IN1> record = recordOrWatermark.asRecord();
-							synchronized (lock) {
-								numRecordsIn.inc();
-								streamOperator.setKeyContextElement1(record);
-								streamOperator.processElement1(record);
-							}
-							return true;
-
-						}
-					}
-					else {
-						StreamElement recordOrWatermark = deserializationDelegate2.getInstance();
-						if (recordOrWatermark.isWatermark()) {
-							statusWatermarkValve2.inputWatermark(recordOrWatermark.asWatermark(), currentChannel - numInputChannels1);
-							continue;
-						}
-						else if (recordOrWatermark.isStreamStatus()) {
-							statusWatermarkValve2.inputStreamStatus(recordOrWatermark.asStreamStatus(), currentChannel - numInputChannels1);
-							continue;
-						}
-						else if (recordOrWatermark.isLatencyMarker()) {
-							synchronized (lock) {
-								streamOperator.processLatencyMarker2(recordOrWatermark.asLatencyMarker());
-							}
-							continue;
-						}
-						else {
-							StreamRecord<IN2> record = recordOrWatermark.asRecord();
-							synchronized (lock) {
-								numRecordsIn.inc();
-								streamOperator.setKeyContextElement2(record);
-								streamOperator.processElement2(record);
-							}
-							return true;
-						}
+					StreamElement recordOrWatermark = currentChannel < numInputChannels1 ?
+						deserializationDelegate1.getInstance() : deserializationDelegate2.getInstance();
+					if (processElement(recordOrWatermark)) {
+						numRecords++;
 					}
+					continue;
 				}
 			}
 
-			final BufferOrEvent bufferOrEvent = barrierHandler.getNextNonBlocked();
+			final BufferOrEvent bufferOrEvent = barrierHandler.pollNext();
 			if (bufferOrEvent != null) {
 
 				if (bufferOrEvent.isBuffer()) {
@@ -281,21 +272,90 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 				} else {
 					// Event received
 					final AbstractEvent event = bufferOrEvent.getEvent();
-					if (event.getClass() != EndOfPartitionEvent.class) {
+					if (event.getClass() == ObjectBatchEvent.class) {
+						currentChannel = bufferOrEvent.getChannelIndex();
+						final List<?> objectBatch = inputGate.pollObjectBatch(currentChannel);
+						checkState(objectBatch != null, "No object batch for channel %s.", currentChannel);
+						currentObjectBatch = objectBatch.iterator();
+					}
+					else if (event.getClass() != EndOfPartitionEvent.class) {
 						throw new IOException("Unexpected event: " + event);
 					}
 				}
 			}
-			else {
+			else if (inputGate.isFinished()) {
 				isFinished = true;
 				if (!barrierHandler.isEmpty()) {
 					throw new IllegalStateException("Trailing data in checkpoint barrier handler.");
 				}
+				return InputStatus.END_OF_INPUT;
+			}
+			else {
+				return InputStatus.NOTHING_AVAILABLE;
+			}
+		}
+
+		return InputStatus.MORE_AVAILABLE;
+	}
+
+	/**
+	 * Processes a deserialized or handed over element from the current channel.
+	 *
+	 * @return true if the element was a record.
+	 */
+	private boolean processElement(StreamElement recordOrWatermark) throws Exception {
+		if (currentChannel < numInputChannels1) {
+			if (recordOrWatermark.isWatermark()) {
+				statusWatermarkValve1.inputWatermark(recordOrWatermark.asWatermark(), currentChannel);
 				return false;
 			}
+			else if (recordOrWatermark.isStreamStatus()) {
+				statusWatermarkValve1.inputStreamStatus(recordOrWatermark.asStreamStatus(), currentChannel);
+				return false;
+			}
+			else if (recordOrWatermark.isLatencyMarker()) {
+				streamOperator.processLatencyMarker1(recordOrWatermark.asLatencyMarker());
+				return false;
+			}
+			else {
+				StreamRecord<IN1> record = recordOrWatermark.asRecord();
+				numRecordsIn.inc();
+				streamOperator.setKeyContextElement1(record);
+				streamOperator.processElement1(record);
+				return true;
+			}
+		}
+		else {
+			if (recordOrWatermark.isWatermark()) {
+				statusWatermarkValve2.inputWatermark(recordOrWatermark.asWatermark(), currentChannel - numInputChannels1);
+				return false;
+			}
+			else if (recordOrWatermark.isStreamStatus()) {
+				statusWatermarkValve2.inputStreamStatus(recordOrWatermark.asStreamStatus(), currentChannel - numInputChannels1);
+				return false;
+			}
+			else if (recordOrWatermark.isLatencyMarker()) {
+				streamOperator.processLatencyMarker2(recordOrWatermark.asLatencyMarker());
+				return false;
+			}
+			else {
+				StreamRecord<IN2> record = recordOrWatermark.asRecord();
+				numRecordsIn.inc();
+				streamOperator.setKeyContextElement2(record);
+				streamOperator.processElement2(record);
+				return true;
+			}
 		}
 	}
 
+	/**
+	 * Hands the in-flight input data of the given unaligned checkpoint over to the task, see
+	 * {@link CheckpointBarrierHandler#takeInputChannelRecording(long)}.
+	 */
+	public InputChannelRecording takeInputChannelRecording(long checkpointId) {
+		return barrierHandler.takeInputChannelRecording(checkpointId);
+	}
+
 	public void cleanup() throws IOException {
 		// clear the buffers first. this part should not ever fail
 		for (RecordDeserializer<?> deserializer : recordDeserializers) {
@@ -312,20 +372,16 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 
 	private class ForwardingValveOutputHandler1 implements StatusWatermarkValve.ValveOutputHandler {
 		private final TwoInputStreamOperator<IN1, IN2, ?> operator;
-		private final Object lock;
 
-		private ForwardingValveOutputHandler1(final TwoInputStreamOperator<IN1, IN2, ?> operator, final Object lock) {
+		private ForwardingValveOutputHandler1(final TwoInputStreamOperator<IN1, IN2, ?> operator) {
 			this.operator = checkNotNull(operator);
-			this.lock = checkNotNull(lock);
 		}
 
 		@Override
 		public void handleWatermark(Watermark watermark) {
 			try {
-				synchronized (lock) {
-					input1WatermarkGauge.setCurrentWatermark(watermark.getTimestamp());
-					operator.processWatermark1(watermark);
-				}
+				input1WatermarkGauge.setCurrentWatermark(watermark.getTimestamp());
+				operator.processWatermark1(watermark);
 			} catch (Exception e) {
 				throw new RuntimeException("Exception occurred while processing valve output watermark: ", e);
 			}
@@ -334,18 +390,16 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		@Override
 		public void handleStreamStatus(StreamStatus streamStatus) {
 			try {
-				synchronized (lock) {
-					firstStatus = streamStatus;
-
-					// check if we need to toggle the task's stream status
-					if (!streamStatus.equals(streamStatusMaintainer.getStreamStatus())) {
-						if (streamStatus.isActive()) {
-							// we're no longer idle if at least one input has become active
-							streamStatusMaintainer.toggleStreamStatus(StreamStatus.ACTIVE);
-						} else if (secondStatus.isIdle()) {
-							// we're idle once both inputs are idle
-							streamStatusMaintainer.toggleStreamStatus(StreamStatus.IDLE);
-						}
+				firstStatus = streamStatus;
+
+				// check if we need to toggle the task's stream status
+				if (!streamStatus.equals(streamStatusMaintainer.getStreamStatus())) {
+					if (streamStatus.isActive()) {
+						// we're no longer idle if at least one input has become active
+						streamStatusMaintainer.toggleStreamStatus(StreamStatus.ACTIVE);
+					} else if (secondStatus.isIdle()) {
+						// we're idle once both inputs are idle
+						streamStatusMaintainer.toggleStreamStatus(StreamStatus.IDLE);
 					}
 				}
 			} catch (Exception e) {
@@ -356,20 +410,16 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 
 	private class ForwardingValveOutputHandler2 implements StatusWatermarkValve.ValveOutputHandler {
 		private final TwoInputStreamOperator<IN1, IN2, ?> operator;
-		private final Object lock;
 
-		private ForwardingValveOutputHandler2(final TwoInputStreamOperator<IN1, IN2, ?> operator, final Object lock) {
+		private ForwardingValveOutputHandler2(final TwoInputStreamOperator<IN1, IN2, ?> operator) {
 			this.operator = checkNotNull(operator);
-			this.lock = checkNotNull(lock);
 		}
 
 		@Override
 		public void handleWatermark(Watermark watermark) {
 			try {
-				synchronized (lock) {
-					input2WatermarkGauge.setCurrentWatermark(watermark.getTimestamp());
-					operator.processWatermark2(watermark);
-				}
+				input2WatermarkGauge.setCurrentWatermark(watermark.getTimestamp());
+				operator.processWatermark2(watermark);
 			} catch (Exception e) {
 				throw new RuntimeException("Exception occurred while processing valve output watermark: ", e);
 			}
@@ -378,18 +428,16 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		@Override
 		public void handleStreamStatus(StreamStatus streamStatus) {
 			try {
-				synchronized (lock) {
-					secondStatus = streamStatus;
-
-					// check if we need to toggle the task's stream status
-					if (!streamStatus.equals(streamStatusMaintainer.getStreamStatus())) {
-						if (streamStatus.isActive()) {
-							// we're no longer idle if at least one input has become active
-							streamStatusMaintainer.toggleStreamStatus(StreamStatus.ACTIVE);
-						} else if (firstStatus.isIdle()) {
-							// we're idle once both inputs are idle
-							streamStatusMaintainer.toggleStreamStatus(StreamStatus.IDLE);
-						}
+				secondStatus = streamStatus;
+
+				// check if we need to toggle the task's stream status
+				if (!streamStatus.equals(streamStatusMaintainer.getStreamStatus())) {
+					if (streamStatus.isActive()) {
+						// we're no longer idle if at least one input has become active
+						streamStatusMaintainer.toggleStreamStatus(StreamStatus.ACTIVE);
+					} else if (firstStatus.isIdle()) {
+						// we're idle once both inputs are idle
+						streamStatusMaintainer.toggleStreamStatus(StreamStatus.IDLE);
 					}
 				}
 			} catch (Exception e) {
@@ -19,6 +19,7 @@
 package org.apache.flink.streaming.runtime.operators.windowing;
 
 import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.MapState;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.streaming.api.windowing.assigners.MergingWindowAssigner;
 import org.apache.flink.streaming.api.windowing.windows.Window;
@@ -26,6 +27,8 @@ import org.apache.flink.streaming.api.windowing.windows.Window;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -49,6 +52,11 @@ import java.util.Map;
  *
  * <p>Windows can be removed from the set of windows using {@link #retireWindow(Window)}.
  *
+ * <p>The mapping is either kept as a whole in a {@link ListState}, which is rewritten whenever
+ * the mapping changes, or in a {@link MapState}, where {@link #persist()} only writes the
+ * entries that changed. With a {@code MapState}, the mapping is only read completely when a
+ * window is added; looking up or retiring a single window accesses a single entry.
+ *
  * @param <W> The type of {@code Window} that this set is keeping track of.
  */
 public class MergingWindowSet<W extends Window> {
@@ -68,8 +76,20 @@ public class MergingWindowSet<W extends Window> {
 	 */
 	private final Map<W, W> initialMapping;
 
+	/** The state that keeps the mapping as a whole, or the legacy state if {@link #mapState} is set. */
+	@Nullable
 	private final ListState<Tuple2<W, W>> state;
 
+	/** The state that keeps the mapping entry by entry, or null if the mapping is kept in {@link #state}. */
+	@Nullable
+	private final MapState<W, W> mapState;
+
+	/** Whether {@link #mapping} holds the complete mapping. */
+	private boolean loaded;
+
+	/** Whether {@link #mapping} was read from the legacy state, which is cleared on the next persist. */
+	private boolean readFromLegacyState;
+
 	/**
 	 * Our window assigner.
 	 */
@@ -90,17 +110,58 @@ public class MergingWindowSet<W extends Window> {
 		}
 
 		this.state = state;
+		this.mapState = null;
+		this.loaded = true;
 
 		initialMapping = new HashMap<>();
 		initialMapping.putAll(mapping);
 	}
 
+	/**
+	 * Restores a {@link MergingWindowSet} from the given map state. The mapping is read lazily.
+	 *
+	 * <p>If the map state holds no mapping, a mapping in the given legacy list state is moved
+	 * into the map state on the next {@link #persist()}. This way, state that was written by
+	 * the list state variant is picked up.
+	 */
+	public MergingWindowSet(
+			MergingWindowAssigner<?, W> windowAssigner,
+			MapState<W, W> mapState,
+			@Nullable ListState<Tuple2<W, W>> legacyState) {
+		this.windowAssigner = windowAssigner;
+		this.mapping = new HashMap<>();
+		this.initialMapping = new HashMap<>();
+		this.state = legacyState;
+		this.mapState = mapState;
+		this.loaded = false;
+	}
+
 	/**
 	 * Persist the updated mapping to the given state if the mapping changed since
 	 * initialization.
 	 */
 	public void persist() throws Exception {
-		if (!mapping.equals(initialMapping)) {
+		if (mapState != null) {
+			// without the complete mapping, all changes were already written through
+			if (loaded) {
+				if (readFromLegacyState) {
+					state.clear();
+					readFromLegacyState = false;
+				}
+				for (W window : initialMapping.keySet()) {
+					if (!mapping.containsKey(window)) {
+						mapState.remove(window);
+					}
+				}
+				for (Map.Entry<W, W> window : mapping.entrySet()) {
+					if (!window.getValue().equals(initialMapping.get(window.getKey()))) {
+						mapState.put(window.getKey(), window.getValue());
+					}
+				}
+				initialMapping.clear();
+				initialMapping.putAll(mapping);
+			}
+		} else if (!mapping.equals(initialMapping)) {
 			state.clear();
 			for (Map.Entry<W, W> window : mapping.entrySet()) {
 				state.add(new Tuple2<>(window.getKey(), window.getValue()));
@@ -108,6 +169,37 @@ public class MergingWindowSet<W extends Window> {
 		}
 	}
 
+	/**
+	 * Reads the complete mapping from the map state, or from the legacy list state if the map
+	 * state holds no mapping.
+	 */
+	private void ensureLoaded() throws Exception {
+		if (loaded) {
+			return;
+		}
+
+		Iterable<Map.Entry<W, W>> entries = mapState.entries();
+		if (entries != null) {
+			for (Map.Entry<W, W> window : entries) {
+				mapping.put(window.getKey(), window.getValue());
+			}
+		}
+		initialMapping.putAll(mapping);
+
+		if (mapping.isEmpty() && state != null) {
+			Iterable<Tuple2<W, W>> legacyWindows = state.get();
+			if (legacyWindows != null) {
+				for (Tuple2<W, W> window : legacyWindows) {
+					mapping.put(window.f0, window.f1);
+				}
+				// the entries are not in the initial mapping, so the next persist() writes them
+				readFromLegacyState = !mapping.isEmpty();
+			}
+		}
+
+		loaded = true;
+	}
+
 	/**
 	 * Returns the state window for the given in-flight {@code Window}. The state window is the
 	 * {@code Window} in which we keep the actual state of a given in-flight window. Windows
@@ -116,7 +208,14 @@ public class MergingWindowSet<W extends Window> {
 	 *
 	 * @param window The window for which to get the state window.
 	 */
-	public W getStateWindow(W window) {
+	public W getStateWindow(W window) throws Exception {
+		if (!loaded) {
+			W stateWindow = mapState.get(window);
+			if (stateWindow != null) {
+				return stateWindow;
+			}
+			ensureLoaded();
+		}
 		return mapping.get(window);
 	}
 
@@ -125,7 +224,15 @@ public class MergingWindowSet<W extends Window> {
 	 *
 	 * @param window The {@code Window} to remove.
 	 */
-	public void retireWindow(W window) {
+	public void retireWindow(W window) throws Exception {
+		if (!loaded) {
+			if (mapState.contains(window)) {
+				mapState.remove(window);
+				return;
+			}
+			ensureLoaded();
+		}
+
 		W removed = this.mapping.remove(window);
 		if (removed == null) {
 			throw new IllegalStateException("Window " + window + " is not in in-flight window set.");
@@ -155,6 +262,8 @@ public class MergingWindowSet<W extends Window> {
 	 */
 	public W addWindow(W newWindow, MergeFunction<W> mergeFunction) throws Exception {
 
+		ensureLoaded();
+
 		List<W> windows = new ArrayList<>();
 
 		windows.addAll(this.mapping.keySet());
@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.operators.windowing;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.AppendingState;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.runtime.state.internal.InternalAppendingState;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
+import org.apache.flink.streaming.api.windowing.triggers.Trigger;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
+import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalWindowFunction;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.util.OutputTag;
+
+import javax.annotation.Nullable;
+
+import java.io.Serializable;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link WindowOperator} for sliding time windows with a pre-aggregating function that keeps one
+ * accumulator per pane instead of one per window.
+ *
+ * <p>A pane is a slice of time of the size of the greatest common divisor of window size and slide, so
+ * that every window consists of whole panes. An element is added to the accumulator of its pane only,
+ * instead of to the accumulators of all {@code size / slide} windows that contain it. When a window
+ * fires, the accumulators of its panes are merged with the {@link PaneCombiner}. This makes the cost of
+ * an element independent of the number of overlapping windows and shrinks the state by the same factor.
+ *
+ * <p>An element registers only the timer of the earliest window of its pane that has not fired yet,
+ * instead of the timers of all windows that contain it, and a firing window registers the timer of
+ * the next window if that window has data. After a window fired, the panes that no later window
+ * contains are dropped. The windows must not be shorter than the slide, so that every pane belongs
+ * to a window.
+ *
+ * <p>The operator supports the default trigger of the window assigner only, no evictor and no
+ * allowed lateness. Late elements are dropped or emitted to the side output like in the
+ * {@link WindowOperator}.
+ *
+ * @param <K> The type of key returned by the {@code KeySelector}.
+ * @param <IN> The type of the incoming elements.
+ * @param <ACC> The type of the accumulator of a pane.
+ * @param <V> The type of the aggregate of a window, which the {@code InternalWindowFunction} receives.
+ * @param <OUT> The type of elements emitted by the {@code InternalWindowFunction}.
+ */
+@Internal
+public class SlidingPaneWindowOperator<K, IN, ACC, V, OUT>
+		extends WindowOperator<K, IN, V, OUT, TimeWindow> {
+
+	private static final long serialVersionUID = 1L;
+
+	// ------------------------------------------------------------------------
+	// these fields are set by the API stream graph builder to configure the operator
+
+	private final long size;
+
+	private final long slide;
+
+	private final long offset;
+
+	/** The length of a pane, which divides both size and slide. */
+	private final long paneSize;
+
+	private final StateDescriptor<? extends AppendingState<IN, V>, ?> paneStateDescriptor;
+
+	private final PaneCombiner<ACC, V> paneCombiner;
+
+	// ------------------------------------------------------------------------
+	// the fields below are instantiated once the operator runs in the runtime
+
+	/** The accumulators of the panes, each pane is a namespace. */
+	private transient InternalAppendingState<K, TimeWindow, IN, ACC, V> paneState;
+
+	public SlidingPaneWindowOperator(
+			WindowAssigner<? super IN, TimeWindow> windowAssigner,
+			long size,
+			long slide,
+			long offset,
+			TypeSerializer<TimeWindow> windowSerializer,
+			KeySelector<IN, K> keySelector,
+			TypeSerializer<K> keySerializer,
+			StateDescriptor<? extends AppendingState<IN, V>, ?> paneStateDescriptor,
+			PaneCombiner<ACC, V> paneCombiner,
+			InternalWindowFunction<V, OUT, K, TimeWindow> windowFunction,
+			Trigger<? super IN, ? super TimeWindow> trigger,
+			OutputTag<IN> lateDataOutputTag) {
+
+		super(windowAssigner, windowSerializer, keySelector,
+			keySerializer, null, windowFunction, trigger, 0L, lateDataOutputTag);
+
+		checkArgument(size > 0 && slide > 0, "Size and slide of the windows must be positive.");
+		checkArgument(size >= slide, "The size of the windows must not be smaller than the slide, " +
+			"because the panes between the windows would belong to no window.");
+		checkArgument(offset >= 0 && offset < slide, "The offset must not be negative and smaller than the slide.");
+		checkArgument(paneStateDescriptor.isSerializerInitialized(), "pane state serializer is not properly initialized");
+
+		this.size = size;
+		this.slide = slide;
+		this.offset = offset;
+		this.paneSize = gcd(size, slide);
+		this.paneStateDescriptor = paneStateDescriptor;
+		this.paneCombiner = checkNotNull(paneCombiner);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void open() throws Exception {
+		super.open();
+
+		paneState = (InternalAppendingState<K, TimeWindow, IN, ACC, V>)
+			getOrCreateKeyedState(windowSerializer, paneStateDescriptor);
+	}
+
+	@Override
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		final long timestamp;
+		if (windowAssigner.isEventTime()) {
+			timestamp = element.getTimestamp();
+			if (timestamp == Long.MIN_VALUE) {
+				throw new RuntimeException("Record has Long.MIN_VALUE timestamp (= no timestamp marker). " +
+					"Is the time characteristic set to 'ProcessingTime', or did you forget to call " +
+					"'DataStream.assignTimestampsAndWatermarks(...)'?");
+			}
+		} else {
+			timestamp = windowAssignerContext.getCurrentProcessingTime();
+		}
+
+		final long paneStart = TimeWindow.getWindowStartWithOffset(timestamp, offset % paneSize, paneSize);
+
+		// the windows that contain the pane start between these two, both inclusive
+		final long lastWindowStart = TimeWindow.getWindowStartWithOffset(paneStart, offset, slide);
+		long windowStart = lastWindowStart - (lastWindowStart - (paneStart + paneSize - size)) / slide * slide;
+
+		// skip the windows that already fired
+		while (windowStart <= lastWindowStart && isWindowLate(window(windowStart))) {
+			windowStart += slide;
+		}
+
+		if (windowStart > lastWindowStart) {
+			if (isElementLate(element)) {
+				if (lateDataOutputTag != null) {
+					sideOutput(element);
+				} else {
+					this.numLateRecordsDropped.inc();
+				}
+			}
+			return;
+		}
+
+		paneState.setCurrentNamespace(new TimeWindow(paneStart, paneStart + paneSize));
+		paneState.add(element.getValue());
+
+		registerWindowTimer(window(windowStart));
+	}
+
+	@Override
+	public void onEventTime(InternalTimer<K, TimeWindow> timer) throws Exception {
+		fireWindow(timer.getKey(), timer.getNamespace());
+	}
+
+	@Override
+	public void onProcessingTime(InternalTimer<K, TimeWindow> timer) throws Exception {
+		fireWindow(timer.getKey(), timer.getNamespace());
+	}
+
+	/**
+	 * Emits the merged panes of the given window, drops the panes that no later window contains,
+	 * and registers the timer of the next window if that window has data.
+	 */
+	private void fireWindow(K key, TimeWindow window) throws Exception {
+		final long nextWindowStart = window.getStart() + slide;
+
+		ACC merged = null;
+		boolean nextWindowHasData = false;
+
+		for (long paneStart = window.getStart(); paneStart < window.getEnd(); paneStart += paneSize) {
+			paneState.setCurrentNamespace(new TimeWindow(paneStart, paneStart + paneSize));
+			ACC pane = paneState.getInternal();
+			if (pane == null) {
+				continue;
+			}
+
+			merged = paneCombiner.merge(merged, pane);
+
+			if (paneStart < nextWindowStart) {
+				paneState.clear();
+			} else {
+				nextWindowHasData = true;
+			}
+		}
+
+		triggerContext.key = key;
+		processContext.window = window;
+
+		if (merged != null) {
+			timestampedCollector.setAbsoluteTimestamp(window.maxTimestamp());
+			userFunction.process(key, window, processContext, paneCombiner.getResult(merged), timestampedCollector);
+		}
+
+		// the window never fires again
+		processContext.clear();
+
+		if (nextWindowHasData) {
+			registerWindowTimer(window(nextWindowStart));
+		}
+	}
+
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long remainder = a % b;
+			a = b;
+			b = remainder;
+		}
+		return a;
+	}
+
+	private TimeWindow window(long start) {
+		return new TimeWindow(start, start + size);
+	}
+
+	private void registerWindowTimer(TimeWindow window) {
+		if (windowAssigner.isEventTime()) {
+			internalTimerService.registerEventTimeTimer(window, window.maxTimestamp());
+		} else {
+			internalTimerService.registerProcessingTimeTimer(window, window.maxTimestamp());
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Getters for testing
+	// ------------------------------------------------------------------------
+
+	@Override
+	@VisibleForTesting
+	public StateDescriptor<? extends AppendingState<IN, V>, ?> getStateDescriptor() {
+		return paneStateDescriptor;
+	}
+
+	@VisibleForTesting
+	long getPaneSize() {
+		return paneSize;
+	}
+
+	// ------------------------------------------------------------------------
+	// Pane combiners
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Merges the accumulators of the panes of a window into the aggregate of the window.
+	 *
+	 * @param <ACC> The type of the accumulator of a pane.
+	 * @param <V> The type of the aggregate of a window.
+	 */
+	public interface PaneCombiner<ACC, V> extends Serializable {
+
+		/**
+		 * Merges the accumulator of a pane into the accumulator of the window. The accumulator of
+		 * the pane is still stored in the state and must not be modified.
+		 *
+		 * @param merged The merged accumulator of the previous panes, or null for the first pane.
+		 * @param pane The accumulator of the pane.
+		 * @return The merged accumulator.
+		 */
+		ACC merge(@Nullable ACC merged, ACC pane) throws Exception;
+
+		/**
+		 * Computes the aggregate of a window from its merged accumulator.
+		 */
+		V getResult(ACC merged);
+	}
+
+	/**
+	 * Combines the panes of windows with a {@link ReduceFunction}.
+	 */
+	public static final class ReducePaneCombiner<T> implements PaneCombiner<T, T> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ReduceFunction<T> reduceFunction;
+
+		private final TypeSerializer<T> serializer;
+
+		public ReducePaneCombiner(ReduceFunction<T> reduceFunction, TypeSerializer<T> serializer) {
+			this.reduceFunction = checkNotNull(reduceFunction);
+			this.serializer = checkNotNull(serializer);
+		}
+
+		@Override
+		public T merge(@Nullable T merged, T pane) throws Exception {
+			// reduce functions may reuse their first argument, so the first pane is copied
+			return merged == null ? serializer.copy(pane) : reduceFunction.reduce(merged, pane);
+		}
+
+		@Override
+		public T getResult(T merged) {
+			return merged;
+		}
+	}
+
+	/**
+	 * Combines the panes of windows with the merge function of an {@link AggregateFunction}.
+	 */
+	public static final class AggregatePaneCombiner<IN, ACC, V> implements PaneCombiner<ACC, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AggregateFunction<IN, ACC, V> aggregateFunction;
+
+		private final TypeSerializer<ACC> accumulatorSerializer;
+
+		public AggregatePaneCombiner(AggregateFunction<IN, ACC, V> aggregateFunction, TypeSerializer<ACC> accumulatorSerializer) {
+			this.aggregateFunction = checkNotNull(aggregateFunction);
+			this.accumulatorSerializer = checkNotNull(accumulatorSerializer);
+		}
+
+		@Override
+		public ACC merge(@Nullable ACC merged, ACC pane) {
+			// merge functions may reuse either accumulator, so the pane is copied
+			final ACC paneCopy = accumulatorSerializer.copy(pane);
+			return merged == null ? paneCopy : aggregateFunction.merge(merged, paneCopy);
+		}
+
+		@Override
+		public V getResult(ACC merged) {
+			return aggregateFunction.getResult(merged);
+		}
+	}
+}
@@ -52,6 +52,7 @@ import org.apache.flink.runtime.state.VoidNamespace;
 import org.apache.flink.runtime.state.VoidNamespaceSerializer;
 import org.apache.flink.runtime.state.internal.InternalAppendingState;
 import org.apache.flink.runtime.state.internal.InternalListState;
+import org.apache.flink.runtime.state.internal.InternalMapState;
 import org.apache.flink.runtime.state.internal.InternalMergingState;
 import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
 import org.apache.flink.streaming.api.operators.ChainingStrategy;
@@ -156,7 +157,13 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 	private transient InternalMergingState<K, W, IN, ACC, ACC> windowMergingState;
 
 	/** The state that holds the merging window metadata (the sets that describe what is merged). */
-	private transient InternalListState<K, VoidNamespace, Tuple2<W, W>> mergingSetsState;
+	private transient InternalMapState<K, VoidNamespace, W, W> mergingSetsState;
+
+	/**
+	 * The state that held the merging window metadata as a list in previous versions. Keys that
+	 * still have a list are migrated to {@link #mergingSetsState} when their windows are accessed.
+	 */
+	private transient InternalListState<K, VoidNamespace, Tuple2<W, W>> legacyMergingSetsState;
 
 	/**
 	 * This is given to the {@code InternalWindowFunction} for emitting elements with a given
@@ -262,11 +269,19 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 					typedTuple,
 					new TypeSerializer[] {windowSerializer, windowSerializer});
 
-			final ListStateDescriptor<Tuple2<W, W>> mergingSetsStateDescriptor =
+			final ListStateDescriptor<Tuple2<W, W>> legacyMergingSetsStateDescriptor =
 					new ListStateDescriptor<>("merging-window-set", tupleSerializer);
 
-			// get the state that stores the merging sets
-			mergingSetsState = (InternalListState<K, VoidNamespace, Tuple2<W, W>>)
+			legacyMergingSetsState = (InternalListState<K, VoidNamespace, Tuple2<W, W>>)
+					getOrCreateKeyedState(VoidNamespaceSerializer.INSTANCE, legacyMergingSetsStateDescriptor);
+			legacyMergingSetsState.setCurrentNamespace(VoidNamespace.INSTANCE);
+
+			// get the state that stores the merging sets, one entry per window, so that a change
+			// of the sets only writes the affected windows
+			final MapStateDescriptor<W, W> mergingSetsStateDescriptor =
+					new MapStateDescriptor<>("merging-window-map", windowSerializer, windowSerializer);
+
+			mergingSetsState = (InternalMapState<K, VoidNamespace, W, W>)
 					getOrCreateKeyedState(VoidNamespaceSerializer.INSTANCE, mergingSetsStateDescriptor);
 			mergingSetsState.setCurrentNamespace(VoidNamespace.INSTANCE);
 		}
@@ -565,7 +580,7 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 	protected MergingWindowSet<W> getMergingWindowSet() throws Exception {
 		@SuppressWarnings("unchecked")
 		MergingWindowAssigner<? super IN, W> mergingAssigner = (MergingWindowAssigner<? super IN, W>) windowAssigner;
-		return new MergingWindowSet<>(mergingAssigner, mergingSetsState);
+		return new MergingWindowSet<>(mergingAssigner, mergingSetsState, legacyMergingSetsState);
 	}
 
 	/**
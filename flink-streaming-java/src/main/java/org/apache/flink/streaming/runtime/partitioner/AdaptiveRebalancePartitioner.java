@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.partitioner;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.io.network.api.writer.LoadAwareChannelSelector;
+import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
+import org.apache.flink.runtime.plugable.SerializationDelegate;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.util.Preconditions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partitioner that distributes the data by cycling through the output channels like the
+ * {@link RebalancePartitioner}, but skips channels whose consumers fall behind. A channel is
+ * skipped while its backlog exceeds the smallest backlog of all channels by more than a
+ * threshold, so that a slow consumer receives less data instead of holding back the producer.
+ *
+ * <p>The backlogs are read once per cycle through the channels, which keeps the cost per
+ * record constant.
+ *
+ * @param <T> Type of the elements in the Stream being rebalanced
+ */
+@Internal
+public class AdaptiveRebalancePartitioner<T> extends StreamPartitioner<T>
+		implements LoadAwareChannelSelector<SerializationDelegate<StreamRecord<T>>> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The default number of buffers by which the backlog of a channel may exceed the smallest backlog. */
+	public static final int DEFAULT_MAX_BACKLOG_DIFFERENCE = 2;
+
+	private final int maxBacklogDifference;
+
+	private final int[] returnArray = new int[1];
+
+	private transient ResultPartitionWriter writer;
+
+	/** The backlogs of the channels at the start of the current cycle. */
+	private transient int[] backlogs;
+
+	/** The largest backlog of a channel that is not skipped in the current cycle. */
+	private transient int maxAcceptedBacklog;
+
+	/** The number of records until the backlogs are read again. */
+	private transient int recordsUntilRefresh;
+
+	private int nextChannel = -1;
+
+	public AdaptiveRebalancePartitioner() {
+		this(DEFAULT_MAX_BACKLOG_DIFFERENCE);
+	}
+
+	public AdaptiveRebalancePartitioner(int maxBacklogDifference) {
+		Preconditions.checkArgument(maxBacklogDifference >= 0, "The maximum backlog difference must not be negative.");
+		this.maxBacklogDifference = maxBacklogDifference;
+	}
+
+	@Override
+	public void setResultPartitionWriter(ResultPartitionWriter writer) {
+		this.writer = Preconditions.checkNotNull(writer);
+	}
+
+	@Override
+	public int[] selectChannels(
+			SerializationDelegate<StreamRecord<T>> record,
+			int numChannels) {
+
+		if (nextChannel < 0) {
+			// start at a random channel, like the rebalance partitioner
+			nextChannel = ThreadLocalRandom.current().nextInt(numChannels);
+		}
+
+		if (writer != null && --recordsUntilRefresh <= 0) {
+			readBacklogs(numChannels);
+		}
+
+		int channel = nextChannel;
+		if (backlogs != null) {
+			// the channel with the smallest backlog is never skipped, so this terminates
+			while (backlogs[channel] > maxAcceptedBacklog) {
+				channel = channel + 1 == numChannels ? 0 : channel + 1;
+			}
+		}
+
+		nextChannel = channel + 1 == numChannels ? 0 : channel + 1;
+		returnArray[0] = channel;
+		return returnArray;
+	}
+
+	private void readBacklogs(int numChannels) {
+		if (backlogs == null || backlogs.length != numChannels) {
+			backlogs = new int[numChannels];
+		}
+
+		int minBacklog = Integer.MAX_VALUE;
+		for (int channel = 0; channel < numChannels; channel++) {
+			backlogs[channel] = writer.getBacklog(channel);
+			minBacklog = Math.min(minBacklog, backlogs[channel]);
+		}
+
+		maxAcceptedBacklog = minBacklog + maxBacklogDifference;
+		recordsUntilRefresh = numChannels;
+	}
+
+	@Override
+	public StreamPartitioner<T> copy() {
+		return new AdaptiveRebalancePartitioner<>(maxBacklogDifference);
+	}
+
+	@Override
+	public String toString() {
+		return "ADAPTIVE_REBALANCE";
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.streamrecord;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.api.operators.BatchingOutput;
+import org.apache.flink.streaming.api.operators.Output;
+
+import java.util.Arrays;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A reusable batch of {@link StreamRecord StreamRecords} that is handed through an operator chain
+ * as a whole, see {@link org.apache.flink.streaming.api.operators.BatchingOneInputStreamOperator}.
+ *
+ * <p>A batch only contains records, never watermarks, latency markers or stream status changes.
+ * Whoever creates a batch hands it over before any of those elements, so that the order of the
+ * stream is kept.
+ *
+ * <p>The receiver of a batch owns it for the duration of the call and may change it in place, for
+ * example by replacing the values of the records or by dropping records. The sender must not rely
+ * on the content of the batch after handing it over, but may clear and reuse it.
+ *
+ * @param <T> The type of the values of the records.
+ */
+@Internal
+public final class StreamRecordBatch<T> {
+
+	private final StreamRecord<T>[] records;
+
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	public StreamRecordBatch(int capacity) {
+		checkArgument(capacity > 0, "The capacity of a record batch must be positive.");
+		this.records = new StreamRecord[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return records.length;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isFull() {
+		return size == records.length;
+	}
+
+	public StreamRecord<T> get(int index) {
+		return records[index];
+	}
+
+	/**
+	 * Appends the given record.
+	 *
+	 * @throws IndexOutOfBoundsException Thrown if the batch is full.
+	 */
+	public void add(StreamRecord<T> record) {
+		if (size == records.length) {
+			throw new IndexOutOfBoundsException("The record batch is full.");
+		}
+		records[size++] = record;
+	}
+
+	/**
+	 * Drops all records from the given size on. Together with {@link #set(int, StreamRecord)},
+	 * this lets a receiver compact the batch in place.
+	 */
+	public void truncate(int newSize) {
+		checkArgument(newSize >= 0 && newSize <= size, "Invalid size of the record batch.");
+		Arrays.fill(records, newSize, size, null);
+		size = newSize;
+	}
+
+	public void set(int index, StreamRecord<T> record) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not in the batch.");
+		}
+		records[index] = record;
+	}
+
+	public void clear() {
+		truncate(0);
+	}
+
+	/**
+	 * Changes the type of the batch after the values of all records were replaced, like
+	 * {@link StreamRecord#replace(Object)} does for a single record.
+	 */
+	@SuppressWarnings("unchecked")
+	public <X> StreamRecordBatch<X> cast() {
+		return (StreamRecordBatch<X>) this;
+	}
+
+	/**
+	 * Emits the given batch to the given output, either as a whole if the output accepts batches, or
+	 * record by record.
+	 */
+	public static <T> void emit(StreamRecordBatch<T> batch, Output<StreamRecord<T>> output) {
+		if (output instanceof BatchingOutput) {
+			((BatchingOutput<T>) output).collectBatch(batch);
+		} else {
+			for (int i = 0; i < batch.size; i++) {
+				output.collect(batch.records[i]);
+			}
+		}
+	}
+}
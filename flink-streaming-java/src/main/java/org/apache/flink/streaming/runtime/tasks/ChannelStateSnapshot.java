@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.tasks;
+
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.checkpoint.StateObjectCollection;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointStreamFactory.CheckpointStateOutputStream;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
+import org.apache.flink.runtime.state.StateObject;
+import org.apache.flink.runtime.state.StateUtil;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.streaming.runtime.io.InputChannelRecording;
+
+import javax.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * The in-flight data of a task for an unaligned checkpoint: the buffers that the checkpoint barrier overtook in the
+ * result subpartitions, and the recording of the data that the input channels deliver until their barriers arrive.
+ *
+ * <p>The snapshot is filled in the synchronous part of the checkpoint and persisted in the asynchronous part. It owns
+ * the overtaken buffers until they are written or the snapshot is released.
+ */
+final class ChannelStateSnapshot {
+
+	private final List<SubpartitionBuffers> resultSubpartitionBuffers = new ArrayList<>();
+
+	@Nullable
+	private final InputChannelRecording inputChannelRecording;
+
+	/** Flag whether the snapshot was released. Guarded by {@code this}. */
+	private boolean released;
+
+	ChannelStateSnapshot(@Nullable InputChannelRecording inputChannelRecording) {
+		this.inputChannelRecording = inputChannelRecording;
+	}
+
+	void addResultSubpartitionState(int partitionIndex, int subpartitionIndex, List<Buffer> buffers) {
+		if (!buffers.isEmpty()) {
+			resultSubpartitionBuffers.add(new SubpartitionBuffers(partitionIndex, subpartitionIndex, buffers));
+		}
+	}
+
+	/**
+	 * Writes the in-flight data to the given stream factory and returns a copy of the given operator state that
+	 * contains it. This blocks until all input channels delivered their barrier.
+	 *
+	 * @throws CancellationException Thrown if the snapshot was released or the recording of the input was aborted,
+	 *                               because the checkpoint was canceled or subsumed.
+	 */
+	OperatorSubtaskState persist(
+			OperatorSubtaskState operatorSubtaskState,
+			CheckpointStreamFactory streamFactory) throws Exception {
+
+		final List<ResultSubpartitionStateHandle> outputHandles = new ArrayList<>(resultSubpartitionBuffers.size());
+		final List<InputChannelStateHandle> inputHandles = new ArrayList<>();
+
+		try {
+			for (SubpartitionBuffers subpartitionBuffers : resultSubpartitionBuffers) {
+				StreamStateHandle handle = writeBuffers(subpartitionBuffers, streamFactory);
+				if (handle != null) {
+					outputHandles.add(new ResultSubpartitionStateHandle(
+						subpartitionBuffers.partitionIndex, subpartitionBuffers.subpartitionIndex, handle));
+				}
+			}
+
+			if (inputChannelRecording != null) {
+				for (Map.Entry<Integer, byte[]> channelData : inputChannelRecording.get().entrySet()) {
+					StreamStateHandle handle = writeBytes(channelData.getValue(), streamFactory);
+					if (handle != null) {
+						inputHandles.add(new InputChannelStateHandle(channelData.getKey(), handle));
+					}
+				}
+			}
+		} catch (Exception e) {
+			List<StateObject> written = new ArrayList<>(outputHandles.size() + inputHandles.size());
+			written.addAll(outputHandles);
+			written.addAll(inputHandles);
+			try {
+				StateUtil.bestEffortDiscardAllStateObjects(written);
+			} catch (Exception discardException) {
+				e.addSuppressed(discardException);
+			}
+			throw e;
+		}
+
+		return checkNotNull(operatorSubtaskState).withChannelState(
+			new StateObjectCollection<>(inputHandles),
+			new StateObjectCollection<>(outputHandles));
+	}
+
+	private StreamStateHandle writeBuffers(
+			SubpartitionBuffers subpartitionBuffers,
+			CheckpointStreamFactory streamFactory) throws Exception {
+
+		try (CheckpointStateOutputStream out =
+				streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE)) {
+
+			Buffer buffer;
+			while ((buffer = pollBuffer(subpartitionBuffers)) != null) {
+				try {
+					ByteBuffer bytes = buffer.getNioBufferReadable();
+					if (bytes.hasArray()) {
+						out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+					} else {
+						byte[] copy = new byte[bytes.remaining()];
+						bytes.get(copy);
+						out.write(copy);
+					}
+				} finally {
+					buffer.recycleBuffer();
+				}
+			}
+			return out.closeAndGetHandle();
+		}
+	}
+
+	private static StreamStateHandle writeBytes(byte[] bytes, CheckpointStreamFactory streamFactory) throws Exception {
+		try (CheckpointStateOutputStream out =
+				streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE)) {
+
+			out.write(bytes);
+			return out.closeAndGetHandle();
+		}
+	}
+
+	private synchronized Buffer pollBuffer(SubpartitionBuffers subpartitionBuffers) {
+		if (released) {
+			throw new CancellationException("The channel state snapshot was released.");
+		}
+		return subpartitionBuffers.buffers.poll();
+	}
+
+	/**
+	 * Recycles all buffers that were not written yet. The input recording is owned by the barrier handler and
+	 * aborted there.
+	 */
+	synchronized void release() {
+		released = true;
+		for (SubpartitionBuffers subpartitionBuffers : resultSubpartitionBuffers) {
+			Buffer buffer;
+			while ((buffer = subpartitionBuffers.buffers.poll()) != null) {
+				buffer.recycleBuffer();
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static final class SubpartitionBuffers {
+
+		final int partitionIndex;
+		final int subpartitionIndex;
+		final ArrayDeque<Buffer> buffers;
+
+		SubpartitionBuffers(int partitionIndex, int subpartitionIndex, List<Buffer> buffers) {
+			this.partitionIndex = partitionIndex;
+			this.subpartitionIndex = subpartitionIndex;
+			this.buffers = new ArrayDeque<>(buffers);
+		}
+	}
+}
@@ -26,6 +26,7 @@ import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
 import org.apache.flink.runtime.metrics.MetricNames;
 import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.runtime.io.InputChannelRecording;
 import org.apache.flink.streaming.runtime.io.StreamInputProcessor;
 import org.apache.flink.streaming.runtime.metrics.WatermarkGauge;
 
@@ -39,8 +40,6 @@ public class OneInputStreamTask<IN, OUT> extends StreamTask<OUT, OneInputStreamO
 
 	private StreamInputProcessor<IN> inputProcessor;
 
-	private volatile boolean running = true;
-
 	private final WatermarkGauge inputWatermarkGauge = new WatermarkGauge();
 
 	/**
@@ -84,27 +83,33 @@ public class OneInputStreamTask<IN, OUT> extends StreamTask<OUT, OneInputStreamO
 					inSerializer,
 					this,
 					configuration.getCheckpointMode(),
-					getCheckpointLock(),
 					getEnvironment().getIOManager(),
 					getEnvironment().getTaskManagerInfo().getConfiguration(),
 					getStreamStatusMaintainer(),
 					this.headOperator,
 					getEnvironment().getMetricGroup().getIOMetricGroup(),
 					inputWatermarkGauge);
+
+			inputProcessor.registerAvailabilityListener(getMailbox()::wakeUp);
 		}
 		headOperator.getMetricGroup().gauge(MetricNames.IO_CURRENT_INPUT_WATERMARK, this.inputWatermarkGauge);
 		// wrap watermark gauge since registered metrics must be unique
 		getEnvironment().getMetricGroup().gauge(MetricNames.IO_CURRENT_INPUT_WATERMARK, this.inputWatermarkGauge::getValue);
 	}
 
+	@Override
+	protected boolean runsMailboxLoop() {
+		return true;
+	}
+
 	@Override
 	protected void run() throws Exception {
-		// cache processor reference on the stack, to make the code more JIT friendly
-		final StreamInputProcessor<IN> inputProcessor = this.inputProcessor;
+		runMailboxLoop(inputProcessor::processInput);
+	}
 
-		while (running && inputProcessor.processInput()) {
-			// all the work happens in the "processInput" method
-		}
+	@Override
+	protected InputChannelRecording takeInputChannelRecording(long checkpointId) {
+		return inputProcessor != null ? inputProcessor.takeInputChannelRecording(checkpointId) : null;
 	}
 
 	@Override
@@ -116,6 +121,6 @@ public class OneInputStreamTask<IN, OUT> extends StreamTask<OUT, OneInputStreamO
 
 	@Override
 	protected void cancelTask() {
-		running = false;
+		// the mailbox loop stops once the task is not running any more
 	}
 }
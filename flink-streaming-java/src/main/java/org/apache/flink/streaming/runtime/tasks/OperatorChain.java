@@ -28,6 +28,7 @@ import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.metrics.MetricNames;
 import org.apache.flink.runtime.metrics.groups.OperatorIOMetricGroup;
 import org.apache.flink.runtime.metrics.groups.OperatorMetricGroup;
@@ -37,6 +38,9 @@ import org.apache.flink.streaming.api.collector.selector.DirectedOutput;
 import org.apache.flink.streaming.api.collector.selector.OutputSelector;
 import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.streaming.api.graph.StreamEdge;
+import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
+import org.apache.flink.streaming.api.operators.BatchingOneInputStreamOperator;
+import org.apache.flink.streaming.api.operators.BatchingOutput;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.operators.StreamOperator;
@@ -46,6 +50,7 @@ import org.apache.flink.streaming.runtime.io.StreamRecordWriter;
 import org.apache.flink.streaming.runtime.metrics.WatermarkGauge;
 import org.apache.flink.streaming.runtime.streamrecord.LatencyMarker;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
 import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
 import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
 import org.apache.flink.streaming.runtime.streamstatus.StreamStatusProvider;
@@ -202,6 +207,25 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 		}
 	}
 
+	/**
+	 * Broadcasts the barrier of an unaligned checkpoint ahead of the data that is queued in the outputs, and adds the
+	 * overtaken data to the given channel state snapshot.
+	 */
+	void broadcastUnalignedCheckpointBarrier(
+			long id,
+			long timestamp,
+			CheckpointOptions checkpointOptions,
+			ChannelStateSnapshot channelStateSnapshot) throws IOException {
+
+		CheckpointBarrier barrier = new CheckpointBarrier(id, timestamp, checkpointOptions);
+		for (int i = 0; i < streamOutputs.length; i++) {
+			List<List<Buffer>> overtakenBuffers = streamOutputs[i].broadcastPriorityEvent(barrier);
+			for (int subpartition = 0; subpartition < overtakenBuffers.size(); subpartition++) {
+				channelStateSnapshot.addResultSubpartitionState(i, subpartition, overtakenBuffers.get(subpartition));
+			}
+		}
+	}
+
 	public void broadcastCheckpointCancelMarker(long id) throws IOException {
 		CancelCheckpointMarker barrier = new CancelCheckpointMarker(id);
 		for (RecordWriterOutput<?> streamOutput : streamOutputs) {
@@ -216,6 +240,10 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 		for (int i = operators.length - 1; i >= 0; --i) {
 			final StreamOperator<?> op = operators[i];
 			if (op != null) {
+				// outputs of pending asynchronous state reads must precede the barrier
+				if (op instanceof AbstractStreamOperator) {
+					((AbstractStreamOperator<?>) op).drainAsyncKeyedStateAccess();
+				}
 				op.prepareSnapshotPreBarrier(checkpointId);
 			}
 		}
@@ -406,7 +434,11 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			outSerializer = upStreamConfig.getTypeSerializerOut(taskEnvironment.getUserClassLoader());
 		}
 
-		return new RecordWriterOutput<>(streamRecordWriter, outSerializer, sideOutputTag, this);
+		RecordWriterOutput<OUT> output = new RecordWriterOutput<>(streamRecordWriter, outSerializer, sideOutputTag, this);
+		if (taskEnvironment.getExecutionConfig().isLocalObjectHandoverEnabled()) {
+			output.enableLocalObjectHandover();
+		}
+		return output;
 	}
 
 	// ------------------------------------------------------------------------
@@ -422,9 +454,13 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 		Gauge<Long> getWatermarkGauge();
 	}
 
-	static class ChainingOutput<T> implements WatermarkGaugeExposingOutput<StreamRecord<T>> {
+	static class ChainingOutput<T> implements WatermarkGaugeExposingOutput<StreamRecord<T>>, BatchingOutput<T> {
 
 		protected final OneInputStreamOperator<T, ?> operator;
+
+		/** The operator, if it processes whole batches, otherwise null. */
+		@Nullable
+		protected final BatchingOneInputStreamOperator<T, ?> batchingOperator;
 		protected final Counter numRecordsIn;
 		protected final WatermarkGauge watermarkGauge = new WatermarkGauge();
 
@@ -438,6 +474,9 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 				StreamStatusProvider streamStatusProvider,
 				@Nullable OutputTag<T> outputTag) {
 			this.operator = operator;
+			this.batchingOperator = operator instanceof BatchingOneInputStreamOperator
+				? (BatchingOneInputStreamOperator<T, ?>) operator
+				: null;
 
 			{
 				Counter tmpNumRecordsIn;
@@ -476,6 +515,33 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			pushToOperator(record);
 		}
 
+		@Override
+		public void collectBatch(StreamRecordBatch<T> batch) {
+			if (this.outputTag != null) {
+				// we are only responsible for emitting to the main input
+				return;
+			}
+
+			pushBatchToOperator(batch);
+		}
+
+		protected void pushBatchToOperator(StreamRecordBatch<T> batch) {
+			if (batchingOperator == null) {
+				for (int i = 0; i < batch.size(); i++) {
+					pushToOperator(batch.get(i));
+				}
+				return;
+			}
+
+			try {
+				numRecordsIn.inc(batch.size());
+				batchingOperator.processBatch(batch);
+			}
+			catch (Exception e) {
+				throw new ExceptionInChainedOperatorException(e);
+			}
+		}
+
 		protected <X> void pushToOperator(StreamRecord<X> record) {
 			try {
 				// we know that the given outputTag matches our OutputTag so the record
@@ -597,6 +663,21 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			}
 
 		}
+
+		@Override
+		protected void pushBatchToOperator(StreamRecordBatch<T> batch) {
+			if (batchingOperator == null) {
+				super.pushBatchToOperator(batch);
+				return;
+			}
+
+			// the batch is handed over to us, so we can copy the values in place
+			for (int i = 0; i < batch.size(); i++) {
+				StreamRecord<T> record = batch.get(i);
+				record.replace(serializer.copy(record.getValue()));
+			}
+			super.pushBatchToOperator(batch);
+		}
 	}
 
 	static class BroadcastingOutputCollector<T> implements WatermarkGaugeExposingOutput<StreamRecord<T>> {
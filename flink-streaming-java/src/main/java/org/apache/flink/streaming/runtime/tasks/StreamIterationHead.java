@@ -104,6 +104,12 @@ public class StreamIterationHead<OUT> extends OneInputStreamTask<OUT, OUT> {
 		}
 	}
 
+	@Override
+	protected boolean runsMailboxLoop() {
+		// the head forwards the feedback records itself instead of processing network input
+		return false;
+	}
+
 	@Override
 	protected void cancelTask() {
 		running = false;
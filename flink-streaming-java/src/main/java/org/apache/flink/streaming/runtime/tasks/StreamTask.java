@@ -22,6 +22,7 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.accumulators.Accumulator;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.fs.FileSystemSafetyNet;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
@@ -31,11 +32,15 @@ import org.apache.flink.runtime.execution.CancelTaskException;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
+import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+import org.apache.flink.runtime.metrics.TimerGauge;
 import org.apache.flink.runtime.plugable.SerializationDelegate;
 import org.apache.flink.runtime.state.CheckpointStorage;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.StateBackend;
 import org.apache.flink.runtime.state.StateBackendLoader;
 import org.apache.flink.runtime.state.TaskStateManager;
@@ -43,17 +48,21 @@ import org.apache.flink.runtime.taskmanager.DispatcherThreadFactory;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.streaming.api.graph.StreamEdge;
+import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
 import org.apache.flink.streaming.api.operators.OperatorSnapshotFinalizer;
 import org.apache.flink.streaming.api.operators.OperatorSnapshotFutures;
 import org.apache.flink.streaming.api.operators.StreamOperator;
 import org.apache.flink.streaming.api.operators.StreamTaskStateInitializer;
 import org.apache.flink.streaming.api.operators.StreamTaskStateInitializerImpl;
+import org.apache.flink.streaming.runtime.io.InputChannelRecording;
+import org.apache.flink.streaming.runtime.io.InputStatus;
 import org.apache.flink.streaming.runtime.io.RecordWriterOutput;
 import org.apache.flink.streaming.runtime.io.StreamRecordWriter;
 import org.apache.flink.streaming.runtime.partitioner.ConfigurableStreamPartitioner;
 import org.apache.flink.streaming.runtime.partitioner.StreamPartitioner;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
+import org.apache.flink.streaming.runtime.tasks.mailbox.Mailbox;
 import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.Preconditions;
 
@@ -63,10 +72,13 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -109,6 +121,10 @@ import java.util.concurrent.atomic.AtomicReference;
  * {@code StreamOperator} must be synchronized on this lock object to ensure that no methods
  * are called concurrently.
  *
+ * <p>Tasks that process network input run a mailbox loop (see {@link #runMailboxLoop(MailboxInput)}):
+ * the task thread holds the lock for whole batches of records, and other threads hand their actions,
+ * like firing timers, to the task thread through the {@link Mailbox} instead of acquiring the lock.
+ *
  * @param <OUT>
  * @param <OP>
  */
@@ -123,6 +139,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 	/** The logger used by the StreamTask and its subclasses. */
 	private static final Logger LOG = LoggerFactory.getLogger(StreamTask.class);
 
+	/** The number of records that the mailbox loop processes before it runs the pending mails. */
+	private static final int MAX_RECORDS_PER_BATCH = 128;
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -131,6 +150,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 	 */
 	private final Object lock = new Object();
 
+	/** The actions that other threads hand to the task thread, if the task runs the mailbox loop. */
+	private final Mailbox mailbox = new Mailbox();
+
 	/** the head operator that consumes the input streams of this task. */
 	protected OP headOperator;
 
@@ -168,6 +190,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 	/** Flag to mark this task as canceled. */
 	private volatile boolean canceled;
 
+	/** Flag to mark that the operators are disposed because the task failed or was canceled. */
+	private volatile boolean failing;
+
 	/** Thread pool for async snapshot workers. */
 	private ExecutorService asyncOperationsThreadPool;
 
@@ -261,7 +286,8 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				ThreadFactory timerThreadFactory = new DispatcherThreadFactory(TRIGGER_THREAD_GROUP,
 					"Time Trigger for " + getName(), getUserCodeClassLoader());
 
-				timerService = new SystemProcessingTimeService(this, getCheckpointLock(), timerThreadFactory);
+				timerService = new SystemProcessingTimeService(
+					this, getCheckpointLock(), timerThreadFactory, getMailbox());
 			}
 
 			operatorChain = new OperatorChain<>(this, streamRecordWriters);
@@ -287,6 +313,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				// registers a timer, that fires before the open() is called.
 
 				initializeState();
+				if (configuration.isUnalignedCheckpointsEnabled()) {
+					restoreResultSubpartitionState();
+				}
 				openAllOperators();
 			}
 
@@ -313,6 +342,11 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			// we also need to make sure that no triggers fire concurrently with the close logic
 			// at the same time, this makes sure that during any "regular" exit where still
 			synchronized (lock) {
+				// run the actions that were handed to the task thread before the input ended
+				if (runsMailboxLoop()) {
+					runPendingMails();
+				}
+
 				// this is part of the main logic, so if this fails, the task is considered failed
 				closeAllOperators();
 
@@ -327,6 +361,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			// make sure all timers finish
 			timerService.awaitPendingAfterQuiesce();
 
+			// timers and notifications that come in from now on are not executed any more
+			mailbox.close();
+
 			LOG.debug("Closed operators for task {}", getName());
 
 			// make sure all buffered data is flushed
@@ -351,6 +388,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			// clear any previously issued interrupt for a more graceful shutdown
 			Thread.interrupted();
 
+			// reject all further actions of other threads
+			mailbox.close();
+
 			// stop all timers and threads
 			tryShutdownTimerService();
 
@@ -375,6 +415,7 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 
 			// if the operators were not disposed before, do a hard dispose
 			if (!disposed) {
+				failing = true;
 				disposeAllOperators();
 			}
 
@@ -400,6 +441,8 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			cancelTask();
 		}
 		finally {
+			// let a waiting mailbox loop see the cancellation
+			mailbox.wakeUp();
 			cancelables.close();
 		}
 	}
@@ -408,10 +451,106 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		return isRunning;
 	}
 
+	// ------------------------------------------------------------------------
+	//  Mailbox
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Checks whether the task thread runs the mailbox loop. Tasks that do so hand their actions to the
+	 * task thread through the {@link Mailbox} instead of acquiring the checkpoint lock. Tasks that leave
+	 * their thread to user code, like sources, keep synchronizing on the checkpoint lock.
+	 */
+	protected boolean runsMailboxLoop() {
+		return false;
+	}
+
+	/**
+	 * Gets the mailbox through which other threads hand actions to the task thread. The actions run
+	 * in the task thread while it holds the checkpoint lock.
+	 *
+	 * @return The mailbox, or null if the task does not run the mailbox loop.
+	 */
+	@Nullable
+	public Mailbox getMailbox() {
+		return runsMailboxLoop() ? mailbox : null;
+	}
+
+	/**
+	 * Runs the task thread until the input ends or the task is canceled. The loop processes batches of
+	 * the available input and runs the pending mails in between, both while holding the checkpoint lock.
+	 * If no input is available, the loop waits without holding the lock until new input arrives or a
+	 * mail is put into the mailbox. The wait counts as idle time of the task.
+	 *
+	 * <p>The input has to wake up the mailbox (see {@link Mailbox#wakeUp()}) once it has new input after
+	 * it reported {@link InputStatus#NOTHING_AVAILABLE}.
+	 */
+	protected final void runMailboxLoop(MailboxInput input) throws Exception {
+		Preconditions.checkState(runsMailboxLoop(), "The task does not run the mailbox loop.");
+
+		final Object lock = this.lock;
+		final Mailbox mailbox = this.mailbox;
+		final TimerGauge idleTime = getEnvironment().getMetricGroup().getIOMetricGroup().getIdleTimeMsPerSecond();
+
+		while (isRunning) {
+			final InputStatus status;
+			synchronized (lock) {
+				runPendingMails();
+				status = input.processInput(MAX_RECORDS_PER_BATCH);
+			}
+
+			if (status == InputStatus.END_OF_INPUT) {
+				return;
+			}
+			else if (status == InputStatus.NOTHING_AVAILABLE) {
+				final Runnable mail;
+				idleTime.markStart();
+				try {
+					mail = mailbox.takeOrAwaitWakeUp();
+				} finally {
+					idleTime.markEnd();
+				}
+
+				if (mail != null) {
+					synchronized (lock) {
+						mail.run();
+					}
+				}
+			}
+		}
+	}
+
+	private void runPendingMails() {
+		Runnable mail;
+		while ((mail = mailbox.tryTake()) != null) {
+			mail.run();
+		}
+	}
+
+	/**
+	 * The input that the mailbox loop processes in batches.
+	 */
+	@FunctionalInterface
+	protected interface MailboxInput {
+
+		/**
+		 * Processes the input that is available without blocking, up to the given number of records.
+		 * This is called while holding the checkpoint lock.
+		 */
+		InputStatus processInput(int maxRecords) throws Exception;
+	}
+
 	public final boolean isCanceled() {
 		return canceled;
 	}
 
+	/**
+	 * Returns whether the operators are disposed because the task failed or was canceled, rather than after the
+	 * task finished.
+	 */
+	public final boolean isFailing() {
+		return failing;
+	}
+
 	/**
 	 * Execute {@link StreamOperator#open()} of each operator in the chain of this
 	 * {@link StreamTask}. Opening happens from <b>tail to head</b> operator in the chain, contrary
@@ -439,6 +578,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		for (int i = allOperators.length - 1; i >= 0; i--) {
 			StreamOperator<?> operator = allOperators[i];
 			if (operator != null) {
+				if (operator instanceof AbstractStreamOperator) {
+					((AbstractStreamOperator<?>) operator).drainAsyncKeyedStateAccess();
+				}
 				operator.close();
 			}
 		}
@@ -630,15 +772,33 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				//           The pre-barrier work should be nothing or minimal in the common case.
 				operatorChain.prepareSnapshotPreBarrier(checkpointMetaData.getCheckpointId());
 
-				// Step (2): Send the checkpoint barrier downstream
-				operatorChain.broadcastCheckpointBarrier(
-						checkpointMetaData.getCheckpointId(),
-						checkpointMetaData.getTimestamp(),
-						checkpointOptions);
+				// Step (2): Send the checkpoint barrier downstream. The barrier of an unaligned checkpoint
+				//           overtakes the queued output data, which becomes part of the checkpoint
+				ChannelStateSnapshot channelStateSnapshot = null;
+				if (configuration.isUnalignedCheckpointsEnabled()) {
+					channelStateSnapshot = new ChannelStateSnapshot(
+						takeInputChannelRecording(checkpointMetaData.getCheckpointId()));
+					try {
+						operatorChain.broadcastUnalignedCheckpointBarrier(
+								checkpointMetaData.getCheckpointId(),
+								checkpointMetaData.getTimestamp(),
+								checkpointOptions,
+								channelStateSnapshot);
+					} catch (Exception e) {
+						channelStateSnapshot.release();
+						throw e;
+					}
+				}
+				else {
+					operatorChain.broadcastCheckpointBarrier(
+							checkpointMetaData.getCheckpointId(),
+							checkpointMetaData.getTimestamp(),
+							checkpointOptions);
+				}
 
 				// Step (3): Take the state snapshot. This should be largely asynchronous, to not
 				//           impact progress of the streaming topology
-				checkpointState(checkpointMetaData, checkpointOptions, checkpointMetrics);
+				checkpointState(checkpointMetaData, checkpointOptions, checkpointMetrics, channelStateSnapshot);
 				return true;
 			}
 			else {
@@ -675,6 +835,23 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 
 	@Override
 	public void notifyCheckpointComplete(long checkpointId) throws Exception {
+		final Mailbox mailbox = getMailbox();
+		if (mailbox == null) {
+			notifyCheckpointCompleteToOperators(checkpointId);
+		}
+		else if (!mailbox.offer(() -> {
+			try {
+				notifyCheckpointCompleteToOperators(checkpointId);
+			}
+			catch (Exception e) {
+				handleAsyncException("Could not notify the operators of complete checkpoint " + checkpointId + '.', e);
+			}
+		})) {
+			LOG.debug("Ignoring notification of complete checkpoint for finished task {}", getName());
+		}
+	}
+
+	private void notifyCheckpointCompleteToOperators(long checkpointId) throws Exception {
 		synchronized (lock) {
 			if (isRunning) {
 				LOG.debug("Notification of complete checkpoint for task {}", getName());
@@ -713,22 +890,102 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 	private void checkpointState(
 			CheckpointMetaData checkpointMetaData,
 			CheckpointOptions checkpointOptions,
-			CheckpointMetrics checkpointMetrics) throws Exception {
+			CheckpointMetrics checkpointMetrics,
+			@Nullable ChannelStateSnapshot channelStateSnapshot) throws Exception {
 
-		CheckpointStreamFactory storage = checkpointStorage.resolveCheckpointStorageLocation(
+		CheckpointStreamFactory storage;
+		try {
+			storage = checkpointStorage.resolveCheckpointStorageLocation(
 				checkpointMetaData.getCheckpointId(),
 				checkpointOptions.getTargetLocation());
+		} catch (Exception e) {
+			if (channelStateSnapshot != null) {
+				channelStateSnapshot.release();
+			}
+			throw e;
+		}
 
 		CheckpointingOperation checkpointingOperation = new CheckpointingOperation(
 			this,
 			checkpointMetaData,
 			checkpointOptions,
 			storage,
-			checkpointMetrics);
+			checkpointMetrics,
+			channelStateSnapshot);
 
 		checkpointingOperation.executeCheckpointing();
 	}
 
+	/**
+	 * Hands the in-flight input data of the given unaligned checkpoint over to the checkpoint. Tasks with network
+	 * inputs return the recording of their barrier handler.
+	 *
+	 * @return The recording, or null if the task has no network inputs.
+	 */
+	@Nullable
+	protected InputChannelRecording takeInputChannelRecording(long checkpointId) {
+		return null;
+	}
+
+	/**
+	 * Gets the in-flight input data of the head operator that was persisted by an unaligned checkpoint, which must be
+	 * consumed before any data from the network.
+	 */
+	public Collection<InputChannelStateHandle> getRestoredInputChannelState() {
+		return getEnvironment().getTaskStateManager()
+			.prioritizedOperatorState(configuration.getOperatorID())
+			.getInputChannelState();
+	}
+
+	/**
+	 * Adds the in-flight output data that was persisted by an unaligned checkpoint to the result subpartitions, in
+	 * front of any record that the operators emit after the restore.
+	 */
+	private void restoreResultSubpartitionState() throws Exception {
+		Collection<ResultSubpartitionStateHandle> restoredState = getEnvironment().getTaskStateManager()
+			.prioritizedOperatorState(configuration.getOperatorID())
+			.getResultSubpartitionState();
+
+		if (restoredState.isEmpty()) {
+			return;
+		}
+
+		ResultPartitionWriter[] writers = getEnvironment().getAllWriters();
+		for (ResultSubpartitionStateHandle handle : restoredState) {
+			Preconditions.checkState(handle.getPartitionIndex() < writers.length
+					&& handle.getSubpartitionIndex() < writers[handle.getPartitionIndex()].getNumberOfSubpartitions(),
+				"Restored in-flight data for unknown result subpartition %s of partition %s.",
+				handle.getSubpartitionIndex(), handle.getPartitionIndex());
+
+			ResultPartitionWriter writer = writers[handle.getPartitionIndex()];
+			try (FSDataInputStream in = handle.openInputStream()) {
+				byte[] bytes = new byte[4096];
+				BufferBuilder bufferBuilder = null;
+				int read;
+				while ((read = in.read(bytes)) >= 0) {
+					ByteBuffer data = ByteBuffer.wrap(bytes, 0, read);
+					while (data.hasRemaining()) {
+						if (bufferBuilder == null || bufferBuilder.isFull()) {
+							if (bufferBuilder != null) {
+								bufferBuilder.finish();
+							}
+							bufferBuilder = writer.getBufferProvider().requestBufferBuilderBlocking();
+							writer.addBufferConsumer(bufferBuilder.createBufferConsumer(), handle.getSubpartitionIndex());
+						}
+						bufferBuilder.appendAndCommit(data);
+					}
+				}
+				if (bufferBuilder != null) {
+					bufferBuilder.finish();
+				}
+			}
+		}
+
+		for (ResultPartitionWriter writer : writers) {
+			writer.flushAll();
+		}
+	}
+
 	private void initializeState() throws Exception {
 
 		StreamOperator<?>[] allOperators = operatorChain.getAllOperators();
@@ -816,6 +1073,13 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 
 		private final long asyncStartNanos;
 
+		/** The in-flight data of an unaligned checkpoint, null for aligned checkpoints. */
+		@Nullable
+		private final ChannelStateSnapshot channelStateSnapshot;
+
+		@Nullable
+		private final CheckpointStreamFactory channelStateStorage;
+
 		private final AtomicReference<CheckpointingOperation.AsyncCheckpointState> asyncCheckpointState = new AtomicReference<>(
 			CheckpointingOperation.AsyncCheckpointState.RUNNING);
 
@@ -826,11 +1090,27 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			CheckpointMetrics checkpointMetrics,
 			long asyncStartNanos) {
 
+			this(owner, operatorSnapshotsInProgress, checkpointMetaData, checkpointMetrics, asyncStartNanos, null, null);
+		}
+
+		AsyncCheckpointRunnable(
+			StreamTask<?, ?> owner,
+			Map<OperatorID, OperatorSnapshotFutures> operatorSnapshotsInProgress,
+			CheckpointMetaData checkpointMetaData,
+			CheckpointMetrics checkpointMetrics,
+			long asyncStartNanos,
+			@Nullable ChannelStateSnapshot channelStateSnapshot,
+			@Nullable CheckpointStreamFactory channelStateStorage) {
+
 			this.owner = Preconditions.checkNotNull(owner);
 			this.operatorSnapshotsInProgress = Preconditions.checkNotNull(operatorSnapshotsInProgress);
 			this.checkpointMetaData = Preconditions.checkNotNull(checkpointMetaData);
 			this.checkpointMetrics = Preconditions.checkNotNull(checkpointMetrics);
 			this.asyncStartNanos = asyncStartNanos;
+			this.channelStateSnapshot = channelStateSnapshot;
+			this.channelStateStorage = channelStateSnapshot != null
+				? Preconditions.checkNotNull(channelStateStorage)
+				: channelStateStorage;
 		}
 
 		@Override
@@ -862,6 +1142,16 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 						finalizedSnapshots.getTaskLocalState());
 				}
 
+				if (channelStateSnapshot != null) {
+					// the in-flight data belongs to the head operator, which reads the inputs on restore
+					OperatorID headOperatorID = owner.configuration.getOperatorID();
+					jobManagerTaskOperatorSubtaskStates.putSubtaskStateByOperatorID(
+						headOperatorID,
+						channelStateSnapshot.persist(
+							jobManagerTaskOperatorSubtaskStates.getSubtaskStateByOperatorID(headOperatorID),
+							channelStateStorage));
+				}
+
 				final long asyncEndNanos = System.nanoTime();
 				final long asyncDurationMillis = (asyncEndNanos - asyncStartNanos) / 1_000_000L;
 
@@ -880,6 +1170,12 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 						owner.getName(),
 						checkpointMetaData.getCheckpointId());
 				}
+			} catch (CancellationException e) {
+				// the unaligned checkpoint was canceled or subsumed, and already declined by the barrier handler
+				LOG.debug("{} - asynchronous part of checkpoint {} was canceled.",
+					owner.getName(),
+					checkpointMetaData.getCheckpointId());
+				close();
 			} catch (Exception e) {
 				handleExecutionException(e);
 			} finally {
@@ -994,6 +1290,10 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				}
 			}
 
+			if (channelStateSnapshot != null) {
+				channelStateSnapshot.release();
+			}
+
 			if (null != exception) {
 				throw exception;
 			}
@@ -1022,6 +1322,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		private final CheckpointMetrics checkpointMetrics;
 		private final CheckpointStreamFactory storageLocation;
 
+		@Nullable
+		private final ChannelStateSnapshot channelStateSnapshot;
+
 		private final StreamOperator<?>[] allOperators;
 
 		private long startSyncPartNano;
@@ -1036,13 +1339,15 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				CheckpointMetaData checkpointMetaData,
 				CheckpointOptions checkpointOptions,
 				CheckpointStreamFactory checkpointStorageLocation,
-				CheckpointMetrics checkpointMetrics) {
+				CheckpointMetrics checkpointMetrics,
+				@Nullable ChannelStateSnapshot channelStateSnapshot) {
 
 			this.owner = Preconditions.checkNotNull(owner);
 			this.checkpointMetaData = Preconditions.checkNotNull(checkpointMetaData);
 			this.checkpointOptions = Preconditions.checkNotNull(checkpointOptions);
 			this.checkpointMetrics = Preconditions.checkNotNull(checkpointMetrics);
 			this.storageLocation = Preconditions.checkNotNull(checkpointStorageLocation);
+			this.channelStateSnapshot = channelStateSnapshot;
 			this.allOperators = owner.operatorChain.getAllOperators();
 			this.operatorSnapshotsInProgress = new HashMap<>(allOperators.length);
 		}
@@ -1070,7 +1375,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 					operatorSnapshotsInProgress,
 					checkpointMetaData,
 					checkpointMetrics,
-					startAsyncPartNano);
+					startAsyncPartNano,
+					channelStateSnapshot,
+					storageLocation);
 
 				owner.cancelables.registerCloseable(asyncCheckpointRunnable);
 				owner.asyncOperationsThreadPool.submit(asyncCheckpointRunnable);
@@ -1094,6 +1401,10 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 					}
 				}
 
+				if (channelStateSnapshot != null) {
+					channelStateSnapshot.release();
+				}
+
 				if (LOG.isDebugEnabled()) {
 					LOG.debug("{} - did NOT finish synchronous part of checkpoint {}. " +
 							"Alignment duration: {} ms, snapshot duration {} ms",
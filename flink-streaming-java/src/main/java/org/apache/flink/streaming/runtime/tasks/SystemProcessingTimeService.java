@@ -19,12 +19,14 @@ package org.apache.flink.streaming.runtime.tasks;
 
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.time.Deadline;
+import org.apache.flink.streaming.runtime.tasks.mailbox.Mailbox;
 import org.apache.flink.util.Preconditions;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.time.Duration;
 import java.util.concurrent.BlockingQueue;
@@ -43,6 +45,9 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
 /**
  * A {@link ProcessingTimeService} which assigns as current processing time the result of calling
  * {@link System#currentTimeMillis()} and registers timers using a {@link ScheduledThreadPoolExecutor}.
+ *
+ * <p>If the service is given the {@link Mailbox} of the task, firing timers are handed to the task
+ * thread through the mailbox. Otherwise the timer thread fires them while holding the checkpoint lock.
  */
 public class SystemProcessingTimeService extends ProcessingTimeService {
 
@@ -60,6 +65,10 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 	/** The lock that timers acquire upon triggering. */
 	private final Object checkpointLock;
 
+	/** The mailbox into which firing timers are put, or null to fire them under the checkpoint lock. */
+	@Nullable
+	private final Mailbox mailbox;
+
 	/** The executor service that schedules and calls the triggers of this task. */
 	private final ScheduledThreadPoolExecutor timerService;
 
@@ -73,9 +82,18 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 			AsyncExceptionHandler task,
 			Object checkpointLock,
 			ThreadFactory threadFactory) {
+		this(task, checkpointLock, threadFactory, null);
+	}
+
+	public SystemProcessingTimeService(
+			AsyncExceptionHandler task,
+			Object checkpointLock,
+			ThreadFactory threadFactory,
+			@Nullable Mailbox mailbox) {
 
 		this.task = checkNotNull(task);
 		this.checkpointLock = checkNotNull(checkpointLock);
+		this.mailbox = mailbox;
 
 		this.status = new AtomicInteger(STATUS_ALIVE);
 
@@ -119,7 +137,7 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 		// that way we save unnecessary volatile accesses for each timer
 		try {
 			return timerService.schedule(
-					new TriggerTask(status, task, checkpointLock, target, timestamp), delay, TimeUnit.MILLISECONDS);
+					new TriggerTask(status, task, checkpointLock, mailbox, target, timestamp), delay, TimeUnit.MILLISECONDS);
 		}
 		catch (RejectedExecutionException e) {
 			final int status = this.status.get();
@@ -144,7 +162,7 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 		// that way we save unnecessary volatile accesses for each timer
 		try {
 			return timerService.scheduleAtFixedRate(
-				new RepeatedTriggerTask(status, task, checkpointLock, callback, nextTimestamp, period),
+				new RepeatedTriggerTask(status, task, checkpointLock, mailbox, callback, nextTimestamp, period),
 				initialDelay,
 				period,
 				TimeUnit.MILLISECONDS);
@@ -259,6 +277,8 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 
 		private final AtomicInteger serviceStatus;
 		private final Object lock;
+		@Nullable
+		private final Mailbox mailbox;
 		private final ProcessingTimeCallback target;
 		private final long timestamp;
 		private final AsyncExceptionHandler exceptionHandler;
@@ -267,29 +287,41 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 				final AtomicInteger serviceStatus,
 				final AsyncExceptionHandler exceptionHandler,
 				final Object lock,
+				@Nullable final Mailbox mailbox,
 				final ProcessingTimeCallback target,
 				final long timestamp) {
 
 			this.serviceStatus = Preconditions.checkNotNull(serviceStatus);
 			this.exceptionHandler = Preconditions.checkNotNull(exceptionHandler);
 			this.lock = Preconditions.checkNotNull(lock);
+			this.mailbox = mailbox;
 			this.target = Preconditions.checkNotNull(target);
 			this.timestamp = timestamp;
 		}
 
 		@Override
 		public void run() {
-			synchronized (lock) {
-				try {
-					if (serviceStatus.get() == STATUS_ALIVE) {
-						target.onProcessingTime(timestamp);
-					}
-				} catch (Throwable t) {
-					TimerException asyncException = new TimerException(t);
-					exceptionHandler.handleAsyncException("Caught exception while processing timer.", asyncException);
+			if (mailbox != null) {
+				// a closed mailbox drops the timer, like a quiesced service
+				mailbox.offer(this::trigger);
+			}
+			else {
+				synchronized (lock) {
+					trigger();
 				}
 			}
 		}
+
+		private void trigger() {
+			try {
+				if (serviceStatus.get() == STATUS_ALIVE) {
+					target.onProcessingTime(timestamp);
+				}
+			} catch (Throwable t) {
+				TimerException asyncException = new TimerException(t);
+				exceptionHandler.handleAsyncException("Caught exception while processing timer.", asyncException);
+			}
+		}
 	}
 
 	/**
@@ -299,6 +331,8 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 
 		private final AtomicInteger serviceStatus;
 		private final Object lock;
+		@Nullable
+		private final Mailbox mailbox;
 		private final ProcessingTimeCallback target;
 		private final long period;
 		private final AsyncExceptionHandler exceptionHandler;
@@ -309,12 +343,14 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 				final AtomicInteger serviceStatus,
 				final AsyncExceptionHandler exceptionHandler,
 				final Object lock,
+				@Nullable final Mailbox mailbox,
 				final ProcessingTimeCallback target,
 				final long nextTimestamp,
 				final long period) {
 
 			this.serviceStatus = Preconditions.checkNotNull(serviceStatus);
 			this.lock = Preconditions.checkNotNull(lock);
+			this.mailbox = mailbox;
 			this.target = Preconditions.checkNotNull(target);
 			this.period = period;
 			this.exceptionHandler = Preconditions.checkNotNull(exceptionHandler);
@@ -324,17 +360,31 @@ public class SystemProcessingTimeService extends ProcessingTimeService {
 
 		@Override
 		public void run() {
-			synchronized (lock) {
-				try {
-					if (serviceStatus.get() == STATUS_ALIVE) {
-						target.onProcessingTime(nextTimestamp);
+			if (mailbox != null) {
+				// the timestamp advances in the timer thread, the callback runs in the task thread
+				final long timestamp = nextTimestamp;
+				nextTimestamp += period;
+				mailbox.offer(() -> trigger(timestamp));
+			}
+			else {
+				synchronized (lock) {
+					if (trigger(nextTimestamp)) {
+						nextTimestamp += period;
 					}
+				}
+			}
+		}
 
-					nextTimestamp += period;
-				} catch (Throwable t) {
-					TimerException asyncException = new TimerException(t);
-					exceptionHandler.handleAsyncException("Caught exception while processing repeated timer task.", asyncException);
+		private boolean trigger(long timestamp) {
+			try {
+				if (serviceStatus.get() == STATUS_ALIVE) {
+					target.onProcessingTime(timestamp);
 				}
+				return true;
+			} catch (Throwable t) {
+				TimerException asyncException = new TimerException(t);
+				exceptionHandler.handleAsyncException("Caught exception while processing repeated timer task.", asyncException);
+				return false;
 			}
 		}
 	}
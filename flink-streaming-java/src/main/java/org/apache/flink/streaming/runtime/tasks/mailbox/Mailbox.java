@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.tasks.mailbox;
+
+import org.apache.flink.annotation.Internal;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * The mailbox of a stream task. Other threads, like the timer thread or the emitter of an async
+ * operator, put actions ("mails") into the mailbox instead of acquiring the checkpoint lock. The task
+ * thread takes the mails and runs them between two batches of input records, so that all calls to the
+ * operators happen in the task thread.
+ *
+ * <p>Besides mails, the mailbox carries a wake-up signal. The task thread waits for a mail or the
+ * signal if it has no input to process, and the input gates raise the signal once new input arrives.
+ * The signal is kept until the task thread consumed it, so that a wake-up between checking the input
+ * and starting to wait is not lost.
+ *
+ * <p>Mails are executed in the order in which they were put into the mailbox. Once the mailbox is
+ * closed, it rejects new mails.
+ */
+@Internal
+public class Mailbox implements Executor {
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Signaled if a mail was put into the mailbox, the task thread was woken up, or the mailbox was closed. */
+	private final Condition notEmpty = lock.newCondition();
+
+	/** The mails that were not taken yet. Guarded by {@link #lock}. */
+	private final ArrayDeque<Runnable> mails = new ArrayDeque<>();
+
+	/** Flag whether the task thread should wake up. Guarded by {@link #lock}. */
+	private boolean wakeUpSignal;
+
+	/** Flag whether the mailbox was closed. Guarded by {@link #lock}. */
+	private boolean closed;
+
+	/** Flag whether there are mails, readable without acquiring the lock. */
+	private volatile boolean hasMail;
+
+	// ------------------------------------------------------------------------
+	//  Sending side
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Puts the given mail into the mailbox.
+	 *
+	 * @throws RejectedExecutionException Thrown if the mailbox was closed.
+	 */
+	@Override
+	public void execute(Runnable mail) {
+		if (!offer(mail)) {
+			throw new RejectedExecutionException("The mailbox is closed.");
+		}
+	}
+
+	/**
+	 * Puts the given mail into the mailbox, if the mailbox is not closed yet.
+	 *
+	 * @return True, if the mail was put into the mailbox, false if the mailbox was closed.
+	 */
+	public boolean offer(Runnable mail) {
+		checkNotNull(mail);
+
+		lock.lock();
+		try {
+			if (closed) {
+				return false;
+			}
+
+			mails.addLast(mail);
+			hasMail = true;
+			notEmpty.signalAll();
+			return true;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Wakes up the task thread if it waits in {@link #takeOrAwaitWakeUp()}, or lets its next call
+	 * return immediately.
+	 */
+	public void wakeUp() {
+		lock.lock();
+		try {
+			wakeUpSignal = true;
+			notEmpty.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Receiving side, only called by the task thread
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Checks whether there are mails, without acquiring the lock of the mailbox.
+	 */
+	public boolean hasMail() {
+		return hasMail;
+	}
+
+	/**
+	 * Takes the oldest mail, if there is one.
+	 *
+	 * @return The oldest mail, or null if there is no mail.
+	 */
+	@Nullable
+	public Runnable tryTake() {
+		if (!hasMail) {
+			return null;
+		}
+
+		lock.lock();
+		try {
+			return pollMail();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes the oldest mail and waits for one if there is no mail. Wake-up signals are not consumed,
+	 * which lets an action that waits for a mail run within the task loop.
+	 *
+	 * @throws InterruptedException Thrown if the task thread was interrupted while waiting.
+	 * @throws IllegalStateException Thrown if the mailbox was closed and has no mails.
+	 */
+	public Runnable take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (mails.isEmpty()) {
+				if (closed) {
+					throw new IllegalStateException("The mailbox is closed.");
+				}
+				notEmpty.await();
+			}
+			return pollMail();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes the oldest mail, or waits until a mail is put into the mailbox or the task thread is woken
+	 * up. A pending wake-up signal is consumed.
+	 *
+	 * @return The oldest mail, or null if the task thread was woken up or the mailbox was closed.
+	 * @throws InterruptedException Thrown if the task thread was interrupted while waiting.
+	 */
+	@Nullable
+	public Runnable takeOrAwaitWakeUp() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (mails.isEmpty() && !wakeUpSignal && !closed) {
+				notEmpty.await();
+			}
+			wakeUpSignal = false;
+			return pollMail();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the mailbox, so that it rejects new mails, and returns the mails that were not taken yet.
+	 */
+	public List<Runnable> close() {
+		lock.lock();
+		try {
+			closed = true;
+			List<Runnable> remaining = new ArrayList<>(mails);
+			mails.clear();
+			hasMail = false;
+			notEmpty.signalAll();
+			return remaining;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isClosed() {
+		lock.lock();
+		try {
+			return closed;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private Runnable pollMail() {
+		Runnable mail = mails.pollFirst();
+		hasMail = !mails.isEmpty();
+		return mail;
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.internal.InternalAsyncValueState;
+import org.apache.flink.streaming.runtime.tasks.mailbox.Mailbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AsyncKeyedStateAccess}.
+ */
+public class AsyncKeyedStateAccessTest {
+
+	@Test
+	public void testSynchronousReadWithoutMailbox() throws Exception {
+		TestKeyContext keyContext = new TestKeyContext();
+		TestAsyncValueState state = new TestAsyncValueState(keyContext);
+		AsyncKeyedStateAccess access = new AsyncKeyedStateAccess(keyContext, null);
+
+		keyContext.setCurrentKey("a");
+		state.update(42);
+
+		List<Integer> values = new ArrayList<>();
+		access.readValue(state, values::add);
+
+		assertEquals(Arrays.asList(42), values);
+		assertEquals(0, state.pendingReads.size());
+		assertEquals(0, access.numPendingRequests());
+	}
+
+	@Test
+	public void testReadsOfSameKeyAreOrdered() throws Exception {
+		TestKeyContext keyContext = new TestKeyContext();
+		TestAsyncValueState state = new TestAsyncValueState(keyContext);
+		Mailbox mailbox = new Mailbox();
+		AsyncKeyedStateAccess access = new AsyncKeyedStateAccess(keyContext, mailbox);
+
+		keyContext.setCurrentKey("a");
+		for (int i = 0; i < 3; i++) {
+			access.readValue(state, value -> state.update(value == null ? 1 : value + 1));
+		}
+
+		// only the first read of the key is in flight
+		assertEquals(1, state.pendingReads.size());
+		assertEquals(3, access.numPendingRequests());
+
+		keyContext.setCurrentKey("b");
+		for (int i = 0; i < 3; i++) {
+			state.completeReads();
+			mailbox.take().run();
+			assertEquals(2 - i, access.numPendingRequests());
+		}
+
+		assertFalse(mailbox.hasMail());
+		assertEquals("b", keyContext.getCurrentKey());
+
+		// every continuation observed the update of its predecessor
+		keyContext.setCurrentKey("a");
+		assertEquals(Integer.valueOf(3), state.value());
+	}
+
+	@Test
+	public void testReadsOfDifferentKeysOverlap() throws Exception {
+		TestKeyContext keyContext = new TestKeyContext();
+		TestAsyncValueState state = new TestAsyncValueState(keyContext);
+		Mailbox mailbox = new Mailbox();
+		AsyncKeyedStateAccess access = new AsyncKeyedStateAccess(keyContext, mailbox);
+
+		Map<String, Integer> values = new HashMap<>();
+		for (String key : Arrays.asList("a", "b", "c")) {
+			keyContext.setCurrentKey(key);
+			state.update(key.charAt(0) - 'a');
+			access.readValue(state, value -> values.put((String) keyContext.getCurrentKey(), value));
+		}
+
+		assertEquals(3, state.pendingReads.size());
+		assertTrue(values.isEmpty());
+
+		// each continuation runs with the key of its read
+		state.completeReads();
+		access.drain();
+
+		assertEquals(3, values.size());
+		assertEquals(Integer.valueOf(0), values.get("a"));
+		assertEquals(Integer.valueOf(1), values.get("b"));
+		assertEquals(Integer.valueOf(2), values.get("c"));
+		assertEquals("c", keyContext.getCurrentKey());
+	}
+
+	@Test
+	public void testDrainRunsOnlyOwnCompletions() throws Exception {
+		TestKeyContext keyContext = new TestKeyContext();
+		TestAsyncValueState state = new TestAsyncValueState(keyContext);
+		Mailbox mailbox = new Mailbox();
+		AsyncKeyedStateAccess access = new AsyncKeyedStateAccess(keyContext, mailbox);
+
+		List<String> events = new ArrayList<>();
+		keyContext.setCurrentKey("a");
+		access.readValue(state, value -> events.add("read"));
+
+		// a mail of another operator, like a timer, that is queued before the completion
+		mailbox.offer(() -> events.add("other"));
+		state.completeReads();
+
+		access.drain();
+		assertEquals(Arrays.asList("read"), events);
+		assertEquals(0, access.numPendingRequests());
+
+		// the other mail is still there, the mail of the completion finds nothing to do
+		mailbox.take().run();
+		mailbox.take().run();
+		assertFalse(mailbox.hasMail());
+		assertEquals(Arrays.asList("read", "other"), events);
+	}
+
+	@Test
+	public void testMissingValueIsNull() throws Exception {
+		TestKeyContext keyContext = new TestKeyContext();
+		TestAsyncValueState state = new TestAsyncValueState(keyContext);
+		AsyncKeyedStateAccess access = new AsyncKeyedStateAccess(keyContext, new Mailbox());
+
+		keyContext.setCurrentKey("a");
+		List<Integer> values = new ArrayList<>();
+		access.readValue(state, values::add);
+		state.completeReads();
+		access.drain();
+
+		assertEquals(1, values.size());
+		assertNull(values.get(0));
+	}
+
+	@Test
+	public void testReadsUseNamespaceOfRequest() throws Exception {
+		TestKeyContext keyContext = new TestKeyContext();
+		TestAsyncValueState state = new TestAsyncValueState(keyContext);
+		Mailbox mailbox = new Mailbox();
+		AsyncKeyedStateAccess access = new AsyncKeyedStateAccess(keyContext, mailbox);
+
+		keyContext.setCurrentKey("a");
+		state.setCurrentNamespace("x");
+		state.update(1);
+		state.setCurrentNamespace("y");
+		state.update(2);
+
+		// the second read of the key is queued while the state moves on to another namespace
+		List<Tuple2<String, Integer>> values = new ArrayList<>();
+		for (String namespace : Arrays.asList("x", "y")) {
+			state.setCurrentNamespace(namespace);
+			access.readValue(state, value -> values.add(Tuple2.of(state.getCurrentNamespace(), value)));
+		}
+		state.setCurrentNamespace("z");
+
+		state.completeReads();
+		mailbox.take().run();
+		assertEquals(1, state.pendingReads.size());
+		assertEquals("z", state.getCurrentNamespace());
+
+		state.completeReads();
+		access.drain();
+
+		assertEquals(Arrays.asList(Tuple2.of("x", 1), Tuple2.of("y", 2)), values);
+		assertEquals("z", state.getCurrentNamespace());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static class TestKeyContext implements KeyContext {
+
+		private Object key;
+
+		@Override
+		public void setCurrentKey(Object key) {
+			this.key = key;
+		}
+
+		@Override
+		public Object getCurrentKey() {
+			return key;
+		}
+	}
+
+	/**
+	 * A value state whose asynchronous reads complete once the test completes them, with the value
+	 * of the key and namespace at the time of the read.
+	 */
+	private static class TestAsyncValueState implements InternalAsyncValueState<String, String, Integer> {
+
+		private final KeyContext keyContext;
+
+		private final Map<Tuple2<Object, String>, Integer> values = new HashMap<>();
+
+		private String namespace = "default";
+
+		final List<Runnable> pendingReads = new ArrayList<>();
+
+		TestAsyncValueState(KeyContext keyContext) {
+			this.keyContext = keyContext;
+		}
+
+		void completeReads() {
+			List<Runnable> reads = new ArrayList<>(pendingReads);
+			pendingReads.clear();
+			reads.forEach(Runnable::run);
+		}
+
+		@Override
+		public CompletableFuture<Integer> asyncValue() {
+			final Tuple2<Object, String> key = currentKeyAndNamespace();
+			final CompletableFuture<Integer> future = new CompletableFuture<>();
+			pendingReads.add(() -> future.complete(values.get(key)));
+			return future;
+		}
+
+		@Override
+		public Integer value() {
+			return values.get(currentKeyAndNamespace());
+		}
+
+		@Override
+		public void update(Integer value) {
+			values.put(currentKeyAndNamespace(), value);
+		}
+
+		@Override
+		public void clear() {
+			values.remove(currentKeyAndNamespace());
+		}
+
+		@Override
+		public TypeSerializer<String> getKeySerializer() {
+			return StringSerializer.INSTANCE;
+		}
+
+		@Override
+		public TypeSerializer<String> getNamespaceSerializer() {
+			return StringSerializer.INSTANCE;
+		}
+
+		@Override
+		public TypeSerializer<Integer> getValueSerializer() {
+			return IntSerializer.INSTANCE;
+		}
+
+		@Override
+		public void setCurrentNamespace(String namespace) {
+			this.namespace = namespace;
+		}
+
+		@Override
+		public String getCurrentNamespace() {
+			return namespace;
+		}
+
+		@Override
+		public byte[] getSerializedValue(
+				byte[] serializedKeyAndNamespace,
+				TypeSerializer<String> safeKeySerializer,
+				TypeSerializer<String> safeNamespaceSerializer,
+				TypeSerializer<Integer> safeValueSerializer) {
+			throw new UnsupportedOperationException();
+		}
+
+		private Tuple2<Object, String> currentKeyAndNamespace() {
+			return Tuple2.of(keyContext.getCurrentKey(), namespace);
+		}
+	}
+}
@@ -560,6 +560,72 @@ public class InternalTimerServiceImplTest {
 		assertEquals(0, timerService.numEventTimeTimers());
 	}
 
+	/**
+	 * Verify that the wake-ups for processing-time timers are rounded up to the timer resolution,
+	 * and that the timers keep their exact timestamps for firing and deletion.
+	 */
+	@Test
+	public void testCoalesceProcessingTimeTimers() throws Exception {
+		@SuppressWarnings("unchecked")
+		Triggerable<Integer, String> mockTriggerable = mock(Triggerable.class);
+
+		TestKeyContext keyContext = new TestKeyContext();
+		TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+
+		TimerSerializer<Integer, String> timerSerializer =
+			new TimerSerializer<>(IntSerializer.INSTANCE, StringSerializer.INSTANCE);
+		PriorityQueueSetFactory queueFactory = createQueueFactory();
+
+		InternalTimerServiceImpl<Integer, String> timerService = new InternalTimerServiceImpl<>(
+			testKeyGroupRange,
+			keyContext,
+			processingTimeService,
+			createTimerQueue("__test_processing_timers", timerSerializer, queueFactory),
+			createTimerQueue("__test_event_timers", timerSerializer, queueFactory),
+			100L);
+		timerService.startTimerService(IntSerializer.INSTANCE, StringSerializer.INSTANCE, mockTriggerable);
+
+		int key = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+		keyContext.setCurrentKey(key);
+
+		timerService.registerProcessingTimeTimer("ciao", 10);
+		timerService.registerProcessingTimeTimer("ciao", 50);
+		timerService.registerProcessingTimeTimer("ciao", 100);
+		timerService.registerProcessingTimeTimer("hello", 99);
+		timerService.registerProcessingTimeTimer("hello", 101);
+
+		assertEquals(5, timerService.numProcessingTimeTimers());
+		assertEquals(3, timerService.numProcessingTimeTimers("ciao"));
+		assertEquals(2, timerService.numProcessingTimeTimers("hello"));
+
+		assertEquals(1, processingTimeService.getNumActiveTimers());
+		assertThat(processingTimeService.getActiveTimerTimestamps(), containsInAnyOrder(100L));
+
+		// deletes only the timer with the exact timestamp
+		timerService.deleteProcessingTimeTimer("hello", 150);
+		timerService.deleteProcessingTimeTimer("hello", 99);
+		assertEquals(4, timerService.numProcessingTimeTimers());
+
+		processingTimeService.setCurrentTime(99);
+		verify(mockTriggerable, times(0)).onProcessingTime(anyInternalTimer());
+
+		processingTimeService.setCurrentTime(100);
+		verify(mockTriggerable, times(3)).onProcessingTime(anyInternalTimer());
+		verify(mockTriggerable, times(1)).onProcessingTime(eq(new TimerHeapInternalTimer<>(10, key, "ciao")));
+		verify(mockTriggerable, times(1)).onProcessingTime(eq(new TimerHeapInternalTimer<>(50, key, "ciao")));
+		verify(mockTriggerable, times(1)).onProcessingTime(eq(new TimerHeapInternalTimer<>(100, key, "ciao")));
+
+		assertEquals(1, timerService.numProcessingTimeTimers());
+		assertThat(processingTimeService.getActiveTimerTimestamps(), containsInAnyOrder(200L));
+
+		processingTimeService.setCurrentTime(200);
+		verify(mockTriggerable, times(4)).onProcessingTime(anyInternalTimer());
+		verify(mockTriggerable, times(1)).onProcessingTime(eq(new TimerHeapInternalTimer<>(101, key, "hello")));
+
+		assertEquals(0, timerService.numProcessingTimeTimers());
+		assertEquals(0, processingTimeService.getNumActiveTimers());
+	}
+
 	@Test
 	public void testSnapshotAndRestore() throws Exception {
 		testSnapshotAndRestore(InternalTimerServiceSerializationProxy.VERSION);
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LocalReduceOperator} and {@link LocalAggregateOperator}.
+ */
+public class LocalPreAggregateOperatorTest {
+
+	private static final TupleTypeInfo<Tuple2<String, Integer>> TYPE =
+		new TupleTypeInfo<>(BasicTypeInfo.STRING_TYPE_INFO, BasicTypeInfo.INT_TYPE_INFO);
+
+	@Test
+	public void testFlushOnMaxBufferedKeys() throws Exception {
+		LocalReduceOperator<String, Tuple2<String, Integer>> operator = createReduceOperator(2, 0L);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 1), 1L));
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 2), 2L));
+
+		assertTrue(testHarness.getOutput().isEmpty());
+		assertEquals(1, operator.getNumberOfBufferedKeys());
+
+		// the second key fills the mini-batch
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("b", 1), 3L));
+
+		assertEquals(
+			new HashSet<>(Arrays.asList(new StreamRecord<>(Tuple2.of("a", 3)), new StreamRecord<>(Tuple2.of("b", 1)))),
+			outputSet(testHarness));
+		assertEquals(0, operator.getNumberOfBufferedKeys());
+
+		testHarness.getOutput().clear();
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 5), 4L));
+		testHarness.close();
+
+		assertEquals(new HashSet<>(Arrays.asList(new StreamRecord<>(Tuple2.of("a", 5)))), outputSet(testHarness));
+	}
+
+	@Test
+	public void testFlushBeforeWatermarkAndBarrier() throws Exception {
+		LocalReduceOperator<String, Tuple2<String, Integer>> operator = createReduceOperator(100, 0L);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 1), 1L));
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 2), 2L));
+		testHarness.processWatermark(new Watermark(2L));
+
+		assertEquals(
+			Arrays.asList(new StreamRecord<>(Tuple2.of("a", 3)), new Watermark(2L)),
+			Arrays.asList(testHarness.getOutput().toArray()));
+
+		testHarness.getOutput().clear();
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("b", 4), 3L));
+		operator.prepareSnapshotPreBarrier(1L);
+
+		assertEquals(new HashSet<>(Arrays.asList(new StreamRecord<>(Tuple2.of("b", 4)))), outputSet(testHarness));
+		assertEquals(0, operator.getNumberOfBufferedKeys());
+
+		testHarness.close();
+	}
+
+	@Test
+	public void testFlushAfterDelay() throws Exception {
+		LocalReduceOperator<String, Tuple2<String, Integer>> operator = createReduceOperator(100, 10L);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		testHarness.open();
+		testHarness.setProcessingTime(0L);
+
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 1), 1L));
+		testHarness.setProcessingTime(5L);
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 2), 2L));
+
+		assertTrue(testHarness.getOutput().isEmpty());
+
+		// the delay counts from the oldest buffered element
+		testHarness.setProcessingTime(10L);
+
+		assertEquals(new HashSet<>(Arrays.asList(new StreamRecord<>(Tuple2.of("a", 3)))), outputSet(testHarness));
+
+		testHarness.close();
+	}
+
+	@Test
+	public void testLocalAggregate() throws Exception {
+		LocalAggregateOperator<String, Tuple2<String, Integer>, Long> operator =
+			new LocalAggregateOperator<>(new CountFunction(), new FirstFieldKeySelector(), 2, 0L);
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Long>> testHarness =
+			new OneInputStreamOperatorTestHarness<>(operator);
+
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 1), 1L));
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 2), 2L));
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("a", 3), 3L));
+		testHarness.processElement(new StreamRecord<>(Tuple2.of("b", 4), 4L));
+
+		assertEquals(
+			new HashSet<>(Arrays.asList(new StreamRecord<>(Tuple2.of("a", 3L)), new StreamRecord<>(Tuple2.of("b", 1L)))),
+			outputSet(testHarness));
+
+		testHarness.close();
+	}
+
+	private static LocalReduceOperator<String, Tuple2<String, Integer>> createReduceOperator(
+			int maxBufferedKeys,
+			long maxFlushDelay) {
+		return new LocalReduceOperator<>(
+			new SumReducer(),
+			new FirstFieldKeySelector(),
+			TYPE.createSerializer(new ExecutionConfig()),
+			maxBufferedKeys,
+			maxFlushDelay);
+	}
+
+	private static Set<Object> outputSet(OneInputStreamOperatorTestHarness<?, ?> testHarness) {
+		return new HashSet<>(testHarness.getOutput());
+	}
+
+	private static class SumReducer implements ReduceFunction<Tuple2<String, Integer>> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Tuple2<String, Integer> reduce(Tuple2<String, Integer> value1, Tuple2<String, Integer> value2) {
+			return Tuple2.of(value1.f0, value1.f1 + value2.f1);
+		}
+	}
+
+	private static class FirstFieldKeySelector implements KeySelector<Tuple2<String, Integer>, String> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String getKey(Tuple2<String, Integer> value) {
+			return value.f0;
+		}
+	}
+
+	private static class CountFunction implements AggregateFunction<Tuple2<String, Integer>, Long, Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Long createAccumulator() {
+			return 0L;
+		}
+
+		@Override
+		public Long add(Tuple2<String, Integer> value, Long accumulator) {
+			return accumulator + 1;
+		}
+
+		@Override
+		public Long getResult(Long accumulator) {
+			return accumulator;
+		}
+
+		@Override
+		public Long merge(Long a, Long b) {
+			return a + b;
+		}
+	}
+}
@@ -22,6 +22,7 @@ import org.apache.flink.api.common.functions.RichFlatMapFunction;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
 import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
 import org.apache.flink.streaming.util.TestHarnessUtil;
 import org.apache.flink.util.Collector;
@@ -89,6 +90,32 @@ public class StreamFlatMapTest {
 		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
+	@Test
+	public void testFlatMapBatch() throws Exception {
+		StreamFlatMap<Integer, Integer> operator = new StreamFlatMap<Integer, Integer>(new MyFlatMap());
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<Integer, Integer>(operator);
+
+		long initialTime = 0L;
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<Object>();
+
+		testHarness.open();
+
+		// the output of the batch does not fit into a batch of the same capacity
+		StreamRecordBatch<Integer> batch = new StreamRecordBatch<>(3);
+		batch.add(new StreamRecord<Integer>(2, initialTime + 2));
+		batch.add(new StreamRecord<Integer>(3));
+		batch.add(new StreamRecord<Integer>(4));
+		operator.processBatch(batch);
+
+		expectedOutput.add(new StreamRecord<Integer>(2, initialTime + 2));
+		expectedOutput.add(new StreamRecord<Integer>(4, initialTime + 2));
+		expectedOutput.add(new StreamRecord<Integer>(4));
+		expectedOutput.add(new StreamRecord<Integer>(16));
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
 	@Test
 	public void testOpenClose() throws Exception {
 		StreamFlatMap<String, String> operator = new StreamFlatMap<String, String>(new TestOpenCloseFlatMapFunction());
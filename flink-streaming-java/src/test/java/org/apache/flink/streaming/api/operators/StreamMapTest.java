@@ -22,6 +22,7 @@ import org.apache.flink.api.common.functions.RichMapFunction;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecordBatch;
 import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
 import org.apache.flink.streaming.util.TestHarnessUtil;
 
@@ -74,6 +75,30 @@ public class StreamMapTest {
 		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
+	@Test
+	public void testMapBatch() throws Exception {
+		StreamMap<Integer, String> operator = new StreamMap<Integer, String>(new Map());
+
+		OneInputStreamOperatorTestHarness<Integer, String> testHarness = new OneInputStreamOperatorTestHarness<Integer, String>(operator);
+
+		long initialTime = 0L;
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<Object>();
+
+		testHarness.open();
+
+		StreamRecordBatch<Integer> batch = new StreamRecordBatch<>(4);
+		batch.add(new StreamRecord<Integer>(1, initialTime + 1));
+		batch.add(new StreamRecord<Integer>(2, initialTime + 2));
+		batch.add(new StreamRecord<Integer>(3));
+		operator.processBatch(batch);
+
+		expectedOutput.add(new StreamRecord<String>("+2", initialTime + 1));
+		expectedOutput.add(new StreamRecord<String>("+3", initialTime + 2));
+		expectedOutput.add(new StreamRecord<String>("+4"));
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
 	@Test
 	public void testOpenClose() throws Exception {
 		StreamMap<String, String> operator = new StreamMap<String, String>(new TestOpenCloseMapFunction());
@@ -41,6 +41,7 @@ import org.apache.flink.runtime.state.TestTaskStateManager;
 import org.apache.flink.streaming.api.datastream.AsyncDataStream;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.async.AsyncBatchFunction;
 import org.apache.flink.streaming.api.functions.async.AsyncFunction;
 import org.apache.flink.streaming.api.functions.async.ResultFuture;
 import org.apache.flink.streaming.api.functions.async.RichAsyncFunction;
@@ -80,6 +81,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
@@ -336,9 +338,17 @@ public class AsyncWaitOperatorTest extends TestLogger {
 		testProcessingTime(AsyncDataStream.OutputMode.UNORDERED);
 	}
 
+	/**
+	 * Test the AsyncWaitOperator with keyed mode and processing time.
+	 */
+	@Test
+	public void testProcessingKeyed() throws Exception {
+		testProcessingTime(AsyncDataStream.OutputMode.KEYED);
+	}
+
 	private void testProcessingTime(AsyncDataStream.OutputMode mode) throws Exception {
 		final AsyncWaitOperator<Integer, Integer> operator = new AsyncWaitOperator<>(
-			new MyAsyncFunction(), TIMEOUT, 6, mode);
+			new MyAsyncFunction(), TIMEOUT, 6, mode, value -> value % 2, 1, 0L);
 
 		final OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator, IntSerializer.INSTANCE);
 
@@ -381,6 +391,65 @@ public class AsyncWaitOperatorTest extends TestLogger {
 					testHarness.getOutput(),
 					new StreamRecordComparator());
 		}
+
+		if (mode == AsyncDataStream.OutputMode.KEYED) {
+			// the outputs of each key keep the input order
+			for (int key = 0; key < 2; key++) {
+				long lastTimestamp = Long.MIN_VALUE;
+				for (Object element : testHarness.getOutput()) {
+					StreamRecord<?> record = (StreamRecord<?>) element;
+					if (((Integer) record.getValue() / 2) % 2 == key) {
+						Assert.assertTrue(record.getTimestamp() > lastTimestamp);
+						lastTimestamp = record.getTimestamp();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that an {@link AsyncBatchFunction} receives the inputs in batches, which are handed over
+	 * once they are full, after the maximum batch delay, and when the operator is closed.
+	 */
+	@Test
+	public void testBatchedProcessing() throws Exception {
+		BatchAsyncFunction.BATCH_SIZES.clear();
+
+		final AsyncWaitOperator<Integer, Integer> operator = new AsyncWaitOperator<>(
+			new BatchAsyncFunction(), TIMEOUT, 10, AsyncDataStream.OutputMode.ORDERED, null, 3, 100L);
+
+		final OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+			new OneInputStreamOperatorTestHarness<>(operator, IntSerializer.INSTANCE);
+
+		testHarness.open();
+		testHarness.setProcessingTime(0L);
+
+		synchronized (testHarness.getCheckpointLock()) {
+			for (int i = 1; i <= 4; i++) {
+				testHarness.processElement(new StreamRecord<>(i, i));
+			}
+		}
+
+		assertEquals(Collections.singletonList(3), new ArrayList<>(BatchAsyncFunction.BATCH_SIZES));
+
+		// the delay of the fourth input passed
+		testHarness.setProcessingTime(100L);
+
+		assertEquals(Arrays.asList(3, 1), new ArrayList<>(BatchAsyncFunction.BATCH_SIZES));
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.processElement(new StreamRecord<>(5, 5L));
+			testHarness.close();
+		}
+
+		assertEquals(Arrays.asList(3, 1, 1), new ArrayList<>(BatchAsyncFunction.BATCH_SIZES));
+
+		final Queue<Object> expectedOutput = new ArrayDeque<>();
+		for (int i = 1; i <= 5; i++) {
+			expectedOutput.add(new StreamRecord<>(2 * i, i));
+		}
+
+		TestHarnessUtil.assertOutputEquals("Batched output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
 	/**
@@ -1099,6 +1168,21 @@ public class AsyncWaitOperatorTest extends TestLogger {
 		}
 	}
 
+	private static class BatchAsyncFunction implements AsyncBatchFunction<Integer, Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		static final Queue<Integer> BATCH_SIZES = new ConcurrentLinkedQueue<>();
+
+		@Override
+		public void asyncInvokeBatch(List<Integer> inputs, List<ResultFuture<Integer>> resultFutures) {
+			BATCH_SIZES.add(inputs.size());
+			for (int i = 0; i < inputs.size(); i++) {
+				resultFutures.get(i).complete(Collections.singleton(2 * inputs.get(i)));
+			}
+		}
+	}
+
 	private static class NoOpAsyncFunction<IN, OUT> implements AsyncFunction<IN, OUT> {
 		private static final long serialVersionUID = -3060481953330480694L;
 
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.async.queue;
+
+import org.apache.flink.streaming.api.operators.async.OperatorActions;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * {@link KeyedStreamElementQueue} specific tests.
+ */
+public class KeyedStreamElementQueueTest extends TestLogger {
+	private static final long timeout = 10000L;
+	private static ExecutorService executor;
+
+	@BeforeClass
+	public static void setup() {
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		executor.shutdown();
+
+		try {
+			if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException interrupted) {
+			executor.shutdownNow();
+
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Tests that completed elements are only returned after the previous elements of their key and
+	 * the previous watermark.
+	 */
+	@Test
+	public void testCompletionOrder() throws Exception {
+		OperatorActions operatorActions = mock(OperatorActions.class);
+
+		final KeyedStreamElementQueue queue = new KeyedStreamElementQueue(
+			8, executor, operatorActions, (Integer value) -> value % 2);
+
+		StreamRecordQueueEntry<Integer> record1 = new StreamRecordQueueEntry<>(new StreamRecord<>(1, 0L));
+		StreamRecordQueueEntry<Integer> record2 = new StreamRecordQueueEntry<>(new StreamRecord<>(2, 1L));
+		StreamRecordQueueEntry<Integer> record3 = new StreamRecordQueueEntry<>(new StreamRecord<>(3, 2L));
+		WatermarkQueueEntry watermark1 = new WatermarkQueueEntry(new Watermark(3L));
+		StreamRecordQueueEntry<Integer> record4 = new StreamRecordQueueEntry<>(new StreamRecord<>(4, 4L));
+
+		List<StreamElementQueueEntry<?>> entries = Arrays.asList(record1, record2, record3, watermark1, record4);
+
+		// The queue should look like R1, R2, R3, W1, R4
+		for (StreamElementQueueEntry<?> entry : entries) {
+			queue.put(entry);
+		}
+
+		Assert.assertEquals(5, queue.size());
+
+		CompletableFuture<AsyncResult> firstPoll = CompletableFuture.supplyAsync(
+			() -> {
+				try {
+					return queue.poll();
+				} catch (InterruptedException e) {
+					throw new CompletionException(e);
+				}
+			},
+			executor);
+
+		// this should not fulfill the poll, because R3 has the same key as R1
+		record3.complete(Collections.<Integer>emptyList());
+
+		Thread.sleep(10L);
+
+		Assert.assertFalse(firstPoll.isDone());
+
+		// R2 has another key and overtakes R1
+		record2.complete(Collections.<Integer>emptyList());
+
+		Assert.assertEquals(record2, firstPoll.get());
+
+		CompletableFuture<AsyncResult> secondPoll = CompletableFuture.supplyAsync(
+			() -> {
+				try {
+					return queue.poll();
+				} catch (InterruptedException e) {
+					throw new CompletionException(e);
+				}
+			},
+			executor);
+
+		// R4 is behind W1
+		record4.complete(Collections.<Integer>emptyList());
+
+		Thread.sleep(10L);
+
+		Assert.assertFalse(secondPoll.isDone());
+
+		record1.complete(Collections.<Integer>emptyList());
+
+		Assert.assertEquals(record1, secondPoll.get());
+
+		// R1 released R3 of the same key, which releases W1 and R4
+		Assert.assertEquals(record3, queue.poll());
+		Assert.assertEquals(watermark1, queue.poll());
+		Assert.assertEquals(record4, queue.poll());
+
+		Assert.assertTrue(queue.isEmpty());
+
+		verify(operatorActions, never()).failOperator(any(Exception.class));
+	}
+}
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
+import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineOnCancellationBarrierException;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineSubsumedException;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer;
+import org.apache.flink.runtime.io.network.api.serialization.SpillingAdaptiveSpanningRecordDeserializer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+import org.apache.flink.types.IntValue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the behavior of the {@link BarrierUnaligner}.
+ */
+public class BarrierUnalignerTest {
+
+	private static final int PAGE_SIZE = 4;
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * Validates that the checkpoint is triggered on the first barrier, that no channel is blocked, and that the data
+	 * of every channel is recorded from the trigger until the channel's own barrier.
+	 */
+	@Test
+	public void testTriggerOnFirstBarrierAndRecordUntilChannelBarriers() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBuffer(0, 1),
+			createBarrier(1, 0),
+			createBuffer(1, 2, 3), createBuffer(0, 4), createBuffer(2, 5),
+			createBarrier(1, 2),
+			createBuffer(2, 6),
+			createBarrier(1, 1),
+			createBuffer(1, 7)
+		};
+
+		BarrierUnaligner unaligner = createUnaligner(3, sequence);
+		RecordingTaker taker = new RecordingTaker(unaligner);
+		unaligner.registerCheckpointEventHandler(taker);
+
+		// all buffers are handed out in their original order, no channel is blocked by a barrier
+		for (BufferOrEvent expected : sequence) {
+			if (expected.isBuffer()) {
+				assertSame(expected, unaligner.getNextNonBlocked());
+			}
+		}
+		assertNull(unaligner.getNextNonBlocked());
+
+		assertEquals(1, taker.recordings.size());
+		InputChannelRecording recording = taker.recordings.get(0);
+		assertEquals(1L, recording.getCheckpointId());
+		assertTrue(recording.isFinished());
+
+		Map<Integer, byte[]> data = recording.get();
+		assertEquals(2, data.size());
+		assertArrayEquals(new byte[]{2, 3}, data.get(1));
+		assertArrayEquals(new byte[]{5}, data.get(2));
+
+		assertEquals(0L, unaligner.getAlignmentDurationNanos());
+		unaligner.cleanup();
+	}
+
+	/**
+	 * Validates that the partially deserialized record of a channel is the start of the channel's recording.
+	 */
+	@Test
+	public void testRecordPartialRecord() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBarrier(1, 1),
+			createBuffer(0, 4, 5),
+			createBarrier(1, 0)
+		};
+
+		RecordDeserializer<IntValue>[] deserializers = createDeserializers(2);
+		deserializers[0].setNextBuffer(new NetworkBuffer(
+			MemorySegmentFactory.wrap(new byte[]{0, 0, 0, 10, 1, 2, 3}), FreeingBufferRecycler.INSTANCE, true, 7));
+		assertEquals(
+			RecordDeserializer.DeserializationResult.PARTIAL_RECORD,
+			deserializers[0].getNextRecord(new IntValue()));
+
+		BarrierUnaligner unaligner = new BarrierUnaligner(
+			new MockInputGate(PAGE_SIZE, 2, Arrays.asList(sequence)), deserializers, Collections.emptyList());
+		RecordingTaker taker = new RecordingTaker(unaligner);
+		unaligner.registerCheckpointEventHandler(taker);
+
+		drain(unaligner);
+
+		Map<Integer, byte[]> data = taker.recordings.get(0).get();
+		assertEquals(1, data.size());
+		assertArrayEquals(new byte[]{0, 0, 0, 10, 1, 2, 3, 4, 5}, data.get(0));
+
+		unaligner.cleanup();
+		for (RecordDeserializer<?> deserializer : deserializers) {
+			deserializer.clear();
+		}
+	}
+
+	/**
+	 * Validates that a cancellation barrier aborts the recording of a triggered checkpoint.
+	 */
+	@Test
+	public void testCancellationAbortsRecording() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBarrier(1, 0),
+			createBuffer(1, 1),
+			createCancellationBarrier(1, 1),
+			createBuffer(1, 2),
+			createBarrier(1, 1)
+		};
+
+		BarrierUnaligner unaligner = createUnaligner(2, sequence);
+		RecordingTaker taker = new RecordingTaker(unaligner);
+		unaligner.registerCheckpointEventHandler(taker);
+
+		drain(unaligner);
+
+		assertEquals(1, taker.recordings.size());
+		assertAborted(taker.recordings.get(0));
+		assertEquals(Collections.singletonList(1L), taker.abortedCheckpoints);
+		assertTrue(taker.abortCauses.get(0) instanceof CheckpointDeclineOnCancellationBarrierException);
+
+		unaligner.cleanup();
+	}
+
+	/**
+	 * Validates that the barrier of a newer checkpoint subsumes an incomplete recording.
+	 */
+	@Test
+	public void testNewerBarrierSubsumesRecording() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBarrier(1, 0),
+			createBuffer(1, 1),
+			createBarrier(2, 0),
+			createBuffer(1, 2),
+			createBarrier(1, 1),
+			createBarrier(2, 1)
+		};
+
+		BarrierUnaligner unaligner = createUnaligner(2, sequence);
+		RecordingTaker taker = new RecordingTaker(unaligner);
+		unaligner.registerCheckpointEventHandler(taker);
+
+		drain(unaligner);
+
+		assertEquals(2, taker.recordings.size());
+		assertAborted(taker.recordings.get(0));
+		assertEquals(Collections.singletonList(1L), taker.abortedCheckpoints);
+		assertTrue(taker.abortCauses.get(0) instanceof CheckpointDeclineSubsumedException);
+
+		// the trailing barrier of the subsumed checkpoint does not finish the new recording
+		InputChannelRecording recording = taker.recordings.get(1);
+		assertEquals(2L, recording.getCheckpointId());
+		assertTrue(recording.isFinished());
+		assertArrayEquals(new byte[]{2}, recording.get().get(1));
+
+		unaligner.cleanup();
+	}
+
+	/**
+	 * Validates that the recording is discarded if the task does not perform the checkpoint.
+	 */
+	@Test
+	public void testRecordingNotTakenIsAborted() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBarrier(1, 0),
+			createBuffer(1, 1),
+			createBarrier(1, 1)
+		};
+
+		BarrierUnaligner unaligner = createUnaligner(2, sequence);
+		drain(unaligner);
+
+		assertNull(unaligner.takeInputChannelRecording(1L));
+		unaligner.cleanup();
+	}
+
+	/**
+	 * Validates that the restored in-flight data of the channels is handed out before any data of the input gate,
+	 * split into buffers of the gate's page size.
+	 */
+	@Test
+	public void testReplayRestoredChannelState() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBuffer(0, 9),
+			createBuffer(1, 8)
+		};
+
+		Collection<InputChannelStateHandle> restoredState = Arrays.asList(
+			new InputChannelStateHandle(1, new ByteStreamStateHandle("channel-1", new byte[]{1, 2, 3, 4, 5, 6})),
+			new InputChannelStateHandle(0, new ByteStreamStateHandle("channel-0", new byte[]{7})));
+
+		BarrierUnaligner unaligner = new BarrierUnaligner(
+			new MockInputGate(PAGE_SIZE, 2, Arrays.asList(sequence)), createDeserializers(2), restoredState);
+		assertFalse(unaligner.isEmpty());
+
+		assertRestoredBuffer(unaligner.getNextNonBlocked(), 1, 1, 2, 3, 4);
+		assertRestoredBuffer(unaligner.getNextNonBlocked(), 1, 5, 6);
+		assertRestoredBuffer(unaligner.getNextNonBlocked(), 0, 7);
+
+		assertSame(sequence[0], unaligner.getNextNonBlocked());
+		assertTrue(unaligner.isEmpty());
+		assertSame(sequence[1], unaligner.getNextNonBlocked());
+		assertNull(unaligner.getNextNonBlocked());
+
+		unaligner.cleanup();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectRestoredStateOfUnknownChannel() throws Exception {
+		new BarrierUnaligner(
+			new MockInputGate(PAGE_SIZE, 2, Collections.emptyList()),
+			createDeserializers(2),
+			Collections.singletonList(
+				new InputChannelStateHandle(2, new ByteStreamStateHandle("channel-2", new byte[]{1}))));
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utils
+	// ------------------------------------------------------------------------
+
+	private BarrierUnaligner createUnaligner(int numberOfChannels, BufferOrEvent... sequence) {
+		return new BarrierUnaligner(
+			new MockInputGate(PAGE_SIZE, numberOfChannels, Arrays.asList(sequence)),
+			createDeserializers(numberOfChannels),
+			Collections.emptyList());
+	}
+
+	@SuppressWarnings("unchecked")
+	private RecordDeserializer<IntValue>[] createDeserializers(int numberOfChannels) {
+		String[] tmpDirectories = new String[]{temporaryFolder.getRoot().getAbsolutePath()};
+
+		RecordDeserializer<IntValue>[] deserializers = new RecordDeserializer[numberOfChannels];
+		for (int i = 0; i < numberOfChannels; i++) {
+			deserializers[i] = new SpillingAdaptiveSpanningRecordDeserializer<>(tmpDirectories);
+		}
+		return deserializers;
+	}
+
+	private static void drain(BarrierUnaligner unaligner) throws Exception {
+		while (unaligner.getNextNonBlocked() != null) {
+			// consume everything
+		}
+	}
+
+	private static void assertAborted(InputChannelRecording recording) throws Exception {
+		try {
+			recording.get();
+			fail("The recording should have been aborted.");
+		} catch (CancellationException expected) {
+			// expected
+		}
+	}
+
+	private static void assertRestoredBuffer(BufferOrEvent bufferOrEvent, int channelIndex, int... expectedBytes) {
+		assertNotNull(bufferOrEvent);
+		assertTrue(bufferOrEvent.isBuffer());
+		assertEquals(channelIndex, bufferOrEvent.getChannelIndex());
+
+		ByteBuffer data = bufferOrEvent.getBuffer().getNioBufferReadable();
+		assertEquals(expectedBytes.length, data.remaining());
+		for (int expected : expectedBytes) {
+			assertEquals((byte) expected, data.get());
+		}
+		bufferOrEvent.getBuffer().recycleBuffer();
+	}
+
+	private static BufferOrEvent createBarrier(long id, int channel) {
+		return new BufferOrEvent(new CheckpointBarrier(id, System.currentTimeMillis(), CheckpointOptions.forCheckpointWithDefaultLocation()), channel);
+	}
+
+	private static BufferOrEvent createCancellationBarrier(long id, int channel) {
+		return new BufferOrEvent(new CancelCheckpointMarker(id), channel);
+	}
+
+	private static BufferOrEvent createBuffer(int channel, int... data) {
+		byte[] bytes = new byte[data.length];
+		for (int i = 0; i < data.length; i++) {
+			bytes[i] = (byte) data[i];
+		}
+		return new BufferOrEvent(
+			new NetworkBuffer(MemorySegmentFactory.wrap(bytes), FreeingBufferRecycler.INSTANCE, true, bytes.length), channel);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Testing Mocks
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Takes the recording of every triggered checkpoint, like the task does while it performs the checkpoint.
+	 */
+	private static class RecordingTaker extends AbstractInvokable {
+
+		private final BarrierUnaligner unaligner;
+
+		private final List<InputChannelRecording> recordings = new ArrayList<>();
+
+		private final List<Long> abortedCheckpoints = new ArrayList<>();
+
+		private final List<Throwable> abortCauses = new ArrayList<>();
+
+		private RecordingTaker(BarrierUnaligner unaligner) {
+			super(new DummyEnvironment("test", 1, 0));
+			this.unaligner = unaligner;
+		}
+
+		@Override
+		public void invoke() {
+			throw new UnsupportedOperationException("should never be called");
+		}
+
+		@Override
+		public boolean triggerCheckpoint(CheckpointMetaData checkpointMetaData, CheckpointOptions checkpointOptions) throws Exception {
+			throw new UnsupportedOperationException("should never be called");
+		}
+
+		@Override
+		public void triggerCheckpointOnBarrier(CheckpointMetaData checkpointMetaData, CheckpointOptions checkpointOptions, CheckpointMetrics checkpointMetrics) throws Exception {
+			assertEquals(0L, checkpointMetrics.getAlignmentDurationNanos());
+
+			InputChannelRecording recording = unaligner.takeInputChannelRecording(checkpointMetaData.getCheckpointId());
+			assertNotNull(recording);
+			recordings.add(recording);
+		}
+
+		@Override
+		public void abortCheckpointOnBarrier(long checkpointId, Throwable cause) {
+			abortedCheckpoints.add(checkpointId);
+			abortCauses.add(cause);
+		}
+
+		@Override
+		public void notifyCheckpointComplete(long checkpointId) throws Exception {
+			throw new UnsupportedOperationException("should never be called");
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link InputChannelRecording}.
+ */
+public class InputChannelRecordingTest {
+
+	@Test
+	public void testRecordUntilAllChannelsFinished() throws Exception {
+		InputChannelRecording recording = new InputChannelRecording(42L, 3);
+		assertEquals(42L, recording.getCheckpointId());
+
+		recording.record(0, new byte[]{1, 2});
+		recording.record(0, new NetworkBuffer(
+			MemorySegmentFactory.wrap(new byte[]{3, 4, 5}), FreeingBufferRecycler.INSTANCE, true, 3));
+		recording.record(2, new byte[]{6});
+
+		recording.finishChannel(2);
+		assertFalse(recording.isRecording(2));
+		assertTrue(recording.isRecording(0));
+		assertFalse(recording.isFinished());
+
+		// finishing a channel twice has no effect
+		recording.finishChannel(2);
+		assertFalse(recording.isFinished());
+
+		recording.finishChannel(1);
+		recording.finishChannel(0);
+		assertTrue(recording.isFinished());
+
+		Map<Integer, byte[]> data = recording.get();
+		assertEquals(2, data.size());
+		assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, data.get(0));
+		assertArrayEquals(new byte[]{6}, data.get(2));
+
+		// channels without data are omitted
+		assertFalse(data.containsKey(1));
+	}
+
+	@Test
+	public void testAbort() throws Exception {
+		InputChannelRecording recording = new InputChannelRecording(1L, 2);
+		recording.record(0, new byte[]{1});
+		recording.finishChannel(0);
+
+		recording.abort();
+
+		try {
+			recording.get();
+			fail("The recording was aborted.");
+		} catch (CancellationException expected) {
+			// expected
+		}
+	}
+}
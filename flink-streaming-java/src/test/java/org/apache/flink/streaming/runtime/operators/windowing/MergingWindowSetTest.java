@@ -20,6 +20,7 @@ package org.apache.flink.streaming.runtime.operators.windowing;
 
 import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.MapState;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
@@ -38,7 +39,9 @@ import org.mockito.Matchers;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.anyOf;
 import static org.hamcrest.CoreMatchers.hasItem;
@@ -53,6 +56,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -420,6 +424,79 @@ public class MergingWindowSetTest {
 
 	}
 
+	@Test
+	public void testPersistToMapStateOnlyWritesChanges() throws Exception {
+		Map<TimeWindow, TimeWindow> entries = new HashMap<>();
+		entries.put(new TimeWindow(1, 2), new TimeWindow(1, 2));
+		entries.put(new TimeWindow(17, 42), new TimeWindow(17, 42));
+
+		@SuppressWarnings("unchecked")
+		MapState<TimeWindow, TimeWindow> mockState = mock(MapState.class);
+		when(mockState.entries()).thenReturn(entries.entrySet());
+
+		MergingWindowSet<TimeWindow> windowSet = new MergingWindowSet<>(EventTimeSessionWindows.withGap(Time.milliseconds(3)), mockState, null);
+
+		TestingMergeFunction mergeFunction = new TestingMergeFunction();
+
+		assertEquals(new TimeWindow(1, 5), windowSet.addWindow(new TimeWindow(2, 5), mergeFunction));
+		assertEquals(new TimeWindow(1, 2), windowSet.getStateWindow(new TimeWindow(1, 5)));
+
+		windowSet.persist();
+
+		verify(mockState).remove(eq(new TimeWindow(1, 2)));
+		verify(mockState).put(eq(new TimeWindow(1, 5)), eq(new TimeWindow(1, 2)));
+
+		verify(mockState, times(1)).remove(Matchers.<TimeWindow>anyObject());
+		verify(mockState, times(1)).put(Matchers.<TimeWindow>anyObject(), Matchers.<TimeWindow>anyObject());
+	}
+
+	@Test
+	public void testMapStateLookupAndRetireDoNotReadMapping() throws Exception {
+		@SuppressWarnings("unchecked")
+		MapState<TimeWindow, TimeWindow> mockState = mock(MapState.class);
+		when(mockState.get(new TimeWindow(17, 42))).thenReturn(new TimeWindow(42, 17));
+		when(mockState.contains(new TimeWindow(17, 42))).thenReturn(true);
+
+		MergingWindowSet<TimeWindow> windowSet = new MergingWindowSet<>(EventTimeSessionWindows.withGap(Time.milliseconds(3)), mockState, null);
+
+		assertEquals(new TimeWindow(42, 17), windowSet.getStateWindow(new TimeWindow(17, 42)));
+
+		windowSet.retireWindow(new TimeWindow(17, 42));
+		windowSet.persist();
+
+		verify(mockState).remove(eq(new TimeWindow(17, 42)));
+		verify(mockState, never()).entries();
+		verify(mockState, never()).put(Matchers.<TimeWindow>anyObject(), Matchers.<TimeWindow>anyObject());
+	}
+
+	@Test
+	public void testMigrateFromLegacyListState() throws Exception {
+		@SuppressWarnings("unchecked")
+		MapState<TimeWindow, TimeWindow> mockState = mock(MapState.class);
+
+		@SuppressWarnings("unchecked")
+		ListState<Tuple2<TimeWindow, TimeWindow>> mockLegacyState = mock(ListState.class);
+		when(mockLegacyState.get()).thenReturn(Lists.newArrayList(
+				new Tuple2<>(new TimeWindow(17, 42), new TimeWindow(42, 17)),
+				new Tuple2<>(new TimeWindow(1, 2), new TimeWindow(3, 4))
+		));
+
+		MergingWindowSet<TimeWindow> windowSet = new MergingWindowSet<>(EventTimeSessionWindows.withGap(Time.milliseconds(3)), mockState, mockLegacyState);
+
+		assertEquals(new TimeWindow(42, 17), windowSet.getStateWindow(new TimeWindow(17, 42)));
+		assertEquals(new TimeWindow(3, 4), windowSet.getStateWindow(new TimeWindow(1, 2)));
+
+		// nothing is cleared before the mapping was written to the map state
+		verify(mockLegacyState, never()).clear();
+
+		windowSet.persist();
+
+		verify(mockLegacyState).clear();
+		verify(mockState).put(eq(new TimeWindow(17, 42)), eq(new TimeWindow(42, 17)));
+		verify(mockState).put(eq(new TimeWindow(1, 2)), eq(new TimeWindow(3, 4)));
+		verify(mockState, times(2)).put(Matchers.<TimeWindow>anyObject(), Matchers.<TimeWindow>anyObject());
+	}
+
 	private static class TestingMergeFunction implements MergingWindowSet.MergeFunction<TimeWindow> {
 		private TimeWindow target = null;
 		private Collection<TimeWindow> sources = null;
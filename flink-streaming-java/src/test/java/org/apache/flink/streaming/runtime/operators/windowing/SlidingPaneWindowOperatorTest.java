@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.operators.windowing;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeHint;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.streaming.api.functions.windowing.PassThroughWindowFunction;
+import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.time.Time;
+import org.apache.flink.streaming.api.windowing.triggers.EventTimeTrigger;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
+import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalSingleValueWindowFunction;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.TestHarnessUtil;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.OutputTag;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link SlidingPaneWindowOperator}.
+ */
+public class SlidingPaneWindowOperatorTest extends TestLogger {
+
+	private static final TypeInformation<Tuple2<String, Integer>> STRING_INT_TUPLE =
+		TypeInformation.of(new TypeHint<Tuple2<String, Integer>>(){});
+
+	private static final TypeSerializer<Tuple2<String, Integer>> STRING_INT_TUPLE_SERIALIZER =
+		STRING_INT_TUPLE.createSerializer(new ExecutionConfig());
+
+	private static final OutputTag<Tuple2<String, Integer>> LATE_OUTPUT_TAG =
+		new OutputTag<Tuple2<String, Integer>>("late-output") {};
+
+	/**
+	 * Runs the same sequence as the sliding window test of the {@link WindowOperator}, including a
+	 * restore from a snapshot, and expects the same results.
+	 */
+	@Test
+	public void testSlidingEventTimeWindowsReduce() throws Exception {
+		SlidingPaneWindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>> operator =
+			createReduceOperator(3000, 1000, null);
+
+		assertEquals(1000, operator.getPaneSize());
+
+		KeyedOneInputStreamOperatorTestHarness<String, Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+			createTestHarness(operator);
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 3999));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 3000));
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 1), 20));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 1), 0));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 1), 999));
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 1998));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 1999));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 1000));
+
+		testHarness.processWatermark(new Watermark(999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 3), 999));
+		expectedOutput.add(new Watermark(999));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		testHarness.processWatermark(new Watermark(1999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 3), 1999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key2", 3), 1999));
+		expectedOutput.add(new Watermark(1999));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		testHarness.processWatermark(new Watermark(2999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 3), 2999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key2", 3), 2999));
+		expectedOutput.add(new Watermark(2999));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		// do a snapshot, close and restore again
+		OperatorSubtaskState snapshot = testHarness.snapshot(0L, 0L);
+		testHarness.close();
+
+		expectedOutput.clear();
+		testHarness = createTestHarness(createReduceOperator(3000, 1000, null));
+		testHarness.setup();
+		testHarness.initializeState(snapshot);
+		testHarness.open();
+
+		testHarness.processWatermark(new Watermark(3999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key2", 5), 3999));
+		expectedOutput.add(new Watermark(3999));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		testHarness.processWatermark(new Watermark(4999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key2", 2), 4999));
+		expectedOutput.add(new Watermark(4999));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		testHarness.processWatermark(new Watermark(5999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key2", 2), 5999));
+		expectedOutput.add(new Watermark(5999));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		// those don't have any effect...
+		testHarness.processWatermark(new Watermark(6999));
+		testHarness.processWatermark(new Watermark(7999));
+		expectedOutput.add(new Watermark(6999));
+		expectedOutput.add(new Watermark(7999));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		// all panes were dropped once their last window fired
+		assertEquals(0, testHarness.numKeyedStateEntries());
+		assertEquals(0, testHarness.numEventTimeTimers());
+
+		testHarness.close();
+	}
+
+	/**
+	 * Tests an aggregate function with a slide that does not divide the window size, so that the
+	 * panes are smaller than the slide.
+	 */
+	@Test
+	public void testSlidingEventTimeWindowsAggregateWithPanesSmallerThanSlide() throws Exception {
+		AggregatingStateDescriptor<Tuple2<String, Integer>, Integer, Integer> stateDesc =
+			new AggregatingStateDescriptor<>("window-panes", new SumAggregator(), IntSerializer.INSTANCE);
+
+		SlidingPaneWindowOperator<String, Tuple2<String, Integer>, Integer, Integer, Tuple2<String, Integer>> operator =
+			new SlidingPaneWindowOperator<>(
+				SlidingEventTimeWindows.of(Time.seconds(3), Time.seconds(2)),
+				3000,
+				2000,
+				0,
+				new TimeWindow.Serializer(),
+				new TupleKeySelector(),
+				BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+				stateDesc,
+				new SlidingPaneWindowOperator.AggregatePaneCombiner<>(new SumAggregator(), IntSerializer.INSTANCE),
+				new InternalSingleValueWindowFunction<>(new KeyedSumWindowFunction()),
+				EventTimeTrigger.create(),
+				null);
+
+		assertEquals(1000, operator.getPaneSize());
+
+		KeyedOneInputStreamOperatorTestHarness<String, Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+			createTestHarness(operator);
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 1), 500));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 2), 1500));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 4), 2500));
+
+		// one timer for the earliest window of each pane: [-2000, 1000) for the first element,
+		// and the shared [0, 3000) for the other two, but none for [2000, 5000)
+		assertEquals(2, testHarness.numEventTimeTimers());
+
+		testHarness.processWatermark(new Watermark(999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 1), 999));
+		expectedOutput.add(new Watermark(999));
+
+		testHarness.processWatermark(new Watermark(2999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 7), 2999));
+		expectedOutput.add(new Watermark(2999));
+
+		testHarness.processWatermark(new Watermark(4999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 4), 4999));
+		expectedOutput.add(new Watermark(4999));
+
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		assertEquals(0, testHarness.numKeyedStateEntries());
+		assertEquals(0, testHarness.numEventTimeTimers());
+
+		testHarness.close();
+	}
+
+	@Test
+	public void testLateElementsAreSideOutput() throws Exception {
+		KeyedOneInputStreamOperatorTestHarness<String, Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+			createTestHarness(createReduceOperator(2000, 1000, LATE_OUTPUT_TAG));
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		ConcurrentLinkedQueue<Object> expectedSideOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 1), 500));
+		testHarness.processWatermark(new Watermark(999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 1), 999));
+		expectedOutput.add(new Watermark(999));
+
+		// the window [-1000, 1000) fired already, but [0, 2000) still takes the element
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 2), 700));
+
+		testHarness.processWatermark(new Watermark(1999));
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 3), 1999));
+		expectedOutput.add(new Watermark(1999));
+
+		// all windows of the element fired already
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 4), 800));
+		expectedSideOutput.add(new StreamRecord<>(new Tuple2<>("key1", 4), 800));
+
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+		TestHarnessUtil.assertOutputEqualsSorted("SideOutput was not correct.", expectedSideOutput, (Iterable) testHarness.getSideOutput(LATE_OUTPUT_TAG), new Tuple2ResultSortComparator());
+
+		testHarness.close();
+	}
+
+	/**
+	 * Tests that windows with gaps between them are rejected, because the panes in the gaps
+	 * would belong to no window and would never be cleared.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testWindowsShorterThanSlideAreRejected() {
+		createReduceOperator(1000, 2000, null);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	private static SlidingPaneWindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>> createReduceOperator(
+			long size,
+			long slide,
+			OutputTag<Tuple2<String, Integer>> lateDataOutputTag) {
+
+		ReducingStateDescriptor<Tuple2<String, Integer>> stateDesc =
+			new ReducingStateDescriptor<>("window-panes", new SumReducer(), STRING_INT_TUPLE_SERIALIZER);
+
+		return new SlidingPaneWindowOperator<>(
+			SlidingEventTimeWindows.of(Time.milliseconds(size), Time.milliseconds(slide)),
+			size,
+			slide,
+			0,
+			new TimeWindow.Serializer(),
+			new TupleKeySelector(),
+			BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+			stateDesc,
+			new SlidingPaneWindowOperator.ReducePaneCombiner<>(new SumReducer(), STRING_INT_TUPLE_SERIALIZER),
+			new InternalSingleValueWindowFunction<>(new PassThroughWindowFunction<String, TimeWindow, Tuple2<String, Integer>>()),
+			EventTimeTrigger.create(),
+			lateDataOutputTag);
+	}
+
+	private static <OUT> KeyedOneInputStreamOperatorTestHarness<String, Tuple2<String, Integer>, OUT> createTestHarness(
+			SlidingPaneWindowOperator<String, Tuple2<String, Integer>, ?, ?, OUT> operator) throws Exception {
+		return new KeyedOneInputStreamOperatorTestHarness<>(operator, new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+	}
+
+	private static class SumReducer implements ReduceFunction<Tuple2<String, Integer>> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Tuple2<String, Integer> reduce(Tuple2<String, Integer> value1, Tuple2<String, Integer> value2) {
+			return new Tuple2<>(value2.f0, value1.f1 + value2.f1);
+		}
+	}
+
+	private static class SumAggregator implements AggregateFunction<Tuple2<String, Integer>, Integer, Integer> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Integer createAccumulator() {
+			return 0;
+		}
+
+		@Override
+		public Integer add(Tuple2<String, Integer> value, Integer accumulator) {
+			return accumulator + value.f1;
+		}
+
+		@Override
+		public Integer getResult(Integer accumulator) {
+			return accumulator;
+		}
+
+		@Override
+		public Integer merge(Integer a, Integer b) {
+			return a + b;
+		}
+	}
+
+	private static class KeyedSumWindowFunction implements WindowFunction<Integer, Tuple2<String, Integer>, String, TimeWindow> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void apply(String key, TimeWindow window, Iterable<Integer> input, Collector<Tuple2<String, Integer>> out) {
+			for (Integer sum : input) {
+				out.collect(new Tuple2<>(key, sum));
+			}
+		}
+	}
+
+	private static class TupleKeySelector implements KeySelector<Tuple2<String, Integer>, String> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String getKey(Tuple2<String, Integer> value) {
+			return value.f0;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static class Tuple2ResultSortComparator implements Comparator<Object> {
+		@Override
+		public int compare(Object o1, Object o2) {
+			if (o1 instanceof Watermark || o2 instanceof Watermark) {
+				return 0;
+			} else {
+				StreamRecord<Tuple2<String, Integer>> sr0 = (StreamRecord<Tuple2<String, Integer>>) o1;
+				StreamRecord<Tuple2<String, Integer>> sr1 = (StreamRecord<Tuple2<String, Integer>>) o2;
+				if (sr0.getTimestamp() != sr1.getTimestamp()) {
+					return Long.compare(sr0.getTimestamp(), sr1.getTimestamp());
+				}
+				int comparison = sr0.getValue().f0.compareTo(sr1.getValue().f0);
+				if (comparison != 0) {
+					return comparison;
+				}
+				return Integer.compare(sr0.getValue().f1, sr1.getValue().f1);
+			}
+		}
+	}
+}
@@ -31,7 +31,12 @@ import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.tuple.Tuple3;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.operators.testutils.MockEnvironment;
+import org.apache.flink.runtime.operators.testutils.MockEnvironmentBuilder;
+import org.apache.flink.runtime.operators.testutils.MockInputSplitProvider;
+import org.apache.flink.runtime.util.TestingTaskManagerRuntimeInfo;
 import org.apache.flink.streaming.api.functions.windowing.PassThroughWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.ProcessWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.RichWindowFunction;
@@ -1089,6 +1094,73 @@ public class WindowOperatorTest extends TestLogger {
 		testHarness.close();
 	}
 
+	/**
+	 * Verifies that processing time windows are cleaned up when the wake-ups for processing time
+	 * timers are coalesced, because the timers still fire with the exact cleanup time.
+	 */
+	@Test
+	public void testProcessingTimeTumblingWindowsCleanupWithTimerResolution() throws Throwable {
+		ReducingStateDescriptor<Tuple2<String, Integer>> stateDesc = new ReducingStateDescriptor<>("window-contents",
+				new SumReducer(),
+				STRING_INT_TUPLE.createSerializer(new ExecutionConfig()));
+
+		WindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>, TimeWindow> operator = new WindowOperator<>(
+				TumblingProcessingTimeWindows.of(Time.of(1, TimeUnit.MINUTES)),
+				new TimeWindow.Serializer(),
+				new TupleKeySelector(),
+				BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+				stateDesc,
+				new InternalSingleValueWindowFunction<>(new PassThroughWindowFunction<String, TimeWindow, Tuple2<String, Integer>>()),
+				ProcessingTimeTrigger.create(),
+				0,
+				null /* late data output tag */);
+
+		Configuration taskManagerConfig = new Configuration();
+		taskManagerConfig.setLong(TaskManagerOptions.TASK_PROCESSING_TIMER_RESOLUTION, 1000L);
+
+		try (MockEnvironment environment = new MockEnvironmentBuilder()
+				.setTaskName("MockTask")
+				.setMemorySize(3 * 1024 * 1024)
+				.setInputSplitProvider(new MockInputSplitProvider())
+				.setBufferSize(1024)
+				.setTaskManagerRuntimeInfo(new TestingTaskManagerRuntimeInfo(taskManagerConfig))
+				.build()) {
+
+			KeyedOneInputStreamOperatorTestHarness<String, Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+					new KeyedOneInputStreamOperatorTestHarness<>(
+						operator, new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO, environment);
+
+			ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+			testHarness.open();
+
+			testHarness.setProcessingTime(3);
+
+			testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 7000));
+			testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 7000));
+			testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 1), 7000));
+
+			assertEquals(2, testHarness.numKeyedStateEntries());
+			assertEquals(2, testHarness.numProcessingTimeTimers());
+
+			// the timers of the window end at 59999 wake up at 60000
+			testHarness.setProcessingTime(59999);
+			assertEquals(0, testHarness.getOutput().size());
+
+			testHarness.setProcessingTime(60000);
+
+			expectedOutput.add(new StreamRecord<>(new Tuple2<>("key2", 2), 59999));
+			expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 1), 59999));
+
+			TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+			assertEquals(0, testHarness.numKeyedStateEntries());
+			assertEquals(0, testHarness.numProcessingTimeTimers());
+
+			testHarness.close();
+		}
+	}
+
 	@Test
 	public void testProcessingTimeSlidingWindows() throws Throwable {
 		final int windowSize = 3;
@@ -110,6 +110,24 @@ public class WindowTranslationTest {
 		fail("exception was not thrown");
 	}
 
+	/**
+	 * Sliding windows with gaps between them cannot share panes, because the panes in the gaps
+	 * would belong to no window.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSharePanesWithGapsBetweenWindowsFails() throws Exception {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStream<Tuple2<String, Integer>> source = env.fromElements(Tuple2.of("hello", 1), Tuple2.of("hello", 2));
+
+		source
+			.keyBy(0)
+			.window(SlidingEventTimeWindows.of(Time.of(100, TimeUnit.MILLISECONDS), Time.of(1, TimeUnit.SECONDS)))
+			.sharePanes();
+
+		fail("exception was not thrown");
+	}
+
 	/**
 	 * .aggregate() does not support RichAggregateFunction, since the AggregationFunction is used internally
 	 * in a {@code AggregatingState}.
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.partitioner;
+
+import org.apache.flink.api.java.tuple.Tuple;
+import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AdaptiveRebalancePartitioner}.
+ */
+public class AdaptiveRebalancePartitionerTest extends StreamPartitionerTest {
+
+	@Override
+	public StreamPartitioner<Tuple> createPartitioner() {
+		return new AdaptiveRebalancePartitioner<>();
+	}
+
+	@Test
+	public void testSelectChannelsIntervalWithoutWriter() {
+		int initialChannel = streamPartitioner.selectChannels(serializationDelegate, 3)[0];
+		assertTrue(0 <= initialChannel);
+		assertTrue(3 > initialChannel);
+
+		assertSelectedChannel((initialChannel + 1) % 3, 3);
+		assertSelectedChannel((initialChannel + 2) % 3, 3);
+		assertSelectedChannel((initialChannel + 3) % 3, 3);
+	}
+
+	@Test
+	public void testSelectChannelsIntervalWithEqualBacklogs() {
+		BacklogResultPartitionWriter writer = new BacklogResultPartitionWriter(3);
+		writer.backlogs[0] = 5;
+		writer.backlogs[1] = 5;
+		writer.backlogs[2] = 5;
+		((AdaptiveRebalancePartitioner<Tuple>) streamPartitioner).setResultPartitionWriter(writer);
+
+		int initialChannel = streamPartitioner.selectChannels(serializationDelegate, 3)[0];
+		for (int i = 1; i <= 9; i++) {
+			assertSelectedChannel((initialChannel + i) % 3, 3);
+		}
+	}
+
+	@Test
+	public void testSkipsBackloggedChannels() {
+		BacklogResultPartitionWriter writer = new BacklogResultPartitionWriter(4);
+		writer.backlogs[0] = 1;
+		writer.backlogs[1] = AdaptiveRebalancePartitioner.DEFAULT_MAX_BACKLOG_DIFFERENCE + 1;
+		writer.backlogs[2] = AdaptiveRebalancePartitioner.DEFAULT_MAX_BACKLOG_DIFFERENCE;
+		writer.backlogs[3] = 0;
+		((AdaptiveRebalancePartitioner<Tuple>) streamPartitioner).setResultPartitionWriter(writer);
+
+		Set<Integer> selectedChannels = new HashSet<>();
+		for (int i = 0; i < 12; i++) {
+			selectedChannels.add(streamPartitioner.selectChannels(serializationDelegate, 4)[0]);
+		}
+
+		assertEquals(3, selectedChannels.size());
+		assertFalse(selectedChannels.contains(1));
+
+		// once the consumer caught up, the channel is selected again within the next cycle
+		writer.backlogs[1] = 0;
+
+		selectedChannels.clear();
+		for (int i = 0; i < 8; i++) {
+			selectedChannels.add(streamPartitioner.selectChannels(serializationDelegate, 4)[0]);
+		}
+
+		assertTrue(selectedChannels.contains(1));
+	}
+
+	@Test
+	public void testCopyKeepsMaxBacklogDifference() {
+		AdaptiveRebalancePartitioner<Tuple> partitioner = new AdaptiveRebalancePartitioner<>(0);
+		StreamPartitioner<Tuple> copy = partitioner.copy();
+
+		BacklogResultPartitionWriter writer = new BacklogResultPartitionWriter(2);
+		writer.backlogs[0] = 1;
+		writer.backlogs[1] = 0;
+		((AdaptiveRebalancePartitioner<Tuple>) copy).setResultPartitionWriter(writer);
+
+		for (int i = 0; i < 4; i++) {
+			assertEquals(1, copy.selectChannels(serializationDelegate, 2)[0]);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A {@link ResultPartitionWriter} that only reports the backlogs which the test sets.
+	 */
+	private static class BacklogResultPartitionWriter implements ResultPartitionWriter {
+
+		final int[] backlogs;
+
+		BacklogResultPartitionWriter(int numberOfSubpartitions) {
+			this.backlogs = new int[numberOfSubpartitions];
+		}
+
+		@Override
+		public int getBacklog(int subpartitionIndex) {
+			return backlogs[subpartitionIndex];
+		}
+
+		@Override
+		public int getNumberOfSubpartitions() {
+			return backlogs.length;
+		}
+
+		@Override
+		public BufferProvider getBufferProvider() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ResultPartitionID getPartitionId() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int getNumTargetKeyGroups() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void addBufferConsumer(BufferConsumer bufferConsumer, int subpartitionIndex) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void flushAll() {
+		}
+
+		@Override
+		public void flush(int subpartitionIndex) {
+		}
+	}
+}
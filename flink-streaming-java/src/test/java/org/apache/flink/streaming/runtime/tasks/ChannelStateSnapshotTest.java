@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.tasks;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.memory.MemCheckpointStreamFactory;
+import org.apache.flink.streaming.runtime.io.InputChannelRecording;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the {@link ChannelStateSnapshot}.
+ */
+public class ChannelStateSnapshotTest {
+
+	private static final int MAX_STATE_SIZE = 1024;
+
+	@Test
+	public void testPersistInFlightData() throws Exception {
+		Map<Integer, byte[]> recordedInput = new HashMap<>();
+		recordedInput.put(1, new byte[]{7, 8});
+
+		InputChannelRecording recording = mock(InputChannelRecording.class);
+		when(recording.get()).thenReturn(recordedInput);
+
+		CountingRecycler recycler = new CountingRecycler();
+		ChannelStateSnapshot snapshot = new ChannelStateSnapshot(recording);
+		snapshot.addResultSubpartitionState(0, 2, Arrays.asList(
+			createBuffer(recycler, 1, 2, 3), createBuffer(recycler, 4)));
+		snapshot.addResultSubpartitionState(1, 0, Collections.emptyList());
+
+		OperatorSubtaskState state = snapshot.persist(
+			new OperatorSubtaskState(), new MemCheckpointStreamFactory(MAX_STATE_SIZE));
+
+		// the overtaken buffers are released once they are written
+		assertEquals(2, recycler.recycled);
+
+		// subpartitions without overtaken buffers have no state
+		assertEquals(1, state.getResultSubpartitionState().size());
+		ResultSubpartitionStateHandle outputHandle = state.getResultSubpartitionState().iterator().next();
+		assertEquals(0, outputHandle.getPartitionIndex());
+		assertEquals(2, outputHandle.getSubpartitionIndex());
+		assertArrayEquals(new byte[]{1, 2, 3, 4}, readFully(outputHandle));
+
+		assertEquals(1, state.getInputChannelState().size());
+		InputChannelStateHandle inputHandle = state.getInputChannelState().iterator().next();
+		assertEquals(1, inputHandle.getChannelIndex());
+		assertArrayEquals(new byte[]{7, 8}, readFully(inputHandle));
+	}
+
+	@Test
+	public void testPersistWithoutInputRecording() throws Exception {
+		CountingRecycler recycler = new CountingRecycler();
+		ChannelStateSnapshot snapshot = new ChannelStateSnapshot(null);
+		snapshot.addResultSubpartitionState(0, 0, Collections.singletonList(createBuffer(recycler, 1)));
+
+		OperatorSubtaskState state = snapshot.persist(
+			new OperatorSubtaskState(), new MemCheckpointStreamFactory(MAX_STATE_SIZE));
+
+		assertEquals(1, recycler.recycled);
+		assertEquals(1, state.getResultSubpartitionState().size());
+		assertTrue(state.getInputChannelState().isEmpty());
+	}
+
+	@Test
+	public void testReleaseRecyclesBuffersAndCancelsPersist() throws Exception {
+		CountingRecycler recycler = new CountingRecycler();
+		ChannelStateSnapshot snapshot = new ChannelStateSnapshot(null);
+		snapshot.addResultSubpartitionState(0, 0, Arrays.asList(createBuffer(recycler, 1), createBuffer(recycler, 2)));
+
+		snapshot.release();
+		assertEquals(2, recycler.recycled);
+
+		try {
+			snapshot.persist(new OperatorSubtaskState(), new MemCheckpointStreamFactory(MAX_STATE_SIZE));
+			fail("The snapshot was released.");
+		} catch (CancellationException expected) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testAbortedInputRecordingCancelsPersist() throws Exception {
+		InputChannelRecording recording = mock(InputChannelRecording.class);
+		when(recording.get()).thenThrow(new CancellationException());
+
+		CountingRecycler recycler = new CountingRecycler();
+		ChannelStateSnapshot snapshot = new ChannelStateSnapshot(recording);
+		snapshot.addResultSubpartitionState(0, 0, Collections.singletonList(createBuffer(recycler, 1)));
+
+		try {
+			snapshot.persist(new OperatorSubtaskState(), new MemCheckpointStreamFactory(MAX_STATE_SIZE));
+			fail("The recording was aborted.");
+		} catch (CancellationException expected) {
+			// expected
+		}
+		assertEquals(1, recycler.recycled);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static Buffer createBuffer(BufferRecycler recycler, int... data) {
+		MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(16);
+		for (int i = 0; i < data.length; i++) {
+			segment.put(i, (byte) data[i]);
+		}
+		return new NetworkBuffer(segment, recycler, true, data.length);
+	}
+
+	private static byte[] readFully(StreamStateHandle handle) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (FSDataInputStream in = handle.openInputStream()) {
+			int b;
+			while ((b = in.read()) >= 0) {
+				out.write(b);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static final class CountingRecycler implements BufferRecycler {
+
+		private int recycled;
+
+		@Override
+		public void recycle(MemorySegment memorySegment) {
+			recycled++;
+		}
+	}
+}
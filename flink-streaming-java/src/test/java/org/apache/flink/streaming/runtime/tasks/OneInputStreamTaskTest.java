@@ -39,6 +39,7 @@ import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.metrics.MetricNames;
 import org.apache.flink.runtime.metrics.NoOpMetricRegistry;
+import org.apache.flink.runtime.metrics.TimerGauge;
 import org.apache.flink.runtime.metrics.groups.OperatorMetricGroup;
 import org.apache.flink.runtime.metrics.groups.TaskMetricGroup;
 import org.apache.flink.runtime.metrics.groups.UnregisteredMetricGroups;
@@ -656,6 +657,37 @@ public class OneInputStreamTaskTest extends TestLogger {
 		assertEquals(numRecords * 2 * 2 * 2, numRecordsOutCounter.getCount());
 	}
 
+	@Test
+	public void testIdleTaskReportsIdleTime() throws Exception {
+		final OneInputStreamTaskTestHarness<String, String> testHarness = new OneInputStreamTaskTestHarness<>(OneInputStreamTask::new, BasicTypeInfo.STRING_TYPE_INFO, BasicTypeInfo.STRING_TYPE_INFO);
+
+		testHarness.setupOutputForSingletonOperatorChain();
+		testHarness.getStreamConfig().setStreamOperator(new DuplicatingOperator());
+		testHarness.getStreamConfig().setOperatorID(new OperatorID());
+
+		final TaskMetricGroup taskMetricGroup = UnregisteredMetricGroups.createUnregisteredTaskMetricGroup();
+		final StreamMockEnvironment env = new StreamMockEnvironment(
+			testHarness.jobConfig, testHarness.taskConfig, testHarness.memorySize, new MockInputSplitProvider(), testHarness.bufferSize, new TestTaskStateManager()) {
+			@Override
+			public TaskMetricGroup getMetricGroup() {
+				return taskMetricGroup;
+			}
+		};
+
+		final TimerGauge idleTime = taskMetricGroup.getIOMetricGroup().getIdleTimeMsPerSecond();
+
+		testHarness.invoke(env);
+		testHarness.waitForTaskRunning();
+
+		// without input, the task waits in the mailbox
+		Thread.sleep(200L);
+		idleTime.update();
+		assertTrue(idleTime.getValue() > 0L);
+
+		testHarness.endInput();
+		testHarness.waitForTaskCompletion();
+	}
+
 	static class DuplicatingOperator extends AbstractStreamOperator<String> implements OneInputStreamOperator<String, String> {
 		@Override
 		public void processElement(StreamRecord<String> element) {
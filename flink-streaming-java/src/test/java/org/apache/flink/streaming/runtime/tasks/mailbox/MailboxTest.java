@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.tasks.mailbox;
+
+import org.apache.flink.core.testutils.CheckedThread;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Mailbox}.
+ */
+public class MailboxTest {
+
+	@Test
+	public void testMailsAreTakenInOrder() {
+		Mailbox mailbox = new Mailbox();
+		List<Integer> executed = new ArrayList<>();
+
+		for (int i = 0; i < 3; i++) {
+			final int value = i;
+			mailbox.execute(() -> executed.add(value));
+		}
+
+		assertTrue(mailbox.hasMail());
+
+		Runnable mail;
+		while ((mail = mailbox.tryTake()) != null) {
+			mail.run();
+		}
+
+		assertFalse(mailbox.hasMail());
+		assertEquals(3, executed.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(i, (int) executed.get(i));
+		}
+	}
+
+	@Test
+	public void testWakeUpIsKeptUntilConsumed() throws Exception {
+		Mailbox mailbox = new Mailbox();
+
+		// the wake-up arrives before the task thread starts to wait
+		mailbox.wakeUp();
+
+		assertNull(mailbox.takeOrAwaitWakeUp());
+		assertFalse(mailbox.hasMail());
+	}
+
+	@Test
+	public void testTakeDoesNotConsumeWakeUp() throws Exception {
+		Mailbox mailbox = new Mailbox();
+		Runnable first = () -> {};
+
+		mailbox.wakeUp();
+		mailbox.execute(first);
+
+		assertSame(first, mailbox.take());
+
+		// the wake-up is still pending, so this does not block
+		assertNull(mailbox.takeOrAwaitWakeUp());
+	}
+
+	@Test
+	public void testWakeUpFromOtherThread() throws Exception {
+		Mailbox mailbox = new Mailbox();
+
+		CheckedThread waiter = new CheckedThread() {
+			@Override
+			public void go() throws Exception {
+				assertNull(mailbox.takeOrAwaitWakeUp());
+			}
+		};
+		waiter.start();
+
+		mailbox.wakeUp();
+		waiter.sync();
+	}
+
+	@Test
+	public void testMailFromOtherThread() throws Exception {
+		Mailbox mailbox = new Mailbox();
+		Runnable mail = () -> {};
+
+		CheckedThread sender = new CheckedThread() {
+			@Override
+			public void go() {
+				mailbox.execute(mail);
+			}
+		};
+		sender.start();
+
+		assertSame(mail, mailbox.take());
+		sender.sync();
+	}
+
+	@Test
+	public void testCloseReturnsPendingMailsAndRejectsNewOnes() throws Exception {
+		Mailbox mailbox = new Mailbox();
+		Runnable pending = () -> {};
+		mailbox.execute(pending);
+
+		List<Runnable> remaining = mailbox.close();
+
+		assertEquals(1, remaining.size());
+		assertSame(pending, remaining.get(0));
+		assertTrue(mailbox.isClosed());
+		assertFalse(mailbox.offer(() -> {}));
+		assertNull(mailbox.takeOrAwaitWakeUp());
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testExecuteAfterCloseIsRejected() {
+		Mailbox mailbox = new Mailbox();
+		mailbox.close();
+
+		mailbox.execute(() -> {});
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testTakeFromClosedMailbox() throws Exception {
+		Mailbox mailbox = new Mailbox();
+		mailbox.close();
+
+		mailbox.take();
+	}
+}